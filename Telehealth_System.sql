@@ -35,7 +35,8 @@ CREATE TABLE `appointments` (
   `booking_id` int DEFAULT NULL,
   `appointment_type` varchar(50) DEFAULT 'General',
   `notes` text,
-  PRIMARY KEY (`id`)
+  PRIMARY KEY (`id`),
+  KEY `idx_appointments_schedule` (`appointment_date`,`appointment_time`,`id`)
 ) ENGINE=InnoDB AUTO_INCREMENT=6 DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
 /*!40101 SET character_set_client = @saved_cs_client */;
 
@@ -66,8 +67,11 @@ CREATE TABLE `bookings` (
   `status` enum('Pending','Approved','Cancelled') CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci DEFAULT 'Pending',
   `created_at` timestamp NULL DEFAULT CURRENT_TIMESTAMP,
   `consultation_mode` enum('Video','Audio') CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci NOT NULL DEFAULT 'Video',
+  `active_slot` tinyint GENERATED ALWAYS AS (if((`status` = 'Cancelled'),NULL,1)) STORED,
   PRIMARY KEY (`booking_id`),
+  UNIQUE KEY `uq_bookings_doctor_slot` (`doctor_id`,`appointment_date`,`appointment_time`,`active_slot`),
   KEY `patient_id` (`patient_id`),
+  KEY `idx_bookings_schedule` (`appointment_date` DESC,`appointment_time`,`booking_id`),
   KEY `doctor_id` (`doctor_id`),
   CONSTRAINT `bookings_ibfk_1` FOREIGN KEY (`patient_id`) REFERENCES `users` (`user_id`),
   CONSTRAINT `bookings_ibfk_2` FOREIGN KEY (`doctor_id`) REFERENCES `users` (`user_id`)
@@ -80,7 +84,7 @@ CREATE TABLE `bookings` (
 
 LOCK TABLES `bookings` WRITE;
 /*!40000 ALTER TABLE `bookings` DISABLE KEYS */;
-INSERT INTO `bookings` VALUES (4,6,3,'2025-10-16','12:00:00','Cold','Pending','2025-10-11 00:25:34','Video'),(5,6,4,'2025-10-14','11:00:00','Cold','Pending','2025-10-11 02:01:55','Video'),(6,6,4,'2025-10-15','10:00:00','Cold','Pending','2025-10-12 01:41:48','Video'),(7,6,3,'2025-10-19','11:00:00','Blood test','Pending','2025-10-14 13:01:40','Video'),(9,6,4,'2025-10-21','09:00:00','Flue','Pending','2025-10-14 13:55:07','Video'),(10,6,3,'2025-10-15','12:00:00','Audio','Pending','2025-10-14 13:56:05','Video'),(12,10,3,'2025-10-16','10:00:00','Fever','Pending','2025-10-14 14:24:02','Audio'),(13,10,4,'2025-10-17','10:00:00','Fever','Pending','2025-10-14 14:54:50','Audio'),(15,6,3,'2025-10-15','10:00:00','Fever','Pending','2025-10-16 11:40:52','Video');
+INSERT INTO `bookings` (`booking_id`,`patient_id`,`doctor_id`,`appointment_date`,`appointment_time`,`symptoms`,`status`,`created_at`,`consultation_mode`) VALUES (4,6,3,'2025-10-16','12:00:00','Cold','Pending','2025-10-11 00:25:34','Video'),(5,6,4,'2025-10-14','11:00:00','Cold','Pending','2025-10-11 02:01:55','Video'),(6,6,4,'2025-10-15','10:00:00','Cold','Pending','2025-10-12 01:41:48','Video'),(7,6,3,'2025-10-19','11:00:00','Blood test','Pending','2025-10-14 13:01:40','Video'),(9,6,4,'2025-10-21','09:00:00','Flue','Pending','2025-10-14 13:55:07','Video'),(10,6,3,'2025-10-15','12:00:00','Audio','Pending','2025-10-14 13:56:05','Video'),(12,10,3,'2025-10-16','10:00:00','Fever','Pending','2025-10-14 14:24:02','Audio'),(13,10,4,'2025-10-17','10:00:00','Fever','Pending','2025-10-14 14:54:50','Audio'),(15,6,3,'2025-10-15','10:00:00','Fever','Pending','2025-10-16 11:40:52','Video');
 /*!40000 ALTER TABLE `bookings` ENABLE KEYS */;
 UNLOCK TABLES;
 
@@ -303,6 +307,7 @@ CREATE TABLE `vitals_records` (
   `recorded_at` timestamp NULL DEFAULT CURRENT_TIMESTAMP,
   PRIMARY KEY (`vitals_id`),
   KEY `user_id` (`user_id`),
+  KEY `idx_vitals_user_time` (`user_id`,`recorded_at`),
   CONSTRAINT `vitals_records_ibfk_1` FOREIGN KEY (`user_id`) REFERENCES `users` (`user_id`) ON DELETE CASCADE ON UPDATE CASCADE
 ) ENGINE=InnoDB AUTO_INCREMENT=14 DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 /*!40101 SET character_set_client = @saved_cs_client */;
@@ -0,0 +1,70 @@
+package bench;
+
+import database.BookingFilter;
+import models.Appointment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The in-memory filter the booking tables apply on every keystroke, over a
+ * window of appointments like the one PagedTableLoader keeps.
+ */
+@State(Scope.Benchmark)
+public class BookingFilterBenchmark {
+
+    private static final String[] PATIENTS = {"Alice Patient", "Bob Patient", "Gihani", "Rathi", "John Smith"};
+    private static final String[] DOCTORS = {"Dr. Smith", "Dr. Brown", "Dr. Taylor", "Dr. Emily Brown"};
+    private static final String[] STATUSES = {"SCHEDULED", "COMPLETED", "CANCELLED", "Pending", "Approved"};
+
+    @Param({"500", "5000"})
+    public int rows;
+
+    private List<Appointment> appointments;
+    private BookingFilter search;
+    private BookingFilter searchStatusAndDate;
+    private BookingFilter noMatch;
+
+    @Setup
+    public void setUp() {
+        LocalDate start = LocalDate.of(2025, 10, 1);
+        appointments = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            appointments.add(new Appointment(i, PATIENTS[i % PATIENTS.length] + " " + i, DOCTORS[i % DOCTORS.length],
+                    start.plusDays(i % 60), "09:00:00", STATUSES[i % STATUSES.length], "Video", null));
+        }
+        appointments.forEach(Appointment::getSearchKey); // cached after the first filter pass in the app too
+        search = new BookingFilter("brown", null, null);
+        searchStatusAndDate = new BookingFilter("patient", "scheduled", start.plusDays(10));
+        noMatch = new BookingFilter("zz-no-such-name", "ALL", null);
+    }
+
+    @Benchmark
+    public int searchOnly() {
+        return count(search);
+    }
+
+    @Benchmark
+    public int searchStatusAndDate() {
+        return count(searchStatusAndDate);
+    }
+
+    @Benchmark
+    public int noMatch() {
+        return count(noMatch);
+    }
+
+    private int count(BookingFilter filter) {
+        int matches = 0;
+        for (Appointment appointment : appointments) {
+            if (filter.matches(appointment)) matches++;
+        }
+        return matches;
+    }
+}
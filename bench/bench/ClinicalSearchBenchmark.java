@@ -0,0 +1,69 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import search.ClinicalDocument;
+import search.InvertedIndex;
+import search.SearchHit;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Searches over an index of generated diagnoses and refills: a typed prefix
+ * across all patients, a two-word query, and the history dialog's search
+ * within one patient.
+ */
+@State(Scope.Benchmark)
+public class ClinicalSearchBenchmark {
+
+    private static final String[] CONDITIONS = {"bronchitis", "asthma", "migraine", "gastritis", "tonsillitis",
+            "hypertension", "diabetes", "sinusitis", "dermatitis", "influenza", "pneumonia", "arthritis"};
+    private static final String[] SYMPTOMS = {"cough", "fever", "headache", "nausea", "wheezing", "fatigue",
+            "rash", "congestion", "dizziness", "chest pain", "sore throat", "joint pain"};
+    private static final String[] MEDICATIONS = {"amoxicillin", "salbutamol", "paracetamol", "ibuprofen",
+            "omeprazole", "metformin", "amlodipine", "cetirizine", "prednisolone", "azithromycin"};
+
+    @Param({"100000", "1000000"})
+    public int docs;
+
+    private InvertedIndex index;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        LocalDate start = LocalDate.of(2024, 1, 1);
+        index = new InvertedIndex(64);
+        for (int i = 0; i < docs; i++) {
+            int patient = random.nextInt(docs / 20 + 1);
+            LocalDate date = start.plusDays(random.nextInt(700));
+            String medication = MEDICATIONS[random.nextInt(MEDICATIONS.length)];
+            if (i % 4 == 3) {
+                index.add(ClinicalDocument.refill(i, patient, date, medication, "Refill " + random.nextInt(90) + " tablets"));
+            } else {
+                index.add(ClinicalDocument.diagnosis(i, patient, date, CONDITIONS[random.nextInt(CONDITIONS.length)],
+                        SYMPTOMS[random.nextInt(SYMPTOMS.length)] + " and " + SYMPTOMS[random.nextInt(SYMPTOMS.length)],
+                        medication + " " + (250 + 250 * random.nextInt(3)) + "mg for " + (3 + random.nextInt(11)) + " days"));
+            }
+        }
+    }
+
+    @Benchmark
+    public List<SearchHit> prefixAllPatients() {
+        return index.search("amox", null, 50);
+    }
+
+    @Benchmark
+    public List<SearchHit> twoTermsAllPatients() {
+        return index.search("wheezing asthma ", null, 50);
+    }
+
+    @Benchmark
+    public List<SearchHit> onePatient() {
+        return index.search("cough amox", 7, 50);
+    }
+}
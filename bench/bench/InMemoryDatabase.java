@@ -0,0 +1,74 @@
+package bench;
+
+import database.ConnectionPool;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Connection stand-in whose every query returns the same in-memory rows, so
+ * the row mapping benchmarks measure our ResultSet-to-model code and not a
+ * driver or network. Values are stored as the types the mapping code reads
+ * (String, Integer, java.sql.Date, Timestamp); a missing column is SQL NULL.
+ */
+final class InMemoryDatabase {
+
+    private InMemoryDatabase() {
+    }
+
+    static ConnectionPool.ConnectionFactory returning(List<Map<String, Object>> rows) {
+        Connection connection = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "prepareStatement" -> statement(rows);
+                    case "isClosed" -> false;
+                    case "isValid", "getAutoCommit" -> true;
+                    default -> null;
+                });
+        return () -> connection;
+    }
+
+    private static PreparedStatement statement(List<Map<String, Object>> rows) {
+        return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "executeQuery" -> resultSet(rows);
+                    case "executeUpdate" -> 1;
+                    case "isClosed" -> false;
+                    default -> null;
+                });
+    }
+
+    private static ResultSet resultSet(List<Map<String, Object>> rows) {
+        int[] cursor = {-1};
+        boolean[] lastWasNull = {false};
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class}, (proxy, method, args) -> {
+            String name = method.getName();
+            switch (name) {
+                case "next":
+                    return ++cursor[0] < rows.size();
+                case "wasNull":
+                    return lastWasNull[0];
+                case "isClosed":
+                    return false;
+                case "close":
+                    return null;
+                default:
+                    if (!name.startsWith("get") || args == null || args.length != 1) return null;
+            }
+            Object value = rows.get(cursor[0]).get(String.valueOf(args[0]));
+            lastWasNull[0] = value == null;
+            return switch (name) {
+                case "getString" -> value == null ? null : value.toString();
+                case "getInt" -> value == null ? 0 : ((Number) value).intValue();
+                case "getLong" -> value == null ? 0L : ((Number) value).longValue();
+                case "getFloat" -> value == null ? 0f : ((Number) value).floatValue();
+                case "getDouble" -> value == null ? 0d : ((Number) value).doubleValue();
+                default -> value;
+            };
+        });
+    }
+}
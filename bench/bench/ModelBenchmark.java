@@ -0,0 +1,79 @@
+package bench;
+
+import models.Appointment;
+import models.Diagnosis;
+import models.HospitalReferral;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.LocalDate;
+
+/**
+ * Building the models the screens create per row, and the text they render
+ * for details dialogs and list cells.
+ */
+@State(Scope.Benchmark)
+public class ModelBenchmark {
+
+    private LocalDate date;
+    private Appointment appointment;
+    private Diagnosis diagnosis;
+    private HospitalReferral referral;
+
+    @Setup
+    public void setUp() {
+        date = LocalDate.of(2025, 10, 22);
+        appointment = newAppointment();
+        diagnosis = newDiagnosis();
+        referral = newReferral();
+    }
+
+    // ================== CONSTRUCTION ==================
+    @Benchmark
+    public Appointment newAppointment() {
+        return new Appointment(1, "Alice Patient", "Dr. Smith", date, "09:00:00", "SCHEDULED", "Video",
+                "Follow-up on blood pressure readings");
+    }
+
+    @Benchmark
+    public Diagnosis newDiagnosis() {
+        return new Diagnosis(1, 1, "Alice Patient", "Dr. Smith", "Seasonal influenza with mild fever",
+                "Fever, cough, fatigue", "Paracetamol 500mg", "Rest and fluids", "Review in one week",
+                date, "MODERATE", "ACTIVE");
+    }
+
+    @Benchmark
+    public HospitalReferral newReferral() {
+        return new HospitalReferral(1, "Alice Patient", "Smith", "City General Hospital", "Cardiology",
+                "Interventional cardiology", "Recurring chest pain on exertion", "HIGH", date,
+                date.plusDays(7), "PENDING", "0771234567", "Bring previous ECG results");
+    }
+
+    // ================== RENDERING ==================
+    @Benchmark
+    public String appointmentToString() {
+        return appointment.toString();
+    }
+
+    @Benchmark
+    public String diagnosisToString() {
+        return diagnosis.toString();
+    }
+
+    @Benchmark
+    public String diagnosisSummary() {
+        return diagnosis.getSummary();
+    }
+
+    @Benchmark
+    public String referralToString() {
+        return referral.toString();
+    }
+
+    @Benchmark
+    public String referralSummary() {
+        return referral.getSummary();
+    }
+}
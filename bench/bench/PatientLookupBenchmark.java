@@ -0,0 +1,64 @@
+package bench;
+
+import models.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import search.PatientDirectory;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * One keystroke in a patient picker: a short prefix with many matches, a
+ * longer prefix, a name with one typo, and text that matches nobody.
+ */
+@State(Scope.Benchmark)
+public class PatientLookupBenchmark {
+
+    private static final String[] FIRST = {"John", "Amal", "Ravi", "Nadia", "Kamal", "Zoë", "Sarah", "Mohamed",
+            "Li", "Anna", "Peter", "Gihani", "Rathi", "Sobiha"};
+    private static final String[] LAST = {"Smith", "Perera", "Silva", "Fernando", "Lee", "Müller", "Brown",
+            "Khan", "Wang", "Jones", "Somasundaram"};
+
+    @Param({"10000", "100000"})
+    public int patients;
+
+    private PatientDirectory directory;
+
+    @Setup
+    public void setUp() throws SQLException {
+        Random random = new Random(42);
+        List<User> users = new ArrayList<>(patients);
+        for (int i = 1; i <= patients; i++) {
+            users.add(new User(i, FIRST[random.nextInt(FIRST.length)] + " " + LAST[random.nextInt(LAST.length)],
+                    "patient" + i, null, "Patient"));
+        }
+        directory = new PatientDirectory(() -> users, Long.MAX_VALUE, () -> 0L);
+        directory.warmUp();
+    }
+
+    @Benchmark
+    public List<PatientDirectory.Match> shortPrefix() {
+        return directory.lookup("jo", 12);
+    }
+
+    @Benchmark
+    public List<PatientDirectory.Match> fullWord() {
+        return directory.lookup("nadia fer", 12);
+    }
+
+    @Benchmark
+    public List<PatientDirectory.Match> oneTypo() {
+        return directory.lookup("fernamdo", 12);
+    }
+
+    @Benchmark
+    public List<PatientDirectory.Match> noMatch() {
+        return directory.lookup("qqxv", 12);
+    }
+}
@@ -0,0 +1,65 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import referrals.Department;
+import referrals.PendingReferral;
+import referrals.ReferralMatcher;
+import referrals.SlotAssignment;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The matcher's steady state: a referral is saved or changes, and a
+ * department's capacity for one day changes, among many pending referrals
+ * spread over 20 departments.
+ */
+@State(Scope.Benchmark)
+public class ReferralMatchingBenchmark {
+
+    private static final String[] URGENCY = {"EMERGENCY", "HIGH", "MEDIUM", "LOW"};
+    private static final int DEPARTMENTS = 20;
+
+    @Param({"1000", "10000"})
+    public int pending;
+
+    private final LocalDate today = LocalDate.of(2026, 3, 2);
+    private final Random random = new Random(42);
+    private ReferralMatcher matcher;
+
+    @Setup
+    public void setUp() {
+        matcher = new ReferralMatcher(90, today);
+        for (int d = 1; d <= DEPARTMENTS; d++) {
+            matcher.putDepartment(new Department(d, "Hospital", "Department " + d, 10));
+        }
+        for (int id = 1; id <= pending; id++) {
+            matcher.upsert(randomReferral(id));
+        }
+        matcher.drainChanges();
+    }
+
+    private PendingReferral randomReferral(long id) {
+        return new PendingReferral(id, "Hospital", "Department " + (1 + random.nextInt(DEPARTMENTS)),
+                URGENCY[random.nextInt(URGENCY.length)], today, today.plusDays(random.nextInt(60)));
+    }
+
+    @Benchmark
+    public List<SlotAssignment> referralChanged() {
+        long id = 1 + random.nextInt(pending);
+        matcher.remove(id);
+        matcher.upsert(randomReferral(id));
+        return matcher.drainChanges();
+    }
+
+    @Benchmark
+    public List<SlotAssignment> capacityChanged() {
+        matcher.setCapacity(1 + random.nextInt(DEPARTMENTS), today.plusDays(random.nextInt(90)), random.nextInt(15));
+        return matcher.drainChanges();
+    }
+}
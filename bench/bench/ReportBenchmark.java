@@ -0,0 +1,48 @@
+package bench;
+
+import models.HealthReportData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import reports.HealthReportFormatter;
+import vitals.VitalsAssessment;
+import vitals.VitalsReading;
+
+import java.time.LocalDateTime;
+
+/**
+ * Text the clinicians wait for: the health report, as built for the report
+ * screen and the nightly batch. Prescription templates are in
+ * SuggestionBenchmark.
+ */
+@State(Scope.Benchmark)
+public class ReportBenchmark {
+
+    private final HealthReportFormatter formatter = new HealthReportFormatter();
+    private LocalDateTime generatedAt;
+    private HealthReportData fullReport;
+    private HealthReportData emptyReport;
+    private VitalsAssessment assessment;
+
+    @Setup
+    public void setUp() {
+        generatedAt = LocalDateTime.of(2025, 10, 22, 9, 30);
+        fullReport = new HealthReportData(6, "Alice Patient",
+                new HealthReportData.Booking(12, "2025-10-22", "09:00:00", 3, "Dr. Smith"),
+                new HealthReportData.Vitals(40, "112", "38.1", "22", "150/95", "93"),
+                new HealthReportData.Refill(7, "Amoxicillin 500mg", 21, "Approved"));
+        emptyReport = new HealthReportData(6, null, null, null, null);
+        assessment = VitalsAssessment.absolute(VitalsReading.of(40, 6, 0L, 112, 38.1f, 22, 93, 150, 95, 70));
+    }
+
+    @Benchmark
+    public String fullReport() {
+        return formatter.format(fullReport, generatedAt, assessment);
+    }
+
+    @Benchmark
+    public String emptyReport() {
+        return formatter.format(emptyReport, generatedAt, null);
+    }
+}
@@ -0,0 +1,129 @@
+package bench;
+
+import database.HealthReportLoader;
+import models.Appointment;
+import models.Diagnosis;
+import models.HealthReportData;
+import models.HospitalReferral;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import services.BookingService;
+import services.DiagnosisService;
+import services.ReferralService;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JDBC rows into models, through the same service methods the screens and
+ * the REST API call, against {@link InMemoryDatabase}.
+ */
+@State(Scope.Benchmark)
+public class RowMappingBenchmark {
+
+    @Param({"10", "1000"})
+    public int rows;
+
+    private BookingService bookings;
+    private DiagnosisService diagnoses;
+    private ReferralService referrals;
+    private HealthReportLoader reportLoader;
+    private Connection reportConnection;
+
+    @Setup
+    public void setUp() throws SQLException {
+        List<Map<String, Object>> bookingRows = new ArrayList<>();
+        List<Map<String, Object>> diagnosisRows = new ArrayList<>();
+        List<Map<String, Object>> referralRows = new ArrayList<>();
+        LocalDate start = LocalDate.of(2025, 10, 1);
+        for (int i = 0; i < rows; i++) {
+            LocalDate date = start.plusDays(i % 90);
+
+            Map<String, Object> booking = new HashMap<>();
+            booking.put("booking_id", i);
+            booking.put("doctor_name", "Dr. Smith");
+            booking.put("appointment_date", date.toString());
+            booking.put("appointment_time", "09:30:00");
+            booking.put("consultation_mode", "Video");
+            booking.put("status", "Pending");
+            bookingRows.add(booking);
+
+            Map<String, Object> diagnosis = new HashMap<>();
+            diagnosis.put("id", i);
+            diagnosis.put("appointment_id", i);
+            diagnosis.put("patient_name", "Alice Patient");
+            diagnosis.put("doctor_name", "Dr. Smith");
+            diagnosis.put("diagnosis_text", "Seasonal influenza with mild fever");
+            diagnosis.put("symptoms", "Fever, cough");
+            diagnosis.put("prescription_details", "Paracetamol 500mg");
+            diagnosis.put("treatment_plan", "Rest and fluids");
+            diagnosis.put("follow_up_instructions", "Review in one week");
+            diagnosis.put("recorded_date", Timestamp.valueOf(date.atTime(10, 0)));
+            diagnosis.put("severity", "MODERATE");
+            diagnosis.put("status", "ACTIVE");
+            diagnosisRows.add(diagnosis);
+
+            Map<String, Object> referral = new HashMap<>();
+            referral.put("referral_id", i);
+            referral.put("patient_name", "Alice Patient");
+            referral.put("referring_doctor_name", "Smith");
+            referral.put("hospital_name", "City General Hospital");
+            referral.put("department", "Cardiology");
+            referral.put("reason_for_referral", "Recurring chest pain on exertion");
+            referral.put("urgency_level", "HIGH");
+            referral.put("referral_date", Date.valueOf(date));
+            referral.put("preferred_appointment_date", Date.valueOf(date.plusDays(7)));
+            referral.put("status", "PENDING");
+            referralRows.add(referral);
+        }
+
+        Map<String, Object> report = new HashMap<>();
+        report.put("patient_name", "Alice Patient");
+        report.put("booking_id", 12);
+        report.put("appointment_date", "2025-10-22");
+        report.put("appointment_time", "09:00:00");
+        report.put("doctor_id", 3);
+        report.put("doctor_name", "Dr. Smith");
+        report.put("vitals_id", 40);
+        report.put("pulse", "72");
+        report.put("temperature", "36.8");
+        report.put("blood_pressure", "120/80");
+        report.put("oxygen", "98");
+
+        bookings = new BookingService(InMemoryDatabase.returning(bookingRows), null, null);
+        diagnoses = new DiagnosisService(InMemoryDatabase.returning(diagnosisRows));
+        referrals = new ReferralService(InMemoryDatabase.returning(referralRows), null);
+        reportLoader = new HealthReportLoader();
+        reportConnection = InMemoryDatabase.returning(List.of(report)).create();
+    }
+
+    @Benchmark
+    public List<Appointment> bookings() throws SQLException {
+        return bookings.forPatient(6);
+    }
+
+    @Benchmark
+    public List<Diagnosis> diagnoses() throws SQLException {
+        return diagnoses.history("Alice Patient");
+    }
+
+    @Benchmark
+    public List<HospitalReferral> referrals() throws SQLException {
+        return referrals.history("Alice Patient");
+    }
+
+    @Benchmark
+    public HealthReportData healthReportRow() throws SQLException {
+        return reportLoader.load(reportConnection, 6);
+    }
+}
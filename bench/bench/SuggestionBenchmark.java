@@ -0,0 +1,75 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import suggestions.SuggestionEngine;
+import suggestions.SuggestionRules;
+
+import java.util.Random;
+
+/**
+ * One keystroke on the diagnosis screen: the prescription suggestion for a
+ * short diagnosis with several keywords, one with none, and a long note, with
+ * the bundled rules alone and with thousands of extra rules. Also the cost of
+ * recompiling the rules after the file changes.
+ */
+@State(Scope.Benchmark)
+public class SuggestionBenchmark {
+
+    private static final String MANY_KEYWORDS = "Bacterial chest infection with fever, persistent cough and muscle ache";
+    private static final String NO_KEYWORDS = "Mild seasonal allergic rhinitis, otherwise well";
+
+    @Param({"0", "5000"})
+    public int extraRules;
+
+    private String source;
+    private SuggestionRules rules;
+    private String longNote;
+
+    @Setup
+    public void setUp() {
+        StringBuilder text = new StringBuilder(SuggestionEngine.bundledRules());
+        Random random = new Random(42);
+        text.append("\n[prescription]\n");
+        for (int i = 0; i < extraRules; i++) {
+            text.append(word(random)).append(", ").append(word(random)).append(" => • Rule ").append(i).append('\n');
+        }
+        source = text.toString();
+        rules = SuggestionRules.parse(source);
+
+        StringBuilder note = new StringBuilder();
+        while (note.length() < 2_000) {
+            note.append(word(random)).append(' ').append(random.nextInt(4) == 0 ? "fever " : "");
+        }
+        longNote = note.toString();
+    }
+
+    private static String word(Random random) {
+        char[] letters = new char[4 + random.nextInt(6)];
+        for (int i = 0; i < letters.length; i++) letters[i] = (char) ('a' + random.nextInt(26));
+        return new String(letters);
+    }
+
+    @Benchmark
+    public String prescriptionManyKeywords() {
+        return rules.suggest(SuggestionRules.Section.PRESCRIPTION, MANY_KEYWORDS);
+    }
+
+    @Benchmark
+    public String prescriptionNoKeywords() {
+        return rules.suggest(SuggestionRules.Section.PRESCRIPTION, NO_KEYWORDS);
+    }
+
+    @Benchmark
+    public String prescriptionLongNote() {
+        return rules.suggest(SuggestionRules.Section.PRESCRIPTION, longNote);
+    }
+
+    @Benchmark
+    public SuggestionRules compileRules() {
+        return SuggestionRules.parse(source);
+    }
+}
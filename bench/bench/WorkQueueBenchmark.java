@@ -0,0 +1,67 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import workqueue.IndexedHeap;
+import workqueue.WorkItem;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A busy doctor's queue: an item's urgency changes, an item is added and
+ * taken off again, and the dashboard reads the first ten.
+ */
+@State(Scope.Benchmark)
+public class WorkQueueBenchmark {
+
+    @Param({"1000", "100000"})
+    public int items;
+
+    private IndexedHeap<WorkItem> heap;
+    private WorkItem[] pool;
+    private final Random random = new Random(42);
+
+    @Setup
+    public void setUp() {
+        LocalDateTime start = LocalDateTime.now();
+        heap = new IndexedHeap<>();
+        pool = new WorkItem[items];
+        for (int i = 0; i < items; i++) {
+            WorkItem item = new WorkItem(WorkItem.Kind.values()[i % 4], i, i, "Patient " + i,
+                    random.nextInt(4), start.plusMinutes(random.nextInt(60 * 24 * 30)), null);
+            pool[i] = item;
+            heap.offer(item.key(), item.rank(), item);
+        }
+    }
+
+    @Benchmark
+    public boolean changeUrgency() {
+        WorkItem item = pool[random.nextInt(items)];
+        return heap.offer(item.key(), ((long) random.nextInt(4) << 40) | (item.rank() & ((1L << 40) - 1)), item);
+    }
+
+    @Benchmark
+    public WorkItem addAndRemove() {
+        WorkItem item = pool[random.nextInt(items)];
+        long key = WorkItem.key(WorkItem.Kind.VITALS, items + 1L);
+        heap.offer(key, item.rank(), item);
+        return heap.remove(key);
+    }
+
+    @Benchmark
+    public List<WorkItem> firstTen() {
+        return heap.top(10);
+    }
+
+    @Benchmark
+    public WorkItem pollAndRequeue() {
+        WorkItem first = heap.poll();
+        heap.offer(first.key(), first.rank(), first);
+        return first;
+    }
+}
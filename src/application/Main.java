@@ -1,17 +1,54 @@
 package application;
 
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
+import javafx.scene.control.Alert;
 import javafx.stage.Stage;
 import database.DatabaseHelper;
+import events.EventBus;
+import events.VitalsAlertPublisher;
+import migration.Migration;
+import migration.MigrationConfig;
+import migration.MigrationReport;
+import migration.MigrationRunner;
+import navigation.AppView;
+import navigation.ViewRegistry;
+import referrals.ReferralMatchingService;
+import suggestions.SuggestionEngine;
+import search.ClinicalSearchIndex;
+import search.PatientDirectory;
+import services.AuthService;
+import session.SessionStore;
+import utils.DbExecutor;
+import utils.StartupTimeline;
+import workqueue.WorkQueueEngine;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public class Main extends Application {
+
+    /**
+     * Exit as soon as the login screen is ready. Used by "ant cds-archive" for
+     * the training run that records which classes startup loads; that run
+     * only reads from the database, so the warm-up steps that write
+     * (migrations, referral matching) are replaced by read-only ones.
+     */
+    private static final boolean EXIT_WHEN_READY = Boolean.getBoolean("telehealth.startup.exitWhenReady");
+
+    @Override
+    public void init() {
+        // The JavaFX launcher may start the application without calling main()
+        StartupTimeline.get().mark(StartupTimeline.Phase.MAIN);
+    }
+
     public void start(Stage primaryStage) {
         try {
             //DatabaseHelper.initializeDatabase(); // Create DB on launch
-
             Parent root = FXMLLoader.load(getClass().getResource("/views/Login.fxml"));
             Scene scene = new Scene(root);
             scene.getStylesheets().add(getClass().getResource("application.css").toExternalForm());
@@ -19,13 +56,156 @@ public class Main extends Application {
             primaryStage.setTitle("TeleHealth System - Login");
             primaryStage.setScene(scene);
             primaryStage.setResizable(true);  // Allow resizing (this enables maximize button)
+            root.setDisable(true); // until the schema is up to date
+            StartupTimeline.get().markOnNextFrame(scene, StartupTimeline.Phase.FIRST_FRAME,
+                    () -> warmUp(primaryStage, root));
             primaryStage.show();
         } catch(Exception e) {
             e.printStackTrace();
         }
     }
 
+    // ================== WARM-UP ==================
+    /**
+     * Bring the schema up to date, then enable the login screen; every screen
+     * reads and writes the patient_id/doctor_id columns the migrations add.
+     * If that fails the application shows why and closes.
+     *
+     * The rest is work the first login would otherwise wait for, done while
+     * the user is typing: the password hash provider, the doctors' work
+     * queues, the patient directory, clinical search index, referral matcher
+     * and suggestion rules, and the dashboard's FXML. One of those steps that
+     * fails is skipped; the screen that needs it reports the problem as before.
+     */
+    private void warmUp(Stage stage, Parent login) {
+        CompletableFuture<Void> schema = CompletableFuture.runAsync(() -> {
+            step("database", DatabaseHelper::warmUp);
+            if (EXIT_WHEN_READY) {
+                step("schema", () -> new MigrationRunner(MigrationConfig.fromSystemProperties()).pending());
+            } else {
+                requiredStep("schema", Main::migrateSchema);
+            }
+        }, DbExecutor.get());
+        schema.whenComplete((ignored, error) -> Platform.runLater(() -> {
+            if (error == null) {
+                login.setDisable(false);
+            } else {
+                schemaFailed(stage, error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error);
+            }
+        }));
+        CompletableFuture<Void> background = schema.thenRunAsync(() -> {
+            step("alerts", VitalsAlertPublisher::install); // push vitals alerts to clinicians' dashboards
+            step("work queue", WorkQueueEngine::getInstance); // follow vitals and bookings from the start
+            step("password hashing", () -> AuthService.getInstance().warmUp());
+            step("patient directory", () -> PatientDirectory.getInstance().warmUp());
+            step("search index", () -> ClinicalSearchIndex.getInstance().catchUp()); // load the segment, read newer rows
+            if (EXIT_WHEN_READY) {
+                step("referral matching", () -> ReferralMatchingService.getInstance().hospitals());
+            } else {
+                step("referral matching", () -> ReferralMatchingService.getInstance().match()); // hospitals for the referral screen
+            }
+            step("suggestion rules", SuggestionEngine::getInstance); // compile the rules before the first keystroke
+        }, DbExecutor.get());
+        // Scene graphs are built on the FX thread, in their own event after the first frame
+        CompletableFuture<Void> dashboard = new CompletableFuture<>();
+        Platform.runLater(() -> {
+            step("dashboard view", () -> ViewRegistry.getInstance().open(AppView.DASHBOARD, null));
+            dashboard.complete(null);
+        });
+        CompletableFuture.allOf(background, dashboard).whenComplete((ignored, error) -> Platform.runLater(() -> {
+            StartupTimeline timeline = StartupTimeline.get();
+            timeline.mark(StartupTimeline.Phase.LOGIN_READY);
+            if (EXIT_WHEN_READY) {
+                System.out.println(timeline.report());
+                Platform.exit();
+            }
+        }));
+    }
+
+    /**
+     * Apply pending migrations. With -Dtelehealth.migration.autoRun=false
+     * they must already have been applied with MigrationRunner.
+     */
+    private static void migrateSchema() throws Exception {
+        MigrationConfig config = MigrationConfig.fromSystemProperties();
+        MigrationRunner runner = new MigrationRunner(config);
+        if (!config.isAutoRun()) {
+            List<Migration> pending = runner.pending();
+            if (!pending.isEmpty()) {
+                throw new IllegalStateException(pending.size() + " schema migration(s) pending, starting with version "
+                        + pending.get(0).version() + ". Run migration.MigrationRunner first.");
+            }
+            return;
+        }
+        MigrationReport report = runner.migrate();
+        if (!report.isEmpty()) {
+            System.out.println(report);
+        }
+    }
+
+    private static void schemaFailed(Stage stage, Throwable error) {
+        System.err.println("Schema not ready, exiting: " + error.getMessage());
+        Alert alert = new Alert(Alert.AlertType.ERROR);
+        alert.initOwner(stage);
+        alert.setTitle("Database Error");
+        alert.setHeaderText("The database could not be brought up to date");
+        alert.setContentText(error.getMessage() + "\n\nThe application will now close.");
+        alert.showAndWait();
+        Platform.exit();
+    }
+
+    @FunctionalInterface
+    private interface WarmUpStep {
+        void run() throws Exception;
+    }
+
+    private static void step(String name, WarmUpStep work) {
+        long start = System.nanoTime();
+        try {
+            work.run();
+        } catch (Exception e) {
+            System.err.println("Warm-up step '" + name + "' failed: " + e.getMessage());
+        } finally {
+            StartupTimeline.get().recordStep(name, (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    /** A step the application cannot run without; its failure completes the warm-up exceptionally. */
+    private static void requiredStep(String name, WarmUpStep work) {
+        long start = System.nanoTime();
+        try {
+            work.run();
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        } finally {
+            StartupTimeline.get().recordStep(name, (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    @Override
+    public void stop() {
+        EventBus.getInstance().close();
+        System.out.println("Event bus: " + EventBus.getInstance().metrics());
+        System.out.println("Logins: " + AuthService.getInstance().metrics());
+        System.out.println("Views: " + ViewRegistry.getInstance().metrics());
+        System.out.println("Search: " + ClinicalSearchIndex.getInstance().metrics());
+        System.out.println("Patient lookup: " + PatientDirectory.getInstance().metrics());
+        System.out.println("Work queue: " + WorkQueueEngine.getInstance().metrics());
+        System.out.println("Referral matching: " + ReferralMatchingService.getInstance().metrics());
+        System.out.println("Suggestions: " + SuggestionEngine.getInstance().metrics());
+        WorkQueueEngine.shutdown();
+        ReferralMatchingService.shutdown();
+        SuggestionEngine.shutdown();
+        ClinicalSearchIndex.shutdown();
+        AuthService.shutdown();
+        SessionStore.shutdown();
+        DbExecutor.shutdown();
+        DatabaseHelper.shutdown();
+    }
+
     public static void main(String[] args) {
+        StartupTimeline.get().mark(StartupTimeline.Phase.MAIN);
         launch(args);
     }
-}
\ No newline at end of file
+}
@@ -1,26 +1,32 @@
 package controllers;
 
-import database.DatabaseHelper;
+import database.AvailabilityIndex;
+import database.ReferenceDataCache;
+import database.SlotConflictException;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
+import javafx.scene.Node;
 import javafx.stage.Stage;
-import javafx.fxml.FXMLLoader;
 import models.Appointment;
+import models.User;
+import navigation.AppView;
+import navigation.RefreshableView;
+import navigation.ViewRegistry;
+import services.BookingService;
+import session.SessionContext;
+import utils.TaskScope;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
 
-public class BookConsultationController {
+public class BookConsultationController implements RefreshableView {
 
     @FXML
     private TextField txtPatientName;
@@ -57,25 +63,32 @@ public class BookConsultationController {
     @FXML
     private TableColumn<Appointment, String> colStatus;
 
-    private int patientId;         
-    private String patientName;     
-    private String userRole;        
+    private SessionContext session;
+    private int patientId;
+    private String patientName;
 
     private ObservableList<String> doctorList = FXCollections.observableArrayList();
+    private final TaskScope tasks = new TaskScope();
+    private final BookingService bookingService = new BookingService();
+    private long slotRequest; // only the latest free-slot lookup may update the combo box
+
+    private static final List<String> TIME_SLOTS = List.of(
+            "09:00 AM", "10:00 AM", "11:00 AM",
+            "12:00 PM", "02:00 PM", "03:00 PM", "04:00 PM");
 
     // ================== Initialization ==================
     @FXML
     public void initialize() {
+        tasks.bindTo(comboDoctor);
         loadDoctors();
 
         txtPatientName.setEditable(false);
         txtPatientName.setVisible(true);
 
-        // Fixed time slots
-        timeSlotBox.getItems().addAll(
-                "09:00 AM", "10:00 AM", "11:00 AM",
-                "12:00 PM", "02:00 PM", "03:00 PM", "04:00 PM"
-        );
+        // Fixed time slots, narrowed to the free ones once a doctor and date are chosen
+        timeSlotBox.getItems().addAll(TIME_SLOTS);
+        comboDoctor.valueProperty().addListener((obs, oldValue, newValue) -> refreshFreeSlots());
+        datePicker.valueProperty().addListener((obs, oldValue, newValue) -> refreshFreeSlots());
 
         // Initialize ToggleGroup
         consultationModeGroup = new ToggleGroup();
@@ -92,12 +105,14 @@ public class BookConsultationController {
         colStatus.setCellValueFactory(cell -> new javafx.beans.property.SimpleStringProperty(cell.getValue().getStatus()));
     }
 
-    // ================== Set Patient Info ==================
-    public void setPatientInfo(int id, String name, String role) {
-        this.patientId = id;
-        this.patientName = name;
-        this.userRole = role;
-        txtPatientName.setText(name);
+    // ================== Refresh ==================
+    @Override
+    public void refresh(SessionContext session) {
+        this.session = session;
+        this.patientId = session.userId();
+        this.patientName = session.userName();
+        txtPatientName.setText(patientName);
+        clearForm();
 
         // Load upcoming appointments after patient info is set
         loadUpcomingAppointments();
@@ -105,18 +120,58 @@ public class BookConsultationController {
 
     // ================== Load Doctors ==================
     private void loadDoctors() {
-        String sql = "SELECT name FROM users WHERE role='Doctor'";
-        try (Connection conn = DatabaseHelper.getConnection(); PreparedStatement ps = conn.prepareStatement(sql); ResultSet rs = ps.executeQuery()) {
-
-            doctorList.clear();
-            while (rs.next()) {
-                doctorList.add(rs.getString("name"));
-            }
+        tasks.submit(this::queryDoctors, doctors -> {
+            doctorList.setAll(doctors);
             comboDoctor.setItems(doctorList);
+        }, e -> showAlert(Alert.AlertType.ERROR, "Database Error", "Failed to load doctors: " + e.getMessage()));
+    }
+
+    private List<String> queryDoctors() throws SQLException {
+        return ReferenceDataCache.getInstance().namesByRole(ReferenceDataCache.ROLE_DOCTOR);
+    }
 
-        } catch (SQLException e) {
-            showAlert(Alert.AlertType.ERROR, "Database Error", "Failed to load doctors: " + e.getMessage());
+    // ================== Free Time Slots ==================
+    private void refreshFreeSlots() {
+        String doctor = comboDoctor.getValue();
+        LocalDate date = datePicker.getValue();
+        long request = ++slotRequest;
+        if (doctor == null || date == null) {
+            showTimeSlots(TIME_SLOTS);
+            return;
         }
+        tasks.submit(() -> {
+            int doctorId = getDoctorIdByName(doctor);
+            if (doctorId == -1) {
+                return TIME_SLOTS;
+            }
+            List<LocalTime> candidates = new ArrayList<>();
+            for (String slot : TIME_SLOTS) {
+                candidates.add(parseTimeSlot(slot));
+            }
+            List<LocalTime> free = AvailabilityIndex.getInstance().freeSlots(doctorId, date, candidates);
+            List<String> labels = new ArrayList<>();
+            for (String slot : TIME_SLOTS) {
+                if (free.contains(parseTimeSlot(slot))) {
+                    labels.add(slot);
+                }
+            }
+            return labels;
+        }, labels -> {
+            if (request == slotRequest) {
+                showTimeSlots(labels);
+            }
+        }, Throwable::printStackTrace);
+    }
+
+    private void showTimeSlots(List<String> slots) {
+        String selected = timeSlotBox.getValue();
+        timeSlotBox.getItems().setAll(slots);
+        timeSlotBox.setValue(slots.contains(selected) ? selected : null);
+    }
+
+    private static LocalTime parseTimeSlot(String slot) {
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("hh:mm a", java.util.Locale.ENGLISH);
+        return LocalTime.parse(slot.trim().toUpperCase(), formatter);
     }
 
     // ================== Book Appointment ==================
@@ -132,18 +187,10 @@ public class BookConsultationController {
             return;
         }
 
-        int doctorId = getDoctorIdByName(selectedDoctor);
-        if (doctorId == -1) {
-            showAlert(Alert.AlertType.ERROR, "Error", "Unable to find selected doctor in database.");
-            return;
-        }
-
         // ===== Parse AM/PM time to 24-hour LocalTime =====
         LocalTime time;
         try {
-            String normalizedTime = selectedTime.trim().toUpperCase();
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("hh:mm a", java.util.Locale.ENGLISH);
-            time = LocalTime.parse(normalizedTime, formatter);
+            time = parseTimeSlot(selectedTime);
         } catch (Exception e) {
             showAlert(Alert.AlertType.ERROR, "Invalid Time",
                     "Selected time is invalid. Please choose a valid time slot.");
@@ -153,107 +200,71 @@ public class BookConsultationController {
         // ===== Get Selected Consultation Mode =====
         String consultationMode = ((RadioButton) consultationModeGroup.getSelectedToggle()).getText();
 
-        String sql = "INSERT INTO bookings (patient_id, doctor_id, appointment_date, appointment_time, symptoms, consultation_mode, status) "
-                + "VALUES (?, ?, ?, ?, ?, ?, 'Pending')";
-
-        try (Connection conn = DatabaseHelper.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
-
-            ps.setInt(1, patientId);
-            ps.setInt(2, doctorId);
-            ps.setDate(3, java.sql.Date.valueOf(date));
-            ps.setTime(4, java.sql.Time.valueOf(time));
-            ps.setString(5, symptoms);
-            ps.setString(6, consultationMode);
-
-            int rows = ps.executeUpdate();
-            if (rows > 0) {
+        btnBook.setDisable(true);
+        tasks.submitWrite(() -> {
+            int doctorId = getDoctorIdByName(selectedDoctor);
+            if (doctorId == -1) {
+                return -1;
+            }
+            return insertBooking(doctorId, date, time, symptoms, consultationMode);
+        }, rows -> {
+            btnBook.setDisable(false);
+            if (rows == -1) {
+                showAlert(Alert.AlertType.ERROR, "Error", "Unable to find selected doctor in database.");
+            } else if (rows > 0) {
                 showAlert(Alert.AlertType.INFORMATION, "Success", "Appointment booked successfully!");
                 clearForm();
                 loadUpcomingAppointments();
             }
-
-        } catch (SQLException e) {
+        }, e -> {
+            btnBook.setDisable(false);
+            if (e instanceof SlotConflictException) {
+                showAlert(Alert.AlertType.WARNING, "Time Slot Taken",
+                        "The doctor is already booked at that time. Please choose another slot.");
+                refreshFreeSlots();
+                return;
+            }
             e.printStackTrace();
             showAlert(Alert.AlertType.ERROR, "Database Error", "Failed to save booking: " + e.getMessage());
-        }
+        });
     }
 
-    // ================== Helper: Get Doctor ID ==================
-    private int getDoctorIdByName(String doctorName) {
-        String sql = "SELECT user_id FROM users WHERE name=?";
-        try (Connection conn = DatabaseHelper.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
-
-            ps.setString(1, doctorName);
-            ResultSet rs = ps.executeQuery();
-            if (rs.next()) {
-                return rs.getInt("user_id");
-            }
+    private int insertBooking(int doctorId, LocalDate date, LocalTime time, String symptoms,
+                              String consultationMode) throws SQLException {
+        long bookingId = bookingService.create(new BookingService.BookingRequest(
+                patientId, patientName, doctorId, date, time, symptoms, consultationMode, "Pending"));
+        return bookingId > 0 ? 1 : 0;
+    }
 
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-        return -1;
+    // ================== Helper: Get Doctor ID ==================
+    private int getDoctorIdByName(String doctorName) throws SQLException {
+        return ReferenceDataCache.getInstance()
+                .findByName(doctorName, ReferenceDataCache.ROLE_DOCTOR)
+                .map(User::getId)
+                .orElse(-1);
     }
 
     // ================== Load Upcoming Appointments ==================
     private void loadUpcomingAppointments() {
-        String sql = """
-        SELECT b.booking_id,
-               d.name AS doctor_name,
-               b.appointment_date,
-               b.appointment_time,
-               b.consultation_mode,
-               b.status
-        FROM bookings b
-        JOIN users d ON b.doctor_id = d.user_id
-        WHERE b.patient_id = ?
-        ORDER BY b.appointment_date DESC, b.appointment_time DESC
-    """;
-
-        ObservableList<Appointment> appointments = FXCollections.observableArrayList();
-
-        try (Connection conn = DatabaseHelper.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
-
-            ps.setInt(1, patientId);
-            ResultSet rs = ps.executeQuery();
-
-            while (rs.next()) {
-                appointments.add(new Appointment(
-                        rs.getInt("booking_id"),
-                        null, 
-                        rs.getString("doctor_name"),
-                        rs.getDate("appointment_date").toLocalDate(),
-                        rs.getTime("appointment_time").toString(),
-                        rs.getString("status"),
-                        rs.getString("consultation_mode"),
-                        null // notes
-                ));
-            }
-
-            upcomingAppointmentsTable.setItems(appointments);
+        tasks.submit(this::queryUpcomingAppointments,
+                appointments -> upcomingAppointmentsTable.setItems(FXCollections.observableArrayList(appointments)),
+                e -> {
+                    e.printStackTrace();
+                    showAlert(Alert.AlertType.ERROR, "Database Error",
+                            "Failed to load upcoming appointments: " + e.getMessage());
+                });
+    }
 
-        } catch (SQLException e) {
-            e.printStackTrace();
-            showAlert(Alert.AlertType.ERROR, "Database Error",
-                    "Failed to load upcoming appointments: " + e.getMessage());
-        }
+    private List<Appointment> queryUpcomingAppointments() throws SQLException {
+        return bookingService.forPatient(patientId);
     }
 
     // ================== Back to Dashboard ==================
     @FXML
     private void goBackToDashboard(ActionEvent event) {
         try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/views/Dashboard.fxml"));
-            Parent root = loader.load();
-
-            DashboardController controller = loader.getController();
-            controller.setUserInfo(patientId, patientName, userRole);
-
-            Stage stage = (Stage) ((javafx.scene.Node) event.getSource()).getScene().getWindow();
-            stage.setScene(new Scene(root));
-            stage.setTitle("TeleHealth System - Dashboard");
-            stage.show();
-
+            Stage stage = (Stage) ((Node) event.getSource()).getScene().getWindow();
+            ViewRegistry.getInstance().show(stage, AppView.DASHBOARD, session);
         } catch (Exception e) {
             e.printStackTrace();
             showAlert(Alert.AlertType.ERROR, "Navigation Error", "Unable to return to dashboard: " + e.getMessage());
@@ -1,12 +1,17 @@
 package controllers;
 
-import database.DatabaseHelper;
+import database.AvailabilityIndex;
+import database.ReferenceDataCache;
+import database.SlotConflictException;
 import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.stage.Stage;
 import models.Appointment;
+import models.User;
+import search.PatientDirectory;
+import services.BookingService;
+import utils.TaskScope;
 
 import java.sql.*;
 import java.time.LocalDate;
@@ -19,7 +24,7 @@ import java.util.List;
 public class BookingDialogController {
 
     @FXML private Label dialogTitleLabel;
-    @FXML private ComboBox<String> patientComboBox;
+    @FXML private ComboBox<PatientDirectory.Match> patientComboBox;
     @FXML private ComboBox<String> doctorComboBox;
     @FXML private DatePicker appointmentDatePicker;
     @FXML private ComboBox<String> timeSlotComboBox;
@@ -33,17 +38,25 @@ public class BookingDialogController {
     private Runnable onBookingSaved;
     
     // Maps to store user IDs
-    private final java.util.Map<String, Integer> patientIdMap = new java.util.HashMap<>();
     private final java.util.Map<String, Integer> doctorIdMap = new java.util.HashMap<>();
 
+    private final TaskScope tasks = new TaskScope();
+    private final BookingService bookingService = new BookingService();
+    private final List<String> timeSlots = new ArrayList<>();
+    private long slotRequest; // only the latest free-slot lookup may update the combo box
+
     @FXML
     public void initialize() {
+        tasks.bindTo(patientComboBox);
         setupComboBoxes();
         loadPatients();
         loadDoctors();
         
         appointmentDatePicker.setValue(LocalDate.now().plusDays(1));
         statusComboBox.setValue("Pending");
+
+        doctorComboBox.valueProperty().addListener((obs, oldValue, newValue) -> refreshFreeSlots());
+        appointmentDatePicker.valueProperty().addListener((obs, oldValue, newValue) -> refreshFreeSlots());
     }
 
     public void setDialogStage(Stage dialogStage) {
@@ -60,10 +73,10 @@ public class BookingDialogController {
         
         dialogTitleLabel.setText("Edit Booking");
         
-        patientComboBox.setValue(booking.getPatientName());
+        patientComboBox.setPromptText(booking.getPatientName()); // the patient of a booking does not change
         doctorComboBox.setValue(booking.getSpecialistName());
         appointmentDatePicker.setValue(booking.getAppointmentDate());
-        timeSlotComboBox.setValue(booking.getTimeSlot());
+        timeSlotComboBox.setValue(toSlotLabel(booking.getTimeSlot()));
         statusComboBox.setValue(booking.getStatus());
         symptomsTextArea.setText(booking.getNotes());
         
@@ -72,7 +85,6 @@ public class BookingDialogController {
 
     private void setupComboBoxes() {
         // Setup time slots
-        List<String> timeSlots = new ArrayList<>();
         LocalTime startTime = LocalTime.of(8, 0);
         LocalTime endTime = LocalTime.of(17, 0);
         
@@ -86,50 +98,96 @@ public class BookingDialogController {
         statusComboBox.setItems(FXCollections.observableArrayList("Pending", "Approved", "Cancelled"));
     }
 
+    /** Patients are looked up as the user types; only the directory is loaded here. */
     private void loadPatients() {
-        ObservableList<String> patients = FXCollections.observableArrayList();
-        
-        try (Connection conn = DatabaseHelper.getConnection()) {
-            String query = "SELECT user_id, name FROM users WHERE role = 'Patient'";
-            PreparedStatement pstmt = conn.prepareStatement(query);
-            ResultSet rs = pstmt.executeQuery();
-            
-            while (rs.next()) {
-                String name = rs.getString("name");
-                int id = rs.getInt("user_id");
-                patients.add(name);
-                patientIdMap.put(name, id);
-            }
-            
-            patientComboBox.setItems(patients);
-            
-        } catch (SQLException e) {
+        PatientAutocomplete.attach(patientComboBox, PatientDirectory.getInstance());
+        tasks.run(() -> PatientDirectory.getInstance().warmUp(), () -> { }, e -> {
             e.printStackTrace();
             showValidationMessage("Error loading patients: " + e.getMessage());
-        }
+        });
     }
 
     private void loadDoctors() {
-        ObservableList<String> doctors = FXCollections.observableArrayList();
-        
-        try (Connection conn = DatabaseHelper.getConnection()) {
-            String query = "SELECT user_id, name FROM users WHERE role = 'Doctor'";
-            PreparedStatement pstmt = conn.prepareStatement(query);
-            ResultSet rs = pstmt.executeQuery();
-            
-            while (rs.next()) {
-                String name = rs.getString("name");
-                int id = rs.getInt("user_id");
-                doctors.add(name);
-                doctorIdMap.put(name, id);
-            }
-            
-            doctorComboBox.setItems(doctors);
-            
-        } catch (SQLException e) {
+        tasks.submit(() -> queryUsersByRole("Doctor"), doctors -> {
+            doctorIdMap.putAll(doctors);
+            doctorComboBox.setItems(FXCollections.observableArrayList(doctors.keySet()));
+            refreshFreeSlots();
+        }, e -> {
             e.printStackTrace();
             showValidationMessage("Error loading doctors: " + e.getMessage());
+        });
+    }
+
+    /**
+     * Runs on the DB executor. Returns name -> user_id in user_id order,
+     * served from the reference-data cache.
+     */
+    private java.util.Map<String, Integer> queryUsersByRole(String role) throws SQLException {
+        java.util.Map<String, Integer> users = new java.util.LinkedHashMap<>();
+        for (User user : ReferenceDataCache.getInstance().usersByRole(role)) {
+            users.put(user.getName(), user.getId());
         }
+        return users;
+    }
+
+    // ================== FREE TIME SLOTS ==================
+    /**
+     * Offer only the slots the selected doctor has free on the selected date.
+     * When editing, the booking's own slot stays available.
+     */
+    private void refreshFreeSlots() {
+        Integer doctorId = doctorIdMap.get(doctorComboBox.getValue());
+        LocalDate date = appointmentDatePicker.getValue();
+        long request = ++slotRequest;
+        if (doctorId == null || date == null) {
+            showTimeSlots(timeSlots);
+            return;
+        }
+        AvailabilityIndex.Slot own = originalSlot();
+        List<String> candidates = List.copyOf(timeSlots);
+        tasks.submit(() -> {
+            List<LocalTime> times = new ArrayList<>();
+            for (String slot : candidates) {
+                times.add(LocalTime.parse(slot));
+            }
+            List<LocalTime> free = AvailabilityIndex.getInstance().freeSlots(doctorId, date, times);
+            List<String> labels = new ArrayList<>();
+            for (String slot : candidates) {
+                LocalTime time = LocalTime.parse(slot);
+                if (free.contains(time) || new AvailabilityIndex.Slot(doctorId, date, time).equals(own)) {
+                    labels.add(slot);
+                }
+            }
+            return labels;
+        }, labels -> {
+            if (request == slotRequest) {
+                showTimeSlots(labels);
+            }
+        }, Throwable::printStackTrace);
+    }
+
+    private void showTimeSlots(List<String> slots) {
+        String selected = timeSlotComboBox.getValue();
+        timeSlotComboBox.setItems(FXCollections.observableArrayList(slots));
+        timeSlotComboBox.setValue(slots.contains(selected) ? selected : null);
+    }
+
+    /** Bookings are read back as HH:mm:ss; the combo box uses HH:mm. */
+    private static String toSlotLabel(String time) {
+        return time != null && time.length() > 5 ? time.substring(0, 5) : time;
+    }
+
+    /** Slot held by the booking being edited, or null if new or cancelled. */
+    private AvailabilityIndex.Slot originalSlot() {
+        if (!isEditMode || "Cancelled".equals(booking.getStatus())) {
+            return null;
+        }
+        Integer doctorId = doctorIdMap.get(booking.getSpecialistName());
+        if (doctorId == null || booking.getAppointmentDate() == null || booking.getTimeSlot() == null) {
+            return null;
+        }
+        return new AvailabilityIndex.Slot(doctorId, booking.getAppointmentDate(),
+                LocalTime.parse(toSlotLabel(booking.getTimeSlot())));
     }
 
     @FXML
@@ -144,7 +202,7 @@ public class BookingDialogController {
     }
 
     private boolean validateInput() {
-        if (patientComboBox.getValue() == null) {
+        if (!isEditMode && patientComboBox.getValue() == null) {
             showValidationMessage("Please select a patient");
             return false;
         }
@@ -184,70 +242,55 @@ public class BookingDialogController {
     }
 
     private void createBooking() {
-        try (Connection conn = DatabaseHelper.getConnection()) {
-            String query = "INSERT INTO bookings (patient_id, doctor_id, appointment_date, appointment_time, symptoms, status) " +
-                          "VALUES (?, ?, ?, ?, ?, ?)";
-            
-            PreparedStatement pstmt = conn.prepareStatement(query);
-            pstmt.setInt(1, patientIdMap.get(patientComboBox.getValue()));
-            pstmt.setInt(2, doctorIdMap.get(doctorComboBox.getValue()));
-            pstmt.setDate(3, java.sql.Date.valueOf(appointmentDatePicker.getValue()));
-            
-            // Convert time string to SQL Time
-            String timeStr = timeSlotComboBox.getValue() + ":00";
-            pstmt.setTime(4, java.sql.Time.valueOf(timeStr));
-            
-            pstmt.setString(5, symptomsTextArea.getText().trim());
-            pstmt.setString(6, statusComboBox.getValue());
-            
-            int rowsAffected = pstmt.executeUpdate();
-            if (rowsAffected > 0) {
-                if (onBookingSaved != null) {
-                    onBookingSaved.run();
-                }
-                dialogStage.close();
-            } else {
-                showValidationMessage("Failed to create booking");
-            }
-            
-        } catch (SQLException e) {
-            e.printStackTrace();
-            showValidationMessage("Error creating booking: " + e.getMessage());
-        }
+        PatientDirectory.Match patient = patientComboBox.getValue();
+        BookingService.BookingRequest request = requestFromForm(patient.userId(), patient.name());
+
+        saveInBackground(() -> bookingService.create(request) > 0 ? 1 : 0,
+                "Failed to create booking", "Error creating booking: ");
     }
 
     private void updateBooking() {
-        try (Connection conn = DatabaseHelper.getConnection()) {
-            String query = "UPDATE bookings SET doctor_id = ?, appointment_date = ?, " +
-                          "appointment_time = ?, symptoms = ?, status = ? " +
-                          "WHERE booking_id = ?";
-            
-            PreparedStatement pstmt = conn.prepareStatement(query);
-            pstmt.setInt(1, doctorIdMap.get(doctorComboBox.getValue()));
-            pstmt.setDate(2, java.sql.Date.valueOf(appointmentDatePicker.getValue()));
-            
-            // Convert time string to SQL Time
-            String timeStr = timeSlotComboBox.getValue() + ":00";
-            pstmt.setTime(3, java.sql.Time.valueOf(timeStr));
-            
-            pstmt.setString(4, symptomsTextArea.getText().trim());
-            pstmt.setString(5, statusComboBox.getValue());
-            pstmt.setInt(6, booking.getAppointmentId());
-            
-            int rowsAffected = pstmt.executeUpdate();
+        int bookingId = booking.getAppointmentId();
+        BookingService.BookingRequest request = requestFromForm(0, booking.getPatientName());
+
+        saveInBackground(() -> bookingService.update(bookingId, request),
+                "Failed to update booking", "Error updating booking: ");
+    }
+
+    private BookingService.BookingRequest requestFromForm(int patientId, String patientName) {
+        return new BookingService.BookingRequest(patientId, patientName,
+                doctorIdMap.get(doctorComboBox.getValue()),
+                appointmentDatePicker.getValue(),
+                LocalTime.parse(timeSlotComboBox.getValue()),
+                symptomsTextArea.getText().trim(),
+                null,
+                statusComboBox.getValue());
+    }
+
+    /**
+     * Run an INSERT/UPDATE off the FX thread and close the dialog when a row changed.
+     */
+    private void saveInBackground(java.util.concurrent.Callable<Integer> write, String noRowsMessage, String errorPrefix) {
+        showValidationMessage("Saving...");
+        tasks.submitWrite(write, rowsAffected -> {
             if (rowsAffected > 0) {
+                showValidationMessage("");
                 if (onBookingSaved != null) {
                     onBookingSaved.run();
                 }
                 dialogStage.close();
             } else {
-                showValidationMessage("Failed to update booking");
+                showValidationMessage(noRowsMessage);
+            }
+        }, e -> {
+            if (e instanceof SlotConflictException) {
+                showValidationMessage("That time slot is already booked for this doctor. Please choose another.");
+                refreshFreeSlots();
+                return;
             }
-            
-        } catch (SQLException e) {
             e.printStackTrace();
-            showValidationMessage("Error updating booking: " + e.getMessage());
-        }
+            showValidationMessage(errorPrefix + e.getMessage());
+        });
     }
 
     @FXML
@@ -9,9 +9,29 @@ import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
 import javafx.fxml.FXMLLoader;
+import javafx.application.Platform;
+import events.ClinicalEvent;
+import events.EventBus;
+import events.EventEnvelope;
+import events.EventPriority;
+import navigation.AppView;
+import navigation.RefreshableView;
+import navigation.ViewRegistry;
+import session.SessionContext;
+import session.SessionStore;
+import utils.TaskScope;
+import workqueue.WorkItem;
+import workqueue.WorkQueue;
+import workqueue.WorkQueueEngine;
 import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
 
-public class DashboardController {
+public class DashboardController implements RefreshableView {
 
     @FXML private Label welcomeLabel;
     @FXML private VBox patientSection;
@@ -26,19 +46,43 @@ public class DashboardController {
     @FXML private Button doctorDiagnosisBtn;
     @FXML private Button hospitalBookingBtn;
 
+    @FXML private VBox alertsSection;
+    @FXML private Label alertBanner;
+    @FXML private ListView<EventEnvelope> alertsList;
+
+    @FXML private VBox workQueueSection;
+    @FXML private Label nextPatientLabel;
+    @FXML private ListView<WorkItem> workQueueList;
+
+    private SessionContext session;
     private int userId;
     private String username;
     private String userRole;
 
-    // ================== Set User Info ==================
-    public void setUserInfo(int id, String name, String role) {
-        this.userId = id;
-        this.username = name;
-        this.userRole = role;
+    /** Notifications kept on screen; older ones stay in the outbox until acknowledged. */
+    private static final int MAX_ALERTS_SHOWN = 50;
+    private static final DateTimeFormatter ALERT_TIME = DateTimeFormatter.ofPattern("HH:mm:ss");
+    private static final int WORK_ITEMS_SHOWN = 10;
+    private final TaskScope tasks = new TaskScope();
+    private final AtomicBoolean workQueueRedrawPending = new AtomicBoolean();
+    private WorkQueue workQueue;
+
+    // ================== Refresh ==================
+    @Override
+    public void refresh(SessionContext session) {
+        this.session = session;
+        this.userId = session.userId();
+        this.username = session.userName();
+        this.userRole = session.role();
         if (welcomeLabel != null) {
             welcomeLabel.setText("Welcome, " + username + "!");
         }
         applyRolePermissions();
+        alertsList.getItems().clear(); // the pending list is reloaded below
+        alertBanner.setVisible(false);
+        alertBanner.setManaged(false);
+        subscribeToAlerts();
+        showWorkQueue();
     }
 
     // ================== Role Permissions ==================
@@ -78,102 +122,231 @@ public class DashboardController {
         hospitalBookingBtn.setDisable(false);
     }
 
-    // ================== Navigation Methods ==================
-    @FXML
-    private void goToBookConsultation(ActionEvent event) {
-        try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/views/BookConsultation.fxml"));
-            Parent root = loader.load();
+    // ================== Clinical Alerts ==================
+    /**
+     * Doctors and staff get vitals alerts and emergency referrals pushed as they
+     * happen, plus booking changes (doctors only for their own patients).
+     * Alerts still unacknowledged from earlier sessions are shown first.
+     */
+    private void subscribeToAlerts() {
+        String role = userRole != null ? userRole.toLowerCase() : "";
+        boolean doctor = role.equals("doctor");
+        boolean staff = role.equals("staff") || role.equals("admin");
+        alertsSection.setVisible(doctor || staff);
+        alertsSection.setManaged(doctor || staff);
+        if (!doctor && !staff) return;
 
-            controllers.BookConsultationController controller = loader.getController();
-            controller.setPatientInfo(userId, username, userRole);
+        Predicate<ClinicalEvent> wanted = event -> event.priority().isAlert()
+                || (event instanceof ClinicalEvent.BookingChanged booking && (staff || booking.doctorId() == userId));
+        EventBus bus = EventBus.getInstance();
+        tasks.closeWithScreen(bus.subscribe(wanted, envelope -> Platform.runLater(() -> showNotification(envelope))));
+        tasks.submit(bus::pendingAlerts, (List<EventEnvelope> pending) -> pending.stream()
+                .filter(envelope -> wanted.test(envelope.event()))
+                .forEach(this::showNotification), Throwable::printStackTrace);
+    }
 
-            Stage stage = (Stage) ((Node) event.getSource()).getScene().getWindow();
-            stage.setScene(new Scene(root));
-            stage.setTitle("Book Consultation");
-            stage.show();
-        } catch (IOException e) { e.printStackTrace(); }
+    private void showNotification(EventEnvelope envelope) {
+        List<EventEnvelope> items = alertsList.getItems();
+        if (items.stream().anyMatch(shown -> shown.sequence() == envelope.sequence())) {
+            return; // published while the pending list was loading
+        }
+        items.add(0, envelope);
+        if (items.size() > MAX_ALERTS_SHOWN) {
+            items.subList(MAX_ALERTS_SHOWN, items.size()).clear();
+        }
+        if (envelope.priority() == EventPriority.CRITICAL) {
+            alertBanner.setText(envelope.event().summary());
+            alertBanner.setVisible(true);
+            alertBanner.setManaged(true);
+        }
+        EventBus.getInstance().recordDisplayed(envelope);
     }
 
     @FXML
-    private void goToVitalsMonitoring(ActionEvent event) {
-        try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/views/VitalsForm.fxml"));
-            Parent root = loader.load();
+    private void handleAcknowledgeAlert() {
+        EventEnvelope selected = alertsList.getSelectionModel().getSelectedItem();
+        if (selected == null) return;
+        alertsList.getItems().remove(selected);
+        if (alertsList.getItems().stream().noneMatch(envelope -> envelope.priority() == EventPriority.CRITICAL)) {
+            alertBanner.setVisible(false);
+            alertBanner.setManaged(false);
+        }
+        if (selected.priority().isAlert()) {
+            tasks.runWrite(() -> EventBus.getInstance().acknowledge(selected.sequence()), null, Throwable::printStackTrace);
+        }
+    }
 
-            VitalsFormController controller = loader.getController();
-            controller.setUserInfo(userId, username, userRole);
+    // ================== Work Queue ==================
+    /**
+     * Doctors see who to see next: their bookings, appointments, pending
+     * referrals and abnormal vitals, most urgent first. The list follows the
+     * queue as it changes; redraws are coalesced so a burst of changes costs
+     * one pass on the FX thread.
+     */
+    private void showWorkQueue() {
+        boolean doctor = userRole != null && userRole.equalsIgnoreCase("doctor");
+        workQueueSection.setVisible(doctor);
+        workQueueSection.setManaged(doctor);
+        workQueue = null;
+        workQueueList.getItems().clear();
+        if (!doctor) return;
 
-            Stage stage = (Stage) ((Node) event.getSource()).getScene().getWindow();
-            stage.setScene(new Scene(root));
-            stage.setTitle("Vitals Monitoring");
-            stage.show();
-        } catch (Exception e) { e.printStackTrace(); }
+        WorkQueueEngine engine = WorkQueueEngine.getInstance();
+        WorkQueue queue = engine.queue(userId);
+        workQueue = queue;
+        tasks.closeWithScreen(queue.addListener(() -> {
+            if (workQueueRedrawPending.compareAndSet(false, true)) {
+                Platform.runLater(this::redrawWorkQueue);
+            }
+        }));
+        redrawWorkQueue();
+        tasks.submit(() -> engine.load(userId), (WorkQueue loaded) -> redrawWorkQueue(), Throwable::printStackTrace);
     }
 
+    private void redrawWorkQueue() {
+        workQueueRedrawPending.set(false);
+        if (workQueue == null) return;
+        List<WorkItem> first = workQueue.top(WORK_ITEMS_SHOWN);
+        workQueueList.getItems().setAll(first);
+        nextPatientLabel.setText(first.isEmpty() ? "Nobody waiting." : first.get(0).summary());
+    }
+
+    /** The selected item, or the next one if nothing is selected, has been dealt with. */
     @FXML
-    private void goToPrescriptionRefill(ActionEvent event) {
-        try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/views/PrescriptionRefill.fxml"));
-            Parent root = loader.load();
+    private void handlePatientSeen() {
+        if (workQueue == null) return;
+        WorkItem selected = workQueueList.getSelectionModel().getSelectedItem();
+        WorkItem seen = selected != null ? selected : workQueue.next();
+        if (seen != null) {
+            WorkQueueEngine.getInstance().dismiss(userId, seen);
+        }
+    }
+
+    private static class WorkItemCell extends ListCell<WorkItem> {
+        @Override
+        protected void updateItem(WorkItem item, boolean empty) {
+            super.updateItem(item, empty);
+            if (empty || item == null) {
+                setText(null);
+                setStyle("");
+                return;
+            }
+            setText(item.summary());
+            setStyle(switch (item.tier()) {
+                case WorkItem.TIER_CRITICAL -> "-fx-text-fill: #d63031; -fx-font-weight: bold;";
+                case WorkItem.TIER_URGENT -> "-fx-text-fill: #e17055;";
+                default -> "-fx-text-fill: #2d3436;";
+            });
+        }
+    }
 
-            PrescriptionRefillController controller = loader.getController();
-            controller.setPatientInfo(userId, username, userRole);
+    private static class NotificationCell extends ListCell<EventEnvelope> {
+        @Override
+        protected void updateItem(EventEnvelope envelope, boolean empty) {
+            super.updateItem(envelope, empty);
+            if (empty || envelope == null) {
+                setText(null);
+                setStyle("");
+                return;
+            }
+            String time = Instant.ofEpochMilli(envelope.event().occurredAt()).atZone(ZoneId.systemDefault()).format(ALERT_TIME);
+            setText(time + "  " + envelope.event().summary());
+            setStyle(switch (envelope.priority()) {
+                case CRITICAL -> "-fx-text-fill: #d63031; -fx-font-weight: bold;";
+                case HIGH -> "-fx-text-fill: #e17055;";
+                default -> "-fx-text-fill: #2d3436;";
+            });
+        }
+    }
 
-            Stage stage = (Stage) ((Node) event.getSource()).getScene().getWindow();
-            stage.setScene(new Scene(root));
-            stage.setTitle("Prescription Refill");
-            stage.show();
-        } catch (Exception e) { e.printStackTrace(); }
+    // ================== Navigation Methods ==================
+    @FXML
+    private void goToBookConsultation(ActionEvent event) {
+        openView(AppView.BOOK_CONSULTATION, event);
     }
 
     @FXML
-    private void goToHealthReport() {
-        try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/views/HealthReport.fxml"));
-            Parent root = loader.load();
+    private void goToVitalsMonitoring(ActionEvent event) {
+        openView(AppView.VITALS_FORM, event);
+    }
 
-            HealthReportController controller = loader.getController();
-            controller.setUserId(userId);
+    @FXML
+    private void goToPrescriptionRefill(ActionEvent event) {
+        openView(AppView.PRESCRIPTION_REFILL, event);
+    }
 
-            Stage stage = (Stage) healthReportBtn.getScene().getWindow();
-            stage.setScene(new Scene(root));
-            stage.setTitle("TeleHealth System - Health Report");
-            stage.show();
-        } catch (Exception e) { e.printStackTrace(); }
+    @FXML
+    private void goToHealthReport(ActionEvent event) {
+        openView(AppView.HEALTH_REPORT, event);
     }
 
     @FXML
     private void goToStaffBooking(ActionEvent event) {
-        navigateToView("/views/StaffBooking.fxml", "Staff Booking Management", event);
+        openView(AppView.STAFF_BOOKING, event);
     }
 
     @FXML
     private void goToDoctorDiagnosis(ActionEvent event) {
-        navigateToView("/views/DoctorDiagnosis.fxml", "Doctor Diagnosis", event);
+        openView(AppView.DOCTOR_DIAGNOSIS, event);
     }
 
     @FXML
     private void goToHospitalBooking(ActionEvent event) {
-        navigateToView("/views/HospitalBooking.fxml", "Hospital Booking", event);
+        openView(AppView.HOSPITAL_BOOKING, event);
     }
 
     @FXML
     private void handleLogout(ActionEvent event) {
-        navigateToView("/views/Login.fxml", "TeleHealth - Login", event);
+        if (session != null) {
+            SessionStore.getInstance().invalidate(session.sessionId());
+        }
+        showLogin((Stage) ((Node) event.getSource()).getScene().getWindow());
+    }
+
+    /** Show a cached screen, refreshed with the latest version of this user's session. */
+    private void openView(AppView view, ActionEvent event) {
+        Stage stage = (Stage) ((Node) event.getSource()).getScene().getWindow();
+        if (!refreshSession(stage)) return;
+        try {
+            ViewRegistry.getInstance().show(stage, view, session);
+        } catch (IOException e) { e.printStackTrace(); }
     }
 
-    private void navigateToView(String fxmlPath, String title, ActionEvent event) {
+    /**
+     * Pick up the latest version of this user's session before opening a screen.
+     * If it has expired, say so and go back to the login screen.
+     */
+    private boolean refreshSession(Stage stage) {
+        SessionContext current = session == null ? null : SessionStore.getInstance().get(session.sessionId());
+        if (current != null) {
+            session = current;
+            return true;
+        }
+        Alert alert = new Alert(Alert.AlertType.INFORMATION);
+        alert.setTitle("Session Expired");
+        alert.setHeaderText(null);
+        alert.setContentText("You were signed out after a period of inactivity. Please log in again.");
+        alert.showAndWait();
+        showLogin(stage);
+        return false;
+    }
+
+    /** Back to the login screen; cached screens belong to this user and are dropped. */
+    private void showLogin(Stage stage) {
+        ViewRegistry.getInstance().clear();
         try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource(fxmlPath));
-            Parent root = loader.load();
-            Stage stage = (Stage) ((Node) event.getSource()).getScene().getWindow();
+            Parent root = FXMLLoader.load(getClass().getResource("/views/Login.fxml"));
             stage.setScene(new Scene(root));
-            stage.setTitle(title);
+            stage.setTitle("TeleHealth - Login");
             stage.show();
         } catch (IOException e) { e.printStackTrace(); }
     }
 
     @FXML
-    public void initialize() { disableAllButtons(); }
+    public void initialize() {
+        disableAllButtons();
+        tasks.bindTo(welcomeLabel);
+        alertsList.setCellFactory(list -> new NotificationCell());
+        workQueueList.setCellFactory(list -> new WorkItemCell());
+    }
 }
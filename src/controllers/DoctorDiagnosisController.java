@@ -3,25 +3,27 @@ package controllers;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.collections.FXCollections;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
 import javafx.stage.Stage;
 import javafx.scene.Node;
-import javafx.fxml.FXMLLoader;
 
 import models.Diagnosis;
 import models.Appointment;
-import database.DatabaseHelper;
-
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.time.LocalDate;
+import navigation.AppView;
+import navigation.RefreshableView;
+import navigation.ViewRegistry;
+import search.PatientDirectory;
+import services.DiagnosisService;
+import session.SessionContext;
+import suggestions.SuggestionEngine;
+import utils.TaskScope;
+
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
-public class DoctorDiagnosisController {
+public class DoctorDiagnosisController implements RefreshableView {
 
-    @FXML private ComboBox<String> patientComboBox;
+    @FXML private ComboBox<PatientDirectory.Match> patientComboBox;
     @FXML private TextField appointmentIdField;
     @FXML private TextField doctorNameField;
     @FXML private TextArea symptomsArea;
@@ -34,16 +36,32 @@ public class DoctorDiagnosisController {
     @FXML private Label statusLabel;
     @FXML private ListView<String> recentDiagnosesView;
 
+    private final TaskScope tasks = new TaskScope();
+    private SessionContext session;
+    private final DiagnosisService diagnosisService = new DiagnosisService();
+    private final SuggestionEngine suggestions = SuggestionEngine.getInstance();
+    private String generatedPrescription; // last suggestion shown, to tell whether the doctor has edited it
+    private String generatedTreatmentPlan;
+
     @FXML
     public void initialize() {
+        tasks.bindTo(statusLabel);
         setupComboBoxes();
-        loadPatients();
-        loadRecentDiagnoses();
+        setupSuggestions();
         
         doctorNameField.setText("Dr. Emily Brown");
         appointmentIdField.setText("0");
     }
 
+    // ================== Refresh ==================
+    @Override
+    public void refresh(SessionContext session) {
+        this.session = session;
+        clearForm();
+        loadPatients();
+        loadRecentDiagnoses();
+    }
+
     private void setupComboBoxes() {
         severityBox.setItems(FXCollections.observableArrayList(
             "MILD", "MODERATE", "SEVERE"
@@ -62,74 +80,37 @@ public class DoctorDiagnosisController {
         });
     }
 
+    /** Patients are looked up as the user types; only the directory is loaded here. */
     private void loadPatients() {
-        try (Connection conn = DatabaseHelper.getConnection()) {
-            String query = """
-                SELECT DISTINCT patient_name FROM appointments 
-                WHERE status = 'SCHEDULED' OR status = 'COMPLETED'
-                ORDER BY patient_name
-            """;
-            
-            PreparedStatement pstmt = conn.prepareStatement(query);
-            ResultSet rs = pstmt.executeQuery();
-
-            while (rs.next()) {
-                patientComboBox.getItems().add(rs.getString("patient_name"));
-            }
-            
-        } catch (Exception e) {
+        PatientAutocomplete.attach(patientComboBox, PatientDirectory.getInstance());
+        tasks.run(() -> PatientDirectory.getInstance().warmUp(), () -> { }, e -> {
             e.printStackTrace();
             statusLabel.setText("Error loading patients");
             statusLabel.setStyle("-fx-text-fill: red;");
-        }
+        });
     }
 
-    private void loadPatientInfo(String patientName) {
-        try (Connection conn = DatabaseHelper.getConnection()) {
-            String query = """
-                SELECT id FROM appointments 
-                WHERE patient_name = ? AND (status = 'SCHEDULED' OR status = 'COMPLETED')
-                ORDER BY appointment_date DESC LIMIT 1
-            """;
-            
-            PreparedStatement pstmt = conn.prepareStatement(query);
-            pstmt.setString(1, patientName);
-            ResultSet rs = pstmt.executeQuery();
-
-            if (rs.next()) {
-                appointmentIdField.setText(String.valueOf(rs.getInt("id")));
+    private void loadPatientInfo(PatientDirectory.Match patient) {
+        tasks.submit(() -> diagnosisService.latestAppointmentId(patient.userId()), appointmentId -> {
+            if (appointmentId != null && patient.equals(patientComboBox.getValue())) {
+                appointmentIdField.setText(String.valueOf(appointmentId));
             }
-            
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        }, Throwable::printStackTrace);
     }
 
     private void loadRecentDiagnoses() {
-        recentDiagnosesView.getItems().clear();
-        
-        try (Connection conn = DatabaseHelper.getConnection()) {
-            String query = """
-                SELECT patient_name, diagnosis_text, recorded_date 
-                FROM diagnoses 
-                ORDER BY recorded_date DESC LIMIT 10
-            """;
-            
-            PreparedStatement pstmt = conn.prepareStatement(query);
-            ResultSet rs = pstmt.executeQuery();
-
-            while (rs.next()) {
-                String item = String.format("%s - %s (%s)", 
-                    rs.getString("patient_name"),
-                    rs.getString("diagnosis_text").substring(0, Math.min(30, rs.getString("diagnosis_text").length())) + "...",
-                    rs.getString("recorded_date")
-                );
-                recentDiagnosesView.getItems().add(item);
+        tasks.submit(() -> {
+            List<String> items = new ArrayList<>();
+            for (Diagnosis diagnosis : diagnosisService.recent(10)) {
+                String text = diagnosis.getDiagnosisText();
+                items.add(String.format("%s - %s (%s)",
+                    diagnosis.getPatientName(),
+                    text.substring(0, Math.min(30, text.length())) + "...",
+                    diagnosis.getRecordedDate()
+                ));
             }
-            
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+            return items;
+        }, items -> recentDiagnosesView.getItems().setAll(items), Throwable::printStackTrace);
     }
 
     @FXML
@@ -138,22 +119,33 @@ public class DoctorDiagnosisController {
             return;
         }
 
+        PatientDirectory.Match patient = patientComboBox.getValue();
+        Diagnosis diagnosis;
         try {
-            Diagnosis diagnosis = createDiagnosisFromForm();
-            saveDiagnosisToDatabase(diagnosis);
-            
-            showSuccessAlert();
-            clearForm();
-            loadRecentDiagnoses();
-            
+            diagnosis = createDiagnosisFromForm(patient);
         } catch (Exception e) {
             e.printStackTrace();
             showAlert(Alert.AlertType.ERROR, "Error", "Failed to save diagnosis: " + e.getMessage());
+            return;
         }
+        diagnosis.setFollowUpInstructions(followUpArea.getText());
+        diagnosis.setSeverity(severityBox.getValue());
+        diagnosis.setStatus(statusBox.getValue());
+
+        statusLabel.setText("Saving diagnosis...");
+        tasks.runWrite(() -> diagnosisService.save(diagnosis), () -> {
+            showSuccessAlert(patient);
+            clearForm();
+            loadRecentDiagnoses();
+        }, e -> {
+            e.printStackTrace();
+            statusLabel.setText("");
+            showAlert(Alert.AlertType.ERROR, "Error", "Failed to save diagnosis: " + e.getMessage());
+        });
     }
 
     private boolean validateInput() {
-        if (patientComboBox.getValue() == null || patientComboBox.getValue().trim().isEmpty()) {
+        if (patientComboBox.getValue() == null) {
             showAlert(Alert.AlertType.WARNING, "Validation Error", "Please select a patient.");
             return false;
         }
@@ -171,43 +163,18 @@ public class DoctorDiagnosisController {
         return true;
     }
 
-    private Diagnosis createDiagnosisFromForm() {
-        return new Diagnosis(
+    private Diagnosis createDiagnosisFromForm(PatientDirectory.Match patient) {
+        Diagnosis diagnosis = new Diagnosis(
             Integer.parseInt(appointmentIdField.getText()),
-            patientComboBox.getValue(),
+            patient.name(),
             doctorNameField.getText(),
             diagnosisArea.getText(),
             symptomsArea.getText(),
             prescriptionArea.getText(),
             treatmentPlanArea.getText()
         );
-    }
-
-    private void saveDiagnosisToDatabase(Diagnosis diagnosis) throws Exception {
-        try (Connection conn = DatabaseHelper.getConnection()) {
-            String query = """
-                INSERT INTO diagnoses (
-                    appointment_id, patient_name, doctor_name, diagnosis_text, 
-                    symptoms, prescription_details, treatment_plan, 
-                    follow_up_instructions, recorded_date, severity, status
-                ) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
-            """;
-
-            PreparedStatement pstmt = conn.prepareStatement(query);
-            pstmt.setInt(1, diagnosis.getAppointmentId());
-            pstmt.setString(2, diagnosis.getPatientName());
-            pstmt.setString(3, diagnosis.getDoctorName());
-            pstmt.setString(4, diagnosis.getDiagnosisText());
-            pstmt.setString(5, diagnosis.getSymptoms());
-            pstmt.setString(6, diagnosis.getPrescriptionDetails());
-            pstmt.setString(7, diagnosis.getTreatmentPlan());
-            pstmt.setString(8, followUpArea.getText());
-            pstmt.setString(9, LocalDate.now().toString());
-            pstmt.setString(10, severityBox.getValue());
-            pstmt.setString(11, statusBox.getValue());
-
-            pstmt.executeUpdate();
-        }
+        diagnosis.setPatientId(patient.userId());
+        return diagnosis;
     }
 
     @FXML
@@ -216,6 +183,8 @@ public class DoctorDiagnosisController {
     }
 
     private void clearForm() {
+        generatedPrescription = null;
+        generatedTreatmentPlan = null;
         patientComboBox.setValue(null);
         appointmentIdField.setText("0");
         symptomsArea.clear();
@@ -235,46 +204,16 @@ public class DoctorDiagnosisController {
             return;
         }
 
-        String diagnosis = diagnosisArea.getText().toLowerCase();
-        String prescription = generatePrescriptionSuggestion(diagnosis);
+        String prescription = suggestions.prescription(diagnosisArea.getText());
         
         if (!prescription.isEmpty()) {
             prescriptionArea.setText(prescription);
+            generatedPrescription = prescription;
             statusLabel.setText("Prescription template generated");
             statusLabel.setStyle("-fx-text-fill: blue;");
         }
     }
 
-    private String generatePrescriptionSuggestion(String diagnosis) {
-        StringBuilder prescription = new StringBuilder();
-        
-        if (diagnosis.contains("fever") || diagnosis.contains("temperature")) {
-            prescription.append("• Paracetamol 500mg - Take 1 tablet every 6 hours as needed\n");
-        }
-        
-        if (diagnosis.contains("cough") || diagnosis.contains("cold")) {
-            prescription.append("• Cough syrup - 10ml three times daily\n");
-            prescription.append("• Throat lozenges - As needed for throat irritation\n");
-        }
-        
-        if (diagnosis.contains("pain") || diagnosis.contains("ache")) {
-            prescription.append("• Ibuprofen 400mg - Take 1 tablet twice daily with food\n");
-        }
-        
-        if (diagnosis.contains("infection") || diagnosis.contains("bacterial")) {
-            prescription.append("• Antibiotic (consult pharmacy) - As per standard dosage\n");
-        }
-        
-        if (prescription.length() == 0) {
-            prescription.append("• Medication to be prescribed based on specific diagnosis\n");
-            prescription.append("• Follow up consultation recommended\n");
-        }
-        
-        prescription.append("\nNote: Take medications as prescribed and complete full course.");
-        
-        return prescription.toString();
-    }
-
     @FXML
     private void handleGenerateTreatmentPlan() {
         if (diagnosisArea.getText().trim().isEmpty()) {
@@ -282,42 +221,35 @@ public class DoctorDiagnosisController {
             return;
         }
 
-        String treatmentPlan = generateTreatmentPlan();
+        String treatmentPlan = suggestions.treatmentPlan(diagnosisArea.getText());
         treatmentPlanArea.setText(treatmentPlan);
+        generatedTreatmentPlan = treatmentPlan;
         
         statusLabel.setText("Treatment plan template generated");
         statusLabel.setStyle("-fx-text-fill: blue;");
     }
 
-    private String generateTreatmentPlan() {
-        StringBuilder plan = new StringBuilder();
-        
-        plan.append("TREATMENT PLAN:\n\n");
-        plan.append("1. IMMEDIATE CARE:\n");
-        plan.append("   • Rest and adequate sleep\n");
-        plan.append("   • Stay hydrated\n");
-        plan.append("   • Follow prescribed medication\n\n");
-        
-        plan.append("2. FOLLOW-UP CARE:\n");
-        plan.append("   • Monitor symptoms daily\n");
-        plan.append("   • Return if symptoms worsen\n");
-        plan.append("   • Schedule follow-up in 1 week\n\n");
-        
-        plan.append("3. LIFESTYLE RECOMMENDATIONS:\n");
-        plan.append("   • Maintain healthy diet\n");
-        plan.append("   • Avoid strenuous activities\n");
-        plan.append("   • Practice good hygiene\n\n");
-        
-        plan.append("4. WARNING SIGNS:\n");
-        plan.append("   • Contact immediately if severe symptoms develop\n");
-        plan.append("   • Emergency care if condition deteriorates\n");
-        
-        return plan.toString();
+    /**
+     * Keep generated templates in step with the diagnosis as the doctor types,
+     * until the doctor edits them. Matching is one pass over the text, so this
+     * runs on every keystroke.
+     */
+    private void setupSuggestions() {
+        diagnosisArea.textProperty().addListener((obs, oldText, newText) -> {
+            if (generatedPrescription != null && generatedPrescription.equals(prescriptionArea.getText())) {
+                generatedPrescription = suggestions.prescription(newText);
+                prescriptionArea.setText(generatedPrescription);
+            }
+            if (generatedTreatmentPlan != null && generatedTreatmentPlan.equals(treatmentPlanArea.getText())) {
+                generatedTreatmentPlan = suggestions.treatmentPlan(newText);
+                treatmentPlanArea.setText(generatedTreatmentPlan);
+            }
+        });
     }
 
     @FXML
     private void handleViewPatientHistory() {
-        String selectedPatient = patientComboBox.getValue();
+        PatientDirectory.Match selectedPatient = patientComboBox.getValue();
         if (selectedPatient == null) {
             showAlert(Alert.AlertType.WARNING, "No Selection", "Please select a patient first.");
             return;
@@ -326,57 +258,41 @@ public class DoctorDiagnosisController {
         showPatientHistory(selectedPatient);
     }
 
-    private void showPatientHistory(String patientName) {
-        try (Connection conn = DatabaseHelper.getConnection()) {
-            String query = """
-                SELECT * FROM diagnoses 
-                WHERE patient_name = ? 
-                ORDER BY recorded_date DESC
-            """;
-            
-            PreparedStatement pstmt = conn.prepareStatement(query);
-            pstmt.setString(1, patientName);
-            ResultSet rs = pstmt.executeQuery();
-
-            StringBuilder history = new StringBuilder();
-            history.append("PATIENT MEDICAL HISTORY: ").append(patientName).append("\n\n");
-
-            while (rs.next()) {
-                history.append("Date: ").append(rs.getString("recorded_date")).append("\n");
-                history.append("Doctor: ").append(rs.getString("doctor_name")).append("\n");
-                history.append("Diagnosis: ").append(rs.getString("diagnosis_text")).append("\n");
-                history.append("Status: ").append(rs.getString("status")).append("\n");
-                history.append("Severity: ").append(rs.getString("severity")).append("\n");
-                history.append("-".repeat(50)).append("\n\n");
-            }
+    private void showPatientHistory(PatientDirectory.Match patient) {
+        tasks.submit(() -> queryPatientHistory(patient), history ->
+                HistoryDialog.show("Patient History", "Medical History for " + PatientAutocomplete.label(patient),
+                        history, tasks), e -> {
+            e.printStackTrace();
+            showAlert(Alert.AlertType.ERROR, "Error", "Failed to load patient history: " + e.getMessage());
+        });
+    }
 
-            if (history.toString().equals("PATIENT MEDICAL HISTORY: " + patientName + "\n\n")) {
-                history.append("No previous diagnoses found for this patient.");
-            }
+    private HistoryDialog.History queryPatientHistory(PatientDirectory.Match patient) throws Exception {
+        List<Diagnosis> diagnoses = diagnosisService.history(patient.userId());
 
-            Alert alert = new Alert(Alert.AlertType.INFORMATION);
-            alert.setTitle("Patient History");
-            alert.setHeaderText("Medical History for " + patientName);
+        StringBuilder history = new StringBuilder();
+        history.append("PATIENT MEDICAL HISTORY: ").append(PatientAutocomplete.label(patient)).append("\n\n");
 
-            TextArea textArea = new TextArea(history.toString());
-            textArea.setWrapText(true);
-            textArea.setEditable(false);
-            textArea.setPrefHeight(400);
+        for (Diagnosis diagnosis : diagnoses) {
+            history.append("Date: ").append(diagnosis.getRecordedDate()).append("\n");
+            history.append("Doctor: ").append(diagnosis.getDoctorName()).append("\n");
+            history.append("Diagnosis: ").append(diagnosis.getDiagnosisText()).append("\n");
+            history.append("Status: ").append(diagnosis.getStatus()).append("\n");
+            history.append("Severity: ").append(diagnosis.getSeverity()).append("\n");
+            history.append("-".repeat(50)).append("\n\n");
+        }
 
-            alert.getDialogPane().setContent(textArea);
-            alert.showAndWait();
-            
-        } catch (Exception e) {
-            e.printStackTrace();
-            showAlert(Alert.AlertType.ERROR, "Error", "Failed to load patient history: " + e.getMessage());
+        if (diagnoses.isEmpty()) {
+            history.append("No previous diagnoses found for this patient.");
         }
+        return new HistoryDialog.History(patient.userId(), history.toString());
     }
 
-    private void showSuccessAlert() {
+    private void showSuccessAlert(PatientDirectory.Match patient) {
         Alert alert = new Alert(Alert.AlertType.INFORMATION);
         alert.setTitle("Success");
         alert.setHeaderText("Diagnosis Saved");
-        alert.setContentText("The diagnosis has been successfully recorded for " + patientComboBox.getValue());
+        alert.setContentText("The diagnosis has been successfully recorded for " + PatientAutocomplete.label(patient));
 
         ButtonType viewBtn = new ButtonType("View Record");
         ButtonType closeBtn = new ButtonType("Close", ButtonBar.ButtonData.CANCEL_CLOSE);
@@ -384,7 +300,7 @@ public class DoctorDiagnosisController {
 
         Optional<ButtonType> result = alert.showAndWait();
         if (result.isPresent() && result.get() == viewBtn) {
-            showPatientHistory(patientComboBox.getValue());
+            showPatientHistory(patient);
         }
 
         statusLabel.setText("Diagnosis saved successfully");
@@ -394,11 +310,8 @@ public class DoctorDiagnosisController {
     @FXML
     private void goBackToDashboard(javafx.event.ActionEvent event) {
         try {
-            Parent root = FXMLLoader.load(getClass().getResource("/views/Dashboard.fxml"));
             Stage stage = (Stage) ((Node) event.getSource()).getScene().getWindow();
-            stage.setScene(new Scene(root));
-            stage.setTitle("TeleHealth - Dashboard");
-            stage.show();
+            ViewRegistry.getInstance().show(stage, AppView.DASHBOARD, session);
         } catch (Exception e) {
             e.printStackTrace();
         }
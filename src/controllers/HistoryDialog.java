@@ -0,0 +1,85 @@
+package controllers;
+
+import javafx.scene.control.Alert;
+import javafx.scene.control.Label;
+import javafx.scene.control.TextArea;
+import javafx.scene.control.TextField;
+import javafx.scene.layout.VBox;
+import javafx.util.Duration;
+import search.ClinicalSearchIndex;
+import search.SearchHit;
+import utils.Debouncer;
+import utils.TaskScope;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A patient's history in an alert, with a search box that narrows it to the
+ * matching diagnoses, referrals and refills from the {@link ClinicalSearchIndex}.
+ * Searches run 200 ms after the user stops typing; a reply to an older query
+ * is dropped. Clearing the box shows the full history again.
+ */
+final class HistoryDialog {
+
+    static final int SEARCH_LIMIT = 50;
+
+    /** History text from the background query, with the patient it was resolved to (null if unknown). */
+    record History(Integer patientId, String text) {
+    }
+
+    private HistoryDialog() {
+    }
+
+    static void show(String title, String header, History history, TaskScope tasks) {
+        TextArea textArea = new TextArea(history.text());
+        textArea.setWrapText(true);
+        textArea.setEditable(false);
+        textArea.setPrefHeight(400);
+
+        TextField searchField = new TextField();
+        searchField.setPromptText("Search this patient's notes, referrals and refills");
+        searchField.setDisable(history.patientId() == null);
+        Label resultLabel = new Label();
+
+        AtomicLong generation = new AtomicLong();
+        Debouncer debouncer = new Debouncer(Duration.millis(200), () -> {
+            long current = generation.incrementAndGet();
+            String query = searchField.getText(); // untrimmed: a trailing space ends prefix matching
+            if (query.isBlank()) {
+                textArea.setText(history.text());
+                resultLabel.setText("");
+                return;
+            }
+            tasks.submit(() -> ClinicalSearchIndex.getInstance().search(query, history.patientId(), SEARCH_LIMIT), hits -> {
+                if (current != generation.get()) return; // the user has typed since
+                textArea.setText(format(hits));
+                resultLabel.setText(hits.size() + (hits.size() == SEARCH_LIMIT ? "+" : "") + " matching records");
+            }, e -> {
+                e.printStackTrace();
+                resultLabel.setText("Search failed: " + e.getMessage());
+            });
+        });
+        searchField.textProperty().addListener((obs, oldText, newText) -> debouncer.trigger());
+
+        Alert alert = new Alert(Alert.AlertType.INFORMATION);
+        alert.setTitle(title);
+        alert.setHeaderText(header);
+        alert.getDialogPane().setContent(new VBox(8, searchField, resultLabel, textArea));
+        alert.showAndWait();
+        debouncer.cancel();
+    }
+
+    static String format(List<SearchHit> hits) {
+        if (hits.isEmpty()) {
+            return "No matching records.";
+        }
+        StringBuilder text = new StringBuilder();
+        for (SearchHit hit : hits) {
+            text.append(hit.date() != null ? hit.date() : "Undated").append("  ").append(hit.title()).append("\n");
+            text.append("   ").append(hit.snippet()).append("\n");
+            text.append("-".repeat(50)).append("\n\n");
+        }
+        return text.toString();
+    }
+}
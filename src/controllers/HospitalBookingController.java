@@ -3,29 +3,32 @@ package controllers;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.collections.FXCollections;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
 import javafx.stage.Stage;
 import javafx.scene.Node;
-import javafx.fxml.FXMLLoader;
 import javafx.scene.layout.HBox;
 
 import models.HospitalReferral;
-import database.DatabaseHelper;
+import navigation.AppView;
+import navigation.RefreshableView;
+import navigation.ViewRegistry;
+import referrals.ReferralMatchingService;
+import search.PatientDirectory;
+import services.ReferralService;
+import session.SessionContext;
+import utils.TaskScope;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 /**
  * Controller for doctors to book patients at external hospitals/clinics
  * Manages hospital referrals and external appointment bookings
  */
-public class HospitalBookingController {
+public class HospitalBookingController implements RefreshableView {
 
-    @FXML private ComboBox<String> patientComboBox;
+    @FXML private ComboBox<PatientDirectory.Match> patientComboBox;
     @FXML private TextField doctorNameField;
     @FXML private ComboBox<String> hospitalComboBox;
     @FXML private ComboBox<String> departmentComboBox;
@@ -38,44 +41,31 @@ public class HospitalBookingController {
     @FXML private Label statusLabel;
     @FXML private ListView<String> recentReferralsView;
 
+    private final TaskScope tasks = new TaskScope();
+    private SessionContext session;
+    private final ReferralService referralService = new ReferralService();
+
     @FXML
     public void initialize() {
+        tasks.bindTo(statusLabel);
         setupComboBoxes();
-        loadPatients();
-        loadRecentReferrals();
         
         // Set default values
         doctorNameField.setText("Dr. Emily Brown");
         preferredDatePicker.setValue(LocalDate.now().plusDays(7));
     }
 
-    private void setupComboBoxes() {
-        // Hospital options
-        hospitalComboBox.setItems(FXCollections.observableArrayList(
-            "City General Hospital",
-            "Regional Medical Center", 
-            "St. Mary's Hospital",
-            "University Medical Center",
-            "Children's Hospital",
-            "Heart Specialist Center",
-            "Orthopedic Institute",
-            "Cancer Treatment Center"
-        ));
-
-        // Department options
-        departmentComboBox.setItems(FXCollections.observableArrayList(
-            "Emergency Department",
-            "Cardiology",
-            "Neurology", 
-            "Orthopedics",
-            "Pediatrics",
-            "Oncology",
-            "Surgery",
-            "Radiology",
-            "Dermatology",
-            "Psychiatry"
-        ));
+    // ================== Refresh ==================
+    @Override
+    public void refresh(SessionContext session) {
+        this.session = session;
+        clearForm();
+        loadHospitals();
+        loadPatients();
+        loadRecentReferrals();
+    }
 
+    private void setupComboBoxes() {
         // Urgency levels
         urgencyBox.setItems(FXCollections.observableArrayList(
             "LOW", "MEDIUM", "HIGH", "EMERGENCY"
@@ -88,84 +78,52 @@ public class HospitalBookingController {
         });
     }
 
+    /** Hospitals come from the capacity registry (hospital_departments). */
+    private void loadHospitals() {
+        tasks.submit(() -> ReferralMatchingService.getInstance().hospitals(), hospitals -> {
+            String selected = hospitalComboBox.getValue();
+            hospitalComboBox.setItems(FXCollections.observableArrayList(hospitals));
+            hospitalComboBox.setValue(hospitals.contains(selected) ? selected : null);
+        }, e -> {
+            e.printStackTrace();
+            statusLabel.setText("Error loading hospitals");
+            statusLabel.setStyle("-fx-text-fill: red;");
+        });
+    }
+
     private void updateDepartmentOptions(String hospital) {
-        if (hospital == null) return;
-        
-        // Customize departments based on hospital specialization
-        switch (hospital) {
-            case "Children's Hospital":
-                departmentComboBox.setItems(FXCollections.observableArrayList(
-                    "Pediatrics", "Pediatric Surgery", "Neonatology", "Child Psychology"
-                ));
-                break;
-            case "Heart Specialist Center":
-                departmentComboBox.setItems(FXCollections.observableArrayList(
-                    "Cardiology", "Cardiac Surgery", "Interventional Cardiology"
-                ));
-                break;
-            case "Cancer Treatment Center":
-                departmentComboBox.setItems(FXCollections.observableArrayList(
-                    "Oncology", "Radiation Therapy", "Chemotherapy", "Surgical Oncology"
-                ));
-                break;
-            default:
-                // General hospital departments
-                departmentComboBox.setItems(FXCollections.observableArrayList(
-                    "Emergency Department", "Cardiology", "Neurology", "Orthopedics",
-                    "Surgery", "Radiology", "Dermatology"
-                ));
+        if (hospital == null) {
+            departmentComboBox.getItems().clear();
+            return;
         }
+        departmentComboBox.setItems(FXCollections.observableArrayList(
+                ReferralMatchingService.getInstance().departments(hospital)));
     }
 
+    /** Patients are looked up as the user types; only the directory is loaded here. */
     private void loadPatients() {
-        try (Connection conn = DatabaseHelper.getConnection()) {
-            String query = """
-                SELECT DISTINCT patient_name FROM appointments 
-                WHERE status = 'SCHEDULED' OR status = 'COMPLETED'
-                ORDER BY patient_name
-            """;
-            
-            PreparedStatement pstmt = conn.prepareStatement(query);
-            ResultSet rs = pstmt.executeQuery();
-
-            while (rs.next()) {
-                patientComboBox.getItems().add(rs.getString("patient_name"));
-            }
-            
-        } catch (Exception e) {
+        PatientAutocomplete.attach(patientComboBox, PatientDirectory.getInstance());
+        tasks.run(() -> PatientDirectory.getInstance().warmUp(), () -> { }, e -> {
             e.printStackTrace();
             statusLabel.setText("Error loading patients");
             statusLabel.setStyle("-fx-text-fill: red;");
-        }
+        });
     }
 
     private void loadRecentReferrals() {
-        recentReferralsView.getItems().clear();
-        
-        try (Connection conn = DatabaseHelper.getConnection()) {
-            String query = """
-                SELECT patient_name, hospital_name, department, urgency_level, status, referral_date 
-                FROM hospital_referrals 
-                ORDER BY referral_date DESC LIMIT 10
-            """;
-            
-            PreparedStatement pstmt = conn.prepareStatement(query);
-            ResultSet rs = pstmt.executeQuery();
-
-            while (rs.next()) {
-                String item = String.format("%s -> %s (%s) [%s] - %s", 
-                    rs.getString("patient_name"),
-                    rs.getString("hospital_name"),
-                    rs.getString("department"),
-                    rs.getString("urgency_level"),
-                    rs.getString("referral_date")
-                );
-                recentReferralsView.getItems().add(item);
+        tasks.submit(() -> {
+            List<String> items = new ArrayList<>();
+            for (HospitalReferral referral : referralService.recent(10)) {
+                items.add(String.format("%s -> %s (%s) [%s] - %s",
+                    referral.getPatientName(),
+                    referral.getHospitalName(),
+                    referral.getDepartment(),
+                    referral.getUrgencyLevel(),
+                    referral.getReferralDate()
+                ));
             }
-            
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+            return items;
+        }, items -> recentReferralsView.getItems().setAll(items), Throwable::printStackTrace);
     }
 
     @FXML
@@ -174,22 +132,29 @@ public class HospitalBookingController {
             return;
         }
 
+        HospitalReferral referral;
         try {
-            HospitalReferral referral = createReferralFromForm();
-            saveReferralToDatabase(referral);
-            
-            showSuccessAlert();
-            clearForm();
-            loadRecentReferrals();
-            
+            referral = createReferralFromForm();
         } catch (Exception e) {
             e.printStackTrace();
             showAlert(Alert.AlertType.ERROR, "Error", "Failed to create hospital referral: " + e.getMessage());
+            return;
         }
+
+        statusLabel.setText("Saving referral...");
+        tasks.submitWrite(() -> referralService.matchedSlot(referralService.create(referral)), slot -> {
+            showSuccessAlert(slot);
+            clearForm();
+            loadRecentReferrals();
+        }, e -> {
+            e.printStackTrace();
+            statusLabel.setText("");
+            showAlert(Alert.AlertType.ERROR, "Error", "Failed to create hospital referral: " + e.getMessage());
+        });
     }
 
     private boolean validateInput() {
-        if (patientComboBox.getValue() == null || patientComboBox.getValue().trim().isEmpty()) {
+        if (patientComboBox.getValue() == null) {
             showAlert(Alert.AlertType.WARNING, "Validation Error", "Please select a patient.");
             return false;
         }
@@ -218,8 +183,9 @@ public class HospitalBookingController {
     }
 
     private HospitalReferral createReferralFromForm() {
+        PatientDirectory.Match patient = patientComboBox.getValue();
         HospitalReferral referral = new HospitalReferral(
-            patientComboBox.getValue(),
+            patient.name(),
             doctorNameField.getText(),
             hospitalComboBox.getValue(),
             departmentComboBox.getValue(),
@@ -227,6 +193,7 @@ public class HospitalBookingController {
             urgencyBox.getValue()
         );
 
+        referral.setPatientId(patient.userId());
         referral.setSpecialtyRequired(specialtyField.getText());
         referral.setPreferredAppointmentDate(preferredDatePicker.getValue());
         referral.setContactNumber(contactNumberField.getText());
@@ -235,36 +202,6 @@ public class HospitalBookingController {
         return referral;
     }
 
-    private void saveReferralToDatabase(HospitalReferral referral) throws Exception {
-        try (Connection conn = DatabaseHelper.getConnection()) {
-            String query = """
-                INSERT INTO hospital_referrals (
-                    patient_name, referring_doctor_name, hospital_name, department,
-                    specialty_required, reason_for_referral, urgency_level,
-                    referral_date, preferred_appointment_date, status,
-                    contact_number, notes
-                ) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
-            """;
-
-            PreparedStatement pstmt = conn.prepareStatement(query);
-            pstmt.setString(1, referral.getPatientName());
-            pstmt.setString(2, referral.getReferringDoctorName());
-            pstmt.setString(3, referral.getHospitalName());
-            pstmt.setString(4, referral.getDepartment());
-            pstmt.setString(5, referral.getSpecialtyRequired());
-            pstmt.setString(6, referral.getReasonForReferral());
-            pstmt.setString(7, referral.getUrgencyLevel());
-            pstmt.setString(8, referral.getReferralDate().toString());
-            pstmt.setString(9, referral.getPreferredAppointmentDate() != null ? 
-                            referral.getPreferredAppointmentDate().toString() : null);
-            pstmt.setString(10, referral.getStatus());
-            pstmt.setString(11, referral.getContactNumber());
-            pstmt.setString(12, referral.getNotes());
-
-            pstmt.executeUpdate();
-        }
-    }
-
     @FXML
     private void handleClearForm() {
         clearForm();
@@ -306,7 +243,7 @@ public class HospitalBookingController {
         letter.append("From: ").append(doctorNameField.getText()).append("\n");
         letter.append("TeleHealth System\n\n");
         letter.append("Dear Colleague,\n\n");
-        letter.append("RE: ").append(patientComboBox.getValue()).append("\n\n");
+        letter.append("RE: ").append(patientComboBox.getValue().name()).append("\n\n");
         letter.append("I am referring the above patient for your specialist opinion and management.\n\n");
         letter.append("REASON FOR REFERRAL:\n");
         letter.append(reasonArea.getText()).append("\n\n");
@@ -350,7 +287,7 @@ public class HospitalBookingController {
 
     @FXML
     private void handleViewReferralStatus() {
-        String selectedPatient = patientComboBox.getValue();
+        PatientDirectory.Match selectedPatient = patientComboBox.getValue();
         if (selectedPatient == null) {
             showAlert(Alert.AlertType.WARNING, "No Selection", "Please select a patient first.");
             return;
@@ -359,51 +296,35 @@ public class HospitalBookingController {
         showReferralHistory(selectedPatient);
     }
 
-    private void showReferralHistory(String patientName) {
-        try (Connection conn = DatabaseHelper.getConnection()) {
-            String query = """
-                SELECT * FROM hospital_referrals 
-                WHERE patient_name = ? 
-                ORDER BY referral_date DESC
-            """;
-            
-            PreparedStatement pstmt = conn.prepareStatement(query);
-            pstmt.setString(1, patientName);
-            ResultSet rs = pstmt.executeQuery();
-
-            StringBuilder history = new StringBuilder();
-            history.append("HOSPITAL REFERRAL HISTORY: ").append(patientName).append("\n\n");
-
-            while (rs.next()) {
-                history.append("Referral Date: ").append(rs.getString("referral_date")).append("\n");
-                history.append("Hospital: ").append(rs.getString("hospital_name")).append("\n");
-                history.append("Department: ").append(rs.getString("department")).append("\n");
-                history.append("Urgency: ").append(rs.getString("urgency_level")).append("\n");
-                history.append("Status: ").append(rs.getString("status")).append("\n");
-                history.append("Reason: ").append(rs.getString("reason_for_referral")).append("\n");
-                history.append("-".repeat(50)).append("\n\n");
-            }
+    private void showReferralHistory(PatientDirectory.Match patient) {
+        tasks.submit(() -> queryReferralHistory(patient), history ->
+                HistoryDialog.show("Referral History", "Hospital Referral History for " + PatientAutocomplete.label(patient),
+                        history, tasks), e -> {
+            e.printStackTrace();
+            showAlert(Alert.AlertType.ERROR, "Error", "Failed to load referral history: " + e.getMessage());
+        });
+    }
 
-            if (history.toString().equals("HOSPITAL REFERRAL HISTORY: " + patientName + "\n\n")) {
-                history.append("No previous referrals found for this patient.");
-            }
+    private HistoryDialog.History queryReferralHistory(PatientDirectory.Match patient) throws Exception {
+        List<HospitalReferral> referrals = referralService.history(patient.userId());
 
-            Alert alert = new Alert(Alert.AlertType.INFORMATION);
-            alert.setTitle("Referral History");
-            alert.setHeaderText("Hospital Referral History for " + patientName);
+        StringBuilder history = new StringBuilder();
+        history.append("HOSPITAL REFERRAL HISTORY: ").append(PatientAutocomplete.label(patient)).append("\n\n");
 
-            TextArea textArea = new TextArea(history.toString());
-            textArea.setWrapText(true);
-            textArea.setEditable(false);
-            textArea.setPrefHeight(400);
+        for (HospitalReferral referral : referrals) {
+            history.append("Referral Date: ").append(referral.getReferralDate()).append("\n");
+            history.append("Hospital: ").append(referral.getHospitalName()).append("\n");
+            history.append("Department: ").append(referral.getDepartment()).append("\n");
+            history.append("Urgency: ").append(referral.getUrgencyLevel()).append("\n");
+            history.append("Status: ").append(referral.getStatus()).append("\n");
+            history.append("Reason: ").append(referral.getReasonForReferral()).append("\n");
+            history.append("-".repeat(50)).append("\n\n");
+        }
 
-            alert.getDialogPane().setContent(textArea);
-            alert.showAndWait();
-            
-        } catch (Exception e) {
-            e.printStackTrace();
-            showAlert(Alert.AlertType.ERROR, "Error", "Failed to load referral history: " + e.getMessage());
+        if (referrals.isEmpty()) {
+            history.append("No previous referrals found for this patient.");
         }
+        return new HistoryDialog.History(patient.userId(), history.toString());
     }
 
     @FXML
@@ -422,15 +343,19 @@ public class HospitalBookingController {
         statusLabel.setStyle("-fx-text-fill: red; -fx-font-weight: bold;");
     }
 
-    private void showSuccessAlert() {
+    /** slot is the day the referral was matched to, or null if it is waitlisted. */
+    private void showSuccessAlert(LocalDate slot) {
         Alert alert = new Alert(Alert.AlertType.INFORMATION);
         alert.setTitle("Success");
         alert.setHeaderText("Hospital Referral Created");
         alert.setContentText(String.format(
-            "Hospital referral has been successfully created for %s at %s (%s department)",
-            patientComboBox.getValue(),
+            "Hospital referral has been successfully created for %s at %s (%s department)\n\n%s",
+            PatientAutocomplete.label(patientComboBox.getValue()),
             hospitalComboBox.getValue(),
-            departmentComboBox.getValue()
+            departmentComboBox.getValue(),
+            slot != null
+                ? "Earliest available appointment: " + slot.format(java.time.format.DateTimeFormatter.ofPattern("dd/MM/yyyy"))
+                : "No capacity is free yet; the referral is waitlisted and will be matched when a place opens."
         ));
 
         ButtonType generateLetterBtn = new ButtonType("Generate Letter");
@@ -450,11 +375,8 @@ public class HospitalBookingController {
     @FXML
     private void goBackToDashboard(javafx.event.ActionEvent event) {
         try {
-            Parent root = FXMLLoader.load(getClass().getResource("/views/Dashboard.fxml"));
             Stage stage = (Stage) ((Node) event.getSource()).getScene().getWindow();
-            stage.setScene(new Scene(root));
-            stage.setTitle("TeleHealth - Dashboard");
-            stage.show();
+            ViewRegistry.getInstance().show(stage, AppView.DASHBOARD, session);
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -1,16 +1,21 @@
 package controllers;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-
-import database.DatabaseHelper;
+import database.ReferenceDataCache;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.*;
 import javafx.scene.control.*;
 import javafx.stage.Stage;
+import navigation.AppView;
+import navigation.ViewRegistry;
+import security.LoginThrottledException;
+import services.AuthService;
+import session.SessionContext;
+import session.SessionStore;
+import utils.DbExecutor;
+import utils.StartupTimeline;
+import utils.TaskScope;
 
 public class LoginController {
 
@@ -23,6 +28,16 @@ public class LoginController {
     @FXML
     private Button btnLogin;
 
+    /** Print the startup timeline once the dashboard is up; off by default so logins stay quiet. */
+    private static final boolean REPORT_TIMELINE = Boolean.getBoolean("telehealth.startup.timeline");
+
+    private final TaskScope tasks = new TaskScope();
+
+    @FXML
+    public void initialize() {
+        tasks.bindTo(btnLogin);
+    }
+
     // ==================== ALERT HELPER ====================
     private void showAlert(Alert.AlertType type, String title, String message) {
         Alert alert = new Alert(type);
@@ -43,36 +58,62 @@ public class LoginController {
             return;
         }
 
-        String query = "SELECT user_id, name, role FROM users WHERE username = ? AND password = ?";
-
-        try (Connection conn = DatabaseHelper.getConnection(); PreparedStatement pstmt = conn.prepareStatement(query)) {
-
-            pstmt.setString(1, username);
-            pstmt.setString(2, password);
-            ResultSet rs = pstmt.executeQuery();
-
-            if (rs.next()) {
-                // ==================== LOGIN SUCCESS ====================
-                FXMLLoader loader = new FXMLLoader(getClass().getResource("/views/Dashboard.fxml"));
-                Parent root = loader.load();
-
-                // Pass username and role to DashboardController
-                DashboardController controller = loader.getController();
-                controller.setUserInfo(rs.getInt("user_id"), rs.getString("name"), rs.getString("role"));
-
-                Stage stage = (Stage) ((Node) event.getSource()).getScene().getWindow();
-                stage.setScene(new Scene(root));
-                stage.setTitle("TeleHealth - Dashboard");
-                stage.show();
+        Stage stage = (Stage) ((Node) event.getSource()).getScene().getWindow();
+        btnLogin.setDisable(true);
+        errorLabel.setText("Signing in...");
 
-            } else {
+        StartupTimeline.get().mark(StartupTimeline.Phase.LOGIN_SUBMITTED);
+        AuthService auth = AuthService.getInstance(); // created on first use, not while the login screen loads
+        tasks.submit(() -> auth.authenticate(username, password), user -> {
+            btnLogin.setDisable(false);
+            if (user == null) {
                 errorLabel.setText("Login Failed. Invalid username or password.");
+                return;
             }
-
-        } catch (Exception e) {
+            // ==================== LOGIN SUCCESS ====================
+            errorLabel.setText("");
+            warmUpReferenceData();
+            openDashboard(stage, user);
+        }, e -> {
+            btnLogin.setDisable(false);
+            if (e instanceof LoginThrottledException throttled) {
+                errorLabel.setText("Too many login attempts. Try again in "
+                        + throttled.getRetryAfterSeconds() + " seconds.");
+                return;
+            }
+            errorLabel.setText("");
             showAlert(Alert.AlertType.ERROR, "Connection Error",
                     "Unable to connect to the database. Please try again later.");
             e.printStackTrace();
+        });
+    }
+
+    /**
+     * Load the doctor/patient lists in the background so the first picker opens instantly.
+     */
+    private void warmUpReferenceData() {
+        DbExecutor.get().execute(() -> {
+            try {
+                ReferenceDataCache.getInstance().warmUp();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    private void openDashboard(Stage stage, AuthService.AuthenticatedUser user) {
+        try {
+            // Each sign-in gets its own session; screens pass it along instead of sharing static state
+            SessionContext session = SessionStore.getInstance().open(user.userId(), user.name(), user.role());
+            ViewRegistry views = ViewRegistry.getInstance();
+            views.show(stage, AppView.DASHBOARD, session);
+            views.preload(user.role()); // build the screens this user can open while they read the dashboard
+            StartupTimeline timeline = StartupTimeline.get();
+            timeline.markOnNextFrame(stage.getScene(), StartupTimeline.Phase.DASHBOARD_READY,
+                    REPORT_TIMELINE ? () -> System.out.println(timeline.report()) : null);
+        } catch (Exception e) {
+            e.printStackTrace();
+            showAlert(Alert.AlertType.ERROR, "Navigation Error", "Unable to open the dashboard.");
         }
     }
 
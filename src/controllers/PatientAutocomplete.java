@@ -0,0 +1,80 @@
+package controllers;
+
+import javafx.scene.control.ComboBox;
+import javafx.util.StringConverter;
+import search.PatientDirectory;
+
+import java.util.List;
+
+/**
+ * Turns a patient ComboBox into a typeahead: the user types part of a name or
+ * username and the drop-down offers the best {@link #SUGGESTIONS} matches from
+ * the {@link PatientDirectory}. The full patient list is never put into the
+ * combo box. Each patient is shown as "name (username)", so two patients with
+ * the same name stay apart, and the value is the chosen
+ * {@link PatientDirectory.Match}, whose userId the screens save. Committed
+ * text that names no patient, or a name several patients share, leaves the
+ * value null, so the screens' "select a patient" checks still apply.
+ */
+final class PatientAutocomplete {
+
+    static final int SUGGESTIONS = 12;
+
+    private final ComboBox<PatientDirectory.Match> comboBox;
+    private final PatientDirectory directory;
+    private boolean updating;
+
+    private PatientAutocomplete(ComboBox<PatientDirectory.Match> comboBox, PatientDirectory directory) {
+        this.comboBox = comboBox;
+        this.directory = directory;
+    }
+
+    static PatientAutocomplete attach(ComboBox<PatientDirectory.Match> comboBox, PatientDirectory directory) {
+        PatientAutocomplete autocomplete = new PatientAutocomplete(comboBox, directory);
+        comboBox.setEditable(true);
+        comboBox.setVisibleRowCount(SUGGESTIONS);
+        comboBox.setConverter(new StringConverter<>() {
+            @Override
+            public String toString(PatientDirectory.Match match) {
+                return label(match);
+            }
+
+            @Override
+            public PatientDirectory.Match fromString(String text) {
+                return autocomplete.resolve(text);
+            }
+        });
+        comboBox.getEditor().textProperty().addListener((obs, oldText, newText) -> autocomplete.suggest(newText));
+        return autocomplete;
+    }
+
+    /** "name (username)", or "" for no patient. */
+    static String label(PatientDirectory.Match match) {
+        if (match == null) return "";
+        return match.username() == null || match.username().isBlank()
+                ? match.name() : match.name() + " (" + match.username() + ")";
+    }
+
+    private void suggest(String text) {
+        if (updating || !comboBox.getEditor().isFocused()) return;
+        List<PatientDirectory.Match> matches = directory.lookup(text, SUGGESTIONS);
+        updating = true;
+        try {
+            comboBox.getItems().setAll(matches);
+        } finally {
+            updating = false;
+        }
+        if (matches.isEmpty()) {
+            comboBox.hide();
+        } else if (!comboBox.isShowing()) {
+            comboBox.show();
+        }
+    }
+
+    /** The patient for committed text, or null; see {@link PatientDirectory#resolve}. */
+    private PatientDirectory.Match resolve(String text) {
+        PatientDirectory.Match current = comboBox.getValue();
+        if (current != null && label(current).equals(text)) return current;
+        return directory.resolve(text).orElse(null);
+    }
+}
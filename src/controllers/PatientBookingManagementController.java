@@ -1,9 +1,7 @@
 package controllers;
 
-import database.DatabaseHelper;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
-import javafx.collections.transformation.FilteredList;
+import database.BookingFilter;
+import database.KeysetPager;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
@@ -15,11 +13,15 @@ import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
 import models.Appointment;
+import services.BookingService;
+import utils.PagedTableLoader;
+import utils.TaskScope;
 
 import java.io.IOException;
 import java.sql.*;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -42,18 +44,38 @@ public class PatientBookingManagementController {
     @FXML private DatePicker dateFilterPicker;
     @FXML private Label statusLabel;
 
-    private ObservableList<Appointment> bookingsList = FXCollections.observableArrayList();
-    private FilteredList<Appointment> filteredBookings;
+    // Newest dates first, as before; booking_id makes the key unique
+    private static final KeysetPager<Appointment> BOOKING_PAGER = new KeysetPager<>(
+            "SELECT b.booking_id, p.name AS patient_name, d.name AS doctor_name, " +
+            "b.appointment_date, b.appointment_time, b.symptoms, b.status " +
+            "FROM bookings b " +
+            "JOIN users p ON b.patient_id = p.user_id " +
+            "JOIN users d ON b.doctor_id = d.user_id",
+            List.of(new KeysetPager.SortKey("b.appointment_date", "appointment_date", true),
+                    new KeysetPager.SortKey("b.appointment_time", "appointment_time", false),
+                    new KeysetPager.SortKey("b.booking_id", "booking_id", false)),
+            new KeysetPager.FilterColumns(List.of("p.name", "d.name"), "b.status", "b.appointment_date"),
+            PatientBookingManagementController::mapBooking, 100);
+
+    private final TaskScope tasks = new TaskScope();
+    private final BookingService bookingService = new BookingService();
+    private PagedTableLoader<Appointment> bookingLoader;
 
     @FXML
     public void initialize() {
+        tasks.bindTo(bookingsTable);
         setupTableColumns();
         setupFilters();
-        loadBookings();
         
-        // Set up filtered list
-        filteredBookings = new FilteredList<>(bookingsList, p -> true);
-        bookingsTable.setItems(filteredBookings);
+        bookingLoader = new PagedTableLoader<>(bookingsTable, BOOKING_PAGER, tasks, 500);
+        bookingLoader.enableLocalFiltering(Appointment::getSearchKey, (row, criteria) -> criteria.matches(row));
+        bookingLoader.setOnError(e -> {
+            e.printStackTrace();
+            statusLabel.setText("Error loading bookings: " + e.getMessage());
+        });
+        bookingLoader.setOnLoaded(loader -> statusLabel.setText(
+                "Showing " + loader.getRows().size() + " of " + loader.getTotalRows() + " bookings"));
+        loadBookings();
         
         // Add listener for search field
         searchField.textProperty().addListener((observable, oldValue, newValue) -> {
@@ -89,69 +111,34 @@ public class PatientBookingManagementController {
         });
     }
 
+    // Filtered in memory when every booking fits in the window, otherwise by the database
     private void updateFilters() {
-        filteredBookings.setPredicate(booking -> {
-            // If filter text is empty, display all bookings
-            String searchText = searchField.getText().toLowerCase();
-            String statusFilter = statusFilterBox.getValue();
-            LocalDate dateFilter = dateFilterPicker.getValue();
-            
-            // Filter by search text
-            boolean matchesSearch = searchText == null || searchText.isEmpty() || 
-                                   booking.getPatientName().toLowerCase().contains(searchText) ||
-                                   booking.getSpecialistName().toLowerCase().contains(searchText);
-            
-            // Filter by status
-            boolean matchesStatus = "All".equals(statusFilter) || 
-                                   booking.getStatus().equalsIgnoreCase(statusFilter);
-            
-            // Filter by date
-            boolean matchesDate = dateFilter == null || 
-                                 booking.getAppointmentDate().equals(dateFilter);
-            
-            return matchesSearch && matchesStatus && matchesDate;
-        });
-        
-        statusLabel.setText("Showing " + filteredBookings.size() + " of " + bookingsList.size() + " bookings");
+        bookingLoader.setFilter(currentFilter());
+    }
+
+    private BookingFilter currentFilter() {
+        return new BookingFilter(searchField.getText(), statusFilterBox.getValue(), dateFilterPicker.getValue());
     }
 
     private void loadBookings() {
-        bookingsList.clear();
+        statusLabel.setText("Loading bookings...");
+        bookingLoader.reload();
+    }
+
+    private static Appointment mapBooking(ResultSet rs) throws SQLException {
+        Appointment booking = new Appointment();
+        booking.setAppointmentId(rs.getInt("booking_id"));
+        booking.setPatientName(rs.getString("patient_name"));
+        booking.setSpecialistName(rs.getString("doctor_name"));
+        booking.setAppointmentDate(rs.getDate("appointment_date").toLocalDate());
         
-        try (Connection conn = DatabaseHelper.getConnection()) {
-            String query = "SELECT b.booking_id, p.name AS patient_name, d.name AS doctor_name, " +
-                          "b.appointment_date, b.appointment_time, b.symptoms, b.status " +
-                          "FROM bookings b " +
-                          "JOIN users p ON b.patient_id = p.user_id " +
-                          "JOIN users d ON b.doctor_id = d.user_id " +
-                          "ORDER BY b.appointment_date DESC, b.appointment_time ASC";
-            
-            PreparedStatement pstmt = conn.prepareStatement(query);
-            ResultSet rs = pstmt.executeQuery();
-            
-            while (rs.next()) {
-                Appointment booking = new Appointment();
-                booking.setAppointmentId(rs.getInt("booking_id"));
-                booking.setPatientName(rs.getString("patient_name"));
-                booking.setSpecialistName(rs.getString("doctor_name"));
-                booking.setAppointmentDate(rs.getDate("appointment_date").toLocalDate());
-                
-                // Convert Time to String timeSlot
-                Time sqlTime = rs.getTime("appointment_time");
-                booking.setTimeSlot(sqlTime.toString());
-                
-                booking.setNotes(rs.getString("symptoms"));
-                booking.setStatus(rs.getString("status"));
-                
-                bookingsList.add(booking);
-            }
-            
-            statusLabel.setText("Loaded " + bookingsList.size() + " bookings");
-            
-        } catch (SQLException e) {
-            e.printStackTrace();
-            statusLabel.setText("Error loading bookings: " + e.getMessage());
-        }
+        // Convert Time to String timeSlot
+        Time sqlTime = rs.getTime("appointment_time");
+        booking.setTimeSlot(sqlTime.toString());
+        
+        booking.setNotes(rs.getString("symptoms"));
+        booking.setStatus(rs.getString("status"));
+        return booking;
     }
 
     @FXML
@@ -187,23 +174,18 @@ public class PatientBookingManagementController {
         
         Optional<ButtonType> result = confirmDialog.showAndWait();
         if (result.isPresent() && result.get() == ButtonType.OK) {
-            try (Connection conn = DatabaseHelper.getConnection()) {
-                String query = "UPDATE bookings SET status = 'Cancelled' WHERE booking_id = ?";
-                PreparedStatement pstmt = conn.prepareStatement(query);
-                pstmt.setInt(1, selectedBooking.getAppointmentId());
-                
-                int rowsAffected = pstmt.executeUpdate();
+            int bookingId = selectedBooking.getAppointmentId();
+            tasks.submitWrite(() -> bookingService.cancel(bookingId), rowsAffected -> {
                 if (rowsAffected > 0) {
                     showAlert(Alert.AlertType.INFORMATION, "Success", "Booking cancelled successfully.");
                     loadBookings(); // Refresh the table
                 } else {
                     showAlert(Alert.AlertType.ERROR, "Error", "Failed to cancel booking.");
                 }
-                
-            } catch (SQLException e) {
+            }, e -> {
                 e.printStackTrace();
                 showAlert(Alert.AlertType.ERROR, "Database Error", "Error cancelling booking: " + e.getMessage());
-            }
+            });
         }
     }
 
@@ -254,7 +236,6 @@ public class PatientBookingManagementController {
     @FXML
     private void handleRefresh() {
         loadBookings();
-        updateFilters();
     }
 
     @FXML
@@ -290,10 +271,7 @@ public class PatientBookingManagementController {
             
             // Set callback for when dialog is closed
             controller.setDialogStage(dialogStage);
-            controller.setOnBookingSaved(() -> {
-                loadBookings();
-                updateFilters();
-            });
+            controller.setOnBookingSaved(this::loadBookings);
             
             dialogStage.showAndWait();
             
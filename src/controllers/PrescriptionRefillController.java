@@ -4,16 +4,21 @@ import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.Priority;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
 import javafx.stage.Stage;
 import javafx.scene.Node;
-import javafx.fxml.FXMLLoader;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 
 import database.DatabaseHelper;
+import navigation.AppView;
+import navigation.RefreshableView;
+import navigation.ViewRegistry;
+import search.ClinicalSearchIndex;
+import session.SessionContext;
+import utils.TaskScope;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
 import javafx.event.ActionEvent;
 import javafx.beans.property.SimpleStringProperty;
 
@@ -23,7 +28,7 @@ import javafx.beans.property.SimpleStringProperty;
  * Allows a logged-in patient to submit prescription refill requests.
  * Displays existing refill history for that patient.
  */
-public class PrescriptionRefillController {
+public class PrescriptionRefillController implements RefreshableView {
 
     @FXML private TextField patientNameField;
     @FXML private TextField medicationField;
@@ -42,17 +47,25 @@ public class PrescriptionRefillController {
     private ObservableList<RefillRecord> refillHistory = FXCollections.observableArrayList();
 
     private String lastRefillDetails = "";
-    private int userId;        
-    private String patientName;
-    private String userRole;
-
-    // ================== SET PATIENT INFO ==================
-    public void setPatientInfo(int id, String name, String role) {
-        this.userId = id;
-        this.patientName = name;
-        this.userRole = role;
-        this.patientNameField.setText(name);
+    private SessionContext session;
+    private int userId;
+    private final TaskScope tasks = new TaskScope();
+
+    @FXML
+    public void initialize() {
+        tasks.bindTo(statusLabel);
+    }
+
+    // ================== REFRESH ==================
+    @Override
+    public void refresh(SessionContext session) {
+        this.session = session;
+        this.userId = session.userId();
+        this.patientNameField.setText(session.userName());
         this.patientNameField.setDisable(true);
+        clearForm();
+        statusLabel.setText("");
+        lastRefillDetails = "";
         loadRefillHistory();
     }
 
@@ -84,21 +97,31 @@ public class PrescriptionRefillController {
             VALUES (?, ?, ?, ?, ?, 'Pending', NOW())
         """;
 
-        try (Connection conn = DatabaseHelper.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(insertSQL)) {
-
-            pstmt.setInt(1, userId);
-            pstmt.setString(2, patientNameField.getText());
-            pstmt.setString(3, medication);
-            pstmt.setInt(4, qty);
-            pstmt.setString(5, note);
-
-            int rows = pstmt.executeUpdate();
-
+        String name = patientNameField.getText();
+        tasks.submitWrite(() -> {
+            try (Connection conn = DatabaseHelper.getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(insertSQL, Statement.RETURN_GENERATED_KEYS)) {
+
+                pstmt.setInt(1, userId);
+                pstmt.setString(2, name);
+                pstmt.setString(3, medication);
+                pstmt.setInt(4, qty);
+                pstmt.setString(5, note);
+
+                int rows = pstmt.executeUpdate();
+                try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                    if (keys != null && keys.next()) {
+                        // Searchable right away; other clients see it after their next sync
+                        ClinicalSearchIndex.getInstance().addRefill(keys.getLong(1), userId, medication, note);
+                    }
+                }
+                return rows;
+            }
+        }, rows -> {
             if (rows > 0) {
                 statusLabel.setText("✅ Prescription refill submitted successfully!");
                 statusLabel.setStyle("-fx-text-fill: green;");
-                saveLastRefillDetails(patientNameField.getText(), medication, quantity, note);
+                saveLastRefillDetails(name, medication, quantity, note);
                 showConfirmationPopup();
                 clearForm();
                 loadRefillHistory();
@@ -106,18 +129,15 @@ public class PrescriptionRefillController {
                 statusLabel.setText("❌ Failed to save data. Try again.");
                 statusLabel.setStyle("-fx-text-fill: red;");
             }
-
-        } catch (SQLException e) {
+        }, e -> {
             e.printStackTrace();
             statusLabel.setText("⚠️ Database error: " + e.getMessage());
             statusLabel.setStyle("-fx-text-fill: red;");
-        }
+        });
     }
 
     // ================== LOAD REFILL HISTORY ==================
     private void loadRefillHistory() {
-        refillHistory.clear();
-
         String query = """
             SELECT medication_name, quantity, notes, status, request_date
             FROM prescription_refills
@@ -125,30 +145,34 @@ public class PrescriptionRefillController {
             ORDER BY request_date DESC
         """;
 
-        try (Connection conn = DatabaseHelper.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(query)) {
-
-            pstmt.setInt(1, userId);
-            ResultSet rs = pstmt.executeQuery();
-
-            while (rs.next()) {
-                refillHistory.add(new RefillRecord(
-                        rs.getString("medication_name"),
-                        String.valueOf(rs.getInt("quantity")),
-                        rs.getString("notes"),
-                        rs.getString("status"),
-                        rs.getString("request_date")
-                ));
+        tasks.submit(() -> {
+            List<RefillRecord> records = new ArrayList<>();
+            try (Connection conn = DatabaseHelper.getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(query)) {
+
+                pstmt.setInt(1, userId);
+                ResultSet rs = pstmt.executeQuery();
+
+                while (rs.next()) {
+                    records.add(new RefillRecord(
+                            rs.getString("medication_name"),
+                            String.valueOf(rs.getInt("quantity")),
+                            rs.getString("notes"),
+                            rs.getString("status"),
+                            rs.getString("request_date")
+                    ));
+                }
             }
-
+            return records;
+        }, records -> {
+            refillHistory.setAll(records);
             setupTable();
             refillHistoryTable.setItems(refillHistory);
-
-        } catch (SQLException e) {
+        }, e -> {
             e.printStackTrace();
             statusLabel.setText("⚠️ Failed to load refill history.");
             statusLabel.setStyle("-fx-text-fill: red;");
-        }
+        });
     }
 
     // ================== SETUP TABLE COLUMNS ==================
@@ -223,17 +247,8 @@ public class PrescriptionRefillController {
     @FXML
     private void goBackToDashboard(ActionEvent event) {
         try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/views/Dashboard.fxml"));
-            Parent root = loader.load();
-
-            DashboardController controller = loader.getController();
-            controller.setUserInfo(userId, patientName, userRole);
-
             Stage stage = (Stage) ((Node) event.getSource()).getScene().getWindow();
-            stage.setScene(new Scene(root));
-            stage.setTitle("TeleHealth System - Dashboard");
-            stage.show();
-
+            ViewRegistry.getInstance().show(stage, AppView.DASHBOARD, session);
         } catch (Exception e) {
             e.printStackTrace();
             statusLabel.setText("⚠️ Navigation error: " + e.getMessage());
@@ -1,14 +1,13 @@
 package controllers;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import database.DatabaseHelper;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.*;
 import javafx.scene.control.*;
 import javafx.stage.Stage;
+import services.AuthService;
+import utils.TaskScope;
 
 public class SignupController {
 
@@ -19,9 +18,12 @@ public class SignupController {
     @FXML private Label statusLabel;
     @FXML private ComboBox<String> comboRole;
 
+    private final TaskScope tasks = new TaskScope();
+
 @FXML
     public void initialize() {
         comboRole.getItems().addAll("Patient", "Doctor", "Admin");
+        tasks.bindTo(statusLabel);
 }
 
     
@@ -44,22 +46,11 @@ public class SignupController {
             return;
         }
 
-        try (Connection conn = DatabaseHelper.getConnection()) {
-            
-            String query = "INSERT INTO users (name, username, password, role) VALUES (?, ?, ?, ?)";
-            PreparedStatement pstmt = conn.prepareStatement(query);
-            pstmt.setString(1, name);
-            pstmt.setString(2, username);
-            pstmt.setString(3, password);
-            pstmt.setString(4, role);
-            pstmt.executeUpdate();
-
+        statusLabel.setText("Creating account...");
+        tasks.runWrite(() -> AuthService.getInstance().register(name, username, password, role), () -> {
             statusLabel.setText("Signup successful! Account created for " + role);
-       
             statusLabel.setStyle("-fx-text-fill: green;");
-        } catch (Exception e) {
-            statusLabel.setText("Failed to create account: " + e.getMessage());
-        }
+        }, e -> statusLabel.setText("Failed to create account: " + e.getMessage()));
     }
 
     @FXML
@@ -3,22 +3,25 @@ package controllers;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
 import javafx.stage.Stage;
 import javafx.scene.Node;
-import javafx.fxml.FXMLLoader;
 
 import models.Appointment;
-import database.DatabaseHelper;
+import database.BookingFilter;
+import database.KeysetPager;
+import navigation.AppView;
+import navigation.RefreshableView;
+import navigation.ViewRegistry;
+import services.BookingService;
+import session.SessionContext;
+import utils.PagedTableLoader;
+import utils.TaskScope;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
 import java.util.Optional;
 import javafx.scene.layout.GridPane;
 
@@ -26,7 +29,7 @@ import javafx.scene.layout.GridPane;
  * Controller for healthcare staff to manage patient bookings Allows viewing,
  * modifying, and cancelling appointments
  */
-public class StaffBookingController {
+public class StaffBookingController implements RefreshableView {
 
     @FXML
     private TableView<Appointment> appointmentsTable;
@@ -50,13 +53,31 @@ public class StaffBookingController {
     @FXML
     private Label statusLabel;
 
-    private ObservableList<Appointment> appointmentList = FXCollections.observableArrayList();
-    private ObservableList<Appointment> filteredList = FXCollections.observableArrayList();
+    private static final KeysetPager<Appointment> APPOINTMENT_PAGER = new KeysetPager<>(
+            "SELECT id, booking_id, patient_name, doctor_name, appointment_date, appointment_time, "
+            + "status, appointment_type, notes FROM appointments",
+            List.of(new KeysetPager.SortKey("appointment_date", "appointment_date", false),
+                    new KeysetPager.SortKey("appointment_time", "appointment_time", false),
+                    new KeysetPager.SortKey("id", "id", false)),
+            new KeysetPager.FilterColumns(List.of("patient_name", "doctor_name"), "status", "appointment_date"),
+            StaffBookingController::mapAppointment, 100);
+
+    private final TaskScope tasks = new TaskScope();
+    private SessionContext session;
+    private final BookingService bookingService = new BookingService();
+    private PagedTableLoader<Appointment> appointmentLoader;
 
     @FXML
     public void initialize() {
+        tasks.bindTo(appointmentsTable);
         setupTableColumns();
         setupFilters();
+    }
+
+    // ================== Refresh ==================
+    @Override
+    public void refresh(SessionContext session) {
+        this.session = session;
         loadAppointments();
     }
 
@@ -72,7 +93,16 @@ public class StaffBookingController {
                 (obs, oldSelection, newSelection) -> {
                 });
 
-        appointmentsTable.setItems(filteredList);
+        appointmentLoader = new PagedTableLoader<>(appointmentsTable, APPOINTMENT_PAGER, tasks, 500);
+        appointmentLoader.enableLocalFiltering(Appointment::getSearchKey, (row, criteria) -> criteria.matches(row));
+        appointmentLoader.setOnError(e -> {
+            e.printStackTrace();
+            showAlert(Alert.AlertType.ERROR, "Error", "Failed to load appointments: " + e.getMessage());
+        });
+        appointmentLoader.setOnLoaded(loader -> {
+            statusLabel.setText("Loaded " + loader.getTotalRows() + " appointments");
+            statusLabel.setStyle("-fx-text-fill: green;");
+        });
     }
 
     private void setupFilters() {
@@ -86,59 +116,29 @@ public class StaffBookingController {
     }
 
     private void loadAppointments() {
-        appointmentList.clear();
-
-        try (Connection conn = DatabaseHelper.getConnection()) {
-            String query = "SELECT *, doctor_name AS specialist_name FROM appointments ORDER BY appointment_date, appointment_time";
-            PreparedStatement pstmt = conn.prepareStatement(query);
-            ResultSet rs = pstmt.executeQuery();
-
-            while (rs.next()) {
-                Appointment appointment = new Appointment(
-                        rs.getInt("booking_id"),
-                        rs.getString("patient_name"),
-                        rs.getString("doctor_name"),
-                        LocalDate.parse(rs.getString("appointment_date")),
-                        rs.getString("appointment_time"),
-                        rs.getString("status"),
-                        rs.getString("appointment_type"),
-                        rs.getString("notes")
-                );
-                appointmentList.add(appointment);
-            }
+        appointmentLoader.reload();
+    }
 
-            applyFilters();
-            statusLabel.setText("Loaded " + appointmentList.size() + " appointments");
-            statusLabel.setStyle("-fx-text-fill: green;");
+    private static Appointment mapAppointment(ResultSet rs) throws SQLException {
+        return new Appointment(
+                rs.getInt("id"),
+                rs.getString("patient_name"),
+                rs.getString("doctor_name"),
+                LocalDate.parse(rs.getString("appointment_date")),
+                rs.getString("appointment_time"),
+                rs.getString("status"),
+                rs.getString("appointment_type"),
+                rs.getString("notes")
+        );
+    }
 
-        } catch (Exception e) {
-            e.printStackTrace();
-            showAlert(Alert.AlertType.ERROR, "Error", "Failed to load appointments: " + e.getMessage());
-        }
+    private BookingFilter currentFilter() {
+        return new BookingFilter(searchField.getText(), statusFilterBox.getValue(), dateFilterPicker.getValue());
     }
 
+    // Filtered in memory when every appointment fits in the window, otherwise by the database
     private void applyFilters() {
-        filteredList.clear();
-
-        String searchText = searchField.getText().toLowerCase().trim();
-        String statusFilter = statusFilterBox.getValue();
-        LocalDate dateFilter = dateFilterPicker.getValue();
-
-        for (Appointment appointment : appointmentList) {
-            boolean matchesSearch = searchText.isEmpty()
-                    || appointment.getPatientName().toLowerCase().contains(searchText)
-                    || appointment.getSpecialistName().toLowerCase().contains(searchText);
-
-            boolean matchesStatus = "ALL".equals(statusFilter)
-                    || appointment.getStatus().equals(statusFilter);
-
-            boolean matchesDate = dateFilter == null
-                    || appointment.getAppointmentDate().equals(dateFilter);
-
-            if (matchesSearch && matchesStatus && matchesDate) {
-                filteredList.add(appointment);
-            }
-        }
+        appointmentLoader.setFilter(currentFilter());
     }
 
     @FXML
@@ -252,31 +252,16 @@ public class StaffBookingController {
     }
 
     private void updateAppointment(Appointment appointment) {
-        try (Connection conn = DatabaseHelper.getConnection()) {
-            String query = """
-                UPDATE appointments SET 
-                appointment_date = ?, appointment_time = ?, status = ?, notes = ?
-                WHERE id = ?
-            """;
-
-            PreparedStatement pstmt = conn.prepareStatement(query);
-            pstmt.setString(1, appointment.getAppointmentDate().toString());
-            pstmt.setString(2, appointment.getTimeSlot());
-            pstmt.setString(3, appointment.getStatus());
-            pstmt.setString(4, appointment.getNotes());
-            pstmt.setInt(5, appointment.getAppointmentId());
-
-            int updated = pstmt.executeUpdate();
+        tasks.submitWrite(() -> bookingService.updateAppointment(appointment), updated -> {
             if (updated > 0) {
                 loadAppointments(); // Refresh the table
                 statusLabel.setText("Appointment updated successfully");
                 statusLabel.setStyle("-fx-text-fill: green;");
             }
-
-        } catch (Exception e) {
+        }, e -> {
             e.printStackTrace();
             showAlert(Alert.AlertType.ERROR, "Error", "Failed to update appointment: " + e.getMessage());
-        }
+        });
     }
 
     private void cancelAppointment(Appointment appointment) {
@@ -301,11 +286,8 @@ public class StaffBookingController {
     @FXML
     private void goBackToDashboard(javafx.event.ActionEvent event) {
         try {
-            Parent root = FXMLLoader.load(getClass().getResource("/views/Dashboard.fxml"));
             Stage stage = (Stage) ((Node) event.getSource()).getScene().getWindow();
-            stage.setScene(new Scene(root));
-            stage.setTitle("TeleHealth - Dashboard");
-            stage.show();
+            ViewRegistry.getInstance().show(stage, AppView.DASHBOARD, session);
         } catch (Exception e) {
             e.printStackTrace();
         }
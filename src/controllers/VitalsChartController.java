@@ -2,21 +2,88 @@ package controllers;
 
 import javafx.fxml.FXML;
 import javafx.scene.chart.*;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
 import javafx.stage.Stage;
 import javafx.scene.Node;
-import javafx.fxml.FXMLLoader;
+import javafx.collections.FXCollections;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.Label;
+import javafx.util.StringConverter;
+import navigation.AppView;
+import navigation.RefreshableView;
+import navigation.ViewRegistry;
+import session.SessionContext;
+import utils.TaskScope;
+import vitals.AnomalyEngine;
+import vitals.Metric;
+import vitals.MetricFinding;
+import vitals.VitalsAssessment;
+import vitals.VitalsSeries;
+import vitals.VitalsStore;
 
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
-public class VitalsChartController {
+public class VitalsChartController implements RefreshableView {
 
     @FXML private BarChart<String, Number> barChart;
+    @FXML private Label assessmentLabel;
+    @FXML private LineChart<Number, Number> trendChart;
+    @FXML private NumberAxis trendTimeAxis;
+    @FXML private ComboBox<Metric> trendMetricBox;
+    @FXML private ComboBox<String> trendRangeBox;
+    @FXML private Label trendStatusLabel;
 
+    private SessionContext session;
     private int userId;
-    private String userName;
-    private String userRole;
+
+    /** Points plotted per trend, whatever the time range. */
+    private static final int TREND_POINTS = 120;
+    private static final long HOUR_MS = 3_600_000L;
+    private static final long DAY_MS = 24 * HOUR_MS;
+    private static final Map<String, Long> TREND_RANGES = new LinkedHashMap<>();
+    static {
+        TREND_RANGES.put("Last 24 hours", DAY_MS);
+        TREND_RANGES.put("Last 7 days", 7 * DAY_MS);
+        TREND_RANGES.put("Last 30 days", 30 * DAY_MS);
+        TREND_RANGES.put("Last 12 months", 365 * DAY_MS);
+        TREND_RANGES.put("All time", 0L);
+    }
+
+    private final TaskScope tasks = new TaskScope();
+    private long trendSpan = 30 * DAY_MS;
+
+    // ================== TREND SETUP ==================
+    @FXML
+    public void initialize() {
+        tasks.bindTo(trendChart);
+        trendMetricBox.setItems(FXCollections.observableArrayList(Metric.values()));
+        trendMetricBox.setValue(Metric.PULSE);
+        trendRangeBox.setItems(FXCollections.observableArrayList(TREND_RANGES.keySet()));
+        trendRangeBox.setValue("Last 30 days");
+        trendMetricBox.valueProperty().addListener((obs, oldValue, newValue) -> loadTrend());
+        trendRangeBox.valueProperty().addListener((obs, oldValue, newValue) -> loadTrend());
+
+        trendChart.setCreateSymbols(false);
+        trendChart.setAnimated(false);
+        trendTimeAxis.setAutoRanging(false);
+        trendTimeAxis.setTickLabelFormatter(new StringConverter<>() {
+            @Override
+            public String toString(Number millis) {
+                DateTimeFormatter format = DateTimeFormatter.ofPattern(trendSpan <= DAY_MS ? "HH:mm" : "dd MMM yy");
+                return Instant.ofEpochMilli(millis.longValue()).atZone(ZoneId.systemDefault()).format(format);
+            }
+
+            @Override
+            public Number fromString(String text) {
+                return 0;
+            }
+        });
+    }
 
     public void setVitalsData(Map<String, String> vitals) {
         barChart.getData().clear();
@@ -60,25 +127,130 @@ public class VitalsChartController {
         } catch (NumberFormatException e) { e.printStackTrace(); }
     }
 
-    public void setUserInfo(int id, String name, String role) {
-        this.userId = id;
-        this.userName = name;
-        this.userRole = role;
+    @Override
+    public void refresh(SessionContext session) {
+        this.session = session;
+        this.userId = session.userId();
+        if (session.vitals().isEmpty()) {
+            barChart.getData().clear();
+        } else {
+            setVitalsData(session.vitals());
+        }
+        loadAssessment();
+        loadTrend();
+    }
+
+    // ================== ASSESSMENT ==================
+    /** Show the anomaly engine's findings for the latest reading and the patient's usual values. */
+    private void loadAssessment() {
+        if (userId == 0) return;
+        assessmentLabel.setText("Checking your latest reading...");
+        tasks.submit(() -> AnomalyEngine.getInstance().assessment(userId), this::showAssessment, e -> {
+            e.printStackTrace();
+            assessmentLabel.setText("Unable to check your latest reading.");
+        });
+    }
+
+    private void showAssessment(VitalsAssessment assessment) {
+        if (assessment == null) {
+            assessmentLabel.setText("No vitals recorded yet.");
+            return;
+        }
+        if (!assessment.hasAlerts()) {
+            assessmentLabel.setText("✅ Latest reading is within normal limits and your usual range.");
+        } else {
+            List<String> lines = new ArrayList<>();
+            for (MetricFinding finding : assessment.alerts()) {
+                lines.add(finding.describe());
+            }
+            assessmentLabel.setText((assessment.isCritical() ? "🚨 " : "⚠️ ") + String.join("\n", lines));
+        }
+        assessmentLabel.setStyle(assessment.isCritical() ? "-fx-text-fill: #d63031; -fx-font-weight: bold;"
+                : "-fx-text-fill: #2d3436;");
+
+        XYChart.Series<String, Number> usual = new XYChart.Series<>();
+        usual.setName("Your usual");
+        addUsual(usual, "Pulse", assessment.finding(Metric.PULSE));
+        addUsual(usual, "Temp", assessment.finding(Metric.TEMPERATURE));
+        addUsual(usual, "Resp", assessment.finding(Metric.RESPIRATION));
+        addUsual(usual, "Oxygen", assessment.finding(Metric.OXYGEN));
+        if (!usual.getData().isEmpty()) {
+            barChart.getData().add(usual);
+        }
+    }
+
+    private void addUsual(XYChart.Series<String, Number> usual, String category, MetricFinding finding) {
+        if (finding != null && !Double.isNaN(finding.baseline())) {
+            usual.getData().add(new XYChart.Data<>(category, finding.baseline()));
+        }
+    }
+
+    // ================== TREND ==================
+    /**
+     * Plot min/avg/max of the selected metric over the selected range,
+     * downsampled in memory to at most TREND_POINTS buckets.
+     */
+    private void loadTrend() {
+        Metric metric = trendMetricBox.getValue();
+        Long range = TREND_RANGES.get(trendRangeBox.getValue());
+        if (userId == 0 || metric == null || range == null) return;
+
+        trendStatusLabel.setText("Loading trend...");
+        tasks.submit(() -> {
+            VitalsSeries series = VitalsStore.getInstance().series(userId);
+            long to = Math.max(System.currentTimeMillis(), series.lastTimestamp() + 1);
+            long from = to - (range > 0 ? range : HOUR_MS);
+            if (range == 0 && series.size() > 0) {
+                from = Math.min(series.firstTimestamp(), from); // all time: start at the first reading
+            }
+            return new Trend(series.downsample(metric, from, to, TREND_POINTS), from, to, series.count(from, to));
+        }, this::showTrend, e -> {
+            e.printStackTrace();
+            trendStatusLabel.setText("Unable to load vitals history.");
+        });
+    }
+
+    private record Trend(VitalsSeries.Downsampled points, long from, long to, int readings) {
+    }
+
+    private void showTrend(Trend trend) {
+        VitalsSeries.Downsampled points = trend.points();
+        XYChart.Series<Number, Number> avg = new XYChart.Series<>();
+        avg.setName("Average");
+        XYChart.Series<Number, Number> min = new XYChart.Series<>();
+        min.setName("Min");
+        XYChart.Series<Number, Number> max = new XYChart.Series<>();
+        max.setName("Max");
+        for (int i = 0; i < points.size(); i++) {
+            long t = points.bucketStart()[i];
+            avg.getData().add(new XYChart.Data<>(t, points.avg()[i]));
+            min.getData().add(new XYChart.Data<>(t, points.min()[i]));
+            max.getData().add(new XYChart.Data<>(t, points.max()[i]));
+        }
+
+        trendSpan = trend.to() - trend.from();
+        trendTimeAxis.setLowerBound(trend.from());
+        trendTimeAxis.setUpperBound(trend.to());
+        trendTimeAxis.setTickUnit(Math.max(1, trendSpan / 6.0));
+        trendChart.getData().setAll(List.of(avg, min, max));
+
+        if (!Float.isNaN(points.metric().getNormal())) {
+            XYChart.Series<Number, Number> normal = new XYChart.Series<>();
+            normal.setName("Normal");
+            normal.getData().add(new XYChart.Data<>(trend.from(), points.metric().getNormal()));
+            normal.getData().add(new XYChart.Data<>(trend.to(), points.metric().getNormal()));
+            trendChart.getData().add(normal);
+        }
+        trendChart.getYAxis().setLabel(points.metric().getLabel() + " (" + points.metric().getUnit() + ")");
+        trendStatusLabel.setText(trend.readings() == 0 ? "No readings in this period."
+                : trend.readings() + " readings, " + points.size() + " points plotted");
     }
 
     @FXML
     private void goBackToDashboard(javafx.event.ActionEvent event) {
         try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/views/Dashboard.fxml"));
-            Parent root = loader.load();
-
-            DashboardController controller = loader.getController();
-            controller.setUserInfo(userId, userName, userRole);
-
             Stage stage = (Stage) ((Node) event.getSource()).getScene().getWindow();
-            stage.setScene(new Scene(root));
-            stage.setTitle("TeleHealth - Dashboard");
-            stage.show();
+            ViewRegistry.getInstance().show(stage, AppView.DASHBOARD, session);
         } catch (Exception e) { e.printStackTrace(); }
     }
 }
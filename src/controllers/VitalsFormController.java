@@ -2,26 +2,26 @@ package controllers;
 
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
-import javafx.scene.Scene;
 import javafx.stage.Stage;
-import javafx.scene.Parent;
-import javafx.fxml.FXMLLoader;
 import javafx.scene.Node;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.beans.property.SimpleStringProperty;
 
-import database.DatabaseHelper;
-
-import java.math.BigDecimal;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
-import java.util.HashMap;
+import navigation.AppView;
+import navigation.RefreshableView;
+import navigation.ViewRegistry;
+import services.VitalsService;
+import session.SessionContext;
+import session.SessionStore;
+import utils.TaskScope;
+import vitals.VitalsSubmission;
+import vitals.VitalsValidator;
+
+import java.util.LinkedHashMap;
 import java.util.Map;
 
-public class VitalsFormController {
+public class VitalsFormController implements RefreshableView {
 
     @FXML private TextField pulseField;
     @FXML private TextField temperatureField;
@@ -31,35 +31,45 @@ public class VitalsFormController {
     @FXML private TextField heightField;
     @FXML private TextField oxygenField;
 
-    @FXML private TableView<VitalRecord> vitalsTable;
-    @FXML private TableColumn<VitalRecord, String> colPulse;
-    @FXML private TableColumn<VitalRecord, String> colTemp;
-    @FXML private TableColumn<VitalRecord, String> colResp;
-    @FXML private TableColumn<VitalRecord, String> colBP;
-    @FXML private TableColumn<VitalRecord, String> colWeight;
-    @FXML private TableColumn<VitalRecord, String> colHeight;
-    @FXML private TableColumn<VitalRecord, String> colOxygen;
-    @FXML private TableColumn<VitalRecord, String> colRecordedAt;
-
+    @FXML private TableView<VitalsService.HistoryEntry> vitalsTable;
+    @FXML private TableColumn<VitalsService.HistoryEntry, String> colPulse;
+    @FXML private TableColumn<VitalsService.HistoryEntry, String> colTemp;
+    @FXML private TableColumn<VitalsService.HistoryEntry, String> colResp;
+    @FXML private TableColumn<VitalsService.HistoryEntry, String> colBP;
+    @FXML private TableColumn<VitalsService.HistoryEntry, String> colWeight;
+    @FXML private TableColumn<VitalsService.HistoryEntry, String> colHeight;
+    @FXML private TableColumn<VitalsService.HistoryEntry, String> colOxygen;
+    @FXML private TableColumn<VitalsService.HistoryEntry, String> colRecordedAt;
+
+    private SessionContext session;
     private int userId;
-    private String username;
-    private String userRole;
 
-    private Map<String, String> vitalData = new HashMap<>();
-    private ObservableList<VitalRecord> vitalsList = FXCollections.observableArrayList();
+    private ObservableList<VitalsService.HistoryEntry> vitalsList = FXCollections.observableArrayList();
+    private final TaskScope tasks = new TaskScope();
+    private final VitalsService vitalsService = new VitalsService();
+
+    /** Rows shown in the history table; longer histories are shown as trends on the chart. */
+    private static final int HISTORY_ROWS = 100;
+
+    @FXML
+    public void initialize() {
+        tasks.bindTo(vitalsTable);
+    }
 
-    // ================== SET USER INFO ==================
-    public void setUserInfo(int id, String name, String role) {
-        this.userId = id;
-        this.username = name;
-        this.userRole = role;
+    // ================== REFRESH ==================
+    @Override
+    public void refresh(SessionContext session) {
+        this.session = session;
+        this.userId = session.userId();
 
+        clearForm();
         loadPreviousVitals();
     }
 
     // ================== HANDLE SEND ==================
     @FXML
     private void handleSend(javafx.event.ActionEvent event) {
+        Map<String, String> vitalData = new LinkedHashMap<>();
         vitalData.put("Pulse", pulseField.getText());
         vitalData.put("Temperature", temperatureField.getText());
         vitalData.put("Respiration", respirationField.getText());
@@ -68,45 +78,47 @@ public class VitalsFormController {
         vitalData.put("Height", heightField.getText());
         vitalData.put("Oxygen", oxygenField.getText());
 
-        String insertSQL = """
-            INSERT INTO vitals_records
-            (user_id, pulse, temperature, respiration, blood_pressure, weight, height, oxygen)
-            VALUES (?, ?, ?, ?, ?, ?, ?, ?)
-        """;
-
-        try (Connection conn = DatabaseHelper.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(insertSQL)) {
-
-            pstmt.setInt(1, userId);
-            pstmt.setInt(2, Integer.parseInt(pulseField.getText()));
-            pstmt.setBigDecimal(3, new BigDecimal(temperatureField.getText()));
-            pstmt.setInt(4, Integer.parseInt(respirationField.getText()));
-            pstmt.setString(5, bpField.getText());
-            pstmt.setBigDecimal(6, new BigDecimal(weightField.getText()));
-            pstmt.setBigDecimal(7, new BigDecimal(heightField.getText()));
-            pstmt.setBigDecimal(8, new BigDecimal(oxygenField.getText()));
-
-            pstmt.executeUpdate();
-        } catch (SQLException e) {
-            e.printStackTrace();
+        VitalsSubmission submission;
+        try {
+            submission = VitalsValidator.validate(userId, pulseField.getText(), temperatureField.getText(),
+                    respirationField.getText(), bpField.getText(), weightField.getText(), heightField.getText(),
+                    oxygenField.getText(), System.currentTimeMillis(), true);
+        } catch (IllegalArgumentException e) {
+            showAlert(Alert.AlertType.WARNING, "Invalid Vitals", e.getMessage());
+            return;
         }
+        Stage stage = (Stage) ((Node) event.getSource()).getScene().getWindow();
+
+        // Record the readings and navigate only once the insert has finished so the chart screen never
+        // races the write, and only if the user is still on this screen; a failed save stays here with the readings
+        tasks.runWrite(() -> vitalsService.submit(submission), () -> {
+            // The chart reads this snapshot; the store keeps it if the session has not expired meanwhile
+            SessionContext updated = SessionStore.getInstance().update(session.sessionId(), s -> s.withVitals(vitalData));
+            session = updated != null ? updated : session.withVitals(vitalData);
+            if (stage.getScene() == pulseField.getScene()) {
+                showVitalsChart(stage);
+            } else {
+                clearForm();
+            }
+        }, e -> {
+            e.printStackTrace();
+            showAlert(Alert.AlertType.ERROR, "Save Failed", "Your vitals were not saved: " + e.getMessage()
+                    + "\nPlease try again.");
+        });
+    }
 
-        loadPreviousVitals();
+    private void showAlert(Alert.AlertType type, String title, String message) {
+        Alert alert = new Alert(type);
+        alert.setTitle(title);
+        alert.setHeaderText(null);
+        alert.setContentText(message);
+        alert.showAndWait();
+    }
 
-        // Navigate to VitalsChart with user info
+    private void showVitalsChart(Stage stage) {
+        // Navigate to VitalsChart with the session holding the readings just sent
         try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/views/VitalsChart.fxml"));
-            Parent root = loader.load();
-
-            VitalsChartController controller = loader.getController();
-            controller.setVitalsData(vitalData);
-            controller.setUserInfo(userId, username, userRole);
-
-            Stage stage = (Stage) ((Node) event.getSource()).getScene().getWindow();
-            stage.setScene(new Scene(root));
-            stage.setTitle("Vitals Chart");
-            stage.show();
-
+            ViewRegistry.getInstance().show(stage, AppView.VITALS_CHART, session);
         } catch (Exception e) { e.printStackTrace(); }
 
         clearForm();
@@ -126,56 +138,18 @@ public class VitalsFormController {
     @FXML
     private void goBackToDashboard(javafx.event.ActionEvent event) {
         try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/views/Dashboard.fxml"));
-            Parent root = loader.load();
-
-            DashboardController controller = loader.getController();
-            controller.setUserInfo(userId, username, userRole);
-
             Stage stage = (Stage) ((Node) event.getSource()).getScene().getWindow();
-            stage.setScene(new Scene(root));
-            stage.setTitle("TeleHealth System - Dashboard");
-            stage.show();
-
+            ViewRegistry.getInstance().show(stage, AppView.DASHBOARD, session);
         } catch (Exception e) { e.printStackTrace(); }
     }
 
     // ================== LOAD PREVIOUS VITALS ==================
     private void loadPreviousVitals() {
-        vitalsList.clear();
-
-        String query = """
-            SELECT pulse, temperature, respiration, blood_pressure, weight, height, oxygen, recorded_at
-            FROM vitals_records
-            WHERE user_id = ?
-            ORDER BY recorded_at DESC
-        """;
-
-        try (Connection conn = DatabaseHelper.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(query)) {
-
-            pstmt.setInt(1, userId);
-            ResultSet rs = pstmt.executeQuery();
-
-            while (rs.next()) {
-                vitalsList.add(new VitalRecord(
-                        rs.getString("pulse"),
-                        rs.getString("temperature"),
-                        rs.getString("respiration"),
-                        rs.getString("blood_pressure"),
-                        rs.getString("weight"),
-                        rs.getString("height"),
-                        rs.getString("oxygen"),
-                        rs.getString("recorded_at")
-                ));
-            }
-
+        tasks.submit(() -> vitalsService.history(userId, HISTORY_ROWS), records -> {
+            vitalsList.setAll(records);
             setupTable();
             vitalsTable.setItems(vitalsList);
-
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+        }, Throwable::printStackTrace);
     }
 
     // ================== SETUP TABLE ==================
@@ -189,37 +163,4 @@ public class VitalsFormController {
         colOxygen.setCellValueFactory(data -> new SimpleStringProperty(data.getValue().oxygen()));
         colRecordedAt.setCellValueFactory(data -> new SimpleStringProperty(data.getValue().recordedAt()));
     }
-
-    // ================== INNER CLASS FOR TABLE RECORD ==================
-    public static class VitalRecord {
-        private final String pulse;
-        private final String temperature;
-        private final String respiration;
-        private final String bloodPressure;
-        private final String weight;
-        private final String height;
-        private final String oxygen;
-        private final String recordedAt;
-
-        public VitalRecord(String pulse, String temperature, String respiration, String bloodPressure,
-                           String weight, String height, String oxygen, String recordedAt) {
-            this.pulse = pulse;
-            this.temperature = temperature;
-            this.respiration = respiration;
-            this.bloodPressure = bloodPressure;
-            this.weight = weight;
-            this.height = height;
-            this.oxygen = oxygen;
-            this.recordedAt = recordedAt;
-        }
-
-        public String pulse() { return pulse; }
-        public String temperature() { return temperature; }
-        public String respiration() { return respiration; }
-        public String bloodPressure() { return bloodPressure; }
-        public String weight() { return weight; }
-        public String height() { return height; }
-        public String oxygen() { return oxygen; }
-        public String recordedAt() { return recordedAt; }
-    }
 }
@@ -0,0 +1,246 @@
+package database;
+
+import java.io.Serializable;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * In-memory index of booked doctor time slots, used to offer only free slots
+ * and to reject double bookings before they reach the database.
+ *
+ * Each doctor/day is a 64-bit bitmap of half-hour slots (bit n = n * 30
+ * minutes after midnight), rebuilt from the non-cancelled rows of
+ * {@code bookings} from today onwards. Reservations flip bits with a CAS, so
+ * two threads can never both win the same slot in this process. The
+ * uq_bookings_doctor_slot unique key remains the final guard across processes;
+ * a duplicate-key error is reported as a {@link SlotConflictException}.
+ *
+ * The index is rebuilt after the TTL (-Dtelehealth.availability.ttlMs,
+ * default 60 seconds) or after {@link #invalidate()}.
+ */
+public class AvailabilityIndex {
+
+    public static final int SLOT_MINUTES = 30;
+    public static final int SLOTS_PER_DAY = 24 * 60 / SLOT_MINUTES;
+
+    /** MySQL ER_DUP_ENTRY */
+    private static final int DUPLICATE_KEY = 1062;
+
+    static final String LOAD_QUERY = "SELECT doctor_id, appointment_date, appointment_time FROM bookings "
+            + "WHERE status <> 'Cancelled' AND appointment_date >= ?";
+
+    private static final AvailabilityIndex INSTANCE = new AvailabilityIndex(
+            DatabaseHelper::getConnection, Long.getLong("telehealth.availability.ttlMs", 60_000L), System::currentTimeMillis);
+
+    /** One bookable doctor/date/time; serializable so {@link SlotConflictException} can carry it. */
+    public record Slot(int doctorId, LocalDate date, LocalTime time) implements Serializable {
+    }
+
+    /** A write that occupies or frees slots, e.g. an INSERT or UPDATE; returns rows affected. */
+    @FunctionalInterface
+    public interface SlotWrite {
+        int run() throws SQLException;
+    }
+
+    /** Bitmaps keyed by {@link #dayKey}; replaced as a whole on rebuild. */
+    private record Days(Map<Long, AtomicLong> bitmaps, long loadedAt) {
+    }
+
+    private final ConnectionPool.ConnectionFactory connections;
+    private final long ttlMs;
+    private final LongSupplier clock;
+    private final Object loadLock = new Object();
+    private volatile Days days;
+
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+
+    public AvailabilityIndex(ConnectionPool.ConnectionFactory connections, long ttlMs, LongSupplier clock) {
+        this.connections = connections;
+        this.ttlMs = ttlMs;
+        this.clock = clock;
+    }
+
+    public static AvailabilityIndex getInstance() {
+        return INSTANCE;
+    }
+
+    // ================== QUERIES ==================
+    public boolean isFree(Slot slot) throws SQLException {
+        long bit = bit(slot.time());
+        return (bitmap(current(), slot.doctorId(), slot.date()) & bit) == 0;
+    }
+
+    /**
+     * The candidates that are still free for this doctor on this date, in the
+     * order given.
+     */
+    public List<LocalTime> freeSlots(int doctorId, LocalDate date, List<LocalTime> candidates) throws SQLException {
+        long booked = bitmap(current(), doctorId, date);
+        List<LocalTime> free = new ArrayList<>();
+        for (LocalTime time : candidates) {
+            if ((booked & bit(time)) == 0) {
+                free.add(time);
+            }
+        }
+        return free;
+    }
+
+    /** Free candidates for every date from..to inclusive. */
+    public Map<LocalDate, List<LocalTime>> freeSlots(int doctorId, LocalDate from, LocalDate to,
+                                                     List<LocalTime> candidates) throws SQLException {
+        Map<LocalDate, List<LocalTime>> free = new LinkedHashMap<>();
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            free.put(date, freeSlots(doctorId, date, candidates));
+        }
+        return free;
+    }
+
+    // ================== BOOKING ==================
+    /**
+     * Claim the slot in memory, then run the write. The claim is undone if the
+     * write fails for any reason other than the slot already being taken.
+     *
+     * @throws SlotConflictException if the slot is taken, in memory or in the database
+     */
+    public int book(Slot slot, SlotWrite write) throws SQLException {
+        return move(null, slot, write);
+    }
+
+    /**
+     * Move a booking between slots, e.g. when it is edited. Either slot may be
+     * null for a cancelled booking, which holds none.
+     */
+    public int move(Slot from, Slot to, SlotWrite write) throws SQLException {
+        boolean sameSlot = from != null && from.equals(to);
+        boolean claimed = false;
+        if (to != null && !sameSlot) {
+            if (!tryReserve(to)) {
+                conflicts.increment();
+                throw new SlotConflictException(to);
+            }
+            claimed = true;
+        }
+
+        int rows;
+        try {
+            rows = write.run();
+        } catch (SQLException e) {
+            if (claimed && isDuplicateKey(e)) {
+                conflicts.increment(); // booked elsewhere; keep the bit so it is not offered again
+                throw new SlotConflictException(to, e);
+            }
+            if (claimed) release(to);
+            throw e;
+        } catch (RuntimeException e) {
+            if (claimed) release(to);
+            throw e;
+        }
+
+        if (rows == 0) {
+            if (claimed) release(to);
+        } else if (from != null && !sameSlot) {
+            release(from);
+        }
+        return rows;
+    }
+
+    /** Free a slot after its booking was cancelled or deleted. */
+    public void release(Slot slot) {
+        Days current = days;
+        if (current == null) return;
+        AtomicLong bitmap = current.bitmaps().get(dayKey(slot.doctorId(), slot.date()));
+        if (bitmap != null) {
+            long bit = bit(slot.time());
+            bitmap.getAndUpdate(bits -> bits & ~bit);
+        }
+    }
+
+    boolean tryReserve(Slot slot) throws SQLException {
+        AtomicLong bitmap = current().bitmaps().computeIfAbsent(dayKey(slot.doctorId(), slot.date()), k -> new AtomicLong());
+        long bit = bit(slot.time());
+        long before = bitmap.getAndUpdate(bits -> bits | bit);
+        return (before & bit) == 0;
+    }
+
+    public static boolean isDuplicateKey(SQLException e) {
+        return e.getErrorCode() == DUPLICATE_KEY;
+    }
+
+    // ================== LIFECYCLE ==================
+    /** Drop the index; the next call rebuilds it from the database. */
+    public void invalidate() {
+        days = null;
+    }
+
+    private Days current() throws SQLException {
+        Days current = days;
+        if (isFresh(current)) {
+            return current;
+        }
+        synchronized (loadLock) {
+            current = days;
+            if (!isFresh(current)) {
+                current = load();
+                days = current;
+            }
+            return current;
+        }
+    }
+
+    private boolean isFresh(Days current) {
+        return current != null && clock.getAsLong() - current.loadedAt() < ttlMs;
+    }
+
+    private Days load() throws SQLException {
+        long now = clock.getAsLong();
+        LocalDate today = java.time.Instant.ofEpochMilli(now).atZone(java.time.ZoneId.systemDefault()).toLocalDate();
+        Map<Long, AtomicLong> bitmaps = new ConcurrentHashMap<>();
+
+        try (Connection conn = connections.create(); PreparedStatement ps = conn.prepareStatement(LOAD_QUERY)) {
+            ps.setDate(1, java.sql.Date.valueOf(today));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    LocalDate date = LocalDate.parse(rs.getString("appointment_date"));
+                    LocalTime time = LocalTime.parse(rs.getString("appointment_time"));
+                    long bit = bit(time);
+                    bitmaps.computeIfAbsent(dayKey(rs.getInt("doctor_id"), date), k -> new AtomicLong())
+                            .getAndUpdate(bits -> bits | bit);
+                }
+            }
+        }
+        loads.increment();
+        return new Days(bitmaps, now);
+    }
+
+    // ================== ENCODING ==================
+    private static long bitmap(Days current, int doctorId, LocalDate date) {
+        AtomicLong bitmap = current.bitmaps().get(dayKey(doctorId, date));
+        return bitmap == null ? 0L : bitmap.get();
+    }
+
+    static long dayKey(int doctorId, LocalDate date) {
+        return ((long) doctorId << 32) | (date.toEpochDay() & 0xFFFFFFFFL);
+    }
+
+    /** Bit of the half-hour slot containing this time. */
+    static long bit(LocalTime time) {
+        return 1L << (time.toSecondOfDay() / 60 / SLOT_MINUTES);
+    }
+
+    // ================== METRICS ==================
+    public long getLoadCount() { return loads.sum(); }
+    public long getConflictCount() { return conflicts.sum(); }
+}
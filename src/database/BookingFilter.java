@@ -0,0 +1,42 @@
+package database;
+
+import models.Appointment;
+import utils.SearchText;
+
+import java.time.LocalDate;
+
+/**
+ * Search/status/date filter of the booking screens, pushed down into SQL by
+ * {@link KeysetPager}. A null or blank value means "no filter"; the status
+ * values "All"/"ALL" also mean no filter.
+ */
+public record BookingFilter(String search, String status, LocalDate date) {
+
+    public static final BookingFilter NONE = new BookingFilter(null, null, null);
+
+    public boolean hasSearch() {
+        return search != null && !search.isBlank();
+    }
+
+    public boolean hasStatus() {
+        return status != null && !status.isBlank() && !"ALL".equalsIgnoreCase(status);
+    }
+
+    public boolean hasDate() {
+        return date != null;
+    }
+
+    /**
+     * In-memory equivalent of the SQL filter: case-insensitive substring
+     * search on patient/specialist name, case-insensitive status, exact date.
+     */
+    public boolean matches(Appointment appointment) {
+        if (hasSearch() && !appointment.getSearchKey().contains(SearchText.normalize(search))) {
+            return false;
+        }
+        if (hasStatus() && !status.equalsIgnoreCase(appointment.getStatus())) {
+            return false;
+        }
+        return !hasDate() || date.equals(appointment.getAppointmentDate());
+    }
+}
@@ -0,0 +1,404 @@
+package database;
+
+import utils.LatencyHistogram;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded JDBC connection pool used behind {@link DatabaseHelper#getConnection()}.
+ *
+ * Connections handed out are proxies: calling close() returns the physical
+ * connection to the pool, closes any statements the caller forgot about and
+ * rolls back uncommitted work. A background housekeeper evicts idle and
+ * expired connections, keeps at least minSize open and reports connections
+ * held longer than the leak threshold together with the stack that borrowed them.
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    /** Opens a new physical connection. */
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        Connection create() throws SQLException;
+    }
+
+    private final PoolConfig config;
+    private final ConnectionFactory factory;
+
+    private final LinkedBlockingDeque<PooledEntry> idle = new LinkedBlockingDeque<>();
+    private final Set<PooledEntry> inUse = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger total = new AtomicInteger();
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    private final LatencyHistogram borrowLatency = new LatencyHistogram();
+    private final LatencyHistogram waitTime = new LatencyHistogram();
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder createdCount = new LongAdder();
+    private final LongAdder destroyedCount = new LongAdder();
+    private final LongAdder timeoutCount = new LongAdder();
+    private final LongAdder validationFailures = new LongAdder();
+    private final LongAdder leakCount = new LongAdder();
+
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    public ConnectionPool(PoolConfig config, ConnectionFactory factory) {
+        config.validate();
+        this.config = config;
+        this.factory = factory;
+
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "telehealth-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        this.housekeeper = executor;
+
+        long interval = config.getHousekeepingIntervalMs();
+        housekeeper.scheduleWithFixedDelay(this::housekeep, interval, interval, TimeUnit.MILLISECONDS);
+        housekeeper.execute(this::fillToMinimum);
+    }
+
+    // ================== BORROW ==================
+    public Connection borrow() throws SQLException {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(config.getConnectionTimeoutMs());
+        waiting.incrementAndGet();
+        try {
+            while (true) {
+                if (closed) {
+                    throw new SQLException("Connection pool has been shut down.");
+                }
+
+                PooledEntry entry = idle.pollFirst();
+                if (entry == null) {
+                    entry = tryCreate();
+                }
+                if (entry == null) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        timeoutCount.increment();
+                        throw new SQLTransientConnectionException(String.format(
+                                "Timed out after %d ms waiting for a database connection (active=%d, idle=%d, max=%d).",
+                                config.getConnectionTimeoutMs(), inUse.size(), idle.size(), config.getMaxSize()));
+                    }
+                    long waitStart = System.nanoTime();
+                    try {
+                        entry = idle.pollFirst(remaining, TimeUnit.NANOSECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("Interrupted while waiting for a database connection.", e);
+                    }
+                    waitTime.recordSince(waitStart);
+                    if (entry == null) {
+                        continue;
+                    }
+                }
+
+                if (!isUsable(entry)) {
+                    destroy(entry);
+                    continue;
+                }
+
+                entry.borrowedAt = System.currentTimeMillis();
+                entry.leakReported = false;
+                entry.borrowTrace = config.getLeakDetectionThresholdMs() > 0
+                        ? new Exception("Connection borrowed by thread " + Thread.currentThread().getName())
+                        : null;
+                inUse.add(entry);
+                borrowCount.increment();
+                borrowLatency.recordSince(start);
+                return entry.lease();
+            }
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    private PooledEntry tryCreate() throws SQLException {
+        while (true) {
+            int current = total.get();
+            if (current >= config.getMaxSize()) {
+                return null;
+            }
+            if (total.compareAndSet(current, current + 1)) {
+                break;
+            }
+        }
+        try {
+            Connection physical = factory.create();
+            createdCount.increment();
+            return new PooledEntry(physical);
+        } catch (SQLException | RuntimeException e) {
+            total.decrementAndGet();
+            throw e;
+        }
+    }
+
+    private boolean isUsable(PooledEntry entry) {
+        long now = System.currentTimeMillis();
+        if (now - entry.createdAt >= config.getMaxLifetimeMs()) {
+            return false;
+        }
+        if (now - entry.lastUsed < config.getValidationIntervalMs()) {
+            return true;
+        }
+        try {
+            int seconds = (int) Math.max(1, config.getValidationTimeoutMs() / 1000);
+            if (entry.physical.isValid(seconds)) {
+                return true;
+            }
+        } catch (SQLException ignored) {
+        }
+        validationFailures.increment();
+        return false;
+    }
+
+    // ================== RETURN ==================
+    private void release(PooledEntry entry, List<Statement> statements) {
+        for (Statement statement : statements) {
+            try {
+                statement.close();
+            } catch (SQLException ignored) {
+            }
+        }
+
+        try {
+            if (!entry.broken && !entry.physical.getAutoCommit()) {
+                entry.physical.rollback();
+                entry.physical.setAutoCommit(true);
+            }
+            entry.physical.clearWarnings();
+        } catch (SQLException e) {
+            entry.broken = true;
+        }
+
+        inUse.remove(entry);
+        long now = System.currentTimeMillis();
+        if (entry.leakReported) {
+            System.err.println("Previously reported leaked connection returned after "
+                    + (now - entry.borrowedAt) + " ms.");
+        }
+        entry.borrowTrace = null;
+
+        if (closed || entry.broken || now - entry.createdAt >= config.getMaxLifetimeMs()) {
+            destroy(entry);
+        } else {
+            entry.lastUsed = now;
+            idle.offerFirst(entry);
+        }
+    }
+
+    private void destroy(PooledEntry entry) {
+        total.decrementAndGet();
+        destroyedCount.increment();
+        try {
+            entry.physical.close();
+        } catch (SQLException ignored) {
+        }
+        if (!closed && waiting.get() > 0) {
+            try {
+                housekeeper.execute(this::replenishForWaiters);
+            } catch (RejectedExecutionException ignored) {
+                // pool is shutting down
+            }
+        }
+    }
+
+    // ================== HOUSEKEEPING ==================
+    private void housekeep() {
+        try {
+            detectLeaks();
+            evictIdle();
+            fillToMinimum();
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void detectLeaks() {
+        long threshold = config.getLeakDetectionThresholdMs();
+        if (threshold <= 0) return;
+
+        long now = System.currentTimeMillis();
+        for (PooledEntry entry : inUse) {
+            Exception trace = entry.borrowTrace;
+            if (!entry.leakReported && trace != null && now - entry.borrowedAt > threshold) {
+                entry.leakReported = true;
+                leakCount.increment();
+                System.err.println("Connection leak detected: connection held for "
+                        + (now - entry.borrowedAt) + " ms without being closed. Borrowed at:");
+                trace.printStackTrace();
+            }
+        }
+    }
+
+    private void evictIdle() {
+        long now = System.currentTimeMillis();
+        Iterator<PooledEntry> it = idle.descendingIterator(); // oldest-used first
+        while (it.hasNext()) {
+            PooledEntry entry = it.next();
+            boolean expired = now - entry.createdAt >= config.getMaxLifetimeMs();
+            boolean idleTooLong = now - entry.lastUsed >= config.getIdleTimeoutMs()
+                    && total.get() > config.getMinSize();
+            if ((expired || idleTooLong) && idle.remove(entry)) {
+                destroy(entry);
+            }
+        }
+    }
+
+    private void fillToMinimum() {
+        while (!closed && total.get() < config.getMinSize()) {
+            if (!addIdleConnection()) return;
+        }
+    }
+
+    private void replenishForWaiters() {
+        if (!closed && waiting.get() > 0 && idle.isEmpty()) {
+            addIdleConnection();
+        }
+    }
+
+    private boolean addIdleConnection() {
+        try {
+            PooledEntry entry = tryCreate();
+            if (entry == null) return false;
+            idle.offerLast(entry);
+            return true;
+        } catch (SQLException e) {
+            System.err.println("Connection pool could not open a connection: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static boolean isStatementClosed(Statement statement) {
+        try {
+            return statement.isClosed();
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+
+    // ================== METRICS ==================
+    public PoolMetrics getMetrics() {
+        return new PoolMetrics(inUse.size(), idle.size(), total.get(), waiting.get(),
+                config.getMaxSize(), borrowCount.sum(), createdCount.sum(), destroyedCount.sum(),
+                timeoutCount.sum(), validationFailures.sum(), leakCount.sum(),
+                borrowLatency, waitTime);
+    }
+
+    public PoolConfig getConfig() { return config; }
+
+    // ================== SHUTDOWN ==================
+    @Override
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledEntry entry;
+        while ((entry = idle.pollFirst()) != null) {
+            destroy(entry);
+        }
+        // Connections still in use are closed when their borrowers return them.
+    }
+
+    // ================== POOLED CONNECTION ==================
+    private final class PooledEntry {
+        final Connection physical;
+        final long createdAt = System.currentTimeMillis();
+        volatile long lastUsed = createdAt;
+        volatile long borrowedAt;
+        volatile Exception borrowTrace;
+        volatile boolean leakReported;
+        volatile boolean broken;
+
+        PooledEntry(Connection physical) {
+            this.physical = physical;
+        }
+
+        Connection lease() {
+            return (Connection) Proxy.newProxyInstance(
+                    ConnectionPool.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new Lease(this));
+        }
+    }
+
+    /** One borrow of a pooled connection; becomes unusable once closed. */
+    private final class Lease implements InvocationHandler {
+        private final PooledEntry entry;
+        private final List<Statement> statements = new ArrayList<>();
+        private boolean returned;
+
+        Lease(PooledEntry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public synchronized Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        release(entry, statements);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || entry.physical.isClosed();
+                case "isValid":
+                    if (returned) return false;
+                    break;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + entry.physical + (returned ? ", returned" : "") + "]";
+                default:
+                    break;
+            }
+
+            if (returned) {
+                throw new SQLException("Connection is closed (already returned to the pool).");
+            }
+
+            try {
+                Object result = method.invoke(entry.physical, args);
+                if (result instanceof Statement) {
+                    if (statements.size() >= 64) {
+                        statements.removeIf(ConnectionPool::isStatementClosed);
+                    }
+                    statements.add((Statement) result);
+                }
+                return result;
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SQLException) {
+                    String state = ((SQLException) cause).getSQLState();
+                    if (state != null && state.startsWith("08")) {
+                        entry.broken = true; // connection-level failure, do not reuse
+                    }
+                }
+                throw cause;
+            }
+        }
+    }
+}
@@ -11,13 +11,67 @@ public class DatabaseHelper {
     private static final String USER = "root"; // using root as per your setup
     private static final String PASSWORD = "sobiha@09"; // replace with your real root password
 
+    private static volatile ConnectionPool pool;
+
+    /**
+     * Borrow a connection from the shared pool. Closing it (e.g. with
+     * try-with-resources) hands it back to the pool instead of disconnecting.
+     */
     public static Connection getConnection() throws SQLException {
+        return getPool().borrow();
+    }
+
+    /**
+     * Open a dedicated physical connection that bypasses the pool.
+     */
+    public static Connection openDirectConnection() throws SQLException {
+        return DriverManager.getConnection(URL, USER, PASSWORD);
+    }
+
+    /**
+     * Load the driver and open the first pooled connection ahead of the first
+     * query, e.g. while the login screen is showing.
+     */
+    public static void warmUp() throws SQLException {
+        try (Connection conn = getConnection()) {
+            conn.isValid(2);
+        }
+    }
+
+    public static PoolMetrics getPoolMetrics() throws SQLException {
+        return getPool().getMetrics();
+    }
+
+    /**
+     * Close all pooled connections, e.g. when the application exits.
+     */
+    public static synchronized void shutdown() {
+        if (pool != null) {
+            pool.close();
+            pool = null;
+        }
+    }
+
+    private static ConnectionPool getPool() throws SQLException {
+        ConnectionPool current = pool;
+        if (current == null) {
+            synchronized (DatabaseHelper.class) {
+                current = pool;
+                if (current == null) {
+                    loadDriver();
+                    current = new ConnectionPool(PoolConfig.fromSystemProperties(), DatabaseHelper::openDirectConnection);
+                    pool = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private static void loadDriver() throws SQLException {
         try {
             Class.forName("com.mysql.cj.jdbc.Driver"); // ensures driver is loaded
         } catch (ClassNotFoundException e) {
             throw new SQLException("MySQL JDBC driver not found on classpath.", e);
         }
-
-        return DriverManager.getConnection(URL, USER, PASSWORD);
     }
 }
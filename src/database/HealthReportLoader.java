@@ -0,0 +1,103 @@
+package database;
+
+import models.HealthReportData;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Loads everything a health report needs (patient, latest booking with its
+ * doctor, latest vitals, latest prescription refill) in a single query.
+ * Each "latest" row is picked by a LEFT JOIN LATERAL (MySQL 8.0.14+) so a
+ * patient with no rows in a table still produces one result row.
+ */
+public class HealthReportLoader {
+
+    static final String REPORT_QUERY = """
+        SELECT p.user_id, u.name AS patient_name,
+               b.booking_id, b.appointment_date, b.appointment_time, b.doctor_id, b.doctor_name,
+               v.vitals_id, v.pulse, v.temperature, v.respiration, v.blood_pressure, v.oxygen,
+               r.refill_id, r.medication_name, r.quantity, r.status AS refill_status
+        FROM (SELECT ? AS user_id) p
+        LEFT JOIN users u ON u.user_id = p.user_id
+        LEFT JOIN LATERAL (
+            SELECT bk.booking_id, bk.appointment_date, bk.appointment_time, bk.doctor_id, d.name AS doctor_name
+            FROM bookings bk
+            JOIN users d ON bk.doctor_id = d.user_id
+            WHERE bk.patient_id = p.user_id
+            ORDER BY bk.booking_id DESC
+            LIMIT 1
+        ) b ON TRUE
+        LEFT JOIN LATERAL (
+            SELECT vr.vitals_id, vr.pulse, vr.temperature, vr.respiration, vr.blood_pressure, vr.oxygen
+            FROM vitals_records vr
+            WHERE vr.user_id = p.user_id
+            ORDER BY vr.vitals_id DESC
+            LIMIT 1
+        ) v ON TRUE
+        LEFT JOIN LATERAL (
+            SELECT pr.refill_id, pr.medication_name, pr.quantity, pr.status
+            FROM prescription_refills pr
+            WHERE pr.user_id = p.user_id
+            ORDER BY pr.refill_id DESC
+            LIMIT 1
+        ) r ON TRUE
+        """;
+
+    /**
+     * Borrow a pooled connection and load the report data for one patient.
+     */
+    public HealthReportData load(int userId) throws SQLException {
+        try (Connection conn = DatabaseHelper.getConnection()) {
+            return load(conn, userId);
+        }
+    }
+
+    public HealthReportData load(Connection conn, int userId) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(REPORT_QUERY)) {
+            ps.setInt(1, userId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    return new HealthReportData(userId, null, null, null, null);
+                }
+                return map(userId, rs);
+            }
+        }
+    }
+
+    private HealthReportData map(int userId, ResultSet rs) throws SQLException {
+        HealthReportData.Booking booking = null;
+        int bookingId = rs.getInt("booking_id");
+        if (!rs.wasNull()) {
+            booking = new HealthReportData.Booking(bookingId,
+                    rs.getString("appointment_date"),
+                    rs.getString("appointment_time"),
+                    rs.getInt("doctor_id"),
+                    rs.getString("doctor_name"));
+        }
+
+        HealthReportData.Vitals vitals = null;
+        int vitalsId = rs.getInt("vitals_id");
+        if (!rs.wasNull()) {
+            vitals = new HealthReportData.Vitals(vitalsId,
+                    rs.getString("pulse"),
+                    rs.getString("temperature"),
+                    rs.getString("respiration"),
+                    rs.getString("blood_pressure"),
+                    rs.getString("oxygen"));
+        }
+
+        HealthReportData.Refill refill = null;
+        int refillId = rs.getInt("refill_id");
+        if (!rs.wasNull()) {
+            refill = new HealthReportData.Refill(refillId,
+                    rs.getString("medication_name"),
+                    rs.getInt("quantity"),
+                    rs.getString("refill_status"));
+        }
+
+        return new HealthReportData(userId, rs.getString("patient_name"), booking, vitals, refill);
+    }
+}
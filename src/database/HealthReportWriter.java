@@ -0,0 +1,76 @@
+package database;
+
+import models.HealthReportData;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * Inserts rows into health_reports, either one at a time (report screen) or
+ * as a single JDBC batch in one transaction (nightly batch run).
+ */
+public class HealthReportWriter {
+
+    static final String INSERT_SQL = """
+        INSERT INTO health_reports
+        (user_id, generated_by, summary, latest_vitals_id, latest_booking_id, latest_prescription_id)
+        VALUES (?, ?, ?, ?, ?, ?)
+        """;
+
+    /** One report ready to be stored. */
+    public record Entry(int userId, String summary, HealthReportData data) {
+    }
+
+    public void insert(Connection conn, Entry entry) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(INSERT_SQL)) {
+            bind(ps, entry);
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Insert all entries with one executeBatch() and commit them together.
+     * Nothing is stored if any row fails.
+     */
+    public int[] insertBatch(Connection conn, List<Entry> entries) throws SQLException {
+        if (entries.isEmpty()) return new int[0];
+
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (PreparedStatement ps = conn.prepareStatement(INSERT_SQL)) {
+            for (Entry entry : entries) {
+                bind(ps, entry);
+                ps.addBatch();
+            }
+            int[] counts = ps.executeBatch();
+            conn.commit();
+            return counts;
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    private void bind(PreparedStatement ps, Entry entry) throws SQLException {
+        HealthReportData data = entry.data();
+        ps.setInt(1, entry.userId());
+        setIdOrNull(ps, 2, data != null ? data.generatedByDoctorId() : 0);
+        ps.setString(3, entry.summary());
+        setIdOrNull(ps, 4, data != null ? data.latestVitalsId() : 0);
+        setIdOrNull(ps, 5, data != null ? data.latestBookingId() : 0);
+        setIdOrNull(ps, 6, data != null ? data.latestRefillId() : 0);
+    }
+
+    private void setIdOrNull(PreparedStatement ps, int index, int id) throws SQLException {
+        if (id > 0) {
+            ps.setInt(index, id);
+        } else {
+            ps.setNull(index, Types.INTEGER);
+        }
+    }
+}
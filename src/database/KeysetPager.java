@@ -0,0 +1,212 @@
+package database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reads a table one page at a time using keyset ("seek") pagination instead
+ * of OFFSET, so every page costs the same no matter how deep the user has
+ * scrolled. The sort keys must end with a unique column (e.g. the primary key)
+ * and may mix ascending and descending columns.
+ *
+ * Filters from {@link BookingFilter} become WHERE clauses; nothing is
+ * filtered in memory.
+ */
+public class KeysetPager<T> {
+
+    /** Maps the current row of a result set. */
+    @FunctionalInterface
+    public interface RowMapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+
+    /**
+     * One ORDER BY column: column is the SQL expression, label the name it is
+     * selected as.
+     */
+    public record SortKey(String column, String label, boolean descending) {
+    }
+
+    /** Columns the filter applies to; any of them may be null if unsupported. */
+    public record FilterColumns(List<String> searchColumns, String statusColumn, String dateColumn) {
+    }
+
+    /**
+     * Rows in display order, each row's key (for trimming the window), and
+     * whether more rows exist past the end of this page in the direction read.
+     */
+    public record Page<T>(List<T> rows, List<Object[]> keys, boolean hasMore) {
+        public boolean isEmpty() { return rows.isEmpty(); }
+    }
+
+    private final String selectFrom;
+    private final List<SortKey> sortKeys;
+    private final FilterColumns filterColumns;
+    private final RowMapper<T> mapper;
+    private final int pageSize;
+
+    /**
+     * @param selectFrom "SELECT ... FROM ... [JOIN ...]" without WHERE/ORDER BY;
+     *                   must select every sort key under its label
+     */
+    public KeysetPager(String selectFrom, List<SortKey> sortKeys, FilterColumns filterColumns,
+                       RowMapper<T> mapper, int pageSize) {
+        if (sortKeys.isEmpty()) {
+            throw new IllegalArgumentException("At least one sort key is required");
+        }
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("pageSize must be at least 1");
+        }
+        this.selectFrom = selectFrom;
+        this.sortKeys = List.copyOf(sortKeys);
+        this.filterColumns = filterColumns;
+        this.mapper = mapper;
+        this.pageSize = pageSize;
+    }
+
+    public int getPageSize() { return pageSize; }
+
+    // ================== PAGES ==================
+    public Page<T> first(Connection conn, BookingFilter filter) throws SQLException {
+        return fetch(conn, filter, null, false, pageSize);
+    }
+
+    /** First rows with a one-off limit, e.g. to read a small table completely. */
+    public Page<T> first(Connection conn, BookingFilter filter, int limit) throws SQLException {
+        return fetch(conn, filter, null, false, limit);
+    }
+
+    /** Rows after the given key, in display order. */
+    public Page<T> after(Connection conn, BookingFilter filter, Object[] key) throws SQLException {
+        return fetch(conn, filter, key, false, pageSize);
+    }
+
+    /** Rows before the given key, returned in display order. */
+    public Page<T> before(Connection conn, BookingFilter filter, Object[] key) throws SQLException {
+        return fetch(conn, filter, key, true, pageSize);
+    }
+
+    public long count(Connection conn, BookingFilter filter) throws SQLException {
+        List<Object> params = new ArrayList<>();
+        String sql = "SELECT COUNT(*) FROM (" + selectFrom + where(filter, null, false, params) + ") counted";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            bind(ps, params);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+    }
+
+    private Page<T> fetch(Connection conn, BookingFilter filter, Object[] key, boolean backwards, int limit) throws SQLException {
+        List<Object> params = new ArrayList<>();
+        String sql = selectFrom + where(filter, key, backwards, params) + orderBy(backwards) + " LIMIT ?";
+        params.add(limit + 1); // one extra row tells us whether another page exists
+
+        List<T> rows = new ArrayList<>();
+        List<Object[]> keys = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            bind(ps, params);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next() && rows.size() < limit + 1) {
+                    rows.add(mapper.map(rs));
+                    keys.add(readKey(rs));
+                }
+            }
+        }
+
+        boolean hasMore = rows.size() > limit;
+        if (hasMore) {
+            rows.remove(rows.size() - 1);
+            keys.remove(keys.size() - 1);
+        }
+        if (backwards) {
+            Collections.reverse(rows);
+            Collections.reverse(keys);
+        }
+        return new Page<>(rows, keys, hasMore);
+    }
+
+    // ================== SQL ==================
+    private String where(BookingFilter filter, Object[] key, boolean backwards, List<Object> params) {
+        List<String> clauses = new ArrayList<>();
+        if (filter != null) {
+            if (filter.hasSearch() && filterColumns.searchColumns() != null && !filterColumns.searchColumns().isEmpty()) {
+                String pattern = "%" + escapeLike(filter.search().trim()) + "%";
+                List<String> ors = new ArrayList<>();
+                for (String column : filterColumns.searchColumns()) {
+                    ors.add(column + " LIKE ?"); // ci collations make this case-insensitive
+                    params.add(pattern);
+                }
+                clauses.add("(" + String.join(" OR ", ors) + ")");
+            }
+            if (filter.hasStatus() && filterColumns.statusColumn() != null) {
+                clauses.add(filterColumns.statusColumn() + " = ?");
+                params.add(filter.status());
+            }
+            if (filter.hasDate() && filterColumns.dateColumn() != null) {
+                clauses.add(filterColumns.dateColumn() + " = ?");
+                params.add(java.sql.Date.valueOf(filter.date()));
+            }
+        }
+        if (key != null) {
+            clauses.add(seekPredicate(key, backwards, params));
+        }
+        return clauses.isEmpty() ? "" : " WHERE " + String.join(" AND ", clauses);
+    }
+
+    /**
+     * (k1 > v1) OR (k1 = v1 AND k2 > v2) OR ... with the comparison flipped for
+     * descending columns and again when reading backwards.
+     */
+    private String seekPredicate(Object[] key, boolean backwards, List<Object> params) {
+        if (key.length != sortKeys.size()) {
+            throw new IllegalArgumentException("Key has " + key.length + " values, expected " + sortKeys.size());
+        }
+        List<String> ors = new ArrayList<>();
+        for (int i = 0; i < sortKeys.size(); i++) {
+            List<String> ands = new ArrayList<>();
+            for (int j = 0; j < i; j++) {
+                ands.add(sortKeys.get(j).column() + " = ?");
+                params.add(key[j]);
+            }
+            SortKey sortKey = sortKeys.get(i);
+            boolean greater = sortKey.descending() == backwards;
+            ands.add(sortKey.column() + (greater ? " > ?" : " < ?"));
+            params.add(key[i]);
+            ors.add("(" + String.join(" AND ", ands) + ")");
+        }
+        return "(" + String.join(" OR ", ors) + ")";
+    }
+
+    private String orderBy(boolean backwards) {
+        List<String> parts = new ArrayList<>();
+        for (SortKey sortKey : sortKeys) {
+            boolean descending = sortKey.descending() != backwards;
+            parts.add(sortKey.column() + (descending ? " DESC" : " ASC"));
+        }
+        return " ORDER BY " + String.join(", ", parts);
+    }
+
+    private Object[] readKey(ResultSet rs) throws SQLException {
+        Object[] key = new Object[sortKeys.size()];
+        for (int i = 0; i < key.length; i++) {
+            key[i] = rs.getObject(sortKeys.get(i).label());
+        }
+        return key;
+    }
+
+    private static void bind(PreparedStatement ps, List<Object> params) throws SQLException {
+        for (int i = 0; i < params.size(); i++) {
+            ps.setObject(i + 1, params.get(i));
+        }
+    }
+
+    private static String escapeLike(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -0,0 +1,76 @@
+package database;
+
+/**
+ * Tunables for {@link ConnectionPool}. Defaults suit a single desktop client;
+ * every value can be overridden with a system property of the same name
+ * prefixed by "telehealth.pool." (e.g. -Dtelehealth.pool.maxSize=20).
+ */
+public class PoolConfig {
+
+    private int minSize = 2;
+    private int maxSize = 10;
+    private long connectionTimeoutMs = 10_000;     // max wait for a free connection
+    private long validationTimeoutMs = 2_000;      // Connection.isValid() budget
+    private long validationIntervalMs = 5_000;     // skip validation if used more recently than this
+    private long idleTimeoutMs = 5 * 60_000;       // evict idle connections above minSize after this
+    private long maxLifetimeMs = 30 * 60_000;      // recycle connections older than this
+    private long leakDetectionThresholdMs = 30_000; // report connections held longer than this (0 = off)
+    private long housekeepingIntervalMs = 5_000;
+
+    public static PoolConfig fromSystemProperties() {
+        PoolConfig config = new PoolConfig();
+        config.minSize = intProperty("minSize", config.minSize);
+        config.maxSize = intProperty("maxSize", config.maxSize);
+        config.connectionTimeoutMs = longProperty("connectionTimeoutMs", config.connectionTimeoutMs);
+        config.validationTimeoutMs = longProperty("validationTimeoutMs", config.validationTimeoutMs);
+        config.validationIntervalMs = longProperty("validationIntervalMs", config.validationIntervalMs);
+        config.idleTimeoutMs = longProperty("idleTimeoutMs", config.idleTimeoutMs);
+        config.maxLifetimeMs = longProperty("maxLifetimeMs", config.maxLifetimeMs);
+        config.leakDetectionThresholdMs = longProperty("leakDetectionThresholdMs", config.leakDetectionThresholdMs);
+        config.housekeepingIntervalMs = longProperty("housekeepingIntervalMs", config.housekeepingIntervalMs);
+        config.validate();
+        return config;
+    }
+
+    public void validate() {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be at least 1");
+        }
+        if (minSize < 0 || minSize > maxSize) {
+            throw new IllegalArgumentException("minSize must be between 0 and maxSize");
+        }
+        if (connectionTimeoutMs <= 0 || validationTimeoutMs < 1000) {
+            throw new IllegalArgumentException("connectionTimeoutMs must be > 0 and validationTimeoutMs >= 1000");
+        }
+    }
+
+    private static int intProperty(String name, int def) {
+        return Integer.getInteger("telehealth.pool." + name, def);
+    }
+
+    private static long longProperty(String name, long def) {
+        return Long.getLong("telehealth.pool." + name, def);
+    }
+
+    // Getters
+    public int getMinSize() { return minSize; }
+    public int getMaxSize() { return maxSize; }
+    public long getConnectionTimeoutMs() { return connectionTimeoutMs; }
+    public long getValidationTimeoutMs() { return validationTimeoutMs; }
+    public long getValidationIntervalMs() { return validationIntervalMs; }
+    public long getIdleTimeoutMs() { return idleTimeoutMs; }
+    public long getMaxLifetimeMs() { return maxLifetimeMs; }
+    public long getLeakDetectionThresholdMs() { return leakDetectionThresholdMs; }
+    public long getHousekeepingIntervalMs() { return housekeepingIntervalMs; }
+
+    // Setters
+    public void setMinSize(int minSize) { this.minSize = minSize; }
+    public void setMaxSize(int maxSize) { this.maxSize = maxSize; }
+    public void setConnectionTimeoutMs(long connectionTimeoutMs) { this.connectionTimeoutMs = connectionTimeoutMs; }
+    public void setValidationTimeoutMs(long validationTimeoutMs) { this.validationTimeoutMs = validationTimeoutMs; }
+    public void setValidationIntervalMs(long validationIntervalMs) { this.validationIntervalMs = validationIntervalMs; }
+    public void setIdleTimeoutMs(long idleTimeoutMs) { this.idleTimeoutMs = idleTimeoutMs; }
+    public void setMaxLifetimeMs(long maxLifetimeMs) { this.maxLifetimeMs = maxLifetimeMs; }
+    public void setLeakDetectionThresholdMs(long leakDetectionThresholdMs) { this.leakDetectionThresholdMs = leakDetectionThresholdMs; }
+    public void setHousekeepingIntervalMs(long housekeepingIntervalMs) { this.housekeepingIntervalMs = housekeepingIntervalMs; }
+}
@@ -0,0 +1,77 @@
+package database;
+
+import utils.LatencyHistogram;
+
+/**
+ * Point-in-time view of {@link ConnectionPool} state. Counters are a snapshot,
+ * the two histograms are live and keep accumulating after the snapshot is taken.
+ */
+public class PoolMetrics {
+    private final int active;
+    private final int idle;
+    private final int total;
+    private final int pendingBorrows;
+    private final int maxSize;
+    private final long borrowCount;
+    private final long createdCount;
+    private final long destroyedCount;
+    private final long timeoutCount;
+    private final long validationFailures;
+    private final long leakCount;
+    private final LatencyHistogram borrowLatency;
+    private final LatencyHistogram waitTime;
+
+    public PoolMetrics(int active, int idle, int total, int pendingBorrows, int maxSize,
+                       long borrowCount, long createdCount, long destroyedCount,
+                       long timeoutCount, long validationFailures, long leakCount,
+                       LatencyHistogram borrowLatency, LatencyHistogram waitTime) {
+        this.active = active;
+        this.idle = idle;
+        this.total = total;
+        this.pendingBorrows = pendingBorrows;
+        this.maxSize = maxSize;
+        this.borrowCount = borrowCount;
+        this.createdCount = createdCount;
+        this.destroyedCount = destroyedCount;
+        this.timeoutCount = timeoutCount;
+        this.validationFailures = validationFailures;
+        this.leakCount = leakCount;
+        this.borrowLatency = borrowLatency;
+        this.waitTime = waitTime;
+    }
+
+    // Getters
+    public int getActive() { return active; }
+    public int getIdle() { return idle; }
+    public int getTotal() { return total; }
+    public int getPendingBorrows() { return pendingBorrows; }
+    public int getMaxSize() { return maxSize; }
+    public long getBorrowCount() { return borrowCount; }
+    public long getCreatedCount() { return createdCount; }
+    public long getDestroyedCount() { return destroyedCount; }
+    public long getTimeoutCount() { return timeoutCount; }
+    public long getValidationFailures() { return validationFailures; }
+    public long getLeakCount() { return leakCount; }
+
+    /** Time from calling borrow() until a connection is handed out. */
+    public LatencyHistogram getBorrowLatency() { return borrowLatency; }
+
+    /** Time spent blocked because the pool was exhausted. */
+    public LatencyHistogram getWaitTime() { return waitTime; }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Connection Pool:\n");
+        sb.append("Active: ").append(active).append(" / Idle: ").append(idle)
+          .append(" / Total: ").append(total).append(" (max ").append(maxSize).append(")\n");
+        sb.append("Pending borrows: ").append(pendingBorrows).append("\n");
+        sb.append("Borrows: ").append(borrowCount).append(", created: ").append(createdCount)
+          .append(", destroyed: ").append(destroyedCount).append("\n");
+        sb.append("Timeouts: ").append(timeoutCount).append(", validation failures: ")
+          .append(validationFailures).append(", leaks: ").append(leakCount).append("\n");
+        sb.append("Borrow latency: ").append(borrowLatency.summary()).append("\n");
+        sb.append("Wait time: ").append(waitTime.summary()).append("\n");
+        return sb.toString();
+    }
+}
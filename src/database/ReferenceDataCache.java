@@ -0,0 +1,205 @@
+package database;
+
+import models.User;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Process-wide cache of the users table (id, name, username, role; never
+ * passwords) for doctor/patient pickers and name-to-id lookups.
+ *
+ * The whole table is loaded in one query into an immutable snapshot that is
+ * swapped atomically, so readers never lock. A snapshot expires after the TTL
+ * (-Dtelehealth.cache.ttlMs, default 5 minutes) and is dropped at once by
+ * {@link #invalidate()}, e.g. after a signup. Each invalidation bumps a
+ * generation, so a load that was already running when it happened is
+ * discarded and read again rather than published.
+ *
+ * {@link User} is mutable, so lookups hand out copies; a caller editing the
+ * user it got back never changes what other readers see.
+ */
+public class ReferenceDataCache {
+
+    public static final String ROLE_PATIENT = "Patient";
+    public static final String ROLE_DOCTOR = "Doctor";
+
+    static final String LOAD_QUERY = "SELECT user_id, name, username, role FROM users ORDER BY user_id";
+
+    /**
+     * Subquery for the id of a user given (name, role) parameters, using the
+     * same lowest-id rule as {@link #findByName}. Lets an INSERT that only
+     * knows names fill its user id columns.
+     */
+    public static final String USER_ID_BY_NAME = "(SELECT MIN(user_id) FROM users WHERE name = ? AND role = ?)";
+
+    private static final ReferenceDataCache INSTANCE = new ReferenceDataCache(
+            DatabaseHelper::getConnection, Long.getLong("telehealth.cache.ttlMs", 5 * 60_000L), System::currentTimeMillis);
+
+    /** Immutable view of the users table at one point in time. */
+    private record Snapshot(Map<Integer, User> byId, Map<String, User> byName,
+                            Map<String, List<User>> byRole, long loadedAt, long generation) {
+    }
+
+    private static final int MAX_LOAD_ATTEMPTS = 3;
+
+    private final ConnectionPool.ConnectionFactory connections;
+    private final long ttlMs;
+    private final LongSupplier clock;
+    private final Object loadLock = new Object();
+    private volatile Snapshot snapshot;
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public ReferenceDataCache(ConnectionPool.ConnectionFactory connections, long ttlMs, LongSupplier clock) {
+        this.connections = connections;
+        this.ttlMs = ttlMs;
+        this.clock = clock;
+    }
+
+    public static ReferenceDataCache getInstance() {
+        return INSTANCE;
+    }
+
+    // ================== LOOKUPS ==================
+    public Optional<User> findById(int userId) throws SQLException {
+        return Optional.ofNullable(current().byId().get(userId)).map(ReferenceDataCache::copy);
+    }
+
+    /**
+     * First user (lowest id) with this exact name, optionally limited to a role.
+     */
+    public Optional<User> findByName(String name, String role) throws SQLException {
+        Snapshot current = current();
+        if (role == null) {
+            return Optional.ofNullable(current.byName().get(name)).map(ReferenceDataCache::copy);
+        }
+        for (User user : current.byRole().getOrDefault(role, List.of())) {
+            if (user.getName().equals(name)) {
+                return Optional.of(copy(user));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /** Copies of the role's users in id order, as an unmodifiable list. */
+    public List<User> usersByRole(String role) throws SQLException {
+        List<User> users = new ArrayList<>();
+        for (User user : current().byRole().getOrDefault(role, List.of())) {
+            users.add(copy(user));
+        }
+        return Collections.unmodifiableList(users);
+    }
+
+    public List<String> namesByRole(String role) throws SQLException {
+        List<String> names = new ArrayList<>();
+        for (User user : current().byRole().getOrDefault(role, List.of())) {
+            names.add(user.getName());
+        }
+        return names;
+    }
+
+    private static User copy(User user) {
+        return new User(user.getId(), user.getName(), user.getUsername(), null, user.getRole());
+    }
+
+    // ================== LIFECYCLE ==================
+    /** Load now if empty or expired, e.g. in the background right after login. */
+    public void warmUp() throws SQLException {
+        current();
+    }
+
+    /** Drop the snapshot; the next lookup reloads from the database. */
+    public void invalidate() {
+        generation.incrementAndGet();
+        snapshot = null;
+        invalidations.increment();
+    }
+
+    private Snapshot current() throws SQLException {
+        Snapshot current = snapshot;
+        if (isFresh(current)) {
+            hits.increment();
+            return current;
+        }
+        synchronized (loadLock) {
+            current = snapshot;
+            if (isFresh(current)) {
+                hits.increment(); // another thread loaded it while we waited
+                return current;
+            }
+            misses.increment();
+            // An invalidate() during the load means the rows may predate it; read them again
+            for (int attempt = 1; ; attempt++) {
+                current = load(generation.get());
+                if (current.generation() == generation.get()) {
+                    snapshot = current;
+                    return current;
+                }
+                if (attempt == MAX_LOAD_ATTEMPTS) {
+                    return current; // still changing: answer this lookup, publish nothing
+                }
+            }
+        }
+    }
+
+    private boolean isFresh(Snapshot current) {
+        return current != null && current.generation() == generation.get()
+                && clock.getAsLong() - current.loadedAt() < ttlMs;
+    }
+
+    private Snapshot load(long loadGeneration) throws SQLException {
+        Map<Integer, User> byId = new LinkedHashMap<>();
+        Map<String, User> byName = new HashMap<>();
+        Map<String, List<User>> byRole = new HashMap<>();
+
+        try (Connection conn = connections.create();
+             PreparedStatement ps = conn.prepareStatement(LOAD_QUERY);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                User user = new User(rs.getInt("user_id"), rs.getString("name"),
+                        rs.getString("username"), null, rs.getString("role"));
+                byId.put(user.getId(), user);
+                byName.putIfAbsent(user.getName(), user);
+                byRole.computeIfAbsent(user.getRole(), r -> new ArrayList<>()).add(user);
+            }
+        }
+        loads.increment();
+
+        byRole.replaceAll((role, users) -> Collections.unmodifiableList(users));
+        return new Snapshot(Collections.unmodifiableMap(byId), Collections.unmodifiableMap(byName),
+                Collections.unmodifiableMap(byRole), clock.getAsLong(), loadGeneration);
+    }
+
+    // ================== METRICS ==================
+    public long getHitCount() { return hits.sum(); }
+    public long getMissCount() { return misses.sum(); }
+    public long getLoadCount() { return loads.sum(); }
+    public long getInvalidationCount() { return invalidations.sum(); }
+
+    public double getHitRatio() {
+        long total = getHitCount() + getMissCount();
+        return total == 0 ? 0 : (double) getHitCount() / total;
+    }
+
+    public String summary() {
+        return String.format("hits=%d misses=%d hitRatio=%.2f loads=%d invalidations=%d",
+                getHitCount(), getMissCount(), getHitRatio(), getLoadCount(), getInvalidationCount());
+    }
+}
@@ -0,0 +1,27 @@
+package database;
+
+import java.sql.SQLException;
+
+/**
+ * The doctor already has a booking in the requested time slot.
+ */
+public class SlotConflictException extends SQLException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final AvailabilityIndex.Slot slot;
+
+    public SlotConflictException(AvailabilityIndex.Slot slot) {
+        super("Doctor already has a booking on " + slot.date() + " at " + slot.time(), "23000");
+        this.slot = slot;
+    }
+
+    public SlotConflictException(AvailabilityIndex.Slot slot, SQLException cause) {
+        super("Doctor already has a booking on " + slot.date() + " at " + slot.time(), "23000", cause);
+        this.slot = slot;
+    }
+
+    public AvailabilityIndex.Slot getSlot() {
+        return slot;
+    }
+}
@@ -0,0 +1,152 @@
+package events;
+
+import utils.FlatJson;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only file of alerts that no clinician has acknowledged yet, so they
+ * survive a restart. Each line is a flat JSON object: an "add" with the
+ * event's fields or an "ack" for a sequence number. Lines are forced to disk
+ * before {@link #append} returns.
+ *
+ * On open the log is replayed, a line cut short by a crash is skipped, and
+ * the file is rewritten with only the pending alerts.
+ * Location: -Dtelehealth.outbox.path (default ~/.telehealth/alert-outbox.log).
+ */
+public class AlertOutbox implements AutoCloseable {
+
+    private final Path path;
+    private final Map<Long, ClinicalEvent> pending = new LinkedHashMap<>();
+    private final FileChannel channel;
+    private long lastSequence;
+    private int skippedLines;
+
+    public AlertOutbox(Path path) throws IOException {
+        this.path = path;
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        if (Files.exists(path)) {
+            recover();
+        }
+        compact();
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+
+    public static Path defaultPath() {
+        String configured = System.getProperty("telehealth.outbox.path");
+        return configured != null ? Paths.get(configured)
+                : Paths.get(System.getProperty("user.home"), ".telehealth", "alert-outbox.log");
+    }
+
+    // ================== WRITE ==================
+    public synchronized void append(long sequence, ClinicalEvent event) throws IOException {
+        write(line(sequence, "add", event.toFields()));
+        pending.put(sequence, event);
+        lastSequence = Math.max(lastSequence, sequence);
+    }
+
+    /** Mark an alert as handled; unknown or already acknowledged sequences are ignored. */
+    public synchronized boolean acknowledge(long sequence) throws IOException {
+        if (pending.remove(sequence) == null) {
+            return false;
+        }
+        write(line(sequence, "ack", Map.of()));
+        return true;
+    }
+
+    private void write(String line) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+    }
+
+    // ================== READ ==================
+    /** Unacknowledged alerts, oldest first, as replayed envelopes. */
+    public synchronized List<EventEnvelope> pending() {
+        List<EventEnvelope> envelopes = new ArrayList<>();
+        pending.forEach((sequence, event) -> envelopes.add(new EventEnvelope(sequence, event, 0L, true)));
+        return envelopes;
+    }
+
+    public synchronized int pendingCount() {
+        return pending.size();
+    }
+
+    /** Highest sequence number seen, so a restarted bus continues after it. */
+    public synchronized long lastSequence() {
+        return lastSequence;
+    }
+
+    public synchronized int skippedLines() {
+        return skippedLines;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    // ================== RECOVERY ==================
+    private void recover() throws IOException {
+        for (String text : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+            if (text.isBlank()) continue;
+            try {
+                Map<String, String> fields = new LinkedHashMap<>(FlatJson.parse(text));
+                long sequence = Long.parseLong(fields.remove("seq"));
+                String op = fields.remove("op");
+                lastSequence = Math.max(lastSequence, sequence);
+                if ("ack".equals(op)) {
+                    pending.remove(sequence);
+                } else {
+                    pending.put(sequence, ClinicalEvent.fromFields(fields));
+                }
+            } catch (RuntimeException e) {
+                skippedLines++; // e.g. the last line was cut short by a crash
+            }
+        }
+    }
+
+    /** Rewrite the log with just the pending alerts so it does not grow forever. */
+    private void compact() throws IOException {
+        StringBuilder text = new StringBuilder();
+        pending.forEach((sequence, event) -> text.append(line(sequence, "add", event.toFields())));
+        // Keep the sequence even if nothing is pending so numbers are never reused
+        if (pending.isEmpty() && lastSequence > 0) {
+            text.append(line(lastSequence, "ack", Map.of()));
+        }
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.writeString(temp, text, StandardCharsets.UTF_8);
+        try {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static String line(long sequence, String op, Map<String, String> fields) {
+        StringBuilder line = new StringBuilder("{\"seq\":").append(sequence)
+                .append(",\"op\":").append(FlatJson.quote(op));
+        fields.forEach((key, value) -> line.append(',').append(FlatJson.quote(key)).append(':').append(FlatJson.quote(value)));
+        return line.append("}\n").toString();
+    }
+}
@@ -0,0 +1,174 @@
+package events;
+
+import vitals.MetricFinding;
+import vitals.VitalStatus;
+import vitals.VitalsAssessment;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Something clinicians may need to hear about straight away. Events are
+ * immutable and self-contained (names are resolved when they are published)
+ * so they can be written to the {@link AlertOutbox} as flat fields.
+ */
+public sealed interface ClinicalEvent
+        permits ClinicalEvent.VitalsRecorded, ClinicalEvent.EmergencyReferralCreated, ClinicalEvent.BookingChanged {
+
+    EventPriority priority();
+
+    /** Epoch millis when it happened. */
+    long occurredAt();
+
+    /** One line for a notification list. */
+    String summary();
+
+    /** Flat fields for the outbox, including "type". */
+    Map<String, String> toFields();
+
+    /** Rebuild an event from {@link #toFields()}. */
+    static ClinicalEvent fromFields(Map<String, String> fields) {
+        String type = fields.get("type");
+        if (type == null) {
+            throw new IllegalArgumentException("Event type is missing");
+        }
+        return switch (type) {
+            case "VitalsRecorded" -> new VitalsRecorded(
+                    Integer.parseInt(fields.get("patientId")), fields.get("patientName"),
+                    Long.parseLong(fields.get("vitalsId")), Long.parseLong(fields.get("occurredAt")),
+                    VitalStatus.valueOf(fields.get("status")), Boolean.parseBoolean(fields.get("baselineAlert")),
+                    fields.get("detail"));
+            case "EmergencyReferralCreated" -> new EmergencyReferralCreated(
+                    Long.parseLong(fields.get("referralId")), fields.get("patientName"), fields.get("hospital"),
+                    fields.get("department"), fields.get("referringDoctor"), fields.get("reason"),
+                    Long.parseLong(fields.get("occurredAt")));
+            case "BookingChanged" -> new BookingChanged(
+                    BookingChanged.Change.valueOf(fields.get("change")), Integer.parseInt(fields.get("doctorId")),
+                    fields.get("patientName"), fields.get("date"), fields.get("time"),
+                    Long.parseLong(fields.get("occurredAt")));
+            default -> throw new IllegalArgumentException("Unknown event type " + type);
+        };
+    }
+
+    // ================== VITALS ==================
+    /**
+     * A reading was recorded. Critical values are CRITICAL, other out-of-range
+     * values or departures from the patient's baseline are HIGH, the rest LOW.
+     */
+    record VitalsRecorded(int patientId, String patientName, long vitalsId, long occurredAt,
+                          VitalStatus status, boolean baselineAlert, String detail) implements ClinicalEvent {
+
+        public static VitalsRecorded of(VitalsAssessment assessment, String patientName) {
+            boolean baselineAlert = assessment.findings().values().stream()
+                    .anyMatch(f -> f.deviation() || f.rapidChange());
+            String detail = assessment.alerts().stream()
+                    .map(MetricFinding::describe)
+                    .collect(Collectors.joining("; "));
+            return new VitalsRecorded(assessment.userId(), patientName, assessment.vitalsId(),
+                    assessment.recordedAt(), assessment.worstStatus(), baselineAlert, detail);
+        }
+
+        @Override
+        public EventPriority priority() {
+            if (status.isCritical()) return EventPriority.CRITICAL;
+            if (status.isAbnormal() || baselineAlert) return EventPriority.HIGH;
+            return EventPriority.LOW;
+        }
+
+        @Override
+        public String summary() {
+            String who = patientName != null ? patientName : "Patient #" + patientId;
+            return detail == null || detail.isEmpty()
+                    ? "Vitals recorded for " + who
+                    : (status.isCritical() ? "🚨 " : "⚠️ ") + who + " — " + detail;
+        }
+
+        @Override
+        public Map<String, String> toFields() {
+            Map<String, String> fields = new LinkedHashMap<>();
+            fields.put("type", "VitalsRecorded");
+            fields.put("patientId", String.valueOf(patientId));
+            fields.put("patientName", patientName);
+            fields.put("vitalsId", String.valueOf(vitalsId));
+            fields.put("occurredAt", String.valueOf(occurredAt));
+            fields.put("status", status.name());
+            fields.put("baselineAlert", String.valueOf(baselineAlert));
+            fields.put("detail", detail);
+            return fields;
+        }
+    }
+
+    // ================== REFERRALS ==================
+    /** A doctor submitted a referral with EMERGENCY urgency. */
+    record EmergencyReferralCreated(long referralId, String patientName, String hospital, String department,
+                                    String referringDoctor, String reason, long occurredAt) implements ClinicalEvent {
+
+        @Override
+        public EventPriority priority() {
+            return EventPriority.CRITICAL;
+        }
+
+        @Override
+        public String summary() {
+            return "🚑 Emergency referral: " + patientName + " to " + hospital + " (" + department + ") by " + referringDoctor;
+        }
+
+        @Override
+        public Map<String, String> toFields() {
+            Map<String, String> fields = new LinkedHashMap<>();
+            fields.put("type", "EmergencyReferralCreated");
+            fields.put("referralId", String.valueOf(referralId));
+            fields.put("patientName", patientName);
+            fields.put("hospital", hospital);
+            fields.put("department", department);
+            fields.put("referringDoctor", referringDoctor);
+            fields.put("reason", reason);
+            fields.put("occurredAt", String.valueOf(occurredAt));
+            return fields;
+        }
+    }
+
+    // ================== BOOKINGS ==================
+    /** A consultation was booked, moved or cancelled. date/time are ISO text. */
+    record BookingChanged(Change change, int doctorId, String patientName, String date, String time,
+                          long occurredAt) implements ClinicalEvent {
+
+        public enum Change { CREATED, UPDATED, CANCELLED }
+
+        public static BookingChanged of(Change change, int doctorId, String patientName, LocalDate date, LocalTime time) {
+            return new BookingChanged(change, doctorId, patientName, String.valueOf(date), String.valueOf(time),
+                    System.currentTimeMillis());
+        }
+
+        @Override
+        public EventPriority priority() {
+            return EventPriority.NORMAL;
+        }
+
+        @Override
+        public String summary() {
+            String verb = switch (change) {
+                case CREATED -> "booked";
+                case UPDATED -> "changed";
+                case CANCELLED -> "cancelled";
+            };
+            return "📅 " + patientName + " " + verb + " " + date + " " + time;
+        }
+
+        @Override
+        public Map<String, String> toFields() {
+            Map<String, String> fields = new LinkedHashMap<>();
+            fields.put("type", "BookingChanged");
+            fields.put("change", change.name());
+            fields.put("doctorId", String.valueOf(doctorId));
+            fields.put("patientName", patientName);
+            fields.put("date", date);
+            fields.put("time", time);
+            fields.put("occurredAt", String.valueOf(occurredAt));
+            return fields;
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package events;
+
+import utils.LatencyHistogram;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Predicate;
+
+/**
+ * In-process publish/subscribe for {@link ClinicalEvent}s.
+ *
+ * Publishers never block on subscribers: events go into one lock-free
+ * {@link RingBuffer} per {@link EventPriority} and a single dispatcher thread
+ * delivers them, always emptying the higher priorities first. Alerts (CRITICAL
+ * and HIGH) are written to the {@link AlertOutbox} before they are queued, so
+ * an alert dropped by a full buffer or lost in a crash is still pending until
+ * someone acknowledges it.
+ *
+ * Listeners run on the dispatcher thread and must hand UI work to
+ * Platform.runLater. Buffer size per priority: -Dtelehealth.events.capacity
+ * (default 4096).
+ */
+public final class EventBus implements AutoCloseable {
+
+    /** Receives events on the dispatcher thread. */
+    @FunctionalInterface
+    public interface Listener {
+        void onEvent(EventEnvelope envelope);
+    }
+
+    /** Counters for the log and the metrics line. */
+    public record Metrics(long published, long delivered, long dropped, int queued, int pendingAlerts,
+                          String deliveryLatency, String alertLatency) {
+        @Override
+        public String toString() {
+            return String.format("published=%d delivered=%d dropped=%d queued=%d pendingAlerts=%d "
+                            + "delivery[%s] alert[%s]",
+                    published, delivered, dropped, queued, pendingAlerts, deliveryLatency, alertLatency);
+        }
+    }
+
+    /** Ends a subscription; idempotent. */
+    public final class Subscription implements AutoCloseable {
+        private final Predicate<ClinicalEvent> filter;
+        private final Listener listener;
+
+        private Subscription(Predicate<ClinicalEvent> filter, Listener listener) {
+            this.filter = filter;
+            this.listener = listener;
+        }
+
+        @Override
+        public void close() {
+            subscriptions.remove(this);
+        }
+    }
+
+    /** The dispatcher also wakes up this often on its own, as a safety net. */
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private static final EventBus INSTANCE = createDefault();
+
+    private final RingBuffer<EventEnvelope>[] queues;
+    private final AlertOutbox outbox;
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final AtomicLong sequence;
+    private final LongAdder published = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LatencyHistogram deliveryLatency = new LatencyHistogram();
+    private final LatencyHistogram alertLatency = new LatencyHistogram();
+    private final Thread dispatcher;
+    private volatile boolean running = true;
+
+    /** outbox may be null, in which case alerts are not persisted. */
+    @SuppressWarnings("unchecked")
+    public EventBus(int capacity, AlertOutbox outbox) {
+        this.outbox = outbox;
+        this.sequence = new AtomicLong(outbox != null ? outbox.lastSequence() : 0);
+        this.queues = (RingBuffer<EventEnvelope>[]) new RingBuffer<?>[EventPriority.values().length];
+        for (int i = 0; i < queues.length; i++) {
+            queues[i] = new RingBuffer<>(capacity);
+        }
+        this.dispatcher = new Thread(this::dispatchLoop, "event-dispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    public static EventBus getInstance() {
+        return INSTANCE;
+    }
+
+    private static EventBus createDefault() {
+        AlertOutbox outbox = null;
+        try {
+            outbox = new AlertOutbox(AlertOutbox.defaultPath());
+        } catch (IOException e) {
+            e.printStackTrace(); // keep delivering live events without persistence
+        }
+        return new EventBus(Integer.getInteger("telehealth.events.capacity", 4096), outbox);
+    }
+
+    // ================== PUBLISH ==================
+    /**
+     * Queue an event for delivery. Returns its envelope, or null if the bus is
+     * closed. Alerts are forced to the outbox first, so call from a background thread.
+     */
+    public EventEnvelope publish(ClinicalEvent event) {
+        if (!running) return null;
+        EventEnvelope envelope = new EventEnvelope(sequence.incrementAndGet(), event, System.nanoTime(), false);
+        published.increment();
+        if (outbox != null && event.priority().isAlert()) {
+            try {
+                outbox.append(envelope.sequence(), event);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        if (!queues[event.priority().ordinal()].offer(envelope)) {
+            dropped.increment(); // a dropped alert is still pending in the outbox
+            return envelope;
+        }
+        LockSupport.unpark(dispatcher);
+        return envelope;
+    }
+
+    // ================== SUBSCRIBE ==================
+    public Subscription subscribe(Predicate<ClinicalEvent> filter, Listener listener) {
+        Subscription subscription = new Subscription(filter, listener);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    /** Alerts nobody has acknowledged yet, including ones from before a restart. */
+    public List<EventEnvelope> pendingAlerts() {
+        return outbox != null ? outbox.pending() : List.of();
+    }
+
+    /** A clinician has dealt with an alert; it will not be shown again. */
+    public void acknowledge(long sequence) {
+        if (outbox == null) return;
+        try {
+            outbox.acknowledge(sequence);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /** The alert is on screen: record publish-to-display latency. */
+    public void recordDisplayed(EventEnvelope envelope) {
+        if (!envelope.replayed() && envelope.priority().isAlert()) {
+            alertLatency.recordSince(envelope.publishedNanos());
+        }
+    }
+
+    // ================== DISPATCH ==================
+    private void dispatchLoop() {
+        while (running || !isEmpty()) {
+            EventEnvelope next = next();
+            if (next == null) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                continue;
+            }
+            deliver(next);
+        }
+    }
+
+    /** Highest priority first; a new CRITICAL event overtakes anything queued below it. */
+    private EventEnvelope next() {
+        for (RingBuffer<EventEnvelope> queue : queues) {
+            EventEnvelope envelope = queue.poll();
+            if (envelope != null) return envelope;
+        }
+        return null;
+    }
+
+    private void deliver(EventEnvelope envelope) {
+        deliveryLatency.recordSince(envelope.publishedNanos());
+        for (Subscription subscription : subscriptions) {
+            try {
+                if (subscription.filter.test(envelope.event())) {
+                    subscription.listener.onEvent(envelope);
+                }
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+        delivered.increment();
+    }
+
+    private boolean isEmpty() {
+        for (RingBuffer<EventEnvelope> queue : queues) {
+            if (!queue.isEmpty()) return false;
+        }
+        return true;
+    }
+
+    // ================== LIFECYCLE ==================
+    public Metrics metrics() {
+        int queued = 0;
+        for (RingBuffer<EventEnvelope> queue : queues) {
+            queued += queue.size();
+        }
+        return new Metrics(published.sum(), delivered.sum(), dropped.sum(), queued,
+                outbox != null ? outbox.pendingCount() : 0, deliveryLatency.summary(), alertLatency.summary());
+    }
+
+    /**
+     * Deliver what is queued, then stop the dispatcher and close the outbox.
+     * If the calling thread is interrupted while waiting, the outbox is still
+     * closed and the interrupt flag is kept.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(dispatcher);
+        try {
+            dispatcher.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (outbox != null) {
+            try {
+                outbox.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
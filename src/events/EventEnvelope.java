@@ -0,0 +1,14 @@
+package events;
+
+/**
+ * An event as delivered by the {@link EventBus}: its bus sequence number
+ * (the outbox key for alerts) and System.nanoTime() at publish, for latency.
+ * Replayed envelopes come from the outbox after a restart and have no
+ * meaningful publish time.
+ */
+public record EventEnvelope(long sequence, ClinicalEvent event, long publishedNanos, boolean replayed) {
+
+    public EventPriority priority() {
+        return event.priority();
+    }
+}
@@ -0,0 +1,17 @@
+package events;
+
+/**
+ * Delivery order on the {@link EventBus}: a queued CRITICAL event is always
+ * delivered before any HIGH one, and so on down.
+ */
+public enum EventPriority {
+    CRITICAL,
+    HIGH,
+    NORMAL,
+    LOW;
+
+    /** Alerts are kept in the outbox until a clinician acknowledges them. */
+    public boolean isAlert() {
+        return this == CRITICAL || this == HIGH;
+    }
+}
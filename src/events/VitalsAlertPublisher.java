@@ -0,0 +1,51 @@
+package events;
+
+import database.ReferenceDataCache;
+import models.User;
+import vitals.AnomalyEngine;
+import vitals.VitalsAssessment;
+
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * Publishes a {@link ClinicalEvent.VitalsRecorded} for every reading the
+ * {@link AnomalyEngine} assesses, with the patient's name resolved up front
+ * so the event can be shown (or replayed from the outbox) as it is.
+ */
+public class VitalsAlertPublisher implements Consumer<VitalsAssessment> {
+
+    private static final AtomicBoolean INSTALLED = new AtomicBoolean();
+
+    private final EventBus bus;
+    private final IntFunction<String> patientNames;
+
+    public VitalsAlertPublisher(EventBus bus, IntFunction<String> patientNames) {
+        this.bus = bus;
+        this.patientNames = patientNames;
+    }
+
+    /** Connect the shared anomaly engine to the shared bus; later calls do nothing. */
+    public static void install() {
+        if (INSTALLED.compareAndSet(false, true)) {
+            AnomalyEngine.getInstance().addAssessmentListener(
+                    new VitalsAlertPublisher(EventBus.getInstance(), VitalsAlertPublisher::cachedName));
+        }
+    }
+
+    @Override
+    public void accept(VitalsAssessment assessment) {
+        bus.publish(ClinicalEvent.VitalsRecorded.of(assessment, patientNames.apply(assessment.userId())));
+    }
+
+    private static String cachedName(int userId) {
+        try {
+            return ReferenceDataCache.getInstance().findById(userId).map(User::getName).orElse(null);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+}
@@ -0,0 +1,367 @@
+package loadtest;
+
+import database.AvailabilityIndex;
+import database.ConnectionPool;
+import suggestions.SuggestionEngine;
+import vitals.VitalsBatchWriter;
+import vitals.VitalsSubmission;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Fills the schema in Telehealth_System.sql with a synthetic clinic: doctors,
+ * admin staff and patients, plus past bookings, appointments, diagnoses,
+ * referrals, refills and vitals for the patients. Seeded users have usernames
+ * starting with "load_" and are reused if they already exist, so a second
+ * run against the same database starts straight away.
+ */
+public class ClinicDataSeeder {
+
+    public static final String USERNAME_PREFIX = "load_";
+    public static final String PASSWORD = "load123";
+
+    /** A seeded account the load clients sign in as. */
+    public record Member(int userId, String name, String username, String role) {
+    }
+
+    /** The accounts available to the load run. */
+    public record SeededClinic(List<Member> doctors, List<Member> staff, List<Member> patients, boolean created) {
+    }
+
+    /** Row counts written per table, in seeding order. */
+    public record SeedCounts(int users, int bookings, int appointments, int diagnoses, int referrals,
+                             int refills, int vitals) {
+    }
+
+    static final String EXISTING_USERS = "SELECT user_id, name, username, role FROM users "
+            + "WHERE username LIKE 'load\\_%' ORDER BY user_id";
+    static final String INSERT_USERS = "INSERT INTO users (name, username, password, role) VALUES ";
+    static final String INSERT_BOOKINGS = "INSERT INTO bookings (patient_id, doctor_id, appointment_date, "
+            + "appointment_time, symptoms, consultation_mode, status) VALUES ";
+    static final String INSERT_APPOINTMENTS = "INSERT INTO appointments (patient_name, doctor_name, appointment_date, "
+            + "appointment_time, status, booking_id, appointment_type, notes, patient_id, doctor_id) VALUES ";
+    static final String INSERT_DIAGNOSES = "INSERT INTO diagnoses (appointment_id, patient_name, doctor_name, "
+            + "diagnosis_text, symptoms, prescription_details, treatment_plan, follow_up_instructions, "
+            + "recorded_date, severity, status, patient_id, doctor_id) VALUES ";
+    static final String INSERT_REFERRALS = "INSERT INTO hospital_referrals (patient_name, referring_doctor_name, "
+            + "hospital_name, department, reason_for_referral, urgency_level, referral_date, "
+            + "preferred_appointment_date, status, patient_id, doctor_id) VALUES ";
+    static final String INSERT_REFILLS = "INSERT INTO prescription_refills (patient_name, medication_name, quantity, "
+            + "notes, status, user_id) VALUES ";
+
+    private static final String[] SYMPTOMS = {"Fever and cough", "Headache", "Back pain", "Sore throat",
+            "Fatigue", "Chest tightness", "Skin rash", "Follow-up on blood pressure"};
+    private static final String[] DIAGNOSES = {"Viral infection with fever", "Tension headache",
+            "Lower back muscle strain", "Bacterial throat infection", "Seasonal allergy",
+            "Hypertension, stable", "Persistent dry cough"};
+    private static final String[] HOSPITALS = {"City General Hospital", "National Hospital", "Lakeside Medical Centre"};
+    private static final String[] DEPARTMENTS = {"Cardiology", "Orthopedics", "Neurology", "Dermatology", "ENT"};
+    private static final String[] MEDICATIONS = {"Amoxicillin 500mg", "Paracetamol 500mg", "Amlodipine 5mg",
+            "Cetirizine 10mg", "Ibuprofen 400mg"};
+
+    private final ConnectionPool.ConnectionFactory connections;
+    private final LoadTestConfig config;
+    private final String passwordHash;
+    private final LocalDate today;
+    private SeedCounts counts = new SeedCounts(0, 0, 0, 0, 0, 0, 0);
+
+    /**
+     * passwordHash is stored for every seeded account (PASSWORD hashed once,
+     * so seeding thousands of users costs one KDF run).
+     */
+    public ClinicDataSeeder(ConnectionPool.ConnectionFactory connections, LoadTestConfig config, String passwordHash,
+                            LocalDate today) {
+        this.connections = connections;
+        this.config = config;
+        this.passwordHash = passwordHash;
+        this.today = today;
+    }
+
+    /** Reuse the "load_" accounts if there are any, otherwise create the clinic. */
+    public SeededClinic seed() throws SQLException {
+        List<Member> existing = existingMembers();
+        if (!existing.isEmpty()) {
+            return group(existing, false);
+        }
+        SplittableRandom random = new SplittableRandom(config.getSeed());
+        List<Member> members = insertUsers();
+        SeededClinic clinic = group(members, true);
+
+        List<PastBooking> bookings = planBookings(clinic, random);
+        long[] bookingIds = insertBookings(bookings, random);
+        long[] appointmentIds = insertAppointments(bookings, bookingIds);
+        int diagnoses = insertDiagnoses(bookings, appointmentIds, random);
+        int referrals = insertReferrals(clinic, random);
+        int refills = insertRefills(clinic, random);
+        int vitals = insertVitals(clinic, random);
+        counts = new SeedCounts(members.size(), bookingIds.length, appointmentIds.length, diagnoses, referrals,
+                refills, vitals);
+        return clinic;
+    }
+
+    /** What the last {@link #seed()} wrote; all zero if it reused an existing clinic. */
+    public SeedCounts getCounts() {
+        return counts;
+    }
+
+    // ================== USERS ==================
+    private List<Member> existingMembers() throws SQLException {
+        List<Member> members = new ArrayList<>();
+        try (Connection conn = connections.create();
+             PreparedStatement ps = conn.prepareStatement(EXISTING_USERS);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                members.add(new Member(rs.getInt("user_id"), rs.getString("name"),
+                        rs.getString("username"), rs.getString("role")));
+            }
+        }
+        return members;
+    }
+
+    private List<Member> insertUsers() throws SQLException {
+        List<Object[]> rows = new ArrayList<>();
+        List<Member> pending = new ArrayList<>();
+        addUsers(rows, pending, config.getDoctors(), "Dr. Load Doctor ", "doctor", "Doctor");
+        addUsers(rows, pending, config.getStaff(), "Load Staff ", "staff", "Admin");
+        addUsers(rows, pending, config.getPatients(), "Load Patient ", "patient", "Patient");
+
+        long[] ids = insert(INSERT_USERS, rows);
+        List<Member> members = new ArrayList<>(pending.size());
+        for (int i = 0; i < pending.size(); i++) {
+            Member m = pending.get(i);
+            members.add(new Member((int) ids[i], m.name(), m.username(), m.role()));
+        }
+        return members;
+    }
+
+    private void addUsers(List<Object[]> rows, List<Member> members, int count, String namePrefix,
+                          String kind, String role) {
+        for (int i = 1; i <= count; i++) {
+            String name = namePrefix + i;
+            String username = USERNAME_PREFIX + kind + "_" + i;
+            rows.add(new Object[]{name, username, passwordHash, role});
+            members.add(new Member(0, name, username, role));
+        }
+    }
+
+    private static SeededClinic group(List<Member> members, boolean created) {
+        List<Member> doctors = new ArrayList<>();
+        List<Member> staff = new ArrayList<>();
+        List<Member> patients = new ArrayList<>();
+        for (Member m : members) {
+            switch (m.role()) {
+                case "Doctor" -> doctors.add(m);
+                case "Patient" -> patients.add(m);
+                default -> staff.add(m);
+            }
+        }
+        if (doctors.isEmpty() || patients.isEmpty()) {
+            throw new IllegalStateException("The existing load_ users have no doctors or no patients; "
+                    + "delete them to seed again.");
+        }
+        return new SeededClinic(doctors, staff, patients, created);
+    }
+
+    // ================== CLINICAL HISTORY ==================
+    /** A seeded past booking; status indexes BOOKING_STATUSES and APPOINTMENT_STATUSES. */
+    private record PastBooking(Member patient, Member doctor, LocalDate date, LocalTime time, int status) {
+    }
+
+    private static final String[] BOOKING_STATUSES = {"Approved", "Approved", "Pending", "Cancelled"};
+    private static final String[] APPOINTMENT_STATUSES = {"COMPLETED", "COMPLETED", "SCHEDULED", "CANCELLED"};
+
+    /**
+     * Past bookings. Doctors are assigned round-robin and each doctor's slots
+     * are used in order, so no two bookings share a doctor slot
+     * (uq_bookings_doctor_slot).
+     */
+    private List<PastBooking> planBookings(SeededClinic clinic, SplittableRandom random) {
+        int doctors = clinic.doctors().size();
+        int slotsPerDay = clinicSlots().size();
+        int total = clinic.patients().size() * config.getBookingsPerPatient();
+        LocalDate first = today.minusDays(config.getHistoryDays());
+
+        List<PastBooking> bookings = new ArrayList<>(total);
+        for (int n = 0; n < total; n++) {
+            int slotIndex = n / doctors;
+            bookings.add(new PastBooking(clinic.patients().get(n / config.getBookingsPerPatient()),
+                    clinic.doctors().get(n % doctors), first.plusDays(slotIndex / slotsPerDay),
+                    clinicSlots().get(slotIndex % slotsPerDay), random.nextInt(BOOKING_STATUSES.length)));
+        }
+        return bookings;
+    }
+
+    private long[] insertBookings(List<PastBooking> bookings, SplittableRandom random) throws SQLException {
+        List<Object[]> rows = new ArrayList<>(bookings.size());
+        for (PastBooking b : bookings) {
+            rows.add(new Object[]{b.patient().userId(), b.doctor().userId(), Date.valueOf(b.date()),
+                    Time.valueOf(b.time()), SYMPTOMS[random.nextInt(SYMPTOMS.length)],
+                    random.nextBoolean() ? "Video" : "Audio", BOOKING_STATUSES[b.status()]});
+        }
+        return insert(INSERT_BOOKINGS, rows);
+    }
+
+    /** One appointment per booking, linked by booking_id. */
+    private long[] insertAppointments(List<PastBooking> bookings, long[] bookingIds) throws SQLException {
+        List<Object[]> rows = new ArrayList<>(bookings.size());
+        for (int i = 0; i < bookings.size(); i++) {
+            PastBooking b = bookings.get(i);
+            rows.add(new Object[]{b.patient().name(), b.doctor().name(), Date.valueOf(b.date()), Time.valueOf(b.time()),
+                    APPOINTMENT_STATUSES[b.status()], bookingIds[i], "General", null,
+                    b.patient().userId(), b.doctor().userId()});
+        }
+        return insert(INSERT_APPOINTMENTS, rows);
+    }
+
+    /** A diagnosis for every completed appointment. */
+    private int insertDiagnoses(List<PastBooking> bookings, long[] appointmentIds, SplittableRandom random)
+            throws SQLException {
+        String[] severities = {"MILD", "MODERATE", "SEVERE"};
+        String[] statuses = {"ACTIVE", "ONGOING", "RESOLVED"};
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < bookings.size(); i++) {
+            PastBooking b = bookings.get(i);
+            if (!"COMPLETED".equals(APPOINTMENT_STATUSES[b.status()])) continue;
+            String text = DIAGNOSES[random.nextInt(DIAGNOSES.length)];
+            rows.add(new Object[]{appointmentIds[i], b.patient().name(), b.doctor().name(), text,
+                    SYMPTOMS[random.nextInt(SYMPTOMS.length)], SuggestionEngine.getInstance().prescription(text),
+                    "Rest and review", "Follow up in two weeks", Timestamp.valueOf(b.date().atTime(b.time())),
+                    severities[random.nextInt(severities.length)], statuses[random.nextInt(statuses.length)],
+                    b.patient().userId(), b.doctor().userId()});
+        }
+        insert(INSERT_DIAGNOSES, rows);
+        return rows.size();
+    }
+
+    /** About one referral per ten patients. */
+    private int insertReferrals(SeededClinic clinic, SplittableRandom random) throws SQLException {
+        String[] urgencies = {"LOW", "MEDIUM", "MEDIUM", "HIGH", "EMERGENCY"};
+        String[] statuses = {"PENDING", "CONFIRMED", "COMPLETED"};
+        List<Object[]> rows = new ArrayList<>();
+        for (int p = 0; p < clinic.patients().size(); p += 10) {
+            LocalDate date = today.minusDays(random.nextInt(config.getHistoryDays()));
+            Member doctor = clinic.doctors().get(random.nextInt(clinic.doctors().size()));
+            Member patient = clinic.patients().get(p);
+            rows.add(new Object[]{patient.name(), doctor.name(),
+                    HOSPITALS[random.nextInt(HOSPITALS.length)], DEPARTMENTS[random.nextInt(DEPARTMENTS.length)],
+                    SYMPTOMS[random.nextInt(SYMPTOMS.length)], urgencies[random.nextInt(urgencies.length)],
+                    Date.valueOf(date), Date.valueOf(date.plusDays(7)), statuses[random.nextInt(statuses.length)],
+                    patient.userId(), doctor.userId()});
+        }
+        insert(INSERT_REFERRALS, rows);
+        return rows.size();
+    }
+
+    /** About one refill request per five patients. */
+    private int insertRefills(SeededClinic clinic, SplittableRandom random) throws SQLException {
+        String[] statuses = {"Pending", "Approved", "Approved", "Rejected"};
+        List<Object[]> rows = new ArrayList<>();
+        for (int p = 0; p < clinic.patients().size(); p += 5) {
+            Member patient = clinic.patients().get(p);
+            rows.add(new Object[]{patient.name(), MEDICATIONS[random.nextInt(MEDICATIONS.length)],
+                    7 * (1 + random.nextInt(4)), null, statuses[random.nextInt(statuses.length)], patient.userId()});
+        }
+        insert(INSERT_REFILLS, rows);
+        return rows.size();
+    }
+
+    /** vitalsPerPatient readings per patient, written the way the ingest service writes them. */
+    private int insertVitals(SeededClinic clinic, SplittableRandom random) throws SQLException {
+        VitalsBatchWriter writer = new VitalsBatchWriter(connections);
+        long start = today.minusDays(config.getHistoryDays()).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        long span = config.getHistoryDays() * 86_400_000L;
+        List<VitalsSubmission> batch = new ArrayList<>(config.getSeedBatchSize());
+        int written = 0;
+        for (Member patient : clinic.patients()) {
+            for (int i = 0; i < config.getVitalsPerPatient(); i++) {
+                long at = start + span * i / Math.max(1, config.getVitalsPerPatient()) + random.nextLong(3_600_000L);
+                batch.add(randomVitals(patient.userId(), at, random));
+                if (batch.size() == config.getSeedBatchSize()) {
+                    written += writer.write(batch).length;
+                    batch.clear();
+                }
+            }
+        }
+        written += writer.write(batch).length;
+        return written;
+    }
+
+    /** A plausible reading: mostly normal, occasionally out of range so alerts are exercised too. */
+    static VitalsSubmission randomVitals(int userId, long recordedAt, SplittableRandom random) {
+        boolean abnormal = random.nextInt(20) == 0;
+        int systolic = abnormal ? 150 + random.nextInt(30) : 110 + random.nextInt(25);
+        return new VitalsSubmission(userId,
+                abnormal ? 115 + random.nextInt(20) : 60 + random.nextInt(35),
+                BigDecimal.valueOf(abnormal ? 380 + random.nextInt(15) : 361 + random.nextInt(12), 1),
+                12 + random.nextInt(8),
+                systolic + "/" + (70 + random.nextInt(20)),
+                BigDecimal.valueOf(5000 + random.nextInt(4000), 2),
+                BigDecimal.valueOf(15500 + random.nextInt(3500), 2),
+                BigDecimal.valueOf(abnormal ? 880 + random.nextInt(50) : 950 + random.nextInt(50), 1),
+                recordedAt);
+    }
+
+    /** Bookable times in clinic hours, 08:00 to 17:30, on the availability grid. */
+    static List<LocalTime> clinicSlots() {
+        return CLINIC_SLOTS;
+    }
+
+    private static final List<LocalTime> CLINIC_SLOTS;
+
+    static {
+        List<LocalTime> slots = new ArrayList<>();
+        for (LocalTime t = LocalTime.of(8, 0); t.isBefore(LocalTime.of(18, 0)); t = t.plusMinutes(AvailabilityIndex.SLOT_MINUTES)) {
+            slots.add(t);
+        }
+        CLINIC_SLOTS = Collections.unmodifiableList(slots);
+    }
+
+    // ================== BATCHED INSERT ==================
+    /**
+     * Insert rows with multi-row INSERTs of up to seedBatchSize rows and return
+     * the generated keys in row order.
+     */
+    private long[] insert(String prefix, List<Object[]> rows) throws SQLException {
+        long[] ids = new long[rows.size()];
+        int batchSize = config.getSeedBatchSize();
+        for (int from = 0; from < rows.size(); from += batchSize) {
+            List<Object[]> chunk = rows.subList(from, Math.min(rows.size(), from + batchSize));
+            String row = "(" + String.join(", ", Collections.nCopies(chunk.get(0).length, "?")) + ")";
+            String sql = prefix + String.join(", ", Collections.nCopies(chunk.size(), row));
+
+            try (Connection conn = connections.create();
+                 PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                int index = 1;
+                for (Object[] values : chunk) {
+                    for (Object value : values) {
+                        ps.setObject(index++, value);
+                    }
+                }
+                ps.executeUpdate();
+
+                // MySQL returns consecutive keys for a multi-row insert, in row order
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    for (int i = from; i < from + chunk.size() && keys.next(); i++) {
+                        ids[i] = keys.getLong(1);
+                    }
+                }
+            }
+        }
+        return ids;
+    }
+}
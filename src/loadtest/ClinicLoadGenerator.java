@@ -0,0 +1,272 @@
+package loadtest;
+
+import database.DatabaseHelper;
+import database.SlotConflictException;
+import events.EventBus;
+import loadtest.ClinicDataSeeder.Member;
+import loadtest.ClinicDataSeeder.SeededClinic;
+import loadtest.OperationMix.Operation;
+import security.LoginThrottledException;
+import services.AuthService;
+import services.BookingService;
+import services.ReportService;
+import services.VitalsService;
+import utils.DbExecutor;
+import utils.LatencyHistogram;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * End-to-end load test for the clinic database: seeds a synthetic clinic with
+ * {@link ClinicDataSeeder}, then runs one client per simulated user that keeps
+ * signing in, booking and cancelling, submitting vitals and generating health
+ * reports through the same service classes the screens use. Prints p50/p95/p99
+ * latency and throughput per operation.
+ *
+ * Usage: ClinicLoadGenerator with the -Dtelehealth.load.* settings in
+ * {@link LoadTestConfig}; pool size is set as usual with -Dtelehealth.pool.*.
+ */
+public class ClinicLoadGenerator {
+
+    /** Counters for one operation type; latencies only after the warm-up. */
+    public static final class OperationStats {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder conflicts = new LongAdder();
+        private final LongAdder skipped = new LongAdder();
+        private final LongAdder throttled = new LongAdder();
+        private final AtomicBoolean errorPrinted = new AtomicBoolean();
+
+        public LatencyHistogram getLatency() { return latency; }
+        public long getErrors() { return errors.sum(); }
+        public long getConflicts() { return conflicts.sum(); }
+        public long getSkipped() { return skipped.sum(); }
+        public long getThrottled() { return throttled.sum(); }
+    }
+
+    private final LoadTestConfig config;
+    private final OperationMix mix;
+    private final SeededClinic clinic;
+    private final AuthService auth;
+    private final BookingService bookings;
+    private final VitalsService vitals;
+    private final ReportService reports;
+
+    private final Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+    private final ConcurrentLinkedQueue<Long> cancellable = new ConcurrentLinkedQueue<>();
+    private volatile long measureFromNanos;
+
+    public ClinicLoadGenerator(LoadTestConfig config, SeededClinic clinic, AuthService auth, BookingService bookings,
+                               VitalsService vitals, ReportService reports) {
+        config.validate();
+        this.config = config;
+        this.mix = OperationMix.parse(config.getMix());
+        this.clinic = clinic;
+        this.auth = auth;
+        this.bookings = bookings;
+        this.vitals = vitals;
+        this.reports = reports;
+        for (Operation op : Operation.values()) {
+            stats.put(op, new OperationStats());
+        }
+    }
+
+    /** Run all clients for warm-up plus duration; returns the measured seconds. */
+    public double run() throws InterruptedException {
+        ExecutorService executor = DbExecutor.newVirtualThreadExecutorOrNull();
+        if (executor == null) {
+            executor = DbExecutor.newBoundedExecutor("load-client", Math.min(config.getClients(), 500));
+        }
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "load-reporter");
+            t.setDaemon(true);
+            return t;
+        });
+
+        long start = System.nanoTime();
+        measureFromNanos = start + TimeUnit.SECONDS.toNanos(config.getWarmupSeconds());
+        long end = measureFromNanos + TimeUnit.SECONDS.toNanos(config.getDurationSeconds());
+        reporter.scheduleAtFixedRate(() -> System.out.println(progressLine()),
+                config.getReportIntervalMs(), config.getReportIntervalMs(), TimeUnit.MILLISECONDS);
+        try {
+            for (int c = 0; c < config.getClients(); c++) {
+                SplittableRandom random = new SplittableRandom(config.getSeed() * 31 + c);
+                String address = "10.0." + (c / 250) + "." + (c % 250 + 1); // each client is its own terminal
+                executor.execute(() -> runClient(random, address, end));
+            }
+            executor.shutdown();
+            executor.awaitTermination(config.getWarmupSeconds() + config.getDurationSeconds() + 120L, TimeUnit.SECONDS);
+        } finally {
+            reporter.shutdownNow();
+            executor.shutdownNow();
+        }
+        // Clients stop when their next step would fall after the end, but the window still ran to it
+        return (Math.max(System.nanoTime(), end) - measureFromNanos) / 1e9;
+    }
+
+    private void runClient(SplittableRandom random, String address, long endNanos) {
+        // Spread the first step over one think time so clients do not start in lockstep
+        long next = System.nanoTime() + random.nextLong(TimeUnit.MILLISECONDS.toNanos(config.getThinkTimeMs()) + 1);
+        while (next < endNanos) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(Math.max(0, next - System.nanoTime()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            step(mix.pick(random), random, address);
+            next = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.getThinkTimeMs());
+        }
+    }
+
+    /** Perform one operation and record its outcome. */
+    void step(Operation op, SplittableRandom random, String address) {
+        OperationStats s = stats.get(op);
+        long start = System.nanoTime();
+        try {
+            if (!execute(op, random, address)) {
+                s.skipped.increment();
+                return;
+            }
+        } catch (LoginThrottledException e) {
+            s.throttled.increment(); // the rate limiter answered; not a failure of the system under test
+            return;
+        } catch (SlotConflictException e) {
+            s.conflicts.increment(); // another client got the slot first; a normal outcome under load
+        } catch (Exception e) {
+            s.errors.increment();
+            if (s.errorPrinted.compareAndSet(false, true)) {
+                e.printStackTrace(); // first failure of each kind only, the rest are counted
+            }
+            return;
+        }
+        if (start >= measureFromNanos) {
+            s.latency.recordSince(start);
+        }
+    }
+
+    // ================== OPERATIONS ==================
+    /** Returns false if there was nothing to do, e.g. no booking left to cancel. */
+    private boolean execute(Operation op, SplittableRandom random, String address) throws Exception {
+        switch (op) {
+            case LOGIN -> {
+                Member member = randomMember(random);
+                if (auth.authenticate(member.username(), ClinicDataSeeder.PASSWORD, address) == null) {
+                    throw new IllegalStateException("Seeded login rejected for " + member.username());
+                }
+            }
+            case BOOKING_CREATE -> {
+                Member patient = pick(clinic.patients(), random);
+                Member doctor = pick(clinic.doctors(), random);
+                List<LocalTime> slots = ClinicDataSeeder.clinicSlots();
+                LocalDate date = LocalDate.now().plusDays(1 + random.nextInt(config.getBookingDays()));
+                long id = bookings.create(new BookingService.BookingRequest(patient.userId(), patient.name(),
+                        doctor.userId(), date, slots.get(random.nextInt(slots.size())),
+                        "Load test booking", random.nextBoolean() ? "Video" : "Audio", null));
+                if (id > 0) cancellable.add(id);
+            }
+            case BOOKING_CANCEL -> {
+                Long id = cancellable.poll();
+                if (id == null) return false;
+                bookings.cancel(id.intValue());
+            }
+            case VITALS_SUBMIT -> vitals.submit(ClinicDataSeeder.randomVitals(pick(clinic.patients(), random).userId(),
+                    System.currentTimeMillis(), random));
+            case REPORT -> reports.generate(pick(clinic.patients(), random).userId());
+        }
+        return true;
+    }
+
+    private Member randomMember(SplittableRandom random) {
+        int staff = clinic.doctors().size() + clinic.staff().size();
+        int r = random.nextInt(staff + clinic.patients().size());
+        if (r < clinic.doctors().size()) return clinic.doctors().get(r);
+        if (r < staff) return clinic.staff().get(r - clinic.doctors().size());
+        return clinic.patients().get(r - staff);
+    }
+
+    private static Member pick(List<Member> members, SplittableRandom random) {
+        return members.get(random.nextInt(members.size()));
+    }
+
+    // ================== RESULTS ==================
+    public Map<Operation, OperationStats> getStats() {
+        return stats;
+    }
+
+    private String progressLine() {
+        StringBuilder sb = new StringBuilder(System.nanoTime() < measureFromNanos ? "[warm-up]" : "[measuring]");
+        for (Operation op : Operation.values()) {
+            if (mix.share(op) == 0) continue;
+            OperationStats s = stats.get(op);
+            sb.append(String.format(Locale.ROOT, " %s n=%d p95=%.1fms err=%d;", op.key(),
+                    s.latency.getCount(), s.latency.getPercentileMillis(95), s.getErrors()));
+        }
+        return sb.toString();
+    }
+
+    /** Table of throughput and latency per operation over the measured seconds. */
+    public String report(double seconds) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "%-14s %9s %9s %9s %9s %9s %9s %8s %9s %9s %8s%n", "operation", "count",
+                "ops/s", "p50 ms", "p95 ms", "p99 ms", "max ms", "errors", "conflicts", "throttled", "skipped"));
+        long totalCount = 0;
+        for (Operation op : Operation.values()) {
+            if (mix.share(op) == 0) continue;
+            OperationStats s = stats.get(op);
+            LatencyHistogram h = s.latency;
+            totalCount += h.getCount();
+            sb.append(String.format(Locale.ROOT, "%-14s %9d %9.1f %9.2f %9.2f %9.2f %9.2f %8d %9d %9d %8d%n", op.key(),
+                    h.getCount(), seconds > 0 ? h.getCount() / seconds : 0, h.getPercentileMillis(50),
+                    h.getPercentileMillis(95), h.getPercentileMillis(99), h.getMaxMillis(), s.getErrors(),
+                    s.getConflicts(), s.getThrottled(), s.getSkipped()));
+        }
+        sb.append(String.format(Locale.ROOT, "%-14s %9d %9.1f%n", "total", totalCount,
+                seconds > 0 ? totalCount / seconds : 0));
+        return sb.toString();
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.fromSystemProperties();
+        try {
+            AuthService auth = AuthService.getInstance();
+            ClinicDataSeeder seeder = new ClinicDataSeeder(DatabaseHelper::getConnection, config,
+                    auth.hashPassword(ClinicDataSeeder.PASSWORD), LocalDate.now());
+            long seedStart = System.nanoTime();
+            SeededClinic clinic = seeder.seed();
+            if (clinic.created()) {
+                System.out.printf("Seeded %s in %.1fs%n", seeder.getCounts(), (System.nanoTime() - seedStart) / 1e9);
+            } else {
+                System.out.printf("Reusing %d doctors, %d staff and %d patients already in the database%n",
+                        clinic.doctors().size(), clinic.staff().size(), clinic.patients().size());
+            }
+
+            ClinicLoadGenerator generator = new ClinicLoadGenerator(config, clinic, auth,
+                    new BookingService(), new VitalsService(), new ReportService());
+            System.out.printf("Running %d clients for %ds after %ds warm-up (%s)%s%n", config.getClients(),
+                    config.getDurationSeconds(), config.getWarmupSeconds(), OperationMix.parse(config.getMix()),
+                    DbExecutor.usesVirtualThreads() ? " on virtual threads" : "");
+            double seconds = generator.run();
+            System.out.print(generator.report(seconds));
+            System.out.println("Pool: " + DatabaseHelper.getPoolMetrics());
+            System.out.println("Logins: " + auth.metrics());
+        } finally {
+            AuthService.shutdown();
+            EventBus.getInstance().close();
+            DatabaseHelper.shutdown();
+        }
+    }
+}
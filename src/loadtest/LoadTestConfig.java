@@ -0,0 +1,95 @@
+package loadtest;
+
+/**
+ * Settings for {@link ClinicLoadGenerator}. Every value can be overridden with
+ * a system property prefixed by "telehealth.load." (e.g. -Dtelehealth.load.clients=1000).
+ */
+public class LoadTestConfig {
+
+    // Seeded clinic
+    private int doctors = 150;
+    private int staff = 50;                  // Admin accounts, e.g. reception
+    private int patients = 5_000;
+    private int bookingsPerPatient = 3;
+    private int vitalsPerPatient = 10;
+    private int historyDays = 90;            // seeded rows are spread over this many past days
+    private int seedBatchSize = 500;         // rows per multi-row INSERT while seeding
+    private long seed = 42;                  // same seed, same clinic and same sequence of operations
+
+    // Workload
+    private int clients = 5_200;             // one virtual thread per signed-in user
+    private int durationSeconds = 60;
+    private int warmupSeconds = 10;          // operations run but are not measured
+    private long thinkTimeMs = 1_000;        // pause between a client's operations
+    private int bookingDays = 30;            // new bookings go into the next N days
+    private String mix = "login=20,bookingCreate=20,bookingCancel=10,vitals=40,report=10";
+    private long reportIntervalMs = 10_000;
+
+    public static LoadTestConfig fromSystemProperties() {
+        LoadTestConfig config = new LoadTestConfig();
+        config.doctors = Integer.getInteger("telehealth.load.doctors", config.doctors);
+        config.staff = Integer.getInteger("telehealth.load.staff", config.staff);
+        config.patients = Integer.getInteger("telehealth.load.patients", config.patients);
+        config.bookingsPerPatient = Integer.getInteger("telehealth.load.bookingsPerPatient", config.bookingsPerPatient);
+        config.vitalsPerPatient = Integer.getInteger("telehealth.load.vitalsPerPatient", config.vitalsPerPatient);
+        config.historyDays = Integer.getInteger("telehealth.load.historyDays", config.historyDays);
+        config.seedBatchSize = Integer.getInteger("telehealth.load.seedBatchSize", config.seedBatchSize);
+        config.seed = Long.getLong("telehealth.load.seed", config.seed);
+        config.clients = Integer.getInteger("telehealth.load.clients", config.clients);
+        config.durationSeconds = Integer.getInteger("telehealth.load.durationSeconds", config.durationSeconds);
+        config.warmupSeconds = Integer.getInteger("telehealth.load.warmupSeconds", config.warmupSeconds);
+        config.thinkTimeMs = Long.getLong("telehealth.load.thinkTimeMs", config.thinkTimeMs);
+        config.bookingDays = Integer.getInteger("telehealth.load.bookingDays", config.bookingDays);
+        config.mix = System.getProperty("telehealth.load.mix", config.mix);
+        config.reportIntervalMs = Long.getLong("telehealth.load.reportIntervalMs", config.reportIntervalMs);
+        config.validate();
+        return config;
+    }
+
+    public void validate() {
+        if (doctors < 1 || patients < 1 || staff < 0) {
+            throw new IllegalArgumentException("doctors and patients must be at least 1 and staff not negative");
+        }
+        if (bookingsPerPatient < 0 || vitalsPerPatient < 0 || historyDays < 1 || seedBatchSize < 1) {
+            throw new IllegalArgumentException("seed sizes must not be negative; historyDays and seedBatchSize at least 1");
+        }
+        if (clients < 1 || durationSeconds < 1 || warmupSeconds < 0 || thinkTimeMs < 0 || bookingDays < 1) {
+            throw new IllegalArgumentException("clients, durationSeconds and bookingDays must be at least 1");
+        }
+        OperationMix.parse(mix);
+    }
+
+    // Getters
+    public int getDoctors() { return doctors; }
+    public int getStaff() { return staff; }
+    public int getPatients() { return patients; }
+    public int getBookingsPerPatient() { return bookingsPerPatient; }
+    public int getVitalsPerPatient() { return vitalsPerPatient; }
+    public int getHistoryDays() { return historyDays; }
+    public int getSeedBatchSize() { return seedBatchSize; }
+    public long getSeed() { return seed; }
+    public int getClients() { return clients; }
+    public int getDurationSeconds() { return durationSeconds; }
+    public int getWarmupSeconds() { return warmupSeconds; }
+    public long getThinkTimeMs() { return thinkTimeMs; }
+    public int getBookingDays() { return bookingDays; }
+    public String getMix() { return mix; }
+    public long getReportIntervalMs() { return reportIntervalMs; }
+
+    // Setters
+    public void setDoctors(int doctors) { this.doctors = doctors; }
+    public void setStaff(int staff) { this.staff = staff; }
+    public void setPatients(int patients) { this.patients = patients; }
+    public void setBookingsPerPatient(int bookingsPerPatient) { this.bookingsPerPatient = bookingsPerPatient; }
+    public void setVitalsPerPatient(int vitalsPerPatient) { this.vitalsPerPatient = vitalsPerPatient; }
+    public void setHistoryDays(int historyDays) { this.historyDays = historyDays; }
+    public void setSeedBatchSize(int seedBatchSize) { this.seedBatchSize = seedBatchSize; }
+    public void setSeed(long seed) { this.seed = seed; }
+    public void setClients(int clients) { this.clients = clients; }
+    public void setDurationSeconds(int durationSeconds) { this.durationSeconds = durationSeconds; }
+    public void setWarmupSeconds(int warmupSeconds) { this.warmupSeconds = warmupSeconds; }
+    public void setThinkTimeMs(long thinkTimeMs) { this.thinkTimeMs = thinkTimeMs; }
+    public void setBookingDays(int bookingDays) { this.bookingDays = bookingDays; }
+    public void setMix(String mix) { this.mix = mix; }
+    public void setReportIntervalMs(long reportIntervalMs) { this.reportIntervalMs = reportIntervalMs; }
+}
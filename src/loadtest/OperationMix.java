@@ -0,0 +1,107 @@
+package loadtest;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.random.RandomGenerator;
+
+/**
+ * Relative weights of the operations a simulated client performs, parsed from
+ * a spec such as "login=20,bookingCreate=20,bookingCancel=10,vitals=40,report=10".
+ * Operations left out of the spec are never picked.
+ */
+public final class OperationMix {
+
+    /** What a client does in one step, named as in the mix spec. */
+    public enum Operation {
+        LOGIN("login"),
+        BOOKING_CREATE("bookingCreate"),
+        BOOKING_CANCEL("bookingCancel"),
+        VITALS_SUBMIT("vitals"),
+        REPORT("report");
+
+        private final String key;
+
+        Operation(String key) {
+            this.key = key;
+        }
+
+        public String key() {
+            return key;
+        }
+
+        static Operation fromKey(String key) {
+            for (Operation op : values()) {
+                if (op.key.equalsIgnoreCase(key)) return op;
+            }
+            throw new IllegalArgumentException("Unknown operation '" + key + "' in load mix");
+        }
+    }
+
+    private static final Operation[] OPERATIONS = Operation.values();
+
+    private final int[] cumulative = new int[OPERATIONS.length];
+    private final int total;
+
+    private OperationMix(Map<Operation, Integer> weights) {
+        int sum = 0;
+        for (Operation op : OPERATIONS) {
+            sum += weights.getOrDefault(op, 0);
+            cumulative[op.ordinal()] = sum;
+        }
+        this.total = sum;
+    }
+
+    public static OperationMix parse(String spec) {
+        if (spec == null || spec.isBlank()) {
+            throw new IllegalArgumentException("Load mix is empty");
+        }
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String part : spec.split(",")) {
+            String[] pair = part.trim().split("=");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Expected name=weight in load mix, got '" + part.trim() + "'");
+            }
+            int weight;
+            try {
+                weight = Integer.parseInt(pair[1].trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Weight for " + pair[0].trim() + " is not a number", e);
+            }
+            if (weight < 0) {
+                throw new IllegalArgumentException("Weight for " + pair[0].trim() + " is negative");
+            }
+            weights.merge(Operation.fromKey(pair[0].trim()), weight, Integer::sum);
+        }
+        OperationMix mix = new OperationMix(weights);
+        if (mix.total == 0) {
+            throw new IllegalArgumentException("Load mix has no operation with a positive weight");
+        }
+        return mix;
+    }
+
+    public Operation pick(RandomGenerator random) {
+        int r = random.nextInt(total);
+        for (Operation op : OPERATIONS) {
+            if (r < cumulative[op.ordinal()]) return op;
+        }
+        throw new IllegalStateException("unreachable");
+    }
+
+    /** Share of steps that are this operation, 0-1. */
+    public double share(Operation op) {
+        int previous = op.ordinal() == 0 ? 0 : cumulative[op.ordinal() - 1];
+        return (cumulative[op.ordinal()] - previous) / (double) total;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (Operation op : OPERATIONS) {
+            if (share(op) == 0) continue;
+            if (sb.length() > 0) sb.append(", ");
+            sb.append(op.key()).append(' ').append(String.format(Locale.ROOT, "%.0f%%", share(op) * 100));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,104 @@
+package migration;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Fills the user id columns of name-keyed tables from users. Each table is
+ * walked in primary-key ranges of batchSize; every range is one UPDATE
+ * committed together with its checkpoint, so locks stay short and an
+ * interrupted run resumes at the next range.
+ *
+ * A name maps to the lowest user_id with that name and role, the same rule as
+ * {@link database.ReferenceDataCache#findByName}. Rows whose name matches no
+ * user keep a NULL id and are counted in the report.
+ */
+public class IdBackfillMigration implements Migration {
+
+    /**
+     * A table whose rows name a patient and optionally a doctor. doctorName and
+     * doctorId are null for tables without a doctor.
+     */
+    public record LinkedTable(String table, String key, String patientName, String patientId,
+                              String doctorName, String doctorId) {
+
+        boolean hasDoctor() {
+            return doctorName != null;
+        }
+    }
+
+    private final int version;
+    private final List<LinkedTable> tables;
+
+    public IdBackfillMigration(int version, List<LinkedTable> tables) {
+        this.version = version;
+        this.tables = List.copyOf(tables);
+    }
+
+    @Override
+    public int version() {
+        return version;
+    }
+
+    @Override
+    public String description() {
+        return "Backfill patient and doctor ids from users";
+    }
+
+    @Override
+    public void apply(MigrationContext context) throws SQLException, InterruptedException {
+        for (LinkedTable table : tables) {
+            backfill(context, table);
+        }
+    }
+
+    private void backfill(MigrationContext context, LinkedTable t) throws SQLException, InterruptedException {
+        String update = updateSql(t);
+        long maxKey = context.queryLong("SELECT COALESCE(MAX(" + t.key() + "), 0) FROM " + t.table());
+        long from = context.checkpoint(version, t.table());
+        long resumedAt = from;
+        long linked = 0;
+        while (from < maxKey) {
+            long start = from;
+            long end = Math.min(maxKey, from + context.config().getBatchSize());
+            linked += context.inTransaction(() -> {
+                int rows = context.update(update, start, end);
+                context.saveCheckpoint(version, t.table(), end, rows);
+                return rows;
+            });
+            from = end;
+            if (context.config().getPauseMs() > 0 && from < maxKey) {
+                Thread.sleep(context.config().getPauseMs());
+            }
+        }
+        long unmatched = context.queryLong(unmatchedSql(t));
+        context.note(String.format(Locale.ROOT, "%-20s %,d rows linked%s, %,d without a matching user",
+                t.table(), linked, resumedAt > 0 ? " (resumed after key " + resumedAt + ")" : "", unmatched));
+    }
+
+    static String updateSql(LinkedTable t) {
+        StringBuilder sql = new StringBuilder("UPDATE ").append(t.table()).append(" t SET ")
+                .append(assignId(t.patientId(), t.patientName(), "Patient"));
+        String pending = "t." + t.patientId() + " IS NULL";
+        if (t.hasDoctor()) {
+            sql.append(", ").append(assignId(t.doctorId(), t.doctorName(), "Doctor"));
+            pending = "(" + pending + " OR t." + t.doctorId() + " IS NULL)";
+        }
+        return sql.append(" WHERE t.").append(t.key()).append(" > ? AND t.").append(t.key()).append(" <= ? AND ")
+                .append(pending).toString();
+    }
+
+    private static String assignId(String idColumn, String nameColumn, String role) {
+        return "t." + idColumn + " = COALESCE(t." + idColumn + ", (SELECT MIN(u.user_id) FROM users u "
+                + "WHERE u.name = t." + nameColumn + " AND u.role = '" + role + "'))";
+    }
+
+    static String unmatchedSql(LinkedTable t) {
+        String sql = "SELECT COUNT(*) FROM " + t.table() + " WHERE " + t.patientId() + " IS NULL";
+        if (t.hasDoctor()) {
+            sql += " OR (" + t.doctorName() + " IS NOT NULL AND " + t.doctorId() + " IS NULL)";
+        }
+        return sql;
+    }
+}
@@ -0,0 +1,18 @@
+package migration;
+
+import java.sql.SQLException;
+
+/**
+ * One versioned schema change. Versions are applied once, in ascending order,
+ * and recorded in schema_migrations. MySQL commits DDL as it runs, so apply
+ * must be safe to run again after a crash part way through: check before
+ * adding a column or index, and checkpoint long data changes.
+ */
+public interface Migration {
+
+    int version();
+
+    String description();
+
+    void apply(MigrationContext context) throws SQLException, InterruptedException;
+}
@@ -0,0 +1,53 @@
+package migration;
+
+/**
+ * Settings for {@link MigrationRunner}. Every value can be overridden with a
+ * system property prefixed by "telehealth.migration." (e.g. -Dtelehealth.migration.batchSize=5000).
+ */
+public class MigrationConfig {
+
+    private boolean autoRun = true;          // the application applies pending migrations at startup
+    private int batchSize = 1_000;           // key range per backfill UPDATE, committed with its checkpoint
+    private long pauseMs = 0;                // sleep between backfill chunks to leave room for other traffic
+    private int lockTimeoutSeconds = 60;     // how long to wait while another client is migrating
+    private int benchmarkPatients = 50;      // patients sampled for the before/after latency report; 0 = no report
+    private int benchmarkRounds = 3;         // times each sampled query is run
+
+    public static MigrationConfig fromSystemProperties() {
+        MigrationConfig config = new MigrationConfig();
+        config.autoRun = Boolean.parseBoolean(System.getProperty("telehealth.migration.autoRun",
+                String.valueOf(config.autoRun)));
+        config.batchSize = Integer.getInteger("telehealth.migration.batchSize", config.batchSize);
+        config.pauseMs = Long.getLong("telehealth.migration.pauseMs", config.pauseMs);
+        config.lockTimeoutSeconds = Integer.getInteger("telehealth.migration.lockTimeoutSeconds", config.lockTimeoutSeconds);
+        config.benchmarkPatients = Integer.getInteger("telehealth.migration.benchmarkPatients", config.benchmarkPatients);
+        config.benchmarkRounds = Integer.getInteger("telehealth.migration.benchmarkRounds", config.benchmarkRounds);
+        config.validate();
+        return config;
+    }
+
+    public void validate() {
+        if (batchSize < 1 || benchmarkRounds < 1) {
+            throw new IllegalArgumentException("batchSize and benchmarkRounds must be at least 1");
+        }
+        if (pauseMs < 0 || lockTimeoutSeconds < 0 || benchmarkPatients < 0) {
+            throw new IllegalArgumentException("pauseMs, lockTimeoutSeconds and benchmarkPatients must not be negative");
+        }
+    }
+
+    // Getters
+    public boolean isAutoRun() { return autoRun; }
+    public int getBatchSize() { return batchSize; }
+    public long getPauseMs() { return pauseMs; }
+    public int getLockTimeoutSeconds() { return lockTimeoutSeconds; }
+    public int getBenchmarkPatients() { return benchmarkPatients; }
+    public int getBenchmarkRounds() { return benchmarkRounds; }
+
+    // Setters
+    public void setAutoRun(boolean autoRun) { this.autoRun = autoRun; }
+    public void setBatchSize(int batchSize) { this.batchSize = batchSize; }
+    public void setPauseMs(long pauseMs) { this.pauseMs = pauseMs; }
+    public void setLockTimeoutSeconds(int lockTimeoutSeconds) { this.lockTimeoutSeconds = lockTimeoutSeconds; }
+    public void setBenchmarkPatients(int benchmarkPatients) { this.benchmarkPatients = benchmarkPatients; }
+    public void setBenchmarkRounds(int benchmarkRounds) { this.benchmarkRounds = benchmarkRounds; }
+}
@@ -0,0 +1,131 @@
+package migration;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * What a {@link Migration} works with: the runner's connection (which holds
+ * the migration lock), schema lookups for idempotent DDL, and per-table
+ * checkpoints for resumable data changes.
+ */
+public class MigrationContext {
+
+    static final String TABLE_EXISTS = "SELECT COUNT(*) FROM information_schema.TABLES "
+            + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?";
+    static final String COLUMN_EXISTS = "SELECT COUNT(*) FROM information_schema.COLUMNS "
+            + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND COLUMN_NAME = ?";
+    static final String INDEX_EXISTS = "SELECT COUNT(*) FROM information_schema.STATISTICS "
+            + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND INDEX_NAME = ?";
+    static final String CONSTRAINT_EXISTS = "SELECT COUNT(*) FROM information_schema.TABLE_CONSTRAINTS "
+            + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND CONSTRAINT_NAME = ?";
+    static final String LOAD_CHECKPOINT = "SELECT last_key FROM schema_migration_progress "
+            + "WHERE version = ? AND table_name = ?";
+    static final String SAVE_CHECKPOINT = "INSERT INTO schema_migration_progress (version, table_name, last_key, "
+            + "rows_updated) VALUES (?, ?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE last_key = VALUES(last_key), rows_updated = rows_updated + VALUES(rows_updated)";
+
+    @FunctionalInterface
+    public interface TransactionWork<T> {
+        T run() throws SQLException;
+    }
+
+    private final Connection conn;
+    private final MigrationConfig config;
+    private final List<String> notes = new ArrayList<>();
+
+    MigrationContext(Connection conn, MigrationConfig config) {
+        this.conn = conn;
+        this.config = config;
+    }
+
+    public MigrationConfig config() {
+        return config;
+    }
+
+    // ================== SCHEMA ==================
+    public boolean tableExists(String table) throws SQLException {
+        return queryLong(TABLE_EXISTS, table) > 0;
+    }
+
+    public boolean columnExists(String table, String column) throws SQLException {
+        return queryLong(COLUMN_EXISTS, table, column) > 0;
+    }
+
+    public boolean indexExists(String table, String index) throws SQLException {
+        return queryLong(INDEX_EXISTS, table, index) > 0;
+    }
+
+    public boolean constraintExists(String table, String constraint) throws SQLException {
+        return queryLong(CONSTRAINT_EXISTS, table, constraint) > 0;
+    }
+
+    // ================== STATEMENTS ==================
+    public void execute(String sql) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.execute();
+        }
+    }
+
+    public int update(String sql, Object... params) throws SQLException {
+        try (PreparedStatement ps = prepare(sql, params)) {
+            return ps.executeUpdate();
+        }
+    }
+
+    /** First column of the first row as a long, or 0 if there is no row. */
+    public long queryLong(String sql, Object... params) throws SQLException {
+        try (PreparedStatement ps = prepare(sql, params); ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0L;
+        }
+    }
+
+    /** Run the work in one transaction; it is rolled back if it throws. */
+    public <T> T inTransaction(TransactionWork<T> work) throws SQLException {
+        conn.setAutoCommit(false);
+        try {
+            T result = work.run();
+            conn.commit();
+            return result;
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    private PreparedStatement prepare(String sql, Object... params) throws SQLException {
+        PreparedStatement ps = conn.prepareStatement(sql);
+        for (int i = 0; i < params.length; i++) {
+            ps.setObject(i + 1, params[i]);
+        }
+        return ps;
+    }
+
+    // ================== CHECKPOINTS ==================
+    /** Highest key already processed for this version and table, or 0 to start from the beginning. */
+    public long checkpoint(int version, String table) throws SQLException {
+        return queryLong(LOAD_CHECKPOINT, version, table);
+    }
+
+    /** Call inside the transaction that changed the rows, so progress and data commit together. */
+    public void saveCheckpoint(int version, String table, long lastKey, int rowsUpdated) throws SQLException {
+        update(SAVE_CHECKPOINT, version, table, lastKey, rowsUpdated);
+    }
+
+    // ================== NOTES ==================
+    /** A line for the migration report. */
+    public void note(String line) {
+        notes.add(line);
+    }
+
+    List<String> drainNotes() {
+        List<String> drained = new ArrayList<>(notes);
+        notes.clear();
+        return drained;
+    }
+}
@@ -0,0 +1,72 @@
+package migration;
+
+import utils.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * What a {@link MigrationRunner#migrate()} call applied, with the notes each
+ * migration left and, when enabled, query latency before and after.
+ */
+public class MigrationReport {
+
+    /** One applied version. */
+    public record Applied(int version, String description, long millis, List<String> notes) {
+    }
+
+    private final List<Applied> applied = new ArrayList<>();
+    private Map<String, LatencyHistogram> before = Map.of();
+    private Map<String, LatencyHistogram> after = Map.of();
+
+    void add(Applied version) {
+        applied.add(version);
+    }
+
+    void setLatency(Map<String, LatencyHistogram> before, Map<String, LatencyHistogram> after) {
+        this.before = before;
+        this.after = after;
+    }
+
+    public List<Applied> getApplied() {
+        return Collections.unmodifiableList(applied);
+    }
+
+    public boolean isEmpty() {
+        return applied.isEmpty();
+    }
+
+    public Map<String, LatencyHistogram> getBefore() { return before; }
+    public Map<String, LatencyHistogram> getAfter() { return after; }
+
+    @Override
+    public String toString() {
+        if (applied.isEmpty()) {
+            return "Schema is up to date.";
+        }
+        StringBuilder sb = new StringBuilder("Schema migrations applied:\n");
+        for (Applied version : applied) {
+            sb.append(String.format(Locale.ROOT, "  V%d %s (%d ms)%n", version.version(), version.description(),
+                    version.millis()));
+            for (String note : version.notes()) {
+                sb.append("      ").append(note).append('\n');
+            }
+        }
+        if (!before.isEmpty() && !after.isEmpty()) {
+            sb.append(String.format(Locale.ROOT, "Query latency, by name -> by id (ms):%n  %-20s %8s %8s   %8s %8s%n",
+                    "query", "p50", "p95", "p50", "p95"));
+            for (Map.Entry<String, LatencyHistogram> entry : before.entrySet()) {
+                LatencyHistogram was = entry.getValue();
+                LatencyHistogram now = after.get(entry.getKey());
+                if (now == null) continue;
+                sb.append(String.format(Locale.ROOT, "  %-20s %8.2f %8.2f   %8.2f %8.2f   (%d runs each)%n",
+                        entry.getKey(), was.getPercentileMillis(50), was.getPercentileMillis(95),
+                        now.getPercentileMillis(50), now.getPercentileMillis(95), now.getCount()));
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,176 @@
+package migration;
+
+import database.ConnectionPool;
+import database.DatabaseHelper;
+import utils.LatencyHistogram;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Applies pending {@link Migration}s in version order and records each one in
+ * schema_migrations. Every client runs this at startup, so the whole run holds
+ * a MySQL named lock: a second client waits, then finds nothing left to do.
+ *
+ * When a run has work to do and benchmarkPatients is above 0, the patient
+ * lookups are timed before the first and after the last migration and the
+ * comparison is part of the returned report.
+ */
+public class MigrationRunner {
+
+    static final String CREATE_VERSIONS = """
+        CREATE TABLE IF NOT EXISTS schema_migrations (
+            version int NOT NULL,
+            description varchar(255) NOT NULL,
+            applied_at timestamp NULL DEFAULT CURRENT_TIMESTAMP,
+            duration_ms bigint NOT NULL,
+            PRIMARY KEY (version)
+        )
+        """;
+    static final String CREATE_PROGRESS = """
+        CREATE TABLE IF NOT EXISTS schema_migration_progress (
+            version int NOT NULL,
+            table_name varchar(64) NOT NULL,
+            last_key bigint NOT NULL,
+            rows_updated bigint NOT NULL DEFAULT 0,
+            PRIMARY KEY (version, table_name)
+        )
+        """;
+    static final String APPLIED_VERSIONS = "SELECT version FROM schema_migrations";
+    static final String RECORD_VERSION = "INSERT INTO schema_migrations (version, description, duration_ms) "
+            + "VALUES (?, ?, ?)";
+    static final String LOCK = "SELECT GET_LOCK('telehealth_schema_migration', ?)";
+    static final String UNLOCK = "SELECT RELEASE_LOCK('telehealth_schema_migration')";
+    private static final String NO_SUCH_TABLE = "42S02";
+
+    private final ConnectionPool.ConnectionFactory connections;
+    private final MigrationConfig config;
+    private final List<Migration> migrations;
+
+    public MigrationRunner(MigrationConfig config) {
+        this(DatabaseHelper::getConnection, config, TelehealthMigrations.all());
+    }
+
+    public MigrationRunner(ConnectionPool.ConnectionFactory connections, MigrationConfig config,
+                           List<Migration> migrations) {
+        config.validate();
+        this.connections = connections;
+        this.config = config;
+        this.migrations = new ArrayList<>(migrations);
+        this.migrations.sort(Comparator.comparingInt(Migration::version));
+        for (int i = 1; i < this.migrations.size(); i++) {
+            if (this.migrations.get(i).version() == this.migrations.get(i - 1).version()) {
+                throw new IllegalArgumentException("Duplicate migration version " + this.migrations.get(i).version());
+            }
+        }
+    }
+
+    // ================== MIGRATE ==================
+    /**
+     * Apply every migration not yet recorded. A failure stops the run; the
+     * versions before it stay recorded and the next run starts at the failed one.
+     */
+    public MigrationReport migrate() throws SQLException, InterruptedException {
+        MigrationReport report = new MigrationReport();
+        try (Connection conn = connections.create()) {
+            lock(conn);
+            try {
+                MigrationContext context = new MigrationContext(conn, config);
+                context.execute(CREATE_VERSIONS);
+                context.execute(CREATE_PROGRESS);
+                List<Migration> pending = pending(conn);
+                if (pending.isEmpty()) {
+                    return report;
+                }
+
+                QueryLatencyProbe probe = new QueryLatencyProbe(config);
+                Map<String, LatencyHistogram> before = probe.isEnabled() ? probe.measure(conn, false) : Map.of();
+                for (Migration migration : pending) {
+                    long start = System.nanoTime();
+                    migration.apply(context);
+                    long millis = (System.nanoTime() - start) / 1_000_000;
+                    context.update(RECORD_VERSION, migration.version(), migration.description(), millis);
+                    report.add(new MigrationReport.Applied(migration.version(), migration.description(), millis,
+                            context.drainNotes()));
+                }
+                if (probe.isEnabled()) {
+                    report.setLatency(before, probe.measure(conn, true));
+                }
+            } finally {
+                unlock(conn);
+            }
+        }
+        return report;
+    }
+
+    /**
+     * Migrations not yet recorded, read without locking or creating anything;
+     * every migration when schema_migrations does not exist yet.
+     */
+    public List<Migration> pending() throws SQLException {
+        try (Connection conn = connections.create()) {
+            return pending(conn);
+        } catch (SQLException e) {
+            if (NO_SUCH_TABLE.equals(e.getSQLState())) {
+                return new ArrayList<>(migrations);
+            }
+            throw e;
+        }
+    }
+
+    private List<Migration> pending(Connection conn) throws SQLException {
+        Set<Integer> applied = new HashSet<>();
+        try (PreparedStatement ps = conn.prepareStatement(APPLIED_VERSIONS); ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                applied.add(rs.getInt(1));
+            }
+        }
+        List<Migration> pending = new ArrayList<>();
+        for (Migration migration : migrations) {
+            if (!applied.contains(migration.version())) {
+                pending.add(migration);
+            }
+        }
+        return pending;
+    }
+
+    private void lock(Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(LOCK)) {
+            ps.setInt(1, config.getLockTimeoutSeconds());
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    throw new SQLException("Timed out waiting for another client to finish migrating the schema");
+                }
+            }
+        }
+    }
+
+    private static void unlock(Connection conn) {
+        try (PreparedStatement ps = conn.prepareStatement(UNLOCK)) {
+            ps.executeQuery().close();
+        } catch (SQLException e) {
+            e.printStackTrace(); // MySQL drops the lock when the physical connection closes
+        }
+    }
+
+    // ================== COMMAND LINE ==================
+    /**
+     * Usage: MigrationRunner
+     * Settings come from telehealth.migration.* and telehealth.pool.* system properties.
+     */
+    public static void main(String[] args) throws Exception {
+        try {
+            System.out.println(new MigrationRunner(MigrationConfig.fromSystemProperties()).migrate());
+        } finally {
+            DatabaseHelper.shutdown();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package migration;
+
+import services.DiagnosisService;
+import services.ReferralService;
+import utils.LatencyHistogram;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Times the per-patient lookups the screens run, once with the old name-keyed
+ * queries before migrating and once with the id-keyed ones after, for the
+ * same sample of patients. Each query's rows are read to the end so the
+ * timing includes the transfer, not just the first row.
+ */
+public class QueryLatencyProbe {
+
+    /** One lookup, as it was written against names and as it is now written against ids. */
+    public record Probe(String name, String byName, String byId) {
+    }
+
+    /** A sampled patient. */
+    record Patient(int userId, String name) {
+    }
+
+    static final String SAMPLE_PATIENTS = "SELECT user_id, name FROM users WHERE role = 'Patient' "
+            + "ORDER BY user_id LIMIT ?";
+
+    public static final List<Probe> PROBES = List.of(
+            new Probe("diagnosis history",
+                    "SELECT * FROM diagnoses WHERE patient_name = ? ORDER BY recorded_date DESC",
+                    DiagnosisService.PATIENT_DIAGNOSES),
+            new Probe("referral history",
+                    "SELECT * FROM hospital_referrals WHERE patient_name = ? ORDER BY referral_date DESC",
+                    ReferralService.PATIENT_REFERRALS),
+            new Probe("latest appointment",
+                    "SELECT id FROM appointments WHERE patient_name = ? "
+                            + "AND (status = 'SCHEDULED' OR status = 'COMPLETED') ORDER BY appointment_date DESC LIMIT 1",
+                    DiagnosisService.LATEST_APPOINTMENT));
+
+    private final MigrationConfig config;
+    private List<Patient> sample;
+
+    public QueryLatencyProbe(MigrationConfig config) {
+        this.config = config;
+    }
+
+    public boolean isEnabled() {
+        return config.getBenchmarkPatients() > 0;
+    }
+
+    /** Latency per probe name. byId = false runs the name-keyed queries. */
+    public Map<String, LatencyHistogram> measure(Connection conn, boolean byId) throws SQLException {
+        if (sample == null) {
+            sample = sample(conn); // the same patients before and after
+        }
+        Map<String, LatencyHistogram> latency = new LinkedHashMap<>();
+        for (Probe probe : PROBES) {
+            LatencyHistogram histogram = new LatencyHistogram();
+            try (PreparedStatement ps = conn.prepareStatement(byId ? probe.byId() : probe.byName())) {
+                for (int round = 0; round < config.getBenchmarkRounds(); round++) {
+                    for (Patient patient : sample) {
+                        long start = System.nanoTime();
+                        if (byId) {
+                            ps.setInt(1, patient.userId());
+                        } else {
+                            ps.setString(1, patient.name());
+                        }
+                        try (ResultSet rs = ps.executeQuery()) {
+                            while (rs.next()) {
+                                // drain
+                            }
+                        }
+                        histogram.recordSince(start);
+                    }
+                }
+            }
+            latency.put(probe.name(), histogram);
+        }
+        return latency;
+    }
+
+    private List<Patient> sample(Connection conn) throws SQLException {
+        List<Patient> patients = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(SAMPLE_PATIENTS)) {
+            ps.setInt(1, config.getBenchmarkPatients());
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    patients.add(new Patient(rs.getInt("user_id"), rs.getString("name")));
+                }
+            }
+        }
+        return patients;
+    }
+}
@@ -0,0 +1,87 @@
+package migration;
+
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * A migration made of DDL statements. Each change is skipped if its table,
+ * column, index or constraint already exists, so a run interrupted half way (or a
+ * database created from the current Telehealth_System.sql) just completes.
+ */
+public class SchemaChangeMigration implements Migration {
+
+    public enum Kind { TABLE, COLUMN, INDEX, FOREIGN_KEY }
+
+    /** One DDL statement and the schema object it creates. */
+    public record Change(Kind kind, String table, String name, String sql) {
+
+        public static Change table(String table, String definition) {
+            return new Change(Kind.TABLE, table, table, "CREATE TABLE " + table + " (" + definition + ")");
+        }
+
+        public static Change column(String table, String column, String definition) {
+            return new Change(Kind.COLUMN, table, column,
+                    "ALTER TABLE " + table + " ADD COLUMN " + column + " " + definition);
+        }
+
+        public static Change index(String table, String index, String columns) {
+            return new Change(Kind.INDEX, table, index, "CREATE INDEX " + index + " ON " + table + " (" + columns + ")");
+        }
+
+        public static Change uniqueIndex(String table, String index, String columns) {
+            return new Change(Kind.INDEX, table, index,
+                    "CREATE UNIQUE INDEX " + index + " ON " + table + " (" + columns + ")");
+        }
+
+        /** A user reference that is cleared, not cascaded, when the user is deleted; the name column keeps the history readable. */
+        public static Change userForeignKey(String table, String constraint, String column) {
+            return new Change(Kind.FOREIGN_KEY, table, constraint, "ALTER TABLE " + table + " ADD CONSTRAINT " + constraint
+                    + " FOREIGN KEY (" + column + ") REFERENCES users (user_id) ON DELETE SET NULL");
+        }
+    }
+
+    private final int version;
+    private final String description;
+    private final List<Change> changes;
+
+    public SchemaChangeMigration(int version, String description, List<Change> changes) {
+        this.version = version;
+        this.description = description;
+        this.changes = List.copyOf(changes);
+    }
+
+    @Override
+    public int version() {
+        return version;
+    }
+
+    @Override
+    public String description() {
+        return description;
+    }
+
+    public List<Change> changes() {
+        return changes;
+    }
+
+    @Override
+    public void apply(MigrationContext context) throws SQLException {
+        int applied = 0;
+        for (Change change : changes) {
+            if (exists(context, change)) continue;
+            context.execute(change.sql());
+            applied++;
+        }
+        context.note(applied + " of " + changes.size() + " changes applied"
+                + (applied < changes.size() ? " (the rest already existed)" : ""));
+    }
+
+    private static boolean exists(MigrationContext context, Change change) throws SQLException {
+        switch (change.kind()) {
+            case TABLE: return context.tableExists(change.table());
+            case COLUMN: return context.columnExists(change.table(), change.name());
+            case INDEX: return context.indexExists(change.table(), change.name());
+            default: return context.constraintExists(change.table(), change.name());
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package migration;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A migration that inserts reference rows. Rows are inserted with INSERT
+ * IGNORE, so one whose unique key already exists (from an earlier partial run,
+ * or added by hand) is left as it is.
+ */
+public class SeedDataMigration implements Migration {
+
+    private final int version;
+    private final String description;
+    private final String table;
+    private final List<String> columns;
+    private final List<List<Object>> rows;
+
+    public SeedDataMigration(int version, String description, String table, List<String> columns,
+                             List<List<Object>> rows) {
+        for (List<Object> row : rows) {
+            if (row.size() != columns.size()) {
+                throw new IllegalArgumentException("Row " + row + " does not match columns " + columns);
+            }
+        }
+        this.version = version;
+        this.description = description;
+        this.table = table;
+        this.columns = List.copyOf(columns);
+        this.rows = List.copyOf(rows);
+    }
+
+    @Override
+    public int version() {
+        return version;
+    }
+
+    @Override
+    public String description() {
+        return description;
+    }
+
+    @Override
+    public void apply(MigrationContext context) throws SQLException {
+        String sql = "INSERT IGNORE INTO " + table + " (" + String.join(", ", columns) + ") VALUES ("
+                + String.join(", ", Collections.nCopies(columns.size(), "?")) + ")";
+        int inserted = context.inTransaction(() -> {
+            int count = 0;
+            for (List<Object> row : rows) {
+                count += context.update(sql, row.toArray());
+            }
+            return count;
+        });
+        context.note(inserted + " of " + rows.size() + " rows inserted"
+                + (inserted < rows.size() ? " (the rest already existed)" : ""));
+    }
+}
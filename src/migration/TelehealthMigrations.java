@@ -0,0 +1,153 @@
+package migration;
+
+import migration.IdBackfillMigration.LinkedTable;
+import migration.SchemaChangeMigration.Change;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The application's schema migrations, in version order. Append new versions
+ * at the end; never change one that has shipped.
+ */
+public final class TelehealthMigrations {
+
+    /** Tables that name patients and doctors, and the id columns that replace those names in joins. */
+    public static final List<LinkedTable> LINKED_TABLES = List.of(
+            new LinkedTable("appointments", "id", "patient_name", "patient_id", "doctor_name", "doctor_id"),
+            new LinkedTable("diagnoses", "id", "patient_name", "patient_id", "doctor_name", "doctor_id"),
+            new LinkedTable("doctor_diagnoses", "diagnosis_id", "patient_name", "patient_id", "doctor_name", "doctor_id"),
+            new LinkedTable("hospital_referrals", "referral_id", "patient_name", "patient_id",
+                    "referring_doctor_name", "doctor_id"),
+            // user_id already exists here but older rows were written without it
+            new LinkedTable("prescription_refills", "refill_id", "patient_name", "user_id", null, null));
+
+    private TelehealthMigrations() {
+    }
+
+    public static List<Migration> all() {
+        return List.of(
+                new SchemaChangeMigration(1, "Add patient and doctor id columns", idColumns()),
+                new IdBackfillMigration(2, LINKED_TABLES),
+                new SchemaChangeMigration(3, "Index and constrain patient and doctor ids", idIndexes()),
+                new SchemaChangeMigration(4, "Add hospital capacity registry and referral assignments", capacityTables()),
+                new SeedDataMigration(5, "Register hospitals and departments", "hospital_departments",
+                        List.of("hospital_name", "department", "daily_capacity"), hospitalDepartments()),
+                new SchemaChangeMigration(6, "Refuse a second active booking for a doctor's slot", bookingSlotGuard()),
+                new SchemaChangeMigration(7, "Index the booking and appointment lists and vitals history", listIndexes()));
+    }
+
+    private static List<Change> idColumns() {
+        List<Change> changes = new ArrayList<>();
+        for (LinkedTable t : LINKED_TABLES) {
+            if (t.table().equals("prescription_refills")) continue;
+            changes.add(Change.column(t.table(), t.patientId(), "int DEFAULT NULL AFTER " + t.patientName()));
+            changes.add(Change.column(t.table(), t.doctorId(), "int DEFAULT NULL AFTER " + t.doctorName()));
+        }
+        // Backfill subqueries and name-based API lookups resolve names through this index
+        changes.add(Change.index("users", "idx_users_name_role", "name, role"));
+        return changes;
+    }
+
+    /**
+     * Each index leads with the id and follows with the column the history
+     * queries sort by, so "WHERE patient_id = ? ORDER BY date" reads one index
+     * range in order instead of scanning and sorting the table.
+     */
+    private static List<Change> idIndexes() {
+        return List.of(
+                Change.index("appointments", "idx_appointments_patient", "patient_id, appointment_date"),
+                Change.index("appointments", "idx_appointments_doctor", "doctor_id, appointment_date"),
+                Change.index("diagnoses", "idx_diagnoses_patient", "patient_id, recorded_date"),
+                Change.index("diagnoses", "idx_diagnoses_doctor", "doctor_id, recorded_date"),
+                Change.index("doctor_diagnoses", "idx_doctor_diagnoses_patient", "patient_id, diagnosis_date"),
+                Change.index("doctor_diagnoses", "idx_doctor_diagnoses_doctor", "doctor_id, diagnosis_date"),
+                Change.index("hospital_referrals", "idx_referrals_patient", "patient_id, referral_date"),
+                Change.index("hospital_referrals", "idx_referrals_doctor", "doctor_id, referral_date"),
+                Change.index("prescription_refills", "idx_refills_user_date", "user_id, request_date"),
+                Change.userForeignKey("appointments", "fk_appointments_patient", "patient_id"),
+                Change.userForeignKey("appointments", "fk_appointments_doctor", "doctor_id"),
+                Change.userForeignKey("diagnoses", "fk_diagnoses_patient", "patient_id"),
+                Change.userForeignKey("diagnoses", "fk_diagnoses_doctor", "doctor_id"),
+                Change.userForeignKey("doctor_diagnoses", "fk_doctor_diagnoses_patient", "patient_id"),
+                Change.userForeignKey("doctor_diagnoses", "fk_doctor_diagnoses_doctor", "doctor_id"),
+                Change.userForeignKey("hospital_referrals", "fk_referrals_patient", "patient_id"),
+                Change.userForeignKey("hospital_referrals", "fk_referrals_doctor", "doctor_id"));
+    }
+
+    /**
+     * Departments and their daily capacity, per-day overrides, and the day
+     * each referral is matched to. The status index lets the matcher list
+     * pending referrals without reading the table.
+     */
+    private static List<Change> capacityTables() {
+        return List.of(
+                Change.table("hospital_departments", "department_id int NOT NULL AUTO_INCREMENT, "
+                        + "hospital_name varchar(255) NOT NULL, department varchar(255) NOT NULL, "
+                        + "daily_capacity int NOT NULL DEFAULT 8, PRIMARY KEY (department_id), "
+                        + "UNIQUE KEY uq_hospital_department (hospital_name, department)"),
+                Change.table("hospital_capacity_days", "department_id int NOT NULL, slot_date date NOT NULL, "
+                        + "capacity int NOT NULL, PRIMARY KEY (department_id, slot_date), "
+                        + "CONSTRAINT fk_capacity_days_department FOREIGN KEY (department_id) "
+                        + "REFERENCES hospital_departments (department_id) ON DELETE CASCADE"),
+                Change.table("referral_assignments", "referral_id int NOT NULL, department_id int NOT NULL, "
+                        + "slot_date date DEFAULT NULL, "
+                        + "matched_at timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP, "
+                        + "PRIMARY KEY (referral_id), KEY idx_assignments_day (department_id, slot_date), "
+                        + "CONSTRAINT fk_assignments_referral FOREIGN KEY (referral_id) "
+                        + "REFERENCES hospital_referrals (referral_id) ON DELETE CASCADE, "
+                        + "CONSTRAINT fk_assignments_department FOREIGN KEY (department_id) "
+                        + "REFERENCES hospital_departments (department_id) ON DELETE CASCADE"),
+                Change.index("hospital_referrals", "idx_referrals_status", "status, referral_id"));
+    }
+
+    /**
+     * active_slot is 1 for a live booking and NULL once cancelled, and NULLs
+     * never collide in a unique key, so a cancelled slot can be booked again.
+     * Fails with a duplicate-entry error while two active bookings still share
+     * a slot; cancel one and start again.
+     */
+    private static List<Change> bookingSlotGuard() {
+        return List.of(
+                Change.column("bookings", "active_slot",
+                        "tinyint GENERATED ALWAYS AS (IF(status = 'Cancelled', NULL, 1)) STORED"),
+                Change.uniqueIndex("bookings", "uq_bookings_doctor_slot",
+                        "doctor_id, appointment_date, appointment_time, active_slot"));
+    }
+
+    /**
+     * The paged booking and appointment lists read these in their sort order,
+     * ending with the key so a page boundary is exact; the vitals history and
+     * charts read one user's readings by time.
+     */
+    private static List<Change> listIndexes() {
+        return List.of(
+                Change.index("bookings", "idx_bookings_schedule", "appointment_date DESC, appointment_time, booking_id"),
+                Change.index("appointments", "idx_appointments_schedule", "appointment_date, appointment_time, id"),
+                Change.index("vitals_records", "idx_vitals_user_time", "user_id, recorded_at"));
+    }
+
+    /** The hospitals and departments the referral screen used to list, with a starting daily capacity. */
+    private static List<List<Object>> hospitalDepartments() {
+        List<String> general = List.of("Emergency Department", "Cardiology", "Neurology", "Orthopedics",
+                "Surgery", "Radiology", "Dermatology");
+        Map<String, List<String>> hospitals = new LinkedHashMap<>();
+        hospitals.put("City General Hospital", general);
+        hospitals.put("Regional Medical Center", general);
+        hospitals.put("St. Mary's Hospital", general);
+        hospitals.put("University Medical Center", general);
+        hospitals.put("Children's Hospital", List.of("Pediatrics", "Pediatric Surgery", "Neonatology", "Child Psychology"));
+        hospitals.put("Heart Specialist Center", List.of("Cardiology", "Cardiac Surgery", "Interventional Cardiology"));
+        hospitals.put("Orthopedic Institute", general);
+        hospitals.put("Cancer Treatment Center", List.of("Oncology", "Radiation Therapy", "Chemotherapy", "Surgical Oncology"));
+        List<List<Object>> rows = new ArrayList<>();
+        hospitals.forEach((hospital, departments) -> {
+            for (String department : departments) {
+                rows.add(List.of(hospital, department, department.equals("Emergency Department") ? 20 : 8));
+            }
+        });
+        return rows;
+    }
+}
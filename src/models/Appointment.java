@@ -2,6 +2,7 @@ package models;
 
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import utils.SearchText;
 
 /**
  * Appointment model class representing patient consultation bookings
@@ -16,6 +17,7 @@ public class Appointment {
     private String status; // SCHEDULED, COMPLETED, CANCELLED, RESCHEDULED
     private String consultationType; // AUDIO, VIDEO, IN_PERSON
     private String notes;
+    private String searchKey; // lowercase patient + specialist name, built on first use
 
     // Default constructor
     public Appointment() {
@@ -61,8 +63,8 @@ public class Appointment {
 
     // Setters
     public void setAppointmentId(int appointmentId) { this.appointmentId = appointmentId; }
-    public void setPatientName(String patientName) { this.patientName = patientName; }
-    public void setSpecialistName(String specialistName) { this.specialistName = specialistName; }
+    public void setPatientName(String patientName) { this.patientName = patientName; searchKey = null; }
+    public void setSpecialistName(String specialistName) { this.specialistName = specialistName; searchKey = null; }
     public void setAppointmentDate(LocalDate appointmentDate) { this.appointmentDate = appointmentDate; }
     public void setTimeSlot(String timeSlot) { this.timeSlot = timeSlot; }
     public void setStatus(String status) { this.status = status; }
@@ -102,6 +104,17 @@ public class Appointment {
         return "No date set";
     }
 
+    /**
+     * Lowercase patient and specialist names for search matching, computed
+     * once instead of on every keystroke.
+     */
+    public String getSearchKey() {
+        if (searchKey == null) {
+            searchKey = SearchText.normalize(patientName) + "\n" + SearchText.normalize(specialistName);
+        }
+        return searchKey;
+    }
+
     // Custom toString method for display
     @Override
     public String toString() {
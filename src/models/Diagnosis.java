@@ -11,6 +11,7 @@ public class Diagnosis {
     private int diagnosisId;
     private int appointmentId;
     private String patientName;
+    private int patientId; // 0 when only the name is known
     private String doctorName;
     private String diagnosisText;
     private String symptoms;
@@ -68,6 +69,7 @@ public class Diagnosis {
     public int getDiagnosisId() { return diagnosisId; }
     public int getAppointmentId() { return appointmentId; }
     public String getPatientName() { return patientName; }
+    public int getPatientId() { return patientId; }
     public String getDoctorName() { return doctorName; }
     public String getDiagnosisText() { return diagnosisText; }
     public String getSymptoms() { return symptoms; }
@@ -81,6 +83,7 @@ public class Diagnosis {
     // Setters
     public void setDiagnosisId(int diagnosisId) { this.diagnosisId = diagnosisId; }
     public void setAppointmentId(int appointmentId) { this.appointmentId = appointmentId; }
+    public void setPatientId(int patientId) { this.patientId = patientId; }
     public void setPatientName(String patientName) { this.patientName = patientName; }
     public void setDoctorName(String doctorName) { this.doctorName = doctorName; }
     public void setDiagnosisText(String diagnosisText) { this.diagnosisText = diagnosisText; }
@@ -0,0 +1,36 @@
+package models;
+
+/**
+ * Immutable snapshot of everything the health report needs for one patient.
+ * Sections the patient has no rows for are null.
+ */
+public record HealthReportData(int userId, String patientName, Booking latestBooking,
+                               Vitals latestVitals, Refill latestRefill) {
+
+    /** Latest booking together with the doctor it was made with. */
+    public record Booking(int bookingId, String appointmentDate, String appointmentTime,
+                          int doctorId, String doctorName) {
+    }
+
+    /** Latest vitals_records row; values are kept as the database rendered them. */
+    public record Vitals(int vitalsId, String pulse, String temperature, String respiration,
+                         String bloodPressure, String oxygen) {
+    }
+
+    /** Latest prescription_refills row. */
+    public record Refill(int refillId, String medicationName, int quantity, String status) {
+    }
+
+    public boolean hasBooking() { return latestBooking != null; }
+    public boolean hasVitals() { return latestVitals != null; }
+    public boolean hasRefill() { return latestRefill != null; }
+
+    public String patientNameOrDefault() {
+        return patientName != null ? patientName : "N/A";
+    }
+
+    public int latestBookingId() { return hasBooking() ? latestBooking.bookingId() : 0; }
+    public int latestVitalsId() { return hasVitals() ? latestVitals.vitalsId() : 0; }
+    public int latestRefillId() { return hasRefill() ? latestRefill.refillId() : 0; }
+    public int generatedByDoctorId() { return hasBooking() ? latestBooking.doctorId() : 0; }
+}
@@ -10,6 +10,7 @@ import java.time.format.DateTimeFormatter;
 public class HospitalReferral {
     private int referralId;
     private String patientName;
+    private int patientId; // 0 when only the name is known
     private String referringDoctorName;
     private String hospitalName;
     private String department;
@@ -67,6 +68,7 @@ public class HospitalReferral {
     // Getters
     public int getReferralId() { return referralId; }
     public String getPatientName() { return patientName; }
+    public int getPatientId() { return patientId; }
     public String getReferringDoctorName() { return referringDoctorName; }
     public String getHospitalName() { return hospitalName; }
     public String getDepartment() { return department; }
@@ -82,6 +84,7 @@ public class HospitalReferral {
     // Setters
     public void setReferralId(int referralId) { this.referralId = referralId; }
     public void setPatientName(String patientName) { this.patientName = patientName; }
+    public void setPatientId(int patientId) { this.patientId = patientId; }
     public void setReferringDoctorName(String referringDoctorName) { this.referringDoctorName = referringDoctorName; }
     public void setHospitalName(String hospitalName) { this.hospitalName = hospitalName; }
     public void setDepartment(String department) { this.department = department; }
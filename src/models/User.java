@@ -5,6 +5,7 @@ public class User {
     private String name;
     private String username;
     private String password;
+    private String role; // Patient, Doctor, Admin
 
     public User(int id, String name, String username, String password) {
         this.id = id;
@@ -13,13 +14,20 @@ public class User {
         this.password = password;
     }
 
+    public User(int id, String name, String username, String password, String role) {
+        this(id, name, username, password);
+        this.role = role;
+    }
+
     public int getId() { return id; }
     public String getName() { return name; }
     public String getUsername() { return username; }
     public String getPassword() { return password; }
+    public String getRole() { return role; }
 
     public void setId(int id) { this.id = id; }
     public void setName(String name) { this.name = name; }
     public void setUsername(String username) { this.username = username; }
     public void setPassword(String password) { this.password = password; }
+    public void setRole(String role) { this.role = role; }
 }
\ No newline at end of file
@@ -0,0 +1,50 @@
+package navigation;
+
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Screens reached from the dashboard, with the roles allowed to open them.
+ * Roles are grouped the way the dashboard enables its buttons: staff and
+ * admin share screens, and anything unknown is treated as a patient.
+ */
+public enum AppView {
+
+    DASHBOARD("/views/Dashboard.fxml", "TeleHealth - Dashboard", "patient", "doctor", "staff"),
+    BOOK_CONSULTATION("/views/BookConsultation.fxml", "Book Consultation", "patient"),
+    VITALS_FORM("/views/VitalsForm.fxml", "Vitals Monitoring", "patient"),
+    VITALS_CHART("/views/VitalsChart.fxml", "Vitals Chart", "patient"),
+    PRESCRIPTION_REFILL("/views/PrescriptionRefill.fxml", "Prescription Refill", "patient"),
+    HEALTH_REPORT("/views/HealthReport.fxml", "TeleHealth System - Health Report", "patient"),
+    STAFF_BOOKING("/views/StaffBooking.fxml", "Staff Booking Management", "staff"),
+    DOCTOR_DIAGNOSIS("/views/DoctorDiagnosis.fxml", "Doctor Diagnosis", "doctor"),
+    HOSPITAL_BOOKING("/views/HospitalBooking.fxml", "Hospital Booking", "doctor");
+
+    private final String fxml;
+    private final String title;
+    private final Set<String> roles;
+
+    AppView(String fxml, String title, String... roles) {
+        this.fxml = fxml;
+        this.title = title;
+        this.roles = Set.of(roles);
+    }
+
+    public String getFxml() { return fxml; }
+    public String getTitle() { return title; }
+
+    public boolean permits(String role) {
+        return roles.contains(roleGroup(role));
+    }
+
+    /** "patient", "doctor" or "staff" for a users.role value. */
+    public static String roleGroup(String role) {
+        String lower = role == null ? "" : role.toLowerCase(Locale.ROOT);
+        switch (lower) {
+            case "doctor": return "doctor";
+            case "admin":
+            case "staff": return "staff";
+            default: return "patient";
+        }
+    }
+}
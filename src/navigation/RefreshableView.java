@@ -0,0 +1,14 @@
+package navigation;
+
+import session.SessionContext;
+
+/**
+ * A controller whose screen is kept by {@link ViewRegistry} and shown again
+ * instead of being rebuilt. initialize() runs once per cached instance;
+ * refresh runs every time the screen is shown and must reset forms and
+ * reload anything that belongs to the signed-in user.
+ */
+public interface RefreshableView {
+
+    void refresh(SessionContext session);
+}
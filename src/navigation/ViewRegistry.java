@@ -0,0 +1,213 @@
+package navigation;
+
+import javafx.application.Platform;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.stage.Stage;
+import session.SessionContext;
+
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Keeps each screen's FXML, controller and Scene after the first load so
+ * navigating back and forth only swaps scenes. A shown screen is refreshed
+ * through {@link RefreshableView} with the user's session instead of being
+ * rebuilt.
+ *
+ * After login the screens the user's role can open are preloaded one at a
+ * time on the FX thread between other events. At most maxCached screens are
+ * kept (least recently shown go first), and they are held by soft references
+ * so the JVM can drop them when memory runs short; a dropped screen is simply
+ * loaded again. Settings: -Dtelehealth.views.maxCached (default 10) and
+ * -Dtelehealth.views.preload (default true).
+ *
+ * All methods must be called from the FX Application Thread.
+ */
+public class ViewRegistry {
+
+    /** A parsed screen: its root node and controller. */
+    public record LoadedView(Parent root, Object controller) {
+    }
+
+    /** Builds a screen; the default parses its FXML. */
+    @FunctionalInterface
+    public interface ViewLoader {
+        LoadedView load(AppView view) throws IOException;
+    }
+
+    private static final class Entry {
+        final LoadedView view;
+        Scene scene;
+
+        Entry(LoadedView view) {
+            this.view = view;
+        }
+    }
+
+    private static ViewRegistry instance;
+
+    private final int maxCached;
+    private final ViewLoader loader;
+    private final Executor preloadExecutor;
+    private final Map<AppView, SoftReference<Entry>> cache;
+    private int generation; // bumped by clear() so a preload for the previous user stops
+
+    private long loads;
+    private long hits;
+    private long evictions;
+    private long reclaimed;
+    private long preloaded;
+
+    public ViewRegistry(int maxCached, ViewLoader loader, Executor preloadExecutor) {
+        if (maxCached < 1) {
+            throw new IllegalArgumentException("maxCached must be at least 1");
+        }
+        this.maxCached = maxCached;
+        this.loader = loader;
+        this.preloadExecutor = preloadExecutor;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<AppView, SoftReference<ViewRegistry.Entry>> eldest) {
+                if (size() > ViewRegistry.this.maxCached) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public static ViewRegistry getInstance() {
+        if (instance == null) {
+            instance = new ViewRegistry(Integer.getInteger("telehealth.views.maxCached", 10),
+                    ViewRegistry::loadFxml, Platform::runLater);
+        }
+        return instance;
+    }
+
+    private static LoadedView loadFxml(AppView view) throws IOException {
+        FXMLLoader fxml = new FXMLLoader(ViewRegistry.class.getResource(view.getFxml()));
+        Parent root = fxml.load();
+        return new LoadedView(root, fxml.getController());
+    }
+
+    // ================== SHOW ==================
+    /**
+     * Put the screen on the stage, refreshed for this session, and return its controller.
+     */
+    @SuppressWarnings("unchecked")
+    public <C> C show(Stage stage, AppView view, SessionContext session) throws IOException {
+        Entry entry = acquire(view);
+        refresh(entry, session);
+        if (entry.scene == null) {
+            entry.scene = new Scene(entry.view.root());
+        }
+        stage.setScene(entry.scene);
+        stage.setTitle(view.getTitle());
+        stage.show();
+        return (C) entry.view.controller();
+    }
+
+    /** The screen's controller, loaded if needed and refreshed for this session, without showing it. */
+    public Object open(AppView view, SessionContext session) throws IOException {
+        Entry entry = acquire(view);
+        refresh(entry, session);
+        return entry.view.controller();
+    }
+
+    private void refresh(Entry entry, SessionContext session) {
+        if (session != null && entry.view.controller() instanceof RefreshableView refreshable) {
+            refreshable.refresh(session);
+        }
+    }
+
+    private Entry acquire(AppView view) throws IOException {
+        SoftReference<Entry> ref = cache.get(view);
+        Entry entry = ref == null ? null : ref.get();
+        if (entry != null) {
+            hits++;
+            return entry;
+        }
+        if (ref != null) {
+            reclaimed++; // dropped by the garbage collector under memory pressure
+        }
+        entry = new Entry(loader.load(view));
+        loads++;
+        cache.put(view, new SoftReference<>(entry));
+        return entry;
+    }
+
+    // ================== PRELOAD ==================
+    /**
+     * Load, one per FX event, the screens this role can open that are not cached yet.
+     */
+    public void preload(String role) {
+        if (!Boolean.parseBoolean(System.getProperty("telehealth.views.preload", "true"))) return;
+        int room = maxCached - size(); // never push out the screen the user is looking at
+        List<AppView> pending = new ArrayList<>();
+        for (AppView view : AppView.values()) {
+            if (view.permits(role) && !isCached(view) && pending.size() < room) {
+                pending.add(view);
+            }
+        }
+        preloadNext(pending.iterator(), generation);
+    }
+
+    private void preloadNext(Iterator<AppView> pending, int startedIn) {
+        if (!pending.hasNext()) return;
+        preloadExecutor.execute(() -> {
+            if (startedIn != generation) return;
+            AppView view = pending.next();
+            if (!isCached(view)) {
+                try {
+                    acquire(view);
+                    preloaded++;
+                } catch (Exception e) {
+                    e.printStackTrace(); // the screen loads normally when it is opened
+                }
+            }
+            preloadNext(pending, startedIn);
+        });
+    }
+
+    // ================== CACHE ==================
+    public boolean isCached(AppView view) {
+        // Iterate rather than get() so checking does not count as use in the LRU order
+        for (Map.Entry<AppView, SoftReference<Entry>> cached : cache.entrySet()) {
+            if (cached.getKey() == view) return cached.getValue().get() != null;
+        }
+        return false;
+    }
+
+    /** Drop every screen, e.g. at logout so the next user starts clean. */
+    public void clear() {
+        generation++;
+        cache.clear();
+    }
+
+    public int size() {
+        cache.values().removeIf(ref -> ref.get() == null);
+        return cache.size();
+    }
+
+    // ================== METRICS ==================
+    public long getLoads() { return loads; }
+    public long getHits() { return hits; }
+    public long getEvictions() { return evictions; }
+    public long getReclaimed() { return reclaimed; }
+    public long getPreloaded() { return preloaded; }
+
+    public String metrics() {
+        return String.format(Locale.ROOT, "loads=%d hits=%d preloaded=%d evicted=%d reclaimed=%d",
+                loads, hits, preloaded, evictions, reclaimed);
+    }
+}
@@ -0,0 +1,5 @@
+package referrals;
+
+/** A hospital department that takes referrals, from hospital_departments. */
+public record Department(int id, String hospital, String name, int dailyCapacity) {
+}
@@ -0,0 +1,42 @@
+package referrals;
+
+/**
+ * Settings for {@link ReferralMatchingService}. Every value can be overridden with
+ * a system property prefixed by "telehealth.referrals." (e.g. -Dtelehealth.referrals.horizonDays=60).
+ */
+public class MatchingConfig {
+
+    private long matchIntervalMs = 30_000;  // re-read capacity and referrals other clients changed this often
+    private int horizonDays = 90;           // days ahead a referral can be matched to; later means waitlisted
+    private int catchUpBatchSize = 1_000;   // rows per keyset page when reading new referrals
+    private int writeBatchSize = 500;       // assignments per JDBC batch
+
+    public static MatchingConfig fromSystemProperties() {
+        MatchingConfig config = new MatchingConfig();
+        config.matchIntervalMs = Long.getLong("telehealth.referrals.matchIntervalMs", config.matchIntervalMs);
+        config.horizonDays = Integer.getInteger("telehealth.referrals.horizonDays", config.horizonDays);
+        config.catchUpBatchSize = Integer.getInteger("telehealth.referrals.catchUpBatchSize", config.catchUpBatchSize);
+        config.writeBatchSize = Integer.getInteger("telehealth.referrals.writeBatchSize", config.writeBatchSize);
+        config.validate();
+        return config;
+    }
+
+    public void validate() {
+        if (matchIntervalMs < 0 || horizonDays < 1 || catchUpBatchSize < 1 || writeBatchSize < 1) {
+            throw new IllegalArgumentException(
+                    "matchIntervalMs must not be negative; horizonDays, catchUpBatchSize and writeBatchSize at least 1");
+        }
+    }
+
+    // Getters
+    public long getMatchIntervalMs() { return matchIntervalMs; }
+    public int getHorizonDays() { return horizonDays; }
+    public int getCatchUpBatchSize() { return catchUpBatchSize; }
+    public int getWriteBatchSize() { return writeBatchSize; }
+
+    // Setters
+    public void setMatchIntervalMs(long matchIntervalMs) { this.matchIntervalMs = matchIntervalMs; }
+    public void setHorizonDays(int horizonDays) { this.horizonDays = horizonDays; }
+    public void setCatchUpBatchSize(int catchUpBatchSize) { this.catchUpBatchSize = catchUpBatchSize; }
+    public void setWriteBatchSize(int writeBatchSize) { this.writeBatchSize = writeBatchSize; }
+}
@@ -0,0 +1,8 @@
+package referrals;
+
+import java.time.LocalDate;
+
+/** What the matcher needs of a PENDING hospital_referrals row. */
+public record PendingReferral(long referralId, String hospital, String department, String urgencyLevel,
+                              LocalDate referralDate, LocalDate preferredDate) {
+}
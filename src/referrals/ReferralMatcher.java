@@ -0,0 +1,408 @@
+package referrals;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Assigns pending referrals to days at their hospital department. Within a
+ * department, referrals are served in order of urgency, then preferred date,
+ * then referral id. Each one gets the earliest day, from its preferred date
+ * (today for emergencies), that still has room after the referrals before it.
+ * Days run from today to horizonDays ahead; a referral with no room in that
+ * window is waitlisted.
+ *
+ * Because a referral's day depends only on the referrals before it in its
+ * department, a change is handled by re-matching that department from the
+ * first referral it can affect. A new referral that fits on a day with room
+ * moves nobody. When capacity on a day drops, only the referrals that no
+ * longer fit there and those after them are re-matched. Re-matched referrals
+ * whose day did not change are not reported.
+ *
+ * Not thread-safe; {@link ReferralMatchingService} guards it with a lock.
+ */
+public class ReferralMatcher {
+
+    public static final int NOT_ASSIGNED = -1;
+
+    private static final Comparator<Request> ORDER = Comparator.<Request>comparingInt(r -> r.urgency)
+            .thenComparingLong(r -> r.preferredDay)
+            .thenComparingLong(r -> r.referralId);
+
+    private final int horizonDays;
+    private long today;
+    private final Map<Integer, Schedule> schedules = new HashMap<>();
+    private final Map<String, Integer> departmentIds = new HashMap<>();
+    private final Map<Long, Request> requests = new HashMap<>();
+    private final Map<Long, SlotAssignment> changes = new LinkedHashMap<>();
+    private long rematched;
+
+    public ReferralMatcher(int horizonDays, LocalDate today) {
+        if (horizonDays < 1) {
+            throw new IllegalArgumentException("horizonDays must be at least 1");
+        }
+        this.horizonDays = horizonDays;
+        this.today = today.toEpochDay();
+    }
+
+    /** One pending referral in the matcher. */
+    private static final class Request {
+        final long referralId;
+        final int departmentId;
+        final int urgency;
+        final long preferredDay;
+        int day = NOT_ASSIGNED; // offset from today
+
+        Request(long referralId, int departmentId, int urgency, long preferredDay) {
+            this.referralId = referralId;
+            this.departmentId = departmentId;
+            this.urgency = urgency;
+            this.preferredDay = preferredDay;
+        }
+
+        boolean sameAs(Request other) {
+            return other.departmentId == departmentId && other.urgency == urgency && other.preferredDay == preferredDay;
+        }
+    }
+
+    /** A department's days: capacity, what is taken, and who is booked on each. */
+    private final class Schedule {
+        Department department;
+        final Map<Long, Integer> capacityOverrides = new HashMap<>(); // epoch day -> capacity
+        final Map<Long, Integer> reserved = new HashMap<>();          // epoch day -> confirmed elsewhere
+        final int[] capacity = new int[horizonDays];
+        final int[] load = new int[horizonDays];
+        final BitSet open = new BitSet(horizonDays);
+        final List<TreeSet<Request>> booked = new ArrayList<>(horizonDays);
+        final TreeSet<Request> queue = new TreeSet<>(ORDER);
+
+        Schedule(Department department) {
+            this.department = department;
+            for (int day = 0; day < horizonDays; day++) {
+                booked.add(new TreeSet<>(ORDER));
+                capacity[day] = capacityOn(day);
+                open.set(day, capacity[day] > 0);
+            }
+        }
+
+        int capacityOn(int day) {
+            long date = today + day;
+            int total = capacityOverrides.getOrDefault(date, department.dailyCapacity());
+            return Math.max(0, total - reserved.getOrDefault(date, 0));
+        }
+
+        void book(Request request, int day) {
+            request.day = day;
+            booked.get(day).add(request);
+            if (++load[day] >= capacity[day]) open.clear(day);
+        }
+
+        void unbook(Request request) {
+            int day = request.day;
+            if (day == NOT_ASSIGNED) return;
+            booked.get(day).remove(request);
+            if (--load[day] < capacity[day]) open.set(day);
+            request.day = NOT_ASSIGNED;
+        }
+
+        int earliest(Request request) {
+            return (int) Math.max(0, Math.min(request.urgency == 0 ? 0 : request.preferredDay - today, horizonDays));
+        }
+
+        int firstOpen(int from) {
+            int day = from >= horizonDays ? -1 : open.nextSetBit(from);
+            return day < 0 ? NOT_ASSIGNED : day;
+        }
+    }
+
+    // ================== DEPARTMENTS ==================
+    /** Add a department or change its name or daily capacity. */
+    public void putDepartment(Department department) {
+        Schedule schedule = schedules.get(department.id());
+        if (schedule == null) {
+            schedules.put(department.id(), new Schedule(department));
+        } else {
+            departmentIds.remove(nameKey(schedule.department.hospital(), schedule.department.name()));
+            int previous = schedule.department.dailyCapacity();
+            schedule.department = department;
+            if (previous != department.dailyCapacity()) applyCapacity(schedule, 0, horizonDays);
+        }
+        departmentIds.put(nameKey(department.hospital(), department.name()), department.id());
+    }
+
+    /** The department with this hospital and name, or null. Case and surrounding spaces are ignored. */
+    public Integer departmentId(String hospital, String department) {
+        return departmentIds.get(nameKey(hospital, department));
+    }
+
+    /** Override the capacity for one day; null goes back to the daily capacity. */
+    public void setCapacity(int departmentId, LocalDate date, Integer capacity) {
+        Schedule schedule = schedule(departmentId);
+        if (capacity == null) {
+            schedule.capacityOverrides.remove(date.toEpochDay());
+        } else {
+            schedule.capacityOverrides.put(date.toEpochDay(), capacity);
+        }
+        changeDay(schedule, (int) (date.toEpochDay() - today));
+    }
+
+    /** Places on the day already taken by confirmed referrals, which no longer count as pending. */
+    public void setReserved(int departmentId, LocalDate date, int count) {
+        Schedule schedule = schedule(departmentId);
+        if (count <= 0) {
+            schedule.reserved.remove(date.toEpochDay());
+        } else {
+            schedule.reserved.put(date.toEpochDay(), count);
+        }
+        changeDay(schedule, (int) (date.toEpochDay() - today));
+    }
+
+    private Schedule schedule(int departmentId) {
+        Schedule schedule = schedules.get(departmentId);
+        if (schedule == null) {
+            throw new IllegalArgumentException("Unknown department " + departmentId);
+        }
+        return schedule;
+    }
+
+    private void changeDay(Schedule schedule, int day) {
+        if (day >= 0 && day < horizonDays) applyCapacity(schedule, day, day + 1);
+    }
+
+    /**
+     * Apply new capacities to the days in [fromDay, toDay) and re-match from
+     * the first referral that can move: the first one that wanted a day that
+     * grew but was placed later, or the first that no longer fits on a day
+     * that shrank.
+     */
+    private void applyCapacity(Schedule schedule, int fromDay, int toDay) {
+        TreeSet<Integer> grown = new TreeSet<>();
+        Request from = null;
+        for (int day = fromDay; day < toDay; day++) {
+            int before = schedule.capacity[day];
+            int after = schedule.capacityOn(day);
+            if (before == after) continue;
+            schedule.capacity[day] = after;
+            schedule.open.set(day, schedule.load[day] < after);
+            if (after > before) {
+                grown.add(day);
+            } else if (schedule.load[day] > after) {
+                Iterator<Request> onDay = schedule.booked.get(day).iterator();
+                for (int i = 0; i < after; i++) onDay.next();
+                Request displaced = onDay.next();
+                if (from == null || ORDER.compare(displaced, from) < 0) from = displaced;
+            }
+        }
+        if (!grown.isEmpty()) {
+            for (Request request : schedule.queue) {
+                if (from != null && ORDER.compare(request, from) >= 0) break;
+                Integer day = grown.ceiling(schedule.earliest(request));
+                if (day != null && (request.day == NOT_ASSIGNED || request.day > day)) {
+                    from = request;
+                    break;
+                }
+            }
+        }
+        if (from != null) rematchFrom(schedule, from);
+    }
+
+    // ================== REFERRALS ==================
+    /**
+     * Add a pending referral or apply a change to it. Returns false if its
+     * hospital department is not registered; it is then not matched.
+     */
+    public boolean upsert(PendingReferral referral) {
+        Integer departmentId = departmentId(referral.hospital(), referral.department());
+        if (departmentId == null) {
+            remove(referral.referralId());
+            return false;
+        }
+        LocalDate preferred = referral.preferredDate() != null ? referral.preferredDate()
+                : referral.referralDate() != null ? referral.referralDate() : LocalDate.ofEpochDay(today);
+        Request request = new Request(referral.referralId(), departmentId, urgencyRank(referral.urgencyLevel()),
+                preferred.toEpochDay());
+        Request existing = requests.get(referral.referralId());
+        if (existing != null) {
+            if (existing.sameAs(request)) return true;
+            remove(referral.referralId());
+        }
+        requests.put(request.referralId, request);
+        Schedule schedule = schedules.get(departmentId);
+        schedule.queue.add(request);
+        place(schedule, request);
+        return true;
+    }
+
+    /**
+     * Give a new referral its day. If the earliest day it may have has room,
+     * it is booked there and nobody moves. If a full day comes first that it
+     * outranks someone on, the department is re-matched from it.
+     */
+    private void place(Schedule schedule, Request request) {
+        int from = schedule.earliest(request);
+        int open = schedule.firstOpen(from);
+        int last = open == NOT_ASSIGNED ? horizonDays : open;
+        for (int day = from; day < last; day++) {
+            NavigableSet<Request> onDay = schedule.booked.get(day);
+            if (schedule.capacity[day] > 0 && !onDay.isEmpty() && ORDER.compare(onDay.last(), request) > 0) {
+                rematchFrom(schedule, request);
+                report(request);
+                return;
+            }
+        }
+        if (open != NOT_ASSIGNED) schedule.book(request, open);
+        report(request); // new referrals are always reported, waitlisted or not
+    }
+
+    /** The referral is no longer pending (confirmed, cancelled or deleted). */
+    public void remove(long referralId) {
+        Request request = requests.remove(referralId);
+        if (request == null) return;
+        Schedule schedule = schedules.get(request.departmentId);
+        int day = request.day;
+        schedule.unbook(request);
+        schedule.queue.remove(request);
+        changes.remove(referralId);
+        if (day == NOT_ASSIGNED) return;
+        for (Request later : schedule.queue.tailSet(request, false)) {
+            if ((later.day == NOT_ASSIGNED || later.day > day) && schedule.earliest(later) <= day) {
+                rematchFrom(schedule, later);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Drop the referrals with ids up to upToId that are not in the set, e.g.
+     * after re-reading the pending list. Returns how many were dropped.
+     */
+    public int retainAll(Set<Long> pendingIds, long upToId) {
+        List<Long> gone = new ArrayList<>();
+        for (Long referralId : requests.keySet()) {
+            if (referralId <= upToId && !pendingIds.contains(referralId)) gone.add(referralId);
+        }
+        for (Long referralId : gone) remove(referralId);
+        return gone.size();
+    }
+
+    private void rematchFrom(Schedule schedule, Request from) {
+        NavigableSet<Request> tail = schedule.queue.tailSet(from, true);
+        int[] before = new int[tail.size()];
+        int i = 0;
+        for (Request request : tail) {
+            before[i++] = request.day;
+            schedule.unbook(request);
+        }
+        i = 0;
+        for (Request request : tail) {
+            int day = schedule.firstOpen(schedule.earliest(request));
+            if (day != NOT_ASSIGNED) schedule.book(request, day);
+            if (request.day != before[i++]) report(request);
+        }
+        rematched += tail.size();
+    }
+
+    private void report(Request request) {
+        changes.put(request.referralId, new SlotAssignment(request.referralId, request.departmentId,
+                request.day == NOT_ASSIGNED ? null : LocalDate.ofEpochDay(today + request.day)));
+    }
+
+    // ================== DAYS ==================
+    /** Move day 0 to the new date and re-match everything; call when the date changes. */
+    public void advanceTo(LocalDate date) {
+        long previous = today;
+        if (date.toEpochDay() == previous) return;
+        today = date.toEpochDay();
+        for (Schedule schedule : schedules.values()) {
+            Map<Request, Long> before = new HashMap<>();
+            for (Request request : schedule.queue) {
+                before.put(request, request.day == NOT_ASSIGNED ? NOT_ASSIGNED : previous + request.day);
+                schedule.unbook(request);
+            }
+            schedule.capacityOverrides.keySet().removeIf(day -> day < today);
+            schedule.reserved.keySet().removeIf(day -> day < today);
+            for (int day = 0; day < horizonDays; day++) {
+                schedule.capacity[day] = schedule.capacityOn(day);
+                schedule.open.set(day, schedule.capacity[day] > 0);
+            }
+            for (Request request : schedule.queue) {
+                int day = schedule.firstOpen(schedule.earliest(request));
+                if (day != NOT_ASSIGNED) schedule.book(request, day);
+                long now = day == NOT_ASSIGNED ? NOT_ASSIGNED : today + day;
+                if (now != before.get(request)) report(request);
+            }
+            rematched += schedule.queue.size();
+        }
+    }
+
+    // ================== RESULTS ==================
+    /** The referral's day, or null if it is waitlisted or not matched. */
+    public LocalDate slotOf(long referralId) {
+        Request request = requests.get(referralId);
+        return request == null || request.day == NOT_ASSIGNED ? null : LocalDate.ofEpochDay(today + request.day);
+    }
+
+    public boolean isMatched(long referralId) {
+        return requests.containsKey(referralId);
+    }
+
+    /** Assignments that changed since the last call, in the order they changed. */
+    public List<SlotAssignment> drainChanges() {
+        List<SlotAssignment> drained = new ArrayList<>(changes.values());
+        changes.clear();
+        return drained;
+    }
+
+    /** Free places on the day, after pending and confirmed referrals. */
+    public int freePlaces(int departmentId, LocalDate date) {
+        Schedule schedule = schedule(departmentId);
+        int day = (int) (date.toEpochDay() - today);
+        if (day < 0 || day >= horizonDays) return 0;
+        return Math.max(0, schedule.capacity[day] - schedule.load[day]);
+    }
+
+    public int size() {
+        return requests.size();
+    }
+
+    public int departmentCount() {
+        return schedules.size();
+    }
+
+    public long getRematchedCount() {
+        return rematched;
+    }
+
+    public String summary() {
+        long waitlisted = requests.values().stream().filter(r -> r.day == NOT_ASSIGNED).count();
+        return String.format(Locale.ROOT, "departments=%d pending=%d waitlisted=%d rematched=%d",
+                schedules.size(), requests.size(), waitlisted, rematched);
+    }
+
+    // ================== HELPERS ==================
+    /** hospital_referrals.urgency_level in serving order; unknown values count as MEDIUM. */
+    static int urgencyRank(String urgency) {
+        if (urgency == null) return 2;
+        return switch (urgency.trim().toUpperCase(Locale.ROOT)) {
+            case "EMERGENCY" -> 0;
+            case "HIGH" -> 1;
+            case "LOW" -> 3;
+            default -> 2;
+        };
+    }
+
+    private static String nameKey(String hospital, String department) {
+        return (hospital == null ? "" : hospital.trim().toLowerCase(Locale.ROOT)) + '\n'
+                + (department == null ? "" : department.trim().toLowerCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,436 @@
+package referrals;
+
+import database.ConnectionPool;
+import database.DatabaseHelper;
+import models.HospitalReferral;
+import utils.LatencyHistogram;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Matches pending hospital referrals to days with capacity and saves the
+ * result in referral_assignments.
+ *
+ * Hospitals, departments and their daily capacity live in
+ * hospital_departments; hospital_capacity_days overrides single days (a
+ * clinic closed for a holiday, an extra list on a Saturday). Referrals already
+ * CONFIRMED for a day take places from it. A background thread runs
+ * {@link #match} every matchIntervalMs: it re-reads capacity, reads referrals
+ * added since the last run by id, drops those no longer PENDING, and writes
+ * only the assignments that changed. Ids are not committed in order, so the
+ * full set of PENDING ids is also compared with the ids already read, and any
+ * below the high-water mark that were missed are read by id. Referrals saved in this client are
+ * matched at once by {@link #submit}.
+ *
+ * Creating the shared instance is cheap; the tables are read on first use.
+ */
+public class ReferralMatchingService implements AutoCloseable {
+
+    static final String DEPARTMENTS = "SELECT department_id, hospital_name, department, daily_capacity "
+            + "FROM hospital_departments ORDER BY hospital_name, department";
+    static final String CAPACITY_DAYS = "SELECT department_id, slot_date, capacity FROM hospital_capacity_days "
+            + "WHERE slot_date >= CURRENT_DATE";
+    static final String CONFIRMED_DAYS = "SELECT a.department_id, a.slot_date, COUNT(*) AS taken "
+            + "FROM referral_assignments a JOIN hospital_referrals r ON r.referral_id = a.referral_id "
+            + "WHERE r.status = 'CONFIRMED' AND a.slot_date >= CURRENT_DATE GROUP BY a.department_id, a.slot_date";
+    static final String PENDING_AFTER = "SELECT referral_id, hospital_name, department, urgency_level, referral_date, "
+            + "preferred_appointment_date FROM hospital_referrals WHERE referral_id > ? AND status = 'PENDING' "
+            + "ORDER BY referral_id LIMIT ?";
+    static final String PENDING_IDS = "SELECT referral_id FROM hospital_referrals WHERE status = 'PENDING'";
+    static final String PENDING_BY_ID = "SELECT referral_id, hospital_name, department, urgency_level, referral_date, "
+            + "preferred_appointment_date FROM hospital_referrals WHERE referral_id IN (%s) AND status = 'PENDING'";
+    static final String SAVE_ASSIGNMENT = "INSERT INTO referral_assignments (referral_id, department_id, slot_date) "
+            + "VALUES (?, ?, ?) ON DUPLICATE KEY UPDATE department_id = VALUES(department_id), slot_date = VALUES(slot_date)";
+    static final String SAVE_CAPACITY_DAY = "INSERT INTO hospital_capacity_days (department_id, slot_date, capacity) "
+            + "VALUES (?, ?, ?) ON DUPLICATE KEY UPDATE capacity = VALUES(capacity)";
+
+    /** One department's day, as a key for capacity and confirmed counts. */
+    record DepartmentDay(int departmentId, LocalDate date) {
+    }
+
+    private static volatile ReferralMatchingService instance;
+
+    private final MatchingConfig config;
+    private final ConnectionPool.ConnectionFactory connections;
+    private final Clock clock;
+    private final Object lock = new Object();          // guards the matcher and what was last applied to it
+    private final Object persistLock = new Object();   // one writer at a time, so saves land in order
+    private final Object loadLock = new Object();
+    private final ReferralMatcher matcher;
+    private Map<DepartmentDay, Integer> capacityDays = new HashMap<>();
+    private Map<DepartmentDay, Integer> confirmedDays = new HashMap<>();
+    private final Map<Long, SlotAssignment> unsaved = new LinkedHashMap<>(); // guarded by persistLock
+    private long highWater;                                                  // guarded by lock
+    private final Set<Long> read = new HashSet<>();                          // PENDING ids seen, guarded by lock
+    private volatile List<Department> departments = List.of();
+    private volatile boolean loaded;
+    private volatile ScheduledExecutorService matcherThread;
+
+    private final LatencyHistogram matchLatency = new LatencyHistogram();
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder referralsRead = new LongAdder();
+    private final LongAdder assignmentsSaved = new LongAdder();
+
+    public ReferralMatchingService(MatchingConfig config, ConnectionPool.ConnectionFactory connections, Clock clock) {
+        config.validate();
+        this.config = config;
+        this.connections = connections;
+        this.clock = clock;
+        this.matcher = new ReferralMatcher(config.getHorizonDays(), LocalDate.now(clock));
+    }
+
+    /** The application's matcher, run by a background thread. */
+    public static ReferralMatchingService getInstance() {
+        ReferralMatchingService current = instance;
+        if (current == null) {
+            synchronized (ReferralMatchingService.class) {
+                current = instance;
+                if (current == null) {
+                    MatchingConfig config = MatchingConfig.fromSystemProperties();
+                    current = new ReferralMatchingService(config, DatabaseHelper::getConnection, Clock.systemDefaultZone());
+                    if (config.getMatchIntervalMs() > 0) {
+                        current.startMatching(config.getMatchIntervalMs());
+                    }
+                    instance = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    // ================== REGISTRY ==================
+    /** Registered hospitals, alphabetically. Call from a background thread the first time. */
+    public List<String> hospitals() throws SQLException {
+        ensureLoaded();
+        return departments.stream().map(Department::hospital).distinct().sorted().toList();
+    }
+
+    /** The hospital's departments, alphabetically; empty until {@link #hospitals} or {@link #match} has run. */
+    public List<String> departments(String hospital) {
+        return departments.stream().filter(d -> d.hospital().equals(hospital)).map(Department::name).sorted().toList();
+    }
+
+    /** Set one day's capacity at a department and move the referrals it affects. */
+    public void setCapacity(int departmentId, LocalDate date, int capacity) throws SQLException {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity must not be negative");
+        }
+        ensureLoaded();
+        try (Connection conn = connections.create(); PreparedStatement ps = conn.prepareStatement(SAVE_CAPACITY_DAY)) {
+            ps.setInt(1, departmentId);
+            ps.setString(2, date.toString());
+            ps.setInt(3, capacity);
+            ps.executeUpdate();
+        }
+        synchronized (lock) {
+            capacityDays.put(new DepartmentDay(departmentId, date), capacity);
+            matcher.setCapacity(departmentId, date, capacity);
+        }
+        persist();
+    }
+
+    // ================== MATCHING ==================
+    /**
+     * Match a referral saved in this client and save its day. Returns false
+     * if its hospital department is not registered.
+     */
+    public boolean submit(long referralId, HospitalReferral referral) throws SQLException {
+        ensureLoaded();
+        boolean matched;
+        synchronized (lock) {
+            matched = matcher.upsert(new PendingReferral(referralId, referral.getHospitalName(),
+                    referral.getDepartment(), referral.getUrgencyLevel(), referral.getReferralDate(),
+                    referral.getPreferredAppointmentDate()));
+            read.add(referralId);
+        }
+        persist();
+        return matched;
+    }
+
+    /** The referral's matched day, or null if it is waitlisted or not matched. */
+    public LocalDate slotOf(long referralId) {
+        synchronized (lock) {
+            return matcher.slotOf(referralId);
+        }
+    }
+
+    /**
+     * Bring the matcher up to date with the tables and save the assignments
+     * that changed; returns how many were saved.
+     */
+    public int match() throws SQLException {
+        long start = System.nanoTime();
+        List<Department> registered;
+        Map<DepartmentDay, Integer> capacity;
+        Map<DepartmentDay, Integer> confirmed;
+        try (Connection conn = connections.create()) {
+            registered = readDepartments(conn);
+            capacity = readDays(conn, CAPACITY_DAYS, "capacity");
+            confirmed = readDays(conn, CONFIRMED_DAYS, "taken");
+        }
+        synchronized (lock) {
+            matcher.advanceTo(LocalDate.now(clock));
+            Set<Integer> known = new HashSet<>();
+            for (Department department : departments) known.add(department.id());
+            Set<Integer> ids = new HashSet<>();
+            for (Department department : registered) {
+                matcher.putDepartment(department);
+                ids.add(department.id());
+                if (!known.contains(department.id())) { // re-read referrals it may now take
+                    highWater = 0;
+                    read.clear();
+                }
+            }
+            departments = registered;
+            capacityDays = applyDays(capacityDays, capacity, ids,
+                    (day, value) -> matcher.setCapacity(day.departmentId(), day.date(), value));
+            confirmedDays = applyDays(confirmedDays, confirmed, ids,
+                    (day, value) -> matcher.setReserved(day.departmentId(), day.date(), value == null ? 0 : value));
+        }
+        readPendingReferrals();
+        loaded = true;
+        int saved = persist();
+        runs.increment();
+        matchLatency.recordSince(start);
+        return saved;
+    }
+
+    @FunctionalInterface
+    private interface DayChange {
+        void apply(DepartmentDay day, Integer value);
+    }
+
+    /** Apply the days of registered departments whose value changed or disappeared, and return the new values. */
+    private static Map<DepartmentDay, Integer> applyDays(Map<DepartmentDay, Integer> before,
+                                                         Map<DepartmentDay, Integer> after, Set<Integer> departmentIds,
+                                                         DayChange change) {
+        for (Map.Entry<DepartmentDay, Integer> day : after.entrySet()) {
+            if (departmentIds.contains(day.getKey().departmentId()) && !day.getValue().equals(before.get(day.getKey()))) {
+                change.apply(day.getKey(), day.getValue());
+            }
+        }
+        for (DepartmentDay day : before.keySet()) {
+            if (departmentIds.contains(day.departmentId()) && !after.containsKey(day)) change.apply(day, null);
+        }
+        return after;
+    }
+
+    /**
+     * New PENDING rows by id, then rows below the high-water mark that an
+     * earlier page missed because they committed late, then drop referrals
+     * that are no longer PENDING.
+     */
+    private void readPendingReferrals() throws SQLException {
+        long after;
+        synchronized (lock) {
+            after = highWater;
+        }
+        List<PendingReferral> page;
+        do {
+            page = new ArrayList<>();
+            try (Connection conn = connections.create(); PreparedStatement ps = conn.prepareStatement(PENDING_AFTER)) {
+                ps.setLong(1, after);
+                ps.setInt(2, config.getCatchUpBatchSize());
+                readReferrals(ps, page);
+            }
+            synchronized (lock) {
+                for (PendingReferral referral : page) {
+                    after = Math.max(after, referral.referralId());
+                }
+                apply(page);
+                highWater = Math.max(highWater, after);
+            }
+            referralsRead.add(page.size());
+        } while (page.size() == config.getCatchUpBatchSize());
+
+        Set<Long> pending = new HashSet<>();
+        try (Connection conn = connections.create(); PreparedStatement ps = conn.prepareStatement(PENDING_IDS);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                pending.add(rs.getLong("referral_id"));
+            }
+        }
+        List<Long> missed = new ArrayList<>();
+        synchronized (lock) {
+            for (long id : pending) {
+                if (id <= highWater && !read.contains(id)) missed.add(id);
+            }
+        }
+        for (int from = 0; from < missed.size(); from += config.getCatchUpBatchSize()) {
+            List<Long> ids = missed.subList(from, Math.min(missed.size(), from + config.getCatchUpBatchSize()));
+            page = new ArrayList<>();
+            String sql = String.format(PENDING_BY_ID, String.join(", ", Collections.nCopies(ids.size(), "?")));
+            try (Connection conn = connections.create(); PreparedStatement ps = conn.prepareStatement(sql)) {
+                for (int i = 0; i < ids.size(); i++) {
+                    ps.setLong(i + 1, ids.get(i));
+                }
+                readReferrals(ps, page);
+            }
+            synchronized (lock) {
+                apply(page);
+            }
+            referralsRead.add(page.size());
+        }
+        synchronized (lock) {
+            // Referrals past the high-water mark were saved after the pages above; leave them to the next run
+            matcher.retainAll(pending, highWater);
+            read.removeIf(id -> id <= highWater && !pending.contains(id));
+        }
+    }
+
+    private static void readReferrals(PreparedStatement ps, List<PendingReferral> page) throws SQLException {
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                page.add(new PendingReferral(rs.getLong("referral_id"), rs.getString("hospital_name"),
+                        rs.getString("department"), rs.getString("urgency_level"),
+                        date(rs.getString("referral_date")), date(rs.getString("preferred_appointment_date"))));
+            }
+        }
+    }
+
+    /** Hand read referrals to the matcher. Call with the lock held. */
+    private void apply(List<PendingReferral> page) {
+        for (PendingReferral referral : page) {
+            matcher.upsert(referral);
+            read.add(referral.referralId());
+        }
+    }
+
+    /** Save the assignments that changed. Ones that fail to save are kept and tried again next time. */
+    private int persist() throws SQLException {
+        synchronized (persistLock) {
+            synchronized (lock) {
+                for (SlotAssignment assignment : matcher.drainChanges()) {
+                    unsaved.remove(assignment.referralId()); // keep the order of the latest change
+                    unsaved.put(assignment.referralId(), assignment);
+                }
+            }
+            if (unsaved.isEmpty()) return 0;
+            List<SlotAssignment> batch = new ArrayList<>(unsaved.values());
+            try (Connection conn = connections.create()) {
+                boolean autoCommit = conn.getAutoCommit();
+                conn.setAutoCommit(false);
+                try (PreparedStatement ps = conn.prepareStatement(SAVE_ASSIGNMENT)) {
+                    int queued = 0;
+                    for (SlotAssignment assignment : batch) {
+                        ps.setLong(1, assignment.referralId());
+                        ps.setInt(2, assignment.departmentId());
+                        if (assignment.slotDate() != null) {
+                            ps.setString(3, assignment.slotDate().toString());
+                        } else {
+                            ps.setNull(3, Types.DATE);
+                        }
+                        ps.addBatch();
+                        if (++queued % config.getWriteBatchSize() == 0) ps.executeBatch();
+                    }
+                    ps.executeBatch();
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(autoCommit);
+                }
+            }
+            unsaved.clear();
+            assignmentsSaved.add(batch.size());
+            return batch.size();
+        }
+    }
+
+    private void ensureLoaded() throws SQLException {
+        if (loaded) return;
+        synchronized (loadLock) {
+            if (!loaded) match();
+        }
+    }
+
+    private static List<Department> readDepartments(Connection conn) throws SQLException {
+        List<Department> registered = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(DEPARTMENTS); ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                registered.add(new Department(rs.getInt("department_id"), rs.getString("hospital_name"),
+                        rs.getString("department"), rs.getInt("daily_capacity")));
+            }
+        }
+        return registered;
+    }
+
+    private static Map<DepartmentDay, Integer> readDays(Connection conn, String sql, String column) throws SQLException {
+        Map<DepartmentDay, Integer> days = new HashMap<>();
+        try (PreparedStatement ps = conn.prepareStatement(sql); ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                days.put(new DepartmentDay(rs.getInt("department_id"), date(rs.getString("slot_date"))), rs.getInt(column));
+            }
+        }
+        return days;
+    }
+
+    /** A DATE column read with getString; null stays null. */
+    private static LocalDate date(String value) {
+        return value == null ? null : LocalDate.parse(value.length() > 10 ? value.substring(0, 10) : value);
+    }
+
+    void startMatching(long intervalMs) {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "telehealth-referral-matcher");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                match();
+            } catch (SQLException e) {
+                System.err.println("Referral matching failed: " + e.getMessage());
+            }
+        }, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        matcherThread = executor;
+    }
+
+    // ================== METRICS ==================
+    public String metrics() {
+        String state;
+        synchronized (lock) {
+            state = matcher.summary();
+        }
+        return String.format(Locale.ROOT, "%s runs=%d read=%d saved=%d, runs took %s",
+                state, runs.sum(), referralsRead.sum(), assignmentsSaved.sum(), matchLatency.summary());
+    }
+
+    /** Stop the background thread. */
+    @Override
+    public void close() {
+        ScheduledExecutorService executor = matcherThread;
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /** Stop the shared matcher, e.g. when the application exits. */
+    public static synchronized void shutdown() {
+        if (instance != null) {
+            instance.close();
+            instance = null;
+        }
+    }
+}
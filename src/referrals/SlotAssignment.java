@@ -0,0 +1,7 @@
+package referrals;
+
+import java.time.LocalDate;
+
+/** The day a referral is matched to at its department; slotDate is null while it is waitlisted. */
+public record SlotAssignment(long referralId, int departmentId, LocalDate slotDate) {
+}
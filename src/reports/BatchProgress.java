@@ -0,0 +1,44 @@
+package reports;
+
+/**
+ * Progress of a {@link BatchReportEngine} run, reported after every chunk.
+ */
+public class BatchProgress {
+    private final long generated;
+    private final long failed;
+    private final long total;
+    private final int lastUserId;
+    private final long elapsedMillis;
+
+    public BatchProgress(long generated, long failed, long total, int lastUserId, long elapsedMillis) {
+        this.generated = generated;
+        this.failed = failed;
+        this.total = total;
+        this.lastUserId = lastUserId;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    // Getters
+    public long getGenerated() { return generated; }
+    public long getFailed() { return failed; }
+    public long getTotal() { return total; }
+    public int getLastUserId() { return lastUserId; }
+    public long getElapsedMillis() { return elapsedMillis; }
+
+    public long getProcessed() { return generated + failed; }
+
+    public double getPercentComplete() {
+        return total == 0 ? 100.0 : Math.min(100.0, getProcessed() * 100.0 / total);
+    }
+
+    /** Reports stored per second of wall-clock time since the run started. */
+    public double getReportsPerSecond() {
+        return elapsedMillis == 0 ? 0 : generated * 1000.0 / elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d/%d patients (%.1f%%), %d failed, last user_id=%d, %.1f reports/s",
+                getProcessed(), total, getPercentComplete(), failed, lastUserId, getReportsPerSecond());
+    }
+}
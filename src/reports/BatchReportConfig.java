@@ -0,0 +1,58 @@
+package reports;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Settings for {@link BatchReportEngine}. Every value can be overridden with a
+ * system property prefixed by "telehealth.batch." (e.g. -Dtelehealth.batch.chunkSize=1000).
+ */
+public class BatchReportConfig {
+
+    private int chunkSize = 500;                   // patients fetched per keyset page
+    private int parallelism = defaultParallelism(); // reports built concurrently
+    private Path outputDirectory;                  // null = database only, no files
+    private Path checkpointFile = Paths.get("health-report-batch.checkpoint");
+
+    public static BatchReportConfig fromSystemProperties() {
+        BatchReportConfig config = new BatchReportConfig();
+        config.chunkSize = Integer.getInteger("telehealth.batch.chunkSize", config.chunkSize);
+        config.parallelism = Integer.getInteger("telehealth.batch.parallelism", config.parallelism);
+        String outputDir = System.getProperty("telehealth.batch.outputDirectory");
+        if (outputDir != null) {
+            config.outputDirectory = Paths.get(outputDir);
+        }
+        String checkpoint = System.getProperty("telehealth.batch.checkpointFile");
+        if (checkpoint != null) {
+            config.checkpointFile = Paths.get(checkpoint);
+        }
+        config.validate();
+        return config;
+    }
+
+    public void validate() {
+        if (chunkSize < 1 || parallelism < 1) {
+            throw new IllegalArgumentException("chunkSize and parallelism must be at least 1");
+        }
+        if (checkpointFile == null) {
+            throw new IllegalArgumentException("checkpointFile is required");
+        }
+    }
+
+    /** Leave one pooled connection free for the batch inserts. */
+    private static int defaultParallelism() {
+        return Math.max(1, Integer.getInteger("telehealth.pool.maxSize", 10) - 1);
+    }
+
+    // Getters
+    public int getChunkSize() { return chunkSize; }
+    public int getParallelism() { return parallelism; }
+    public Path getOutputDirectory() { return outputDirectory; }
+    public Path getCheckpointFile() { return checkpointFile; }
+
+    // Setters
+    public void setChunkSize(int chunkSize) { this.chunkSize = chunkSize; }
+    public void setParallelism(int parallelism) { this.parallelism = parallelism; }
+    public void setOutputDirectory(Path outputDirectory) { this.outputDirectory = outputDirectory; }
+    public void setCheckpointFile(Path checkpointFile) { this.checkpointFile = checkpointFile; }
+}
@@ -0,0 +1,247 @@
+package reports;
+
+import database.ConnectionPool;
+import database.DatabaseHelper;
+import database.HealthReportLoader;
+import database.HealthReportWriter;
+import models.HealthReportData;
+import utils.DbExecutor;
+import vitals.AnomalyEngine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+/**
+ * Headless engine that generates health reports for every patient, e.g. as a
+ * nightly job. Uses the same loader and formatter as the report screen.
+ *
+ * Patients are read in user_id keyset pages. Each page is built in parallel
+ * (virtual threads when available, otherwise a fork-join pool), stored with
+ * one JDBC batch insert, and then checkpointed. A crashed run resumes after
+ * the last committed page; at most that one page can be stored twice. The
+ * checkpoint is cleared once a pass reaches the last patient. Patients whose
+ * report failed are kept in the checkpoint's retry list instead, and the next
+ * run does them first and leaves them out of its keyset pass.
+ */
+public class BatchReportEngine {
+
+    static final String PATIENT_PAGE_QUERY = """
+        SELECT user_id FROM users
+        WHERE role = 'Patient' AND user_id > ?
+        ORDER BY user_id
+        LIMIT ?
+        """;
+
+    static final String PATIENT_COUNT_QUERY =
+            "SELECT COUNT(*) FROM users WHERE role = 'Patient' AND user_id > ?";
+
+    private final BatchReportConfig config;
+    private final ConnectionPool.ConnectionFactory connections;
+    private final HealthReportLoader loader = new HealthReportLoader();
+    private final HealthReportFormatter formatter = new HealthReportFormatter();
+    private final HealthReportWriter writer = new HealthReportWriter();
+    private final ReportCheckpoint checkpoint;
+
+    public BatchReportEngine(BatchReportConfig config) {
+        this(config, DatabaseHelper::getConnection);
+    }
+
+    public BatchReportEngine(BatchReportConfig config, ConnectionPool.ConnectionFactory connections) {
+        config.validate();
+        this.config = config;
+        this.connections = connections;
+        this.checkpoint = new ReportCheckpoint(config.getCheckpointFile());
+    }
+
+    /**
+     * Run to completion (or until the first database/file error), resuming from
+     * the checkpoint if a previous run was interrupted.
+     *
+     * @param listener receives progress after every committed page, may be null
+     */
+    public BatchProgress run(Consumer<BatchProgress> listener) throws SQLException, IOException, InterruptedException {
+        long start = System.nanoTime();
+        int lastUserId = checkpoint.load();
+        List<Integer> retries = checkpoint.loadRetries();
+        Set<Integer> retried = new HashSet<>(retries);
+        long total = retries.size() + countRemaining(lastUserId);
+        long generated = 0;
+        Set<Integer> failedIds = new TreeSet<>();
+
+        if (config.getOutputDirectory() != null) {
+            Files.createDirectories(config.getOutputDirectory());
+        }
+
+        ExecutorService workers = createWorkers();
+        Semaphore permits = new Semaphore(config.getParallelism());
+        try {
+            // Patients that failed last time go first; the keyset pass below skips them
+            for (int from = 0; from < retries.size(); from += config.getChunkSize()) {
+                int to = Math.min(retries.size(), from + config.getChunkSize());
+                generated += generatePage(retries.subList(from, to), workers, permits, failedIds);
+                Set<Integer> pending = new TreeSet<>(failedIds);
+                pending.addAll(retries.subList(to, retries.size()));
+                checkpoint.saveRetries(pending);
+
+                if (listener != null) {
+                    listener.accept(new BatchProgress(generated, failedIds.size(), total, lastUserId, elapsedMillis(start)));
+                }
+            }
+
+            List<Integer> page;
+            while (!(page = nextPage(lastUserId)).isEmpty()) {
+                List<Integer> pending = new ArrayList<>(page);
+                pending.removeIf(retried::contains);
+                generated += generatePage(pending, workers, permits, failedIds);
+                lastUserId = page.get(page.size() - 1);
+                checkpoint.saveRetries(failedIds);
+                checkpoint.save(lastUserId);
+
+                if (listener != null) {
+                    listener.accept(new BatchProgress(generated, failedIds.size(), total, lastUserId, elapsedMillis(start)));
+                }
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+
+        checkpoint.clear();
+        return new BatchProgress(generated, failedIds.size(), total, lastUserId, elapsedMillis(start));
+    }
+
+    /**
+     * Build the page's reports in parallel and store them with one batch insert.
+     * Patients whose report failed are added to failedIds.
+     *
+     * @return the number of reports stored
+     */
+    private int generatePage(List<Integer> userIds, ExecutorService workers, Semaphore permits,
+                             Set<Integer> failedIds) throws SQLException, InterruptedException {
+        LocalDateTime generatedAt = LocalDateTime.now();
+        List<Future<HealthReportWriter.Entry>> futures = new ArrayList<>(userIds.size());
+        for (int userId : userIds) {
+            futures.add(workers.submit(() -> buildReport(userId, generatedAt, permits)));
+        }
+
+        List<HealthReportWriter.Entry> entries = new ArrayList<>(userIds.size());
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                entries.add(futures.get(i).get());
+            } catch (ExecutionException e) {
+                failedIds.add(userIds.get(i));
+                e.getCause().printStackTrace();
+            }
+        }
+
+        try (Connection conn = connections.create()) {
+            writer.insertBatch(conn, entries);
+        }
+        return entries.size();
+    }
+
+    private HealthReportWriter.Entry buildReport(int userId, LocalDateTime generatedAt, Semaphore permits) throws Exception {
+        HealthReportData data;
+        permits.acquire();
+        try (Connection conn = connections.create()) {
+            data = loader.load(conn, userId);
+        } finally {
+            permits.release();
+        }
+
+        // Use the baseline-aware assessment if it is already in memory; loading every
+        // patient's history here would defeat the batch's bounded footprint
+        String summary = formatter.format(data, generatedAt, AnomalyEngine.getInstance().cachedAssessment(userId));
+        if (config.getOutputDirectory() != null) {
+            writeReportFile(config.getOutputDirectory().resolve("HealthReport_" + userId + ".txt"), summary);
+        }
+        return new HealthReportWriter.Entry(userId, summary, data);
+    }
+
+    /**
+     * Write through a FileChannel in one buffer; overwriting keeps reruns idempotent.
+     */
+    static void writeReportFile(Path path, String text) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    private List<Integer> nextPage(int afterUserId) throws SQLException {
+        List<Integer> ids = new ArrayList<>(config.getChunkSize());
+        try (Connection conn = connections.create();
+             PreparedStatement ps = conn.prepareStatement(PATIENT_PAGE_QUERY)) {
+            ps.setInt(1, afterUserId);
+            ps.setInt(2, config.getChunkSize());
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getInt(1));
+                }
+            }
+        }
+        return ids;
+    }
+
+    private long countRemaining(int afterUserId) throws SQLException {
+        try (Connection conn = connections.create();
+             PreparedStatement ps = conn.prepareStatement(PATIENT_COUNT_QUERY)) {
+            ps.setInt(1, afterUserId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+    }
+
+    private ExecutorService createWorkers() {
+        ExecutorService virtual = DbExecutor.newVirtualThreadExecutorOrNull();
+        return virtual != null ? virtual : new ForkJoinPool(config.getParallelism());
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    // ================== COMMAND LINE ==================
+    /**
+     * Usage: BatchReportEngine [outputDirectory]
+     * Other settings come from telehealth.batch.* and telehealth.pool.* system properties.
+     */
+    public static void main(String[] args) throws Exception {
+        BatchReportConfig config = BatchReportConfig.fromSystemProperties();
+        if (args.length > 0) {
+            config.setOutputDirectory(Paths.get(args[0]));
+        }
+
+        try {
+            BatchProgress result = new BatchReportEngine(config).run(progress -> System.out.println(progress));
+            System.out.println("Batch complete: " + result);
+        } finally {
+            DatabaseHelper.shutdown();
+        }
+    }
+}
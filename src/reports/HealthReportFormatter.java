@@ -0,0 +1,150 @@
+package reports;
+
+import models.HealthReportData;
+
+import vitals.Metric;
+import vitals.MetricFinding;
+import vitals.VitalStatus;
+import vitals.VitalsAssessment;
+import vitals.VitalsReading;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Turns {@link HealthReportData} into the plain-text health report. Shared by
+ * the interactive report screen and {@link BatchReportEngine}; stateless and
+ * safe to use from many threads.
+ */
+public class HealthReportFormatter {
+
+    /**
+     * Format a report. Flags and advice come from assessment (the anomaly
+     * engine's view of the latest reading, including the patient's baseline)
+     * when it matches the stored vitals, otherwise from the absolute limits.
+     */
+    public String format(HealthReportData data, LocalDateTime generatedAt, VitalsAssessment assessment) {
+        StringBuilder report = new StringBuilder();
+        HealthReportData.Booking booking = data.latestBooking();
+        VitalsAssessment vitalsAssessment = assessmentFor(data, assessment);
+
+        report.append("🩺 TELEHEALTH SYSTEM - HEALTH REPORT\n");
+        report.append("------------------------------------------\n");
+        report.append("Patient Name     : ").append(data.patientNameOrDefault()).append("\n");
+        report.append("Doctor/Specialist: Dr. ").append(booking != null ? booking.doctorName() : "N/A").append("\n");
+        report.append("Appointment Date : ").append(booking != null ? booking.appointmentDate() : "N/A").append("\n");
+        report.append("Appointment Time : ").append(booking != null ? booking.appointmentTime() : "N/A").append("\n");
+        report.append("Report Generated : ").append(generatedAt).append("\n\n");
+
+        // Prescription Section
+        report.append("📦 PRESCRIPTION REFILL\n");
+        if (data.hasRefill()) {
+            HealthReportData.Refill refill = data.latestRefill();
+            report.append("• Medication Name : ").append(refill.medicationName()).append("\n");
+            report.append("• Quantity        : ").append(refill.quantity()).append("\n");
+            report.append("• Status          : ").append(refill.status()).append("\n\n");
+        } else {
+            report.append("No prescription refill found.\n\n");
+        }
+
+        // Vitals Section
+        report.append("💓 VITAL SIGNS\n");
+        if (data.hasVitals()) {
+            HealthReportData.Vitals vitals = data.latestVitals();
+            report.append(getVitalLine("Pulse", vitals.pulse(), "60–100 bpm", vitalsAssessment, Metric.PULSE));
+            report.append(getVitalLine("Temperature", vitals.temperature(), "36.0–37.5 °C", vitalsAssessment, Metric.TEMPERATURE));
+            report.append(getVitalLine("Respiration", vitals.respiration(), "12–20 breaths/min", vitalsAssessment, Metric.RESPIRATION));
+            report.append(getVitalLine("Blood Pressure", vitals.bloodPressure(), "120/80 mmHg", vitalsAssessment, Metric.SYSTOLIC, Metric.DIASTOLIC));
+            report.append(getVitalLine("Oxygen", vitals.oxygen(), "95–100%", vitalsAssessment, Metric.OXYGEN));
+        } else {
+            report.append("No vitals recorded.\n");
+        }
+
+        report.append("\n🩺 DOCTOR'S ADVICE\n");
+        report.append(generateDoctorAdvice(vitalsAssessment));
+
+        return report.toString();
+    }
+
+    /**
+     * Format vitals line and highlight abnormal values, plus any deviation
+     * from the patient's baseline or rapid change.
+     */
+    public String getVitalLine(String name, String value, String normalRange,
+                               VitalsAssessment assessment, Metric... metrics) {
+        if (value == null || value.isEmpty()) {
+            return String.format("• %s: Not Provided\n", name);
+        }
+        VitalStatus status = VitalStatus.NORMAL;
+        List<String> notes = new ArrayList<>();
+        for (Metric metric : metrics) {
+            MetricFinding finding = assessment != null ? assessment.finding(metric) : null;
+            if (finding == null) continue;
+            status = VitalStatus.worst(status, finding.status());
+            String prefix = metrics.length > 1 ? metric.getLabel() + " " : "";
+            if (finding.deviation()) {
+                notes.add(prefix + (finding.zScore() > 0 ? "above" : "below") + " your usual "
+                        + String.format("%.1f", finding.baseline()));
+            }
+            if (finding.rapidChange()) {
+                notes.add(prefix + (finding.change() > 0 ? "up " : "down ")
+                        + String.format("%.1f", Math.abs(finding.change())) + " since last reading");
+            }
+        }
+
+        String line = String.format("• %s: %s (%s) → %s", name, value, normalRange, status.getLabel());
+        return notes.isEmpty() ? line + "\n" : line + " · " + String.join(" · ", notes) + "\n";
+    }
+
+    /**
+     * Generate simple health advice based on vitals
+     */
+    public String generateDoctorAdvice(VitalsAssessment assessment) {
+        if (assessment == null || assessment.findings().isEmpty()) {
+            return "No vitals submitted.";
+        }
+
+        if (assessment.isCritical()) {
+            return "Some of your readings are at a critical level. Contact your doctor or emergency services now.";
+        }
+        if (assessment.status(Metric.TEMPERATURE) == VitalStatus.HIGH) {
+            return "You have a high temperature. Rest well and stay hydrated.";
+        }
+        if (assessment.status(Metric.PULSE) == VitalStatus.HIGH) {
+            return "Your pulse rate is high. Avoid physical exertion.";
+        }
+        if (assessment.status(Metric.OXYGEN) == VitalStatus.LOW) {
+            return "Your oxygen saturation is low. Breathe deeply and contact a doctor.";
+        }
+        if (assessment.hasAlerts()) {
+            return "Some readings differ from your usual levels. Mention this at your next consultation.";
+        }
+
+        return "Your vital signs are within normal range. Keep maintaining a healthy lifestyle.";
+    }
+
+    /** The given assessment if it is for the stored vitals, otherwise one from the absolute limits. */
+    private VitalsAssessment assessmentFor(HealthReportData data, VitalsAssessment assessment) {
+        if (!data.hasVitals()) {
+            return null;
+        }
+        if (assessment != null && assessment.vitalsId() == data.latestVitalsId()) {
+            return assessment;
+        }
+        HealthReportData.Vitals vitals = data.latestVitals();
+        float[] bp = VitalsReading.parseBloodPressure(vitals.bloodPressure());
+        return VitalsAssessment.absolute(VitalsReading.of(vitals.vitalsId(), data.userId(), 0L,
+                parseOrNaN(vitals.pulse()), parseOrNaN(vitals.temperature()), parseOrNaN(vitals.respiration()),
+                parseOrNaN(vitals.oxygen()), bp[0], bp[1], Float.NaN));
+    }
+
+    private float parseOrNaN(String value) {
+        if (value == null || value.isBlank()) return Float.NaN;
+        try {
+            return Float.parseFloat(value.trim());
+        } catch (NumberFormatException e) {
+            return Float.NaN;
+        }
+    }
+}
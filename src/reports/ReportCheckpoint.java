@@ -0,0 +1,96 @@
+package reports;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Remembers the last user_id whose report chunk was committed, so an
+ * interrupted batch run resumes after it instead of starting over, and the
+ * patients whose report failed, in a ".retry" file next to it, so the next
+ * run tries them again.
+ */
+public class ReportCheckpoint {
+
+    private final Path file;
+    private final Path retryFile;
+
+    public ReportCheckpoint(Path file) {
+        this.file = file;
+        this.retryFile = file.resolveSibling(file.getFileName() + ".retry");
+    }
+
+    /** Last committed user_id, or 0 when there is nothing to resume. */
+    public int load() throws IOException {
+        if (!Files.exists(file)) return 0;
+        String text = Files.readString(file, StandardCharsets.UTF_8).trim();
+        if (text.isEmpty()) return 0;
+        try {
+            return Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            throw new IOException("Corrupt checkpoint file " + file + ": " + text, e);
+        }
+    }
+
+    public void save(int lastUserId) throws IOException {
+        write(file, Integer.toString(lastUserId));
+    }
+
+    /** Forget progress once a run has finished. The retry list is kept. */
+    public void clear() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    /** user_ids whose report failed and has not been stored since, in the order saved. */
+    public List<Integer> loadRetries() throws IOException {
+        List<Integer> ids = new ArrayList<>();
+        if (!Files.exists(retryFile)) return ids;
+        for (String line : Files.readAllLines(retryFile, StandardCharsets.UTF_8)) {
+            String text = line.trim();
+            if (text.isEmpty()) continue;
+            try {
+                ids.add(Integer.parseInt(text));
+            } catch (NumberFormatException e) {
+                throw new IOException("Corrupt retry file " + retryFile + ": " + text, e);
+            }
+        }
+        return ids;
+    }
+
+    /** Replace the retry list; an empty list removes the file. */
+    public void saveRetries(Collection<Integer> userIds) throws IOException {
+        if (userIds.isEmpty()) {
+            Files.deleteIfExists(retryFile);
+            return;
+        }
+        StringBuilder text = new StringBuilder();
+        for (int userId : userIds) {
+            text.append(userId).append('\n');
+        }
+        write(retryFile, text.toString());
+    }
+
+    /**
+     * Write via a temp file and atomic rename so a crash never leaves a
+     * half-written file behind.
+     */
+    private static void write(Path target, String text) throws IOException {
+        Path parent = target.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        Files.writeString(tmp, text, StandardCharsets.UTF_8);
+        try {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
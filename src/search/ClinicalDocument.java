@@ -0,0 +1,77 @@
+package search;
+
+import java.time.LocalDate;
+
+/**
+ * One searchable row: a diagnosis, a hospital referral or a refill request,
+ * with the patient it belongs to, a one-line title for results and the text
+ * that is indexed.
+ */
+public record ClinicalDocument(Source source, long sourceId, int patientId, LocalDate date, String title, String text) {
+
+    public enum Source {
+        DIAGNOSIS("Diagnosis"),
+        REFERRAL("Referral"),
+        REFILL("Refill");
+
+        private final String label;
+
+        Source(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    /** Unique across sources: the source in the top byte, the row id below it. */
+    long key() {
+        return key(source, sourceId);
+    }
+
+    static long key(Source source, long sourceId) {
+        return ((long) source.ordinal() << 56) | sourceId;
+    }
+
+    // ================== Factories ==================
+    /** Indexes diagnosis_text, symptoms and treatment_plan. */
+    public static ClinicalDocument diagnosis(long id, int patientId, LocalDate date, String diagnosisText,
+                                             String symptoms, String treatmentPlan) {
+        return new ClinicalDocument(Source.DIAGNOSIS, id, patientId, date, "Diagnosis: " + firstLine(diagnosisText),
+                join(diagnosisText, symptoms, treatmentPlan));
+    }
+
+    /** Indexes reason_for_referral and notes. */
+    public static ClinicalDocument referral(long id, int patientId, LocalDate date, String hospital, String department,
+                                            String reason, String notes) {
+        return new ClinicalDocument(Source.REFERRAL, id, patientId, date,
+                "Referral: " + nullToEmpty(hospital) + (department != null ? " - " + department : ""),
+                join(reason, notes));
+    }
+
+    /** Indexes medication_name and notes. */
+    public static ClinicalDocument refill(long id, int patientId, LocalDate date, String medication, String notes) {
+        return new ClinicalDocument(Source.REFILL, id, patientId, date, "Refill: " + nullToEmpty(medication),
+                join(medication, notes));
+    }
+
+    private static String join(String... parts) {
+        StringBuilder sb = new StringBuilder();
+        for (String part : parts) {
+            if (part == null || part.isBlank()) continue;
+            if (sb.length() > 0) sb.append(" | ");
+            sb.append(part.strip());
+        }
+        return sb.toString();
+    }
+
+    private static String firstLine(String text) {
+        String line = nullToEmpty(text).strip().lines().findFirst().orElse("");
+        return line.length() > 60 ? line.substring(0, 57) + "..." : line;
+    }
+
+    private static String nullToEmpty(String text) {
+        return text == null ? "" : text;
+    }
+}
@@ -0,0 +1,325 @@
+package search;
+
+import database.ConnectionPool;
+import database.DatabaseHelper;
+import database.ReferenceDataCache;
+import models.Diagnosis;
+import models.HospitalReferral;
+import models.User;
+import utils.LatencyHistogram;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Full-text search over diagnoses, hospital referrals and refill requests.
+ *
+ * The services add each row right after inserting it, so this client's notes
+ * are searchable at once. Rows other clients wrote are picked up by
+ * {@link #catchUp}, which reads each table by id from catchUpOverlap ids below
+ * the highest id already read: an id handed out before that one may commit
+ * after it. Rows already in the index are skipped. A background thread runs
+ * it and saves the segment file every syncIntervalMs, then compacts the
+ * replaced and removed documents out of memory. On startup the segment is
+ * loaded and only the newest rows are read, so a restart does not rebuild
+ * the whole index.
+ *
+ * Creating the shared instance is cheap; the segment is loaded on first use.
+ */
+public class ClinicalSearchIndex implements AutoCloseable {
+
+    /** Maps a patient name to users.user_id for rows saved without a patient id. */
+    @FunctionalInterface
+    public interface PatientResolver {
+        Integer idOf(String patientName) throws SQLException;
+    }
+
+    static final String DIAGNOSES_AFTER = "SELECT id, patient_id, diagnosis_text, symptoms, treatment_plan, recorded_date "
+            + "FROM diagnoses WHERE id > ? ORDER BY id LIMIT ?";
+    static final String REFERRALS_AFTER = "SELECT referral_id, patient_id, hospital_name, department, "
+            + "reason_for_referral, notes, referral_date FROM hospital_referrals WHERE referral_id > ? "
+            + "ORDER BY referral_id LIMIT ?";
+    static final String REFILLS_AFTER = "SELECT refill_id, user_id, medication_name, notes, request_date "
+            + "FROM prescription_refills WHERE refill_id > ? ORDER BY refill_id LIMIT ?";
+
+    private static volatile ClinicalSearchIndex instance;
+
+    private final SearchConfig config;
+    private final ConnectionPool.ConnectionFactory connections;
+    private final PatientResolver patients;
+    private final Object loadLock = new Object();
+    private final Object syncLock = new Object();
+    private volatile InvertedIndex index;
+    private final long[] highWater = new long[ClinicalDocument.Source.values().length]; // guarded by syncLock
+    private volatile boolean dirty;
+    private volatile ScheduledExecutorService syncer;
+
+    private final LatencyHistogram searchLatency = new LatencyHistogram();
+    private final LongAdder indexed = new LongAdder();
+    private final LongAdder caughtUp = new LongAdder();
+    private final LongAdder saves = new LongAdder();
+
+    public ClinicalSearchIndex(SearchConfig config, ConnectionPool.ConnectionFactory connections,
+                               PatientResolver patients) {
+        config.validate();
+        this.config = config;
+        this.connections = connections;
+        this.patients = patients;
+    }
+
+    /** The application's index, kept in sync by a background thread. */
+    public static ClinicalSearchIndex getInstance() {
+        ClinicalSearchIndex current = instance;
+        if (current == null) {
+            synchronized (ClinicalSearchIndex.class) {
+                current = instance;
+                if (current == null) {
+                    SearchConfig config = SearchConfig.fromSystemProperties();
+                    current = new ClinicalSearchIndex(config, DatabaseHelper::getConnection,
+                            name -> ReferenceDataCache.getInstance()
+                                    .findByName(name, ReferenceDataCache.ROLE_PATIENT)
+                                    .map(User::getId).orElse(null));
+                    if (config.getSyncIntervalMs() > 0) {
+                        current.startSync(config.getSyncIntervalMs());
+                    }
+                    instance = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    // ================== INDEXING ==================
+    /** Index a diagnosis saved with this id; returns false if its patient is unknown. */
+    public boolean addDiagnosis(long id, Diagnosis diagnosis) throws SQLException {
+        Integer patientId = patientId(diagnosis.getPatientId(), diagnosis.getPatientName());
+        if (patientId == null) return false;
+        add(ClinicalDocument.diagnosis(id, patientId, diagnosis.getRecordedDate(), diagnosis.getDiagnosisText(),
+                diagnosis.getSymptoms(), diagnosis.getTreatmentPlan()));
+        return true;
+    }
+
+    /** Index a referral saved with this id; returns false if its patient is unknown. */
+    public boolean addReferral(long id, HospitalReferral referral) throws SQLException {
+        Integer patientId = patientId(referral.getPatientId(), referral.getPatientName());
+        if (patientId == null) return false;
+        add(ClinicalDocument.referral(id, patientId, referral.getReferralDate(), referral.getHospitalName(),
+                referral.getDepartment(), referral.getReasonForReferral(), referral.getNotes()));
+        return true;
+    }
+
+    /** The id the row was saved with; the name is only looked up when there is none. */
+    private Integer patientId(int savedId, String patientName) throws SQLException {
+        return savedId > 0 ? Integer.valueOf(savedId) : patients.idOf(patientName);
+    }
+
+    /** Index a refill request; refills already carry the patient's user_id. */
+    public void addRefill(long id, int userId, String medication, String notes) {
+        add(ClinicalDocument.refill(id, userId, LocalDate.now(), medication, notes));
+    }
+
+    public void add(ClinicalDocument document) {
+        ensureLoaded().add(document);
+        indexed.increment();
+        dirty = true;
+    }
+
+    // ================== SEARCH ==================
+    /** Best matches first; patientId null searches every patient. */
+    public List<SearchHit> search(String query, Integer patientId, int limit) {
+        InvertedIndex current = ensureLoaded();
+        long start = System.nanoTime();
+        try {
+            return current.search(query, patientId, limit);
+        } finally {
+            searchLatency.recordSince(start);
+        }
+    }
+
+    // ================== SYNC ==================
+    /**
+     * Read rows added since the last catch-up, one keyset page at a time, and
+     * return how many were new to the index. The last catchUpOverlap ids
+     * before the high-water mark are read again, so a row that committed
+     * after a higher id was read is still found; rows already indexed,
+     * including those this client added itself, are skipped.
+     */
+    public int catchUp() throws SQLException {
+        InvertedIndex current = ensureLoaded();
+        synchronized (syncLock) {
+            int added = 0;
+            for (ClinicalDocument.Source source : ClinicalDocument.Source.values()) {
+                Scan scan = new Scan(Math.max(0, highWater[source.ordinal()] - config.getCatchUpOverlap()));
+                int page;
+                do {
+                    page = readPage(source, current, scan);
+                } while (page == config.getCatchUpBatchSize());
+                added += scan.added;
+            }
+            caughtUp.add(added);
+            if (added > 0) dirty = true;
+            return added;
+        }
+    }
+
+    /** Position of one table's catch-up: the last id read and how many rows were new. */
+    private static final class Scan {
+        long after;
+        int added;
+
+        Scan(long after) {
+            this.after = after;
+        }
+    }
+
+    /** Read the page of ids after scan.after and advance it; returns the rows read. */
+    private int readPage(ClinicalDocument.Source source, InvertedIndex current, Scan scan) throws SQLException {
+        String sql = switch (source) {
+            case DIAGNOSIS -> DIAGNOSES_AFTER;
+            case REFERRAL -> REFERRALS_AFTER;
+            case REFILL -> REFILLS_AFTER;
+        };
+        int rows = 0;
+        try (Connection conn = connections.create(); PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, scan.after);
+            ps.setInt(2, config.getCatchUpBatchSize());
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    ClinicalDocument document = read(source, rs);
+                    if (!current.contains(source, document.sourceId())) {
+                        current.add(document);
+                        scan.added++;
+                    }
+                    scan.after = document.sourceId();
+                    highWater[source.ordinal()] = Math.max(highWater[source.ordinal()], document.sourceId());
+                    rows++;
+                }
+            }
+        }
+        return rows;
+    }
+
+    private static ClinicalDocument read(ClinicalDocument.Source source, ResultSet rs) throws SQLException {
+        return switch (source) {
+            case DIAGNOSIS -> ClinicalDocument.diagnosis(rs.getLong("id"), rs.getInt("patient_id"),
+                    toDate(rs.getTimestamp("recorded_date")), rs.getString("diagnosis_text"),
+                    rs.getString("symptoms"), rs.getString("treatment_plan"));
+            case REFERRAL -> ClinicalDocument.referral(rs.getLong("referral_id"), rs.getInt("patient_id"),
+                    toDate(rs.getTimestamp("referral_date")), rs.getString("hospital_name"),
+                    rs.getString("department"), rs.getString("reason_for_referral"), rs.getString("notes"));
+            case REFILL -> ClinicalDocument.refill(rs.getLong("refill_id"), rs.getInt("user_id"),
+                    toDate(rs.getTimestamp("request_date")), rs.getString("medication_name"), rs.getString("notes"));
+        };
+    }
+
+    private static LocalDate toDate(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime().toLocalDate() : null;
+    }
+
+    /**
+     * Save the segment if anything changed since the last save, then drop
+     * replaced and removed documents from memory; returns true if it was written.
+     */
+    public boolean flush() throws IOException {
+        synchronized (syncLock) {
+            InvertedIndex current = index;
+            if (current == null || !dirty) return false;
+            dirty = false;
+            SegmentFile.write(config.getSegmentFile(), current, highWater.clone());
+            current.compact();
+            saves.increment();
+            return true;
+        }
+    }
+
+    private InvertedIndex ensureLoaded() {
+        InvertedIndex current = index;
+        if (current != null) return current;
+        synchronized (loadLock) {
+            if (index == null) {
+                InvertedIndex loaded = null;
+                try {
+                    SegmentFile.Contents contents = SegmentFile.read(config.getSegmentFile(), config.getMaxPrefixTerms());
+                    if (contents != null) {
+                        System.arraycopy(contents.highWater(), 0, highWater, 0, highWater.length);
+                        loaded = contents.index();
+                    }
+                } catch (IOException e) {
+                    // Start empty; the next catch-up rebuilds from the tables
+                    System.err.println("Search index: " + e.getMessage() + "; rebuilding");
+                }
+                index = loaded != null ? loaded : new InvertedIndex(config.getMaxPrefixTerms());
+            }
+            return index;
+        }
+    }
+
+    void startSync(long intervalMs) {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "telehealth-search-sync");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                catchUp();
+                flush();
+            } catch (SQLException | IOException e) {
+                System.err.println("Search index sync failed: " + e.getMessage());
+            }
+        }, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        syncer = executor;
+    }
+
+    // ================== METRICS ==================
+    public int size() {
+        InvertedIndex current = index;
+        return current == null ? 0 : current.size();
+    }
+
+    public long getIndexedCount() { return indexed.sum(); }
+    public long getCaughtUpCount() { return caughtUp.sum(); }
+    public LatencyHistogram getSearchLatency() { return searchLatency; }
+
+    public String metrics() {
+        InvertedIndex current = index;
+        if (current == null) return "not loaded";
+        return String.format(Locale.ROOT, "docs=%d deleted=%d terms=%d indexed=%d caughtUp=%d saves=%d, searches %s",
+                current.size(), current.deletedCount(), current.termCount(), getIndexedCount(), getCaughtUpCount(),
+                saves.sum(), searchLatency.summary());
+    }
+
+    /** Stop the sync thread and save any changes. */
+    @Override
+    public void close() {
+        ScheduledExecutorService executor = syncer;
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        try {
+            flush();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /** Save and close the shared index, e.g. when the application exits. */
+    public static synchronized void shutdown() {
+        if (instance != null) {
+            instance.close();
+            instance = null;
+        }
+    }
+}
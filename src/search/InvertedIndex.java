@@ -0,0 +1,479 @@
+package search;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index with BM25 ranking.
+ *
+ * Documents get increasing ordinals, and each term keeps a postings list of
+ * (ordinal, term frequency) in ordinal order. Plain int arrays keep a million
+ * notes at a few bytes per posting. Re-adding a document under the same key
+ * marks the old ordinal deleted. Deleted ordinals are skipped while searching
+ * and dropped by {@link #compact} and when the index is written out, so
+ * document frequencies can run slightly high until then.
+ *
+ * A search for one patient walks only that patient's documents and
+ * binary-searches each term's postings. An unfiltered search adds up the
+ * scores term by term over the whole postings lists. Both keep only the
+ * top-k results. Reads share a lock; adds take it exclusively.
+ */
+public class InvertedIndex {
+
+    static final double K1 = 1.2;
+    static final double B = 0.75;
+    static final int SNIPPET_LENGTH = 160;
+    private static final int NO_DATE = Integer.MIN_VALUE;
+
+    /** Ordinals (and, for terms, frequencies) in ascending ordinal order. */
+    static final class Postings {
+        int[] docs;
+        int[] freqs;
+        int size;
+
+        Postings(int capacity) {
+            docs = new int[Math.max(2, capacity)];
+            freqs = new int[docs.length];
+        }
+
+        void add(int doc, int freq) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                freqs = Arrays.copyOf(freqs, size * 2);
+            }
+            docs[size] = doc;
+            freqs[size] = freq;
+            size++;
+        }
+
+        /** Frequency of the term in doc, or 0. */
+        int freq(int doc) {
+            int i = Arrays.binarySearch(docs, 0, size, doc);
+            return i >= 0 ? freqs[i] : 0;
+        }
+    }
+
+    private final int maxPrefixTerms;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Document store, indexed by ordinal
+    private int docCount; // ordinals handed out, including deleted ones
+    private byte[] sources = new byte[16];
+    private long[] sourceIds = new long[16];
+    private int[] patientIds = new int[16];
+    private int[] days = new int[16];
+    private int[] lengths = new int[16];
+    private String[] titles = new String[16];
+    private String[] snippets = new String[16];
+    private final BitSet deleted = new BitSet();
+    private final Map<Long, Integer> ordinals = new HashMap<>(); // document key -> live ordinal
+    private final Map<Integer, Postings> byPatient = new HashMap<>();
+    private int liveDocs;
+    private long totalLength;
+
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+
+    public InvertedIndex(int maxPrefixTerms) {
+        this.maxPrefixTerms = maxPrefixTerms;
+    }
+
+    // ================== WRITES ==================
+    /** Index the document, replacing any earlier version with the same source and id. */
+    public void add(ClinicalDocument doc) {
+        List<String> tokens = TextAnalyzer.terms(doc.text());
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String token : tokens) {
+            frequencies.merge(token, 1, Integer::sum);
+        }
+        String text = doc.text() == null ? "" : doc.text();
+        String snippet = text.length() > SNIPPET_LENGTH ? text.substring(0, SNIPPET_LENGTH - 3) + "..." : text;
+
+        lock.writeLock().lock();
+        try {
+            Integer previous = ordinals.remove(doc.key());
+            if (previous != null) {
+                delete(previous);
+            }
+            int ordinal = docCount;
+            store(ordinal, (byte) doc.source().ordinal(), doc.sourceId(), doc.patientId(),
+                    doc.date() != null ? (int) doc.date().toEpochDay() : NO_DATE, tokens.size(), doc.title(), snippet);
+            for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+                terms.computeIfAbsent(entry.getKey(), t -> new Postings(2)).add(ordinal, entry.getValue());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Drop a document, e.g. after its row was deleted; returns false if it was not indexed. */
+    public boolean remove(ClinicalDocument.Source source, long sourceId) {
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinals.remove(ClinicalDocument.key(source, sourceId));
+            if (ordinal == null) return false;
+            delete(ordinal);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void store(int ordinal, byte source, long sourceId, int patientId, int day, int length, String title,
+                       String snippet) {
+        if (ordinal == sources.length) {
+            int capacity = sources.length * 2;
+            sources = Arrays.copyOf(sources, capacity);
+            sourceIds = Arrays.copyOf(sourceIds, capacity);
+            patientIds = Arrays.copyOf(patientIds, capacity);
+            days = Arrays.copyOf(days, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            titles = Arrays.copyOf(titles, capacity);
+            snippets = Arrays.copyOf(snippets, capacity);
+        }
+        sources[ordinal] = source;
+        sourceIds[ordinal] = sourceId;
+        patientIds[ordinal] = patientId;
+        days[ordinal] = day;
+        lengths[ordinal] = length;
+        titles[ordinal] = title;
+        snippets[ordinal] = snippet;
+        docCount = ordinal + 1;
+        liveDocs++;
+        totalLength += length;
+        ordinals.put(ClinicalDocument.key(ClinicalDocument.Source.values()[source], sourceId), ordinal);
+        byPatient.computeIfAbsent(patientId, p -> new Postings(4)).add(ordinal, 0);
+    }
+
+    private void delete(int ordinal) {
+        deleted.set(ordinal);
+        liveDocs--;
+        totalLength -= lengths[ordinal];
+    }
+
+    /**
+     * Renumber the live documents without the deleted ordinals and drop them
+     * from every postings list; returns how many were dropped.
+     */
+    public int compact() {
+        lock.writeLock().lock();
+        try {
+            int dropped = deleted.cardinality();
+            if (dropped == 0) return 0;
+            int[] renumbered = new int[docCount];
+            int live = 0;
+            for (int ordinal = 0; ordinal < docCount; ordinal++) {
+                if (deleted.get(ordinal)) {
+                    renumbered[ordinal] = -1;
+                    continue;
+                }
+                renumbered[ordinal] = live;
+                sources[live] = sources[ordinal];
+                sourceIds[live] = sourceIds[ordinal];
+                patientIds[live] = patientIds[ordinal];
+                days[live] = days[ordinal];
+                lengths[live] = lengths[ordinal];
+                titles[live] = titles[ordinal];
+                snippets[live] = snippets[ordinal];
+                live++;
+            }
+            Arrays.fill(titles, live, docCount, null);
+            Arrays.fill(snippets, live, docCount, null);
+            docCount = live;
+            deleted.clear();
+
+            ordinals.replaceAll((key, ordinal) -> renumbered[ordinal]);
+            byPatient.values().removeIf(postings -> renumber(postings, renumbered));
+            terms.values().removeIf(postings -> renumber(postings, renumbered));
+            return dropped;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Renumber a postings list in place, dropping deleted ordinals; returns true if it is now empty. */
+    private static boolean renumber(Postings postings, int[] renumbered) {
+        int kept = 0;
+        for (int i = 0; i < postings.size; i++) {
+            int ordinal = renumbered[postings.docs[i]];
+            if (ordinal < 0) continue;
+            postings.docs[kept] = ordinal;
+            postings.freqs[kept] = postings.freqs[i];
+            kept++;
+        }
+        postings.size = kept;
+        return kept == 0;
+    }
+
+    // ================== SEARCH ==================
+    /**
+     * The best-scoring documents for the query, highest first. Every word is
+     * optional and adds to the score. The last word also matches as a prefix
+     * unless the query ends with a space, so results follow the user's typing.
+     * patientId null searches every patient.
+     */
+    public List<SearchHit> search(String query, Integer patientId, int limit) {
+        List<String> words = TextAnalyzer.terms(query);
+        if (words.isEmpty() || limit < 1) return List.of();
+        boolean lastIsPrefix = !Character.isWhitespace(query.charAt(query.length() - 1));
+
+        lock.readLock().lock();
+        try {
+            if (liveDocs == 0) return List.of();
+            List<Postings> matched = new ArrayList<>();
+            List<Double> idfs = new ArrayList<>();
+            for (int i = 0; i < words.size(); i++) {
+                boolean prefix = lastIsPrefix && i == words.size() - 1;
+                for (Postings postings : expand(words.get(i), prefix)) {
+                    matched.add(postings);
+                    idfs.add(idf(postings.size));
+                }
+            }
+            if (matched.isEmpty()) return List.of();
+            double averageLength = Math.max(1.0, (double) totalLength / liveDocs);
+            PriorityQueue<Scored> top = new PriorityQueue<>();
+            if (patientId != null) {
+                scorePatient(patientId, matched, idfs, averageLength, top, limit);
+            } else {
+                scoreAll(matched, idfs, averageLength, top, limit);
+            }
+            List<SearchHit> hits = new ArrayList<>(top.size());
+            while (!top.isEmpty()) {
+                Scored scored = top.poll();
+                hits.add(hit(scored.ordinal, scored.score));
+            }
+            java.util.Collections.reverse(hits);
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Postings> expand(String word, boolean prefix) {
+        if (!prefix) {
+            Postings exact = terms.get(word);
+            return exact == null ? List.of() : List.of(exact);
+        }
+        List<Postings> expansions = new ArrayList<>();
+        NavigableMap<String, Postings> range = terms.subMap(word, true, word + Character.MAX_VALUE, false);
+        for (Postings postings : range.values()) {
+            if (expansions.size() == maxPrefixTerms) break;
+            expansions.add(postings);
+        }
+        return expansions;
+    }
+
+    private double idf(int documentFrequency) {
+        int df = Math.min(documentFrequency, liveDocs);
+        return Math.log(1 + (liveDocs - df + 0.5) / (df + 0.5));
+    }
+
+    private double termScore(int freq, double idf, int length, double averageLength) {
+        return idf * freq * (K1 + 1) / (freq + K1 * (1 - B + B * length / averageLength));
+    }
+
+    private void scorePatient(int patientId, List<Postings> matched, List<Double> idfs, double averageLength,
+                              PriorityQueue<Scored> top, int limit) {
+        Postings docs = byPatient.get(patientId);
+        if (docs == null) return;
+        for (int i = 0; i < docs.size; i++) {
+            int ordinal = docs.docs[i];
+            if (deleted.get(ordinal)) continue;
+            double score = 0;
+            for (int t = 0; t < matched.size(); t++) {
+                int freq = matched.get(t).freq(ordinal);
+                if (freq > 0) {
+                    score += termScore(freq, idfs.get(t), lengths[ordinal], averageLength);
+                }
+            }
+            offer(top, ordinal, score, limit);
+        }
+    }
+
+    private void scoreAll(List<Postings> matched, List<Double> idfs, double averageLength,
+                          PriorityQueue<Scored> top, int limit) {
+        float[] scores = new float[docCount];
+        BitSet touched = new BitSet(docCount);
+        for (int t = 0; t < matched.size(); t++) {
+            Postings postings = matched.get(t);
+            double idf = idfs.get(t);
+            for (int i = 0; i < postings.size; i++) {
+                int ordinal = postings.docs[i];
+                scores[ordinal] += (float) termScore(postings.freqs[i], idf, lengths[ordinal], averageLength);
+                touched.set(ordinal);
+            }
+        }
+        for (int ordinal = touched.nextSetBit(0); ordinal >= 0; ordinal = touched.nextSetBit(ordinal + 1)) {
+            if (!deleted.get(ordinal)) {
+                offer(top, ordinal, scores[ordinal], limit);
+            }
+        }
+    }
+
+    private void offer(PriorityQueue<Scored> top, int ordinal, double score, int limit) {
+        if (score <= 0) return;
+        Scored candidate = new Scored(ordinal, score, days[ordinal]);
+        if (top.size() < limit) {
+            top.add(candidate);
+        } else if (candidate.compareTo(top.peek()) > 0) {
+            top.poll();
+            top.add(candidate);
+        }
+    }
+
+    /** Orders worst first, so the queue head is the one to drop; ties go to the newer note. */
+    private record Scored(int ordinal, double score, int day) implements Comparable<Scored> {
+        @Override
+        public int compareTo(Scored other) {
+            int byScore = Double.compare(score, other.score);
+            return byScore != 0 ? byScore : Integer.compare(day, other.day);
+        }
+    }
+
+    private SearchHit hit(int ordinal, double score) {
+        return new SearchHit(ClinicalDocument.Source.values()[sources[ordinal]], sourceIds[ordinal],
+                patientIds[ordinal], days[ordinal] == NO_DATE ? null : LocalDate.ofEpochDay(days[ordinal]),
+                titles[ordinal], snippets[ordinal], score);
+    }
+
+    // ================== STATS ==================
+    /** True if the document with this source and id is indexed. */
+    public boolean contains(ClinicalDocument.Source source, long sourceId) {
+        lock.readLock().lock();
+        try {
+            return ordinals.containsKey(ClinicalDocument.key(source, sourceId));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveDocs;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Replaced or removed documents still held until the next {@link #compact}. */
+    public int deletedCount() {
+        lock.readLock().lock();
+        try {
+            return deleted.cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int termCount() {
+        lock.readLock().lock();
+        try {
+            return terms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ================== SEGMENT FORMAT ==================
+    /**
+     * Write live documents and their postings, renumbered without the deleted
+     * ordinals. Terms are written in sorted order.
+     */
+    void writeTo(DataOutputStream out) throws IOException {
+        lock.readLock().lock();
+        try {
+            int[] renumbered = new int[docCount];
+            int live = 0;
+            for (int ordinal = 0; ordinal < docCount; ordinal++) {
+                renumbered[ordinal] = deleted.get(ordinal) ? -1 : live++;
+            }
+            out.writeInt(live);
+            for (int ordinal = 0; ordinal < docCount; ordinal++) {
+                if (renumbered[ordinal] < 0) continue;
+                out.writeByte(sources[ordinal]);
+                out.writeLong(sourceIds[ordinal]);
+                out.writeInt(patientIds[ordinal]);
+                out.writeInt(days[ordinal]);
+                out.writeInt(lengths[ordinal]);
+                writeString(out, titles[ordinal]);
+                writeString(out, snippets[ordinal]);
+            }
+
+            int[] liveFrequency = new int[terms.size()];
+            int termCount = 0;
+            int t = 0;
+            for (Postings postings : terms.values()) {
+                for (int i = 0; i < postings.size; i++) {
+                    if (renumbered[postings.docs[i]] >= 0) liveFrequency[t]++;
+                }
+                if (liveFrequency[t++] > 0) termCount++;
+            }
+            out.writeInt(termCount);
+            t = 0;
+            for (Map.Entry<String, Postings> entry : terms.entrySet()) {
+                if (liveFrequency[t++] == 0) continue;
+                Postings postings = entry.getValue();
+                writeString(out, entry.getKey());
+                out.writeInt(liveFrequency[t - 1]);
+                for (int i = 0; i < postings.size; i++) {
+                    int ordinal = renumbered[postings.docs[i]];
+                    if (ordinal < 0) continue;
+                    out.writeInt(ordinal);
+                    out.writeInt(postings.freqs[i]);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static InvertedIndex readFrom(ByteBuffer in, int maxPrefixTerms) {
+        InvertedIndex index = new InvertedIndex(maxPrefixTerms);
+        int docs = in.getInt();
+        for (int ordinal = 0; ordinal < docs; ordinal++) {
+            byte source = in.get();
+            long sourceId = in.getLong();
+            int patientId = in.getInt();
+            int day = in.getInt();
+            int length = in.getInt();
+            index.store(ordinal, source, sourceId, patientId, day, length, readString(in), readString(in));
+        }
+        int termCount = in.getInt();
+        for (int t = 0; t < termCount; t++) {
+            String term = readString(in);
+            int frequency = in.getInt();
+            Postings postings = new Postings(frequency);
+            for (int i = 0; i < frequency; i++) {
+                postings.add(in.getInt(), in.getInt());
+            }
+            index.terms.put(term, postings);
+        }
+        return index;
+    }
+
+    private static void writeString(DataOutputStream out, String text) throws IOException {
+        byte[] bytes = (text == null ? "" : text).getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
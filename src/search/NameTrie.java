@@ -0,0 +1,162 @@
+package search;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+/**
+ * Prefix trie over normalized names, stored in parallel arrays. A node is an
+ * index, not an object. Each node has its edge label, its first child, its
+ * next sibling and the first and last of the values whose key ends at it, in
+ * insertion order. Siblings are kept in label order, so a depth-first walk
+ * visits keys alphabetically, and the first k values under a prefix are its
+ * top k. A node costs 18 bytes, against well over 100 for a node with a child
+ * map, which matters when every patient adds several keys.
+ *
+ * Not thread-safe; {@link PatientDirectory} guards it with a lock.
+ */
+final class NameTrie {
+
+    private static final int NONE = -1;
+
+    private char[] labels = new char[64];
+    private int[] firstChild = new int[64];
+    private int[] nextSibling = new int[64];
+    private int[] firstValue = new int[64];
+    private int[] lastValue = new int[64];
+    private int nodeCount;
+
+    // Linked lists of values per node
+    private int[] values = new int[64];
+    private int[] nextValue = new int[64];
+    private int valueCount;
+
+    NameTrie() {
+        newNode('\0'); // root
+    }
+
+    // ================== BUILD ==================
+    void insert(String key, int value) {
+        int node = 0;
+        for (int i = 0; i < key.length(); i++) {
+            node = childOrCreate(node, key.charAt(i));
+        }
+        if (valueCount == values.length) {
+            values = Arrays.copyOf(values, valueCount * 2);
+            nextValue = Arrays.copyOf(nextValue, valueCount * 2);
+        }
+        values[valueCount] = value;
+        nextValue[valueCount] = NONE;
+        if (firstValue[node] == NONE) {
+            firstValue[node] = valueCount;
+        } else {
+            nextValue[lastValue[node]] = valueCount;
+        }
+        lastValue[node] = valueCount++;
+    }
+
+    private int childOrCreate(int node, char label) {
+        int previous = NONE;
+        int child = firstChild[node];
+        while (child != NONE && labels[child] < label) {
+            previous = child;
+            child = nextSibling[child];
+        }
+        if (child != NONE && labels[child] == label) return child;
+        int created = newNode(label);
+        nextSibling[created] = child;
+        if (previous == NONE) {
+            firstChild[node] = created;
+        } else {
+            nextSibling[previous] = created;
+        }
+        return created;
+    }
+
+    private int newNode(char label) {
+        if (nodeCount == labels.length) {
+            int capacity = nodeCount * 2;
+            labels = Arrays.copyOf(labels, capacity);
+            firstChild = Arrays.copyOf(firstChild, capacity);
+            nextSibling = Arrays.copyOf(nextSibling, capacity);
+            firstValue = Arrays.copyOf(firstValue, capacity);
+            lastValue = Arrays.copyOf(lastValue, capacity);
+        }
+        labels[nodeCount] = label;
+        firstChild[nodeCount] = NONE;
+        nextSibling[nodeCount] = NONE;
+        firstValue[nodeCount] = NONE;
+        return nodeCount++;
+    }
+
+    // ================== LOOKUP ==================
+    /** The node reached by this prefix, or -1. */
+    int find(String prefix) {
+        int node = 0;
+        for (int i = 0; i < prefix.length() && node != NONE; i++) {
+            node = child(node, prefix.charAt(i));
+        }
+        return node;
+    }
+
+    private int child(int node, char label) {
+        for (int child = firstChild[node]; child != NONE && labels[child] <= label; child = nextSibling[child]) {
+            if (labels[child] == label) return child;
+        }
+        return NONE;
+    }
+
+    /**
+     * Visit values under the node in key order until the visitor returns
+     * false; returns false if it was stopped.
+     */
+    boolean collect(int node, IntPredicate visitor) {
+        for (int v = firstValue[node]; v != NONE; v = nextValue[v]) {
+            if (!visitor.test(values[v])) return false;
+        }
+        for (int child = firstChild[node]; child != NONE; child = nextSibling[child]) {
+            if (!collect(child, visitor)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Nodes whose path is one edit away from the prefix: one character
+     * substituted, inserted, deleted, or two neighbours swapped. The exact
+     * node is not reported; a node can be reported more than once.
+     */
+    void nearNodes(String prefix, IntConsumer out) {
+        near(0, prefix, 0, false, out);
+    }
+
+    private void near(int node, String prefix, int i, boolean edited, IntConsumer out) {
+        if (i == prefix.length()) {
+            if (edited) out.accept(node);
+            return;
+        }
+        char c = prefix.charAt(i);
+        int exact = child(node, c);
+        if (exact != NONE) {
+            near(exact, prefix, i + 1, edited, out);
+        }
+        if (edited) return;
+        near(node, prefix, i + 1, true, out); // typed a character too many
+        for (int child = firstChild[node]; child != NONE; child = nextSibling[child]) {
+            if (labels[child] != c) {
+                near(child, prefix, i + 1, true, out); // typed the wrong character
+            }
+            near(child, prefix, i, true, out); // missed a character
+        }
+        if (i + 1 < prefix.length() && prefix.charAt(i + 1) != c) {
+            int swapped = child(node, prefix.charAt(i + 1));
+            if (swapped != NONE) {
+                swapped = child(swapped, c);
+                if (swapped != NONE) near(swapped, prefix, i + 2, true, out);
+            }
+        }
+    }
+
+    // ================== STATS ==================
+    int nodeCount() { return nodeCount; }
+    int valueCount() { return valueCount; }
+}
@@ -0,0 +1,297 @@
+package search;
+
+import database.ReferenceDataCache;
+import models.User;
+import utils.LatencyHistogram;
+
+import java.sql.SQLException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+import java.util.function.LongSupplier;
+
+/**
+ * Typeahead lookup of patients by name or username for the patient pickers.
+ *
+ * Every patient is filed in a {@link NameTrie} under their normalized full
+ * name, under each later word of it (so "smi" finds "John Smith"), and under
+ * their username. A lookup returns the first matches under the typed prefix in
+ * alphabetical order. If that gives fewer than requested and at least three
+ * characters were typed, matches one typo away follow. Lookups never touch the
+ * database and take microseconds, so the pickers call them on every keystroke.
+ *
+ * The directory is loaded from {@link ReferenceDataCache} and reloaded by
+ * {@link #warmUp} once it is older than the cache's TTL. A new signup is added
+ * right away with {@link #add}.
+ */
+public class PatientDirectory {
+
+    static final int MIN_FUZZY_LENGTH = 3;
+
+    /** A patient offered for the typed text; fuzzy if it only matched with one typo. */
+    public record Match(int userId, String name, String username, boolean fuzzy) {
+    }
+
+    @FunctionalInterface
+    public interface PatientSource {
+        List<User> load() throws SQLException;
+    }
+
+    private static final PatientDirectory INSTANCE = new PatientDirectory(
+            () -> ReferenceDataCache.getInstance().usersByRole(ReferenceDataCache.ROLE_PATIENT),
+            Long.getLong("telehealth.cache.ttlMs", 5 * 60_000L), System::currentTimeMillis);
+
+    private final PatientSource source;
+    private final long ttlMs;
+    private final LongSupplier clock;
+    private final Object loadLock = new Object();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Guarded by lock; values in the trie index these arrays
+    private NameTrie trie = new NameTrie();
+    private int[] userIds = new int[16];
+    private String[] names = new String[16];
+    private String[] usernames = new String[16];
+    private int size;
+    private final BitSet replaced = new BitSet();
+    private final Map<Integer, Integer> slotByUser = new HashMap<>();
+    private final Map<String, Integer> slotByName = new HashMap<>(); // normalized name -> lowest user id's slot
+    private volatile long loadedAt = Long.MIN_VALUE;
+
+    private final LatencyHistogram lookupLatency = new LatencyHistogram();
+
+    public PatientDirectory(PatientSource source, long ttlMs, LongSupplier clock) {
+        this.source = source;
+        this.ttlMs = ttlMs;
+        this.clock = clock;
+    }
+
+    public static PatientDirectory getInstance() {
+        return INSTANCE;
+    }
+
+    // ================== LOADING ==================
+    /** Load the patients if never loaded or older than the TTL. Call from a background thread. */
+    public void warmUp() throws SQLException {
+        if (isFresh()) return;
+        synchronized (loadLock) {
+            if (!isFresh()) reload();
+        }
+    }
+
+    /** Rebuild from the source, replacing whatever was added incrementally. */
+    public void reload() throws SQLException {
+        List<User> patients = source.load();
+        PatientDirectory fresh = new PatientDirectory(source, ttlMs, clock);
+        for (User patient : patients) {
+            fresh.file(patient);
+        }
+        lock.writeLock().lock();
+        try {
+            trie = fresh.trie;
+            userIds = fresh.userIds;
+            names = fresh.names;
+            usernames = fresh.usernames;
+            size = fresh.size;
+            replaced.clear();
+            replaced.or(fresh.replaced);
+            slotByUser.clear();
+            slotByUser.putAll(fresh.slotByUser);
+            slotByName.clear();
+            slotByName.putAll(fresh.slotByName);
+            loadedAt = clock.getAsLong();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean isFresh() {
+        long loaded = loadedAt;
+        return loaded != Long.MIN_VALUE && clock.getAsLong() - loaded < ttlMs;
+    }
+
+    /** Add or update one patient, e.g. right after signup. */
+    public void add(User patient) {
+        lock.writeLock().lock();
+        try {
+            file(patient);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void file(User patient) {
+        Integer previous = slotByUser.get(patient.getId());
+        if (previous != null) {
+            replaced.set(previous);
+            slotByName.values().remove(previous);
+        }
+        if (size == userIds.length) {
+            userIds = Arrays.copyOf(userIds, size * 2);
+            names = Arrays.copyOf(names, size * 2);
+            usernames = Arrays.copyOf(usernames, size * 2);
+        }
+        int slot = size++;
+        userIds[slot] = patient.getId();
+        names[slot] = patient.getName();
+        usernames[slot] = patient.getUsername();
+        slotByUser.put(patient.getId(), slot);
+
+        String name = normalize(patient.getName());
+        if (!name.isEmpty()) {
+            slotByName.merge(name, slot, (a, b) -> userIds[a] <= userIds[b] ? a : b);
+            trie.insert(name, slot);
+            for (int space = name.indexOf(' '); space >= 0; space = name.indexOf(' ', space + 1)) {
+                trie.insert(name.substring(space + 1), slot);
+            }
+        }
+        String username = normalize(patient.getUsername());
+        if (!username.isEmpty() && !username.equals(name)) {
+            trie.insert(username, slot);
+        }
+    }
+
+    // ================== LOOKUP ==================
+    /** Up to limit patients for the typed text: prefix matches first, then matches one typo away. */
+    public List<Match> lookup(String text, int limit) {
+        String prefix = normalize(text);
+        List<Match> matches = new ArrayList<>();
+        if (prefix.isEmpty() || limit < 1) return matches;
+        long start = System.nanoTime();
+        lock.readLock().lock();
+        try {
+            Set<Integer> seen = new HashSet<>();
+            int exact = trie.find(prefix);
+            if (exact >= 0) {
+                trie.collect(exact, slot -> offer(slot, false, seen, matches, limit));
+            }
+            if (matches.size() < limit && prefix.length() >= MIN_FUZZY_LENGTH) {
+                Set<Integer> visited = new HashSet<>();
+                trie.nearNodes(prefix, node -> {
+                    if (matches.size() < limit && visited.add(node)) {
+                        trie.collect(node, slot -> offer(slot, true, seen, matches, limit));
+                    }
+                });
+            }
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+            lookupLatency.recordSince(start);
+        }
+    }
+
+    private boolean offer(int slot, boolean fuzzy, Set<Integer> seen, List<Match> matches, int limit) {
+        if (!replaced.get(slot) && seen.add(userIds[slot])) {
+            matches.add(new Match(userIds[slot], names[slot], usernames[slot], fuzzy));
+        }
+        return matches.size() < limit;
+    }
+
+    /** The patient with exactly this name (ignoring case and accents), lowest user id first. */
+    public Optional<Match> find(String name) {
+        lock.readLock().lock();
+        try {
+            Integer slot = slotByName.get(normalize(name));
+            return slot == null ? Optional.empty()
+                    : Optional.of(new Match(userIds[slot], names[slot], usernames[slot], false));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The one patient the text names: "name (username)" as the pickers show
+     * it, a username, or a name only one patient has. Empty if no patient or
+     * several match, so a shared name is never settled by guessing.
+     */
+    public Optional<Match> resolve(String text) {
+        String typed = text == null ? "" : text.trim();
+        int open = typed.lastIndexOf(" (");
+        if (open > 0 && typed.endsWith(")")) {
+            String username = typed.substring(open + 2, typed.length() - 1);
+            return unique(username, slot -> username.equalsIgnoreCase(usernames[slot]));
+        }
+        Optional<Match> byUsername = unique(typed, slot -> typed.equalsIgnoreCase(usernames[slot]));
+        if (byUsername.isPresent()) return byUsername;
+        String name = normalize(typed);
+        return unique(typed, slot -> name.equals(normalize(names[slot])));
+    }
+
+    /** The patient filed under the key for whom test holds, if there is exactly one. */
+    private Optional<Match> unique(String key, IntPredicate test) {
+        String prefix = normalize(key);
+        if (prefix.isEmpty()) return Optional.empty();
+        lock.readLock().lock();
+        try {
+            int node = trie.find(prefix);
+            if (node < 0) return Optional.empty();
+            Set<Integer> users = new HashSet<>();
+            int[] found = {-1};
+            trie.collect(node, slot -> {
+                if (!replaced.get(slot) && test.test(slot) && users.add(userIds[slot])) found[0] = slot;
+                return users.size() < 2;
+            });
+            int slot = found[0];
+            return users.size() == 1 ? Optional.of(new Match(userIds[slot], names[slot], usernames[slot], false))
+                    : Optional.empty();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Lower case without accents, with runs of anything but letters and
+     * digits turned into one space.
+     */
+    static String normalize(String text) {
+        if (text == null) return "";
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder sb = new StringBuilder(decomposed.length());
+        boolean space = false;
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) continue;
+            if (Character.isLetterOrDigit(c)) {
+                if (space && sb.length() > 0) sb.append(' ');
+                sb.append(Character.toLowerCase(c));
+                space = false;
+            } else {
+                space = true;
+            }
+        }
+        return sb.toString();
+    }
+
+    // ================== METRICS ==================
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return slotByUser.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public LatencyHistogram getLookupLatency() { return lookupLatency; }
+
+    public String metrics() {
+        lock.readLock().lock();
+        try {
+            return String.format(Locale.ROOT, "patients=%d trieNodes=%d keys=%d, lookups %s",
+                    slotByUser.size(), trie.nodeCount(), trie.valueCount(), lookupLatency.summary());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
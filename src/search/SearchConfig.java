@@ -0,0 +1,55 @@
+package search;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Settings for {@link ClinicalSearchIndex}. Every value can be overridden with
+ * a system property prefixed by "telehealth.search." (e.g. -Dtelehealth.search.syncIntervalMs=30000).
+ */
+public class SearchConfig {
+
+    private Path segmentFile = Paths.get(System.getProperty("user.home"), ".telehealth", "search-index.seg");
+    private long syncIntervalMs = 60_000;   // read rows other clients wrote and save the segment this often
+    private int catchUpBatchSize = 1_000;   // rows per keyset page when reading new rows
+    private int catchUpOverlap = 200;       // ids below the high-water mark read again, for rows committed out of order
+    private int maxPrefixTerms = 64;        // index terms a prefix such as "amox" may expand to
+
+    public static SearchConfig fromSystemProperties() {
+        SearchConfig config = new SearchConfig();
+        String segment = System.getProperty("telehealth.search.segmentFile");
+        if (segment != null) {
+            config.segmentFile = Paths.get(segment);
+        }
+        config.syncIntervalMs = Long.getLong("telehealth.search.syncIntervalMs", config.syncIntervalMs);
+        config.catchUpBatchSize = Integer.getInteger("telehealth.search.catchUpBatchSize", config.catchUpBatchSize);
+        config.catchUpOverlap = Integer.getInteger("telehealth.search.catchUpOverlap", config.catchUpOverlap);
+        config.maxPrefixTerms = Integer.getInteger("telehealth.search.maxPrefixTerms", config.maxPrefixTerms);
+        config.validate();
+        return config;
+    }
+
+    public void validate() {
+        if (segmentFile == null) {
+            throw new IllegalArgumentException("segmentFile is required");
+        }
+        if (syncIntervalMs < 0 || catchUpOverlap < 0 || catchUpBatchSize < 1 || maxPrefixTerms < 1) {
+            throw new IllegalArgumentException("syncIntervalMs and catchUpOverlap must not be negative; "
+                    + "catchUpBatchSize and maxPrefixTerms at least 1");
+        }
+    }
+
+    // Getters
+    public Path getSegmentFile() { return segmentFile; }
+    public long getSyncIntervalMs() { return syncIntervalMs; }
+    public int getCatchUpBatchSize() { return catchUpBatchSize; }
+    public int getCatchUpOverlap() { return catchUpOverlap; }
+    public int getMaxPrefixTerms() { return maxPrefixTerms; }
+
+    // Setters
+    public void setSegmentFile(Path segmentFile) { this.segmentFile = segmentFile; }
+    public void setSyncIntervalMs(long syncIntervalMs) { this.syncIntervalMs = syncIntervalMs; }
+    public void setCatchUpBatchSize(int catchUpBatchSize) { this.catchUpBatchSize = catchUpBatchSize; }
+    public void setCatchUpOverlap(int catchUpOverlap) { this.catchUpOverlap = catchUpOverlap; }
+    public void setMaxPrefixTerms(int maxPrefixTerms) { this.maxPrefixTerms = maxPrefixTerms; }
+}
@@ -0,0 +1,8 @@
+package search;
+
+import java.time.LocalDate;
+
+/** A ranked search result; snippet is the start of the indexed text. */
+public record SearchHit(ClinicalDocument.Source source, long sourceId, int patientId, LocalDate date, String title,
+                        String snippet, double score) {
+}
@@ -0,0 +1,84 @@
+package search;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The saved index: a header with the highest row id read per source, then
+ * the documents and sorted postings written by {@link InvertedIndex}.
+ *
+ * Loading maps the file read-only and decodes straight from the mapping, so
+ * a large segment costs no extra heap copy. Saving goes through a temp file
+ * and an atomic rename, so a crash leaves the previous segment in place.
+ */
+final class SegmentFile {
+
+    static final int MAGIC = 0x54485358; // "THSX"
+    static final int VERSION = 1;
+
+    record Contents(InvertedIndex index, long[] highWater) {
+    }
+
+    private SegmentFile() {
+    }
+
+    static void write(Path file, InvertedIndex index, long[] highWater) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(highWater.length);
+            for (long id : highWater) {
+                out.writeLong(id);
+            }
+            index.writeTo(out);
+        }
+        try {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /** The saved index, or null if there is no segment yet. */
+    static Contents read(Path file, int maxPrefixTerms) throws IOException {
+        if (!Files.exists(file)) return null;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return decode(in, maxPrefixTerms, file);
+        }
+    }
+
+    private static Contents decode(ByteBuffer in, int maxPrefixTerms, Path file) throws IOException {
+        try {
+            if (in.getInt() != MAGIC || in.getInt() != VERSION) {
+                throw new IOException("Not a search segment (or an older version): " + file);
+            }
+            int sources = in.getInt();
+            if (sources != ClinicalDocument.Source.values().length) {
+                throw new IOException("Search segment has " + sources + " sources: " + file);
+            }
+            long[] highWater = new long[sources];
+            for (int i = 0; i < sources; i++) {
+                highWater[i] = in.getLong();
+            }
+            return new Contents(InvertedIndex.readFrom(in, maxPrefixTerms), highWater);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+            throw new IOException("Corrupt search segment " + file, e);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Splits clinical text into index terms: lower-cased runs of letters and
+ * digits of at least two characters, minus common English stop words.
+ * Documents and queries go through the same rules, so "Fever," in a note
+ * matches a search for "fever" and "500mg" stays one term.
+ */
+public final class TextAnalyzer {
+
+    static final int MAX_TERM_LENGTH = 40;
+
+    private static final Set<String> STOP_WORDS = Set.of("an", "and", "are", "as", "at", "be", "by", "for", "from",
+            "has", "in", "is", "it", "of", "on", "or", "the", "to", "was", "were", "with");
+
+    private TextAnalyzer() {
+    }
+
+    public static List<String> terms(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) return terms;
+        StringBuilder term = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                if (term.length() < MAX_TERM_LENGTH) {
+                    term.append(Character.toLowerCase(c));
+                }
+            } else if (term.length() > 0) {
+                add(terms, term.toString());
+                term.setLength(0);
+            }
+        }
+        return terms;
+    }
+
+    private static void add(List<String> terms, String term) {
+        if (term.length() >= 2 && !STOP_WORDS.contains(term)) {
+            terms.add(term);
+        }
+    }
+}
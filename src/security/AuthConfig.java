@@ -0,0 +1,69 @@
+package security;
+
+/**
+ * Settings for {@link services.AuthService}. Every value can be overridden with
+ * a system property prefixed by "telehealth.auth." (e.g. -Dtelehealth.auth.iterations=310000).
+ */
+public class AuthConfig {
+
+    private int iterations = 600_000;          // PBKDF2-HMAC-SHA256 cost for new hashes
+    private int kdfThreads = Math.max(2, Runtime.getRuntime().availableProcessors() / 2); // hashing never takes every core
+    private long cacheTtlMs = 15 * 60_000;     // how long a verified login skips the KDF
+    private int cacheSize = 10_000;
+    private int userBurst = 10;                // attempts per username before throttling
+    private double userPerMinute = 10;
+    private int addressBurst = 300;            // a clinic's terminals may share one address
+    private double addressPerMinute = 600;
+    private int maxTrackedKeys = 100_000;
+
+    public static AuthConfig fromSystemProperties() {
+        AuthConfig config = new AuthConfig();
+        config.iterations = Integer.getInteger("telehealth.auth.iterations", config.iterations);
+        config.kdfThreads = Integer.getInteger("telehealth.auth.kdfThreads", config.kdfThreads);
+        config.cacheTtlMs = Long.getLong("telehealth.auth.cacheTtlMs", config.cacheTtlMs);
+        config.cacheSize = Integer.getInteger("telehealth.auth.cacheSize", config.cacheSize);
+        config.userBurst = Integer.getInteger("telehealth.auth.userBurst", config.userBurst);
+        config.userPerMinute = Double.parseDouble(System.getProperty("telehealth.auth.userPerMinute",
+                String.valueOf(config.userPerMinute)));
+        config.addressBurst = Integer.getInteger("telehealth.auth.addressBurst", config.addressBurst);
+        config.addressPerMinute = Double.parseDouble(System.getProperty("telehealth.auth.addressPerMinute",
+                String.valueOf(config.addressPerMinute)));
+        config.maxTrackedKeys = Integer.getInteger("telehealth.auth.maxTrackedKeys", config.maxTrackedKeys);
+        config.validate();
+        return config;
+    }
+
+    public void validate() {
+        if (iterations < PasswordHasher.MIN_ITERATIONS) {
+            throw new IllegalArgumentException("iterations must be at least " + PasswordHasher.MIN_ITERATIONS);
+        }
+        if (kdfThreads < 1 || cacheSize < 0 || cacheTtlMs < 0) {
+            throw new IllegalArgumentException("kdfThreads must be at least 1; cacheSize and cacheTtlMs not negative");
+        }
+        if (userBurst < 1 || addressBurst < 1 || userPerMinute <= 0 || addressPerMinute <= 0 || maxTrackedKeys < 1) {
+            throw new IllegalArgumentException("rate limits must be positive");
+        }
+    }
+
+    // Getters
+    public int getIterations() { return iterations; }
+    public int getKdfThreads() { return kdfThreads; }
+    public long getCacheTtlMs() { return cacheTtlMs; }
+    public int getCacheSize() { return cacheSize; }
+    public int getUserBurst() { return userBurst; }
+    public double getUserPerMinute() { return userPerMinute; }
+    public int getAddressBurst() { return addressBurst; }
+    public double getAddressPerMinute() { return addressPerMinute; }
+    public int getMaxTrackedKeys() { return maxTrackedKeys; }
+
+    // Setters
+    public void setIterations(int iterations) { this.iterations = iterations; }
+    public void setKdfThreads(int kdfThreads) { this.kdfThreads = kdfThreads; }
+    public void setCacheTtlMs(long cacheTtlMs) { this.cacheTtlMs = cacheTtlMs; }
+    public void setCacheSize(int cacheSize) { this.cacheSize = cacheSize; }
+    public void setUserBurst(int userBurst) { this.userBurst = userBurst; }
+    public void setUserPerMinute(double userPerMinute) { this.userPerMinute = userPerMinute; }
+    public void setAddressBurst(int addressBurst) { this.addressBurst = addressBurst; }
+    public void setAddressPerMinute(double addressPerMinute) { this.addressPerMinute = addressPerMinute; }
+    public void setMaxTrackedKeys(int maxTrackedKeys) { this.maxTrackedKeys = maxTrackedKeys; }
+}
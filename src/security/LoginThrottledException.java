@@ -0,0 +1,26 @@
+package security;
+
+/**
+ * Thrown when a login is refused because the username or client address has
+ * made too many attempts recently. The password was not checked.
+ */
+public class LoginThrottledException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long retryAfterMs;
+
+    public LoginThrottledException(String message, long retryAfterMs) {
+        super(message);
+        this.retryAfterMs = retryAfterMs;
+    }
+
+    public long getRetryAfterMs() {
+        return retryAfterMs;
+    }
+
+    /** Whole seconds to wait, at least 1, for showing to the user. */
+    public long getRetryAfterSeconds() {
+        return Math.max(1, (retryAfterMs + 999) / 1000);
+    }
+}
@@ -0,0 +1,94 @@
+package security;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Salted PBKDF2 (HMAC-SHA256, from the JDK) password hashes, stored as
+ * "pbkdf2-sha256$iterations$salt$hash" with Base64 salt and hash so the cost
+ * can be raised later without invalidating existing rows.
+ *
+ * Anything not in that format is treated as a legacy plaintext password:
+ * {@link #verify} still accepts it and {@link #needsRehash} reports it, so it
+ * is replaced with a hash at the user's next successful login.
+ */
+public class PasswordHasher {
+
+    public static final String SCHEME = "pbkdf2-sha256";
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BYTES = 32;
+    public static final int MIN_ITERATIONS = 1_000;
+
+    private final int iterations;
+    private final SecureRandom random = new SecureRandom();
+
+    public PasswordHasher(int iterations) {
+        if (iterations < MIN_ITERATIONS) {
+            throw new IllegalArgumentException("PBKDF2 iterations must be at least " + MIN_ITERATIONS);
+        }
+        this.iterations = iterations;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    /** A new hash with a random salt, at this hasher's cost. */
+    public String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        Base64.Encoder b64 = Base64.getEncoder().withoutPadding();
+        return SCHEME + "$" + iterations + "$" + b64.encodeToString(salt) + "$"
+                + b64.encodeToString(derive(password, salt, iterations));
+    }
+
+    /** Whether the password matches the stored value, hashed or legacy plaintext. */
+    public boolean verify(String password, String stored) {
+        if (password == null || stored == null) return false;
+        if (isLegacy(stored)) {
+            return MessageDigest.isEqual(password.getBytes(StandardCharsets.UTF_8), stored.getBytes(StandardCharsets.UTF_8));
+        }
+        String[] parts = stored.split("\\$");
+        if (parts.length != 4) return false;
+        try {
+            int cost = Integer.parseInt(parts[1]);
+            byte[] salt = Base64.getDecoder().decode(parts[2]);
+            byte[] expected = Base64.getDecoder().decode(parts[3]);
+            return cost >= MIN_ITERATIONS && MessageDigest.isEqual(expected, derive(password, salt, cost));
+        } catch (IllegalArgumentException e) {
+            return false; // malformed row never matches
+        }
+    }
+
+    public static boolean isLegacy(String stored) {
+        return stored == null || !stored.startsWith(SCHEME + "$");
+    }
+
+    /** True for plaintext rows and hashes made with fewer iterations than this hasher uses. */
+    public boolean needsRehash(String stored) {
+        if (isLegacy(stored)) return true;
+        String[] parts = stored.split("\\$");
+        try {
+            return parts.length != 4 || Integer.parseInt(parts[1]) < iterations;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    private static byte[] derive(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BYTES * 8);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available in this JDK", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package security;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Token-bucket rate limiter with one bucket per key (e.g. a username or a
+ * client address). Each bucket holds up to capacity tokens and refills
+ * continuously at refillPerMinute; an attempt takes one token. Buckets that
+ * have refilled completely carry no state worth keeping and are dropped once
+ * more than maxKeys keys are tracked.
+ */
+public class TokenBucketLimiter {
+
+    private static final class Bucket {
+        double tokens;
+        long updatedAt;
+
+        Bucket(double tokens, long updatedAt) {
+            this.tokens = tokens;
+            this.updatedAt = updatedAt;
+        }
+    }
+
+    private final int capacity;
+    private final double tokensPerMs;
+    private final int maxKeys;
+    private final LongSupplier clock;
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    public TokenBucketLimiter(int capacity, double refillPerMinute, int maxKeys, LongSupplier clock) {
+        if (capacity < 1 || refillPerMinute <= 0 || maxKeys < 1) {
+            throw new IllegalArgumentException("capacity, refillPerMinute and maxKeys must be positive");
+        }
+        this.capacity = capacity;
+        this.tokensPerMs = refillPerMinute / 60_000.0;
+        this.maxKeys = maxKeys;
+        this.clock = clock;
+    }
+
+    /**
+     * Take a token for this key. Returns 0 if the attempt is allowed, otherwise
+     * the milliseconds until the next token is available.
+     */
+    public long acquire(String key) {
+        long now = clock.getAsLong();
+        Bucket bucket = buckets.computeIfAbsent(key, k -> new Bucket(capacity, now));
+        long waitMs;
+        synchronized (bucket) {
+            refill(bucket, now);
+            if (bucket.tokens >= 1) {
+                bucket.tokens -= 1;
+                waitMs = 0;
+            } else {
+                waitMs = (long) Math.ceil((1 - bucket.tokens) / tokensPerMs);
+            }
+        }
+        if (buckets.size() > maxKeys) {
+            evictFull(now);
+        }
+        return waitMs;
+    }
+
+    /** Tokens currently available for the key (capacity for an unseen key). */
+    public double available(String key) {
+        Bucket bucket = buckets.get(key);
+        if (bucket == null) return capacity;
+        synchronized (bucket) {
+            refill(bucket, clock.getAsLong());
+            return bucket.tokens;
+        }
+    }
+
+    public int trackedKeys() {
+        return buckets.size();
+    }
+
+    private void refill(Bucket bucket, long now) {
+        if (now > bucket.updatedAt) {
+            bucket.tokens = Math.min(capacity, bucket.tokens + (now - bucket.updatedAt) * tokensPerMs);
+            bucket.updatedAt = now;
+        }
+    }
+
+    private void evictFull(long now) {
+        Iterator<Bucket> it = buckets.values().iterator();
+        while (it.hasNext()) {
+            Bucket bucket = it.next();
+            synchronized (bucket) {
+                refill(bucket, now);
+                if (bucket.tokens >= capacity) it.remove();
+            }
+        }
+    }
+}
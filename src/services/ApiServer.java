@@ -0,0 +1,668 @@
+package services;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import database.DatabaseHelper;
+import database.SlotConflictException;
+import events.EventBus;
+import events.VitalsAlertPublisher;
+import models.Appointment;
+import models.Diagnosis;
+import models.HospitalReferral;
+import security.LoginThrottledException;
+import session.SessionContext;
+import session.SessionStore;
+import utils.DbExecutor;
+import utils.FlatJson;
+import utils.LatencyHistogram;
+import vitals.MetricFinding;
+import vitals.VitalsAssessment;
+import vitals.VitalsValidator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Local REST API over the service layer, so thin clients and load tests can
+ * use the same booking, vitals, diagnosis, referral and report logic as the
+ * desktop screens.
+ *
+ * Requests and responses are flat JSON objects (lists are JSON arrays of
+ * them); reports are plain text. Each request runs on its own virtual thread
+ * where the JDK has them, otherwise on a bounded pool. Errors come back as
+ * {"error": "..."}: 400 for invalid input, 404 for unknown ids, 409 when a
+ * slot is already booked. GET /api/metrics reports latency per route, with
+ * unknown paths and methods counted together as "unmatched".
+ *
+ * Every route except /api/health needs a session: POST /api/login with
+ * {"username": ..., "password": ...} checks the account with
+ * {@link AuthService} (so the login throttling applies, 429 when it
+ * refuses) and returns a token from {@link SessionStore}; send it as
+ * "Authorization: Bearer &lt;token&gt;". A missing, ended or expired token gets
+ * 401. Sessions expire like the desktop's, and POST /api/logout ends one.
+ *
+ * Doctors and staff can read and write every patient's records. Any other
+ * role only reaches its own: asking for another userId or patientId, a
+ * by-name or recent list, another patient's booking, or writing a diagnosis
+ * or referral gets 403.
+ *
+ * Binds to -Dtelehealth.api.host (default 127.0.0.1) and -Dtelehealth.api.port
+ * (default 8086). Passwords and tokens travel as plain HTTP, so the server
+ * refuses to listen on a non-loopback address unless
+ * -Dtelehealth.api.allowRemote=true, e.g. behind a TLS proxy.
+ *
+ * <pre>
+ * GET  /api/health
+ * POST /api/login                         POST /api/logout
+ * GET  /api/metrics
+ * GET  /api/bookings?patientId=6          POST /api/bookings
+ * PUT  /api/bookings/{id}                 POST /api/bookings/{id}/cancel
+ * GET  /api/vitals?userId=6&amp;limit=20      POST /api/vitals
+ * GET  /api/vitals/{userId}/assessment
+ * GET  /api/diagnoses?patientId=6         POST /api/diagnoses   (or ?patient=Name)
+ * GET  /api/referrals?patientId=6         POST /api/referrals   (or ?patient=Name)
+ * GET  /api/reports/{userId}              POST /api/reports/{userId}  (generate and store)
+ * </pre>
+ */
+public class ApiServer implements AutoCloseable {
+
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+    private static final int DEFAULT_LIMIT = 20;
+    private static final int MAX_LIMIT = 500;
+    private static final boolean ALLOW_REMOTE = Boolean.getBoolean("telehealth.api.allowRemote");
+    /** Routes timed on their own; any other method and path shares UNMATCHED, so callers cannot grow the metrics. */
+    private static final Set<String> ROUTES = Set.of(
+            "GET /api/health", "POST /api/login", "POST /api/logout", "GET /api/metrics",
+            "GET /api/bookings", "POST /api/bookings", "PUT /api/bookings/{id}", "POST /api/bookings/{id}/cancel",
+            "GET /api/vitals", "POST /api/vitals", "GET /api/vitals/{id}/assessment",
+            "GET /api/diagnoses", "POST /api/diagnoses", "GET /api/referrals", "POST /api/referrals",
+            "GET /api/reports/{id}");
+    private static final String UNMATCHED = "unmatched";
+
+    /** A failure with its HTTP status. */
+    static class ApiException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        private final int status;
+
+        ApiException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private record Response(int status, String contentType, String body) {
+        static Response json(int status, String body) {
+            return new Response(status, "application/json", body);
+        }
+
+        static Response text(String body) {
+            return new Response(200, "text/plain; charset=utf-8", body);
+        }
+    }
+
+    /** Already-encoded JSON, nested as is. */
+    private record Raw(String json) {
+    }
+
+    private final BookingService bookings;
+    private final VitalsService vitals;
+    private final DiagnosisService diagnoses;
+    private final ReferralService referrals;
+    private final ReportService reports;
+    private final AuthService auth;
+    private final SessionStore sessions;
+
+    private final Map<String, LatencyHistogram> latency = new ConcurrentHashMap<>();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public ApiServer(BookingService bookings, VitalsService vitals, DiagnosisService diagnoses,
+                     ReferralService referrals, ReportService reports, AuthService auth, SessionStore sessions) {
+        this.bookings = bookings;
+        this.vitals = vitals;
+        this.diagnoses = diagnoses;
+        this.referrals = referrals;
+        this.reports = reports;
+        this.auth = auth;
+        this.sessions = sessions;
+    }
+
+    /** Server backed by the application database, accounts and session store. */
+    public static ApiServer withDatabase() {
+        return new ApiServer(new BookingService(), new VitalsService(), new DiagnosisService(),
+                new ReferralService(), new ReportService(), AuthService.getInstance(), SessionStore.getInstance());
+    }
+
+    // ================== LIFECYCLE ==================
+    /** Listen on host:port; a non-loopback host is refused unless -Dtelehealth.api.allowRemote=true. */
+    public synchronized void start(String host, int port) throws IOException {
+        if (server != null) return;
+        if (!ALLOW_REMOTE && !InetAddress.getByName(host).isLoopbackAddress()) {
+            throw new IOException("Refusing to listen on " + host + ": passwords and session tokens would be sent "
+                    + "unencrypted. Use 127.0.0.1, or set -Dtelehealth.api.allowRemote=true behind a TLS proxy.");
+        }
+        server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        executor = DbExecutor.newVirtualThreadExecutorOrNull();
+        if (executor == null) {
+            executor = DbExecutor.newBoundedExecutor("api-http", 32);
+        }
+        server.setExecutor(executor);
+        server.createContext("/api/", this::handle);
+        server.start();
+    }
+
+    public synchronized int getPort() {
+        return server != null ? server.getAddress().getPort() : -1;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (server != null) {
+            server.stop(1);
+            executor.shutdown();
+            server = null;
+        }
+    }
+
+    // ================== METRICS ==================
+    /** One line per route: request count and latency percentiles. */
+    public String metrics() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("requests=%d failed=%d%n", requests.sum(), failures.sum()));
+        new TreeMap<>(latency).forEach((route, histogram) ->
+                sb.append(route).append(' ').append(histogram.summary()).append('\n'));
+        return sb.toString();
+    }
+
+    // ================== DISPATCH ==================
+    private void handle(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        String method = exchange.getRequestMethod();
+        List<String> path = segments(exchange.getRequestURI().getPath());
+        Response response;
+        try {
+            SessionContext session = authorize(path, exchange);
+            response = route(method, path, query(exchange.getRequestURI().getRawQuery()), exchange, session);
+        } catch (ApiException e) {
+            response = error(e.status, e.getMessage());
+        } catch (LoginThrottledException e) {
+            exchange.getResponseHeaders().set("Retry-After", String.valueOf(e.getRetryAfterSeconds()));
+            response = error(429, e.getMessage());
+        } catch (SlotConflictException e) {
+            response = error(409, e.getMessage());
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            response = error(400, e.getMessage());
+        } catch (SQLException | RuntimeException e) {
+            e.printStackTrace();
+            response = error(500, "Internal error");
+        }
+
+        try (exchange) {
+            byte[] body = response.body().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", response.contentType());
+            if (response.status() == 401) {
+                exchange.getResponseHeaders().set("WWW-Authenticate", "Bearer");
+            }
+            exchange.sendResponseHeaders(response.status(), body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            requests.increment();
+            if (response.status() >= 500) failures.increment();
+            String route = method + " " + template(path);
+            latency.computeIfAbsent(ROUTES.contains(route) ? route : UNMATCHED, key -> new LatencyHistogram()).recordSince(start);
+        }
+    }
+
+    private Response route(String method, List<String> path, Map<String, String> query, HttpExchange exchange,
+                           SessionContext session) throws IOException, SQLException, LoginThrottledException {
+        String resource = path.isEmpty() ? "" : path.get(0);
+        switch (resource) {
+            case "health":
+                requireMethod(method, "GET");
+                return Response.json(200, "{\"status\":\"UP\"}");
+            case "login":
+                requireMethod(method, "POST");
+                return login(exchange);
+            case "logout":
+                requireMethod(method, "POST");
+                sessions.invalidate(bearerToken(exchange));
+                return Response.json(200, object("loggedOut", true));
+            case "metrics":
+                requireMethod(method, "GET");
+                return Response.text(metrics());
+            case "bookings":
+                return bookings(method, path, query, exchange, session);
+            case "vitals":
+                return vitals(method, path, query, exchange, session);
+            case "diagnoses":
+                return diagnoses(method, query, exchange, session);
+            case "referrals":
+                return referrals(method, query, exchange, session);
+            case "reports":
+                return reports(method, path, session);
+            default:
+                throw new ApiException(404, "Unknown resource");
+        }
+    }
+
+    // ================== SESSIONS ==================
+    /** Every route except health and login needs a live session; returns it, or null for those two. */
+    private SessionContext authorize(List<String> path, HttpExchange exchange) {
+        String resource = path.isEmpty() ? "" : path.get(0);
+        if (resource.equals("health") || resource.equals("login")) return null;
+        SessionContext session = sessions.get(bearerToken(exchange));
+        if (session == null) {
+            throw new ApiException(401, "Log in with POST /api/login and send the token as a Bearer token");
+        }
+        return session;
+    }
+
+    /** Doctors and staff work with every patient's records. */
+    private static boolean isClinician(SessionContext session) {
+        return session.isRole("Doctor") || session.isRole("Staff") || session.isRole("Admin");
+    }
+
+    private static void requireClinician(SessionContext session) {
+        if (!isClinician(session)) {
+            throw new ApiException(403, "Only doctors and staff can do this");
+        }
+    }
+
+    /** Patients may only reach their own records. */
+    private static void requireSelf(SessionContext session, int userId) {
+        if (!isClinician(session) && userId != session.userId()) {
+            throw new ApiException(403, "You can only access your own records");
+        }
+    }
+
+    private Response login(HttpExchange exchange) throws IOException, SQLException, LoginThrottledException {
+        Map<String, String> json = body(exchange);
+        AuthService.AuthenticatedUser user;
+        try {
+            user = auth.authenticate(required(json, "username"), required(json, "password"),
+                    exchange.getRemoteAddress().getAddress().getHostAddress());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ApiException(503, "Shutting down");
+        }
+        if (user == null) {
+            throw new ApiException(401, "Invalid username or password");
+        }
+        SessionContext session = sessions.open(user.userId(), user.name(), user.role());
+        return Response.json(200, object("token", session.sessionId(), "userId", user.userId(), "role", user.role()));
+    }
+
+    /** The token from "Authorization: Bearer ...", or null. */
+    private static String bearerToken(HttpExchange exchange) {
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        if (header == null || !header.regionMatches(true, 0, "Bearer ", 0, 7)) return null;
+        String token = header.substring(7).trim();
+        return token.isEmpty() ? null : token;
+    }
+
+    // ================== BOOKINGS ==================
+    private Response bookings(String method, List<String> path, Map<String, String> query, HttpExchange exchange,
+                              SessionContext session) throws IOException, SQLException {
+        if (path.size() == 1 && method.equals("GET")) {
+            int patientId = intParam(query, "patientId");
+            requireSelf(session, patientId);
+            List<Raw> rows = new ArrayList<>();
+            for (Appointment booking : bookings.forPatient(patientId)) {
+                rows.add(bookingJson(booking));
+            }
+            return Response.json(200, value(rows));
+        }
+        if (path.size() == 1 && method.equals("POST")) {
+            BookingService.BookingRequest request = bookingRequest(body(exchange));
+            requireSelf(session, request.patientId());
+            long id = bookings.create(request);
+            return Response.json(201, object("bookingId", id));
+        }
+        if (path.size() == 2 && method.equals("PUT")) {
+            int bookingId = requireOwnBooking(session, path.get(1));
+            int rows = bookings.update(bookingId, bookingRequest(body(exchange)));
+            return changed(rows, "Booking not found");
+        }
+        if (path.size() == 3 && path.get(2).equals("cancel") && method.equals("POST")) {
+            int bookingId = requireOwnBooking(session, path.get(1));
+            return changed(bookings.cancel(bookingId), "Booking not found or already cancelled");
+        }
+        throw new ApiException(405, "Unsupported bookings request");
+    }
+
+    /** The booking id, once the session may change that booking. */
+    private int requireOwnBooking(SessionContext session, String segment) throws SQLException {
+        int bookingId = id(segment);
+        if (!isClinician(session)) {
+            int patientId = bookings.patientOf(bookingId);
+            if (patientId == 0) {
+                throw new ApiException(404, "Booking not found");
+            }
+            requireSelf(session, patientId);
+        }
+        return bookingId;
+    }
+
+    private static BookingService.BookingRequest bookingRequest(Map<String, String> json) {
+        return new BookingService.BookingRequest(
+                intField(json, "patientId"),
+                json.get("patientName"),
+                intField(json, "doctorId"),
+                LocalDate.parse(required(json, "date")),
+                LocalTime.parse(required(json, "time")),
+                json.get("symptoms"),
+                json.get("consultationMode"),
+                json.get("status"));
+    }
+
+    private static Raw bookingJson(Appointment booking) {
+        return new Raw(object("bookingId", booking.getAppointmentId(), "doctor", booking.getSpecialistName(),
+                "date", booking.getAppointmentDate(), "time", booking.getTimeSlot(),
+                "consultationMode", booking.getConsultationType(), "status", booking.getStatus()));
+    }
+
+    // ================== VITALS ==================
+    private Response vitals(String method, List<String> path, Map<String, String> query, HttpExchange exchange,
+                            SessionContext session) throws IOException, SQLException {
+        if (path.size() == 1 && method.equals("POST")) {
+            Map<String, String> json = body(exchange);
+            requireSelf(session, intField(json, "userId"));
+            VitalsAssessment assessment = vitals.submit(VitalsValidator.fromJson(json, System.currentTimeMillis()));
+            if (assessment == null) {
+                throw new ApiException(500, "Reading was not saved");
+            }
+            return Response.json(201, assessmentJson(assessment).json());
+        }
+        if (path.size() == 1 && method.equals("GET")) {
+            int userId = intParam(query, "userId");
+            requireSelf(session, userId);
+            List<Raw> rows = new ArrayList<>();
+            for (VitalsService.HistoryEntry entry : vitals.history(userId, limit(query))) {
+                rows.add(new Raw(object("pulse", entry.pulse(), "temperature", entry.temperature(),
+                        "respiration", entry.respiration(), "bloodPressure", entry.bloodPressure(),
+                        "weight", entry.weight(), "height", entry.height(), "oxygen", entry.oxygen(),
+                        "recordedAt", entry.recordedAt())));
+            }
+            return Response.json(200, value(rows));
+        }
+        if (path.size() == 3 && path.get(2).equals("assessment") && method.equals("GET")) {
+            int userId = id(path.get(1));
+            requireSelf(session, userId);
+            VitalsAssessment assessment = vitals.assessment(userId);
+            if (assessment == null) {
+                throw new ApiException(404, "No vitals recorded");
+            }
+            return Response.json(200, assessmentJson(assessment).json());
+        }
+        throw new ApiException(405, "Unsupported vitals request");
+    }
+
+    private static Raw assessmentJson(VitalsAssessment assessment) {
+        List<String> alerts = new ArrayList<>();
+        for (MetricFinding finding : assessment.alerts()) {
+            alerts.add(finding.describe());
+        }
+        return new Raw(object("userId", assessment.userId(), "vitalsId", assessment.vitalsId(),
+                "recordedAt", assessment.recordedAt(), "status", assessment.worstStatus(),
+                "critical", assessment.isCritical(), "alerts", alerts));
+    }
+
+    // ================== DIAGNOSES ==================
+    private Response diagnoses(String method, Map<String, String> query, HttpExchange exchange,
+                               SessionContext session) throws IOException, SQLException {
+        if (method.equals("POST")) {
+            requireClinician(session);
+            Map<String, String> json = body(exchange);
+            Diagnosis diagnosis = new Diagnosis(optionalInt(json, "appointmentId"), json.get("patientName"),
+                    json.get("doctorName"), json.get("diagnosis"), json.get("symptoms"), json.get("prescription"),
+                    json.get("treatmentPlan"));
+            diagnosis.setPatientId(optionalInt(json, "patientId"));
+            diagnosis.setFollowUpInstructions(json.getOrDefault("followUp", ""));
+            if (json.get("severity") != null) diagnosis.setSeverity(json.get("severity"));
+            if (json.get("status") != null) diagnosis.setStatus(json.get("status"));
+            return Response.json(201, object("diagnosisId", diagnoses.save(diagnosis)));
+        }
+        requireMethod(method, "GET");
+        List<Diagnosis> found;
+        if (query.containsKey("patientId")) {
+            int patientId = intParam(query, "patientId");
+            requireSelf(session, patientId);
+            found = diagnoses.history(patientId);
+        } else {
+            requireClinician(session);
+            found = query.get("patient") != null ? diagnoses.history(query.get("patient")) : diagnoses.recent(limit(query));
+        }
+        List<Raw> rows = new ArrayList<>();
+        for (Diagnosis d : found) {
+            rows.add(new Raw(object("diagnosisId", d.getDiagnosisId(), "appointmentId", d.getAppointmentId(),
+                    "patientName", d.getPatientName(), "doctorName", d.getDoctorName(),
+                    "diagnosis", d.getDiagnosisText(), "severity", d.getSeverity(), "status", d.getStatus(),
+                    "recordedDate", d.getRecordedDate())));
+        }
+        return Response.json(200, value(rows));
+    }
+
+    // ================== REFERRALS ==================
+    private Response referrals(String method, Map<String, String> query, HttpExchange exchange,
+                               SessionContext session) throws IOException, SQLException {
+        if (method.equals("POST")) {
+            requireClinician(session);
+            Map<String, String> json = body(exchange);
+            HospitalReferral referral = new HospitalReferral(json.get("patientName"), json.get("referringDoctor"),
+                    json.get("hospital"), json.get("department"), json.get("reason"), json.get("urgency"));
+            referral.setPatientId(optionalInt(json, "patientId"));
+            referral.setSpecialtyRequired(json.get("specialty"));
+            if (json.get("preferredDate") != null) {
+                referral.setPreferredAppointmentDate(LocalDate.parse(json.get("preferredDate")));
+            }
+            referral.setContactNumber(json.get("contactNumber"));
+            referral.setNotes(json.getOrDefault("notes", ""));
+            return Response.json(201, object("referralId", referrals.create(referral)));
+        }
+        requireMethod(method, "GET");
+        List<HospitalReferral> found;
+        if (query.containsKey("patientId")) {
+            int patientId = intParam(query, "patientId");
+            requireSelf(session, patientId);
+            found = referrals.history(patientId);
+        } else {
+            requireClinician(session);
+            found = query.get("patient") != null ? referrals.history(query.get("patient")) : referrals.recent(limit(query));
+        }
+        List<Raw> rows = new ArrayList<>();
+        for (HospitalReferral r : found) {
+            rows.add(new Raw(object("referralId", r.getReferralId(), "patientName", r.getPatientName(),
+                    "hospital", r.getHospitalName(), "department", r.getDepartment(),
+                    "urgency", r.getUrgencyLevel(), "status", r.getStatus(), "referralDate", r.getReferralDate())));
+        }
+        return Response.json(200, value(rows));
+    }
+
+    // ================== REPORTS ==================
+    private Response reports(String method, List<String> path, SessionContext session) throws SQLException {
+        if (path.size() != 2) {
+            throw new ApiException(404, "Use /api/reports/{userId}");
+        }
+        int userId = id(path.get(1));
+        requireSelf(session, userId);
+        ReportService.Report report = reports.generate(userId);
+        if (method.equals("POST")) {
+            reports.save(userId, report.text(), report.data());
+            return Response.json(201, object("userId", userId, "saved", true));
+        }
+        requireMethod(method, "GET");
+        return Response.text(report.text());
+    }
+
+    // ================== REQUEST HELPERS ==================
+    private static Map<String, String> body(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] bytes = in.readNBytes(MAX_BODY_BYTES + 1);
+            if (bytes.length > MAX_BODY_BYTES) {
+                throw new ApiException(413, "Request body too large");
+            }
+            return FlatJson.parse(new String(bytes, StandardCharsets.UTF_8));
+        }
+    }
+
+    private static List<String> segments(String path) {
+        List<String> segments = new ArrayList<>();
+        for (String segment : path.substring("/api/".length()).split("/")) {
+            if (!segment.isEmpty()) segments.add(segment);
+        }
+        return segments;
+    }
+
+    /** Route for metrics, with ids replaced so every booking shares one histogram. */
+    private static String template(List<String> path) {
+        StringBuilder sb = new StringBuilder("/api");
+        for (String segment : path) {
+            sb.append('/').append(segment.chars().allMatch(Character::isDigit) ? "{id}" : segment);
+        }
+        return sb.toString();
+    }
+
+    private static Map<String, String> query(String raw) {
+        Map<String, String> params = new LinkedHashMap<>();
+        if (raw == null || raw.isEmpty()) return params;
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    private static void requireMethod(String method, String expected) {
+        if (!method.equals(expected)) {
+            throw new ApiException(405, "Use " + expected);
+        }
+    }
+
+    private static int id(String segment) {
+        try {
+            return Integer.parseInt(segment);
+        } catch (NumberFormatException e) {
+            throw new ApiException(404, "Unknown id '" + segment + "'");
+        }
+    }
+
+    private static String required(Map<String, String> values, String name) {
+        String value = values.get(name);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException(name + " is required.");
+        }
+        return value;
+    }
+
+    private static int intField(Map<String, String> values, String name) {
+        try {
+            return Integer.parseInt(required(values, name));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " must be a whole number.");
+        }
+    }
+
+    private static int optionalInt(Map<String, String> values, String name) {
+        return values.get(name) == null ? 0 : intField(values, name);
+    }
+
+    private static int intParam(Map<String, String> query, String name) {
+        return intField(query, name);
+    }
+
+    private static int limit(Map<String, String> query) {
+        int limit = query.containsKey("limit") ? intField(query, "limit") : DEFAULT_LIMIT;
+        return Math.max(1, Math.min(MAX_LIMIT, limit));
+    }
+
+    // ================== JSON ==================
+    private static Response changed(int rows, String notFound) {
+        if (rows == 0) {
+            throw new ApiException(404, notFound);
+        }
+        return Response.json(200, object("updated", rows));
+    }
+
+    private static Response error(int status, String message) {
+        return Response.json(status, object("error", message));
+    }
+
+    /** {"key": value, ...} from alternating keys and values. */
+    private static String object(Object... pairs) {
+        StringBuilder sb = new StringBuilder("{");
+        for (int i = 0; i < pairs.length; i += 2) {
+            if (i > 0) sb.append(',');
+            sb.append(FlatJson.quote((String) pairs[i])).append(':').append(value(pairs[i + 1]));
+        }
+        return sb.append('}').toString();
+    }
+
+    private static String value(Object value) {
+        if (value == null) return "null";
+        if (value instanceof Raw raw) return raw.json();
+        if (value instanceof Number || value instanceof Boolean) return value.toString();
+        if (value instanceof Collection<?> items) {
+            List<String> encoded = new ArrayList<>();
+            for (Object item : items) {
+                encoded.add(value(item));
+            }
+            return "[" + String.join(",", encoded) + "]";
+        }
+        return FlatJson.quote(value.toString());
+    }
+
+    // ================== MAIN ==================
+    public static void main(String[] args) throws Exception {
+        String host = System.getProperty("telehealth.api.host", "127.0.0.1");
+        int port = Integer.getInteger("telehealth.api.port", 8086);
+        long reportIntervalMs = Long.getLong("telehealth.api.reportIntervalMs", 60_000L);
+
+        VitalsAlertPublisher.install();
+        ApiServer api = ApiServer.withDatabase();
+        api.start(host, port);
+        System.out.println("Telehealth API listening on http://" + host + ":" + api.getPort() + "/api/"
+                + (DbExecutor.usesVirtualThreads() ? " (virtual threads)" : ""));
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            api.close();
+            System.out.print("Stopped: " + api.metrics());
+            try {
+                EventBus.getInstance().close();
+                AuthService.shutdown();
+                SessionStore.shutdown();
+            } finally {
+                DatabaseHelper.shutdown();
+            }
+        }));
+
+        while (true) {
+            Thread.sleep(reportIntervalMs);
+            System.out.print(api.metrics());
+        }
+    }
+}
@@ -0,0 +1,349 @@
+package services;
+
+import database.ConnectionPool;
+import database.DatabaseHelper;
+import database.ReferenceDataCache;
+import models.User;
+import search.PatientDirectory;
+import security.AuthConfig;
+import security.LoginThrottledException;
+import security.PasswordHasher;
+import security.TokenBucketLimiter;
+import utils.DbExecutor;
+import utils.LatencyHistogram;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Signing in and signing up. Passwords are stored as salted PBKDF2 hashes
+ * ({@link PasswordHasher}); legacy plaintext rows still work and are rehashed
+ * at the user's next successful login.
+ *
+ * Hashing runs on its own small thread pool so a burst of logins at shift
+ * change queues for CPU instead of taking all of it. A successful login is
+ * remembered (as a keyed digest, never the password) for cacheTtlMs, so
+ * signing in again skips the KDF until the stored hash changes. Attempts are
+ * rate limited per username and per client address with token buckets.
+ * Call from a background thread.
+ */
+public class AuthService implements AutoCloseable {
+
+    /** The signed-in user as shown on the dashboard. */
+    public record AuthenticatedUser(int userId, String name, String role) {
+    }
+
+    private record StoredUser(int userId, String name, String role, String password) {
+    }
+
+    /** A recent successful verification of this stored hash. */
+    private record Verified(String storedPassword, byte[] digest, long expiresAt) {
+    }
+
+    static final String FIND_USER = "SELECT user_id, name, role, password FROM users WHERE username = ?";
+    static final String REHASH = "UPDATE users SET password = ? WHERE user_id = ? AND password = ?";
+    static final String INSERT_USER = "INSERT INTO users (name, username, password, role) VALUES (?, ?, ?, ?)";
+
+    private static volatile AuthService instance;
+
+    private final ConnectionPool.ConnectionFactory connections;
+    private final AuthConfig config;
+    private final LongSupplier clock;
+    private final PasswordHasher hasher;
+    private final ExecutorService kdf;
+    private final TokenBucketLimiter userLimiter;
+    private final TokenBucketLimiter addressLimiter;
+    private final Map<String, Verified> verified = new ConcurrentHashMap<>();
+    private final byte[] cacheKey = new byte[32];
+    private volatile String dummyHash;
+    private volatile String terminalAddress;
+
+    private final LatencyHistogram loginLatency = new LatencyHistogram();
+    private final LatencyHistogram kdfLatency = new LatencyHistogram();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+    private final LongAdder rehashed = new LongAdder();
+
+    public AuthService(ConnectionPool.ConnectionFactory connections, AuthConfig config, LongSupplier clock) {
+        config.validate();
+        this.connections = connections;
+        this.config = config;
+        this.clock = clock;
+        this.hasher = new PasswordHasher(config.getIterations());
+        this.kdf = DbExecutor.newBoundedExecutor("auth-kdf", config.getKdfThreads());
+        this.userLimiter = new TokenBucketLimiter(config.getUserBurst(), config.getUserPerMinute(),
+                config.getMaxTrackedKeys(), clock);
+        this.addressLimiter = new TokenBucketLimiter(config.getAddressBurst(), config.getAddressPerMinute(),
+                config.getMaxTrackedKeys(), clock);
+        new SecureRandom().nextBytes(cacheKey);
+    }
+
+    /** The shared service, so the cache and rate limits cover every login screen. */
+    public static AuthService getInstance() {
+        AuthService current = instance;
+        if (current == null) {
+            synchronized (AuthService.class) {
+                current = instance;
+                if (current == null) {
+                    current = new AuthService(DatabaseHelper::getConnection, AuthConfig.fromSystemProperties(),
+                            System::currentTimeMillis);
+                    instance = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    // ================== LOGIN ==================
+    /** Login from this machine; the client address is the local host address. */
+    public AuthenticatedUser authenticate(String username, String password)
+            throws SQLException, LoginThrottledException, InterruptedException {
+        return authenticate(username, password, terminalAddress());
+    }
+
+    /**
+     * The matching user, or null if the username or password is wrong.
+     *
+     * @throws LoginThrottledException if this username or address has made too many attempts
+     */
+    public AuthenticatedUser authenticate(String username, String password, String clientAddress)
+            throws SQLException, LoginThrottledException, InterruptedException {
+        long start = System.nanoTime();
+        String userKey = username.toLowerCase(Locale.ROOT); // usernames compare case-insensitively in MySQL
+        long waitMs = addressLimiter.acquire(clientAddress);
+        if (waitMs == 0) {
+            waitMs = userLimiter.acquire(userKey);
+        }
+        if (waitMs > 0) {
+            throttled.increment();
+            throw new LoginThrottledException("Too many login attempts. Please wait before trying again.", waitMs);
+        }
+
+        StoredUser user = find(username);
+        if (user == null || user.password() == null) {
+            // Same work as a wrong password, so response time does not reveal which usernames exist
+            String hash = dummyHash();
+            onKdf(() -> hasher.verify(password, hash));
+            failures.increment();
+            loginLatency.recordSince(start);
+            return null;
+        }
+
+        byte[] digest = digest(userKey, password);
+        boolean ok = isCached(userKey, user.password(), digest);
+        if (ok) {
+            cacheHits.increment();
+        } else {
+            ok = onKdf(() -> hasher.verify(password, user.password()));
+        }
+        if (!ok) {
+            verified.remove(userKey);
+            failures.increment();
+            loginLatency.recordSince(start);
+            return null;
+        }
+
+        String stored = user.password();
+        if (hasher.needsRehash(stored)) {
+            String upgraded = onKdf(() -> hasher.hash(password));
+            if (updatePassword(user.userId(), stored, upgraded)) {
+                stored = upgraded;
+                rehashed.increment();
+            }
+        }
+        remember(userKey, stored, digest);
+        loginLatency.recordSince(start);
+        return new AuthenticatedUser(user.userId(), user.name(), user.role());
+    }
+
+    // ================== SIGNUP ==================
+    /** Create an account with a hashed password. */
+    public void register(String name, String username, String password, String role)
+            throws SQLException, InterruptedException {
+        String hash = onKdf(() -> hasher.hash(password));
+        int userId = 0;
+        try (Connection conn = connections.create();
+             PreparedStatement pstmt = conn.prepareStatement(INSERT_USER, Statement.RETURN_GENERATED_KEYS)) {
+            pstmt.setString(1, name);
+            pstmt.setString(2, username);
+            pstmt.setString(3, hash);
+            pstmt.setString(4, role);
+            pstmt.executeUpdate();
+            try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                if (keys != null && keys.next()) userId = keys.getInt(1);
+            }
+        }
+        ReferenceDataCache.getInstance().invalidate(); // new user must show up in the pickers
+        if (userId > 0 && ReferenceDataCache.ROLE_PATIENT.equals(role)) {
+            PatientDirectory.getInstance().add(new User(userId, name, username, null, role));
+        }
+    }
+
+    /** Hash a password at the configured cost, e.g. for seeding accounts. */
+    public String hashPassword(String password) throws InterruptedException {
+        return onKdf(() -> hasher.hash(password));
+    }
+
+    /**
+     * Load the PBKDF2 provider and precompute the hash used for unknown
+     * usernames, so the first login does not pay for either.
+     */
+    public void warmUp() throws InterruptedException {
+        dummyHash();
+    }
+
+    // ================== DATABASE ==================
+    private StoredUser find(String username) throws SQLException {
+        try (Connection conn = connections.create(); PreparedStatement pstmt = conn.prepareStatement(FIND_USER)) {
+            pstmt.setString(1, username);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return new StoredUser(rs.getInt("user_id"), rs.getString("name"), rs.getString("role"),
+                            rs.getString("password"));
+                }
+            }
+        }
+        return null;
+    }
+
+    /** Replace the stored password only if nobody changed it meanwhile. */
+    private boolean updatePassword(int userId, String expected, String replacement) {
+        try (Connection conn = connections.create(); PreparedStatement pstmt = conn.prepareStatement(REHASH)) {
+            pstmt.setString(1, replacement);
+            pstmt.setInt(2, userId);
+            pstmt.setString(3, expected);
+            return pstmt.executeUpdate() > 0;
+        } catch (SQLException e) {
+            e.printStackTrace(); // the login itself succeeded; the next one tries again
+            return false;
+        }
+    }
+
+    // ================== VERIFICATION CACHE ==================
+    private boolean isCached(String userKey, String storedPassword, byte[] digest) {
+        Verified entry = verified.get(userKey);
+        return entry != null && entry.expiresAt() > clock.getAsLong()
+                && entry.storedPassword().equals(storedPassword)
+                && MessageDigest.isEqual(entry.digest(), digest);
+    }
+
+    private void remember(String userKey, String storedPassword, byte[] digest) {
+        if (config.getCacheSize() == 0 || config.getCacheTtlMs() == 0) return;
+        long now = clock.getAsLong();
+        if (verified.size() >= config.getCacheSize()) {
+            verified.values().removeIf(v -> v.expiresAt() <= now);
+            Iterator<String> it = verified.keySet().iterator();
+            while (verified.size() >= config.getCacheSize() && it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+        }
+        verified.put(userKey, new Verified(storedPassword, digest, now + config.getCacheTtlMs()));
+    }
+
+    /** HMAC of username and password under a key that only lives in this process. */
+    private byte[] digest(String userKey, String password) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(cacheKey, "HmacSHA256"));
+            mac.update(userKey.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            return mac.doFinal(password.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available in this JDK", e);
+        }
+    }
+
+    // ================== HELPERS ==================
+    /** Run CPU-heavy hashing on the KDF pool and wait for it. */
+    private <T> T onKdf(Callable<T> work) throws InterruptedException {
+        long queued = System.nanoTime();
+        Future<T> future = kdf.submit(() -> {
+            try {
+                return work.call();
+            } finally {
+                kdfLatency.recordSince(queued);
+            }
+        });
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtime) throw runtime;
+            throw new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            throw e;
+        }
+    }
+
+    private String dummyHash() throws InterruptedException {
+        String hash = dummyHash;
+        if (hash == null) {
+            hash = onKdf(() -> hasher.hash("no such user"));
+            dummyHash = hash;
+        }
+        return hash;
+    }
+
+    private String terminalAddress() {
+        String address = terminalAddress;
+        if (address == null) {
+            try {
+                address = InetAddress.getLocalHost().getHostAddress();
+            } catch (Exception e) {
+                address = "local";
+            }
+            terminalAddress = address;
+        }
+        return address;
+    }
+
+    // ================== METRICS ==================
+    public LatencyHistogram getLoginLatency() { return loginLatency; }
+    public LatencyHistogram getKdfLatency() { return kdfLatency; }
+    public long getCacheHits() { return cacheHits.sum(); }
+    public long getFailures() { return failures.sum(); }
+    public long getThrottled() { return throttled.sum(); }
+    public long getRehashed() { return rehashed.sum(); }
+
+    public String metrics() {
+        return String.format(Locale.ROOT, "logins %s, kdf %s, cacheHits=%d failures=%d throttled=%d rehashed=%d",
+                loginLatency.summary(), kdfLatency.summary(), getCacheHits(), getFailures(), getThrottled(),
+                getRehashed());
+    }
+
+    @Override
+    public void close() {
+        kdf.shutdownNow();
+    }
+
+    /** Stop the shared service's hashing threads, e.g. when the application exits. */
+    public static synchronized void shutdown() {
+        if (instance != null) {
+            instance.close();
+            instance = null;
+        }
+    }
+}
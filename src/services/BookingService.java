@@ -0,0 +1,268 @@
+package services;
+
+import database.AvailabilityIndex;
+import database.ConnectionPool;
+import database.DatabaseHelper;
+import database.ReferenceDataCache;
+import events.ClinicalEvent;
+import events.EventBus;
+import models.Appointment;
+import models.User;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Patient bookings (the bookings table) and staff-managed appointments.
+ *
+ * Every write goes through the {@link AvailabilityIndex}, so a slot that is
+ * already taken fails with a SlotConflictException before it reaches the
+ * database, and every successful change is published on the {@link EventBus}.
+ * Methods block on the database: call them from a background thread.
+ */
+public class BookingService {
+
+    /** Values for a new or changed booking. consultationMode and status fall back to the table defaults. */
+    public record BookingRequest(int patientId, String patientName, int doctorId, LocalDate date, LocalTime time,
+                                 String symptoms, String consultationMode, String status) {
+
+        public void validate() {
+            if (doctorId <= 0) throw new IllegalArgumentException("doctorId is required.");
+            if (date == null || time == null) throw new IllegalArgumentException("date and time are required.");
+            if (symptoms == null || symptoms.isBlank()) {
+                throw new IllegalArgumentException("Please enter symptoms or notes.");
+            }
+        }
+
+        public boolean isCancelled() {
+            return STATUS_CANCELLED.equalsIgnoreCase(status);
+        }
+    }
+
+    public static final String STATUS_CANCELLED = "Cancelled";
+
+    static final String INSERT_BOOKING = "INSERT INTO bookings (patient_id, doctor_id, appointment_date, appointment_time, "
+            + "symptoms, consultation_mode, status) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    static final String UPDATE_BOOKING = "UPDATE bookings SET doctor_id = ?, appointment_date = ?, "
+            + "appointment_time = ?, symptoms = ?, status = ? WHERE booking_id = ?";
+    static final String CANCEL_BOOKING = "UPDATE bookings SET status = 'Cancelled' "
+            + "WHERE booking_id = ? AND status <> 'Cancelled'";
+    static final String BOOKING_PATIENT = "SELECT patient_id FROM bookings WHERE booking_id = ?";
+    static final String FIND_BOOKING = """
+        SELECT b.doctor_id, b.appointment_date, b.appointment_time, b.status, p.name AS patient_name
+        FROM bookings b
+        JOIN users p ON b.patient_id = p.user_id
+        WHERE b.booking_id = ?
+        """;
+    static final String PATIENT_BOOKINGS = """
+        SELECT b.booking_id,
+               d.name AS doctor_name,
+               b.appointment_date,
+               b.appointment_time,
+               b.consultation_mode,
+               b.status
+        FROM bookings b
+        JOIN users d ON b.doctor_id = d.user_id
+        WHERE b.patient_id = ?
+        ORDER BY b.appointment_date DESC, b.appointment_time DESC
+        """;
+    static final String UPDATE_APPOINTMENT = """
+        UPDATE appointments SET
+        appointment_date = ?, appointment_time = ?, status = ?, notes = ?
+        WHERE id = ?
+        """;
+
+    /** The booking as it is stored now: its slot (null once cancelled) and patient. */
+    private record Current(AvailabilityIndex.Slot slot, String patientName) {
+    }
+
+    private final ConnectionPool.ConnectionFactory connections;
+    private final AvailabilityIndex availability;
+    private final EventBus events;
+
+    public BookingService() {
+        this(DatabaseHelper::getConnection, AvailabilityIndex.getInstance(), EventBus.getInstance());
+    }
+
+    public BookingService(ConnectionPool.ConnectionFactory connections, AvailabilityIndex availability, EventBus events) {
+        this.connections = connections;
+        this.availability = availability;
+        this.events = events;
+    }
+
+    // ================== BOOKINGS ==================
+    /**
+     * Book a slot and return the new booking_id.
+     *
+     * @throws database.SlotConflictException if the doctor is already booked then
+     */
+    public long create(BookingRequest request) throws SQLException {
+        request.validate();
+        if (request.patientId() <= 0) throw new IllegalArgumentException("patientId is required.");
+        String status = request.status() != null ? request.status() : "Pending";
+        AvailabilityIndex.Slot slot = request.isCancelled() ? null
+                : new AvailabilityIndex.Slot(request.doctorId(), request.date(), request.time());
+        long[] id = {0L};
+
+        try (Connection conn = connections.create();
+             PreparedStatement ps = conn.prepareStatement(INSERT_BOOKING, Statement.RETURN_GENERATED_KEYS)) {
+            ps.setInt(1, request.patientId());
+            ps.setInt(2, request.doctorId());
+            ps.setDate(3, java.sql.Date.valueOf(request.date()));
+            ps.setTime(4, java.sql.Time.valueOf(request.time()));
+            ps.setString(5, request.symptoms());
+            ps.setString(6, request.consultationMode() != null ? request.consultationMode() : "Video");
+            ps.setString(7, status);
+
+            int rows = availability.move(null, slot, () -> {
+                int inserted = ps.executeUpdate();
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    if (keys != null && keys.next()) id[0] = keys.getLong(1);
+                }
+                return inserted;
+            });
+            if (rows == 0) {
+                throw new SQLException("Booking was not saved");
+            }
+        }
+        publish(ClinicalEvent.BookingChanged.Change.CREATED, request.doctorId(),
+                request.patientName() != null ? request.patientName() : patientName(request.patientId()),
+                request.date(), request.time());
+        return id[0];
+    }
+
+    /**
+     * Move a booking to the requested doctor/slot and status. Returns the rows
+     * changed: 0 if the booking does not exist.
+     */
+    public int update(int bookingId, BookingRequest request) throws SQLException {
+        request.validate();
+        try (Connection conn = connections.create()) {
+            Current current = find(conn, bookingId);
+            if (current == null) return 0;
+            AvailabilityIndex.Slot to = request.isCancelled() ? null
+                    : new AvailabilityIndex.Slot(request.doctorId(), request.date(), request.time());
+
+            int rows;
+            try (PreparedStatement ps = conn.prepareStatement(UPDATE_BOOKING)) {
+                ps.setInt(1, request.doctorId());
+                ps.setDate(2, java.sql.Date.valueOf(request.date()));
+                ps.setTime(3, java.sql.Time.valueOf(request.time()));
+                ps.setString(4, request.symptoms());
+                ps.setString(5, request.status());
+                ps.setInt(6, bookingId);
+                rows = availability.move(current.slot(), to, ps::executeUpdate);
+            }
+            if (rows > 0) {
+                publish(request.isCancelled() ? ClinicalEvent.BookingChanged.Change.CANCELLED
+                                : ClinicalEvent.BookingChanged.Change.UPDATED, request.doctorId(),
+                        current.patientName(), request.date(), request.time());
+            }
+            return rows;
+        }
+    }
+
+    /** Cancel a booking and offer its slot again. Returns 0 if it was missing or already cancelled. */
+    public int cancel(int bookingId) throws SQLException {
+        try (Connection conn = connections.create()) {
+            Current current = find(conn, bookingId);
+            if (current == null) return 0;
+
+            int rows;
+            try (PreparedStatement ps = conn.prepareStatement(CANCEL_BOOKING)) {
+                ps.setInt(1, bookingId);
+                rows = ps.executeUpdate();
+            }
+            if (rows > 0 && current.slot() != null) {
+                availability.release(current.slot());
+                publish(ClinicalEvent.BookingChanged.Change.CANCELLED, current.slot().doctorId(),
+                        current.patientName(), current.slot().date(), current.slot().time());
+            }
+            return rows;
+        }
+    }
+
+    /** The patient_id a booking belongs to, or 0 if there is no such booking. */
+    public int patientOf(int bookingId) throws SQLException {
+        try (Connection conn = connections.create(); PreparedStatement ps = conn.prepareStatement(BOOKING_PATIENT)) {
+            ps.setInt(1, bookingId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt("patient_id") : 0;
+            }
+        }
+    }
+
+    /** All of a patient's bookings, newest first. */
+    public List<Appointment> forPatient(int patientId) throws SQLException {
+        List<Appointment> appointments = new ArrayList<>();
+        try (Connection conn = connections.create(); PreparedStatement ps = conn.prepareStatement(PATIENT_BOOKINGS)) {
+            ps.setInt(1, patientId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    appointments.add(new Appointment(
+                            rs.getInt("booking_id"),
+                            null,
+                            rs.getString("doctor_name"),
+                            LocalDate.parse(rs.getString("appointment_date")),
+                            rs.getString("appointment_time"),
+                            rs.getString("status"),
+                            rs.getString("consultation_mode"),
+                            null // notes
+                    ));
+                }
+            }
+        }
+        return appointments;
+    }
+
+    private static Current find(Connection conn, int bookingId) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(FIND_BOOKING)) {
+            ps.setInt(1, bookingId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) return null;
+                AvailabilityIndex.Slot slot = STATUS_CANCELLED.equalsIgnoreCase(rs.getString("status")) ? null
+                        : new AvailabilityIndex.Slot(rs.getInt("doctor_id"),
+                                LocalDate.parse(rs.getString("appointment_date")),
+                                LocalTime.parse(rs.getString("appointment_time")));
+                return new Current(slot, rs.getString("patient_name"));
+            }
+        }
+    }
+
+    // ================== STAFF APPOINTMENTS ==================
+    /** Save a staff edit of an appointments row (date, time, status, notes). */
+    public int updateAppointment(Appointment appointment) throws SQLException {
+        try (Connection conn = connections.create(); PreparedStatement ps = conn.prepareStatement(UPDATE_APPOINTMENT)) {
+            ps.setString(1, appointment.getAppointmentDate().toString());
+            ps.setString(2, appointment.getTimeSlot());
+            ps.setString(3, appointment.getStatus());
+            ps.setString(4, appointment.getNotes());
+            ps.setInt(5, appointment.getAppointmentId());
+            return ps.executeUpdate();
+        }
+    }
+
+    // ================== EVENTS ==================
+    private void publish(ClinicalEvent.BookingChanged.Change change, int doctorId, String patientName,
+                         LocalDate date, LocalTime time) {
+        if (events != null) {
+            events.publish(ClinicalEvent.BookingChanged.of(change, doctorId, patientName, date, time));
+        }
+    }
+
+    private static String patientName(int patientId) {
+        try {
+            return ReferenceDataCache.getInstance().findById(patientId).map(User::getName).orElse(null);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package services;
+
+import database.ConnectionPool;
+import database.DatabaseHelper;
+import database.ReferenceDataCache;
+import models.Diagnosis;
+import search.ClinicalSearchIndex;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Recording diagnoses and reading a patient's diagnosis history. Saved
+ * diagnoses are added to the {@link ClinicalSearchIndex}. Call from a
+ * background thread.
+ */
+public class DiagnosisService {
+
+    static final String INSERT_DIAGNOSIS = """
+        INSERT INTO diagnoses (
+            appointment_id, patient_name, doctor_name, diagnosis_text,
+            symptoms, prescription_details, treatment_plan,
+            follow_up_instructions, recorded_date, severity, status,
+            patient_id, doctor_id
+        ) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, COALESCE(?, %s), %s)
+        """.formatted(ReferenceDataCache.USER_ID_BY_NAME, ReferenceDataCache.USER_ID_BY_NAME);
+    public static final String LATEST_APPOINTMENT = """
+        SELECT id FROM appointments
+        WHERE patient_id = ? AND (status = 'SCHEDULED' OR status = 'COMPLETED')
+        ORDER BY appointment_date DESC LIMIT 1
+        """;
+    static final String RECENT_DIAGNOSES = "SELECT * FROM diagnoses ORDER BY recorded_date DESC LIMIT ?";
+    public static final String PATIENT_DIAGNOSES = "SELECT * FROM diagnoses WHERE patient_id = ? ORDER BY recorded_date DESC";
+    static final String PATIENT_DIAGNOSES_BY_NAME = "SELECT d.* FROM diagnoses d "
+            + "JOIN users u ON u.user_id = d.patient_id WHERE u.name = ? AND u.role = 'Patient' "
+            + "ORDER BY d.recorded_date DESC";
+
+    private final ConnectionPool.ConnectionFactory connections;
+    private final ClinicalSearchIndex search;
+
+    public DiagnosisService() {
+        this(DatabaseHelper::getConnection, ClinicalSearchIndex.getInstance());
+    }
+
+    public DiagnosisService(ConnectionPool.ConnectionFactory connections) {
+        this(connections, null);
+    }
+
+    public DiagnosisService(ConnectionPool.ConnectionFactory connections, ClinicalSearchIndex search) {
+        this.connections = connections;
+        this.search = search;
+    }
+
+    /**
+     * Insert the diagnosis and return its generated id. An appointment id of
+     * 0 means "no appointment" and is stored as NULL. The patient is the
+     * diagnosis's patientId; only when that is 0 is it looked up by name.
+     */
+    public long save(Diagnosis diagnosis) throws SQLException {
+        if (isBlank(diagnosis.getPatientName()) || isBlank(diagnosis.getDoctorName())
+                || isBlank(diagnosis.getDiagnosisText())) {
+            throw new IllegalArgumentException("Patient, doctor and diagnosis are required.");
+        }
+        try (Connection conn = connections.create();
+             PreparedStatement ps = conn.prepareStatement(INSERT_DIAGNOSIS, Statement.RETURN_GENERATED_KEYS)) {
+            if (diagnosis.getAppointmentId() > 0) {
+                ps.setInt(1, diagnosis.getAppointmentId());
+            } else {
+                ps.setNull(1, Types.INTEGER);
+            }
+            ps.setString(2, diagnosis.getPatientName());
+            ps.setString(3, diagnosis.getDoctorName());
+            ps.setString(4, diagnosis.getDiagnosisText());
+            ps.setString(5, diagnosis.getSymptoms());
+            ps.setString(6, diagnosis.getPrescriptionDetails());
+            ps.setString(7, diagnosis.getTreatmentPlan());
+            ps.setString(8, diagnosis.getFollowUpInstructions());
+            ps.setString(9, diagnosis.getRecordedDate().toString());
+            ps.setString(10, diagnosis.getSeverity());
+            ps.setString(11, diagnosis.getStatus());
+            if (diagnosis.getPatientId() > 0) {
+                ps.setInt(12, diagnosis.getPatientId());
+            } else {
+                ps.setNull(12, Types.INTEGER);
+            }
+            ps.setString(13, diagnosis.getPatientName());
+            ps.setString(14, ReferenceDataCache.ROLE_PATIENT);
+            ps.setString(15, diagnosis.getDoctorName());
+            ps.setString(16, ReferenceDataCache.ROLE_DOCTOR);
+            ps.executeUpdate();
+
+            long id;
+            try (ResultSet keys = ps.getGeneratedKeys()) {
+                id = keys != null && keys.next() ? keys.getLong(1) : 0L;
+            }
+            diagnosis.setDiagnosisId((int) id);
+            index(id, diagnosis);
+            return id;
+        }
+    }
+
+    /** The row is saved; a search index failure only delays it until the next catch-up. */
+    private void index(long id, Diagnosis diagnosis) {
+        if (search == null || id <= 0) return;
+        try {
+            search.addDiagnosis(id, diagnosis);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /** The patient's most recent scheduled or completed appointment, or null. */
+    public Integer latestAppointmentId(int patientId) throws SQLException {
+        try (Connection conn = connections.create(); PreparedStatement ps = conn.prepareStatement(LATEST_APPOINTMENT)) {
+            ps.setInt(1, patientId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt("id") : null;
+            }
+        }
+    }
+
+    public List<Diagnosis> recent(int limit) throws SQLException {
+        try (Connection conn = connections.create(); PreparedStatement ps = conn.prepareStatement(RECENT_DIAGNOSES)) {
+            ps.setInt(1, limit);
+            return read(ps);
+        }
+    }
+
+    /** The patient's diagnoses, newest first. */
+    public List<Diagnosis> history(int patientId) throws SQLException {
+        try (Connection conn = connections.create(); PreparedStatement ps = conn.prepareStatement(PATIENT_DIAGNOSES)) {
+            ps.setInt(1, patientId);
+            return read(ps);
+        }
+    }
+
+    /** The diagnoses of the patient(s) with this name, found through users by id. */
+    public List<Diagnosis> history(String patientName) throws SQLException {
+        try (Connection conn = connections.create(); PreparedStatement ps = conn.prepareStatement(PATIENT_DIAGNOSES_BY_NAME)) {
+            ps.setString(1, patientName);
+            return read(ps);
+        }
+    }
+
+    private static List<Diagnosis> read(PreparedStatement ps) throws SQLException {
+        List<Diagnosis> diagnoses = new ArrayList<>();
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                Timestamp recorded = rs.getTimestamp("recorded_date");
+                diagnoses.add(new Diagnosis(
+                        rs.getInt("id"),
+                        rs.getInt("appointment_id"),
+                        rs.getString("patient_name"),
+                        rs.getString("doctor_name"),
+                        rs.getString("diagnosis_text"),
+                        rs.getString("symptoms"),
+                        rs.getString("prescription_details"),
+                        rs.getString("treatment_plan"),
+                        rs.getString("follow_up_instructions"),
+                        recorded != null ? recorded.toLocalDateTime().toLocalDate() : null,
+                        rs.getString("severity"),
+                        rs.getString("status")
+                ));
+            }
+        }
+        return diagnoses;
+    }
+
+    private static boolean isBlank(String text) {
+        return text == null || text.trim().isEmpty();
+    }
+}
@@ -0,0 +1,205 @@
+package services;
+
+import database.ConnectionPool;
+import database.DatabaseHelper;
+import database.ReferenceDataCache;
+import events.ClinicalEvent;
+import events.EventBus;
+import models.HospitalReferral;
+import referrals.ReferralMatchingService;
+import search.ClinicalSearchIndex;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hospital referrals. Emergency referrals are published on the
+ * {@link EventBus} as soon as they are saved, and every referral is added to
+ * the {@link ClinicalSearchIndex} and matched to a day by the
+ * {@link ReferralMatchingService}. Call from a background thread.
+ */
+public class ReferralService {
+
+    static final String INSERT_REFERRAL = """
+        INSERT INTO hospital_referrals (
+            patient_name, referring_doctor_name, hospital_name, department,
+            specialty_required, reason_for_referral, urgency_level,
+            referral_date, preferred_appointment_date, status,
+            contact_number, notes, patient_id, doctor_id
+        ) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, COALESCE(?, %s), %s)
+        """.formatted(ReferenceDataCache.USER_ID_BY_NAME, ReferenceDataCache.USER_ID_BY_NAME);
+    static final String RECENT_REFERRALS = "SELECT * FROM hospital_referrals ORDER BY referral_date DESC LIMIT ?";
+    public static final String PATIENT_REFERRALS = "SELECT * FROM hospital_referrals WHERE patient_id = ? "
+            + "ORDER BY referral_date DESC";
+    static final String PATIENT_REFERRALS_BY_NAME = "SELECT r.* FROM hospital_referrals r "
+            + "JOIN users u ON u.user_id = r.patient_id WHERE u.name = ? AND u.role = 'Patient' "
+            + "ORDER BY r.referral_date DESC";
+
+    private final ConnectionPool.ConnectionFactory connections;
+    private final EventBus events;
+    private final ClinicalSearchIndex search;
+    private final ReferralMatchingService matching;
+
+    public ReferralService() {
+        this(DatabaseHelper::getConnection, EventBus.getInstance(), ClinicalSearchIndex.getInstance(),
+                ReferralMatchingService.getInstance());
+    }
+
+    public ReferralService(ConnectionPool.ConnectionFactory connections, EventBus events) {
+        this(connections, events, null);
+    }
+
+    public ReferralService(ConnectionPool.ConnectionFactory connections, EventBus events, ClinicalSearchIndex search) {
+        this(connections, events, search, null);
+    }
+
+    public ReferralService(ConnectionPool.ConnectionFactory connections, EventBus events, ClinicalSearchIndex search,
+                           ReferralMatchingService matching) {
+        this.connections = connections;
+        this.events = events;
+        this.search = search;
+        this.matching = matching;
+    }
+
+    /**
+     * Insert the referral and return its generated id (0 if the driver returns
+     * none). The patient is the referral's patientId; only when that is 0 is
+     * it looked up by name.
+     */
+    public long create(HospitalReferral referral) throws SQLException {
+        if (isBlank(referral.getPatientName()) || isBlank(referral.getHospitalName())
+                || isBlank(referral.getDepartment()) || isBlank(referral.getReasonForReferral())) {
+            throw new IllegalArgumentException("Patient, hospital, department and reason are required.");
+        }
+        long referralId;
+        try (Connection conn = connections.create();
+             PreparedStatement ps = conn.prepareStatement(INSERT_REFERRAL, Statement.RETURN_GENERATED_KEYS)) {
+            ps.setString(1, referral.getPatientName());
+            ps.setString(2, referral.getReferringDoctorName());
+            ps.setString(3, referral.getHospitalName());
+            ps.setString(4, referral.getDepartment());
+            ps.setString(5, referral.getSpecialtyRequired());
+            ps.setString(6, referral.getReasonForReferral());
+            ps.setString(7, referral.getUrgencyLevel());
+            ps.setString(8, referral.getReferralDate().toString());
+            ps.setString(9, referral.getPreferredAppointmentDate() != null
+                    ? referral.getPreferredAppointmentDate().toString() : null);
+            ps.setString(10, referral.getStatus());
+            ps.setString(11, referral.getContactNumber());
+            ps.setString(12, referral.getNotes());
+            if (referral.getPatientId() > 0) {
+                ps.setInt(13, referral.getPatientId());
+            } else {
+                ps.setNull(13, Types.INTEGER);
+            }
+            ps.setString(14, referral.getPatientName());
+            ps.setString(15, ReferenceDataCache.ROLE_PATIENT);
+            ps.setString(16, referral.getReferringDoctorName());
+            ps.setString(17, ReferenceDataCache.ROLE_DOCTOR);
+            ps.executeUpdate();
+
+            try (ResultSet keys = ps.getGeneratedKeys()) {
+                referralId = keys != null && keys.next() ? keys.getLong(1) : 0L;
+            }
+        }
+        referral.setReferralId((int) referralId);
+        publishIfEmergency(referral, referralId);
+        index(referralId, referral);
+        match(referralId, referral);
+        return referralId;
+    }
+
+    public List<HospitalReferral> recent(int limit) throws SQLException {
+        try (Connection conn = connections.create(); PreparedStatement ps = conn.prepareStatement(RECENT_REFERRALS)) {
+            ps.setInt(1, limit);
+            return read(ps);
+        }
+    }
+
+    /** The patient's referrals, newest first. */
+    public List<HospitalReferral> history(int patientId) throws SQLException {
+        try (Connection conn = connections.create(); PreparedStatement ps = conn.prepareStatement(PATIENT_REFERRALS)) {
+            ps.setInt(1, patientId);
+            return read(ps);
+        }
+    }
+
+    /** The referrals of the patient(s) with this name, found through users by id. */
+    public List<HospitalReferral> history(String patientName) throws SQLException {
+        try (Connection conn = connections.create(); PreparedStatement ps = conn.prepareStatement(PATIENT_REFERRALS_BY_NAME)) {
+            ps.setString(1, patientName);
+            return read(ps);
+        }
+    }
+
+    /** Emergency referrals are pushed to clinicians' dashboards. */
+    private void publishIfEmergency(HospitalReferral referral, long referralId) {
+        if (events == null || !"EMERGENCY".equalsIgnoreCase(referral.getUrgencyLevel())) return;
+        events.publish(new ClinicalEvent.EmergencyReferralCreated(referralId,
+                referral.getPatientName(), referral.getHospitalName(), referral.getDepartment(),
+                referral.getReferringDoctorName(), referral.getReasonForReferral(), System.currentTimeMillis()));
+    }
+
+    /** The row is saved; a search index failure only delays it until the next catch-up. */
+    private void index(long referralId, HospitalReferral referral) {
+        if (search == null || referralId <= 0) return;
+        try {
+            search.addReferral(referralId, referral);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /** The row is saved; if matching fails here the background matcher picks it up on its next run. */
+    private void match(long referralId, HospitalReferral referral) {
+        if (matching == null || referralId <= 0) return;
+        try {
+            matching.submit(referralId, referral);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /** The day the referral is matched to, or null if it is waitlisted or was not matched. */
+    public LocalDate matchedSlot(long referralId) {
+        return matching != null ? matching.slotOf(referralId) : null;
+    }
+
+    private static List<HospitalReferral> read(PreparedStatement ps) throws SQLException {
+        List<HospitalReferral> referrals = new ArrayList<>();
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                Date referralDate = rs.getDate("referral_date");
+                Date preferredDate = rs.getDate("preferred_appointment_date");
+                referrals.add(new HospitalReferral(
+                        rs.getInt("referral_id"),
+                        rs.getString("patient_name"),
+                        rs.getString("referring_doctor_name"),
+                        rs.getString("hospital_name"),
+                        rs.getString("department"),
+                        rs.getString("specialty_required"),
+                        rs.getString("reason_for_referral"),
+                        rs.getString("urgency_level"),
+                        referralDate != null ? referralDate.toLocalDate() : null,
+                        preferredDate != null ? preferredDate.toLocalDate() : null,
+                        rs.getString("status"),
+                        rs.getString("contact_number"),
+                        rs.getString("notes")
+                ));
+            }
+        }
+        return referrals;
+    }
+
+    private static boolean isBlank(String text) {
+        return text == null || text.trim().isEmpty();
+    }
+}
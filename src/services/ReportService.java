@@ -0,0 +1,57 @@
+package services;
+
+import database.ConnectionPool;
+import database.DatabaseHelper;
+import database.HealthReportLoader;
+import database.HealthReportWriter;
+import models.HealthReportData;
+import reports.HealthReportFormatter;
+import vitals.AnomalyEngine;
+import vitals.VitalsAssessment;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+
+/**
+ * Health reports: loaded with one query, judged against the patient's vitals
+ * baseline, formatted as text and optionally stored in health_reports.
+ * Call from a background thread.
+ */
+public class ReportService {
+
+    /** Report text together with the data it was built from. */
+    public record Report(HealthReportData data, String text) {
+    }
+
+    private final ConnectionPool.ConnectionFactory connections;
+    private final AnomalyEngine engine;
+    private final HealthReportLoader loader = new HealthReportLoader();
+    private final HealthReportFormatter formatter = new HealthReportFormatter();
+    private final HealthReportWriter writer = new HealthReportWriter();
+
+    public ReportService() {
+        this(DatabaseHelper::getConnection, AnomalyEngine.getInstance());
+    }
+
+    public ReportService(ConnectionPool.ConnectionFactory connections, AnomalyEngine engine) {
+        this.connections = connections;
+        this.engine = engine;
+    }
+
+    public Report generate(int userId) throws SQLException {
+        HealthReportData data;
+        try (Connection conn = connections.create()) {
+            data = loader.load(conn, userId);
+        }
+        VitalsAssessment assessment = engine.assessment(userId);
+        return new Report(data, formatter.format(data, LocalDateTime.now(), assessment));
+    }
+
+    /** Store the report text; data links it to the rows it was built from and may be null. */
+    public void save(int userId, String summary, HealthReportData data) throws SQLException {
+        try (Connection conn = connections.create()) {
+            writer.insert(conn, new HealthReportWriter.Entry(userId, summary, data));
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package services;
+
+import database.ConnectionPool;
+import database.DatabaseHelper;
+import vitals.AnomalyEngine;
+import vitals.VitalsAssessment;
+import vitals.VitalsBatchWriter;
+import vitals.VitalsStore;
+import vitals.VitalsSubmission;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Saving and reading a patient's vitals. A saved reading is recorded in the
+ * {@link VitalsStore}, which has the {@link AnomalyEngine} assess it and raise
+ * any alert. Call from a background thread.
+ */
+public class VitalsService {
+
+    /** One row of the patient's history, as entered. */
+    public record HistoryEntry(String pulse, String temperature, String respiration, String bloodPressure,
+                               String weight, String height, String oxygen, String recordedAt) {
+    }
+
+    static final String HISTORY_QUERY = """
+        SELECT pulse, temperature, respiration, blood_pressure, weight, height, oxygen, recorded_at
+        FROM vitals_records
+        WHERE user_id = ?
+        ORDER BY recorded_at DESC
+        LIMIT ?
+        """;
+
+    private final ConnectionPool.ConnectionFactory connections;
+    private final VitalsBatchWriter writer;
+    private final VitalsStore store;
+    private final AnomalyEngine engine;
+
+    public VitalsService() {
+        this(DatabaseHelper::getConnection, VitalsStore.getInstance(), AnomalyEngine.getInstance());
+    }
+
+    public VitalsService(ConnectionPool.ConnectionFactory connections, VitalsStore store, AnomalyEngine engine) {
+        this.connections = connections;
+        this.writer = new VitalsBatchWriter(connections);
+        this.store = store;
+        this.engine = engine;
+    }
+
+    /**
+     * Save one validated reading and return its assessment (null if the
+     * database returned no vitals_id).
+     */
+    public VitalsAssessment submit(VitalsSubmission submission) throws SQLException {
+        // Build the patient's baseline before the insert so the new reading is judged
+        // against it; recording then raises the alert event for clinicians
+        try {
+            engine.assessment(submission.userId());
+        } catch (SQLException e) {
+            e.printStackTrace(); // still save; the reading is checked against the absolute limits
+        }
+        long[] ids = writer.write(List.of(submission));
+        if (ids.length == 0 || ids[0] <= 0) {
+            return null;
+        }
+        store.record(submission.toReading(ids[0]));
+        VitalsAssessment assessment = engine.cachedAssessment(submission.userId());
+        return assessment != null && assessment.vitalsId() == ids[0] ? assessment
+                : VitalsAssessment.absolute(submission.toReading(ids[0]));
+    }
+
+    /** The latest readings, newest first. */
+    public List<HistoryEntry> history(int userId, int limit) throws SQLException {
+        List<HistoryEntry> entries = new ArrayList<>();
+        try (Connection conn = connections.create(); PreparedStatement ps = conn.prepareStatement(HISTORY_QUERY)) {
+            ps.setInt(1, userId);
+            ps.setInt(2, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    entries.add(new HistoryEntry(
+                            rs.getString("pulse"),
+                            rs.getString("temperature"),
+                            rs.getString("respiration"),
+                            rs.getString("blood_pressure"),
+                            rs.getString("weight"),
+                            rs.getString("height"),
+                            rs.getString("oxygen"),
+                            rs.getString("recorded_at")
+                    ));
+                }
+            }
+        }
+        return entries;
+    }
+
+    /** Assessment of the patient's latest reading, or null if they have none. */
+    public VitalsAssessment assessment(int userId) throws SQLException {
+        return engine.assessment(userId);
+    }
+}
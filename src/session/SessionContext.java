@@ -0,0 +1,83 @@
+package session;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * One signed-in user's state: who they are plus the booking, refill and vitals
+ * drafts they are working on. Instances are immutable; every "with" method
+ * returns a new context, so a screen holding an older one never sees a half
+ * applied change and two users never share fields.
+ *
+ * The vitals map is copied on write and exposed read-only, so a snapshot can
+ * be handed to a chart or a background save without further locking.
+ */
+public record SessionContext(String sessionId, int userId, String userName, String role,
+        String patientName, String specialistName, LocalDate appointmentDate, String appointmentTime,
+        String medicationName, String medicationQuantity, Map<String, String> vitals) {
+
+    public SessionContext {
+        if (sessionId == null || sessionId.isEmpty()) {
+            throw new IllegalArgumentException("sessionId is required");
+        }
+        vitals = vitals == null || vitals.isEmpty()
+                ? Map.of()
+                : Collections.unmodifiableMap(new LinkedHashMap<>(vitals));
+    }
+
+    /** A fresh session with no drafts. */
+    public static SessionContext of(String sessionId, int userId, String userName, String role) {
+        return new SessionContext(sessionId, userId, userName, role, null, null, null, null, null, null, Map.of());
+    }
+
+    // ================== Booking Draft ==================
+    public SessionContext withBooking(String patientName, String specialistName, LocalDate date, String time) {
+        return new SessionContext(sessionId, userId, userName, role, patientName, specialistName, date, time,
+                medicationName, medicationQuantity, vitals);
+    }
+
+    public SessionContext clearBooking() {
+        return withBooking(null, null, null, null);
+    }
+
+    // ================== Refill Draft ==================
+    public SessionContext withRefill(String medicationName, String medicationQuantity) {
+        return new SessionContext(sessionId, userId, userName, role, patientName, specialistName, appointmentDate,
+                appointmentTime, medicationName, medicationQuantity, vitals);
+    }
+
+    public SessionContext clearRefill() {
+        return withRefill(null, null);
+    }
+
+    // ================== Vitals Draft ==================
+    /** A copy with one reading added or replaced; a null value removes it. */
+    public SessionContext withVital(String name, String value) {
+        Map<String, String> copy = new LinkedHashMap<>(vitals);
+        if (value == null) {
+            copy.remove(name);
+        } else {
+            copy.put(name, value);
+        }
+        return withVitals(copy);
+    }
+
+    public SessionContext withVitals(Map<String, String> readings) {
+        return new SessionContext(sessionId, userId, userName, role, patientName, specialistName, appointmentDate,
+                appointmentTime, medicationName, medicationQuantity, readings);
+    }
+
+    public SessionContext clearVitals() {
+        return withVitals(Map.of());
+    }
+
+    public String vital(String name) {
+        return vitals.get(name);
+    }
+
+    public boolean isRole(String expected) {
+        return role != null && role.equalsIgnoreCase(expected);
+    }
+}
@@ -0,0 +1,178 @@
+package session;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Signed-in sessions keyed by a random session id. Each entry holds an
+ * immutable {@link SessionContext}; changes go through {@link #update}, which
+ * swaps in a new context atomically for that id, so concurrent screens or
+ * background tasks of the same user cannot lose each other's edits and other
+ * users are never blocked.
+ *
+ * A session unused for idleTimeoutMs expires: lookups return null and the
+ * housekeeper removes it. The timeout can be set with
+ * -Dtelehealth.session.idleTimeoutMs (default 30 minutes).
+ */
+public class SessionStore implements AutoCloseable {
+
+    private record Entry(SessionContext context, long lastAccess) {
+    }
+
+    private static volatile SessionStore instance;
+
+    private final long idleTimeoutMs;
+    private final LongSupplier clock;
+    private final Map<String, Entry> sessions = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+    private final LongAdder opened = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private volatile ScheduledExecutorService housekeeper;
+
+    public SessionStore(long idleTimeoutMs, LongSupplier clock) {
+        if (idleTimeoutMs < 1) {
+            throw new IllegalArgumentException("idleTimeoutMs must be positive");
+        }
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.clock = clock;
+    }
+
+    /** The application's store, with a housekeeper sweeping idle sessions once a minute. */
+    public static SessionStore getInstance() {
+        SessionStore current = instance;
+        if (current == null) {
+            synchronized (SessionStore.class) {
+                current = instance;
+                if (current == null) {
+                    long idle = Long.getLong("telehealth.session.idleTimeoutMs", 30 * 60_000L);
+                    current = new SessionStore(idle, System::currentTimeMillis);
+                    current.startHousekeeping(Math.min(60_000L, idle));
+                    instance = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    // ================== LIFECYCLE ==================
+    /** Start a session for a user who just signed in. */
+    public SessionContext open(int userId, String userName, String role) {
+        long now = clock.getAsLong();
+        while (true) {
+            SessionContext context = SessionContext.of(newSessionId(), userId, userName, role);
+            if (sessions.putIfAbsent(context.sessionId(), new Entry(context, now)) == null) {
+                opened.increment();
+                return context;
+            }
+        }
+    }
+
+    /** The current context for this id, or null if it was ended or has expired. Counts as activity. */
+    public SessionContext get(String sessionId) {
+        if (sessionId == null) return null;
+        long now = clock.getAsLong();
+        Entry entry = sessions.computeIfPresent(sessionId,
+                (id, e) -> isIdle(e, now) ? expire() : new Entry(e.context(), now));
+        return entry == null ? null : entry.context();
+    }
+
+    /**
+     * Apply a change to the session and return the new context, or null if the
+     * session no longer exists. The change runs while this session's entry is
+     * locked, so keep it short and free of side effects.
+     */
+    public SessionContext update(String sessionId, UnaryOperator<SessionContext> change) {
+        if (sessionId == null) return null;
+        long now = clock.getAsLong();
+        Entry entry = sessions.computeIfPresent(sessionId, (id, e) -> {
+            if (isIdle(e, now)) return expire();
+            SessionContext next = change.apply(e.context());
+            if (next == null || !next.sessionId().equals(id)) {
+                throw new IllegalArgumentException("A session update must keep the session id");
+            }
+            return new Entry(next, now);
+        });
+        return entry == null ? null : entry.context();
+    }
+
+    /** End the session, e.g. on logout. */
+    public void invalidate(String sessionId) {
+        if (sessionId != null) {
+            sessions.remove(sessionId);
+        }
+    }
+
+    /** Remove every session idle for longer than the timeout; returns how many were removed. */
+    public int expireIdle() {
+        long now = clock.getAsLong();
+        int removed = 0;
+        for (String id : sessions.keySet()) {
+            boolean[] dropped = new boolean[1];
+            sessions.computeIfPresent(id, (key, e) -> {
+                if (!isIdle(e, now)) return e;
+                dropped[0] = true;
+                return expire();
+            });
+            if (dropped[0]) removed++;
+        }
+        return removed;
+    }
+
+    // ================== HELPERS ==================
+    private boolean isIdle(Entry entry, long now) {
+        return now - entry.lastAccess() >= idleTimeoutMs;
+    }
+
+    private Entry expire() {
+        expired.increment();
+        return null;
+    }
+
+    private String newSessionId() {
+        byte[] bytes = new byte[18];
+        random.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    void startHousekeeping(long intervalMs) {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "telehealth-session-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        executor.scheduleWithFixedDelay(this::expireIdle, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        housekeeper = executor;
+    }
+
+    // ================== METRICS ==================
+    public int size() { return sessions.size(); }
+    public long getOpenedCount() { return opened.sum(); }
+    public long getExpiredCount() { return expired.sum(); }
+    public long getIdleTimeoutMs() { return idleTimeoutMs; }
+
+    @Override
+    public void close() {
+        ScheduledExecutorService executor = housekeeper;
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        sessions.clear();
+    }
+
+    /** Stop the shared store's housekeeper and drop all sessions, e.g. when the application exits. */
+    public static synchronized void shutdown() {
+        if (instance != null) {
+            instance.close();
+            instance = null;
+        }
+    }
+}
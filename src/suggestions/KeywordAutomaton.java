@@ -0,0 +1,195 @@
+package suggestions;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Aho-Corasick automaton over a fixed list of keywords, ignoring case. One
+ * pass over a text reports every occurrence of every keyword, including
+ * overlapping ones ("she" and "he" in "ushers"), in time linear in the text
+ * plus the number of occurrences, however many keywords there are.
+ *
+ * States are indexes into parallel arrays, as in the search package's
+ * NameTrie. A state's edges are stored sorted in one shared array and found
+ * by binary search; the root, where most failure links end, also has a
+ * direct table for ASCII. Immutable once built, so any number of threads can
+ * match at once.
+ */
+final class KeywordAutomaton {
+
+    private static final int NONE = -1;
+    private static final int ROOT_TABLE = 128;
+
+    private final int[] edgeStart;   // edges of state s are edgeStart[s] until edgeStart[s + 1]
+    private final char[] edgeLabel;
+    private final int[] edgeTarget;
+    private final int[] rootNext = new int[ROOT_TABLE];
+    private final int[] fail;        // longest proper suffix that is also a state
+    private final int[] outputLink;  // nearest suffix state that ends a keyword, or the root
+    private final int[] keywordAt;   // keyword ending at the state, or NONE
+
+    /** Keyword i is reported as i. Keywords must not be empty; duplicates are reported once. */
+    KeywordAutomaton(List<String> keywords) {
+        Trie trie = new Trie();
+        for (int i = 0; i < keywords.size(); i++) {
+            String keyword = keywords.get(i);
+            if (keyword.isEmpty()) throw new IllegalArgumentException("Empty keyword");
+            trie.insert(keyword, i);
+        }
+        int states = trie.nodeCount;
+
+        // Lay the trie out breadth first, edges grouped by state in label order
+        int[] order = new int[states];
+        int[] stateOf = new int[states];
+        int head = 0;
+        int tail = 1;
+        while (head < tail) {
+            for (int child = trie.firstChild[order[head++]]; child != NONE; child = trie.nextSibling[child]) {
+                stateOf[child] = tail;
+                order[tail++] = child;
+            }
+        }
+        edgeStart = new int[states + 1];
+        edgeLabel = new char[states - 1];
+        edgeTarget = new int[states - 1];
+        keywordAt = new int[states];
+        int edges = 0;
+        for (int s = 0; s < states; s++) {
+            int node = order[s];
+            keywordAt[s] = trie.keyword[node];
+            edgeStart[s] = edges;
+            for (int child = trie.firstChild[node]; child != NONE; child = trie.nextSibling[child]) {
+                edgeLabel[edges] = trie.labels[child];
+                edgeTarget[edges++] = stateOf[child];
+            }
+        }
+        edgeStart[states] = edges;
+        Arrays.fill(rootNext, NONE);
+        for (int e = edgeStart[0]; e < edgeStart[1]; e++) {
+            if (edgeLabel[e] < ROOT_TABLE) rootNext[edgeLabel[e]] = edgeTarget[e];
+        }
+
+        // States are numbered breadth first, so a state's failure target is always computed before it is needed
+        fail = new int[states];
+        outputLink = new int[states];
+        for (int s = 0; s < states; s++) {
+            for (int e = edgeStart[s]; e < edgeStart[s + 1]; e++) {
+                int child = edgeTarget[e];
+                int target = s == 0 ? 0 : next(fail[s], edgeLabel[e]);
+                fail[child] = target;
+                outputLink[child] = keywordAt[target] != NONE ? target : outputLink[target];
+            }
+        }
+    }
+
+    /** Report the keyword index of every occurrence in the text, in order of where each ends. */
+    void match(CharSequence text, IntConsumer onKeyword) {
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            state = next(state, Character.toLowerCase(text.charAt(i)));
+            for (int s = keywordAt[state] != NONE ? state : outputLink[state]; s != 0; s = outputLink[s]) {
+                onKeyword.accept(keywordAt[s]);
+            }
+        }
+    }
+
+    /** The state after reading c, following failure links until some suffix can take it. */
+    private int next(int state, char c) {
+        while (state != 0) {
+            int target = edge(state, c);
+            if (target != NONE) return target;
+            state = fail[state];
+        }
+        if (c < ROOT_TABLE) {
+            int target = rootNext[c];
+            return target != NONE ? target : 0;
+        }
+        int target = edge(0, c);
+        return target != NONE ? target : 0;
+    }
+
+    private int edge(int state, char c) {
+        int low = edgeStart[state];
+        int high = edgeStart[state + 1] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char label = edgeLabel[mid];
+            if (label < c) {
+                low = mid + 1;
+            } else if (label > c) {
+                high = mid - 1;
+            } else {
+                return edgeTarget[mid];
+            }
+        }
+        return NONE;
+    }
+
+    /** A keyword as the automaton compares it: each char lowercased, as the text is while matching. */
+    static String normalize(String keyword) {
+        StringBuilder normalized = new StringBuilder(keyword.length());
+        for (int i = 0; i < keyword.length(); i++) {
+            normalized.append(Character.toLowerCase(keyword.charAt(i)));
+        }
+        return normalized.toString();
+    }
+
+    int stateCount() {
+        return keywordAt.length;
+    }
+
+    /** Build-time trie with sorted sibling lists, laid out into the arrays above. */
+    private static final class Trie {
+        char[] labels = new char[64];
+        int[] firstChild = new int[64];
+        int[] nextSibling = new int[64];
+        int[] keyword = new int[64];
+        int nodeCount;
+
+        Trie() {
+            newNode('\0'); // root
+        }
+
+        void insert(String key, int index) {
+            int node = 0;
+            for (int i = 0; i < key.length(); i++) {
+                node = childOrCreate(node, Character.toLowerCase(key.charAt(i)));
+            }
+            if (keyword[node] == NONE) keyword[node] = index;
+        }
+
+        private int childOrCreate(int node, char label) {
+            int previous = NONE;
+            int child = firstChild[node];
+            while (child != NONE && labels[child] < label) {
+                previous = child;
+                child = nextSibling[child];
+            }
+            if (child != NONE && labels[child] == label) return child;
+            int created = newNode(label);
+            nextSibling[created] = child;
+            if (previous == NONE) {
+                firstChild[node] = created;
+            } else {
+                nextSibling[previous] = created;
+            }
+            return created;
+        }
+
+        private int newNode(char label) {
+            if (nodeCount == labels.length) {
+                int capacity = nodeCount * 2;
+                labels = Arrays.copyOf(labels, capacity);
+                firstChild = Arrays.copyOf(firstChild, capacity);
+                nextSibling = Arrays.copyOf(nextSibling, capacity);
+                keyword = Arrays.copyOf(keyword, capacity);
+            }
+            labels[nodeCount] = label;
+            firstChild[nodeCount] = NONE;
+            nextSibling[nodeCount] = NONE;
+            keyword[nodeCount] = NONE;
+            return nodeCount++;
+        }
+    }
+}
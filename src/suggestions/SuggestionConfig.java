@@ -0,0 +1,42 @@
+package suggestions;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Settings for {@link SuggestionEngine}. Every value can be overridden with
+ * a system property prefixed by "telehealth.suggestions." (e.g. -Dtelehealth.suggestions.reloadIntervalMs=5000).
+ */
+public class SuggestionConfig {
+
+    private Path rulesFile = Paths.get(System.getProperty("user.home"), ".telehealth", "suggestion-rules.txt");
+    private long reloadIntervalMs = 2_000;  // check the rules file for changes this often; 0 never checks
+
+    public static SuggestionConfig fromSystemProperties() {
+        SuggestionConfig config = new SuggestionConfig();
+        String rules = System.getProperty("telehealth.suggestions.rulesFile");
+        if (rules != null) {
+            config.rulesFile = Paths.get(rules);
+        }
+        config.reloadIntervalMs = Long.getLong("telehealth.suggestions.reloadIntervalMs", config.reloadIntervalMs);
+        config.validate();
+        return config;
+    }
+
+    public void validate() {
+        if (rulesFile == null) {
+            throw new IllegalArgumentException("rulesFile is required");
+        }
+        if (reloadIntervalMs < 0) {
+            throw new IllegalArgumentException("reloadIntervalMs must not be negative");
+        }
+    }
+
+    // Getters
+    public Path getRulesFile() { return rulesFile; }
+    public long getReloadIntervalMs() { return reloadIntervalMs; }
+
+    // Setters
+    public void setRulesFile(Path rulesFile) { this.rulesFile = rulesFile; }
+    public void setReloadIntervalMs(long reloadIntervalMs) { this.reloadIntervalMs = reloadIntervalMs; }
+}
@@ -0,0 +1,178 @@
+package suggestions;
+
+import utils.LatencyHistogram;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Prescription and treatment plan suggestions for the diagnosis screen, from
+ * the rules in {@link SuggestionConfig#getRulesFile()} or, while that file
+ * does not exist, the rules bundled with the application. The file is checked
+ * every reloadIntervalMs and recompiled in the background when it changes; a
+ * file that does not parse is reported and the previous rules stay in use.
+ * Suggestions read the current rules without locking, so the diagnosis
+ * screen can ask on every keystroke.
+ */
+public class SuggestionEngine implements AutoCloseable {
+
+    static final String BUNDLED_RULES = "default-rules.txt";
+
+    private static volatile SuggestionEngine instance;
+
+    private final SuggestionConfig config;
+    private volatile SuggestionRules rules;
+    private FileStamp loadedStamp; // guarded by this; null when the bundled rules are in use
+    private volatile ScheduledExecutorService watcher;
+
+    private final LatencyHistogram suggestLatency = new LatencyHistogram();
+    private final LongAdder reloads = new LongAdder();
+    private final LongAdder failedReloads = new LongAdder();
+
+    private record FileStamp(long modifiedMillis, long size) {
+        static FileStamp of(Path file) throws IOException {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            return new FileStamp(attributes.lastModifiedTime().toMillis(), attributes.size());
+        }
+    }
+
+    public SuggestionEngine(SuggestionConfig config) {
+        config.validate();
+        this.config = config;
+    }
+
+    /** The application's engine, watching the rules file in the background. */
+    public static SuggestionEngine getInstance() {
+        SuggestionEngine current = instance;
+        if (current == null) {
+            synchronized (SuggestionEngine.class) {
+                current = instance;
+                if (current == null) {
+                    SuggestionConfig config = SuggestionConfig.fromSystemProperties();
+                    current = new SuggestionEngine(config);
+                    current.reload();
+                    if (config.getReloadIntervalMs() > 0) {
+                        current.startWatching(config.getReloadIntervalMs());
+                    }
+                    instance = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    // ================== SUGGESTIONS ==================
+    public String prescription(String diagnosis) {
+        return suggest(SuggestionRules.Section.PRESCRIPTION, diagnosis);
+    }
+
+    public String treatmentPlan(String diagnosis) {
+        return suggest(SuggestionRules.Section.TREATMENT, diagnosis);
+    }
+
+    private String suggest(SuggestionRules.Section section, String diagnosis) {
+        SuggestionRules current = rules();
+        long start = System.nanoTime();
+        try {
+            return current.suggest(section, diagnosis);
+        } finally {
+            suggestLatency.recordSince(start);
+        }
+    }
+
+    /** The rules in use, loading them on first call. */
+    public SuggestionRules rules() {
+        SuggestionRules current = rules;
+        if (current == null) {
+            reload();
+            current = rules;
+        }
+        return current;
+    }
+
+    // ================== RELOADING ==================
+    /**
+     * Load the rules file if it changed since the last call (or fall back to
+     * the bundled rules if it was deleted). Returns true if new rules are now
+     * in use. A file that cannot be read or parsed is reported once and the
+     * previous rules are kept.
+     */
+    public synchronized boolean reload() {
+        Path file = config.getRulesFile();
+        FileStamp stamp;
+        try {
+            stamp = Files.exists(file) ? FileStamp.of(file) : null;
+        } catch (IOException e) {
+            stamp = new FileStamp(-1, -1);
+        }
+        if (rules != null && Objects.equals(stamp, loadedStamp)) return false;
+        loadedStamp = stamp;
+        try {
+            rules = SuggestionRules.parse(stamp != null ? Files.readString(file, StandardCharsets.UTF_8) : bundledRules());
+            reloads.increment();
+            return true;
+        } catch (IOException | IllegalArgumentException e) {
+            failedReloads.increment();
+            System.err.println("Suggestion rules in " + file + " not loaded: " + e.getMessage());
+            if (rules == null) rules = SuggestionRules.parse(bundledRules());
+            return false;
+        }
+    }
+
+    /** The rules file shipped with the application, used while the configured file does not exist. */
+    public static String bundledRules() {
+        try (InputStream in = SuggestionEngine.class.getResourceAsStream(BUNDLED_RULES)) {
+            if (in == null) throw new IllegalStateException(BUNDLED_RULES + " missing from the classpath");
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    void startWatching(long intervalMs) {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "telehealth-suggestion-rules");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        executor.scheduleWithFixedDelay(this::reload, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        watcher = executor;
+    }
+
+    // ================== METRICS ==================
+    public String metrics() {
+        SuggestionRules current = rules;
+        return String.format(Locale.ROOT, "rules=%d keywords=%d states=%d reloads=%d failedReloads=%d suggest[%s]",
+                current != null ? current.ruleCount() : 0, current != null ? current.keywordCount() : 0,
+                current != null ? current.stateCount() : 0, reloads.sum(), failedReloads.sum(),
+                suggestLatency.summary());
+    }
+
+    @Override
+    public void close() {
+        ScheduledExecutorService executor = watcher;
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /** Stop watching the rules file, e.g. when the application exits. */
+    public static synchronized void shutdown() {
+        if (instance != null) {
+            instance.close();
+            instance = null;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package suggestions;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * A parsed rules file, compiled into one {@link KeywordAutomaton} for all its
+ * keywords. The file has a [prescription] and a [treatment] section; each
+ * line in a section is one of
+ * <pre>
+ * fever, temperature => • Paracetamol 500mg - Take 1 tablet every 6 hours as needed
+ * &#64;header => TREATMENT PLAN:
+ * &#64;default => • Follow up consultation recommended
+ * &#64;footer =>
+ * </pre>
+ * A rule adds its line when any of its keywords appears in the diagnosis,
+ * ignoring case, even inside a longer word ("ache" in "headache"). A
+ * suggestion is the section's header lines, the lines of the rules that
+ * matched in file order (each once), or the default lines if none matched,
+ * then the footer lines. The single space after "=>" is dropped; any more is
+ * kept as indentation. Blank lines and lines starting with # are ignored.
+ */
+public final class SuggestionRules {
+
+    public enum Section {
+        PRESCRIPTION, TREATMENT
+    }
+
+    private enum Part {
+        HEADER, DEFAULT, FOOTER
+    }
+
+    private final Map<Section, Map<Part, List<String>>> fixedLines;
+    private final String[] ruleLines;       // grouped by section, file order within each
+    private final int[] sectionStart;       // rules of section i are sectionStart[i] until sectionStart[i + 1]
+    private final int[][] rulesByKeyword;
+    private final KeywordAutomaton automaton;
+
+    private SuggestionRules(Map<Section, Map<Part, List<String>>> fixedLines, Map<Section, List<Rule>> rules) {
+        this.fixedLines = fixedLines;
+        Map<String, List<Integer>> keywordRules = new LinkedHashMap<>();
+        List<String> lines = new ArrayList<>();
+        sectionStart = new int[Section.values().length + 1];
+        for (Section section : Section.values()) {
+            sectionStart[section.ordinal()] = lines.size();
+            for (Rule rule : rules.get(section)) {
+                for (String keyword : rule.keywords()) {
+                    List<Integer> ids = keywordRules.computeIfAbsent(keyword, k -> new ArrayList<>());
+                    if (ids.isEmpty() || ids.get(ids.size() - 1) != lines.size()) ids.add(lines.size());
+                }
+                lines.add(rule.line());
+            }
+        }
+        sectionStart[Section.values().length] = lines.size();
+        ruleLines = lines.toArray(new String[0]);
+        rulesByKeyword = keywordRules.values().stream()
+                .map(ids -> ids.stream().mapToInt(Integer::intValue).toArray())
+                .toArray(int[][]::new);
+        automaton = new KeywordAutomaton(new ArrayList<>(keywordRules.keySet()));
+    }
+
+    private record Rule(List<String> keywords, String line) {
+    }
+
+    // ================== PARSING ==================
+    /** Parse and compile a rules file; a malformed line throws with its line number. */
+    public static SuggestionRules parse(String source) {
+        Map<Section, Map<Part, List<String>>> fixed = new EnumMap<>(Section.class);
+        Map<Section, List<Rule>> rules = new EnumMap<>(Section.class);
+        for (Section section : Section.values()) {
+            Map<Part, List<String>> parts = new EnumMap<>(Part.class);
+            for (Part part : Part.values()) parts.put(part, new ArrayList<>());
+            fixed.put(section, parts);
+            rules.put(section, new ArrayList<>());
+        }
+
+        Section section = null;
+        String[] lines = source.split("\r?\n", -1);
+        for (int n = 0; n < lines.length; n++) {
+            String line = lines[n];
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) continue;
+            if (trimmed.startsWith("[") && trimmed.endsWith("]")) {
+                section = section(trimmed.substring(1, trimmed.length() - 1).trim(), n + 1);
+                continue;
+            }
+            int arrow = line.indexOf("=>");
+            if (arrow < 0) throw error(n + 1, "expected \"keywords => line\"");
+            if (section == null) throw error(n + 1, "rule before the first [section]");
+            String left = line.substring(0, arrow).trim();
+            String text = line.substring(arrow + 2);
+            if (text.startsWith(" ")) text = text.substring(1);
+
+            if (left.startsWith("@")) {
+                fixed.get(section).get(part(left.substring(1), n + 1)).add(text);
+                continue;
+            }
+            List<String> keywords = new ArrayList<>();
+            for (String keyword : left.split(",")) {
+                String k = KeywordAutomaton.normalize(keyword.trim());
+                if (k.isEmpty()) throw error(n + 1, "empty keyword");
+                keywords.add(k);
+            }
+            rules.get(section).add(new Rule(keywords, text));
+        }
+        return new SuggestionRules(fixed, rules);
+    }
+
+    private static Section section(String name, int lineNumber) {
+        for (Section section : Section.values()) {
+            if (section.name().equalsIgnoreCase(name)) return section;
+        }
+        throw error(lineNumber, "unknown section [" + name + "]");
+    }
+
+    private static Part part(String name, int lineNumber) {
+        for (Part part : Part.values()) {
+            if (part.name().equalsIgnoreCase(name)) return part;
+        }
+        throw error(lineNumber, "unknown directive @" + name);
+    }
+
+    private static IllegalArgumentException error(int lineNumber, String message) {
+        return new IllegalArgumentException("Line " + lineNumber + ": " + message);
+    }
+
+    // ================== MATCHING ==================
+    /** The section's suggestion for a diagnosis; one pass over the text whatever the number of rules. */
+    public String suggest(Section section, CharSequence diagnosis) {
+        BitSet matched = matchedRules(diagnosis);
+        Map<Part, List<String>> parts = fixedLines.get(section);
+        StringJoiner text = new StringJoiner("\n");
+        parts.get(Part.HEADER).forEach(text::add);
+        int end = sectionStart[section.ordinal() + 1];
+        int rule = matched.nextSetBit(sectionStart[section.ordinal()]);
+        if (rule < 0 || rule >= end) {
+            parts.get(Part.DEFAULT).forEach(text::add);
+        }
+        for (; rule >= 0 && rule < end; rule = matched.nextSetBit(rule + 1)) {
+            text.add(ruleLines[rule]);
+        }
+        parts.get(Part.FOOTER).forEach(text::add);
+        return text.toString();
+    }
+
+    /** Indexes of the rules, in either section, with a keyword in the text. */
+    BitSet matchedRules(CharSequence diagnosis) {
+        BitSet matched = new BitSet(ruleLines.length);
+        if (diagnosis != null) {
+            automaton.match(diagnosis, keyword -> {
+                for (int rule : rulesByKeyword[keyword]) matched.set(rule);
+            });
+        }
+        return matched;
+    }
+
+    public int ruleCount() {
+        return ruleLines.length;
+    }
+
+    public int keywordCount() {
+        return rulesByKeyword.length;
+    }
+
+    public int stateCount() {
+        return automaton.stateCount();
+    }
+}
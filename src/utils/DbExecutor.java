@@ -0,0 +1,92 @@
+package utils;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared executor for blocking database work so that JDBC calls never run
+ * on the JavaFX Application Thread.
+ *
+ * On JDK 21+ every task gets its own virtual thread (concurrency is still
+ * bounded by the connection pool). On older JDKs a fixed pool of daemon
+ * platform threads sized to the connection pool is used instead.
+ */
+public final class DbExecutor {
+
+    private static final ExecutorService EXECUTOR = createExecutor();
+    private static volatile boolean virtualThreads;
+
+    private DbExecutor() {
+    }
+
+    public static ExecutorService get() {
+        return EXECUTOR;
+    }
+
+    public static boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Run blocking work on the DB executor and complete the future with its result.
+     */
+    public static <T> CompletableFuture<T> supply(Callable<T> work) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return work.call();
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, EXECUTOR);
+    }
+
+    public static void shutdown() {
+        EXECUTOR.shutdown();
+    }
+
+    /**
+     * Virtual-thread executor when the running JDK has one (looked up
+     * reflectively so the code still compiles and runs on JDK 17).
+     */
+    public static ExecutorService newVirtualThreadExecutorOrNull() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Bounded pool of daemon platform threads named prefix-N.
+     */
+    public static ExecutorService newBoundedExecutor(String prefix, int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread t = new Thread(r, prefix + "-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    private static ExecutorService createExecutor() {
+        ExecutorService virtual = newVirtualThreadExecutorOrNull();
+        if (virtual != null) {
+            virtualThreads = true;
+            return virtual;
+        }
+        int threads = Integer.getInteger("telehealth.pool.maxSize", 10);
+        return newBoundedExecutor("telehealth-db", Math.max(2, threads));
+    }
+}
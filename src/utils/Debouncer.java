@@ -0,0 +1,47 @@
+package utils;
+
+import javafx.animation.PauseTransition;
+import javafx.util.Duration;
+
+/**
+ * Runs an action once input has been quiet for the given delay, e.g. after
+ * the user stops typing. Uses a PauseTransition, so the action runs on the
+ * FX Application Thread. A zero delay runs the action immediately.
+ */
+public class Debouncer {
+
+    private final Duration delay;
+    private final Runnable action;
+    private PauseTransition pause; // created lazily so zero-delay use needs no FX toolkit
+
+    public Debouncer(Duration delay, Runnable action) {
+        this.delay = delay;
+        this.action = action;
+    }
+
+    /** Restart the quiet period. */
+    public void trigger() {
+        if (delay.lessThanOrEqualTo(Duration.ZERO)) {
+            action.run();
+            return;
+        }
+        if (pause == null) {
+            pause = new PauseTransition(delay);
+            pause.setOnFinished(e -> action.run());
+        }
+        pause.playFromStart();
+    }
+
+    /** Drop a pending run without executing it. */
+    public void cancel() {
+        if (pause != null) {
+            pause.stop();
+        }
+    }
+
+    /** Run now and drop the pending run, if any. */
+    public void flush() {
+        cancel();
+        action.run();
+    }
+}
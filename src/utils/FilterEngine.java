@@ -0,0 +1,119 @@
+package utils;
+
+import javafx.collections.ObservableList;
+import javafx.util.Duration;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Incremental in-memory filter for table screens.
+ *
+ * Search text is debounced, rows are matched against a precomputed lowercase
+ * search key, and when the new query only extends the previous one (same
+ * other criteria) just the previous result is rescanned. The result is
+ * published to the target list with a single setAll().
+ * All methods must be called from the FX Application Thread.
+ */
+public class FilterEngine<T> {
+
+    public static final Duration DEFAULT_DEBOUNCE = Duration.millis(150);
+
+    private final ObservableList<T> target;
+    private final Function<T, String> searchKey;
+    private final Debouncer debouncer;
+
+    private List<T> source = new ArrayList<>();
+    private String query = "";
+    private Predicate<T> predicate = row -> true;
+
+    // What the current target contents were computed from
+    private List<T> lastResult = new ArrayList<>();
+    private String lastQuery;
+    private Predicate<T> lastPredicate;
+    private int lastScanned;
+    private Runnable onFiltered;
+
+    /**
+     * @param searchKey returns the row's already-normalized search text
+     */
+    public FilterEngine(ObservableList<T> target, Function<T, String> searchKey, Duration debounce) {
+        this.target = target;
+        this.searchKey = searchKey;
+        this.debouncer = new Debouncer(debounce, this::filter);
+    }
+
+    /** Called after every publish to the target list. */
+    public void setOnFiltered(Runnable onFiltered) {
+        this.onFiltered = onFiltered;
+    }
+
+    // ================== INPUT ==================
+    /** Replace all rows and re-filter immediately. */
+    public void setSource(Collection<T> rows) {
+        source = new ArrayList<>(rows);
+        lastQuery = null;
+        applyNow();
+    }
+
+    /** Search text; applied once typing pauses. */
+    public void setQuery(String text) {
+        query = SearchText.normalize(text);
+        debouncer.trigger();
+    }
+
+    /**
+     * Non-text criteria such as status or date; applied immediately. Pass the
+     * same instance again when the criteria have not changed so narrowing
+     * still applies.
+     */
+    public void setPredicate(Predicate<T> predicate) {
+        this.predicate = predicate != null ? predicate : row -> true;
+        applyNow();
+    }
+
+    /** Set both criteria without filtering; the next apply uses them. */
+    public void setCriteria(String text, Predicate<T> predicate) {
+        query = SearchText.normalize(text);
+        this.predicate = predicate != null ? predicate : row -> true;
+    }
+
+    public void applyNow() {
+        debouncer.flush();
+    }
+
+    // ================== FILTERING ==================
+    private void filter() {
+        boolean sameCriteria = lastQuery != null && predicate == lastPredicate;
+        if (sameCriteria && query.equals(lastQuery)) {
+            return; // nothing changed, keep the current rows
+        }
+        boolean narrow = sameCriteria && query.contains(lastQuery);
+        List<T> base = narrow ? lastResult : source;
+
+        List<T> result = new ArrayList<>();
+        for (T row : base) {
+            if (!query.isEmpty() && !searchKey.apply(row).contains(query)) continue;
+            if (!narrow && !predicate.test(row)) continue;
+            result.add(row);
+        }
+
+        lastScanned = base.size();
+        lastQuery = query;
+        lastPredicate = predicate;
+        lastResult = result;
+        target.setAll(result);
+        if (onFiltered != null) onFiltered.run();
+    }
+
+    // ================== STATE ==================
+    public int getSourceSize() { return source.size(); }
+
+    public int getResultSize() { return lastResult.size(); }
+
+    /** Rows examined by the last filter pass (smaller than the source when narrowing). */
+    public int getLastScanned() { return lastScanned; }
+}
@@ -0,0 +1,150 @@
+package utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Minimal parser for flat JSON objects such as {"userId": 6, "pulse": 72}.
+ * Values are returned as their text (strings unescaped, numbers and booleans
+ * as written, null as null). Nested objects and arrays are rejected.
+ */
+public final class FlatJson {
+
+    private final String text;
+    private int pos;
+
+    private FlatJson(String text) {
+        this.text = text;
+    }
+
+    public static Map<String, String> parse(String text) {
+        if (text == null) {
+            throw new IllegalArgumentException("Empty JSON");
+        }
+        return new FlatJson(text).object();
+    }
+
+    private Map<String, String> object() {
+        Map<String, String> values = new LinkedHashMap<>();
+        skipWhitespace();
+        expect('{');
+        skipWhitespace();
+        if (peek() == '}') {
+            pos++;
+            return end(values);
+        }
+        while (true) {
+            skipWhitespace();
+            String key = string();
+            skipWhitespace();
+            expect(':');
+            skipWhitespace();
+            values.put(key, value());
+            skipWhitespace();
+            char c = next();
+            if (c == '}') return end(values);
+            if (c != ',') throw error("Expected ',' or '}'");
+        }
+    }
+
+    private Map<String, String> end(Map<String, String> values) {
+        skipWhitespace();
+        if (pos < text.length()) throw error("Unexpected text after object");
+        return values;
+    }
+
+    private String value() {
+        char c = peek();
+        if (c == '"') return string();
+        if (c == '{' || c == '[') throw error("Nested values are not supported");
+        int start = pos;
+        while (pos < text.length() && ",} \t\r\n".indexOf(text.charAt(pos)) < 0) {
+            pos++;
+        }
+        String literal = text.substring(start, pos);
+        if (literal.isEmpty()) throw error("Missing value");
+        if (literal.equals("null")) return null;
+        if (literal.equals("true") || literal.equals("false")) return literal;
+        try {
+            Double.parseDouble(literal);
+        } catch (NumberFormatException e) {
+            throw error("Invalid value '" + literal + "'");
+        }
+        return literal;
+    }
+
+    private String string() {
+        expect('"');
+        StringBuilder sb = new StringBuilder();
+        while (true) {
+            char c = next();
+            if (c == '"') return sb.toString();
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            char escaped = next();
+            switch (escaped) {
+                case '"', '\\', '/' -> sb.append(escaped);
+                case 'b' -> sb.append('\b');
+                case 'f' -> sb.append('\f');
+                case 'n' -> sb.append('\n');
+                case 'r' -> sb.append('\r');
+                case 't' -> sb.append('\t');
+                case 'u' -> {
+                    if (pos + 4 > text.length()) throw error("Bad unicode escape");
+                    try {
+                        sb.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                    } catch (NumberFormatException e) {
+                        throw error("Bad unicode escape");
+                    }
+                    pos += 4;
+                }
+                default -> throw error("Bad escape '\\" + escaped + "'");
+            }
+        }
+    }
+
+    /** Quote a string for output. */
+    public static String quote(String value) {
+        if (value == null) return "null";
+        StringBuilder sb = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    private void skipWhitespace() {
+        while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) pos++;
+    }
+
+    private char peek() {
+        if (pos >= text.length()) throw error("Unexpected end of JSON");
+        return text.charAt(pos);
+    }
+
+    private char next() {
+        char c = peek();
+        pos++;
+        return c;
+    }
+
+    private void expect(char c) {
+        if (next() != c) throw error("Expected '" + c + "'");
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at position " + pos);
+    }
+}
@@ -0,0 +1,292 @@
+package utils;
+
+import database.BookingFilter;
+import database.DatabaseHelper;
+import database.KeysetPager;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.geometry.Orientation;
+import javafx.scene.Node;
+import javafx.scene.control.ScrollBar;
+import javafx.scene.control.TableView;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Feeds a TableView from a {@link KeysetPager}: the first page is loaded on
+ * {@link #reload}, further pages as the user scrolls towards either end.
+ * At most maxRows rows are kept; rows scrolled far out of view are dropped
+ * and re-read from the database if the user scrolls back.
+ *
+ * With {@link #enableLocalFiltering} and a table small enough to fit in the
+ * window, every row is loaded once and filter changes are handled in memory
+ * by a {@link FilterEngine} instead of another query. Otherwise search-text
+ * changes are debounced before the filtered query is re-run.
+ * All methods must be called from the FX Application Thread.
+ */
+public final class PagedTableLoader<T> {
+
+    private final TableView<T> table;
+    private final KeysetPager<T> pager;
+    private final TaskScope tasks;
+    private final int maxRows;
+
+    private final ObservableList<T> window = FXCollections.observableArrayList();
+    private final List<Object[]> keys = new ArrayList<>();
+    private final Debouncer searchDebouncer = new Debouncer(FilterEngine.DEFAULT_DEBOUNCE, this::reload);
+
+    private BookingFilter filter = BookingFilter.NONE;
+    private boolean moreBefore;
+    private boolean moreAfter;
+    private boolean loading;
+    private long generation;   // bumped on reload so late pages of an old query are ignored
+    private long totalRows;
+    private Consumer<PagedTableLoader<T>> onLoaded;
+    private Consumer<Throwable> onError = Throwable::printStackTrace;
+
+    // Local filtering: only used while the whole table is in memory
+    private FilterEngine<T> localFilter;
+    private BiPredicate<T, BookingFilter> localMatcher;
+    private boolean localMode;
+    private Predicate<T> localPredicate;
+    private BookingFilter localPredicateFilter;
+
+    public PagedTableLoader(TableView<T> table, KeysetPager<T> pager, TaskScope tasks, int maxRows) {
+        if (maxRows < pager.getPageSize() * 2) {
+            throw new IllegalArgumentException("maxRows must hold at least two pages");
+        }
+        this.table = table;
+        this.pager = pager;
+        this.tasks = tasks;
+        this.maxRows = maxRows;
+        table.setItems(window);
+        table.skinProperty().addListener((obs, oldSkin, newSkin) -> attachScrollBar());
+        attachScrollBar();
+    }
+
+    /**
+     * Allow in-memory filtering when the unfiltered table fits in maxRows.
+     *
+     * @param searchKey normalized search text of a row (see {@link SearchText#normalize})
+     * @param matcher   the non-text part of the filter (status, date), matching the SQL semantics
+     */
+    public void enableLocalFiltering(Function<T, String> searchKey, BiPredicate<T, BookingFilter> matcher) {
+        localFilter = new FilterEngine<>(window, searchKey, FilterEngine.DEFAULT_DEBOUNCE);
+        localFilter.setOnFiltered(() -> {
+            totalRows = window.size();
+            fireLoaded();
+        });
+        localMatcher = matcher;
+    }
+
+    /** Called on the FX thread after every reload, page load or local filter pass. */
+    public void setOnLoaded(Consumer<PagedTableLoader<T>> onLoaded) {
+        this.onLoaded = onLoaded;
+    }
+
+    public void setOnError(Consumer<Throwable> onError) {
+        this.onError = onError;
+    }
+
+    // ================== FILTER ==================
+    /**
+     * Apply a new filter. Search-text-only changes are debounced; status and
+     * date changes apply at once.
+     */
+    public void setFilter(BookingFilter newFilter) {
+        BookingFilter previous = filter;
+        filter = newFilter != null ? newFilter : BookingFilter.NONE;
+        boolean searchOnly = Objects.equals(previous.status(), filter.status())
+                && Objects.equals(previous.date(), filter.date());
+
+        if (localMode) {
+            if (searchOnly) {
+                localFilter.setQuery(filter.search());
+            } else {
+                localFilter.setCriteria(filter.search(), predicateFor(filter));
+                localFilter.applyNow();
+            }
+        } else if (searchOnly) {
+            searchDebouncer.trigger();
+        } else {
+            searchDebouncer.cancel();
+            reload();
+        }
+    }
+
+    /** Same instance while status/date are unchanged so the FilterEngine can narrow. */
+    private Predicate<T> predicateFor(BookingFilter f) {
+        if (localPredicate == null || !Objects.equals(localPredicateFilter.status(), f.status())
+                || !Objects.equals(localPredicateFilter.date(), f.date())) {
+            BookingFilter criteria = new BookingFilter(null, f.status(), f.date());
+            localPredicate = row -> localMatcher.test(row, criteria);
+            localPredicateFilter = criteria;
+        }
+        return localPredicate;
+    }
+
+    // ================== LOADING ==================
+    /**
+     * Re-read from the database with the current filter, dropping the current rows.
+     */
+    public void reload() {
+        long expected = ++generation;
+        loading = true;
+        BookingFilter query = filter;
+        boolean tryLocal = localFilter != null;
+        tasks.submit(() -> {
+            try (Connection conn = DatabaseHelper.getConnection()) {
+                if (tryLocal && pager.count(conn, BookingFilter.NONE) <= maxRows) {
+                    return new Loaded<>(true, pager.first(conn, BookingFilter.NONE, maxRows), 0);
+                }
+                KeysetPager.Page<T> page = pager.first(conn, query);
+                return new Loaded<>(false, page, pager.count(conn, query));
+            }
+        }, loaded -> {
+            if (expected != generation) return;
+            loading = false;
+            keys.clear();
+            moreBefore = false;
+            localMode = loaded.local();
+            if (localMode) {
+                moreAfter = false;
+                localFilter.setCriteria(filter.search(), predicateFor(filter));
+                localFilter.setSource(loaded.page().rows()); // publishes and fires onLoaded
+            } else {
+                totalRows = loaded.count();
+                keys.addAll(loaded.page().keys());
+                window.setAll(loaded.page().rows());
+                moreAfter = loaded.page().hasMore();
+                fireLoaded();
+            }
+            table.scrollTo(0);
+        }, e -> {
+            if (expected == generation) loading = false;
+            if (onError != null) onError.accept(e);
+        });
+    }
+
+    private record Loaded<T>(boolean local, KeysetPager.Page<T> page, long count) {
+    }
+
+    private void loadNext() {
+        if (loading || localMode || !moreAfter || keys.isEmpty()) return;
+        Object[] tailKey = keys.get(keys.size() - 1);
+        loadPage(conn -> pager.after(conn, filter, tailKey), true);
+    }
+
+    private void loadPrevious() {
+        if (loading || localMode || !moreBefore || keys.isEmpty()) return;
+        Object[] headKey = keys.get(0);
+        loadPage(conn -> pager.before(conn, filter, headKey), false);
+    }
+
+    @FunctionalInterface
+    private interface PageQuery<T> {
+        KeysetPager.Page<T> fetch(Connection conn) throws Exception;
+    }
+
+    private void loadPage(PageQuery<T> query, boolean append) {
+        long expected = generation;
+        loading = true;
+        tasks.submit(() -> {
+            try (Connection conn = DatabaseHelper.getConnection()) {
+                return query.fetch(conn);
+            }
+        }, page -> {
+            if (expected != generation) return;
+            loading = false;
+            if (append) {
+                appendPage(page);
+            } else {
+                prependPage(page);
+            }
+            fireLoaded();
+        }, e -> {
+            if (expected == generation) loading = false;
+            if (onError != null) onError.accept(e);
+        });
+    }
+
+    private void appendPage(KeysetPager.Page<T> page) {
+        moreAfter = page.hasMore();
+        window.addAll(page.rows());
+        keys.addAll(page.keys());
+
+        int excess = window.size() - maxRows;
+        if (excess > 0) {
+            window.remove(0, excess);
+            keys.subList(0, excess).clear();
+            moreBefore = true;
+            // keep the rows the user was looking at in view after the shift
+            table.scrollTo(Math.max(0, window.size() - page.rows().size() - visibleRowEstimate()));
+        }
+    }
+
+    private void prependPage(KeysetPager.Page<T> page) {
+        moreBefore = page.hasMore();
+        window.addAll(0, page.rows());
+        keys.addAll(0, page.keys());
+
+        int excess = window.size() - maxRows;
+        if (excess > 0) {
+            window.remove(window.size() - excess, window.size());
+            keys.subList(keys.size() - excess, keys.size()).clear();
+            moreAfter = true;
+        }
+        table.scrollTo(page.rows().size());
+    }
+
+    private void fireLoaded() {
+        attachScrollBar(); // the scroll bar may only exist after the first layout pass
+        if (onLoaded != null) onLoaded.accept(this);
+    }
+
+    // ================== SCROLLING ==================
+    private void attachScrollBar() {
+        for (Node node : table.lookupAll(".scroll-bar")) {
+            if (node instanceof ScrollBar bar && bar.getOrientation() == Orientation.VERTICAL
+                    && !bar.getProperties().containsKey(PagedTableLoader.class)) {
+                bar.getProperties().put(PagedTableLoader.class, Boolean.TRUE);
+                bar.valueProperty().addListener((obs, oldValue, newValue) -> onScroll(bar, newValue.doubleValue()));
+            }
+        }
+    }
+
+    private void onScroll(ScrollBar bar, double value) {
+        double range = bar.getMax() - bar.getMin();
+        if (range <= 0) return;
+        double position = (value - bar.getMin()) / range;
+        if (position > 0.9) {
+            loadNext();
+        } else if (position < 0.1) {
+            loadPrevious();
+        }
+    }
+
+    private int visibleRowEstimate() {
+        double cellSize = table.getFixedCellSize() > 0 ? table.getFixedCellSize() : 24;
+        return Math.max(1, (int) (table.getHeight() / cellSize) - 1);
+    }
+
+    // ================== STATE ==================
+    public ObservableList<T> getRows() { return window; }
+
+    /** Rows matching the current filter in the database, not just those loaded. */
+    public long getTotalRows() { return totalRows; }
+
+    public BookingFilter getFilter() { return filter; }
+
+    /** True when every matching row is currently in memory. */
+    public boolean isComplete() { return !moreBefore && !moreAfter; }
+
+    /** True while filters are being applied in memory rather than by the database. */
+    public boolean isLocalMode() { return localMode; }
+}
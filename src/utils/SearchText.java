@@ -0,0 +1,18 @@
+package utils;
+
+import java.util.Locale;
+
+/**
+ * Normalization shared by row search keys and the text typed into search
+ * boxes. Free of JavaFX, so models and services can use it headless.
+ */
+public final class SearchText {
+
+    private SearchText() {
+    }
+
+    /** Trimmed and lowercased; null becomes "". */
+    public static String normalize(String text) {
+        return text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,118 @@
+package utils;
+
+import javafx.scene.Scene;
+
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * When the application reached each startup milestone, in milliseconds since
+ * the JVM process started, plus how long each background warm-up step took.
+ * Each phase is recorded once; later marks are ignored, so logging out and in
+ * again does not move "dashboard ready".
+ */
+public final class StartupTimeline {
+
+    public enum Phase {
+        MAIN("JVM start -> launch"),
+        FIRST_FRAME("first frame"),
+        LOGIN_READY("login ready"),
+        LOGIN_SUBMITTED("login submitted"),
+        DASHBOARD_READY("dashboard ready");
+
+        private final String label;
+
+        Phase(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private static final StartupTimeline INSTANCE = new StartupTimeline(jvmStartMillis(), System::currentTimeMillis);
+
+    private final long jvmStart;
+    private final LongSupplier clock;
+    private final Map<Phase, Long> marks = new EnumMap<>(Phase.class);
+    private final Map<String, Long> steps = new LinkedHashMap<>();
+
+    public StartupTimeline(long jvmStartMillis, LongSupplier clock) {
+        this.jvmStart = jvmStartMillis;
+        this.clock = clock;
+    }
+
+    public static StartupTimeline get() {
+        return INSTANCE;
+    }
+
+    /** Record the phase now; returns false if it was already recorded. */
+    public synchronized boolean mark(Phase phase) {
+        if (marks.containsKey(phase)) return false;
+        marks.put(phase, clock.getAsLong() - jvmStart);
+        return true;
+    }
+
+    /** Milliseconds from JVM start to the phase, or -1 if it has not happened. */
+    public synchronized long elapsed(Phase phase) {
+        return marks.getOrDefault(phase, -1L);
+    }
+
+    public synchronized void recordStep(String name, long millis) {
+        steps.put(name, millis);
+    }
+
+    /**
+     * Record the phase once the scene has been laid out for its next frame.
+     * onFirst runs only if that was the first time the phase was recorded.
+     */
+    public void markOnNextFrame(Scene scene, Phase phase, Runnable onFirst) {
+        Runnable[] listener = new Runnable[1];
+        listener[0] = () -> {
+            scene.removePostLayoutPulseListener(listener[0]);
+            if (mark(phase) && onFirst != null) onFirst.run();
+        };
+        scene.addPostLayoutPulseListener(listener[0]);
+    }
+
+    // ================== REPORT ==================
+    public synchronized String report() {
+        StringBuilder sb = new StringBuilder("Startup timeline (ms since JVM start):\n");
+        Long submitted = marks.get(Phase.LOGIN_SUBMITTED);
+        long previous = 0;
+        for (Phase phase : Phase.values()) {
+            Long at = marks.get(phase);
+            if (phase == Phase.LOGIN_SUBMITTED) continue; // shown with dashboard ready
+            if (at == null) {
+                sb.append(String.format(Locale.ROOT, "  %-22s %7s%n", phase.getLabel(), "-"));
+                continue;
+            }
+            String note;
+            if (phase == Phase.DASHBOARD_READY && submitted != null) {
+                note = (at - submitted) + " after login was submitted";
+            } else {
+                note = "+" + (at - previous);
+            }
+            sb.append(String.format(Locale.ROOT, "  %-22s %7d   (%s)%n", phase.getLabel(), at, note));
+            previous = at;
+        }
+        if (!steps.isEmpty()) {
+            StringBuilder warmUp = new StringBuilder();
+            steps.forEach((name, millis) -> warmUp.append(warmUp.length() == 0 ? "" : ", ")
+                    .append(name).append(' ').append(millis).append(" ms"));
+            sb.append("  warm-up: ").append(warmUp).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static long jvmStartMillis() {
+        return ProcessHandle.current().info().startInstant()
+                .map(Instant::toEpochMilli)
+                .orElse(System.currentTimeMillis());
+    }
+}
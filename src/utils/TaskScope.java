@@ -0,0 +1,204 @@
+package utils;
+
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyBooleanWrapper;
+import javafx.concurrent.Task;
+import javafx.concurrent.Worker;
+import javafx.scene.Cursor;
+import javafx.scene.Node;
+import javafx.scene.Scene;
+import javafx.stage.Window;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
+
+/**
+ * Runs database work for one screen on {@link DbExecutor} as JavaFX Tasks.
+ *
+ * Success and error callbacks are delivered on the FX Application Thread.
+ * While any task is running the screen shows a wait cursor, and once the
+ * screen's window is replaced (user navigates away) all outstanding reads are
+ * cancelled so their results are never applied to a dead scene graph. Writes
+ * submitted with {@link #submitWrite} or {@link #runWrite} are never cancelled:
+ * a save started just before navigating still runs, and its callbacks still
+ * run, so a callback that navigates must check the screen is still shown.
+ * Resources registered with {@link #closeWithScreen} are closed at the same time.
+ * All methods must be called from the FX Application Thread.
+ */
+public class TaskScope {
+
+    /** Blocking work without a result. */
+    @FunctionalInterface
+    public interface Action {
+        void run() throws Exception;
+    }
+
+    private final Set<Task<?>> running = new HashSet<>();
+    private final Set<Task<?>> writes = new HashSet<>();
+    private final List<AutoCloseable> resources = new ArrayList<>();
+    private final ReadOnlyBooleanWrapper busy = new ReadOnlyBooleanWrapper(false);
+    private Node owner;
+    private Window watchedWindow;
+
+    /**
+     * Attach to any node of the screen; used for the wait cursor and to detect
+     * navigation. Safe to call from initialize() before the node has a scene.
+     */
+    public void bindTo(Node node) {
+        this.owner = node;
+        node.sceneProperty().addListener((obs, oldScene, newScene) -> {
+            if (oldScene != null && newScene == null) {
+                cancelAll();
+            } else if (newScene != null) {
+                watchWindow(newScene);
+            }
+        });
+        if (node.getScene() != null) {
+            watchWindow(node.getScene());
+        }
+        busy.addListener((obs, wasBusy, isBusy) -> updateCursor(isBusy));
+    }
+
+    private void watchWindow(Scene scene) {
+        // Navigation replaces the stage's scene, which detaches this scene from its window.
+        scene.windowProperty().addListener((obs, oldWindow, newWindow) -> {
+            if (oldWindow != null && newWindow == null) {
+                cancelAll();
+            } else if (newWindow != null) {
+                watchShowing(newWindow);
+            }
+        });
+        if (scene.getWindow() != null) {
+            watchShowing(scene.getWindow());
+        }
+    }
+
+    private void watchShowing(Window window) {
+        // A cached screen returns to the same window; one listener per window is enough.
+        if (window == watchedWindow) return;
+        watchedWindow = window;
+        // Dialog stages are closed rather than having their scene replaced.
+        window.showingProperty().addListener((obs, wasShowing, isShowing) -> {
+            if (wasShowing && !isShowing) {
+                cancelAll();
+            }
+        });
+    }
+
+    // ================== SUBMIT ==================
+    public <T> Task<T> submit(Callable<T> work, Consumer<T> onSuccess, Consumer<Throwable> onError) {
+        Task<T> task = new Task<>() {
+            @Override
+            protected T call() throws Exception {
+                return work.call();
+            }
+        };
+        return submit(task, onSuccess, onError);
+    }
+
+    public Task<Void> run(Action work, Runnable onSuccess, Consumer<Throwable> onError) {
+        return submit(() -> {
+            work.run();
+            return null;
+        }, ignored -> {
+            if (onSuccess != null) onSuccess.run();
+        }, onError);
+    }
+
+    /** An INSERT/UPDATE/DELETE: not cancelled when the screen goes away. */
+    public <T> Task<T> submitWrite(Callable<T> work, Consumer<T> onSuccess, Consumer<Throwable> onError) {
+        Task<T> task = new Task<>() {
+            @Override
+            protected T call() throws Exception {
+                return work.call();
+            }
+        };
+        writes.add(task);
+        return submit(task, onSuccess, onError);
+    }
+
+    /** A write without a result; see {@link #submitWrite}. */
+    public Task<Void> runWrite(Action work, Runnable onSuccess, Consumer<Throwable> onError) {
+        return submitWrite(() -> {
+            work.run();
+            return null;
+        }, ignored -> {
+            if (onSuccess != null) onSuccess.run();
+        }, onError);
+    }
+
+    /**
+     * Submit a prepared Task, e.g. one that reports progress with updateProgress().
+     */
+    public <T> Task<T> submit(Task<T> task, Consumer<T> onSuccess, Consumer<Throwable> onError) {
+        running.add(task);
+        busy.set(true);
+
+        task.setOnSucceeded(e -> {
+            finished(task);
+            if (onSuccess != null) onSuccess.accept(task.getValue());
+        });
+        task.setOnFailed(e -> {
+            finished(task);
+            Throwable error = task.getException();
+            if (onError != null) {
+                onError.accept(error);
+            } else if (error != null) {
+                error.printStackTrace();
+            }
+        });
+        task.setOnCancelled(e -> finished(task));
+
+        DbExecutor.get().execute(task);
+        return task;
+    }
+
+    private void finished(Task<?> task) {
+        running.remove(task);
+        writes.remove(task);
+        busy.set(!running.isEmpty());
+    }
+
+    // ================== CANCELLATION ==================
+    /** Cancel outstanding reads; writes keep running to completion. */
+    public void cancelAll() {
+        for (Task<?> task : new ArrayList<>(running)) {
+            if (writes.contains(task)) continue;
+            if (task.getState() != Worker.State.SUCCEEDED && task.getState() != Worker.State.FAILED) {
+                task.cancel(false); // let in-flight JDBC finish cleanly; its result is discarded
+            }
+        }
+        running.retainAll(writes);
+        busy.set(!running.isEmpty());
+        for (AutoCloseable resource : resources) {
+            try {
+                resource.close();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+        resources.clear();
+    }
+
+    /** Close a resource, e.g. an event subscription, when the screen goes away. */
+    public void closeWithScreen(AutoCloseable resource) {
+        resources.add(resource);
+    }
+
+    public ReadOnlyBooleanProperty busyProperty() {
+        return busy.getReadOnlyProperty();
+    }
+
+    public boolean isBusy() {
+        return busy.get();
+    }
+
+    private void updateCursor(boolean isBusy) {
+        if (owner == null || owner.getScene() == null) return;
+        owner.getScene().setCursor(isBusy ? Cursor.WAIT : Cursor.DEFAULT);
+    }
+}
@@ -0,0 +1,232 @@
+package vitals;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.LongStream;
+
+/**
+ * Incremental anomaly detection over each patient's vitals.
+ *
+ * Every patient keeps one {@link MetricBaseline} per metric, so state is
+ * constant-size however long the history. Each new reading is judged against
+ * the absolute limits of its {@link Metric}, against the patient's baseline
+ * as it stood before the reading (deviation), and against the previous
+ * reading (rapid change); then the baseline is updated.
+ *
+ * The engine listens to {@link VitalsStore}: a patient's state is built by
+ * replaying their series the first time it is asked for and then kept current
+ * as readings are recorded. The least recently used states are dropped beyond
+ * maxPatients (by default -Dtelehealth.vitals.maxSeries, like the store) and
+ * are replayed again when next asked for.
+ */
+public class AnomalyEngine implements Consumer<VitalsReading> {
+
+    /** Readings needed before deviation from the baseline is flagged. */
+    static final int MIN_BASELINE = 5;
+    /** Standard deviations from the baseline that count as a deviation. */
+    static final double DEVIATION_Z = 3.0;
+    /** Only consecutive readings this close together are compared for rapid change. */
+    static final long RAPID_WINDOW_MS = 24 * 3_600_000L;
+
+    private static final AnomalyEngine INSTANCE = new AnomalyEngine(VitalsStore.getInstance(),
+            Integer.getInteger("telehealth.vitals.maxSeries", 1000));
+
+    static {
+        VitalsStore.getInstance().addListener(INSTANCE);
+    }
+
+    private final VitalsStore store;
+    private final Object lock = new Object();
+    private final Map<Integer, PatientState> patients; // guarded by lock
+    private final List<Consumer<VitalsAssessment>> listeners = new CopyOnWriteArrayList<>();
+
+    public AnomalyEngine(VitalsStore store) {
+        this(store, 1000);
+    }
+
+    public AnomalyEngine(VitalsStore store, int maxPatients) {
+        this.store = store;
+        this.patients = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, PatientState> eldest) {
+                return size() > maxPatients;
+            }
+        };
+    }
+
+    public static AnomalyEngine getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * The assessment of the patient's latest reading, replaying their history
+     * on first use. Null if they have no vitals. Call from a background thread.
+     */
+    public VitalsAssessment assessment(int userId) throws SQLException {
+        PatientState state;
+        synchronized (lock) {
+            state = patients.computeIfAbsent(userId, PatientState::new);
+        }
+        if (!state.isReplayed()) {
+            state.replay(store.series(userId));
+        }
+        return state.latest();
+    }
+
+    /** The assessment if the patient's state is already built, otherwise null; never loads. */
+    public VitalsAssessment cachedAssessment(int userId) {
+        PatientState state = state(userId);
+        return state != null && state.isReplayed() ? state.latest() : null;
+    }
+
+    /**
+     * A reading was recorded. Patients not yet replayed pick it up from their
+     * series later; their listeners get an assessment against the absolute limits.
+     */
+    @Override
+    public void accept(VitalsReading reading) {
+        PatientState state = state(reading.userId());
+        VitalsAssessment assessment = state != null ? state.observe(reading) : VitalsAssessment.absolute(reading);
+        if (assessment == null) {
+            return; // already part of the replay
+        }
+        for (Consumer<VitalsAssessment> listener : listeners) {
+            try {
+                listener.accept(assessment);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Assess a new reading and fold it into the baseline. Null if the patient
+     * is not tracked or the reading was part of the replay.
+     */
+    public VitalsAssessment observe(VitalsReading reading) {
+        PatientState state = state(reading.userId());
+        return state != null ? state.observe(reading) : null;
+    }
+
+    /** Called with the assessment of every recorded reading, on the recording thread. */
+    public void addAssessmentListener(Consumer<VitalsAssessment> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeAssessmentListener(Consumer<VitalsAssessment> listener) {
+        listeners.remove(listener);
+    }
+
+    /** Forget a patient, e.g. after their vitals were edited or deleted. */
+    public void invalidate(int userId) {
+        synchronized (lock) {
+            patients.remove(userId);
+        }
+    }
+
+    public int trackedPatientCount() {
+        synchronized (lock) {
+            return patients.size();
+        }
+    }
+
+    private PatientState state(int userId) {
+        synchronized (lock) {
+            return patients.get(userId);
+        }
+    }
+
+    // ================== EVALUATION ==================
+    /** Judge one value against the absolute limits and the baseline before it. */
+    static MetricFinding evaluate(Metric metric, float value, long recordedAt, MetricBaseline baseline) {
+        VitalStatus status = metric.classify(value);
+        if (baseline.getCount() == 0) {
+            return MetricFinding.absolute(metric, value);
+        }
+
+        double change = value - baseline.getLast();
+        double perHour = baseline.changePerHour(value, recordedAt);
+        boolean recent = recordedAt >= baseline.getLastAt() && recordedAt - baseline.getLastAt() <= RAPID_WINDOW_MS;
+        boolean rapid = recent && Math.abs(change) >= metric.getRapidChange();
+
+        double mean = Double.NaN;
+        double z = Double.NaN;
+        boolean deviation = false;
+        if (baseline.getCount() >= MIN_BASELINE) {
+            mean = baseline.getMean();
+            // A very steady baseline would make any wobble look extreme
+            z = baseline.zScore(value, metric.getRapidChange() / 5);
+            deviation = Math.abs(z) >= DEVIATION_Z;
+        }
+        return new MetricFinding(metric, value, status, mean, z, change, perHour, deviation, rapid);
+    }
+
+    /** One patient's baselines and latest assessment, guarded by its own monitor. */
+    private static final class PatientState {
+        private final int userId;
+        private final MetricBaseline[] baselines = new MetricBaseline[Metric.values().length];
+        private boolean replayed;
+        private long[] replayedIds = new long[0]; // sorted; ids commit out of order, so a lower id may still be new
+        private VitalsAssessment latest;
+
+        PatientState(int userId) {
+            this.userId = userId;
+            for (int i = 0; i < baselines.length; i++) {
+                baselines[i] = new MetricBaseline();
+            }
+        }
+
+        synchronized boolean isReplayed() {
+            return replayed;
+        }
+
+        synchronized void replay(VitalsSeries series) {
+            if (replayed) return;
+            LongStream.Builder ids = LongStream.builder();
+            series.forEach(reading -> {
+                apply(reading);
+                ids.add(reading.vitalsId());
+            });
+            replayedIds = ids.build().sorted().toArray();
+            replayed = true;
+        }
+
+        synchronized VitalsAssessment observe(VitalsReading reading) {
+            // Before the replay the series already holds this reading, so the
+            // baseline will include it; judge it on the absolute limits for now.
+            if (!replayed) {
+                return VitalsAssessment.absolute(reading);
+            }
+            if (Arrays.binarySearch(replayedIds, reading.vitalsId()) >= 0) {
+                return null; // part of the replay
+            }
+            return apply(reading);
+        }
+
+        synchronized VitalsAssessment latest() {
+            return latest;
+        }
+
+        private VitalsAssessment apply(VitalsReading reading) {
+            Map<Metric, MetricFinding> findings = new EnumMap<>(Metric.class);
+            for (Metric metric : Metric.values()) {
+                if (!reading.has(metric)) continue;
+                float value = reading.value(metric);
+                MetricBaseline baseline = baselines[metric.ordinal()];
+                findings.put(metric, evaluate(metric, value, reading.recordedAt(), baseline));
+                baseline.update(value, reading.recordedAt());
+            }
+            VitalsAssessment assessment = new VitalsAssessment(userId, reading.vitalsId(), reading.recordedAt(), findings);
+            if (latest == null || reading.recordedAt() >= latest.recordedAt()) {
+                latest = assessment; // a late reading updates the baseline but is not the latest
+            }
+            return assessment;
+        }
+    }
+}
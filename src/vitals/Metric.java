@@ -0,0 +1,68 @@
+package vitals;
+
+/**
+ * A vital sign tracked as a time series. Blood pressure is split into its
+ * systolic and diastolic parts so each can be plotted and aggregated.
+ *
+ * Each metric carries its absolute limits (NaN where a side has none) and the
+ * change between consecutive readings that counts as rapid.
+ */
+public enum Metric {
+    // label, unit, normal, low, high, critical low, critical high, rapid change
+    PULSE("Pulse", "bpm", 75, 60, 100, 40, 130, 30),
+    TEMPERATURE("Temperature", "°C", 37, 36, 37.5f, 35, 39.5f, 1.5f),
+    RESPIRATION("Respiration", "breaths/min", 16, 12, 20, 8, 30, 8),
+    OXYGEN("Oxygen", "%", 98, 95, Float.NaN, 90, Float.NaN, 5),
+    SYSTOLIC("Systolic BP", "mmHg", 120, 90, 140, 80, 180, 30),
+    DIASTOLIC("Diastolic BP", "mmHg", 80, 60, 90, 50, 120, 20),
+    WEIGHT("Weight", "kg", Float.NaN, Float.NaN, Float.NaN, Float.NaN, Float.NaN, 3);
+
+    private final String label;
+    private final String unit;
+    private final float normal;
+    private final float low;
+    private final float high;
+    private final float criticalLow;
+    private final float criticalHigh;
+    private final float rapidChange;
+
+    Metric(String label, String unit, float normal, float low, float high,
+           float criticalLow, float criticalHigh, float rapidChange) {
+        this.label = label;
+        this.unit = unit;
+        this.normal = normal;
+        this.low = low;
+        this.high = high;
+        this.criticalLow = criticalLow;
+        this.criticalHigh = criticalHigh;
+        this.rapidChange = rapidChange;
+    }
+
+    public String getLabel() { return label; }
+    public String getUnit() { return unit; }
+
+    /** Typical adult value, or NaN if there is none. */
+    public float getNormal() { return normal; }
+
+    public float getLow() { return low; }
+    public float getHigh() { return high; }
+    public float getCriticalLow() { return criticalLow; }
+    public float getCriticalHigh() { return criticalHigh; }
+
+    /** Change from the previous reading that is flagged as rapid. */
+    public float getRapidChange() { return rapidChange; }
+
+    /** Where a value falls against the absolute limits (NaN comparisons are false). */
+    public VitalStatus classify(double value) {
+        if (value < criticalLow) return VitalStatus.CRITICAL_LOW;
+        if (value > criticalHigh) return VitalStatus.CRITICAL_HIGH;
+        if (value < low) return VitalStatus.LOW;
+        if (value > high) return VitalStatus.HIGH;
+        return VitalStatus.NORMAL;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
@@ -0,0 +1,53 @@
+package vitals;
+
+/**
+ * Running statistics of one metric for one patient in constant memory:
+ * an exponentially weighted mean and variance (the patient's recent "usual"
+ * value and spread) plus the previous reading for rate of change.
+ *
+ * The first readings are weighted 1/n so the baseline starts as a plain
+ * average instead of being biased towards the very first value.
+ * Not thread-safe; {@link AnomalyEngine} guards each patient's state.
+ */
+public class MetricBaseline {
+
+    /** Weight of a new reading once warmed up; roughly the last 20 readings count. */
+    static final double ALPHA = 0.1;
+
+    private long count;
+    private double mean;
+    private double variance;
+    private double last = Double.NaN;
+    private long lastAt;
+
+    public void update(double value, long recordedAt) {
+        if (Double.isNaN(value)) return;
+        count++;
+        double alpha = Math.max(ALPHA, 1.0 / count);
+        double delta = value - mean;
+        mean += alpha * delta;
+        variance = (1 - alpha) * (variance + alpha * delta * delta);
+        if (count == 1 || recordedAt >= lastAt) { // a late reading is not the previous one
+            last = value;
+            lastAt = recordedAt;
+        }
+    }
+
+    public long getCount() { return count; }
+    public double getMean() { return count == 0 ? Double.NaN : mean; }
+    public double getStdDev() { return Math.sqrt(variance); }
+    public double getLast() { return last; }
+    public long getLastAt() { return lastAt; }
+
+    /** Standard deviations from the baseline, never dividing by less than minSpread. */
+    public double zScore(double value, double minSpread) {
+        if (count == 0) return 0;
+        return (value - mean) / Math.max(getStdDev(), minSpread);
+    }
+
+    /** Units per hour since the previous reading, or NaN if there is none. */
+    public double changePerHour(double value, long recordedAt) {
+        if (Double.isNaN(last) || recordedAt <= lastAt) return Double.NaN;
+        return (value - last) / ((recordedAt - lastAt) / 3_600_000.0);
+    }
+}
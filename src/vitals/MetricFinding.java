@@ -0,0 +1,42 @@
+package vitals;
+
+/**
+ * How one value of a reading compares with the absolute limits and with the
+ * patient's own baseline just before it was recorded.
+ *
+ * baseline and zScore are NaN until the patient has enough history;
+ * change is the difference from the previous reading (NaN for the first).
+ */
+public record MetricFinding(Metric metric, float value, VitalStatus status,
+                            double baseline, double zScore, double change, double changePerHour,
+                            boolean deviation, boolean rapidChange) {
+
+    /** Only the absolute limits, for readings without a baseline. */
+    public static MetricFinding absolute(Metric metric, float value) {
+        return new MetricFinding(metric, value, metric.classify(value),
+                Double.NaN, Double.NaN, Double.NaN, Double.NaN, false, false);
+    }
+
+    public boolean isAlert() {
+        return status.isAbnormal() || deviation || rapidChange;
+    }
+
+    /** e.g. "Pulse 118 bpm: High Alert, above usual 74, up 40 since last reading". */
+    public String describe() {
+        StringBuilder text = new StringBuilder(metric.getLabel()).append(' ')
+                .append(format(value)).append(' ').append(metric.getUnit())
+                .append(": ").append(status.getLabel());
+        if (deviation) {
+            text.append(zScore > 0 ? ", above usual " : ", below usual ").append(format(baseline));
+        }
+        if (rapidChange) {
+            text.append(change > 0 ? ", up " : ", down ").append(format(Math.abs(change)))
+                    .append(" since last reading");
+        }
+        return text.toString();
+    }
+
+    static String format(double value) {
+        return value == Math.rint(value) ? String.valueOf((long) value) : String.format("%.1f", value);
+    }
+}
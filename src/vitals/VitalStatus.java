@@ -0,0 +1,41 @@
+package vitals;
+
+/**
+ * A reading against the absolute limits of its {@link Metric}.
+ */
+public enum VitalStatus {
+    NORMAL("Normal"),
+    LOW("Low Alert"),
+    HIGH("High Alert"),
+    CRITICAL_LOW("Critical Low"),
+    CRITICAL_HIGH("Critical High");
+
+    private final String label;
+
+    VitalStatus(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() { return label; }
+
+    public boolean isCritical() {
+        return this == CRITICAL_LOW || this == CRITICAL_HIGH;
+    }
+
+    public boolean isAbnormal() {
+        return this != NORMAL;
+    }
+
+    /** The more serious of two statuses. */
+    public static VitalStatus worst(VitalStatus a, VitalStatus b) {
+        return rank(b) > rank(a) ? b : a;
+    }
+
+    private static int rank(VitalStatus status) {
+        return switch (status) {
+            case NORMAL -> 0;
+            case LOW, HIGH -> 1;
+            case CRITICAL_LOW, CRITICAL_HIGH -> 2;
+        };
+    }
+}
@@ -0,0 +1,71 @@
+package vitals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The findings for a patient's latest reading. Produced by
+ * {@link AnomalyEngine} and read as-is by reports, the vitals chart and
+ * alerting, so all of them agree on what is abnormal.
+ */
+public record VitalsAssessment(int userId, long vitalsId, long recordedAt, Map<Metric, MetricFinding> findings) {
+
+    public VitalsAssessment {
+        findings = Collections.unmodifiableMap(findings.isEmpty()
+                ? new EnumMap<>(Metric.class) : new EnumMap<>(findings));
+    }
+
+    /** Judge a single reading against the absolute limits only. */
+    public static VitalsAssessment absolute(VitalsReading reading) {
+        Map<Metric, MetricFinding> findings = new EnumMap<>(Metric.class);
+        for (Metric metric : Metric.values()) {
+            if (reading.has(metric)) {
+                findings.put(metric, MetricFinding.absolute(metric, reading.value(metric)));
+            }
+        }
+        return new VitalsAssessment(reading.userId(), reading.vitalsId(), reading.recordedAt(), findings);
+    }
+
+    /** The finding for a metric, or null if it was not recorded. */
+    public MetricFinding finding(Metric metric) {
+        return findings.get(metric);
+    }
+
+    public VitalStatus status(Metric metric) {
+        MetricFinding finding = findings.get(metric);
+        return finding != null ? finding.status() : VitalStatus.NORMAL;
+    }
+
+    /** Systolic and diastolic combined into one blood pressure status. */
+    public VitalStatus bloodPressureStatus() {
+        return VitalStatus.worst(status(Metric.SYSTOLIC), status(Metric.DIASTOLIC));
+    }
+
+    public VitalStatus worstStatus() {
+        VitalStatus worst = VitalStatus.NORMAL;
+        for (MetricFinding finding : findings.values()) {
+            worst = VitalStatus.worst(worst, finding.status());
+        }
+        return worst;
+    }
+
+    public boolean isCritical() {
+        return worstStatus().isCritical();
+    }
+
+    public boolean hasAlerts() {
+        return findings.values().stream().anyMatch(MetricFinding::isAlert);
+    }
+
+    /** Findings that are out of range, off the patient's baseline or changing fast. */
+    public List<MetricFinding> alerts() {
+        List<MetricFinding> alerts = new ArrayList<>();
+        for (MetricFinding finding : findings.values()) {
+            if (finding.isAlert()) alerts.add(finding);
+        }
+        return alerts;
+    }
+}
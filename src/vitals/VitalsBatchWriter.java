@@ -0,0 +1,69 @@
+package vitals;
+
+import database.ConnectionPool;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Writes a batch of readings to vitals_records with one multi-row INSERT
+ * (one round trip, one commit) and returns the generated vitals_ids in order.
+ */
+public class VitalsBatchWriter {
+
+    static final String INSERT_PREFIX = "INSERT INTO vitals_records "
+            + "(user_id, pulse, temperature, respiration, blood_pressure, weight, height, oxygen, recorded_at) VALUES ";
+    private static final String ROW = "(?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final ConnectionPool.ConnectionFactory connections;
+
+    public VitalsBatchWriter(ConnectionPool.ConnectionFactory connections) {
+        this.connections = connections;
+    }
+
+    public long[] write(List<VitalsSubmission> batch) throws SQLException {
+        if (batch.isEmpty()) return new long[0];
+        String sql = INSERT_PREFIX + String.join(", ", Collections.nCopies(batch.size(), ROW));
+        long[] ids = new long[batch.size()];
+
+        try (Connection conn = connections.create();
+             PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            int i = 1;
+            for (VitalsSubmission s : batch) {
+                ps.setInt(i++, s.userId());
+                setInt(ps, i++, s.pulse());
+                ps.setBigDecimal(i++, s.temperature());
+                setInt(ps, i++, s.respiration());
+                ps.setString(i++, s.bloodPressure());
+                ps.setBigDecimal(i++, s.weight());
+                ps.setBigDecimal(i++, s.height());
+                ps.setBigDecimal(i++, s.oxygen());
+                ps.setTimestamp(i++, new Timestamp(s.recordedAt()));
+            }
+            ps.executeUpdate();
+
+            // MySQL returns consecutive keys for a multi-row insert, in row order
+            try (ResultSet keys = ps.getGeneratedKeys()) {
+                for (int row = 0; row < ids.length && keys.next(); row++) {
+                    ids[row] = keys.getLong(1);
+                }
+            }
+        }
+        return ids;
+    }
+
+    private static void setInt(PreparedStatement ps, int index, Integer value) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, Types.INTEGER);
+        } else {
+            ps.setInt(index, value);
+        }
+    }
+}
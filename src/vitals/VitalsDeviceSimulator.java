@@ -0,0 +1,146 @@
+package vitals;
+
+import utils.DbExecutor;
+import utils.LatencyHistogram;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Load generator for {@link VitalsIngestService}: simulates home devices that
+ * each send a few readings per request at a steady rate, then prints what the
+ * service accepted, throttled and how long requests took.
+ *
+ * Usage: VitalsDeviceSimulator [url] with -Dtelehealth.sim.devices,
+ * readingsPerSecond (per device), readingsPerRequest, durationSeconds and
+ * userIds (comma separated patient ids that exist in users).
+ */
+public class VitalsDeviceSimulator {
+
+    private final URI target;
+    private final int devices;
+    private final double readingsPerSecond;
+    private final int readingsPerRequest;
+    private final int durationSeconds;
+    private final int[] userIds;
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    private final LatencyHistogram requestLatency = new LatencyHistogram();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder throttledRequests = new LongAdder();
+    private final LongAdder failedRequests = new LongAdder();
+
+    public VitalsDeviceSimulator(URI target, int devices, double readingsPerSecond, int readingsPerRequest,
+                                 int durationSeconds, int[] userIds) {
+        this.target = target;
+        this.devices = devices;
+        this.readingsPerSecond = readingsPerSecond;
+        this.readingsPerRequest = readingsPerRequest;
+        this.durationSeconds = durationSeconds;
+        this.userIds = userIds;
+    }
+
+    public void run() throws InterruptedException {
+        ExecutorService executor = DbExecutor.newVirtualThreadExecutorOrNull();
+        if (executor == null) {
+            executor = DbExecutor.newBoundedExecutor("vitals-device", devices);
+        }
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(durationSeconds);
+        for (int d = 0; d < devices; d++) {
+            int userId = userIds[d % userIds.length];
+            executor.execute(() -> runDevice(userId, end));
+        }
+        executor.shutdown();
+        executor.awaitTermination(durationSeconds + 60L, TimeUnit.SECONDS);
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Sent %d readings in %.1fs (%.1f/s), accepted %d, throttled requests %d, failed requests %d%n",
+                sent.sum(), seconds, sent.sum() / seconds, accepted.sum(), throttledRequests.sum(), failedRequests.sum());
+        System.out.println("Request latency: " + requestLatency.summary());
+    }
+
+    private void runDevice(int userId, long endNanos) {
+        long pauseNanos = (long) (readingsPerRequest / readingsPerSecond * 1e9);
+        long next = System.nanoTime() + ThreadLocalRandom.current().nextLong(Math.max(1, pauseNanos)); // spread devices out
+        while (next < endNanos) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(Math.max(0, next - System.nanoTime()));
+                send(userId);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                failedRequests.increment();
+            }
+            next += pauseNanos;
+        }
+    }
+
+    private void send(int userId) throws Exception {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < readingsPerRequest; i++) {
+            lines.add(randomReading(userId));
+        }
+        HttpRequest request = HttpRequest.newBuilder(target)
+                .timeout(Duration.ofSeconds(30))
+                .POST(HttpRequest.BodyPublishers.ofString(String.join("\n", lines)))
+                .build();
+
+        long start = System.nanoTime();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        requestLatency.recordSince(start);
+        sent.add(lines.size());
+
+        if (response.statusCode() == 503 || count(response.body(), "throttled") > 0) {
+            throttledRequests.increment();
+        } else if (response.statusCode() != 202) {
+            failedRequests.increment();
+        }
+        accepted.add(count(response.body(), "accepted"));
+    }
+
+    private static long count(String body, String field) {
+        String key = "\"" + field + "\":";
+        int at = body.indexOf(key);
+        if (at < 0) return 0;
+        int from = at + key.length();
+        int to = from;
+        while (to < body.length() && Character.isDigit(body.charAt(to))) to++;
+        return to > from ? Long.parseLong(body.substring(from, to)) : 0;
+    }
+
+    private static String randomReading(int userId) {
+        ThreadLocalRandom r = ThreadLocalRandom.current();
+        return String.format(java.util.Locale.ROOT,
+                "{\"userId\":%d,\"pulse\":%d,\"temperature\":%.1f,\"respiration\":%d,"
+                        + "\"bloodPressure\":\"%d/%d\",\"oxygen\":%.1f,\"recordedAt\":%d}",
+                userId, 60 + r.nextInt(40), 36.2 + r.nextDouble(1.2), 12 + r.nextInt(8),
+                110 + r.nextInt(25), 70 + r.nextInt(15), 94 + r.nextDouble(5.9), System.currentTimeMillis());
+    }
+
+    public static void main(String[] args) throws Exception {
+        URI target = URI.create(args.length > 0 ? args[0] : "http://127.0.0.1:8085/vitals");
+        String[] ids = System.getProperty("telehealth.sim.userIds", "6,10").split(",");
+        int[] userIds = new int[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            userIds[i] = Integer.parseInt(ids[i].trim());
+        }
+        new VitalsDeviceSimulator(target,
+                Integer.getInteger("telehealth.sim.devices", 100),
+                Double.parseDouble(System.getProperty("telehealth.sim.readingsPerSecond", "2")),
+                Integer.getInteger("telehealth.sim.readingsPerRequest", 10),
+                Integer.getInteger("telehealth.sim.durationSeconds", 30),
+                userIds).run();
+    }
+}
@@ -0,0 +1,56 @@
+package vitals;
+
+/**
+ * Settings for {@link VitalsIngestService}. Every value can be overridden with
+ * a system property prefixed by "telehealth.ingest." (e.g. -Dtelehealth.ingest.port=9090).
+ */
+public class VitalsIngestConfig {
+
+    private String host = "127.0.0.1";   // local devices/gateways only
+    private int port = 8085;
+    private int queueCapacity = 10_000;  // readings buffered before senders are throttled
+    private int batchSize = 500;         // rows per multi-row INSERT
+    private long flushIntervalMs = 200;  // longest a reading waits for a batch to fill
+    private long offerTimeoutMs = 1_000; // how long a sender waits for queue space
+    private long reportIntervalMs = 10_000;
+
+    public static VitalsIngestConfig fromSystemProperties() {
+        VitalsIngestConfig config = new VitalsIngestConfig();
+        config.host = System.getProperty("telehealth.ingest.host", config.host);
+        config.port = Integer.getInteger("telehealth.ingest.port", config.port);
+        config.queueCapacity = Integer.getInteger("telehealth.ingest.queueCapacity", config.queueCapacity);
+        config.batchSize = Integer.getInteger("telehealth.ingest.batchSize", config.batchSize);
+        config.flushIntervalMs = Long.getLong("telehealth.ingest.flushIntervalMs", config.flushIntervalMs);
+        config.offerTimeoutMs = Long.getLong("telehealth.ingest.offerTimeoutMs", config.offerTimeoutMs);
+        config.reportIntervalMs = Long.getLong("telehealth.ingest.reportIntervalMs", config.reportIntervalMs);
+        config.validate();
+        return config;
+    }
+
+    public void validate() {
+        if (queueCapacity < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("queueCapacity and batchSize must be at least 1");
+        }
+        if (flushIntervalMs < 1 || offerTimeoutMs < 0) {
+            throw new IllegalArgumentException("flushIntervalMs must be positive and offerTimeoutMs not negative");
+        }
+    }
+
+    // Getters
+    public String getHost() { return host; }
+    public int getPort() { return port; }
+    public int getQueueCapacity() { return queueCapacity; }
+    public int getBatchSize() { return batchSize; }
+    public long getFlushIntervalMs() { return flushIntervalMs; }
+    public long getOfferTimeoutMs() { return offerTimeoutMs; }
+    public long getReportIntervalMs() { return reportIntervalMs; }
+
+    // Setters
+    public void setHost(String host) { this.host = host; }
+    public void setPort(int port) { this.port = port; }
+    public void setQueueCapacity(int queueCapacity) { this.queueCapacity = queueCapacity; }
+    public void setBatchSize(int batchSize) { this.batchSize = batchSize; }
+    public void setFlushIntervalMs(long flushIntervalMs) { this.flushIntervalMs = flushIntervalMs; }
+    public void setOfferTimeoutMs(long offerTimeoutMs) { this.offerTimeoutMs = offerTimeoutMs; }
+    public void setReportIntervalMs(long reportIntervalMs) { this.reportIntervalMs = reportIntervalMs; }
+}
@@ -0,0 +1,385 @@
+package vitals;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import database.DatabaseHelper;
+import database.ReferenceDataCache;
+import utils.DbExecutor;
+import utils.FlatJson;
+import utils.LatencyHistogram;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntPredicate;
+
+/**
+ * Headless service that accepts vitals from home devices and stores them in
+ * micro-batches.
+ *
+ * Devices POST JSON lines (one reading per line) to /vitals. Each line is
+ * checked with {@link VitalsValidator} and its userId against the known users,
+ * then put on a bounded queue; when the
+ * queue stays full for offerTimeoutMs the rest of the request is refused and
+ * the response lists those line numbers under "retry" with a Retry-After
+ * header, so senders back off and resend only those lines. The status is 503
+ * only if no line was accepted. A single flusher thread writes the queue with one
+ * multi-row INSERT per batchSize rows, or sooner once the oldest buffered
+ * reading has waited flushIntervalMs. If a batch is refused, its rows are
+ * retried one at a time so only the rows the database rejects are dropped
+ * (logged and counted as failed); the rest of the batch is still stored.
+ * GET /metrics reports ingest rate, queue depth and flush latency.
+ */
+public class VitalsIngestService implements AutoCloseable {
+
+    /** Where batches go; the database in production. Returns the generated vitals_ids. */
+    @FunctionalInterface
+    public interface BatchSink {
+        long[] write(List<VitalsSubmission> batch) throws SQLException;
+    }
+
+    /** Outcome of one request body; retryLines are the 1-based line numbers that were throttled. */
+    public record IngestResult(int accepted, int invalid, int throttled, List<String> errors, List<Integer> retryLines) {
+    }
+
+    /** Point-in-time counters for /metrics and the periodic log line. */
+    public record Metrics(long accepted, long invalid, long throttled, long written, long failed, long flushes,
+                          int queueDepth, int queueCapacity, double writtenPerSecond, String flushLatency) {
+        @Override
+        public String toString() {
+            return String.format("accepted=%d invalid=%d throttled=%d written=%d failed=%d flushes=%d "
+                            + "queue=%d/%d rate=%.1f rows/s flush[%s]",
+                    accepted, invalid, throttled, written, failed, flushes,
+                    queueDepth, queueCapacity, writtenPerSecond, flushLatency);
+        }
+    }
+
+    private static final int MAX_ERRORS_REPORTED = 10;
+
+    private final VitalsIngestConfig config;
+    private final BatchSink sink;
+    private final IntPredicate knownUser;
+    private final BlockingQueue<VitalsSubmission> queue;
+    private final LatencyHistogram flushLatency = new LatencyHistogram();
+    private final long startNanos = System.nanoTime();
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder invalid = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+
+    private volatile boolean running;
+    private Thread flusher;
+    private HttpServer server;
+    private ExecutorService httpExecutor;
+
+    /** Service accepting readings for any userId. */
+    public VitalsIngestService(VitalsIngestConfig config, BatchSink sink) {
+        this(config, sink, userId -> true);
+    }
+
+    /** Service refusing readings whose userId fails knownUser, before they are queued. */
+    public VitalsIngestService(VitalsIngestConfig config, BatchSink sink, IntPredicate knownUser) {
+        config.validate();
+        this.config = config;
+        this.sink = sink;
+        this.knownUser = knownUser;
+        this.queue = new ArrayBlockingQueue<>(config.getQueueCapacity());
+    }
+
+    /**
+     * Service writing to the application database, checking userIds against
+     * {@link ReferenceDataCache}. New accounts are seen once the cache reloads
+     * (telehealth.cache.ttlMs). If the lookup itself fails the reading is
+     * queued anyway and the insert decides.
+     */
+    public static VitalsIngestService withDatabase(VitalsIngestConfig config) {
+        return new VitalsIngestService(config, new VitalsBatchWriter(DatabaseHelper::getConnection)::write,
+                userId -> {
+                    try {
+                        return ReferenceDataCache.getInstance().findById(userId).isPresent();
+                    } catch (SQLException e) {
+                        return true;
+                    }
+                });
+    }
+
+    // ================== LIFECYCLE ==================
+    /** Start the flusher thread. */
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        flusher = new Thread(this::flushLoop, "vitals-flusher");
+        flusher.start();
+    }
+
+    /** Start the flusher and the HTTP listener on host:port. */
+    public synchronized void startHttp() throws IOException {
+        start();
+        server = HttpServer.create(new InetSocketAddress(config.getHost(), config.getPort()), 0);
+        httpExecutor = DbExecutor.newVirtualThreadExecutorOrNull();
+        if (httpExecutor == null) {
+            httpExecutor = DbExecutor.newBoundedExecutor("vitals-http", 32);
+        }
+        server.setExecutor(httpExecutor);
+        server.createContext("/vitals", this::handleVitals);
+        server.createContext("/metrics", this::handleMetrics);
+        server.start();
+    }
+
+    public int getPort() {
+        return server != null ? server.getAddress().getPort() : config.getPort();
+    }
+
+    /**
+     * Stop accepting, write everything still queued, then stop the flusher.
+     * An interrupt while waiting for the flusher is kept on the calling thread.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (server != null) {
+                server.stop(1);
+                httpExecutor.shutdown();
+                server = null;
+            }
+            running = false;
+        }
+        if (flusher != null) {
+            try {
+                flusher.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // ================== INGEST ==================
+    /**
+     * Queue one reading, waiting up to offerTimeoutMs for space.
+     * Returns false if the queue stayed full.
+     */
+    public boolean submit(VitalsSubmission submission) throws InterruptedException {
+        if (queue.offer(submission, config.getOfferTimeoutMs(), TimeUnit.MILLISECONDS)) {
+            accepted.increment();
+            return true;
+        }
+        throttled.increment();
+        return false;
+    }
+
+    /**
+     * Validate and queue every JSON line. Stops at the first line the queue
+     * has no room for; that line and the rest count as throttled.
+     */
+    public IngestResult ingest(Reader body) throws IOException, InterruptedException {
+        int ok = 0, bad = 0, refused = 0;
+        List<String> errors = new ArrayList<>();
+        List<Integer> retryLines = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(body);
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) continue;
+            if (refused > 0) {
+                refused++;
+                throttled.increment();
+                retryLines.add(lineNumber);
+                continue;
+            }
+            VitalsSubmission submission;
+            try {
+                submission = VitalsValidator.fromJson(FlatJson.parse(line), System.currentTimeMillis());
+                if (!knownUser.test(submission.userId())) {
+                    throw new IllegalArgumentException("unknown userId " + submission.userId());
+                }
+            } catch (IllegalArgumentException e) {
+                bad++;
+                invalid.increment();
+                if (errors.size() < MAX_ERRORS_REPORTED) {
+                    errors.add("line " + lineNumber + ": " + e.getMessage());
+                }
+                continue;
+            }
+            if (submit(submission)) {
+                ok++;
+            } else {
+                refused++;
+                retryLines.add(lineNumber);
+            }
+        }
+        return new IngestResult(ok, bad, refused, errors, retryLines);
+    }
+
+    // ================== FLUSHING ==================
+    private void flushLoop() {
+        List<VitalsSubmission> batch = new ArrayList<>(config.getBatchSize());
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos(config.getFlushIntervalMs());
+        while (running || !queue.isEmpty()) {
+            try {
+                VitalsSubmission first = queue.poll(config.getFlushIntervalMs(), TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                long deadline = System.nanoTime() + intervalNanos;
+                while (batch.size() < config.getBatchSize()) {
+                    queue.drainTo(batch, config.getBatchSize() - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= config.getBatchSize() || remaining <= 0 || !running) break;
+                    VitalsSubmission next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+                flush(batch);
+                batch.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+    }
+
+    private void flush(List<VitalsSubmission> batch) {
+        long start = System.nanoTime();
+        try {
+            stored(batch, sink.write(batch));
+        } catch (SQLException | RuntimeException e) {
+            if (batch.size() == 1) {
+                dropped(batch.get(0), e);
+            } else {
+                System.err.println("Vitals batch of " + batch.size() + " refused, retrying row by row: " + e.getMessage());
+                for (VitalsSubmission submission : batch) {
+                    try {
+                        stored(List.of(submission), sink.write(List.of(submission)));
+                    } catch (SQLException | RuntimeException rowError) {
+                        dropped(submission, rowError);
+                    }
+                }
+            }
+        } finally {
+            flushLatency.recordSince(start);
+            flushes.increment();
+        }
+    }
+
+    private void stored(List<VitalsSubmission> rows, long[] ids) {
+        written.add(rows.size());
+        for (int i = 0; i < rows.size() && i < ids.length; i++) {
+            if (ids[i] > 0) {
+                VitalsStore.getInstance().record(rows.get(i).toReading(ids[i]));
+            }
+        }
+    }
+
+    private void dropped(VitalsSubmission submission, Exception e) {
+        failed.increment();
+        System.err.println("Dropped vitals reading for userId " + submission.userId()
+                + " recorded at " + submission.recordedAt() + ": " + e.getMessage());
+    }
+
+    // ================== METRICS ==================
+    public Metrics metrics() {
+        double seconds = Math.max(1e-9, (System.nanoTime() - startNanos) / 1e9);
+        return new Metrics(accepted.sum(), invalid.sum(), throttled.sum(), written.sum(), failed.sum(),
+                flushes.sum(), queue.size(), config.getQueueCapacity(), written.sum() / seconds,
+                flushLatency.summary());
+    }
+
+    // ================== HTTP ==================
+    private void handleVitals(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                respond(exchange, 405, "{\"error\":\"POST JSON lines to /vitals\"}");
+                return;
+            }
+            IngestResult result;
+            try {
+                result = ingest(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                respond(exchange, 503, "{\"error\":\"shutting down\"}");
+                return;
+            }
+
+            List<String> quoted = new ArrayList<>();
+            for (String error : result.errors()) {
+                quoted.add(FlatJson.quote(error));
+            }
+            List<String> retry = new ArrayList<>();
+            for (int line : result.retryLines()) {
+                retry.add(String.valueOf(line));
+            }
+            String json = String.format("{\"accepted\":%d,\"invalid\":%d,\"throttled\":%d,\"errors\":[%s],\"retry\":[%s]}",
+                    result.accepted(), result.invalid(), result.throttled(), String.join(",", quoted),
+                    String.join(",", retry));
+
+            // Partly throttled requests still succeed; the sender resends the retry lines after Retry-After
+            int status = 202;
+            if (result.throttled() > 0) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+            }
+            if (result.accepted() == 0 && result.throttled() > 0) {
+                status = 503;
+            } else if (result.accepted() == 0 && result.invalid() > 0) {
+                status = 400;
+            }
+            respond(exchange, status, json);
+        }
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+            byte[] body = (metrics() + "\n").getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    // ================== MAIN ==================
+    public static void main(String[] args) throws Exception {
+        VitalsIngestConfig config = VitalsIngestConfig.fromSystemProperties();
+        VitalsIngestService service = VitalsIngestService.withDatabase(config);
+        service.startHttp();
+        System.out.println("Vitals ingestion listening on http://" + config.getHost() + ":" + service.getPort() + "/vitals");
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                service.close();
+                System.out.println("Stopped: " + service.metrics());
+            } finally {
+                DatabaseHelper.shutdown();
+            }
+        }));
+
+        while (true) {
+            Thread.sleep(config.getReportIntervalMs());
+            System.out.println(service.metrics());
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package vitals;
+
+import java.util.Arrays;
+
+/**
+ * One row of vitals_records as primitives: values are indexed by
+ * {@link Metric#ordinal()} and NaN means "not recorded".
+ */
+public record VitalsReading(long vitalsId, int userId, long recordedAt, float[] values) {
+
+    public VitalsReading {
+        if (values.length != Metric.values().length) {
+            throw new IllegalArgumentException("Expected " + Metric.values().length + " values, got " + values.length);
+        }
+    }
+
+    public static VitalsReading of(long vitalsId, int userId, long recordedAt,
+                                   float pulse, float temperature, float respiration, float oxygen,
+                                   float systolic, float diastolic, float weight) {
+        float[] values = new float[Metric.values().length];
+        values[Metric.PULSE.ordinal()] = pulse;
+        values[Metric.TEMPERATURE.ordinal()] = temperature;
+        values[Metric.RESPIRATION.ordinal()] = respiration;
+        values[Metric.OXYGEN.ordinal()] = oxygen;
+        values[Metric.SYSTOLIC.ordinal()] = systolic;
+        values[Metric.DIASTOLIC.ordinal()] = diastolic;
+        values[Metric.WEIGHT.ordinal()] = weight;
+        return new VitalsReading(vitalsId, userId, recordedAt, values);
+    }
+
+    public float value(Metric metric) {
+        return values[metric.ordinal()];
+    }
+
+    public boolean has(Metric metric) {
+        return !Float.isNaN(value(metric));
+    }
+
+    /**
+     * Parse "120/80" into {systolic, diastolic}; NaN for anything unreadable.
+     */
+    public static float[] parseBloodPressure(String bp) {
+        float[] parts = {Float.NaN, Float.NaN};
+        if (bp == null) return parts;
+        int slash = bp.indexOf('/');
+        if (slash < 0) return parts;
+        try {
+            parts[0] = Float.parseFloat(bp.substring(0, slash).trim());
+            parts[1] = Float.parseFloat(bp.substring(slash + 1).trim());
+        } catch (NumberFormatException e) {
+            parts[0] = Float.NaN;
+            parts[1] = Float.NaN;
+        }
+        return parts;
+    }
+
+    @Override
+    public String toString() {
+        return "VitalsReading[vitalsId=" + vitalsId + ", userId=" + userId + ", recordedAt=" + recordedAt
+                + ", values=" + Arrays.toString(values) + "]";
+    }
+}
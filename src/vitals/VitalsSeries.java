@@ -0,0 +1,222 @@
+package vitals;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * All vitals of one patient in columnar primitive arrays: one long[] of
+ * timestamps (epoch millis, ascending) and one float[] per {@link Metric},
+ * with NaN for values that were not recorded. Arrays grow by doubling, so a
+ * year of readings every few minutes stays a handful of flat arrays instead
+ * of hundreds of thousands of row objects.
+ *
+ * Range queries binary-search the timestamps; {@link #downsample} reduces a
+ * window to at most the requested number of min/max/avg buckets in one pass.
+ * Methods are synchronized so ingestion threads can append while the chart reads.
+ */
+public class VitalsSeries {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * Aggregated buckets in time order; empty buckets are left out.
+     * bucketStart is the start of each bucket in epoch millis.
+     */
+    public record Downsampled(Metric metric, long[] bucketStart, float[] min, float[] max,
+                              float[] avg, int[] count) {
+        public int size() { return bucketStart.length; }
+    }
+
+    private final int userId;
+    private long[] timestamps = new long[INITIAL_CAPACITY];
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private final float[][] columns = new float[Metric.values().length][INITIAL_CAPACITY];
+    private int size;
+    private long loadedThroughId; // rows up to this vitals_id came from the initial load
+
+    public VitalsSeries(int userId) {
+        this.userId = userId;
+    }
+
+    public int getUserId() { return userId; }
+
+    public synchronized int size() { return size; }
+
+    /**
+     * Readings with a vitals_id up to this one may already be in the series,
+     * e.g. because they were read from the database; appending one that is
+     * there again is a no-op. Ids are not committed in order, so a lower id
+     * that is missing is still added.
+     */
+    public synchronized void markLoadedThrough(long vitalsId) {
+        loadedThroughId = Math.max(loadedThroughId, vitalsId);
+    }
+
+    // ================== APPEND ==================
+    /**
+     * Add a reading. Readings normally arrive in time order and are appended;
+     * a late reading is inserted at its place. Returns false if the reading
+     * was already loaded (see {@link #markLoadedThrough}).
+     */
+    public synchronized boolean append(VitalsReading reading) {
+        if (reading.vitalsId() > 0 && reading.vitalsId() <= loadedThroughId && containsId(reading.vitalsId())) {
+            return false;
+        }
+        ensureCapacity(size + 1);
+        int at = size;
+        if (size > 0 && reading.recordedAt() < timestamps[size - 1]) {
+            at = upperBound(reading.recordedAt());
+            System.arraycopy(timestamps, at, timestamps, at + 1, size - at);
+            System.arraycopy(ids, at, ids, at + 1, size - at);
+            for (float[] column : columns) {
+                System.arraycopy(column, at, column, at + 1, size - at);
+            }
+        }
+        timestamps[at] = reading.recordedAt();
+        ids[at] = reading.vitalsId();
+        for (Metric metric : Metric.values()) {
+            columns[metric.ordinal()][at] = reading.value(metric);
+        }
+        size++;
+        return true;
+    }
+
+    /** Newest first, since a reading seen twice is almost always a recent one. */
+    private boolean containsId(long vitalsId) {
+        for (int i = size - 1; i >= 0; i--) {
+            if (ids[i] == vitalsId) return true;
+        }
+        return false;
+    }
+
+    private void ensureCapacity(int needed) {
+        if (needed <= timestamps.length) return;
+        int capacity = Math.max(needed, timestamps.length * 2);
+        timestamps = Arrays.copyOf(timestamps, capacity);
+        ids = Arrays.copyOf(ids, capacity);
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = Arrays.copyOf(columns[i], capacity);
+        }
+    }
+
+    // ================== QUERIES ==================
+    public synchronized long firstTimestamp() {
+        return size == 0 ? Long.MIN_VALUE : timestamps[0];
+    }
+
+    public synchronized long lastTimestamp() {
+        return size == 0 ? Long.MIN_VALUE : timestamps[size - 1];
+    }
+
+    /** Most recent reading, or null if there is none. */
+    public synchronized VitalsReading latest() {
+        if (size == 0) return null;
+        float[] values = new float[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            values[i] = columns[i][size - 1];
+        }
+        return new VitalsReading(ids[size - 1], userId, timestamps[size - 1], values);
+    }
+
+    /** Visit every reading in time order, e.g. to rebuild derived state. */
+    public synchronized void forEach(Consumer<VitalsReading> visitor) {
+        for (int row = 0; row < size; row++) {
+            float[] values = new float[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                values[i] = columns[i][row];
+            }
+            visitor.accept(new VitalsReading(ids[row], userId, timestamps[row], values));
+        }
+    }
+
+    /** Number of readings with from <= recordedAt < to. */
+    public synchronized int count(long from, long to) {
+        return Math.max(0, lowerBound(to) - lowerBound(from));
+    }
+
+    /** One metric's values for from <= recordedAt < to (NaNs included). */
+    public synchronized float[] values(Metric metric, long from, long to) {
+        int lo = lowerBound(from);
+        int hi = Math.max(lo, lowerBound(to));
+        return Arrays.copyOfRange(columns[metric.ordinal()], lo, hi);
+    }
+
+    public synchronized long[] timestamps(long from, long to) {
+        int lo = lowerBound(from);
+        int hi = Math.max(lo, lowerBound(to));
+        return Arrays.copyOfRange(timestamps, lo, hi);
+    }
+
+    /**
+     * Reduce from <= recordedAt < to to at most {@code points} equal-width
+     * time buckets, each with the min, max and average of the metric.
+     */
+    public synchronized Downsampled downsample(Metric metric, long from, long to, int points) {
+        if (points < 1) {
+            throw new IllegalArgumentException("points must be at least 1");
+        }
+        int lo = lowerBound(from);
+        int hi = lowerBound(to);
+        long span = Math.max(1, to - from);
+        long width = (span + points - 1) / points;
+
+        long[] starts = new long[points];
+        float[] min = new float[points];
+        float[] max = new float[points];
+        double[] sum = new double[points];
+        int[] count = new int[points];
+        float[] column = columns[metric.ordinal()];
+
+        for (int i = lo; i < hi; i++) {
+            float value = column[i];
+            if (Float.isNaN(value)) continue;
+            int bucket = (int) Math.min(points - 1, (timestamps[i] - from) / width);
+            if (count[bucket] == 0) {
+                min[bucket] = value;
+                max[bucket] = value;
+            } else {
+                min[bucket] = Math.min(min[bucket], value);
+                max[bucket] = Math.max(max[bucket], value);
+            }
+            sum[bucket] += value;
+            count[bucket]++;
+        }
+
+        int filled = 0;
+        for (int b = 0; b < points; b++) {
+            if (count[b] == 0) continue;
+            starts[filled] = from + b * width;
+            min[filled] = min[b];
+            max[filled] = max[b];
+            sum[filled] = sum[b];
+            count[filled] = count[b];
+            filled++;
+        }
+        float[] avg = new float[filled];
+        for (int b = 0; b < filled; b++) {
+            avg[b] = (float) (sum[b] / count[b]);
+        }
+        return new Downsampled(metric, Arrays.copyOf(starts, filled), Arrays.copyOf(min, filled),
+                Arrays.copyOf(max, filled), avg, Arrays.copyOf(count, filled));
+    }
+
+    /** First index with timestamp >= time. */
+    private int lowerBound(long time) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (timestamps[mid] < time) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    /** First index with timestamp > time. */
+    private int upperBound(long time) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (timestamps[mid] <= time) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,190 @@
+package vitals;
+
+import database.ConnectionPool;
+import database.DatabaseHelper;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Process-wide cache of {@link VitalsSeries}, one per patient.
+ *
+ * A patient's history is read from vitals_records once, streamed straight
+ * into primitive columns, and kept up to date by {@link #record} as new
+ * readings are saved. The least recently used series are dropped beyond
+ * -Dtelehealth.vitals.maxSeries (default 1000 patients).
+ *
+ * Readings recorded while a history is being read are buffered under the
+ * same lock that publishes the loaded series and merged into it by time;
+ * ones the load already read are skipped by id.
+ *
+ * Listeners see every recorded reading, whether or not its series is cached,
+ * so derived state such as {@link AnomalyEngine} is updated in one place.
+ */
+public class VitalsStore {
+
+    static final String LOAD_QUERY = """
+        SELECT vitals_id, recorded_at, pulse, temperature, respiration, oxygen, blood_pressure, weight
+        FROM vitals_records
+        WHERE user_id = ?
+        ORDER BY recorded_at, vitals_id
+        """;
+
+    private static final VitalsStore INSTANCE = new VitalsStore(
+            DatabaseHelper::getConnection, Integer.getInteger("telehealth.vitals.maxSeries", 1000));
+
+    private final ConnectionPool.ConnectionFactory connections;
+    private final Object lock = new Object();
+    private final Map<Integer, VitalsSeries> series;
+    private final Map<Integer, Loading> loading = new HashMap<>(); // guarded by lock
+    private final List<Consumer<VitalsReading>> listeners = new CopyOnWriteArrayList<>();
+
+    public VitalsStore(ConnectionPool.ConnectionFactory connections, int maxSeries) {
+        this.connections = connections;
+        this.series = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, VitalsSeries> eldest) {
+                return size() > maxSeries;
+            }
+        };
+    }
+
+    public static VitalsStore getInstance() {
+        return INSTANCE;
+    }
+
+    /** Loads of one patient's history in flight, and the readings saved meanwhile. */
+    private static final class Loading {
+        final List<VitalsReading> pending = new ArrayList<>();
+        int loaders;
+    }
+
+    /**
+     * The patient's series, read from the database on first use.
+     * Call from a background thread.
+     */
+    public VitalsSeries series(int userId) throws SQLException {
+        Loading inFlight;
+        synchronized (lock) {
+            VitalsSeries cached = series.get(userId);
+            if (cached != null) return cached;
+            inFlight = loading.computeIfAbsent(userId, id -> new Loading());
+            inFlight.loaders++;
+        }
+
+        VitalsSeries loaded = null;
+        try {
+            loaded = load(userId);
+        } finally {
+            synchronized (lock) {
+                if (--inFlight.loaders == 0) {
+                    loading.remove(userId);
+                }
+                if (loaded != null) {
+                    VitalsSeries cached = series.get(userId);
+                    if (cached != null) {
+                        loaded = cached; // another thread finished first
+                    } else {
+                        // Readings saved during the load: append skips the ones it read and places the rest by time
+                        for (VitalsReading reading : inFlight.pending) {
+                            loaded.append(reading);
+                        }
+                        inFlight.pending.clear();
+                        series.put(userId, loaded);
+                    }
+                }
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * A reading was saved: add it to the patient's series if that series is
+     * in memory (or being loaded). Otherwise the next load will read it.
+     */
+    public void record(VitalsReading reading) {
+        VitalsSeries target;
+        synchronized (lock) {
+            target = series.get(reading.userId());
+            Loading inFlight = loading.get(reading.userId());
+            if (target == null && inFlight != null) {
+                inFlight.pending.add(reading);
+            }
+        }
+        if (target != null && !target.append(reading)) {
+            return; // already loaded from the database
+        }
+        for (Consumer<VitalsReading> listener : listeners) {
+            try {
+                listener.accept(reading);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /** Called on the recording thread after each new reading; keep it quick. */
+    public void addListener(Consumer<VitalsReading> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Consumer<VitalsReading> listener) {
+        listeners.remove(listener);
+    }
+
+    /** Drop a patient's series, e.g. after their rows were edited or deleted. */
+    public void invalidate(int userId) {
+        synchronized (lock) {
+            series.remove(userId);
+        }
+    }
+
+    public int cachedSeriesCount() {
+        synchronized (lock) {
+            return series.size();
+        }
+    }
+
+    private VitalsSeries load(int userId) throws SQLException {
+        VitalsSeries loaded = new VitalsSeries(userId);
+        long maxId = 0;
+        try (Connection conn = connections.create(); PreparedStatement ps = conn.prepareStatement(LOAD_QUERY)) {
+            ps.setInt(1, userId);
+            ps.setFetchSize(1000);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    VitalsReading reading = map(rs, userId);
+                    loaded.append(reading);
+                    maxId = Math.max(maxId, reading.vitalsId());
+                }
+            }
+        }
+        loaded.markLoadedThrough(maxId);
+        return loaded;
+    }
+
+    /** Map one vitals_records row; SQL NULLs become NaN. */
+    public static VitalsReading map(ResultSet rs, int userId) throws SQLException {
+        Timestamp recordedAt = rs.getTimestamp("recorded_at");
+        float[] bp = VitalsReading.parseBloodPressure(rs.getString("blood_pressure"));
+        return VitalsReading.of(rs.getLong("vitals_id"), userId,
+                recordedAt != null ? recordedAt.getTime() : 0L,
+                getFloat(rs, "pulse"), getFloat(rs, "temperature"), getFloat(rs, "respiration"),
+                getFloat(rs, "oxygen"), bp[0], bp[1], getFloat(rs, "weight"));
+    }
+
+    private static float getFloat(ResultSet rs, String column) throws SQLException {
+        float value = rs.getFloat(column);
+        return rs.wasNull() ? Float.NaN : value;
+    }
+}
@@ -0,0 +1,25 @@
+package vitals;
+
+import java.math.BigDecimal;
+
+/**
+ * A validated set of vitals ready to be inserted into vitals_records.
+ * Any metric may be null when the device did not measure it.
+ * recordedAt is epoch millis.
+ */
+public record VitalsSubmission(int userId, Integer pulse, BigDecimal temperature, Integer respiration,
+                               String bloodPressure, BigDecimal weight, BigDecimal height,
+                               BigDecimal oxygen, long recordedAt) {
+
+    /** The same values as a time-series reading, once the row has its vitals_id. */
+    public VitalsReading toReading(long vitalsId) {
+        float[] bp = VitalsReading.parseBloodPressure(bloodPressure);
+        return VitalsReading.of(vitalsId, userId, recordedAt,
+                pulse != null ? pulse : Float.NaN,
+                temperature != null ? temperature.floatValue() : Float.NaN,
+                respiration != null ? respiration : Float.NaN,
+                oxygen != null ? oxygen.floatValue() : Float.NaN,
+                bp[0], bp[1],
+                weight != null ? weight.floatValue() : Float.NaN);
+    }
+}
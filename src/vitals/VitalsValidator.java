@@ -0,0 +1,149 @@
+package vitals;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Validation rules for vitals, shared by the vitals form and the ingestion
+ * service so a reading accepted by one is accepted by the other.
+ * Failures throw IllegalArgumentException with a message fit for the user.
+ */
+public final class VitalsValidator {
+
+    private static final Pattern BLOOD_PRESSURE = Pattern.compile("(\\d{2,3})/(\\d{2,3})");
+    /** Device clocks may run slightly ahead of ours. */
+    private static final long MAX_CLOCK_SKEW_MS = 5 * 60_000L;
+
+    private VitalsValidator() {
+    }
+
+    /**
+     * Validate raw text values. With requireAll every field must be present
+     * (the form); otherwise at least one measurement is needed (devices).
+     */
+    public static VitalsSubmission validate(int userId, String pulse, String temperature, String respiration,
+                                            String bloodPressure, String weight, String height, String oxygen,
+                                            long recordedAt, boolean requireAll) {
+        if (userId <= 0) {
+            throw new IllegalArgumentException("A valid user is required.");
+        }
+        Integer p = wholeNumber("Pulse", pulse, 20, 250, requireAll);
+        BigDecimal t = decimal("Temperature", temperature, 30, 45, 1, requireAll);
+        Integer r = wholeNumber("Respiration", respiration, 4, 60, requireAll);
+        String bp = bloodPressure("Blood pressure", bloodPressure, requireAll);
+        BigDecimal w = decimal("Weight", weight, 1, 500, 2, requireAll);
+        BigDecimal h = decimal("Height", height, 30, 272, 2, requireAll);
+        BigDecimal o = decimal("Oxygen", oxygen, 50, 100, 1, requireAll);
+
+        if (p == null && t == null && r == null && bp == null && w == null && h == null && o == null) {
+            throw new IllegalArgumentException("At least one measurement is required.");
+        }
+        return new VitalsSubmission(userId, p, t, r, bp, w, h, o, recordedAt);
+    }
+
+    /**
+     * Validate one JSON reading from a device, e.g.
+     * {"userId":6,"pulse":72,"oxygen":98,"recordedAt":"2025-10-17T08:30:00Z"}.
+     * recordedAt may be epoch millis or an ISO-8601 instant; it defaults to now.
+     */
+    public static VitalsSubmission fromJson(Map<String, String> json, long now) {
+        int userId;
+        try {
+            userId = Integer.parseInt(required(json.get("userId"), "userId"));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("userId must be a whole number.");
+        }
+        long recordedAt = recordedAt(json.get("recordedAt"), now);
+        return validate(userId, json.get("pulse"), json.get("temperature"), json.get("respiration"),
+                json.get("bloodPressure"), json.get("weight"), json.get("height"), json.get("oxygen"),
+                recordedAt, false);
+    }
+
+    // ================== FIELD RULES ==================
+    private static Integer wholeNumber(String name, String text, int min, int max, boolean required) {
+        if (isBlank(text)) {
+            return missing(name, required);
+        }
+        int value;
+        try {
+            value = Integer.parseInt(text.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " must be a whole number.");
+        }
+        if (value < min || value > max) {
+            throw new IllegalArgumentException(name + " must be between " + min + " and " + max + ".");
+        }
+        return value;
+    }
+
+    private static BigDecimal decimal(String name, String text, int min, int max, int scale, boolean required) {
+        if (isBlank(text)) {
+            return missing(name, required);
+        }
+        BigDecimal value;
+        try {
+            value = new BigDecimal(text.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " must be a number.");
+        }
+        if (value.compareTo(BigDecimal.valueOf(min)) < 0 || value.compareTo(BigDecimal.valueOf(max)) > 0) {
+            throw new IllegalArgumentException(name + " must be between " + min + " and " + max + ".");
+        }
+        return value.setScale(scale, RoundingMode.HALF_UP); // matches the DECIMAL column
+    }
+
+    private static String bloodPressure(String name, String text, boolean required) {
+        if (isBlank(text)) {
+            return missing(name, required);
+        }
+        Matcher m = BLOOD_PRESSURE.matcher(text.trim());
+        if (!m.matches()) {
+            throw new IllegalArgumentException(name + " must look like 120/80.");
+        }
+        int systolic = Integer.parseInt(m.group(1));
+        int diastolic = Integer.parseInt(m.group(2));
+        if (systolic < 50 || systolic > 260 || diastolic < 30 || diastolic > 160 || systolic <= diastolic) {
+            throw new IllegalArgumentException(name + " " + text.trim() + " is not a plausible reading.");
+        }
+        return systolic + "/" + diastolic;
+    }
+
+    private static long recordedAt(String text, long now) {
+        if (isBlank(text)) {
+            return now;
+        }
+        long millis;
+        try {
+            millis = text.chars().allMatch(Character::isDigit) ? Long.parseLong(text) : Instant.parse(text).toEpochMilli();
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new IllegalArgumentException("recordedAt must be epoch millis or an ISO-8601 instant.");
+        }
+        if (millis > now + MAX_CLOCK_SKEW_MS) {
+            throw new IllegalArgumentException("recordedAt is in the future.");
+        }
+        return millis;
+    }
+
+    private static <T> T missing(String name, boolean required) {
+        if (required) {
+            throw new IllegalArgumentException(name + " is required.");
+        }
+        return null;
+    }
+
+    private static String required(String value, String name) {
+        if (isBlank(value)) {
+            throw new IllegalArgumentException(name + " is required.");
+        }
+        return value.trim();
+    }
+
+    private static boolean isBlank(String text) {
+        return text == null || text.trim().isEmpty();
+    }
+}
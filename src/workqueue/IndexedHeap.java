@@ -0,0 +1,181 @@
+package workqueue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Binary min-heap that also knows where each key sits, so an item's rank can
+ * be changed or the item removed in O(log n) without searching the heap.
+ * Keys and ranks are longs; a lower rank comes first and ties go to the
+ * lower key. Not thread-safe.
+ */
+public class IndexedHeap<T> {
+
+    private long[] keys = new long[16];
+    private long[] ranks = new long[16];
+    private Object[] items = new Object[16];
+    private int size;
+    private final Map<Long, Integer> positions = new HashMap<>();
+
+    // ================== UPDATES ==================
+    /** Insert the item, or move it if the key is already queued. Returns true if it was new. */
+    public boolean offer(long key, long rank, T item) {
+        Integer at = positions.get(key);
+        if (at != null) {
+            long previous = ranks[at];
+            ranks[at] = rank;
+            items[at] = item;
+            if (rank < previous) {
+                up(at);
+            } else {
+                down(at);
+            }
+            return false;
+        }
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            ranks = Arrays.copyOf(ranks, size * 2);
+            items = Arrays.copyOf(items, size * 2);
+        }
+        keys[size] = key;
+        ranks[size] = rank;
+        items[size] = item;
+        positions.put(key, size);
+        up(size++);
+        return true;
+    }
+
+    /** Remove the item with this key; returns it, or null if it was not queued. */
+    public T remove(long key) {
+        Integer at = positions.get(key);
+        return at == null ? null : removeAt(at);
+    }
+
+    /** Remove and return the first item, or null if empty. */
+    public T poll() {
+        return size == 0 ? null : removeAt(0);
+    }
+
+    public void clear() {
+        Arrays.fill(items, 0, size, null);
+        size = 0;
+        positions.clear();
+    }
+
+    // ================== QUERIES ==================
+    /** The first item, or null if empty. */
+    public T peek() {
+        return size == 0 ? null : item(0);
+    }
+
+    public T get(long key) {
+        Integer at = positions.get(key);
+        return at == null ? null : item(at);
+    }
+
+    public boolean contains(long key) {
+        return positions.containsKey(key);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * The first k items in order, without removing them. Walks the heap
+     * best-first from the root, so it costs O(k log k) whatever the size.
+     */
+    public List<T> top(int k) {
+        List<T> first = new ArrayList<>(Math.min(k, size));
+        if (k < 1 || size == 0) return first;
+        PriorityQueue<Integer> frontier = new PriorityQueue<>(this::compare);
+        frontier.add(0);
+        while (!frontier.isEmpty() && first.size() < k) {
+            int at = frontier.poll();
+            first.add(item(at));
+            if (2 * at + 1 < size) frontier.add(2 * at + 1);
+            if (2 * at + 2 < size) frontier.add(2 * at + 2);
+        }
+        return first;
+    }
+
+    /** Every queued key, in no particular order. */
+    public long[] keys() {
+        return Arrays.copyOf(keys, size);
+    }
+
+    // ================== HEAP ==================
+    private T removeAt(int at) {
+        T removed = item(at);
+        positions.remove(keys[at]);
+        int last = --size;
+        if (at != last) {
+            move(last, at);
+            items[last] = null;
+            if (at > 0 && compare(at, (at - 1) / 2) < 0) {
+                up(at);
+            } else {
+                down(at);
+            }
+        } else {
+            items[last] = null;
+        }
+        return removed;
+    }
+
+    private void up(int at) {
+        while (at > 0) {
+            int parent = (at - 1) / 2;
+            if (compare(at, parent) >= 0) break;
+            swap(at, parent);
+            at = parent;
+        }
+    }
+
+    private void down(int at) {
+        while (true) {
+            int left = 2 * at + 1;
+            if (left >= size) break;
+            int child = left + 1 < size && compare(left + 1, left) < 0 ? left + 1 : left;
+            if (compare(child, at) >= 0) break;
+            swap(at, child);
+            at = child;
+        }
+    }
+
+    private int compare(int a, int b) {
+        int byRank = Long.compare(ranks[a], ranks[b]);
+        return byRank != 0 ? byRank : Long.compare(keys[a], keys[b]);
+    }
+
+    private void swap(int a, int b) {
+        long key = keys[a];
+        long rank = ranks[a];
+        Object item = items[a];
+        move(b, a);
+        keys[b] = key;
+        ranks[b] = rank;
+        items[b] = item;
+        positions.put(key, b);
+    }
+
+    private void move(int from, int to) {
+        keys[to] = keys[from];
+        ranks[to] = ranks[from];
+        items[to] = items[from];
+        positions.put(keys[to], to);
+    }
+
+    @SuppressWarnings("unchecked")
+    private T item(int at) {
+        return (T) items[at];
+    }
+}
@@ -0,0 +1,85 @@
+package workqueue;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * One reason for a doctor to see a patient: a consultation booking, a
+ * scheduled appointment, a pending hospital referral, or an abnormal vitals
+ * reading. Items are ordered by tier, then by when they are due, so an
+ * emergency referral comes before this afternoon's routine booking and,
+ * within a tier, the earliest comes first.
+ */
+public record WorkItem(Kind kind, long sourceId, int patientId, String patientName, int tier, LocalDateTime due,
+                       String detail) {
+
+    public static final int TIER_CRITICAL = 0;  // EMERGENCY referral, critical vitals
+    public static final int TIER_URGENT = 1;    // HIGH referral, abnormal vitals
+    public static final int TIER_SOON = 2;      // MEDIUM referral
+    public static final int TIER_ROUTINE = 3;   // LOW referral, bookings and appointments
+
+    private static final long NO_DUE = (1L << 40) - 1;
+    private static final DateTimeFormatter DUE_FORMAT = DateTimeFormatter.ofPattern("dd MMM HH:mm");
+
+    public enum Kind {
+        BOOKING("Consultation"),
+        APPOINTMENT("Appointment"),
+        REFERRAL("Referral"),
+        VITALS("Vitals");
+
+        private final String label;
+
+        Kind(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    /** Unique across kinds: the kind in the top byte, the row id below it. */
+    public long key() {
+        return key(kind, sourceId);
+    }
+
+    public static long key(Kind kind, long sourceId) {
+        return ((long) kind.ordinal() << 56) | sourceId;
+    }
+
+    /** Heap rank: the tier in the high bits, the due minute below; lower comes first. */
+    public long rank() {
+        long minute = due == null ? NO_DUE
+                : Math.max(0, due.atZone(ZoneId.systemDefault()).toEpochSecond() / 60);
+        return ((long) tier << 40) | Math.min(minute, NO_DUE);
+    }
+
+    /** Tier for a hospital_referrals.urgency_level value; unknown values count as MEDIUM. */
+    public static int referralTier(String urgency) {
+        if (urgency == null) return TIER_SOON;
+        return switch (urgency.toUpperCase()) {
+            case "EMERGENCY" -> TIER_CRITICAL;
+            case "HIGH" -> TIER_URGENT;
+            case "LOW" -> TIER_ROUTINE;
+            default -> TIER_SOON;
+        };
+    }
+
+    public static String tierLabel(int tier) {
+        return switch (tier) {
+            case TIER_CRITICAL -> "CRITICAL";
+            case TIER_URGENT -> "URGENT";
+            case TIER_SOON -> "SOON";
+            default -> "ROUTINE";
+        };
+    }
+
+    /** One line for the dashboard's next-patient list. */
+    public String summary() {
+        String who = patientName != null ? patientName : "Patient #" + patientId;
+        String when = due != null ? " (" + due.format(DUE_FORMAT) + ")" : "";
+        return tierLabel(tier) + "  " + who + " — " + kind.getLabel()
+                + (detail != null && !detail.isBlank() ? ": " + detail : "") + when;
+    }
+}
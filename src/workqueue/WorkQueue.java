@@ -0,0 +1,117 @@
+package workqueue;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * One doctor's patients to see, best first, in an {@link IndexedHeap}.
+ * Changes are O(log n) whatever the queue length, and listeners hear about
+ * every change (on the thread that made it). Items the doctor marks as seen
+ * stay hidden until they disappear from the source tables.
+ */
+public class WorkQueue {
+
+    private final int doctorId;
+    private final IndexedHeap<WorkItem> heap = new IndexedHeap<>();
+    private final Set<Long> dismissed = new HashSet<>();
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+
+    public WorkQueue(int doctorId) {
+        this.doctorId = doctorId;
+    }
+
+    // ================== UPDATES ==================
+    /** Add the item or move it to its new place, e.g. after its urgency changed. */
+    public void upsert(WorkItem item) {
+        synchronized (this) {
+            if (dismissed.contains(item.key())) return;
+            heap.offer(item.key(), item.rank(), item);
+        }
+        changed();
+    }
+
+    public boolean remove(WorkItem.Kind kind, long sourceId) {
+        boolean removed;
+        synchronized (this) {
+            removed = heap.remove(WorkItem.key(kind, sourceId)) != null;
+        }
+        if (removed) changed();
+        return removed;
+    }
+
+    /** The doctor has seen this item; it leaves the queue and is not reloaded. */
+    public boolean dismiss(WorkItem item) {
+        boolean removed;
+        synchronized (this) {
+            dismissed.add(item.key());
+            removed = heap.remove(item.key()) != null;
+        }
+        if (removed) changed();
+        return removed;
+    }
+
+    /**
+     * Bring the items of the given kinds in line with a fresh load: new and
+     * changed items are offered, those no longer loaded are removed. Items
+     * of other kinds are left alone.
+     */
+    public void replace(Collection<WorkItem> loaded, Set<WorkItem.Kind> kinds) {
+        synchronized (this) {
+            Set<Long> current = new HashSet<>();
+            for (WorkItem item : loaded) {
+                current.add(item.key());
+                if (!dismissed.contains(item.key())) {
+                    heap.offer(item.key(), item.rank(), item);
+                }
+            }
+            for (long key : heap.keys()) {
+                WorkItem item = heap.get(key);
+                if (kinds.contains(item.kind()) && !current.contains(key)) {
+                    heap.remove(key);
+                }
+            }
+            dismissed.removeIf(key -> kinds.contains(WorkItem.Kind.values()[(int) (key >>> 56)])
+                    && !current.contains(key));
+        }
+        changed();
+    }
+
+    // ================== QUERIES ==================
+    /** The patient to see next, or null. */
+    public synchronized WorkItem next() {
+        return heap.peek();
+    }
+
+    /** The first k items in order. */
+    public synchronized List<WorkItem> top(int k) {
+        return heap.top(k);
+    }
+
+    public synchronized boolean contains(WorkItem.Kind kind, long sourceId) {
+        return heap.contains(WorkItem.key(kind, sourceId));
+    }
+
+    public synchronized int size() {
+        return heap.size();
+    }
+
+    public int getDoctorId() {
+        return doctorId;
+    }
+
+    // ================== LISTENERS ==================
+    /** Called after every change; close the handle to stop. */
+    public AutoCloseable addListener(Runnable listener) {
+        listeners.add(listener);
+        return () -> listeners.remove(listener);
+    }
+
+    private void changed() {
+        for (Runnable listener : listeners) {
+            listener.run();
+        }
+    }
+}
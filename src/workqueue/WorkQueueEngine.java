@@ -0,0 +1,398 @@
+package workqueue;
+
+import database.ConnectionPool;
+import database.DatabaseHelper;
+import database.ReferenceDataCache;
+import events.ClinicalEvent;
+import events.EventBus;
+import events.EventEnvelope;
+import models.User;
+import utils.DbExecutor;
+import vitals.VitalsAssessment;
+import vitals.VitalsReading;
+import vitals.VitalsStore;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps a {@link WorkQueue} for each doctor who has opened one. A queue is
+ * loaded from the doctor's open bookings, scheduled appointments and pending
+ * referrals, plus the latest vitals reading of each of those patients if it
+ * is out of range, so readings saved by other clients, by the ingestion
+ * service or before a restart are queued too. Events from the
+ * {@link EventBus} then keep it current:
+ * <ul>
+ *   <li>Abnormal vitals join the queue of every doctor who has that patient
+ *       queued, and a normal reading takes them out again.</li>
+ *   <li>A booking change reloads that doctor's queue.</li>
+ *   <li>An emergency referral reloads the referring doctor's queue.</li>
+ * </ul>
+ * Loaded queues are also reloaded every refreshIntervalMs
+ * (-Dtelehealth.workqueue.refreshIntervalMs, default one minute) to pick up
+ * edits that publish no event. Reloads run on the DB executor.
+ *
+ * Vitals state is only kept for patients some loaded doctor has a booking,
+ * appointment or referral with; once a reload shows a patient's last such
+ * item closed, the patient is forgotten.
+ */
+public class WorkQueueEngine implements AutoCloseable {
+
+    /** Loads a doctor's open items from the database. */
+    @FunctionalInterface
+    public interface WorkLoader {
+        List<WorkItem> load(int doctorId) throws SQLException;
+    }
+
+    static final Set<WorkItem.Kind> LOADED_KINDS = EnumSet.allOf(WorkItem.Kind.class);
+
+    static final String OPEN_BOOKINGS = "SELECT b.booking_id, b.patient_id, u.name, b.appointment_date, "
+            + "b.appointment_time, b.symptoms FROM bookings b JOIN users u ON u.user_id = b.patient_id "
+            + "WHERE b.doctor_id = ? AND b.status IN ('Pending', 'Approved') AND b.appointment_date >= CURRENT_DATE";
+    static final String OPEN_APPOINTMENTS = "SELECT id, patient_id, patient_name, appointment_date, appointment_time, "
+            + "appointment_type FROM appointments "
+            + "WHERE doctor_id = ? AND status = 'SCHEDULED' AND appointment_date >= CURRENT_DATE";
+    static final String PENDING_REFERRALS = "SELECT referral_id, patient_id, patient_name, urgency_level, referral_date, "
+            + "preferred_appointment_date, hospital_name, department FROM hospital_referrals "
+            + "WHERE doctor_id = ? AND status = 'PENDING'";
+    static final String LATEST_VITALS = "SELECT v.vitals_id, v.user_id, u.name, v.recorded_at, v.pulse, v.temperature, "
+            + "v.respiration, v.oxygen, v.blood_pressure, v.weight FROM vitals_records v "
+            + "JOIN users u ON u.user_id = v.user_id "
+            + "WHERE v.vitals_id = (SELECT l.vitals_id FROM vitals_records l WHERE l.user_id = v.user_id "
+            + "ORDER BY l.recorded_at DESC, l.vitals_id DESC LIMIT 1) AND v.user_id IN (%s)";
+
+    private static volatile WorkQueueEngine instance;
+
+    private final WorkLoader loader;
+    private final Executor reloads;
+    private final Map<Integer, WorkQueue> queues = new ConcurrentHashMap<>();
+    private final Map<Integer, Set<Integer>> doctorsByPatient = new ConcurrentHashMap<>();
+    private final Map<Integer, Set<Integer>> patientsByDoctor = new ConcurrentHashMap<>(); // as of the last load
+    private final Map<Integer, WorkItem> openVitals = new ConcurrentHashMap<>(); // patient -> latest abnormal reading
+    private final Map<Integer, Long> closedVitals = new ConcurrentHashMap<>(); // patient -> vitals_id a doctor dismissed
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder eventsApplied = new LongAdder();
+    private volatile EventBus.Subscription subscription;
+    private volatile ScheduledExecutorService refresher;
+
+    public WorkQueueEngine(WorkLoader loader, Executor reloads) {
+        this.loader = loader;
+        this.reloads = reloads;
+    }
+
+    /** The application's engine, subscribed to the event bus and refreshing in the background. */
+    public static WorkQueueEngine getInstance() {
+        WorkQueueEngine current = instance;
+        if (current == null) {
+            synchronized (WorkQueueEngine.class) {
+                current = instance;
+                if (current == null) {
+                    current = new WorkQueueEngine(databaseLoader(DatabaseHelper::getConnection), DbExecutor.get());
+                    current.install(EventBus.getInstance());
+                    long interval = Long.getLong("telehealth.workqueue.refreshIntervalMs", 60_000L);
+                    if (interval > 0) current.startRefresh(interval);
+                    instance = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    // ================== QUEUES ==================
+    /** The doctor's queue; empty until {@link #load} has run. */
+    public WorkQueue queue(int doctorId) {
+        return queues.computeIfAbsent(doctorId, WorkQueue::new);
+    }
+
+    /**
+     * Load (or reload) the doctor's queue from the database. The loaded vitals
+     * replace what events left behind, unless an event brought a newer reading.
+     * Call from a background thread.
+     */
+    public WorkQueue load(int doctorId) throws SQLException {
+        List<WorkItem> items = new ArrayList<>();
+        Map<Integer, WorkItem> loadedVitals = new HashMap<>();
+        for (WorkItem item : loader.load(doctorId)) {
+            if (item.kind() == WorkItem.Kind.VITALS) {
+                loadedVitals.put(item.patientId(), item);
+            } else {
+                items.add(item);
+            }
+        }
+        loads.increment();
+
+        Set<Integer> patients = new HashSet<>();
+        for (WorkItem item : items) {
+            patients.add(item.patientId());
+        }
+        track(doctorId, patients);
+        for (int patientId : patients) {
+            WorkItem vitals = currentVitals(patientId, loadedVitals.get(patientId));
+            if (vitals != null) items.add(vitals);
+        }
+        WorkQueue queue = queue(doctorId);
+        queue.replace(items, LOADED_KINDS);
+        return queue;
+    }
+
+    /** Reconcile a patient's open vitals alert with the latest abnormal reading just loaded (or null). */
+    private WorkItem currentVitals(int patientId, WorkItem loaded) {
+        Long closed = closedVitals.get(patientId);
+        if (loaded != null && closed != null && closed == loaded.sourceId()) {
+            loaded = null; // a doctor has already seen it
+        }
+        WorkItem open = openVitals.get(patientId);
+        if (open != null && (loaded == null || open.sourceId() > loaded.sourceId())) {
+            return open; // saved after the load read the table; a normal reading's event clears it
+        }
+        if (loaded != null) {
+            openVitals.put(patientId, loaded);
+        }
+        return loaded;
+    }
+
+    /** Record which patients the doctor has open items for, forgetting patients no doctor has any more. */
+    private void track(int doctorId, Set<Integer> patients) {
+        for (int patientId : patients) {
+            doctorsByPatient.computeIfAbsent(patientId, p -> ConcurrentHashMap.newKeySet()).add(doctorId);
+        }
+        Set<Integer> previous = patientsByDoctor.put(doctorId, Set.copyOf(patients));
+        if (previous == null) return;
+        for (int patientId : previous) {
+            if (patients.contains(patientId)) continue;
+            Set<Integer> remaining = doctorsByPatient.computeIfPresent(patientId, (p, doctors) -> {
+                doctors.remove(doctorId);
+                return doctors.isEmpty() ? null : doctors;
+            });
+            if (remaining == null) {
+                openVitals.remove(patientId);
+                closedVitals.remove(patientId);
+            }
+        }
+    }
+
+    // ================== EVENTS ==================
+    /** Subscribe to the bus and apply alerts that were still pending from before. */
+    public void install(EventBus bus) {
+        subscription = bus.subscribe(event -> true, envelope -> handle(envelope.event()));
+        for (EventEnvelope pending : bus.pendingAlerts()) {
+            handle(pending.event());
+        }
+    }
+
+    /** Apply one event to the queues it concerns. */
+    public void handle(ClinicalEvent event) {
+        if (event instanceof ClinicalEvent.VitalsRecorded vitals) {
+            applyVitals(vitals);
+        } else if (event instanceof ClinicalEvent.BookingChanged booking) {
+            if (queues.containsKey(booking.doctorId())) reloadLater(booking.doctorId());
+        } else if (event instanceof ClinicalEvent.EmergencyReferralCreated referral) {
+            reloads.execute(() -> {
+                try {
+                    ReferenceDataCache.getInstance().findByName(referral.referringDoctor(), ReferenceDataCache.ROLE_DOCTOR)
+                            .map(User::getId).filter(queues::containsKey).ifPresent(this::reloadNow);
+                } catch (SQLException e) {
+                    e.printStackTrace();
+                }
+            });
+        }
+        eventsApplied.increment();
+    }
+
+    private void applyVitals(ClinicalEvent.VitalsRecorded vitals) {
+        Set<Integer> doctors = doctorsByPatient.getOrDefault(vitals.patientId(), Set.of());
+        if (!vitals.priority().isAlert()) {
+            closedVitals.remove(vitals.patientId());
+            WorkItem cleared = openVitals.remove(vitals.patientId());
+            if (cleared != null) {
+                for (int doctorId : doctors) queue(doctorId).remove(WorkItem.Kind.VITALS, cleared.sourceId());
+            }
+            return;
+        }
+        if (doctors.isEmpty()) {
+            return; // nobody has the patient queued; a later load reads the reading from the table
+        }
+        closedVitals.remove(vitals.patientId());
+        WorkItem item = vitalsItem(vitals);
+        WorkItem previous = openVitals.put(vitals.patientId(), item);
+        for (int doctorId : doctors) {
+            WorkQueue queue = queue(doctorId);
+            if (previous != null && previous.sourceId() != item.sourceId()) {
+                queue.remove(WorkItem.Kind.VITALS, previous.sourceId());
+            }
+            queue.upsert(item);
+        }
+    }
+
+    /** The doctor has dealt with the item; a vitals alert is also closed for other doctors. */
+    public void dismiss(int doctorId, WorkItem item) {
+        queue(doctorId).dismiss(item);
+        if (item.kind() == WorkItem.Kind.VITALS && openVitals.remove(item.patientId(), item)) {
+            closedVitals.put(item.patientId(), item.sourceId());
+            for (int other : doctorsByPatient.getOrDefault(item.patientId(), Set.of())) {
+                queue(other).remove(WorkItem.Kind.VITALS, item.sourceId());
+            }
+        }
+    }
+
+    /** The queue item for an abnormal reading. */
+    private static WorkItem vitalsItem(ClinicalEvent.VitalsRecorded vitals) {
+        return new WorkItem(WorkItem.Kind.VITALS, vitals.vitalsId(), vitals.patientId(), vitals.patientName(),
+                vitals.status().isCritical() ? WorkItem.TIER_CRITICAL : WorkItem.TIER_URGENT,
+                LocalDateTime.ofInstant(Instant.ofEpochMilli(vitals.occurredAt()), ZoneId.systemDefault()),
+                vitals.detail());
+    }
+
+    private void reloadLater(int doctorId) {
+        reloads.execute(() -> reloadNow(doctorId));
+    }
+
+    private void reloadNow(int doctorId) {
+        try {
+            load(doctorId);
+        } catch (SQLException e) {
+            System.err.println("Work queue reload for doctor " + doctorId + " failed: " + e.getMessage());
+        }
+    }
+
+    void startRefresh(long intervalMs) {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "telehealth-workqueue-refresh");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        executor.scheduleWithFixedDelay(() -> queues.keySet().forEach(this::reloadLater),
+                intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        refresher = executor;
+    }
+
+    // ================== DATABASE ==================
+    /**
+     * Reads the doctor's bookings, appointments and referrals by doctor id,
+     * then the latest vitals of those patients. A reading is queued if it is
+     * out of range on the absolute limits; baseline alerts need the history
+     * and still arrive as events.
+     */
+    public static WorkLoader databaseLoader(ConnectionPool.ConnectionFactory connections) {
+        return doctorId -> {
+            List<WorkItem> items = new ArrayList<>();
+            try (Connection conn = connections.create()) {
+                query(conn, OPEN_BOOKINGS, doctorId, rs -> items.add(new WorkItem(WorkItem.Kind.BOOKING,
+                        rs.getLong("booking_id"), rs.getInt("patient_id"), rs.getString("name"),
+                        WorkItem.TIER_ROUTINE, at(rs.getString("appointment_date"), rs.getString("appointment_time")),
+                        rs.getString("symptoms"))));
+                query(conn, OPEN_APPOINTMENTS, doctorId, rs -> items.add(new WorkItem(WorkItem.Kind.APPOINTMENT,
+                        rs.getLong("id"), rs.getInt("patient_id"), rs.getString("patient_name"),
+                        WorkItem.TIER_ROUTINE, at(rs.getString("appointment_date"), rs.getString("appointment_time")),
+                        rs.getString("appointment_type"))));
+                query(conn, PENDING_REFERRALS, doctorId, rs -> {
+                    String preferred = rs.getString("preferred_appointment_date");
+                    items.add(new WorkItem(WorkItem.Kind.REFERRAL, rs.getLong("referral_id"), rs.getInt("patient_id"),
+                            rs.getString("patient_name"), WorkItem.referralTier(rs.getString("urgency_level")),
+                            at(preferred != null ? preferred : rs.getString("referral_date"), null),
+                            rs.getString("hospital_name") + " - " + rs.getString("department")));
+                });
+                Set<Integer> patients = new TreeSet<>();
+                for (WorkItem item : items) {
+                    patients.add(item.patientId());
+                }
+                if (!patients.isEmpty()) {
+                    items.addAll(abnormalVitals(conn, patients));
+                }
+            }
+            return items;
+        };
+    }
+
+    private static List<WorkItem> abnormalVitals(Connection conn, Set<Integer> patients) throws SQLException {
+        List<WorkItem> items = new ArrayList<>();
+        String sql = String.format(LATEST_VITALS, String.join(", ", Collections.nCopies(patients.size(), "?")));
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            int index = 1;
+            for (int patientId : patients) {
+                ps.setInt(index++, patientId);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    VitalsReading reading = VitalsStore.map(rs, rs.getInt("user_id"));
+                    ClinicalEvent.VitalsRecorded vitals = ClinicalEvent.VitalsRecorded.of(
+                            VitalsAssessment.absolute(reading), rs.getString("name"));
+                    if (vitals.priority().isAlert()) {
+                        items.add(vitalsItem(vitals));
+                    }
+                }
+            }
+        }
+        return items;
+    }
+
+    @FunctionalInterface
+    private interface RowReader {
+        void read(ResultSet rs) throws SQLException;
+    }
+
+    private static void query(Connection conn, String sql, int doctorId, RowReader reader) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, doctorId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    reader.read(rs);
+                }
+            }
+        }
+    }
+
+    /** DATE and TIME columns as read with getString; a missing time means the start of the day. */
+    private static LocalDateTime at(String date, String time) {
+        if (date == null) return null;
+        LocalDate day = LocalDate.parse(date.length() > 10 ? date.substring(0, 10) : date);
+        return time != null ? day.atTime(LocalTime.parse(time)) : day.atStartOfDay();
+    }
+
+    // ================== METRICS ==================
+    public String metrics() {
+        int items = queues.values().stream().mapToInt(WorkQueue::size).sum();
+        return String.format(Locale.ROOT, "doctors=%d items=%d patients=%d openVitals=%d loads=%d events=%d",
+                queues.size(), items, doctorsByPatient.size(), openVitals.size(), loads.sum(), eventsApplied.sum());
+    }
+
+    @Override
+    public void close() {
+        EventBus.Subscription current = subscription;
+        if (current != null) current.close();
+        ScheduledExecutorService executor = refresher;
+        if (executor != null) executor.shutdownNow();
+    }
+
+    /** Unsubscribe the shared engine and stop its refresh thread, e.g. when the application exits. */
+    public static synchronized void shutdown() {
+        if (instance != null) {
+            instance.close();
+            instance = null;
+        }
+    }
+}
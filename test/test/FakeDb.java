@@ -0,0 +1,318 @@
+package test;
+
+import database.ConnectionPool;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * In-memory stand-in for the database, so services can be tested without
+ * MySQL. Each {@link #connect()} hands out a JDBC Connection whose statements
+ * record their set* parameters and batches; executeQuery, executeUpdate (and
+ * each batched row) and execute are answered by the first route whose SQL
+ * predicate matches. Queries with no route return no rows, updates change one
+ * row and execute does nothing.
+ *
+ * Rows are maps read by column label, or by position using the keys "1",
+ * "2", ...; a missing column reads as SQL NULL.
+ */
+final class FakeDb {
+
+    /** One execution of a statement: its SQL and the parameters set by index. */
+    static final class Call {
+        private final String sql;
+        private final Map<Integer, Object> params;
+        private final List<Long> generatedKeys = new ArrayList<>();
+
+        Call(String sql, Map<Integer, Object> params) {
+            this.sql = sql;
+            this.params = params;
+        }
+
+        String sql() { return sql; }
+        /** Parameters in index order; setNull leaves a null. */
+        Map<Integer, Object> params() { return params; }
+        Object param(int index) { return params.get(index); }
+        int intParam(int index) { return ((Number) params.get(index)).intValue(); }
+        long longParam(int index) { return ((Number) params.get(index)).longValue(); }
+        /** Keys an update route adds here are returned by getGeneratedKeys. */
+        List<Long> generatedKeys() { return generatedKeys; }
+
+        @Override
+        public String toString() {
+            return sql + " " + params.values();
+        }
+    }
+
+    @FunctionalInterface
+    interface Query {
+        List<? extends Map<String, ?>> rows(Call call) throws SQLException;
+    }
+
+    @FunctionalInterface
+    interface Update {
+        int rows(Call call) throws SQLException;
+    }
+
+    private record Route<T>(Predicate<String> sql, T answer) {
+    }
+
+    private final List<Route<Query>> queries = new CopyOnWriteArrayList<>();
+    private final List<Route<Update>> updates = new CopyOnWriteArrayList<>();
+    private final List<Route<Update>> executes = new CopyOnWriteArrayList<>();
+    private final List<Consumer<Call>> batchListeners = new CopyOnWriteArrayList<>();
+    private final List<Runnable> commitListeners = new CopyOnWriteArrayList<>();
+
+    private volatile LongSupplier nextKey;
+
+    private final AtomicInteger opened = new AtomicInteger();
+    private final AtomicInteger prepared = new AtomicInteger();
+    private final List<Call> executed = Collections.synchronizedList(new ArrayList<>());
+    private final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+
+    // ================== ROUTES ==================
+    /** Answer every query with these rows unless a more specific route matches first. */
+    FakeDb rows(List<? extends Map<String, ?>> rows) {
+        return onQuery(sql -> true, call -> rows);
+    }
+
+    FakeDb onQuery(Predicate<String> sql, Query answer) {
+        queries.add(new Route<>(sql, answer));
+        return this;
+    }
+
+    /** Route queries whose SQL contains the fragment. */
+    FakeDb onQuery(String fragment, Query answer) {
+        return onQuery(sql -> sql.contains(fragment), answer);
+    }
+
+    /** Route executeUpdate calls and batched rows. */
+    FakeDb onUpdate(Predicate<String> sql, Update answer) {
+        updates.add(new Route<>(sql, answer));
+        return this;
+    }
+
+    FakeDb onUpdate(String fragment, Update answer) {
+        return onUpdate(sql -> sql.contains(fragment), answer);
+    }
+
+    /** Route execute calls, e.g. DDL; the count is ignored. */
+    FakeDb onExecute(Predicate<String> sql, Update answer) {
+        executes.add(new Route<>(sql, answer));
+        return this;
+    }
+
+    /** getGeneratedKeys after an update whose route added no keys returns one key from next. */
+    FakeDb generatedKeys(LongSupplier next) {
+        nextKey = next;
+        return this;
+    }
+
+    /** Told of every addBatch with the parameters set so far. */
+    FakeDb onBatch(Consumer<Call> listener) {
+        batchListeners.add(listener);
+        return this;
+    }
+
+    FakeDb onCommit(Runnable listener) {
+        commitListeners.add(listener);
+        return this;
+    }
+
+    // ================== RECORDINGS ==================
+    /** Connections handed out so far. */
+    int opened() { return opened.get(); }
+
+    /** Statements prepared so far, over all connections. */
+    int prepared() { return prepared.get(); }
+
+    /** Executed queries and updates, in order. */
+    List<Call> executed() {
+        synchronized (executed) {
+            return List.copyOf(executed);
+        }
+    }
+
+    /** Executed statements whose SQL contains the fragment. */
+    List<Call> executed(String fragment) {
+        return executed().stream().filter(call -> call.sql().contains(fragment)).toList();
+    }
+
+    /** The statement executed last. */
+    Call last() {
+        synchronized (executed) {
+            return executed.get(executed.size() - 1);
+        }
+    }
+
+    /** Rows sent by each executeBatch, in order. */
+    List<Integer> batchSizes() {
+        synchronized (batchSizes) {
+            return List.copyOf(batchSizes);
+        }
+    }
+
+    void clear() {
+        executed.clear();
+        batchSizes.clear();
+    }
+
+    // ================== JDBC ==================
+    ConnectionPool.ConnectionFactory factory() {
+        return this::connect;
+    }
+
+    Connection connect() {
+        opened.incrementAndGet();
+        boolean[] state = {false, true}; // closed, autoCommit
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "close": state[0] = true; return null;
+                case "isClosed": return state[0];
+                case "isValid": return !state[0];
+                case "getAutoCommit": return state[1];
+                case "setAutoCommit": state[1] = (Boolean) args[0]; return null;
+                case "commit": commitListeners.forEach(Runnable::run); return null;
+                case "prepareStatement":
+                    prepared.incrementAndGet();
+                    return statement((String) args[0]);
+                case "hashCode": return System.identityHashCode(proxy);
+                case "equals": return proxy == args[0];
+                default: return null;
+            }
+        });
+    }
+
+    private PreparedStatement statement(String sql) {
+        Map<Integer, Object> params = new TreeMap<>();
+        List<Call> batch = new ArrayList<>();
+        boolean[] closed = {false};
+        Call[] last = {null};
+        return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+            String name = method.getName();
+            if (name.equals("setNull")) {
+                params.put((Integer) args[0], null);
+                return null;
+            }
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                params.put(index, args[1]);
+                return null;
+            }
+            switch (name) {
+                case "clearParameters":
+                    params.clear();
+                    return null;
+                case "addBatch": {
+                    Call call = new Call(sql, new TreeMap<>(params));
+                    batch.add(call);
+                    batchListeners.forEach(listener -> listener.accept(call));
+                    return null;
+                }
+                case "executeBatch": {
+                    int[] counts = new int[batch.size()];
+                    for (int i = 0; i < counts.length; i++) {
+                        counts[i] = update(batch.get(i));
+                    }
+                    batchSizes.add(counts.length);
+                    batch.clear();
+                    return counts;
+                }
+                case "clearBatch":
+                    batch.clear();
+                    return null;
+                case "executeQuery":
+                    last[0] = new Call(sql, new TreeMap<>(params));
+                    executed.add(last[0]);
+                    return resultSet(query(last[0]));
+                case "executeUpdate":
+                    last[0] = new Call(sql, new TreeMap<>(params));
+                    executed.add(last[0]);
+                    return update(last[0]);
+                case "execute":
+                    last[0] = new Call(sql, new TreeMap<>(params));
+                    executed.add(last[0]);
+                    answer(executes, last[0], 0);
+                    return false;
+                case "getGeneratedKeys": {
+                    List<Map<String, Object>> keys = new ArrayList<>();
+                    if (last[0] != null) {
+                        LongSupplier next = nextKey;
+                        if (last[0].generatedKeys().isEmpty() && next != null) {
+                            last[0].generatedKeys().add(next.getAsLong());
+                        }
+                        for (long key : last[0].generatedKeys()) keys.add(Map.of("1", key));
+                    }
+                    return resultSet(keys);
+                }
+                case "close": closed[0] = true; return null;
+                case "isClosed": return closed[0];
+                case "hashCode": return System.identityHashCode(proxy);
+                case "equals": return proxy == args[0];
+                default: return null;
+            }
+        });
+    }
+
+    private List<? extends Map<String, ?>> query(Call call) throws SQLException {
+        for (Route<Query> route : queries) {
+            if (route.sql().test(call.sql())) return route.answer().rows(call);
+        }
+        return List.of();
+    }
+
+    private int update(Call call) throws SQLException {
+        return answer(updates, call, 1);
+    }
+
+    private static int answer(List<Route<Update>> routes, Call call, int unrouted) throws SQLException {
+        for (Route<Update> route : routes) {
+            if (route.sql().test(call.sql())) return route.answer().rows(call);
+        }
+        return unrouted;
+    }
+
+    // ================== RESULT SETS ==================
+    static ResultSet resultSet(Map<String, ?> row) {
+        return resultSet(List.of(row));
+    }
+
+    static ResultSet resultSet(List<? extends Map<String, ?>> rows) {
+        int[] cursor = {-1};
+        boolean[] lastWasNull = {false};
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "next": return ++cursor[0] < rows.size();
+                case "wasNull": return lastWasNull[0];
+                case "getString":
+                case "getInt":
+                case "getLong":
+                case "getFloat":
+                case "getTimestamp":
+                    Object value = rows.get(cursor[0]).get(String.valueOf(args[0]));
+                    lastWasNull[0] = value == null;
+                    if (method.getName().equals("getInt")) return value == null ? 0 : ((Number) value).intValue();
+                    if (method.getName().equals("getLong")) return value == null ? 0L : ((Number) value).longValue();
+                    if (method.getName().equals("getFloat")) return value == null ? 0f : ((Number) value).floatValue();
+                    if (method.getName().equals("getTimestamp")) return value;
+                    return value == null ? null : value.toString();
+                default: return null;
+            }
+        });
+    }
+}
@@ -2,12 +2,121 @@ package test;
 
 import models.Appointment;
 import models.Diagnosis;
+import models.HealthReportData;
 import models.HospitalReferral;
 import models.User;
+import navigation.AppView;
+import navigation.RefreshableView;
+import navigation.ViewRegistry;
+import referrals.Department;
+import referrals.MatchingConfig;
+import referrals.PendingReferral;
+import referrals.ReferralMatcher;
+import referrals.ReferralMatchingService;
+import referrals.SlotAssignment;
+import reports.BatchProgress;
+import reports.BatchReportConfig;
+import reports.BatchReportEngine;
+import reports.HealthReportFormatter;
+import database.AvailabilityIndex;
+import database.ConnectionPool;
 import database.DatabaseHelper;
-import utils.SessionData;
+import database.BookingFilter;
+import database.HealthReportLoader;
+import database.KeysetPager;
+import database.PoolConfig;
+import database.PoolMetrics;
+import database.ReferenceDataCache;
+import database.SlotConflictException;
+import events.AlertOutbox;
+import events.ClinicalEvent;
+import events.EventBus;
+import events.EventEnvelope;
+import events.EventPriority;
+import events.RingBuffer;
+import events.VitalsAlertPublisher;
+import loadtest.ClinicDataSeeder;
+import loadtest.ClinicLoadGenerator;
+import loadtest.LoadTestConfig;
+import loadtest.OperationMix;
+import migration.IdBackfillMigration;
+import migration.Migration;
+import migration.MigrationConfig;
+import migration.MigrationReport;
+import migration.MigrationRunner;
+import migration.TelehealthMigrations;
+import search.ClinicalDocument;
+import search.ClinicalSearchIndex;
+import search.InvertedIndex;
+import search.PatientDirectory;
+import search.SearchConfig;
+import search.SearchHit;
+import search.TextAnalyzer;
+import security.AuthConfig;
+import security.LoginThrottledException;
+import security.PasswordHasher;
+import security.TokenBucketLimiter;
+import services.ApiServer;
+import services.AuthService;
+import services.BookingService;
+import services.DiagnosisService;
+import services.ReferralService;
+import services.ReportService;
+import services.VitalsService;
+import session.SessionContext;
+import session.SessionStore;
+import suggestions.SuggestionConfig;
+import suggestions.SuggestionEngine;
+import suggestions.SuggestionRules;
+import utils.FlatJson;
+import vitals.AnomalyEngine;
+import vitals.Metric;
+import vitals.MetricBaseline;
+import vitals.MetricFinding;
+import vitals.VitalStatus;
+import vitals.VitalsAssessment;
+import vitals.VitalsIngestConfig;
+import vitals.VitalsIngestService;
+import vitals.VitalsReading;
+import vitals.VitalsSeries;
+import vitals.VitalsStore;
+import vitals.VitalsSubmission;
+import vitals.VitalsValidator;
+import workqueue.IndexedHeap;
+import workqueue.WorkItem;
+import workqueue.WorkQueue;
+import workqueue.WorkQueueEngine;
 
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import utils.FilterEngine;
+import utils.LatencyHistogram;
+import utils.StartupTimeline;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.util.Duration;
 
 /**
  * TELEHEALTH SYSTEM - COMPREHENSIVE TEST PLAN
@@ -61,6 +170,29 @@ public class TelehealthTestRunner {
         testBusinessLogicValidation();
         testEdgeCasesAndErrorHandling();
         testIntegrationWorkflows();
+        testConnectionPool();
+        testHealthReportLoader();
+        testBatchReportEngine();
+        testKeysetPagination();
+        testFilterEngine();
+        testReferenceDataCache();
+        testAvailabilityIndex();
+        testVitalsTimeSeries();
+        testVitalsIngestion();
+        testAnomalyDetection();
+        testClinicalEvents();
+        testServiceLayer();
+        testLoadGenerator();
+        testAuthentication();
+        testSessionStore();
+        testViewRegistry();
+        testStartupTimeline();
+        testSchemaMigrations();
+        testClinicalSearch();
+        testPatientLookup();
+        testWorkQueue();
+        testReferralMatching();
+        testSuggestionRules();
         
         // Print final summary
         printFinalSummary();
@@ -320,51 +452,44 @@ public class TelehealthTestRunner {
     private static void testSessionDataManagement() {
         System.out.println("\n>>> TESTING SESSION DATA MANAGEMENT <<<");
         
-        // Clear session data first
-        SessionData.patientName = null;
-        SessionData.specialistName = null;
-        SessionData.appointmentDate = null;
-        SessionData.appointmentTime = null;
-        SessionData.medicationName = null;
-        SessionData.medicationQuantity = null;
-        SessionData.vitals.clear();
+        // A fresh session has no drafts
+        SessionContext fresh = SessionContext.of("test-session", 1, TEST_PATIENT, "patient");
         
         // Test 16: Appointment Session Data
         test("Appointment Session Data", () -> {
-            SessionData.patientName = TEST_PATIENT;
-            SessionData.specialistName = TEST_SPECIALIST;
-            SessionData.appointmentDate = FUTURE_DATE;
-            SessionData.appointmentTime = TIME_SLOT;
+            SessionContext session = fresh.withBooking(TEST_PATIENT, TEST_SPECIALIST, FUTURE_DATE, TIME_SLOT);
             
-            assertEquals("Session patient name", TEST_PATIENT, SessionData.patientName);
-            assertEquals("Session specialist", TEST_SPECIALIST, SessionData.specialistName);
-            assertEquals("Session date", FUTURE_DATE, SessionData.appointmentDate);
-            assertEquals("Session time", TIME_SLOT, SessionData.appointmentTime);
+            assertEquals("Session patient name", TEST_PATIENT, session.patientName());
+            assertEquals("Session specialist", TEST_SPECIALIST, session.specialistName());
+            assertEquals("Session date", FUTURE_DATE, session.appointmentDate());
+            assertEquals("Session time", TIME_SLOT, session.appointmentTime());
+            assertTrue("Original context is unchanged", fresh.patientName() == null);
         });
         
         // Test 17: Prescription Session Data
         test("Prescription Session Data", () -> {
-            SessionData.medicationName = "Amoxicillin";
-            SessionData.medicationQuantity = "30 tablets";
+            SessionContext session = fresh.withRefill("Amoxicillin", "30 tablets");
             
-            assertEquals("Medication name", "Amoxicillin", SessionData.medicationName);
-            assertEquals("Medication quantity", "30 tablets", SessionData.medicationQuantity);
+            assertEquals("Medication name", "Amoxicillin", session.medicationName());
+            assertEquals("Medication quantity", "30 tablets", session.medicationQuantity());
+            assertTrue("Cleared refill", session.clearRefill().medicationName() == null);
         });
         
         // Test 18: Vitals Session Data
         test("Vitals Session Data", () -> {
-            SessionData.vitals.put("Pulse", "75");
-            SessionData.vitals.put("Temperature", "37.0");
-            SessionData.vitals.put("Respiration", "16");
-            SessionData.vitals.put("Oxygen", "98");
-            SessionData.vitals.put("BP", "120/80");
+            SessionContext session = fresh.withVital("Pulse", "75")
+                    .withVital("Temperature", "37.0")
+                    .withVital("Respiration", "16")
+                    .withVital("Oxygen", "98")
+                    .withVital("BP", "120/80");
             
-            assertEquals("Pulse", "75", SessionData.vitals.get("Pulse"));
-            assertEquals("Temperature", "37.0", SessionData.vitals.get("Temperature"));
-            assertEquals("Respiration", "16", SessionData.vitals.get("Respiration"));
-            assertEquals("Oxygen", "98", SessionData.vitals.get("Oxygen"));
-            assertEquals("BP", "120/80", SessionData.vitals.get("BP"));
-            assertEquals("Vitals count", 5, SessionData.vitals.size());
+            assertEquals("Pulse", "75", session.vital("Pulse"));
+            assertEquals("Temperature", "37.0", session.vital("Temperature"));
+            assertEquals("Respiration", "16", session.vital("Respiration"));
+            assertEquals("Oxygen", "98", session.vital("Oxygen"));
+            assertEquals("BP", "120/80", session.vital("BP"));
+            assertEquals("Vitals count", 5, session.vitals().size());
+            assertEquals("Original has no vitals", 0, fresh.vitals().size());
         });
     }
     
@@ -500,8 +625,8 @@ public class TelehealthTestRunner {
             assertEquals("Empty username should be preserved", "", user.getUsername());
             assertEquals("Empty password should be preserved", "", user.getPassword());
             
-            SessionData.vitals.put("Pulse", "");
-            assertEquals("Empty vital should be preserved", "", SessionData.vitals.get("Pulse"));
+            SessionContext session = SessionContext.of("edge", 1, "", "").withVital("Pulse", "");
+            assertEquals("Empty vital should be preserved", "", session.vital("Pulse"));
         });
         
         // Test 28: Special Characters Handling
@@ -511,10 +636,11 @@ public class TelehealthTestRunner {
             assertEquals("Special chars in username", "maria.garcia@test.com", specialUser.getUsername());
             assertEquals("Special chars in password", "P@ssw0rd!", specialUser.getPassword());
             
-            SessionData.vitals.put("BP", "120/80 mmHg");
-            SessionData.vitals.put("Temperature", "37.5°C");
-            assertEquals("Special chars in vitals", "120/80 mmHg", SessionData.vitals.get("BP"));
-            assertEquals("Unicode in vitals", "37.5°C", SessionData.vitals.get("Temperature"));
+            SessionContext session = SessionContext.of("special", 1, specialUser.getName(), "patient")
+                    .withVital("BP", "120/80 mmHg")
+                    .withVital("Temperature", "37.5°C");
+            assertEquals("Special chars in vitals", "120/80 mmHg", session.vital("BP"));
+            assertEquals("Unicode in vitals", "37.5°C", session.vital("Temperature"));
         });
     }
     
@@ -527,26 +653,27 @@ public class TelehealthTestRunner {
         
         // Test 29: Complete Patient Journey
         test("Complete Patient Journey", () -> {
+            SessionStore store = new SessionStore(60_000, System::currentTimeMillis);
+            String id = store.open(1, TEST_PATIENT, "patient").sessionId();
+            
             // Step 1: Patient books appointment
-            SessionData.patientName = TEST_PATIENT;
-            SessionData.specialistName = TEST_SPECIALIST;
-            SessionData.appointmentDate = FUTURE_DATE;
-            SessionData.appointmentTime = TIME_SLOT;
+            store.update(id, s -> s.withBooking(TEST_PATIENT, TEST_SPECIALIST, FUTURE_DATE, TIME_SLOT));
             
             // Step 2: Patient records vitals
-            SessionData.vitals.clear();
-            SessionData.vitals.put("Pulse", "82");
-            SessionData.vitals.put("Temperature", "37.2");
-            SessionData.vitals.put("BP", "140/90");
+            store.update(id, s -> s.clearVitals()
+                    .withVital("Pulse", "82")
+                    .withVital("Temperature", "37.2")
+                    .withVital("BP", "140/90"));
             
             // Step 3: Patient requests prescription
-            SessionData.medicationName = "Lisinopril";
-            SessionData.medicationQuantity = "30 tablets";
+            store.update(id, s -> s.withRefill("Lisinopril", "30 tablets"));
             
             // Verify data integrity throughout workflow
-            assertEquals("Patient name preserved", TEST_PATIENT, SessionData.patientName);
-            assertEquals("Vitals recorded", 3, SessionData.vitals.size());
-            assertEquals("Prescription requested", "Lisinopril", SessionData.medicationName);
+            SessionContext session = store.get(id);
+            assertEquals("Patient name preserved", TEST_PATIENT, session.patientName());
+            assertEquals("Vitals recorded", 3, session.vitals().size());
+            assertEquals("Prescription requested", "Lisinopril", session.medicationName());
+            store.close();
         });
         
         // Test 30: Doctor-Patient Interaction
@@ -573,6 +700,2647 @@ public class TelehealthTestRunner {
         });
     }
     
+    // ==========================================
+    // CONNECTION POOL TESTS
+    // ==========================================
+    
+    private static void testConnectionPool() {
+        System.out.println("\n>>> TESTING CONNECTION POOL <<<");
+        
+        // Test 31: Connections are reused after close()
+        test("Pool Connection Reuse", () -> {
+            FakeDb db = new FakeDb();
+            try (ConnectionPool pool = new ConnectionPool(testPoolConfig(0, 2), db.factory())) {
+                Connection first = pool.borrow();
+                first.close();
+                Connection second = pool.borrow();
+                second.close();
+                
+                assertEquals("Physical connections opened", 1, db.opened());
+                assertTrue("Returned proxy reports closed", first.isClosed());
+                assertEquals("Borrow count", 2L, pool.getMetrics().getBorrowCount());
+                assertEquals("Idle after return", 1, pool.getMetrics().getIdle());
+            }
+        });
+        
+        // Test 32: Exhausted pool times out instead of opening more connections
+        test("Pool Max Size And Timeout", () -> {
+            FakeDb db = new FakeDb();
+            try (ConnectionPool pool = new ConnectionPool(testPoolConfig(0, 1), db.factory())) {
+                Connection held = pool.borrow();
+                boolean timedOut = false;
+                try {
+                    pool.borrow();
+                } catch (SQLException e) {
+                    timedOut = true;
+                }
+                assertTrue("Second borrow should time out", timedOut);
+                
+                PoolMetrics metrics = pool.getMetrics();
+                assertEquals("Active connections", 1, metrics.getActive());
+                assertEquals("Timeouts recorded", 1L, metrics.getTimeoutCount());
+                assertEquals("Never exceeds max size", 1, db.opened());
+                held.close();
+            }
+        });
+        
+        // Test 33: Statements left open by callers are closed on return
+        test("Pool Closes Leaked Statements", () -> {
+            try (ConnectionPool pool = new ConnectionPool(testPoolConfig(0, 1), new FakeDb().factory())) {
+                Connection conn = pool.borrow();
+                PreparedStatement ps = conn.prepareStatement("SELECT 1");
+                assertFalse("Statement open while borrowed", ps.isClosed());
+                conn.close();
+                assertTrue("Statement closed on return", ps.isClosed());
+                
+                boolean rejected = false;
+                try {
+                    conn.prepareStatement("SELECT 1");
+                } catch (SQLException e) {
+                    rejected = true;
+                }
+                assertTrue("Returned connection cannot be used", rejected);
+            }
+        });
+        
+        // Test 34: Latency histogram percentiles
+        test("Latency Histogram Percentiles", () -> {
+            LatencyHistogram histogram = new LatencyHistogram();
+            for (int i = 0; i < 99; i++) {
+                histogram.record(500_000);      // 0.5 ms
+            }
+            histogram.record(50_000_000);       // 50 ms outlier
+            
+            assertEquals("Sample count", 100L, histogram.getCount());
+            assertTrue("p50 near 0.5 ms", histogram.getPercentileMillis(50) <= 1.1);
+            assertTrue("p100 captures outlier", histogram.getPercentileMillis(100) >= 50.0);
+            assertEquals("Max", 50.0, histogram.getMaxMillis());
+        });
+    }
+    
+    private static PoolConfig testPoolConfig(int min, int max) {
+        PoolConfig config = new PoolConfig();
+        config.setMinSize(min);
+        config.setMaxSize(max);
+        config.setConnectionTimeoutMs(200);
+        config.setHousekeepingIntervalMs(60_000);
+        return config;
+    }
+    
+    // ==========================================
+    // HEALTH REPORT LOADER TESTS
+    // ==========================================
+    
+    private static void testHealthReportLoader() {
+        System.out.println("\n>>> TESTING HEALTH REPORT LOADER <<<");
+        
+        // Test 35: Whole report is read with one statement
+        test("Health Report Single Round Trip", () -> {
+            Map<String, Object> row = new HashMap<>();
+            row.put("patient_name", TEST_PATIENT);
+            row.put("booking_id", 12);
+            row.put("appointment_date", FUTURE_DATE.toString());
+            row.put("appointment_time", "10:00:00");
+            row.put("doctor_id", 3);
+            row.put("doctor_name", TEST_DOCTOR);
+            row.put("vitals_id", 7);
+            row.put("pulse", "72");
+            row.put("temperature", "36.80");
+            row.put("respiration", "16");
+            row.put("blood_pressure", "120/80");
+            row.put("oxygen", "98.00");
+            row.put("refill_id", 4);
+            row.put("medication_name", "Amoxicillin");
+            row.put("quantity", 30);
+            row.put("refill_status", "Pending");
+            
+            FakeDb db = new FakeDb().rows(List.of(row));
+            HealthReportData data = new HealthReportLoader().load(db.connect(), 5);
+            
+            assertEquals("Statements prepared", 1, db.prepared());
+            assertEquals("Patient name", TEST_PATIENT, data.patientName());
+            assertEquals("Doctor name", TEST_DOCTOR, data.latestBooking().doctorName());
+            assertEquals("Generated by doctor", 3, data.generatedByDoctorId());
+            assertEquals("Latest vitals id", 7, data.latestVitalsId());
+            assertEquals("Blood pressure", "120/80", data.latestVitals().bloodPressure());
+            assertEquals("Refill quantity", 30, data.latestRefill().quantity());
+            assertEquals("Refill status", "Pending", data.latestRefill().status());
+        });
+        
+        // Test 36: Patient without bookings, vitals or refills
+        test("Health Report Empty Sections", () -> {
+            Map<String, Object> row = new HashMap<>();
+            row.put("patient_name", TEST_PATIENT);
+            
+            HealthReportData data = new HealthReportLoader().load(new FakeDb().rows(List.of(row)).connect(), 5);
+            
+            assertEquals("Patient name", TEST_PATIENT, data.patientNameOrDefault());
+            assertFalse("No booking", data.hasBooking());
+            assertFalse("No vitals", data.hasVitals());
+            assertFalse("No refill", data.hasRefill());
+            assertEquals("Booking id defaults to 0", 0, data.latestBookingId());
+        });
+    }
+    
+    // ==========================================
+    // BATCH REPORT ENGINE TESTS
+    // ==========================================
+    
+    private static void testBatchReportEngine() {
+        System.out.println("\n>>> TESTING BATCH REPORT ENGINE <<<");
+        
+        // Test 37: Keyset pages resume after the checkpoint and are batch inserted; failed patients are retried first
+        test("Batch Report Resume From Checkpoint", () -> {
+            Path dir = Files.createTempDirectory("telehealth-batch");
+            Path checkpointFile = dir.resolve("batch.checkpoint");
+            Path retryFile = dir.resolve("batch.checkpoint.retry");
+            Files.writeString(checkpointFile, "4");
+            
+            BatchReportConfig config = new BatchReportConfig();
+            config.setChunkSize(2);
+            config.setParallelism(2);
+            config.setOutputDirectory(dir.resolve("out"));
+            config.setCheckpointFile(checkpointFile);
+            
+            List<Integer> inserted = new ArrayList<>();
+            List<BatchProgress> progress = new ArrayList<>();
+            FakeDb db = batchDb(List.of(2, 4, 6, 8, 10), inserted, Set.of());
+            BatchReportEngine engine = new BatchReportEngine(config, db.factory());
+            BatchProgress result = engine.run(progress::add);
+            
+            assertEquals("Reports generated", 3L, result.getGenerated());
+            assertEquals("Remaining patients counted", 3L, result.getTotal());
+            assertEquals("Batch sizes", List.of(2, 1), db.batchSizes());
+            assertEquals("Progress per page", 2, progress.size());
+            assertEquals("Last user", 10, result.getLastUserId());
+            assertTrue("Report file written", Files.readString(dir.resolve("out").resolve("HealthReport_6.txt")).contains(TEST_PATIENT));
+            assertFalse("Skipped patient before checkpoint", Files.exists(dir.resolve("out").resolve("HealthReport_4.txt")));
+            assertFalse("Checkpoint cleared after completion", Files.exists(checkpointFile));
+            
+            BatchReportEngine failing = new BatchReportEngine(config,
+                    batchDb(List.of(2, 4, 6, 8, 10), inserted, Set.of(6)).factory());
+            result = failing.run(null);
+            assertEquals("Others still generated", 4L, result.getGenerated());
+            assertEquals("Failure counted", 1L, result.getFailed());
+            assertFalse("Completed run leaves no checkpoint", Files.exists(checkpointFile));
+            assertEquals("Failed patient kept for retry", "6", Files.readString(retryFile).trim());
+            
+            inserted.clear();
+            result = engine.run(null);
+            assertEquals("Rerun generates every patient", 5L, result.getGenerated());
+            assertEquals("Failed patient retried first", 6, inserted.get(0));
+            assertEquals("No duplicate inserts", 5, new HashSet<>(inserted).size());
+            assertEquals("Each patient inserted once", 5, inserted.size());
+            assertFalse("Retry list cleared once it succeeds", Files.exists(retryFile));
+            assertFalse("Checkpoint cleared", Files.exists(checkpointFile));
+        });
+        
+        // Test 38: Formatter flags abnormal vitals and advises from stored vitals
+        test("Report Formatter Vitals And Advice", () -> {
+            HealthReportData data = new HealthReportData(1, TEST_PATIENT, null,
+                    new HealthReportData.Vitals(1, "72", "38.2", "16", "120/80", "98"), null);
+            String text = new HealthReportFormatter().format(data, LocalDateTime.now(), null);
+            
+            assertTrue("Temperature flagged", text.contains("Temperature: 38.2 (36.0–37.5 °C) → High Alert"));
+            assertTrue("Advice from stored vitals", text.contains("high temperature"));
+            assertTrue("No refill section", text.contains("No prescription refill found."));
+        });
+    }
+    
+    /**
+     * Serves the patient page, count and report queries and records inserted
+     * user_ids; loading the report of a patient in failing throws.
+     */
+    private static FakeDb batchDb(List<Integer> patientIds, List<Integer> inserted, Set<Integer> failing) {
+        return new FakeDb()
+                .onQuery(sql -> sql.strip().startsWith("SELECT COUNT(*)"), call -> List.of(
+                        Map.of("1", patientIds.stream().filter(id -> id > call.intParam(1)).count())))
+                .onQuery(sql -> sql.strip().startsWith("SELECT user_id FROM users"), call -> patientIds.stream()
+                        .filter(id -> id > call.intParam(1)).limit(call.intParam(2))
+                        .map(id -> Map.of("1", id)).toList())
+                .onQuery(sql -> true, call -> {
+                    if (failing.contains(call.intParam(1))) {
+                        throw new SQLException("Report query failed for user " + call.intParam(1));
+                    }
+                    return List.of(Map.of("patient_name", TEST_PATIENT));
+                })
+                .onBatch(call -> {
+                    synchronized (inserted) {
+                        inserted.add(call.intParam(1));
+                    }
+                });
+    }
+    
+    // ==========================================
+    // KEYSET PAGINATION TESTS
+    // ==========================================
+    
+    private static void testKeysetPagination() {
+        System.out.println("\n>>> TESTING KEYSET PAGINATION <<<");
+        
+        KeysetPager<Integer> pager = new KeysetPager<>("SELECT id, day FROM t",
+                List.of(new KeysetPager.SortKey("day", "day", true),
+                        new KeysetPager.SortKey("id", "id", false)),
+                new KeysetPager.FilterColumns(List.of("name"), "status", "day"),
+                rs -> rs.getInt("id"), 2);
+        
+        // Test 39: Page size + 1 rows are read to detect a further page
+        test("Keyset First Page", () -> {
+            FakeDb db = new FakeDb().rows(List.of(
+                    Map.of("id", 1, "day", 9), Map.of("id", 2, "day", 9), Map.of("id", 3, "day", 8)));
+            
+            KeysetPager.Page<Integer> page = pager.first(db.connect(), BookingFilter.NONE);
+            
+            FakeDb.Call query = db.last();
+            assertEquals("Rows", List.of(1, 2), page.rows());
+            assertTrue("More rows available", page.hasMore());
+            assertTrue("Mixed sort order", query.sql().endsWith("ORDER BY day DESC, id ASC LIMIT ?"));
+            assertEquals("Limit parameter", List.<Object>of(3), new ArrayList<>(query.params().values()));
+        });
+        
+        // Test 40: Filters and seek predicate are pushed into SQL; backwards pages come back in display order
+        test("Keyset Seek And Filter Pushdown", () -> {
+            FakeDb db = new FakeDb().rows(List.of(Map.of("id", 5, "day", 9), Map.of("id", 4, "day", 9)));
+            
+            BookingFilter filter = new BookingFilter("ali_", "ALL", null);
+            KeysetPager.Page<Integer> page = pager.before(db.connect(), filter, new Object[]{9, 6});
+            
+            FakeDb.Call query = db.last();
+            assertEquals("Reversed to display order", List.of(4, 5), page.rows());
+            assertFalse("No more rows", page.hasMore());
+            assertTrue("Search pushed down", query.sql().contains("WHERE (name LIKE ?) AND ((day > ?) OR (day = ? AND id < ?))"));
+            assertTrue("Backwards order", query.sql().endsWith("ORDER BY day ASC, id DESC LIMIT ?"));
+            assertEquals("Parameters", List.<Object>of("%ali\\_%", 9, 9, 6, 3), new ArrayList<>(query.params().values()));
+        });
+    }
+    
+    // ==========================================
+    // FILTER ENGINE TESTS
+    // ==========================================
+    
+    private static void testFilterEngine() {
+        System.out.println("\n>>> TESTING FILTER ENGINE <<<");
+        
+        // Test 41: Extending the query only rescans the previous result
+        test("Filter Engine Narrowing", () -> {
+            List<Appointment> rows = new ArrayList<>();
+            rows.add(new Appointment(1, "Alice Smith", TEST_DOCTOR, FUTURE_DATE, TIME_SLOT, "SCHEDULED", "VIDEO", null));
+            rows.add(new Appointment(2, "Alan Jones", TEST_DOCTOR, FUTURE_DATE, TIME_SLOT, "SCHEDULED", "VIDEO", null));
+            rows.add(new Appointment(3, "Bob Brown", TEST_DOCTOR, PAST_DATE, TIME_SLOT, "CANCELLED", "AUDIO", null));
+            
+            ObservableList<Appointment> target = FXCollections.observableArrayList();
+            FilterEngine<Appointment> engine = new FilterEngine<>(target, Appointment::getSearchKey, Duration.ZERO);
+            engine.setSource(rows);
+            assertEquals("All rows shown", 3, target.size());
+            
+            engine.setQuery("al");
+            assertEquals("Prefix matches", 2, target.size());
+            assertEquals("Full scan", 3, engine.getLastScanned());
+            
+            engine.setQuery("ALi");
+            assertEquals("Narrowed match", 1, target.size());
+            assertEquals("Only previous result rescanned", 2, engine.getLastScanned());
+            assertEquals("Matched patient", "Alice Smith", target.get(0).getPatientName());
+        });
+        
+        // Test 42: Criteria changes rescan everything and publish one change
+        test("Filter Engine Single Update", () -> {
+            List<Appointment> rows = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                rows.add(new Appointment(i, "Patient " + i, TEST_DOCTOR, FUTURE_DATE, TIME_SLOT,
+                        i % 2 == 0 ? "SCHEDULED" : "CANCELLED", "VIDEO", null));
+            }
+            ObservableList<Appointment> target = FXCollections.observableArrayList();
+            FilterEngine<Appointment> engine = new FilterEngine<>(target, Appointment::getSearchKey, Duration.ZERO);
+            engine.setSource(rows);
+            
+            int[] changes = {0};
+            target.addListener((javafx.collections.ListChangeListener<Appointment>) c -> changes[0]++);
+            BookingFilter cancelled = new BookingFilter(null, "cancelled", null);
+            engine.setPredicate(cancelled::matches);
+            
+            assertEquals("Cancelled rows", 5, target.size());
+            assertEquals("One list change", 1, changes[0]);
+            assertEquals("Full rescan", 10, engine.getLastScanned());
+            
+            Appointment renamed = rows.get(0);
+            renamed.setPatientName("Zed");
+            assertTrue("Search key refreshed on rename", renamed.getSearchKey().startsWith("zed"));
+        });
+    }
+    
+    // ==========================================
+    // REFERENCE DATA CACHE TESTS
+    // ==========================================
+    
+    private static void testReferenceDataCache() {
+        System.out.println("\n>>> TESTING REFERENCE DATA CACHE <<<");
+        
+        // Test 43: Repeated lookups are served from one load
+        test("Reference Cache Hits", () -> {
+            FakeDb db = new FakeDb().rows(referenceUsers());
+            ReferenceDataCache cache = new ReferenceDataCache(db.factory(), 60_000, () -> 0L);
+            
+            assertEquals("Doctors in id order", List.of(TEST_DOCTOR, TEST_SPECIALIST),
+                    cache.namesByRole(ReferenceDataCache.ROLE_DOCTOR));
+            assertEquals("Patients", List.of(TEST_PATIENT), cache.namesByRole(ReferenceDataCache.ROLE_PATIENT));
+            assertEquals("Doctor id by name", 2,
+                    cache.findByName(TEST_DOCTOR, ReferenceDataCache.ROLE_DOCTOR).map(User::getId).orElse(-1));
+            assertEquals("Lookup by id", TEST_PATIENT, cache.findById(1).map(User::getName).orElse(null));
+            assertFalse("Password never cached", cache.findById(1).map(User::getPassword).isPresent());
+            
+            cache.findById(1).get().setName("Edited");
+            cache.findByName(TEST_DOCTOR, null).get().setRole("Admin");
+            cache.usersByRole(ReferenceDataCache.ROLE_DOCTOR).get(1).setName("Edited");
+            assertEquals("Edits to a returned user not shared", TEST_PATIENT,
+                    cache.findById(1).map(User::getName).orElse(null));
+            assertEquals("Role unchanged", List.of(TEST_DOCTOR, TEST_SPECIALIST),
+                    cache.namesByRole(ReferenceDataCache.ROLE_DOCTOR));
+            try {
+                cache.usersByRole(ReferenceDataCache.ROLE_PATIENT).clear();
+                throw new RuntimeException("Role list was modifiable");
+            } catch (UnsupportedOperationException expected) {
+            }
+            
+            assertEquals("Single query", 1, db.prepared());
+            assertEquals("Loads", 1L, cache.getLoadCount());
+            assertEquals("Misses", 1L, cache.getMissCount());
+            assertEquals("Hits", 10L, cache.getHitCount());
+        });
+        
+        // Test 44: Expiry and invalidation force a reload, even mid-load; role filter applies to name lookups
+        test("Reference Cache Expiry And Invalidation", () -> {
+            FakeDb db = new FakeDb().rows(referenceUsers());
+            AtomicLong now = new AtomicLong();
+            ReferenceDataCache cache = new ReferenceDataCache(db.factory(), 1_000, now::get);
+            
+            cache.warmUp();
+            now.set(999);
+            cache.warmUp();
+            assertEquals("Fresh snapshot reused", 1, db.prepared());
+            
+            now.set(1_000);
+            cache.warmUp();
+            assertEquals("Expired snapshot reloaded", 2, db.prepared());
+            
+            cache.invalidate();
+            cache.warmUp();
+            assertEquals("Invalidated snapshot reloaded", 3, db.prepared());
+            assertEquals("Invalidations", 1L, cache.getInvalidationCount());
+            
+            assertFalse("Patient is not a doctor",
+                    cache.findByName(TEST_PATIENT, ReferenceDataCache.ROLE_DOCTOR).isPresent());
+            assertEquals("Any role", 1, cache.findByName(TEST_PATIENT, null).map(User::getId).orElse(-1));
+            
+            // A signup lands while a load is reading the table: that load must not be published
+            AtomicReference<ReferenceDataCache> racing = new AtomicReference<>();
+            List<Map<String, Object>> withSignup = referenceUsers();
+            withSignup.add(Map.of("user_id", 5, "name", "New Patient", "username", "patient5", "role", "Patient"));
+            FakeDb before = new FakeDb().rows(referenceUsers());
+            FakeDb after = new FakeDb().rows(withSignup);
+            racing.set(new ReferenceDataCache(() -> {
+                if (before.opened() > 0) return after.connect();
+                racing.get().invalidate();
+                return before.connect();
+            }, 60_000, () -> 0L));
+            assertEquals("Stale load read again", List.of(TEST_PATIENT, "New Patient"),
+                    racing.get().namesByRole(ReferenceDataCache.ROLE_PATIENT));
+            assertEquals("Two reads", 2, before.prepared() + after.prepared());
+            racing.get().warmUp();
+            assertEquals("Fresh snapshot published", 2, before.prepared() + after.prepared());
+        });
+    }
+    
+    private static List<Map<String, Object>> referenceUsers() {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        Object[][] users = {
+            {1, TEST_PATIENT, "patient1", "Patient"},
+            {2, TEST_DOCTOR, "doctor1", "Doctor"},
+            {3, TEST_SPECIALIST, "doctor2", "Doctor"},
+            {4, "Front Desk", "staff1", "Staff"}
+        };
+        for (Object[] user : users) {
+            Map<String, Object> row = new HashMap<>();
+            row.put("user_id", user[0]);
+            row.put("name", user[1]);
+            row.put("username", user[2]);
+            row.put("role", user[3]);
+            rows.add(row);
+        }
+        return rows;
+    }
+    
+    // ==========================================
+    // SLOT AVAILABILITY TESTS
+    // ==========================================
+    
+    private static void testAvailabilityIndex() {
+        System.out.println("\n>>> TESTING SLOT AVAILABILITY <<<");
+        List<LocalTime> candidates = List.of(LocalTime.of(9, 0), LocalTime.of(10, 0), LocalTime.of(10, 30), LocalTime.of(11, 0));
+        
+        // Test 45: Booked slots are hidden and a second booking of the same slot is rejected in memory
+        test("Availability Free Slots And Double Booking", () -> {
+            AvailabilityIndex index = new AvailabilityIndex(
+                    new FakeDb().rows(bookedSlots()).factory(), 60_000, () -> 0L);
+            
+            assertEquals("Free slots", List.of(LocalTime.of(9, 0), LocalTime.of(11, 0)),
+                    index.freeSlots(3, FUTURE_DATE, candidates));
+            assertEquals("Other doctor unaffected", candidates, index.freeSlots(4, FUTURE_DATE, candidates));
+            assertEquals("Range query", 4, index.freeSlots(3, FUTURE_DATE.plusDays(1), FUTURE_DATE.plusDays(3), candidates)
+                    .get(FUTURE_DATE.plusDays(2)).size());
+            
+            AvailabilityIndex.Slot nine = new AvailabilityIndex.Slot(3, FUTURE_DATE, LocalTime.of(9, 0));
+            assertEquals("First booking written", 1, index.book(nine, () -> 1));
+            assertFalse("Slot now taken", index.isFree(nine));
+            
+            AtomicInteger writes = new AtomicInteger();
+            try {
+                index.book(nine, writes::incrementAndGet);
+                throw new RuntimeException("Double booking accepted");
+            } catch (SlotConflictException expected) {
+                assertEquals("Conflicting slot", nine, expected.getSlot());
+            }
+            assertEquals("Conflicting insert never sent", 0, writes.get());
+            assertEquals("Conflicts counted", 1L, index.getConflictCount());
+            
+            index.release(nine);
+            assertTrue("Released slot is free", index.isFree(nine));
+        });
+        
+        // Test 46: Database duplicate keys surface as conflicts; other failures and moves free the slot
+        test("Availability Database Conflict And Move", () -> {
+            AvailabilityIndex index = new AvailabilityIndex(
+                    new FakeDb().rows(bookedSlots()).factory(), 60_000, () -> 0L);
+            AvailabilityIndex.Slot nine = new AvailabilityIndex.Slot(4, FUTURE_DATE, LocalTime.of(9, 0));
+            AvailabilityIndex.Slot eleven = new AvailabilityIndex.Slot(4, FUTURE_DATE, LocalTime.of(11, 0));
+            
+            try {
+                index.book(nine, () -> { throw new SQLException("Duplicate entry", "23000", 1062); });
+                throw new RuntimeException("Duplicate key accepted");
+            } catch (SlotConflictException expected) {
+                assertFalse("Slot booked elsewhere stays taken", index.isFree(nine));
+            }
+            
+            try {
+                index.book(eleven, () -> { throw new SQLException("Connection reset", "08S01", 0); });
+                throw new RuntimeException("Failure swallowed");
+            } catch (SlotConflictException e) {
+                throw new RuntimeException("Not a conflict");
+            } catch (SQLException expected) {
+                assertTrue("Failed insert releases slot", index.isFree(eleven));
+            }
+            
+            AvailabilityIndex.Slot tenThirty = new AvailabilityIndex.Slot(3, FUTURE_DATE, LocalTime.of(10, 30));
+            AvailabilityIndex.Slot nineDoctor3 = new AvailabilityIndex.Slot(3, FUTURE_DATE, LocalTime.of(9, 0));
+            index.move(tenThirty, nineDoctor3, () -> 1);
+            assertTrue("Old slot freed", index.isFree(tenThirty));
+            assertFalse("New slot taken", index.isFree(nineDoctor3));
+            assertEquals("Loaded once", 1L, index.getLoadCount());
+        });
+    }
+    
+    private static List<Map<String, Object>> bookedSlots() {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (String time : new String[]{"10:00:00", "10:30:00"}) {
+            Map<String, Object> row = new HashMap<>();
+            row.put("doctor_id", 3);
+            row.put("appointment_date", FUTURE_DATE.toString());
+            row.put("appointment_time", time);
+            rows.add(row);
+        }
+        return rows;
+    }
+    
+    // ==========================================
+    // VITALS TIME SERIES TESTS
+    // ==========================================
+    
+    private static void testVitalsTimeSeries() {
+        System.out.println("\n>>> TESTING VITALS TIME SERIES <<<");
+        long hour = 3_600_000L;
+        
+        // Test 47: Downsampling keeps min/max/avg per bucket and skips empty buckets
+        test("Vitals Downsampling", () -> {
+            VitalsSeries series = new VitalsSeries(6);
+            for (int i = 0; i < 48; i++) {   // one pulse reading per hour for two days
+                series.append(VitalsReading.of(i + 1, 6, i * hour, 60 + i, 36.5f, 16, 98, 120, 80, Float.NaN));
+            }
+            
+            VitalsSeries.Downsampled days = series.downsample(Metric.PULSE, 0, 48 * hour, 2);
+            assertEquals("Two daily buckets", 2, days.size());
+            assertEquals("Day 1 min", 60f, days.min()[0]);
+            assertEquals("Day 1 max", 83f, days.max()[0]);
+            assertEquals("Day 1 avg", 71.5f, days.avg()[0]);
+            assertEquals("Day 2 count", 24, days.count()[1]);
+            
+            VitalsSeries.Downsampled week = series.downsample(Metric.PULSE, 0, 7 * 24 * hour, 7);
+            assertEquals("Empty days left out", 2, week.size());
+            assertEquals("Missing metric yields no points", 0,
+                    series.downsample(Metric.WEIGHT, 0, 48 * hour, 10).size());
+            assertEquals("Range count", 6, series.count(10 * hour, 16 * hour));
+        });
+        
+        // Test 48: Store loads history once, appends new readings and ignores ones it already has
+        test("Vitals Store Load And Record", () -> {
+            List<Map<String, Object>> rows = new ArrayList<>();
+            for (int i = 1; i <= 3; i++) {
+                Map<String, Object> row = new HashMap<>();
+                row.put("vitals_id", (long) i);
+                row.put("recorded_at", new java.sql.Timestamp(i * hour));
+                row.put("pulse", 70 + i);
+                row.put("blood_pressure", "120/80");
+                rows.add(row);
+            }
+            FakeDb db = new FakeDb().rows(rows);
+            VitalsStore store = new VitalsStore(db.factory(), 10);
+            
+            VitalsSeries series = store.series(6);
+            assertEquals("Loaded rows", 3, series.size());
+            assertEquals("Systolic parsed", 120f, series.latest().value(Metric.SYSTOLIC));
+            assertFalse("Missing temperature is NaN", series.latest().has(Metric.TEMPERATURE));
+            
+            store.record(VitalsReading.of(3, 6, 3 * hour, 73, 37, 16, 98, 120, 80, 70));
+            assertEquals("Already loaded row skipped", 3, series.size());
+            store.record(VitalsReading.of(5, 6, 5 * hour, 90, 37, 16, 98, 120, 80, 70));
+            store.record(VitalsReading.of(4, 6, 4 * hour, 80, 37, 16, 98, 120, 80, 70));
+            assertEquals("New rows appended", 5, series.size());
+            assertEquals("Late reading kept in time order", 90f, series.latest().value(Metric.PULSE));
+            
+            assertTrue("Same series reused", series == store.series(6));
+            assertEquals("History read once", 1, db.prepared());
+        });
+        
+        // Test 49: Readings saved during a load are merged once each, in time order, even if another load fails
+        test("Vitals Store Records During Load", () -> {
+            List<Map<String, Object>> rows = new ArrayList<>();
+            for (long id : new long[]{1, 2, 3, 4, 5, 8}) {
+                Map<String, Object> row = new HashMap<>();
+                row.put("vitals_id", id);
+                row.put("recorded_at", new java.sql.Timestamp(id * hour));
+                row.put("pulse", 70);
+                rows.add(row);
+            }
+            java.util.concurrent.CountDownLatch started = new java.util.concurrent.CountDownLatch(1);
+            java.util.concurrent.CountDownLatch release = new java.util.concurrent.CountDownLatch(1);
+            AtomicInteger connections = new AtomicInteger();
+            VitalsStore store = new VitalsStore(() -> {
+                if (connections.incrementAndGet() > 1) throw new SQLException("Connection refused");
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return new FakeDb().rows(rows).connect();
+            }, 10);
+            AtomicInteger heard = new AtomicInteger();
+            store.addListener(reading -> heard.incrementAndGet());
+            
+            AtomicReference<VitalsSeries> loaded = new AtomicReference<>();
+            Thread loader = new Thread(() -> {
+                try {
+                    loaded.set(store.series(6));
+                } catch (SQLException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            loader.start();
+            started.await();
+            try {
+                store.series(6);
+                throw new RuntimeException("Second load should have failed");
+            } catch (SQLException expected) {
+            }
+            
+            List<Thread> writers = new ArrayList<>();
+            for (int w = 0; w < 4; w++) {
+                int first = 9 + w * 3;
+                writers.add(new Thread(() -> {
+                    for (long id = first; id < first + 3; id++) {
+                        store.record(VitalsReading.of(id, 6, id * hour, 80, 37, 16, 98, 120, 80, 70));
+                    }
+                }));
+            }
+            writers.add(new Thread(() -> {
+                store.record(VitalsReading.of(7, 6, 7 * hour, 80, 37, 16, 98, 120, 80, 70)); // committed late
+                store.record(VitalsReading.of(6, 6, 6 * hour, 80, 37, 16, 98, 120, 80, 70));
+                store.record(VitalsReading.of(8, 6, 8 * hour, 70, 37, 16, 98, 120, 80, 70)); // also read by the load
+            }));
+            writers.forEach(Thread::start);
+            for (Thread writer : writers) writer.join();
+            release.countDown();
+            loader.join();
+            
+            VitalsSeries series = loaded.get();
+            assertTrue("Published", series == store.series(6));
+            assertEquals("Every reading once", 20, series.size());
+            long[] times = series.timestamps(Long.MIN_VALUE, Long.MAX_VALUE);
+            for (int i = 0; i < times.length; i++) {
+                assertEquals("In time order", (i + 1) * hour, times[i]);
+            }
+            store.record(VitalsReading.of(8, 6, 8 * hour, 70, 37, 16, 98, 120, 80, 70));
+            assertEquals("Loaded reading not added again", 20, series.size());
+            assertEquals("Listeners heard each recorded reading", 15, heard.get());
+        });
+    }
+    
+    // ==========================================
+    // VITALS INGESTION TESTS
+    // ==========================================
+    
+    private static void testVitalsIngestion() {
+        System.out.println("\n>>> TESTING VITALS INGESTION <<<");
+        
+        // Test 50: Device JSON is parsed and checked with the form's rules
+        test("Vitals Ingest Validation", () -> {
+            Map<String, String> json = FlatJson.parse("{\"userId\": 6, \"pulse\": 72, \"bloodPressure\": \"120\\/80\", \"note\": null}");
+            assertEquals("Escaped string", "120/80", json.get("bloodPressure"));
+            assertTrue("Null kept", json.containsKey("note") && json.get("note") == null);
+            
+            VitalsSubmission partial = VitalsValidator.fromJson(json, 1_000_000L);
+            assertEquals("Pulse", 72, partial.pulse());
+            assertEquals("Missing oxygen allowed for devices", null, partial.oxygen());
+            assertEquals("Defaults to now", 1_000_000L, partial.recordedAt());
+            
+            String[] invalid = {
+                "{\"userId\": 6, \"pulse\": 400}",
+                "{\"userId\": 6, \"bloodPressure\": \"80/120\"}",
+                "{\"userId\": 6, \"oxygen\": 98, \"recordedAt\": 99999999999}",
+                "{\"pulse\": 72}",
+                "{\"userId\": 6}"
+            };
+            for (String line : invalid) {
+                try {
+                    VitalsValidator.fromJson(FlatJson.parse(line), 1_000_000L);
+                    throw new RuntimeException("Accepted invalid reading " + line);
+                } catch (IllegalArgumentException expected) {
+                    // rejected as it should be
+                }
+            }
+            try {
+                VitalsValidator.validate(6, "72", "", "16", "120/80", "70", "175", "98", 0, true);
+                throw new RuntimeException("Form accepted a blank temperature");
+            } catch (IllegalArgumentException expected) {
+                assertEquals("Form message", "Temperature is required.", expected.getMessage());
+            }
+        });
+        
+        // Test 51: Queued readings are flushed in full batches, a full queue throttles senders,
+        // unknown users are refused up front and a refused batch only loses its bad rows
+        test("Vitals Ingest Micro-Batching", () -> {
+            VitalsIngestConfig config = new VitalsIngestConfig();
+            config.setBatchSize(3);
+            config.setFlushIntervalMs(20);
+            List<Integer> batchSizes = new java.util.concurrent.CopyOnWriteArrayList<>();
+            VitalsIngestService service = new VitalsIngestService(config, batch -> {
+                batchSizes.add(batch.size());
+                return new long[batch.size()];
+            });
+            
+            StringBuilder body = new StringBuilder();
+            for (int i = 0; i < 7; i++) {
+                body.append("{\"userId\": 6, \"pulse\": ").append(70 + i).append("}\n");
+            }
+            body.append("{\"userId\": 6, \"pulse\": \"fast\"}\n");
+            VitalsIngestService.IngestResult result = service.ingest(new java.io.StringReader(body.toString()));
+            assertEquals("Accepted", 7, result.accepted());
+            assertEquals("Invalid", 1, result.invalid());
+            assertTrue("Error reports line", result.errors().get(0).startsWith("line 8"));
+            
+            service.start();
+            service.close();
+            assertEquals("Batches", List.of(3, 3, 1), batchSizes);
+            assertEquals("Written", 7L, service.metrics().written());
+            assertEquals("Queue drained", 0, service.metrics().queueDepth());
+            
+            VitalsIngestConfig small = new VitalsIngestConfig();
+            small.setQueueCapacity(2);
+            small.setOfferTimeoutMs(0);
+            VitalsIngestService full = new VitalsIngestService(small, batch -> new long[batch.size()]);
+            VitalsIngestService.IngestResult throttled = full.ingest(new java.io.StringReader(
+                    "{\"userId\":6,\"pulse\":70}\n{\"userId\":6,\"pulse\":71}\n"
+                    + "{\"userId\":6,\"pulse\":72}\n{\"userId\":6,\"pulse\":73}\n"));
+            assertEquals("Accepted until full", 2, throttled.accepted());
+            assertEquals("Rest throttled", 2, throttled.throttled());
+            assertEquals("Throttled lines to resend", List.of(3, 4), throttled.retryLines());
+            
+            VitalsIngestConfig http = new VitalsIngestConfig();
+            http.setPort(0);
+            http.setBatchSize(1);
+            http.setQueueCapacity(2);
+            http.setOfferTimeoutMs(0);
+            java.util.concurrent.CountDownLatch writing = new java.util.concurrent.CountDownLatch(1);
+            java.util.concurrent.CountDownLatch release = new java.util.concurrent.CountDownLatch(1);
+            VitalsIngestService server = new VitalsIngestService(http, batch -> {
+                writing.countDown();
+                try {
+                    release.await(); // hold the flusher so the queue fills up
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return new long[batch.size()];
+            });
+            server.startHttp();
+            try {
+                java.net.http.HttpClient client = java.net.http.HttpClient.newHttpClient();
+                java.net.URI uri = java.net.URI.create("http://127.0.0.1:" + server.getPort() + "/vitals");
+                client.send(java.net.http.HttpRequest.newBuilder(uri)
+                        .POST(java.net.http.HttpRequest.BodyPublishers.ofString("{\"userId\":6,\"pulse\":69}")).build(),
+                        java.net.http.HttpResponse.BodyHandlers.ofString());
+                writing.await();
+                java.net.http.HttpResponse<String> partly = client.send(java.net.http.HttpRequest.newBuilder(uri)
+                        .POST(java.net.http.HttpRequest.BodyPublishers.ofString("{\"userId\":6,\"pulse\":70}\n\n"
+                                + "{\"userId\":6,\"pulse\":71}\n{\"userId\":6,\"pulse\":72}\n")).build(),
+                        java.net.http.HttpResponse.BodyHandlers.ofString());
+                assertEquals("Partly throttled request accepted", 202, partly.statusCode());
+                assertTrue("Counts reported", partly.body().startsWith("{\"accepted\":2,\"invalid\":0,\"throttled\":1"));
+                assertTrue("Lines to resend reported", partly.body().endsWith("\"retry\":[4]}"));
+                assertTrue("Back-off requested", partly.headers().firstValue("Retry-After").isPresent());
+                java.net.http.HttpResponse<String> refused = client.send(java.net.http.HttpRequest.newBuilder(uri)
+                        .POST(java.net.http.HttpRequest.BodyPublishers.ofString("{\"userId\":6,\"pulse\":73}")).build(),
+                        java.net.http.HttpResponse.BodyHandlers.ofString());
+                assertEquals("Nothing accepted", 503, refused.statusCode());
+            } finally {
+                release.countDown();
+                server.close();
+            }
+            
+            VitalsIngestConfig retry = new VitalsIngestConfig();
+            retry.setBatchSize(4);
+            retry.setFlushIntervalMs(20);
+            List<Integer> stored = new java.util.concurrent.CopyOnWriteArrayList<>();
+            VitalsIngestService checked = new VitalsIngestService(retry, batch -> {
+                for (VitalsSubmission s : batch) {
+                    if (s.pulse() == 99) throw new java.sql.SQLException("Cannot add or update a child row");
+                }
+                batch.forEach(s -> stored.add(s.pulse()));
+                return new long[batch.size()];
+            }, userId -> userId != 404);
+            VitalsIngestService.IngestResult mixed = checked.ingest(new java.io.StringReader(
+                    "{\"userId\":6,\"pulse\":70}\n{\"userId\":404,\"pulse\":71}\n"
+                    + "{\"userId\":6,\"pulse\":99}\n{\"userId\":6,\"pulse\":72}\n{\"userId\":6,\"pulse\":73}\n"));
+            assertEquals("Unknown user refused", 1, mixed.invalid());
+            assertEquals("Unknown user reported", "line 2: unknown userId 404", mixed.errors().get(0));
+            checked.start();
+            checked.close();
+            assertEquals("Good rows of refused batch stored", List.of(70, 72, 73), stored);
+            assertEquals("Written after retry", 3L, checked.metrics().written());
+            assertEquals("Only bad row failed", 1L, checked.metrics().failed());
+        });
+    }
+    
+    // ==========================================
+    // VITALS ANOMALY DETECTION TESTS
+    // ==========================================
+    
+    private static void testAnomalyDetection() {
+        System.out.println("\n>>> TESTING VITALS ANOMALY DETECTION <<<");
+        long hour = 3_600_000L;
+        
+        // Test 52: A reading inside the absolute limits is still flagged against the patient's own baseline
+        test("Anomaly Baseline Deviation", () -> {
+            List<Map<String, Object>> rows = new ArrayList<>();
+            for (int i = 1; i <= 10; i++) {   // a steady pulse around 61
+                Map<String, Object> row = new HashMap<>();
+                row.put("vitals_id", (long) i);
+                row.put("recorded_at", new java.sql.Timestamp(i * hour));
+                row.put("pulse", 60 + i % 3);
+                row.put("temperature", 36.8f);
+                rows.add(row);
+            }
+            VitalsStore store = new VitalsStore(new FakeDb().rows(rows).factory(), 10);
+            AnomalyEngine engine = new AnomalyEngine(store);
+            store.addListener(engine);
+            
+            assertEquals("Not tracked before first use", null, engine.observe(
+                    VitalsReading.of(99, 6, 0, 60, 36.8f, 16, 98, 120, 80, 70)));
+            VitalsAssessment steady = engine.assessment(6);
+            assertEquals("Latest replayed reading", 10L, steady.vitalsId());
+            assertFalse("Steady history has no alerts", steady.hasAlerts());
+            
+            store.record(VitalsReading.of(11, 6, 11 * hour, 92, 36.8f, Float.NaN, Float.NaN, Float.NaN, Float.NaN, Float.NaN));
+            VitalsAssessment jump = engine.assessment(6);
+            MetricFinding pulse = jump.finding(Metric.PULSE);
+            assertEquals("Kept current by the store", 11L, jump.vitalsId());
+            assertEquals("Within absolute limits", VitalStatus.NORMAL, pulse.status());
+            assertTrue("Off the baseline", pulse.deviation() && pulse.zScore() > 3);
+            assertTrue("Rapid change", pulse.rapidChange());
+            assertFalse("Temperature unchanged", jump.finding(Metric.TEMPERATURE).isAlert());
+            
+            HealthReportData data = new HealthReportData(6, TEST_PATIENT, null,
+                    new HealthReportData.Vitals(11, "92", "36.8", "", "", ""), null);
+            String text = new HealthReportFormatter().format(data, LocalDateTime.now(), jump);
+            assertTrue("Report shows the baseline", text.contains("Pulse: 92 (60–100 bpm) → Normal · above your usual"));
+            assertTrue("Report advice", text.contains("differ from your usual levels"));
+            
+            store.record(VitalsReading.of(11, 6, 11 * hour, 92, 36.8f, 16, 98, 120, 80, 70));
+            assertEquals("Duplicate reading ignored", 11L, engine.assessment(6).vitalsId());
+        });
+        
+        // Test 53: Absolute limits, combined blood pressure and constant-size running statistics
+        test("Anomaly Limits And Running Stats", () -> {
+            assertEquals("Critical pulse", VitalStatus.CRITICAL_HIGH, Metric.PULSE.classify(135));
+            assertEquals("Low oxygen", VitalStatus.LOW, Metric.OXYGEN.classify(93));
+            assertEquals("Critical oxygen", VitalStatus.CRITICAL_LOW, Metric.OXYGEN.classify(88));
+            assertEquals("No upper oxygen limit", VitalStatus.NORMAL, Metric.OXYGEN.classify(100));
+            
+            VitalsAssessment first = VitalsAssessment.absolute(
+                    VitalsReading.of(1, 6, 0, 72, 37, 16, 98, 150, 85, Float.NaN));
+            assertEquals("Systolic drives blood pressure", VitalStatus.HIGH, first.bloodPressureStatus());
+            assertFalse("Weight not recorded", first.findings().containsKey(Metric.WEIGHT));
+            
+            HealthReportData critical = new HealthReportData(6, TEST_PATIENT, null,
+                    new HealthReportData.Vitals(2, "72", "36.9", "16", "185/95", "98"), null);
+            String text = new HealthReportFormatter().format(critical, LocalDateTime.now(), first);
+            assertTrue("Stale assessment replaced", text.contains("Blood Pressure: 185/95 (120/80 mmHg) → Critical High"));
+            assertTrue("Critical advice", text.contains("critical level"));
+            
+            MetricBaseline baseline = new MetricBaseline();
+            for (int i = 0; i < 100_000; i++) {
+                baseline.update(i % 2 == 0 ? 70 : 80, i * hour);
+            }
+            assertEquals("Every reading counted", 100_000L, baseline.getCount());
+            assertTrue("Mean tracks the level", Math.abs(baseline.getMean() - 75) < 1);
+            assertTrue("Spread tracks the swings", Math.abs(baseline.getStdDev() - 5) < 1);
+            baseline.update(200, 0);
+            assertEquals("Late reading is not the previous one", 80.0, baseline.getLast());
+        });
+        
+        // Test 54: Patient states beyond the limit are dropped least recently used first and rebuilt on demand
+        test("Anomaly Engine Evicts Idle Patients", () -> {
+            List<Map<String, Object>> rows = new ArrayList<>();
+            for (int i = 1; i <= 6; i++) {
+                Map<String, Object> row = new HashMap<>();
+                row.put("vitals_id", (long) i);
+                row.put("recorded_at", new java.sql.Timestamp(i * hour));
+                row.put("pulse", 70 + i);
+                rows.add(row);
+            }
+            FakeDb db = new FakeDb().rows(rows);
+            VitalsStore store = new VitalsStore(db.factory(), 10);
+            AnomalyEngine engine = new AnomalyEngine(store, 2);
+            store.addListener(engine);
+            
+            engine.assessment(1);
+            engine.assessment(2);
+            engine.assessment(1);              // 2 is now the least recently used
+            engine.assessment(3);
+            assertEquals("Bounded", 2, engine.trackedPatientCount());
+            assertTrue("Recently used kept", engine.cachedAssessment(1) != null);
+            assertEquals("Idle patient dropped", null, engine.cachedAssessment(2));
+            assertEquals("Dropped patient not followed", null, engine.observe(
+                    VitalsReading.of(7, 2, 7 * hour, 90, Float.NaN, Float.NaN, Float.NaN, Float.NaN, Float.NaN, Float.NaN)));
+            assertEquals("Rebuilt from the cached series", 6L, engine.assessment(2).vitalsId());
+            assertEquals("Series not read again", 3, db.prepared());
+            assertEquals("Still bounded", 2, engine.trackedPatientCount());
+        });
+        
+        // Test 55: A reading that commits after the replay under a lower id is still assessed and published
+        test("Anomaly Engine Late Commit After Replay", () -> {
+            List<Map<String, Object>> rows = new ArrayList<>();
+            for (long id : new long[]{1, 2, 3, 5}) {   // 4 is still being written
+                Map<String, Object> row = new HashMap<>();
+                row.put("vitals_id", id);
+                row.put("recorded_at", new java.sql.Timestamp(id * hour));
+                row.put("pulse", 70);
+                rows.add(row);
+            }
+            VitalsStore store = new VitalsStore(new FakeDb().rows(rows).factory(), 10);
+            AnomalyEngine engine = new AnomalyEngine(store);
+            store.addListener(engine);
+            List<VitalsAssessment> published = new java.util.concurrent.CopyOnWriteArrayList<>();
+            engine.addAssessmentListener(published::add);
+            assertEquals("Replayed", 5L, engine.assessment(6).vitalsId());
+            
+            store.record(VitalsReading.of(4, 6, 4 * hour, 150, Float.NaN, Float.NaN, Float.NaN, Float.NaN, Float.NaN, Float.NaN));
+            assertEquals("Late reading published", 1, published.size());
+            assertEquals("Its own assessment", 4L, published.get(0).vitalsId());
+            assertTrue("Alert raised", published.get(0).hasAlerts());
+            assertEquals("Latest unchanged", 5L, engine.assessment(6).vitalsId());
+            assertEquals("Replayed reading not judged twice", null, engine.observe(
+                    VitalsReading.of(3, 6, 3 * hour, 70, Float.NaN, Float.NaN, Float.NaN, Float.NaN, Float.NaN, Float.NaN)));
+        });
+    }
+    
+    // ==========================================
+    // CLINICAL EVENT BUS TESTS
+    // ==========================================
+    
+    private static void testClinicalEvents() {
+        System.out.println("\n>>> TESTING CLINICAL EVENT BUS <<<");
+        
+        // Test 56: Ring buffer is bounded and loses nothing under concurrent producers; bus delivers critical first
+        test("Event Bus Ring Buffer And Priority", () -> {
+            RingBuffer<Integer> small = new RingBuffer<>(3);
+            assertEquals("Rounded to a power of two", 4, small.capacity());
+            for (int i = 0; i < 4; i++) assertTrue("Offer " + i, small.offer(i));
+            assertFalse("Full buffer refuses", small.offer(4));
+            assertEquals("FIFO", 0, small.poll());
+            assertTrue("Slot reused after poll", small.offer(4));
+            
+            RingBuffer<Integer> shared = new RingBuffer<>(1024);
+            AtomicLong sum = new AtomicLong();
+            Thread[] producers = new Thread[4];
+            for (int p = 0; p < producers.length; p++) {
+                producers[p] = new Thread(() -> {
+                    for (int i = 1; i <= 5_000; i++) {
+                        while (!shared.offer(i)) Thread.onSpinWait();
+                    }
+                });
+                producers[p].start();
+            }
+            int received = 0;
+            while (received < 20_000) {
+                Integer item = shared.poll();
+                if (item == null) { Thread.onSpinWait(); continue; }
+                sum.addAndGet(item);
+                received++;
+            }
+            for (Thread producer : producers) producer.join();
+            assertEquals("Every item exactly once", 4L * 5_000 * 5_001 / 2, sum.get());
+            assertEquals("Drained", null, shared.poll());
+            
+            EventBus bus = new EventBus(16, null);
+            CountDownLatch entered = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            CountDownLatch done = new CountDownLatch(4);
+            List<EventPriority> order = new java.util.concurrent.CopyOnWriteArrayList<>();
+            bus.subscribe(event -> true, envelope -> {
+                if (order.isEmpty()) {
+                    entered.countDown();
+                    try { release.await(5, TimeUnit.SECONDS); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+                }
+                order.add(envelope.priority());
+                done.countDown();
+            });
+            bus.publish(ClinicalEvent.BookingChanged.of(ClinicalEvent.BookingChanged.Change.CREATED, 2, TEST_PATIENT,
+                    LocalDate.now(), LocalTime.of(9, 0)));
+            assertTrue("Dispatcher busy", entered.await(5, TimeUnit.SECONDS));
+            bus.publish(new ClinicalEvent.VitalsRecorded(6, TEST_PATIENT, 1, 0, VitalStatus.NORMAL, false, ""));
+            bus.publish(ClinicalEvent.BookingChanged.of(ClinicalEvent.BookingChanged.Change.CANCELLED, 2, TEST_PATIENT,
+                    LocalDate.now(), LocalTime.of(9, 0)));
+            bus.publish(new ClinicalEvent.EmergencyReferralCreated(1, TEST_PATIENT, "City Hospital", "Cardiology",
+                    "Dr. Brown", "Chest pain", System.currentTimeMillis()));
+            release.countDown();
+            assertTrue("All delivered", done.await(5, TimeUnit.SECONDS));
+            assertEquals("Critical overtakes queued events",
+                    List.of(EventPriority.NORMAL, EventPriority.CRITICAL, EventPriority.NORMAL, EventPriority.LOW), order);
+            bus.close();
+            assertEquals("Delivered count", 4L, bus.metrics().delivered());
+        });
+        
+        // Test 57: Unacknowledged alerts survive a restart; vitals alerts flow from the anomaly engine
+        test("Alert Outbox Survives Restart", () -> {
+            Path dir = Files.createTempDirectory("telehealth-outbox");
+            Path log = dir.resolve("alerts.log");
+            try {
+                EventBus bus = new EventBus(16, new AlertOutbox(log));
+                VitalsStore store = new VitalsStore(new FakeDb().factory(), 10);
+                AnomalyEngine engine = new AnomalyEngine(store);
+                store.addListener(engine);
+                engine.addAssessmentListener(new VitalsAlertPublisher(bus, id -> TEST_PATIENT));
+                
+                ClinicalEvent.EmergencyReferralCreated referral = new ClinicalEvent.EmergencyReferralCreated(7,
+                        TEST_PATIENT, "City Hospital", "Emergency", "Dr. Brown", "Collapse, \"unresponsive\"", 1_000L);
+                EventEnvelope kept = bus.publish(referral);
+                bus.publish(ClinicalEvent.BookingChanged.of(ClinicalEvent.BookingChanged.Change.CREATED, 2, TEST_PATIENT,
+                        LocalDate.now(), LocalTime.of(9, 0)));
+                store.record(VitalsReading.of(12, 6, 2_000L, 140, 37, 16, 98, 120, 80, 70));
+                
+                List<EventEnvelope> pending = bus.pendingAlerts();
+                assertEquals("Only alerts persisted", 2, pending.size());
+                ClinicalEvent.VitalsRecorded vitals = (ClinicalEvent.VitalsRecorded) pending.get(1).event();
+                assertEquals("Critical pulse alert", VitalStatus.CRITICAL_HIGH, vitals.status());
+                assertEquals("Alert priority", EventPriority.CRITICAL, vitals.priority());
+                bus.acknowledge(pending.get(1).sequence());
+                bus.close();
+                
+                Files.writeString(log, "{\"seq\":99,\"op\":\"add\",\"type", java.nio.file.StandardOpenOption.APPEND);
+                AlertOutbox reopened = new AlertOutbox(log);
+                assertEquals("One alert still pending", 1, reopened.pendingCount());
+                assertEquals("Event restored intact", referral, reopened.pending().get(0).event());
+                assertTrue("Replayed flag", reopened.pending().get(0).replayed());
+                assertEquals("Torn line skipped", 1, reopened.skippedLines());
+                EventBus restarted = new EventBus(16, reopened);
+                assertTrue("Sequence continues", restarted.publish(referral).sequence() > kept.sequence() + 2);
+                restarted.close();
+            } finally {
+                try (var files = Files.list(dir)) {
+                    for (Path file : files.toList()) Files.deleteIfExists(file);
+                }
+                Files.deleteIfExists(dir);
+            }
+        });
+    }
+    
+    // ==========================================
+    // SERVICE LAYER AND REST API TESTS
+    // ==========================================
+    
+    private static void testServiceLayer() {
+        System.out.println("\n>>> TESTING SERVICE LAYER AND REST API <<<");
+        
+        // Test 58: Services book, conflict, cancel and publish without JavaFX or MySQL,
+        // and save the chosen patient's id rather than looking the name up
+        test("Booking And Diagnosis Services", () -> {
+            AtomicLong keys = new AtomicLong(20);
+            AvailabilityIndex index = new AvailabilityIndex(
+                    new FakeDb().factory(), 60_000, () -> 0L);
+            EventBus bus = new EventBus(16, null);
+            List<ClinicalEvent.BookingChanged> changes = new java.util.concurrent.CopyOnWriteArrayList<>();
+            CountDownLatch published = new CountDownLatch(2);
+            bus.subscribe(event -> event instanceof ClinicalEvent.BookingChanged, envelope -> {
+                changes.add((ClinicalEvent.BookingChanged) envelope.event());
+                published.countDown();
+            });
+            BookingService bookings = new BookingService(
+                    writeDb(List.of(storedBooking()), keys).factory(), index, bus);
+            
+            BookingService.BookingRequest request = new BookingService.BookingRequest(1, TEST_PATIENT, 3,
+                    FUTURE_DATE, LocalTime.of(10, 0), "Cough", null, null);
+            assertEquals("Generated booking id", 21L, bookings.create(request));
+            AvailabilityIndex.Slot ten = new AvailabilityIndex.Slot(3, FUTURE_DATE, LocalTime.of(10, 0));
+            assertFalse("Slot taken", index.isFree(ten));
+            try {
+                bookings.create(request);
+                throw new RuntimeException("Double booking accepted");
+            } catch (SlotConflictException expected) {
+                assertEquals("Conflicting slot", ten, expected.getSlot());
+            }
+            try {
+                bookings.create(new BookingService.BookingRequest(1, TEST_PATIENT, 3, FUTURE_DATE,
+                        LocalTime.of(11, 0), " ", null, null));
+                throw new RuntimeException("Blank symptoms accepted");
+            } catch (IllegalArgumentException expected) {
+                assertTrue("Validation message", expected.getMessage().contains("symptoms"));
+            }
+            try {
+                bookings.create(new BookingService.BookingRequest(0, TEST_PATIENT, 3, FUTURE_DATE,
+                        LocalTime.of(11, 0), "Cough", null, null));
+                throw new RuntimeException("Booking without a patient id accepted");
+            } catch (IllegalArgumentException expected) {
+                assertTrue("Names the patient id", expected.getMessage().contains("patientId"));
+            }
+            
+            assertEquals("Cancelled", 1, bookings.cancel(21));
+            assertTrue("Cancelled slot free again", index.isFree(ten));
+            assertTrue("Events published", published.await(5, TimeUnit.SECONDS));
+            assertEquals("Created then cancelled", List.of(ClinicalEvent.BookingChanged.Change.CREATED,
+                    ClinicalEvent.BookingChanged.Change.CANCELLED), changes.stream().map(ClinicalEvent.BookingChanged::change).toList());
+            assertEquals("Patient name from the booking row", TEST_PATIENT, changes.get(1).patientName());
+            bus.close();
+            
+            FakeDb db = writeDb(List.of(), keys);
+            DiagnosisService diagnoses = new DiagnosisService(db.factory());
+            Diagnosis diagnosis = new Diagnosis(0, TEST_PATIENT, TEST_DOCTOR, "Viral infection", "Fever", "", "");
+            assertEquals("Diagnosis id", 22L, diagnoses.save(diagnosis));
+            assertEquals("Id set on the model", 22, diagnosis.getDiagnosisId());
+            assertTrue("No appointment stored as NULL", isNull(db.last(), 1));
+            assertTrue("Without an id the patient is found by name", isNull(db.last(), 12));
+            Diagnosis chosen = new Diagnosis(0, TEST_PATIENT, TEST_DOCTOR, "Viral infection", "Fever", "", "");
+            chosen.setPatientId(5);
+            diagnoses.save(chosen);
+            assertEquals("The chosen patient's id is saved", 5, db.last().intParam(12));
+        });
+        
+        // Test 59: REST API round trip over HTTP, with JSON errors for bad input and conflicts,
+        // and every route but health behind a bearer session from /api/login
+        test("REST API Round Trip", () -> {
+            AtomicLong keys = new AtomicLong(40);
+            ConnectionPool.ConnectionFactory connections = writeDb(List.of(storedBooking()), keys).factory();
+            AvailabilityIndex index = new AvailabilityIndex(
+                    new FakeDb().factory(), 60_000, () -> 0L);
+            VitalsStore store = new VitalsStore(new FakeDb().factory(), 10);
+            AnomalyEngine engine = new AnomalyEngine(store);
+            store.addListener(engine);
+            AuthService auth = new AuthService(userDb(new AtomicReference<>("12345"), new AtomicInteger()),
+                    fastAuthConfig(), System::currentTimeMillis);
+            SessionStore sessions = new SessionStore(60_000, System::currentTimeMillis);
+            ApiServer api = new ApiServer(new BookingService(connections, index, null),
+                    new VitalsService(connections, store, engine), new DiagnosisService(connections),
+                    new ReferralService(connections, null), new ReportService(connections, engine), auth, sessions);
+            api.start("127.0.0.1", 0);
+            try {
+                java.net.http.HttpClient client = java.net.http.HttpClient.newHttpClient();
+                String base = "http://127.0.0.1:" + api.getPort() + "/api/";
+                
+                java.net.http.HttpResponse<String> health = send(client, "GET", base + "health", null);
+                assertEquals("Health", 200, health.statusCode());
+                
+                java.net.http.HttpResponse<String> anonymous = send(client, "GET", base + "bookings?patientId=1", null);
+                assertEquals("No token", 401, anonymous.statusCode());
+                assertEquals("Challenge", "Bearer", anonymous.headers().firstValue("WWW-Authenticate").orElse(""));
+                assertEquals("Metrics need a token", 401, send(client, "GET", base + "metrics", null).statusCode());
+                assertEquals("Forged token", 401, send(client, "GET", base + "bookings?patientId=1", null, "forged").statusCode());
+                assertEquals("Wrong password", 401, send(client, "POST", base + "login",
+                        "{\"username\":\"alice\",\"password\":\"nope\"}").statusCode());
+                java.net.http.HttpResponse<String> login = send(client, "POST", base + "login",
+                        "{\"username\":\"alice\",\"password\":\"12345\"}");
+                assertEquals("Logged in", 200, login.statusCode());
+                String token = FlatJson.parse(login.body()).get("token");
+                assertEquals("Token is a session", 1, sessions.get(token).userId());
+                
+                String booking = "{\"patientId\":1,\"patientName\":\"" + TEST_PATIENT + "\",\"doctorId\":3,"
+                        + "\"date\":\"" + FUTURE_DATE + "\",\"time\":\"09:30\",\"symptoms\":\"Headache\"}";
+                java.net.http.HttpResponse<String> created = send(client, "POST", base + "bookings", booking, token);
+                assertEquals("Created", 201, created.statusCode());
+                assertEquals("Booking id", "41", FlatJson.parse(created.body()).get("bookingId"));
+                assertEquals("Conflict", 409, send(client, "POST", base + "bookings", booking, token).statusCode());
+                
+                java.net.http.HttpResponse<String> invalid = send(client, "POST", base + "vitals", "{\"userId\":1,\"pulse\":\"fast\"}", token);
+                assertEquals("Invalid vitals", 400, invalid.statusCode());
+                assertTrue("Error message", FlatJson.parse(invalid.body()).get("error").contains("Pulse"));
+                
+                java.net.http.HttpResponse<String> vitals = send(client, "POST", base + "vitals", "{\"userId\":1,\"pulse\":72}", token);
+                assertEquals("Vitals saved", 201, vitals.statusCode());
+                assertTrue("Assessment returned", vitals.body().contains("\"vitalsId\":42"));
+                
+                assertEquals("Unknown resource", 404, send(client, "GET", base + "nothing", null, token).statusCode());
+                assertEquals("Missing parameter", 400, send(client, "GET", base + "bookings", null, token).statusCode());
+                send(client, "GET", base + "x1", null);
+                send(client, "DELETE", base + "health/x2", null);
+                String metrics = send(client, "GET", base + "metrics", null, token).body();
+                assertTrue("Per-route latency", metrics.contains("POST /api/bookings"));
+                assertTrue("Unknown paths share one bucket", metrics.contains("unmatched ") && !metrics.contains("x1")
+                        && !metrics.contains("x2") && !metrics.contains("/api/nothing"));
+                
+                assertEquals("Logged out", 200, send(client, "POST", base + "logout", null, token).statusCode());
+                assertEquals("Token ended", 401, send(client, "GET", base + "metrics", null, token).statusCode());
+            } finally {
+                api.close();
+                auth.close();
+                sessions.close();
+            }
+            try {
+                api.start("192.0.2.10", 0);
+                api.close();
+                throw new RuntimeException("Listened on a non-loopback address");
+            } catch (java.io.IOException expected) {
+                assertTrue("Names the address", expected.getMessage().contains("192.0.2.10"));
+            }
+        });
+        // Test 60: Patients only reach their own records; doctors reach everyone's and write diagnoses and referrals
+        test("REST API Patient Isolation", () -> {
+            AtomicLong keys = new AtomicLong(60);
+            Map<String, Object> othersBooking = storedBooking();
+            othersBooking.put("patient_id", 2);
+            ConnectionPool.ConnectionFactory connections = writeDb(List.of(othersBooking), keys).factory();
+            AvailabilityIndex index = new AvailabilityIndex(
+                    new FakeDb().factory(), 60_000, () -> 0L);
+            VitalsStore store = new VitalsStore(new FakeDb().factory(), 10);
+            AnomalyEngine engine = new AnomalyEngine(store);
+            AuthService auth = new AuthService(userDb(new AtomicReference<>("12345"), new AtomicInteger()),
+                    fastAuthConfig(), System::currentTimeMillis);
+            SessionStore sessions = new SessionStore(60_000, System::currentTimeMillis);
+            ApiServer api = new ApiServer(new BookingService(connections, index, null),
+                    new VitalsService(connections, store, engine), new DiagnosisService(connections),
+                    new ReferralService(connections, null), new ReportService(connections, engine), auth, sessions);
+            api.start("127.0.0.1", 0);
+            try {
+                java.net.http.HttpClient client = java.net.http.HttpClient.newHttpClient();
+                String base = "http://127.0.0.1:" + api.getPort() + "/api/";
+                String patient = sessions.open(1, TEST_PATIENT, "Patient").sessionId();
+                String doctor = sessions.open(3, TEST_DOCTOR, "Doctor").sessionId();
+                
+                assertEquals("Another patient's report", 403, send(client, "GET", base + "reports/2", null, patient).statusCode());
+                assertEquals("Storing another patient's report", 403, send(client, "POST", base + "reports/2", null, patient).statusCode());
+                assertEquals("Another patient's vitals", 403, send(client, "GET", base + "vitals?userId=2", null, patient).statusCode());
+                assertEquals("Another patient's assessment", 403, send(client, "GET", base + "vitals/2/assessment", null, patient).statusCode());
+                assertEquals("Vitals for another patient", 403, send(client, "POST", base + "vitals",
+                        "{\"userId\":2,\"pulse\":72}", patient).statusCode());
+                assertEquals("Another patient's bookings", 403, send(client, "GET", base + "bookings?patientId=2", null, patient).statusCode());
+                assertEquals("Another patient's diagnoses", 403, send(client, "GET", base + "diagnoses?patientId=2", null, patient).statusCode());
+                assertEquals("Diagnoses by name", 403, send(client, "GET", base + "diagnoses?patient=Bob", null, patient).statusCode());
+                assertEquals("Recent referrals", 403, send(client, "GET", base + "referrals", null, patient).statusCode());
+                assertEquals("Own referrals", 200, send(client, "GET", base + "referrals?patientId=1", null, patient).statusCode());
+                
+                String booking = "{\"patientId\":2,\"doctorId\":3,\"date\":\"" + FUTURE_DATE
+                        + "\",\"time\":\"09:30\",\"symptoms\":\"Headache\"}";
+                assertEquals("Booking for another patient", 403, send(client, "POST", base + "bookings", booking, patient).statusCode());
+                assertEquals("Moving another patient's booking", 403, send(client, "PUT", base + "bookings/21", booking, patient).statusCode());
+                assertEquals("Cancelling another patient's booking", 403,
+                        send(client, "POST", base + "bookings/21/cancel", null, patient).statusCode());
+                String diagnosis = "{\"patientId\":2,\"patientName\":\"Bob\",\"doctorName\":\"" + TEST_DOCTOR
+                        + "\",\"diagnosis\":\"Flu\"}";
+                assertEquals("Patient writing a diagnosis", 403, send(client, "POST", base + "diagnoses", diagnosis, patient).statusCode());
+                String referral = "{\"patientId\":1,\"patientName\":\"" + TEST_PATIENT + "\",\"hospital\":\"" + HOSPITAL
+                        + "\",\"reason\":\"Chest pain\",\"urgency\":\"HIGH\"}";
+                assertEquals("Patient writing a referral", 403, send(client, "POST", base + "referrals", referral, patient).statusCode());
+                
+                assertEquals("Doctor reads any patient", 200, send(client, "GET", base + "diagnoses?patientId=2", null, doctor).statusCode());
+                assertEquals("Doctor writes a diagnosis", 201, send(client, "POST", base + "diagnoses", diagnosis, doctor).statusCode());
+                assertEquals("Doctor cancels any booking", 200,
+                        send(client, "POST", base + "bookings/21/cancel", null, doctor).statusCode());
+            } finally {
+                api.close();
+                auth.close();
+                sessions.close();
+            }
+        });
+    }
+    
+    private static java.net.http.HttpResponse<String> send(java.net.http.HttpClient client, String method,
+                                                          String url, String body) throws Exception {
+        return send(client, method, url, body, null);
+    }
+    
+    private static java.net.http.HttpResponse<String> send(java.net.http.HttpClient client, String method,
+                                                          String url, String body, String token) throws Exception {
+        java.net.http.HttpRequest.BodyPublisher publisher = body == null
+                ? java.net.http.HttpRequest.BodyPublishers.noBody()
+                : java.net.http.HttpRequest.BodyPublishers.ofString(body);
+        java.net.http.HttpRequest.Builder request = java.net.http.HttpRequest.newBuilder(java.net.URI.create(url))
+                .method(method, publisher);
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+        return client.send(request.build(), java.net.http.HttpResponse.BodyHandlers.ofString());
+    }
+    
+    private static Map<String, Object> storedBooking() {
+        Map<String, Object> row = new HashMap<>();
+        row.put("doctor_id", 3);
+        row.put("appointment_date", FUTURE_DATE.toString());
+        row.put("appointment_time", "10:00:00");
+        row.put("status", "Pending");
+        row.put("patient_name", TEST_PATIENT);
+        row.put("patient_id", 1);
+        return row;
+    }
+    
+    /** Queries return the given rows; each update changes one row and generates the next key. */
+    private static FakeDb writeDb(List<Map<String, Object>> rows, AtomicLong keys) {
+        return new FakeDb().rows(rows).generatedKeys(keys::incrementAndGet);
+    }
+    
+    private static boolean isNull(FakeDb.Call call, int index) {
+        return call.params().containsKey(index) && call.param(index) == null;
+    }
+    
+    // ==========================================
+    // LOAD GENERATOR TESTS
+    // ==========================================
+    
+    private static void testLoadGenerator() {
+        System.out.println("\n>>> TESTING LOAD GENERATOR <<<");
+        
+        // Test 61: Operation mix parses weights and picks in proportion
+        test("Load Operation Mix", () -> {
+            OperationMix mix = OperationMix.parse("login=50, vitals=30,report=20");
+            assertEquals("Login share", 0.5, mix.share(OperationMix.Operation.LOGIN));
+            assertEquals("Unlisted operation never picked", 0.0, mix.share(OperationMix.Operation.BOOKING_CANCEL));
+            
+            java.util.SplittableRandom random = new java.util.SplittableRandom(7);
+            Map<OperationMix.Operation, Integer> picks = new java.util.EnumMap<>(OperationMix.Operation.class);
+            for (int i = 0; i < 10_000; i++) {
+                picks.merge(mix.pick(random), 1, Integer::sum);
+            }
+            assertEquals("Only listed operations", 3, picks.size());
+            assertTrue("Login about half", Math.abs(picks.get(OperationMix.Operation.LOGIN) - 5_000) < 300);
+            assertTrue("Report about a fifth", Math.abs(picks.get(OperationMix.Operation.REPORT) - 2_000) < 300);
+            
+            for (String bad : new String[]{"", "login", "login=x", "dance=5", "login=0"}) {
+                try {
+                    OperationMix.parse(bad);
+                    throw new RuntimeException("Accepted mix '" + bad + "'");
+                } catch (IllegalArgumentException expected) {
+                    // rejected as expected
+                }
+            }
+        });
+        
+        // Test 62: Seeder writes a consistent clinic in batches and reuses it on the next run
+        test("Clinic Data Seeder", () -> {
+            LoadTestConfig config = new LoadTestConfig();
+            config.setDoctors(4);
+            config.setStaff(2);
+            config.setPatients(30);
+            config.setBookingsPerPatient(2);
+            config.setVitalsPerPatient(3);
+            config.setSeedBatchSize(7);
+            Map<String, List<Object[]>> inserted = new java.util.concurrent.ConcurrentHashMap<>();
+            Map<String, List<Long>> keys = new java.util.concurrent.ConcurrentHashMap<>();
+            int[] largestInsert = {0};
+            ClinicDataSeeder seeder = new ClinicDataSeeder(
+                    seederDb(List.of(), inserted, keys, largestInsert).factory(), config, "hash", FUTURE_DATE);
+            ClinicDataSeeder.SeededClinic clinic = seeder.seed();
+            
+            assertTrue("Created", clinic.created());
+            assertEquals("Doctors", 4, clinic.doctors().size());
+            assertEquals("Staff", 2, clinic.staff().size());
+            assertEquals("Patients", 30, clinic.patients().size());
+            assertEquals("Users", 36, inserted.get("users").size());
+            assertTrue("Given hash stored", inserted.get("users").stream().allMatch(row -> "hash".equals(row[2])));
+            assertTrue("Multi-row inserts of at most seedBatchSize rows", largestInsert[0] == 7);
+            
+            List<Object[]> bookings = inserted.get("bookings");
+            assertEquals("Bookings", 60, bookings.size());
+            assertEquals("No doctor slot used twice", 60L, bookings.stream()
+                    .map(row -> row[1] + " " + row[2] + " " + row[3]).distinct().count());
+            assertTrue("Bookings in the past", bookings.stream()
+                    .allMatch(row -> ((java.sql.Date) row[2]).toLocalDate().isBefore(FUTURE_DATE)));
+            assertTrue("Appointments linked to bookings", inserted.get("appointments").stream()
+                    .allMatch(row -> keys.get("bookings").contains((Long) row[5])));
+            long completed = inserted.get("appointments").stream().filter(row -> "COMPLETED".equals(row[4])).count();
+            assertEquals("A diagnosis per completed appointment", completed, (long) inserted.get("diagnoses").size());
+            assertTrue("Diagnoses linked to appointments", inserted.get("diagnoses").stream()
+                    .allMatch(row -> keys.get("appointments").contains((Long) row[0])));
+            assertEquals("Vitals", 90, inserted.get("vitals_records").size());
+            assertEquals("Counts reported", 90, seeder.getCounts().vitals());
+            
+            inserted.clear();
+            Map<String, Object> existing = new HashMap<>();
+            existing.put("user_id", 5000);
+            existing.put("name", "Load Patient 1");
+            existing.put("username", "load_patient_1");
+            existing.put("role", "Patient");
+            Map<String, Object> doctor = new HashMap<>(existing);
+            doctor.put("role", "Doctor");
+            ClinicDataSeeder.SeededClinic reused = new ClinicDataSeeder(
+                    seederDb(List.of(existing, doctor), inserted, keys, largestInsert).factory(), config,
+                    "hash", FUTURE_DATE).seed();
+            assertFalse("Reused", reused.created());
+            assertTrue("Nothing inserted again", inserted.isEmpty());
+        });
+        
+        // Test 63: A short run drives every operation through the services and reports percentiles
+        test("Load Generator Run", () -> {
+            AtomicLong keys = new AtomicLong(100);
+            ConnectionPool.ConnectionFactory connections = writeDb(List.of(storedBooking()), keys).factory();
+            AvailabilityIndex index = new AvailabilityIndex(
+                    new FakeDb().factory(), 60_000, () -> 0L);
+            VitalsStore store = new VitalsStore(new FakeDb().factory(), 10);
+            AnomalyEngine engine = new AnomalyEngine(store);
+            
+            LoadTestConfig config = new LoadTestConfig();
+            config.setClients(20);
+            config.setWarmupSeconds(0);
+            config.setDurationSeconds(1);
+            config.setThinkTimeMs(5);
+            config.setReportIntervalMs(60_000);
+            ClinicDataSeeder.Member patient = new ClinicDataSeeder.Member(1, TEST_PATIENT, "load_patient_1", "Patient");
+            ClinicDataSeeder.Member doctor = new ClinicDataSeeder.Member(3, TEST_DOCTOR, "load_doctor_1", "Doctor");
+            AuthService auth = new AuthService(userDb(new AtomicReference<>(ClinicDataSeeder.PASSWORD),
+                    new AtomicInteger()), fastAuthConfig(), System::currentTimeMillis);
+            ClinicLoadGenerator generator = new ClinicLoadGenerator(config,
+                    new ClinicDataSeeder.SeededClinic(List.of(doctor), List.of(), List.of(patient), false),
+                    auth, new BookingService(connections, index, null),
+                    new VitalsService(connections, store, engine), new ReportService(connections, engine));
+            double seconds = generator.run();
+            auth.close();
+            
+            assertTrue("Ran for the duration", seconds >= 1.0);
+            for (OperationMix.Operation op : OperationMix.Operation.values()) {
+                ClinicLoadGenerator.OperationStats stats = generator.getStats().get(op);
+                assertEquals(op.key() + " errors", 0L, stats.getErrors());
+                assertTrue(op.key() + " measured", stats.getLatency().getCount() > 0);
+            }
+            String report = generator.report(seconds);
+            assertTrue("Percentile columns", report.contains("p95 ms") && report.contains("p99 ms"));
+            assertTrue("Row per operation", report.contains("bookingCreate") && report.contains("vitals"));
+        });
+    }
+    
+    /**
+     * Database for the seeder: queries return the given rows; each INSERT
+     * records its rows per table and returns consecutive generated keys.
+     */
+    private static FakeDb seederDb(List<Map<String, Object>> rows, Map<String, List<Object[]>> inserted,
+                                   Map<String, List<Long>> keys, int[] largestInsert) {
+        AtomicLong nextKey = new AtomicLong(1_000);
+        return new FakeDb().rows(rows).onUpdate("INSERT INTO ", call -> {
+            String sql = call.sql();
+            String table = sql.substring("INSERT INTO ".length(), sql.indexOf(' ', "INSERT INTO ".length()));
+            int rowCount = sql.split("\\(\\?").length - 1;
+            int columns = call.params().size() / rowCount;
+            List<Object> values = new ArrayList<>(call.params().values());
+            for (int r = 0; r < rowCount; r++) {
+                long key = nextKey.incrementAndGet() + table.hashCode() % 1000 * 100_000L;
+                inserted.computeIfAbsent(table, t -> new java.util.concurrent.CopyOnWriteArrayList<>())
+                        .add(values.subList(r * columns, (r + 1) * columns).toArray());
+                keys.computeIfAbsent(table, t -> new java.util.concurrent.CopyOnWriteArrayList<>()).add(key);
+                call.generatedKeys().add(key);
+            }
+            largestInsert[0] = Math.max(largestInsert[0], rowCount);
+            return rowCount;
+        });
+    }
+    
+    // ==========================================
+    // AUTHENTICATION TESTS
+    // ==========================================
+    
+    private static void testAuthentication() {
+        System.out.println("\n>>> TESTING AUTHENTICATION <<<");
+        
+        // Test 64: PBKDF2 hashes verify, are salted, and legacy or cheaper rows need rehashing
+        test("Password Hashing", () -> {
+            PasswordHasher hasher = new PasswordHasher(2_000);
+            String hash = hasher.hash("s3cret");
+            assertTrue("Stored format", hash.startsWith("pbkdf2-sha256$2000$") && hash.length() <= 100);
+            assertTrue("Correct password", hasher.verify("s3cret", hash));
+            assertFalse("Wrong password", hasher.verify("s3cret!", hash));
+            assertFalse("Salted", hash.equals(hasher.hash("s3cret")));
+            assertFalse("Current cost needs no rehash", hasher.needsRehash(hash));
+            assertTrue("Higher cost rehashes older hashes", new PasswordHasher(4_000).needsRehash(hash));
+            assertTrue("Legacy plaintext verifies", hasher.verify("12345", "12345"));
+            assertTrue("Legacy plaintext needs rehash", hasher.needsRehash("12345"));
+            assertFalse("Malformed hash never matches", hasher.verify("x", "pbkdf2-sha256$2000$!!$??"));
+            try {
+                new PasswordHasher(10);
+                throw new RuntimeException("Accepted a trivial cost");
+            } catch (IllegalArgumentException expected) {
+                // rejected as expected
+            }
+        });
+        
+        // Test 65: Token buckets allow a burst, then refill over time per key
+        test("Token Bucket Rate Limiter", () -> {
+            AtomicLong now = new AtomicLong(0);
+            TokenBucketLimiter limiter = new TokenBucketLimiter(3, 60, 2, now::get); // one token per second
+            for (int i = 0; i < 3; i++) {
+                assertEquals("Burst allowed", 0L, limiter.acquire("alice"));
+            }
+            assertEquals("Wait for next token", 1_000L, limiter.acquire("alice"));
+            assertEquals("Other keys unaffected", 0L, limiter.acquire("bob"));
+            now.addAndGet(1_000);
+            assertEquals("Refilled", 0L, limiter.acquire("alice"));
+            now.addAndGet(60_000);
+            limiter.acquire("carol");
+            assertTrue("Idle full buckets evicted", limiter.trackedKeys() <= 2);
+        });
+        
+        // Test 66: Legacy row is rehashed on login, repeat logins hit the cache, attempts are throttled
+        test("Login Rehash, Cache And Throttling", () -> {
+            AtomicReference<String> stored = new AtomicReference<>("12345");
+            AtomicInteger updates = new AtomicInteger();
+            AtomicLong now = new AtomicLong(0);
+            AuthConfig config = fastAuthConfig();
+            config.setUserBurst(4);
+            config.setUserPerMinute(1);
+            AuthService auth = new AuthService(userDb(stored, updates), config, now::get);
+            try {
+                AuthService.AuthenticatedUser user = auth.authenticate("Alice", "12345", "10.0.0.1");
+                assertNotNull("Legacy password accepted", user);
+                assertEquals("Role", "Patient", user.role());
+                assertTrue("Rehashed on login", stored.get().startsWith(PasswordHasher.SCHEME + "$"));
+                assertEquals("One rehash", 1L, auth.getRehashed());
+                
+                assertNotNull("Hashed password accepted", auth.authenticate("alice", "12345", "10.0.0.1"));
+                assertEquals("Second login from the cache", 1L, auth.getCacheHits());
+                assertEquals("Rehash written once", 1, updates.get());
+                assertEquals("Wrong password", null, auth.authenticate("alice", "nope", "10.0.0.1"));
+                assertEquals("Failure counted", 1L, auth.getFailures());
+                assertNotNull("Correct again after failure", auth.authenticate("ALICE", "12345", "10.0.0.2"));
+                try {
+                    auth.authenticate("alice", "12345", "10.0.0.3");
+                    throw new RuntimeException("Fifth attempt within the burst was not throttled");
+                } catch (LoginThrottledException expected) {
+                    assertTrue("Retry hint", expected.getRetryAfterSeconds() >= 1);
+                }
+                now.addAndGet(60_000);
+                assertNotNull("Allowed after refill", auth.authenticate("alice", "12345", "10.0.0.3"));
+                assertTrue("Latency recorded", auth.getLoginLatency().getCount() >= 5);
+            } finally {
+                auth.close();
+            }
+        });
+    }
+    
+    private static AuthConfig fastAuthConfig() {
+        AuthConfig config = new AuthConfig();
+        config.setIterations(PasswordHasher.MIN_ITERATIONS); // keep the tests quick
+        config.setUserBurst(1_000);
+        config.setAddressBurst(1_000);
+        return config;
+    }
+    
+    /**
+     * Users table with one patient "alice" whose password is held in stored;
+     * the rehash UPDATE only applies when it still holds the expected value.
+     */
+    private static ConnectionPool.ConnectionFactory userDb(AtomicReference<String> stored, AtomicInteger updates) {
+        return new FakeDb()
+                .onQuery(sql -> true, call -> {
+                    Map<String, Object> row = new HashMap<>();
+                    row.put("user_id", 1);
+                    row.put("name", TEST_PATIENT);
+                    row.put("role", "Patient");
+                    row.put("password", stored.get());
+                    return List.of(row);
+                })
+                .onUpdate(sql -> true, call -> {
+                    updates.incrementAndGet();
+                    return stored.compareAndSet((String) call.param(3), (String) call.param(1)) ? 1 : 0;
+                })
+                .factory();
+    }
+    
+    // ==========================================
+    // SESSION STORE TESTS
+    // ==========================================
+    
+    private static void testSessionStore() {
+        System.out.println("\n>>> TESTING SESSION STORE <<<");
+        
+        // Test 67: Contexts are immutable and vitals are copied on write
+        test("Session Context Snapshots", () -> {
+            Map<String, String> readings = new HashMap<>();
+            readings.put("Pulse", "72");
+            SessionContext before = SessionContext.of("snap", 1, TEST_PATIENT, "Patient").withVitals(readings);
+            readings.put("Pulse", "150"); // caller's map changes after the snapshot
+            SessionContext after = before.withVital("Oxygen", "97");
+            
+            assertEquals("Snapshot unaffected by caller's map", "72", before.vital("Pulse"));
+            assertEquals("Older snapshot keeps its size", 1, before.vitals().size());
+            assertEquals("New snapshot has both readings", 2, after.vitals().size());
+            assertEquals("Null value removes a reading", 1, after.withVital("Oxygen", null).vitals().size());
+            assertTrue("Role check ignores case", after.isRole("patient"));
+            try {
+                after.vitals().put("BP", "120/80");
+                throw new AssertionError("Vitals snapshot should be read-only");
+            } catch (UnsupportedOperationException expected) {
+                // read-only as intended
+            }
+        });
+        
+        // Test 68: Concurrent updates to one session are not lost and users stay separate
+        test("Concurrent Session Updates", () -> {
+            SessionStore store = new SessionStore(60_000, System::currentTimeMillis);
+            try {
+                String alice = store.open(1, "Alice", "Patient").sessionId();
+                String bob = store.open(2, "Bob", "Patient").sessionId();
+                assertFalse("Session ids are unique", alice.equals(bob));
+                
+                int threads = 8;
+                int perThread = 200;
+                CountDownLatch start = new CountDownLatch(1);
+                List<Thread> workers = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    int worker = t;
+                    Thread thread = new Thread(() -> {
+                        try {
+                            start.await();
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                        for (int i = 0; i < perThread; i++) {
+                            String key = worker + "-" + i;
+                            store.update(alice, s -> s.withVital(key, "1"));
+                            store.get(bob);
+                        }
+                    });
+                    workers.add(thread);
+                    thread.start();
+                }
+                start.countDown();
+                for (Thread thread : workers) {
+                    thread.join(10_000);
+                }
+                
+                assertEquals("Every update kept", threads * perThread, store.get(alice).vitals().size());
+                assertEquals("Other user untouched", 0, store.get(bob).vitals().size());
+                assertEquals("Other user's name", "Bob", store.get(bob).userName());
+                try {
+                    store.update(alice, s -> SessionContext.of("other", 1, "Alice", "Patient"));
+                    throw new AssertionError("Changing the session id should be rejected");
+                } catch (IllegalArgumentException expected) {
+                    // the id is the key and cannot change
+                }
+            } finally {
+                store.close();
+            }
+        });
+        
+        // Test 69: Idle sessions expire, activity keeps a session alive, logout ends it
+        test("Idle Session Expiry", () -> {
+            AtomicLong now = new AtomicLong(1_000_000);
+            SessionStore store = new SessionStore(30_000, now::get);
+            String active = store.open(1, "Alice", "Patient").sessionId();
+            String idle = store.open(2, "Bob", "Doctor").sessionId();
+            String loggedOut = store.open(3, "Carol", "Staff").sessionId();
+            
+            store.invalidate(loggedOut);
+            assertTrue("Logged out session is gone", store.get(loggedOut) == null);
+            
+            now.addAndGet(20_000);
+            assertNotNull("Active session touched", store.get(active));
+            now.addAndGet(20_000);
+            
+            assertTrue("Idle session reads as expired", store.get(idle) == null);
+            assertTrue("Idle session cannot be updated", store.update(idle, s -> s.clearVitals()) == null);
+            assertNotNull("Recently used session survives", store.get(active));
+            
+            now.addAndGet(30_000);
+            assertEquals("Sweep removes the idle session", 1, store.expireIdle());
+            assertEquals("No sessions left", 0, store.size());
+            assertEquals("Expired count", 2L, store.getExpiredCount());
+            assertEquals("Opened count", 3L, store.getOpenedCount());
+            store.close();
+        });
+    }
+    
+    // ==========================================
+    // VIEW REGISTRY TESTS
+    // ==========================================
+    
+    private static void testViewRegistry() {
+        System.out.println("\n>>> TESTING VIEW REGISTRY <<<");
+        
+        // Test 70: A screen is built once, then reused and refreshed with each session
+        test("View Reuse And Refresh", () -> {
+            AtomicInteger loads = new AtomicInteger();
+            List<String> refreshed = new ArrayList<>();
+            ViewRegistry views = new ViewRegistry(4, view -> {
+                loads.incrementAndGet();
+                RefreshableView controller = session -> refreshed.add(view + ":" + session.userName());
+                return new ViewRegistry.LoadedView(null, controller);
+            }, Runnable::run);
+            
+            Object first = views.open(AppView.DASHBOARD, SessionContext.of("a", 1, "Alice", "Patient"));
+            Object second = views.open(AppView.DASHBOARD, SessionContext.of("b", 2, "Bob", "Doctor"));
+            views.open(AppView.VITALS_CHART, null);
+            
+            assertTrue("Same controller reused", first == second);
+            assertEquals("Loads", 2, loads.get());
+            assertEquals("Hits", 1L, views.getHits());
+            assertEquals("Refreshed for each session", List.of("DASHBOARD:Alice", "DASHBOARD:Bob"), refreshed);
+        });
+        
+        // Test 71: Least recently shown screens are evicted beyond the limit
+        test("View Cache Eviction", () -> {
+            ViewRegistry views = new ViewRegistry(2, view -> new ViewRegistry.LoadedView(null, new Object()),
+                    Runnable::run);
+            views.open(AppView.BOOK_CONSULTATION, null);
+            views.open(AppView.VITALS_FORM, null);
+            views.open(AppView.BOOK_CONSULTATION, null);
+            views.open(AppView.PRESCRIPTION_REFILL, null);
+            
+            assertTrue("Recently used screen kept", views.isCached(AppView.BOOK_CONSULTATION));
+            assertFalse("Least recently used screen evicted", views.isCached(AppView.VITALS_FORM));
+            assertEquals("Evictions", 1L, views.getEvictions());
+            assertEquals("Cache size", 2, views.size());
+            views.open(AppView.VITALS_FORM, null);
+            assertEquals("Evicted screen is loaded again", 4L, views.getLoads());
+        });
+        
+        // Test 72: Preloading covers the role's screens, one per event, and stops at logout
+        test("Role-Based View Preloading", () -> {
+            List<Runnable> fxEvents = new ArrayList<>();
+            ViewRegistry views = new ViewRegistry(10, view -> new ViewRegistry.LoadedView(null, new Object()),
+                    fxEvents::add);
+            views.open(AppView.DASHBOARD, null);
+            views.preload("Doctor");
+            assertEquals("One screen per event", 1, fxEvents.size());
+            while (!fxEvents.isEmpty()) {
+                fxEvents.remove(0).run();
+            }
+            assertTrue("Diagnosis preloaded", views.isCached(AppView.DOCTOR_DIAGNOSIS));
+            assertTrue("Referrals preloaded", views.isCached(AppView.HOSPITAL_BOOKING));
+            assertFalse("Patient screens not preloaded for a doctor", views.isCached(AppView.BOOK_CONSULTATION));
+            assertEquals("Preloaded", 2L, views.getPreloaded());
+            
+            views.clear();
+            views.preload("patient");
+            fxEvents.remove(0).run();
+            views.clear(); // logout part way through
+            while (!fxEvents.isEmpty()) {
+                fxEvents.remove(0).run();
+            }
+            assertEquals("Preload stopped after logout", 0, views.size());
+            assertEquals("Preloaded before logout", 3L, views.getPreloaded());
+            assertTrue("Admins share staff screens", AppView.STAFF_BOOKING.permits("Admin"));
+            assertTrue("Unknown role treated as patient", AppView.HEALTH_REPORT.permits("visitor"));
+        });
+    }
+    
+    // ==========================================
+    // STARTUP TIMELINE TESTS
+    // ==========================================
+    
+    private static void testStartupTimeline() {
+        System.out.println("\n>>> TESTING STARTUP TIMELINE <<<");
+        
+        // Test 73: Phases are measured from JVM start, recorded once, and reported with warm-up steps
+        test("Startup Timeline Report", () -> {
+            AtomicLong now = new AtomicLong(10_000);
+            StartupTimeline timeline = new StartupTimeline(9_800, now::get);
+            
+            assertTrue("Launch recorded", timeline.mark(StartupTimeline.Phase.MAIN));
+            now.set(10_400);
+            timeline.mark(StartupTimeline.Phase.FIRST_FRAME);
+            now.set(10_900);
+            timeline.mark(StartupTimeline.Phase.LOGIN_READY);
+            timeline.recordStep("database", 350);
+            timeline.recordStep("dashboard view", 80);
+            
+            String beforeLogin = timeline.report();
+            assertTrue("Missing phase shown as dash", beforeLogin.contains("dashboard ready") && beforeLogin.contains(" -"));
+            assertEquals("Not yet at dashboard", -1L, timeline.elapsed(StartupTimeline.Phase.DASHBOARD_READY));
+            
+            now.set(14_000);
+            timeline.mark(StartupTimeline.Phase.LOGIN_SUBMITTED);
+            now.set(14_300);
+            timeline.mark(StartupTimeline.Phase.DASHBOARD_READY);
+            now.set(20_000);
+            assertFalse("Second login does not move the mark", timeline.mark(StartupTimeline.Phase.DASHBOARD_READY));
+            
+            assertEquals("Launch", 200L, timeline.elapsed(StartupTimeline.Phase.MAIN));
+            assertEquals("First frame", 600L, timeline.elapsed(StartupTimeline.Phase.FIRST_FRAME));
+            assertEquals("Dashboard ready", 4_500L, timeline.elapsed(StartupTimeline.Phase.DASHBOARD_READY));
+            String report = timeline.report();
+            assertTrue("Delta from previous phase", report.contains("(+400)"));
+            assertTrue("Dashboard measured from login", report.contains("300 after login was submitted"));
+            assertTrue("Warm-up steps listed", report.contains("warm-up: database 350 ms, dashboard view 80 ms"));
+        });
+    }
+    
+    // ==========================================
+    // SCHEMA MIGRATION TESTS
+    // ==========================================
+    
+    private static void testSchemaMigrations() {
+        System.out.println("\n>>> TESTING SCHEMA MIGRATIONS <<<");
+        
+        // Test 74: Versions apply once, in order, skipping columns and indexes that already exist,
+        // and pending versions can be listed without migrating
+        test("Migrations Apply In Version Order Once", () -> {
+            Set<String> existing = new HashSet<>(Set.of("appointments.patient_id"));
+            Set<Integer> applied = new HashSet<>();
+            List<String> log = new java.util.concurrent.CopyOnWriteArrayList<>();
+            MigrationConfig config = new MigrationConfig();
+            config.setBenchmarkPatients(0);
+            List<Migration> outOfOrder = new ArrayList<>(TelehealthMigrations.all());
+            java.util.Collections.reverse(outOfOrder);
+            MigrationRunner runner = new MigrationRunner(
+                    migrationDb(existing, applied, new HashMap<>(), new HashMap<>(), log).factory(),
+                    config, outOfOrder);
+            
+            assertEquals("All pending before the first run", List.of(1, 2, 3, 4, 5, 6, 7),
+                    runner.pending().stream().map(Migration::version).toList());
+            assertTrue("Listing changes nothing", log.stream().noneMatch(line -> line.startsWith("ddl") || line.startsWith("update")));
+            MigrationReport report = runner.migrate();
+            assertEquals("Applied in version order", List.of(1, 2, 3, 4, 5, 6, 7),
+                    report.getApplied().stream().map(MigrationReport.Applied::version).toList());
+            assertEquals("Versions recorded", Set.of(1, 2, 3, 4, 5, 6, 7), applied);
+            assertTrue("Slot guard column added", log.stream().anyMatch(line -> line.startsWith("ddl ALTER TABLE bookings ADD COLUMN active_slot")));
+            assertTrue("Slot guard before its unique key", log.indexOf("ddl CREATE UNIQUE INDEX uq_bookings_doctor_slot ON bookings "
+                    + "(doctor_id, appointment_date, appointment_time, active_slot)")
+                    > log.indexOf("ddl ALTER TABLE bookings ADD COLUMN active_slot tinyint GENERATED ALWAYS AS "
+                    + "(IF(status = 'Cancelled', NULL, 1)) STORED"));
+            assertTrue("Vitals history index", log.contains("ddl CREATE INDEX idx_vitals_user_time ON vitals_records (user_id, recorded_at)"));
+            assertTrue("Capacity registry created", log.stream().anyMatch(line -> line.startsWith("ddl CREATE TABLE hospital_departments (")));
+            assertTrue("Departments seeded", log.stream().anyMatch(line -> line.startsWith("update INSERT IGNORE INTO hospital_departments")
+                    && line.contains("Heart Specialist Center, Cardiac Surgery, 8")));
+            assertFalse("Existing column skipped", log.contains("ddl ALTER TABLE appointments ADD COLUMN patient_id int DEFAULT NULL AFTER patient_name"));
+            assertTrue("Missing column added", log.contains("ddl ALTER TABLE appointments ADD COLUMN doctor_id int DEFAULT NULL AFTER doctor_name"));
+            assertTrue("Covering index created", log.contains("ddl CREATE INDEX idx_diagnoses_patient ON diagnoses (patient_id, recorded_date)"));
+            assertTrue("Columns before indexes", log.indexOf("ddl CREATE INDEX idx_diagnoses_patient ON diagnoses (patient_id, recorded_date)")
+                    > log.indexOf("ddl ALTER TABLE diagnoses ADD COLUMN patient_id int DEFAULT NULL AFTER patient_name"));
+            assertTrue("Lock released", log.get(log.size() - 1).contains("RELEASE_LOCK"));
+            
+            log.clear();
+            assertTrue("Nothing pending on the second run", runner.migrate().isEmpty());
+            assertTrue("Nothing listed as pending", runner.pending().isEmpty());
+            assertEquals("Only the bookkeeping tables are checked", 2L, log.stream().filter(line -> line.startsWith("ddl")).count());
+            try {
+                new MigrationRunner(() -> null, config, List.of(TelehealthMigrations.all().get(0), TelehealthMigrations.all().get(0)));
+                throw new RuntimeException("Duplicate version accepted");
+            } catch (IllegalArgumentException expected) {
+                assertTrue("Names the version", expected.getMessage().contains("1"));
+            }
+        });
+        
+        // Test 75: The backfill walks key ranges in batches and resumes after its checkpoint
+        test("Id Backfill Resumes In Batches", () -> {
+            Map<String, Long> checkpoints = new HashMap<>(Map.of("diagnoses", 1_000L));
+            List<String> log = new java.util.concurrent.CopyOnWriteArrayList<>();
+            MigrationConfig config = new MigrationConfig();
+            config.setBatchSize(1_000);
+            config.setBenchmarkPatients(0);
+            IdBackfillMigration backfill = new IdBackfillMigration(2, List.of(TelehealthMigrations.LINKED_TABLES.get(1)));
+            MigrationReport report = new MigrationRunner(migrationDb(new HashSet<>(), new HashSet<>(),
+                    checkpoints, Map.of("diagnoses", 2_500L), log).factory(), config, List.of(backfill)).migrate();
+            
+            List<String> ranges = log.stream().filter(line -> line.startsWith("update UPDATE diagnoses")).toList();
+            assertEquals("Two ranges after the checkpoint", 2, ranges.size());
+            assertTrue("First range", ranges.get(0).endsWith("[1000, 2000]"));
+            assertTrue("Last range stops at the highest key", ranges.get(1).endsWith("[2000, 2500]"));
+            assertTrue("Names resolved per role", ranges.get(0).contains("u.role = 'Patient'") && ranges.get(0).contains("u.role = 'Doctor'"));
+            assertEquals("Each range committed", 2L, log.stream().filter("commit"::equals).count());
+            assertEquals("Checkpoint advanced", 2_500L, checkpoints.get("diagnoses"));
+            assertTrue("Resume noted", report.getApplied().get(0).notes().get(0).contains("resumed after key 1000"));
+        });
+        
+        // Test 76: Name-keyed queries are timed before and id-keyed ones after, for the same patients
+        test("Migration Latency Report", () -> {
+            List<String> log = new java.util.concurrent.CopyOnWriteArrayList<>();
+            MigrationConfig config = new MigrationConfig();
+            config.setBenchmarkPatients(5);
+            config.setBenchmarkRounds(2);
+            MigrationReport report = new MigrationRunner(migrationDb(new HashSet<>(), new HashSet<>(),
+                    new HashMap<>(), new HashMap<>(), log).factory(), config, List.of(
+                    new IdBackfillMigration(2, TelehealthMigrations.LINKED_TABLES))).migrate();
+            
+            List<String> probes = log.stream().filter(line -> line.startsWith("probe")).toList();
+            assertTrue("Old queries first", probes.get(0).contains("patient_name = ?"));
+            assertTrue("New queries last", probes.get(probes.size() - 1).contains("patient_id = ?"));
+            assertEquals("Sampled patient run per round", 2L, report.getBefore().get("diagnosis history").getCount());
+            assertEquals("Same runs after", 2L, report.getAfter().get("latest appointment").getCount());
+            String text = report.toString();
+            assertTrue("Comparison printed", text.contains("by name -> by id") && text.contains("referral history"));
+            assertTrue("Every table reported", text.contains("prescription_refills"));
+            assertTrue("Services query by id", DiagnosisService.PATIENT_DIAGNOSES.contains("patient_id = ?")
+                    && ReferralService.PATIENT_REFERRALS.contains("patient_id = ?"));
+        });
+    }
+    
+    /**
+     * Database for the migration runner over a small in-memory catalog:
+     * existing holds "table.object" names, applied the recorded versions,
+     * checkpoints the last key per table and maxKeys the highest key per table.
+     * Statements are logged as "ddl ...", "update ... [params]", "probe ..."
+     * and "commit"; one patient (id 6) is sampled for latency probes.
+     */
+    private static FakeDb migrationDb(Set<String> existing, Set<Integer> applied,
+                                      Map<String, Long> checkpoints, Map<String, Long> maxKeys, List<String> log) {
+        return new FakeDb()
+                .onExecute(sql -> true, call -> {
+                    log.add("ddl " + call.sql().strip());
+                    return 0;
+                })
+                .onUpdate(sql -> true, call -> {
+                    String sql = call.sql().strip();
+                    log.add("update " + sql + " " + call.params().values());
+                    if (sql.startsWith("INSERT INTO schema_migrations ")) applied.add((Integer) call.param(1));
+                    if (sql.startsWith("INSERT INTO schema_migration_progress")) {
+                        checkpoints.put((String) call.param(2), (Long) call.param(3));
+                    }
+                    return 3;
+                })
+                .onCommit(() -> log.add("commit"))
+                .onQuery("_LOCK(", call -> {
+                    log.add("query " + call.sql().strip());
+                    return List.of(Map.of("1", 1));
+                })
+                .onQuery(sql -> sql.strip().startsWith("SELECT version FROM schema_migrations"),
+                        call -> applied.stream().map(v -> Map.of("1", v)).toList())
+                .onQuery("information_schema", call -> List.of(
+                        Map.of("1", existing.contains(call.param(1) + "." + call.param(2)) ? 1L : 0L)))
+                .onQuery("FROM schema_migration_progress", call -> {
+                    Long last = checkpoints.get((String) call.param(2));
+                    return last == null ? List.of() : List.of(Map.of("1", last));
+                })
+                .onQuery("MAX(", call -> {
+                    String table = call.sql().substring(call.sql().indexOf("FROM ") + 5).trim();
+                    return List.of(Map.of("1", maxKeys.getOrDefault(table, 0L)));
+                })
+                .onQuery(sql -> sql.strip().startsWith("SELECT user_id, name FROM users"),
+                        call -> List.of(Map.of("user_id", 6, "name", TEST_PATIENT)))
+                .onQuery("COUNT(*)", call -> List.of(Map.of("1", 0L)))
+                .onQuery(sql -> true, call -> {
+                    log.add("probe " + call.sql().strip());
+                    return List.of();
+                });
+    }
+    
+    // ==========================================
+    // CLINICAL SEARCH TESTS
+    // ==========================================
+    
+    private static void testClinicalSearch() {
+        System.out.println("\n>>> TESTING CLINICAL SEARCH <<<");
+        LocalDate day = LocalDate.of(2026, 3, 2);
+        
+        // Test 77: BM25 ranks by term weight, the last word matches as a prefix, and a patient filter narrows results
+        test("Clinical Search Ranking And Filters", () -> {
+            assertEquals("Analyzer", List.of("patient", "fever", "500mg", "amoxicillin"),
+                    TextAnalyzer.terms("The patient's Fever, 500mg AMOXICILLIN!"));
+            InvertedIndex index = new InvertedIndex(64);
+            index.add(ClinicalDocument.diagnosis(1, 6, day, "Acute bronchitis", "Persistent cough and fever",
+                    "Amoxicillin 500mg three times daily"));
+            index.add(ClinicalDocument.diagnosis(2, 6, day.plusDays(1), "Migraine", "Headache", "Rest"));
+            index.add(ClinicalDocument.referral(3, 7, day, "City Hospital", "Pulmonology", "Chronic cough, cough at night", null));
+            index.add(ClinicalDocument.refill(4, 6, day.plusDays(2), "Amoxicillin", "Cough returned"));
+            
+            List<SearchHit> all = index.search("cough", null, 10);
+            assertEquals("Every cough note", 3, all.size());
+            assertEquals("Most mentions first", ClinicalDocument.Source.REFERRAL, all.get(0).source());
+            assertTrue("Scores descending", all.get(0).score() >= all.get(1).score() && all.get(1).score() >= all.get(2).score());
+            assertTrue("Filtered to patient 6",
+                    index.search("cough", 6, 10).stream().allMatch(hit -> hit.patientId() == 6));
+            assertEquals("Filtered count", 2, index.search("cough", 6, 10).size());
+            assertEquals("Prefix while typing", Set.of(1L, 4L),
+                    index.search("amox", 6, 10).stream().map(SearchHit::sourceId).collect(java.util.stream.Collectors.toSet()));
+            assertTrue("Trailing space ends the prefix", index.search("amox ", 6, 10).isEmpty());
+            assertEquals("Top-k limit", 1, index.search("headache bronchitis", null, 1).size());
+            assertTrue("Stop words alone match nothing", index.search("the and", null, 10).isEmpty());
+            assertTrue("Unknown patient", index.search("cough", 99, 10).isEmpty());
+            
+            index.add(ClinicalDocument.diagnosis(2, 6, day.plusDays(1), "Migraine", "Throbbing headache", "Rest"));
+            assertTrue("Removed", index.remove(ClinicalDocument.Source.REFILL, 4));
+            assertEquals("Replaced and removed held until compacted", 2, index.deletedCount());
+            assertEquals("Compacted", 2, index.compact());
+            assertEquals("Nothing left to drop", 0, index.deletedCount());
+            assertEquals("Live documents kept", 3, index.size());
+            assertTrue("Still indexed", index.contains(ClinicalDocument.Source.DIAGNOSIS, 2));
+            assertFalse("Removed stays gone", index.contains(ClinicalDocument.Source.REFILL, 4));
+            assertEquals("Found after compaction", 2L, index.search("headache", 6, 10).get(0).sourceId());
+            assertEquals("Postings renumbered", 2, index.search("cough", null, 10).size());
+        });
+        
+        // Test 78: Saved rows replace themselves, and the segment file reloads the same index
+        test("Clinical Search Segment Round Trip", () -> {
+            Path segment = Files.createTempDirectory("telehealth-search").resolve("index.seg");
+            SearchConfig config = new SearchConfig();
+            config.setSegmentFile(segment);
+            ClinicalSearchIndex search = new ClinicalSearchIndex(config, () -> null, name -> "Pat Lee".equals(name) ? 6 : null);
+            
+            Diagnosis diagnosis = new Diagnosis(0, 0, "Pat Lee", "Dr. Smith", "Bronchitis", "Cough", "Amoxicillin",
+                    "Rest and fluids", "Review in a week", day, "MODERATE", "ACTIVE");
+            assertTrue("Known patient indexed", search.addDiagnosis(10, diagnosis));
+            assertFalse("Unknown patient skipped", search.addDiagnosis(11, new Diagnosis(0, "Nobody", "Dr. Smith",
+                    "Flu", "Fever", "Rest", "Fluids")));
+            search.add(ClinicalDocument.diagnosis(10, 6, day, "Tonsillitis", "Sore throat", "Penicillin"));
+            assertEquals("Same row replaced", 1, search.size());
+            assertTrue("Old text gone", search.search("bronchitis", 6, 10).isEmpty());
+            
+            Diagnosis namesake = new Diagnosis(0, "Pat Lee", "Dr. Smith", "Eczema", "Rash", "Cream", "Moisturise");
+            namesake.setPatientId(8);
+            assertTrue("Indexed by its patient id", search.addDiagnosis(12, namesake));
+            assertEquals("Not under the namesake", 1, search.search("eczema", 8, 10).size());
+            assertTrue("Namesake's notes unaffected", search.search("eczema", 6, 10).isEmpty());
+            HospitalReferral referral = new HospitalReferral("Pat Lee", "Dr. Smith", "City Hospital", "Dermatology",
+                    "Severe eczema", "MEDIUM");
+            referral.setPatientId(8);
+            assertTrue("Referral indexed by its patient id", search.addReferral(13, referral));
+            assertEquals("Referral under the chosen patient", 2, search.search("eczema", 8, 10).size());
+            
+            assertTrue("Saved", search.flush());
+            assertTrue("Replaced row compacted after the save", search.metrics().contains("deleted=0"));
+            assertFalse("Nothing new to save", search.flush());
+            ClinicalSearchIndex reloaded = new ClinicalSearchIndex(config, () -> null, name -> null);
+            List<SearchHit> hits = reloaded.search("tonsil", 6, 10);
+            assertEquals("Reloaded hit", 1, hits.size());
+            assertEquals("Title kept", "Diagnosis: Tonsillitis", hits.get(0).title());
+            assertEquals("Date kept", day, hits.get(0).date());
+            assertEquals("Same score after reload", search.search("tonsil", 6, 10).get(0).score(), hits.get(0).score());
+            
+            Files.writeString(segment, "not a segment");
+            ClinicalSearchIndex corrupt = new ClinicalSearchIndex(config, () -> null, name -> null);
+            assertEquals("Corrupt segment starts empty", 0, corrupt.search("tonsil", 6, 10).size());
+        });
+        
+        // Test 79: Catch-up pages through each table after the saved high-water mark
+        test("Clinical Search Catch-Up", () -> {
+            Map<String, List<Map<String, Object>>> tables = new HashMap<>();
+            java.sql.Timestamp noon = java.sql.Timestamp.valueOf(day.atTime(12, 0));
+            tables.put("diagnoses", new ArrayList<>(List.of(
+                    Map.of("id", 1, "patient_id", 6, "diagnosis_text", "Asthma", "symptoms", "Wheezing", "treatment_plan", "Inhaler", "recorded_date", noon),
+                    Map.of("id", 2, "patient_id", 7, "diagnosis_text", "Gastritis", "symptoms", "Nausea", "treatment_plan", "Antacids", "recorded_date", noon))));
+            tables.put("hospital_referrals", new ArrayList<>(List.of(
+                    Map.of("referral_id", 5, "patient_id", 6, "hospital_name", "City Hospital", "department", "Respiratory",
+                            "reason_for_referral", "Severe wheezing", "notes", "", "referral_date", noon))));
+            tables.put("prescription_refills", new ArrayList<>(List.of(
+                    Map.of("refill_id", 9, "user_id", 6, "medication_name", "Salbutamol", "notes", "For wheezing", "request_date", noon))));
+            FakeDb db = searchDb(tables);
+            Path segment = Files.createTempDirectory("telehealth-search").resolve("index.seg");
+            SearchConfig config = new SearchConfig();
+            config.setSegmentFile(segment);
+            config.setCatchUpBatchSize(1);
+            ClinicalSearchIndex search = new ClinicalSearchIndex(config, db.factory(), name -> null);
+            
+            assertEquals("Rows read", 4, search.catchUp());
+            assertEquals("One page per row plus an empty page per table", 7, db.executed().size());
+            assertEquals("Wheezing across sources", 3, search.search("wheezing", 6, 10).size());
+            assertEquals("Date from the row", day, search.search("gastritis", null, 10).get(0).date());
+            search.flush();
+            
+            ClinicalSearchIndex restarted = new ClinicalSearchIndex(config, db.factory(), name -> null);
+            assertEquals("High-water mark restored", 0, restarted.catchUp());
+            tables.get("diagnoses").add(Map.of("id", 3, "patient_id", 6, "diagnosis_text", "Sinusitis", "symptoms",
+                    "Congestion", "treatment_plan", "Saline", "recorded_date", noon));
+            assertEquals("Only the new row", 1, restarted.catchUp());
+            assertEquals("New row searchable", 1, restarted.search("sinusitis", 6, 10).size());
+            assertEquals("Old rows kept", 5, restarted.size());
+            
+            tables.get("diagnoses").add(Map.of("id", 5, "patient_id", 6, "diagnosis_text", "Otitis", "symptoms",
+                    "Earache", "treatment_plan", "Drops", "recorded_date", noon));
+            assertEquals("Higher id read first", 1, restarted.catchUp());
+            tables.get("diagnoses").add(Map.of("id", 4, "patient_id", 7, "diagnosis_text", "Dermatitis", "symptoms",
+                    "Itching", "treatment_plan", "Cream", "recorded_date", noon));
+            assertEquals("Row committed out of id order", 1, restarted.catchUp());
+            assertEquals("Late row searchable", 1, restarted.search("dermatitis", 7, 10).size());
+            assertEquals("Re-read rows not indexed twice", 7, restarted.size());
+        });
+    }
+    
+    /**
+     * Database answering the search catch-up queries from in-memory tables:
+     * rows whose id (the first selected column) is above parameter 1, in id
+     * order, at most parameter 2 of them.
+     */
+    private static FakeDb searchDb(Map<String, List<Map<String, Object>>> tables) {
+        return new FakeDb().onQuery(sql -> true, call -> {
+            String sql = call.sql();
+            String idColumn = sql.substring("SELECT ".length(), sql.indexOf(','));
+            String table = sql.substring(sql.indexOf(" FROM ") + 6).split(" ")[0];
+            long after = call.longParam(1);
+            return tables.get(table).stream()
+                    .filter(row -> ((Number) row.get(idColumn)).longValue() > after)
+                    .sorted(java.util.Comparator.comparingLong(row -> ((Number) row.get(idColumn)).longValue()))
+                    .limit(call.intParam(2)).toList();
+        });
+    }
+    
+    // ==========================================
+    // PATIENT LOOKUP TESTS
+    // ==========================================
+    
+    private static void testPatientLookup() {
+        System.out.println("\n>>> TESTING PATIENT LOOKUP <<<");
+        List<User> patients = List.of(
+                new User(1, "John Smith", "jsmith", null, "Patient"),
+                new User(2, "Johanna Lee", "jlee", null, "Patient"),
+                new User(3, "Zoë Müller", "zoe.m", null, "Patient"),
+                new User(4, "Ravi Johnson", "rjohnson", null, "Patient"),
+                new User(5, "John Smith", "jsmith2", null, "Patient"),
+                new User(6, "Amal Perera", "amalp", null, "Patient"));
+        
+        // Test 80: Prefixes of names, later words and usernames match in order, then one-typo matches
+        test("Patient Lookup Prefix And Fuzzy", () -> {
+            PatientDirectory directory = new PatientDirectory(() -> patients, 60_000, () -> 0L);
+            directory.warmUp();
+            
+            List<PatientDirectory.Match> john = directory.lookup("joh", 10);
+            assertEquals("Alphabetical prefix matches", List.of(2, 1, 5, 4),
+                    john.stream().map(PatientDirectory.Match::userId).toList());
+            assertTrue("No typo needed", john.stream().noneMatch(PatientDirectory.Match::fuzzy));
+            assertEquals("Top-k", 2, directory.lookup("joh", 2).size());
+            assertEquals("Later word", 4, directory.lookup("johns", 10).get(0).userId());
+            assertEquals("Username", 6, directory.lookup("amalp", 10).get(0).userId());
+            assertEquals("Accents and case ignored", 3, directory.lookup("ZOE MUL", 10).get(0).userId());
+            
+            List<PatientDirectory.Match> swapped = directory.lookup("jhon", 10);
+            assertTrue("Swapped letters", swapped.stream().anyMatch(m -> m.userId() == 1 && m.fuzzy()));
+            assertEquals("Wrong letter", 6, directory.lookup("amel", 10).get(0).userId());
+            assertEquals("Missing letter", 6, directory.lookup("perra", 10).get(0).userId());
+            assertEquals("Extra letter", 6, directory.lookup("pererra", 10).get(0).userId());
+            List<PatientDirectory.Match> mixed = directory.lookup("smit", 10);
+            assertFalse("Exact before fuzzy", mixed.get(0).fuzzy());
+            assertTrue("Short input is not fuzzy", directory.lookup("xo", 10).isEmpty());
+            assertTrue("Two typos miss", directory.lookup("pxrxra", 10).isEmpty());
+        });
+        
+        // Test 81: Signups are added in place, exact names resolve to the lowest id, shared names
+        // only resolve with a username, and stale data reloads
+        test("Patient Lookup Updates", () -> {
+            AtomicLong now = new AtomicLong();
+            AtomicInteger loads = new AtomicInteger();
+            List<User> table = new ArrayList<>(patients);
+            PatientDirectory directory = new PatientDirectory(() -> {
+                loads.incrementAndGet();
+                return List.copyOf(table);
+            }, 1_000, now::get);
+            directory.warmUp();
+            directory.warmUp();
+            assertEquals("Loaded once while fresh", 1, loads.get());
+            
+            directory.add(new User(7, "Nadia Fernando", "nadia", null, "Patient"));
+            assertEquals("New signup found", 7, directory.lookup("nad", 5).get(0).userId());
+            directory.add(new User(7, "Nadia Silva", "nadia", null, "Patient"));
+            assertEquals("Renamed, not duplicated", 1, directory.lookup("nadia", 5).size());
+            assertTrue("Old name gone", directory.lookup("fernando", 5).isEmpty());
+            assertEquals("Exact name, lowest id", 1, directory.find("john  SMITH").get().userId());
+            assertFalse("Unknown name", directory.find("John Smit").isPresent());
+            assertFalse("Shared name is not guessed", directory.resolve("John Smith").isPresent());
+            assertEquals("Shown label", 5, directory.resolve("John Smith (jsmith2)").get().userId());
+            assertEquals("Username, not its prefix", 1, directory.resolve("JSMITH").get().userId());
+            assertEquals("Name only one patient has", 6, directory.resolve(" amal perera ").get().userId());
+            assertFalse("Renamed patient's old name", directory.resolve("Nadia Fernando").isPresent());
+            assertFalse("Blank", directory.resolve("  ").isPresent());
+            
+            table.add(new User(8, "Kamal Silva", "kamal", null, "Patient"));
+            now.set(2_000);
+            directory.warmUp();
+            assertEquals("Reloaded after the TTL", 2, loads.get());
+            assertEquals("Other clients' signups appear", 8, directory.lookup("kama", 5).get(0).userId());
+            assertEquals("Size", 7, directory.size());
+        });
+    }
+    
+    // ==========================================
+    // WORK QUEUE TESTS
+    // ==========================================
+    
+    private static void testWorkQueue() {
+        System.out.println("\n>>> TESTING WORK QUEUE <<<");
+        
+        // Test 82: The indexed heap keeps order through updates and removals, and top-k matches a full sort
+        test("Work Queue Indexed Heap", () -> {
+            IndexedHeap<String> heap = new IndexedHeap<>();
+            assertTrue("New key", heap.offer(1, 30, "a"));
+            heap.offer(2, 10, "b");
+            heap.offer(3, 20, "c");
+            assertEquals("Lowest rank first", "b", heap.peek());
+            assertFalse("Update, not insert", heap.offer(1, 5, "a2"));
+            assertEquals("Moved up", "a2", heap.peek());
+            heap.offer(1, 40, "a3");
+            assertEquals("Moved down", List.of("b", "c", "a3"), heap.top(5));
+            assertEquals("Removed by key", "c", heap.remove(3));
+            assertTrue("Unknown key", heap.remove(3) == null);
+            heap.offer(4, 10, "d");
+            assertEquals("Ties by key", List.of("b", "d"), heap.top(2));
+            
+            Random random = new Random(42);
+            Map<Long, Long> reference = new HashMap<>();
+            IndexedHeap<Long> big = new IndexedHeap<>();
+            for (int i = 0; i < 20_000; i++) {
+                long key = random.nextInt(2_000);
+                if (random.nextInt(4) == 0) {
+                    assertEquals("Remove agrees", reference.remove(key) != null, big.remove(key) != null);
+                } else {
+                    long rank = random.nextInt(500);
+                    reference.put(key, rank);
+                    big.offer(key, rank, key);
+                }
+            }
+            List<Long> sorted = reference.entrySet().stream()
+                    .sorted(Map.Entry.<Long, Long>comparingByValue().thenComparing(Map.Entry.comparingByKey()))
+                    .map(Map.Entry::getKey).toList();
+            assertEquals("Size", sorted.size(), big.size());
+            assertEquals("Top-k", sorted.subList(0, 50), big.top(50));
+            List<Long> drained = new ArrayList<>();
+            while (!big.isEmpty()) drained.add(big.poll());
+            assertEquals("Drains in order", sorted, drained);
+        });
+        
+        // Test 83: Referral urgency and vitals alerts outrank routine visits, and reloads drop closed items
+        test("Work Queue Engine", () -> {
+            LocalDateTime morning = LocalDate.now().plusDays(1).atTime(9, 0);
+            List<WorkItem> rows = new ArrayList<>(List.of(
+                    new WorkItem(WorkItem.Kind.BOOKING, 1, 11, "Ann", WorkItem.TIER_ROUTINE, morning, "Cough"),
+                    new WorkItem(WorkItem.Kind.APPOINTMENT, 1, 12, "Ben", WorkItem.TIER_ROUTINE, morning.minusHours(1), null),
+                    new WorkItem(WorkItem.Kind.REFERRAL, 7, 13, "Cal", WorkItem.referralTier("HIGH"), morning.plusDays(3), null),
+                    new WorkItem(WorkItem.Kind.REFERRAL, 8, 14, "Dee", WorkItem.referralTier("LOW"), morning.minusDays(1), null)));
+            AtomicInteger loads = new AtomicInteger();
+            WorkQueueEngine engine = new WorkQueueEngine(doctorId -> {
+                loads.incrementAndGet();
+                return doctorId == 5 ? List.copyOf(rows) : List.of();
+            }, Runnable::run);
+            WorkQueue queue = engine.load(5);
+            AtomicInteger changes = new AtomicInteger();
+            queue.addListener(changes::incrementAndGet);
+            assertEquals("Urgent referral first", "Cal", queue.next().patientName());
+            assertEquals("Then by due time", List.of("Dee", "Ben", "Ann"),
+                    queue.top(4).subList(1, 4).stream().map(WorkItem::patientName).toList());
+            
+            long now = System.currentTimeMillis();
+            engine.handle(new ClinicalEvent.VitalsRecorded(11, "Ann", 900, now, VitalStatus.CRITICAL_HIGH, false, "BP 190/120"));
+            assertEquals("Critical vitals jump the queue", WorkItem.Kind.VITALS, queue.next().kind());
+            engine.handle(new ClinicalEvent.VitalsRecorded(99, "Zed", 901, now, VitalStatus.HIGH, false, null));
+            assertEquals("Other doctors' patients ignored", 5, queue.size());
+            engine.handle(new ClinicalEvent.VitalsRecorded(11, "Ann", 902, now, VitalStatus.NORMAL, false, null));
+            assertFalse("Normal reading clears the alert", queue.contains(WorkItem.Kind.VITALS, 900));
+            assertTrue("Listeners told", changes.get() >= 2);
+            
+            engine.dismiss(5, queue.next());
+            assertEquals("Seen", "Dee", queue.next().patientName());
+            rows.remove(1); // appointment cancelled
+            engine.handle(new ClinicalEvent.BookingChanged(ClinicalEvent.BookingChanged.Change.CANCELLED, 5, "Ben",
+                    morning.toLocalDate().toString(), "08:00", now));
+            assertEquals("Booking change reloads", 2, loads.get());
+            assertFalse("Cancelled item gone", queue.contains(WorkItem.Kind.APPOINTMENT, 1));
+            assertFalse("Seen item stays hidden", queue.contains(WorkItem.Kind.REFERRAL, 7));
+            engine.handle(new ClinicalEvent.BookingChanged(ClinicalEvent.BookingChanged.Change.CREATED, 6, "Eve",
+                    morning.toLocalDate().toString(), "10:00", now));
+            assertEquals("Unloaded doctors not reloaded", 2, loads.get());
+            assertTrue("Rank orders tier before time",
+                    new WorkItem(WorkItem.Kind.REFERRAL, 1, 1, null, WorkItem.TIER_CRITICAL, morning.plusYears(1), null).rank()
+                            < new WorkItem(WorkItem.Kind.BOOKING, 1, 1, null, WorkItem.TIER_URGENT, morning, null).rank());
+            engine.close();
+        });
+        
+        // Test 84: The loader queues the latest abnormal vitals, and patients whose last visit closes are forgotten
+        test("Work Queue Vitals Load And Pruning", () -> {
+            String tomorrow = LocalDate.now().plusDays(1).toString();
+            List<Map<String, Object>> bookings = new ArrayList<>(List.of(
+                    Map.of("booking_id", 1, "patient_id", 11, "name", "Ann", "appointment_date", tomorrow, "appointment_time", "09:00"),
+                    Map.of("booking_id", 2, "patient_id", 12, "name", "Ben", "appointment_date", tomorrow, "appointment_time", "10:00")));
+            List<Map<String, Object>> vitals = new ArrayList<>(List.of(
+                    vitalsRow(700, 11, "Ann", 125f, 85f), // latest reading is out of range
+                    vitalsRow(701, 12, "Ben", 72f, 98f),
+                    vitalsRow(702, 99, "Zed", 150f, 80f))); // not anyone's patient
+            FakeDb db = workQueueDb(Map.of("bookings", bookings, "vitals_records", vitals));
+            WorkQueueEngine engine = new WorkQueueEngine(WorkQueueEngine.databaseLoader(db.factory()), Runnable::run);
+            
+            WorkQueue queue = engine.load(5);
+            assertEquals("Only queued patients' vitals read", List.<Object>of(11, 12),
+                    new ArrayList<>(db.executed(" FROM vitals_records v ").get(0).params().values()));
+            WorkItem alert = queue.next();
+            assertEquals("Saved abnormal reading queued", WorkItem.Kind.VITALS, alert.kind());
+            assertEquals("Latest reading", 700L, alert.sourceId());
+            assertEquals("Critical tier", WorkItem.TIER_CRITICAL, alert.tier());
+            assertFalse("Normal reading not queued", queue.contains(WorkItem.Kind.VITALS, 701));
+            
+            engine.dismiss(5, alert);
+            engine.load(5);
+            assertFalse("Dismissed reading stays closed on reload", queue.contains(WorkItem.Kind.VITALS, 700));
+            long now = System.currentTimeMillis();
+            engine.handle(new ClinicalEvent.VitalsRecorded(12, "Ben", 703, now, VitalStatus.HIGH, false, null));
+            engine.load(5);
+            assertTrue("Newer event kept over the loaded reading", queue.contains(WorkItem.Kind.VITALS, 703));
+            assertTrue("Tracked", engine.metrics().contains("patients=2 openVitals=1"));
+            
+            bookings.removeIf(row -> row.get("patient_id").equals(12)); // Ben's last booking closes
+            engine.load(5);
+            assertFalse("Closed patient's alert gone", queue.contains(WorkItem.Kind.VITALS, 703));
+            assertTrue("Closed patient forgotten", engine.metrics().contains("patients=1 openVitals=0"));
+            engine.handle(new ClinicalEvent.VitalsRecorded(12, "Ben", 704, now, VitalStatus.HIGH, false, null));
+            assertTrue("No state kept for unqueued patients", engine.metrics().contains("openVitals=0"));
+            engine.close();
+        });
+    }
+    
+    private static Map<String, Object> vitalsRow(long vitalsId, int userId, String name, float pulse, float oxygen) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("vitals_id", vitalsId);
+        row.put("user_id", userId);
+        row.put("name", name);
+        row.put("recorded_at", new java.sql.Timestamp(vitalsId * 1000));
+        row.put("pulse", pulse);
+        row.put("oxygen", oxygen);
+        return row;
+    }
+    
+    /** Rows by the first table named after FROM; an IN (...) list filters vitals by user_id. */
+    private static FakeDb workQueueDb(Map<String, List<Map<String, Object>>> tables) {
+        return new FakeDb().onQuery(sql -> true, call -> {
+            String sql = call.sql();
+            String table = sql.substring(sql.indexOf(" FROM ") + 6).split(" ")[0];
+            List<Map<String, Object>> rows = tables.getOrDefault(table, List.of());
+            if (table.equals("vitals_records")) {
+                rows = rows.stream().filter(row -> call.params().containsValue(row.get("user_id"))).toList();
+            }
+            return rows;
+        });
+    }
+    
+    // ==========================================
+    // REFERRAL MATCHING TESTS
+    // ==========================================
+    
+    private static void testReferralMatching() {
+        System.out.println("\n>>> TESTING REFERRAL MATCHING <<<");
+        LocalDate today = LocalDate.of(2026, 3, 2);
+        
+        // Test 85: Urgency then preferred date decides who gets a day, and capacity changes move only those affected
+        test("Referral Matching Order And Capacity", () -> {
+            ReferralMatcher matcher = new ReferralMatcher(10, today);
+            matcher.putDepartment(new Department(1, "City General Hospital", "Cardiology", 2));
+            matcher.putDepartment(new Department(2, "Children's Hospital", "Pediatrics", 1));
+            LocalDate tomorrow = today.plusDays(1);
+            
+            matcher.upsert(new PendingReferral(1, "City General Hospital", "Cardiology", "MEDIUM", today, tomorrow));
+            matcher.upsert(new PendingReferral(2, " city general hospital", "CARDIOLOGY", "LOW", today, tomorrow));
+            assertEquals("Preferred date kept", tomorrow, matcher.slotOf(2));
+            matcher.upsert(new PendingReferral(3, "City General Hospital", "Cardiology", "HIGH", today, tomorrow));
+            assertEquals("Urgent referral takes a place", tomorrow, matcher.slotOf(3));
+            assertEquals("Lowest urgency moves on", today.plusDays(2), matcher.slotOf(2));
+            matcher.upsert(new PendingReferral(4, "City General Hospital", "Cardiology", "EMERGENCY", today, today.plusDays(5)));
+            assertEquals("Emergencies go today", today, matcher.slotOf(4));
+            assertFalse("Unknown department", matcher.upsert(new PendingReferral(5, "Nowhere", "Cardiology", "LOW", today, null)));
+            assertFalse("Not matched", matcher.isMatched(5));
+            List<SlotAssignment> changes = matcher.drainChanges();
+            assertEquals("Each referral reported once, latest day", 4, changes.size());
+            assertTrue("Moved referral reported with its new day",
+                    changes.contains(new SlotAssignment(2, 1, today.plusDays(2))));
+            
+            matcher.setCapacity(1, tomorrow, 3);
+            assertEquals("More room pulls it back", tomorrow, matcher.slotOf(2));
+            assertEquals("Only the moved referral reported", List.of(new SlotAssignment(2, 1, tomorrow)), matcher.drainChanges());
+            matcher.setCapacity(1, tomorrow, 1);
+            assertEquals("Most urgent keeps its day", tomorrow, matcher.slotOf(3));
+            assertEquals("Others move to the next day", today.plusDays(2), matcher.slotOf(1));
+            assertEquals("Both fit there", today.plusDays(2), matcher.slotOf(2));
+            matcher.setReserved(1, today.plusDays(2), 2);
+            assertEquals("Confirmed referrals fill the day", today.plusDays(3), matcher.slotOf(1));
+            assertEquals("Free places", 0, matcher.freePlaces(1, today.plusDays(3)));
+            matcher.drainChanges();
+            matcher.remove(3);
+            assertEquals("Freed place goes to the next in line", tomorrow, matcher.slotOf(1));
+            assertEquals("Rest unchanged", today.plusDays(3), matcher.slotOf(2));
+            assertEquals("Removed referral not reported", List.of(new SlotAssignment(1, 1, tomorrow)), matcher.drainChanges());
+            
+            for (int id = 10; id < 21; id++) {
+                matcher.upsert(new PendingReferral(id, "Children's Hospital", "Pediatrics", "LOW", today, today));
+            }
+            assertEquals("One a day for ten days", today.plusDays(9), matcher.slotOf(19));
+            assertTrue("Beyond the horizon is waitlisted", matcher.slotOf(20) == null);
+            matcher.advanceTo(tomorrow);
+            assertEquals("Emergency still today", tomorrow, matcher.slotOf(4));
+            assertEquals("Yesterday's referral takes the first day", tomorrow, matcher.slotOf(10));
+            assertTrue("Still waitlisted", matcher.slotOf(20) == null);
+            assertEquals("Dropped when no longer pending", 9, matcher.retainAll(Set.of(1L, 2L, 4L, 10L), 19));
+            assertEquals("Newer ids kept", 5, matcher.size());
+            assertEquals("Line moves up", tomorrow.plusDays(1), matcher.slotOf(20));
+        });
+        
+        // Test 86: After random changes the incremental matcher agrees with matching everything from scratch
+        test("Referral Matching Incremental Equals Full", () -> {
+            Random random = new Random(7);
+            int horizon = 20;
+            String[] urgencies = {"EMERGENCY", "HIGH", "MEDIUM", "LOW"};
+            ReferralMatcher matcher = new ReferralMatcher(horizon, today);
+            Map<Integer, Integer> daily = new HashMap<>();
+            Map<String, Integer> overrides = new HashMap<>();
+            Map<String, Integer> reserved = new HashMap<>();
+            Map<Long, PendingReferral> pending = new HashMap<>();
+            Map<Long, LocalDate> saved = new HashMap<>();
+            for (int d = 1; d <= 3; d++) {
+                daily.put(d, 1 + random.nextInt(3));
+                matcher.putDepartment(new Department(d, "Hospital", "Dept " + d, daily.get(d)));
+            }
+            for (int op = 0; op < 3_000; op++) {
+                int choice = random.nextInt(10);
+                int department = 1 + random.nextInt(3);
+                LocalDate day = today.plusDays(random.nextInt(horizon + 3));
+                if (choice < 5 || pending.isEmpty()) {
+                    long id = 1 + random.nextInt(400);
+                    PendingReferral referral = new PendingReferral(id, "Hospital", "Dept " + department,
+                            urgencies[random.nextInt(4)], today, random.nextInt(5) == 0 ? null : day);
+                    pending.put(id, referral);
+                    matcher.upsert(referral);
+                } else if (choice < 7) {
+                    long id = new ArrayList<>(pending.keySet()).get(random.nextInt(pending.size()));
+                    pending.remove(id);
+                    saved.remove(id);
+                    matcher.remove(id);
+                } else if (choice < 8) {
+                    int capacity = random.nextInt(4);
+                    overrides.put(department + "@" + day, capacity);
+                    matcher.setCapacity(department, day, capacity);
+                } else if (choice < 9) {
+                    int count = random.nextInt(3);
+                    reserved.put(department + "@" + day, count);
+                    matcher.setReserved(department, day, count);
+                } else {
+                    daily.put(department, random.nextInt(4));
+                    matcher.putDepartment(new Department(department, "Hospital", "Dept " + department, daily.get(department)));
+                }
+                for (SlotAssignment change : matcher.drainChanges()) {
+                    saved.put(change.referralId(), change.slotDate());
+                }
+            }
+            
+            // Reference: serve each department in order, each referral taking its earliest day with room
+            List<PendingReferral> order = new ArrayList<>(pending.values());
+            int[] rank = new int[1];
+            order.sort(java.util.Comparator.<PendingReferral>comparingInt(r -> List.of(urgencies).indexOf(r.urgencyLevel()))
+                    .thenComparing(r -> r.preferredDate() != null ? r.preferredDate() : r.referralDate())
+                    .thenComparingLong(PendingReferral::referralId));
+            Map<String, Integer> load = new HashMap<>();
+            int checked = 0;
+            for (PendingReferral referral : order) {
+                int department = Integer.parseInt(referral.department().substring(5));
+                LocalDate preferred = referral.preferredDate() != null ? referral.preferredDate() : referral.referralDate();
+                LocalDate expected = null;
+                LocalDate from = referral.urgencyLevel().equals("EMERGENCY") || preferred.isBefore(today) ? today : preferred;
+                for (LocalDate day = from; day.isBefore(today.plusDays(horizon)); day = day.plusDays(1)) {
+                    String key = department + "@" + day;
+                    int capacity = Math.max(0, overrides.getOrDefault(key, daily.get(department)) - reserved.getOrDefault(key, 0));
+                    if (load.getOrDefault(key, 0) < capacity) {
+                        load.merge(key, 1, Integer::sum);
+                        expected = day;
+                        break;
+                    }
+                }
+                assertEquals("Referral " + referral.referralId(), expected, matcher.slotOf(referral.referralId()));
+                assertEquals("Saved day for " + referral.referralId(), expected, saved.get(referral.referralId()));
+                checked++;
+            }
+            assertEquals("All compared", pending.size(), checked);
+            assertTrue("Only part of the queue re-matched", matcher.getRematchedCount() < 3_000L * pending.size());
+        });
+        
+        // Test 87: The service reads registered departments and pending rows, saves changed days, and keeps local referrals
+        test("Referral Matching Service Sync", () -> {
+            List<Map<String, Object>> departments = List.of(Map.of("department_id", 1,
+                    "hospital_name", "City General Hospital", "department", "Cardiology", "daily_capacity", 1));
+            List<Map<String, Object>> referrals = new ArrayList<>();
+            referrals.add(new HashMap<>(Map.of("referral_id", 1L, "hospital_name", "City General Hospital",
+                    "department", "Cardiology", "urgency_level", "MEDIUM", "referral_date", "2026-03-01",
+                    "preferred_appointment_date", "2026-03-03", "status", "PENDING")));
+            referrals.add(new HashMap<>(Map.of("referral_id", 2L, "hospital_name", "City General Hospital",
+                    "department", "Cardiology", "urgency_level", "HIGH", "referral_date", "2026-03-01",
+                    "preferred_appointment_date", "2026-03-03", "status", "PENDING")));
+            referrals.add(new HashMap<>(Map.of("referral_id", 3L, "hospital_name", "City General Hospital",
+                    "department", "Cardiology", "urgency_level", "LOW", "referral_date", "2026-03-01",
+                    "preferred_appointment_date", "2026-03-03", "status", "CONFIRMED")));
+            Map<Long, String> saved = new HashMap<>();
+            MatchingConfig config = new MatchingConfig();
+            config.setCatchUpBatchSize(1);
+            ReferralMatchingService service = new ReferralMatchingService(config,
+                    referralDb(departments, referrals, saved).factory(),
+                    Clock.fixed(today.atStartOfDay(ZoneId.systemDefault()).toInstant(), ZoneId.systemDefault()));
+            
+            assertEquals("Hospitals from the registry", List.of("City General Hospital"), service.hospitals());
+            assertEquals("Departments", List.of("Cardiology"), service.departments("City General Hospital"));
+            assertEquals("Urgent first", "2026-03-03", saved.get(2L));
+            assertEquals("Then the next day", "2026-03-04", saved.get(1L));
+            assertFalse("Confirmed rows not matched", saved.containsKey(3L));
+            
+            referrals.get(1).put("status", "CONFIRMED");
+            saved.clear();
+            assertEquals("Only the change saved", 1, service.match());
+            assertEquals("Moved up", "2026-03-03", saved.get(1L));
+            
+            HospitalReferral local = new HospitalReferral("Jane Roe", "Dr. Emily Brown", "City General Hospital",
+                    "Cardiology", "Chest pain", "EMERGENCY");
+            assertTrue("Local referral matched", service.submit(9, local));
+            assertEquals("Saved at once", "2026-03-02", saved.get(9L));
+            service.match();
+            assertEquals("Not dropped before the table shows it", today, service.slotOf(9));
+            assertFalse("Unregistered department", service.submit(10, new HospitalReferral("Jane Roe", "Dr. Emily Brown",
+                    "City General Hospital", "Psychiatry", "Review", "LOW")));
+            assertTrue("Metrics", service.metrics().contains("pending=2"));
+            
+            referrals.add(new HashMap<>(Map.of("referral_id", 6L, "hospital_name", "City General Hospital",
+                    "department", "Cardiology", "urgency_level", "LOW", "referral_date", "2026-03-01",
+                    "preferred_appointment_date", "2026-03-05", "status", "PENDING")));
+            service.match();
+            assertEquals("New referral read", LocalDate.of(2026, 3, 5), service.slotOf(6));
+            referrals.add(new HashMap<>(Map.of("referral_id", 5L, "hospital_name", "City General Hospital",
+                    "department", "Cardiology", "urgency_level", "LOW", "referral_date", "2026-03-01",
+                    "preferred_appointment_date", "2026-03-06", "status", "PENDING")));
+            saved.clear();
+            service.match();
+            assertEquals("Late commit below the high-water mark found", LocalDate.of(2026, 3, 6), service.slotOf(5));
+            assertEquals("And saved", "2026-03-06", saved.get(5L));
+        });
+    }
+    
+    /** Serves the matching service's queries from the given rows and records saved assignments. */
+    private static FakeDb referralDb(List<Map<String, Object>> departments,
+                                     List<Map<String, Object>> referrals, Map<Long, String> saved) {
+        return new FakeDb()
+                .onQuery("FROM hospital_departments", call -> departments)
+                .onQuery("referral_id > ?", call -> referrals.stream()
+                        .filter(row -> row.get("status").equals("PENDING") && (Long) row.get("referral_id") > call.longParam(1))
+                        .limit(call.intParam(2)).toList())
+                .onQuery("referral_id IN (", call -> referrals.stream()
+                        .filter(row -> row.get("status").equals("PENDING") && call.params().containsValue(row.get("referral_id")))
+                        .toList())
+                .onQuery(sql -> sql.startsWith("SELECT referral_id FROM"), call -> referrals.stream()
+                        .filter(row -> row.get("status").equals("PENDING")).toList())
+                .onBatch(call -> saved.put((Long) call.param(1), (String) call.param(3)));
+    }
+    
+    // ==========================================
+    // SUGGESTION RULES TESTS
+    // ==========================================
+    
+    private static void testSuggestionRules() {
+        System.out.println("\n>>> TESTING SUGGESTION RULES <<<");
+        
+        // Test 88: One pass finds every keyword, overlapping or not, and agrees with contains() over thousands of rules
+        test("Suggestion Rules Keyword Matching", () -> {
+            SuggestionRules rules = SuggestionRules.parse(String.join("\n",
+                    "# overlapping keywords",
+                    "[prescription]",
+                    "he => HE",
+                    "she => SHE",
+                    "his => HIS",
+                    "hers, SHE => HERS",
+                    "zoë => ZOE",
+                    "@default => NONE"));
+            assertEquals("Overlapping matches in file order", "HE\nSHE\nHERS", rules.suggest(SuggestionRules.Section.PRESCRIPTION, "USHERS"));
+            assertEquals("Each rule once", "HE\nSHE\nHERS", rules.suggest(SuggestionRules.Section.PRESCRIPTION, "she, she and she"));
+            assertEquals("Case ignored beyond ASCII", "ZOE", rules.suggest(SuggestionRules.Section.PRESCRIPTION, "ZOË"));
+            assertEquals("Default when nothing matches", "NONE", rules.suggest(SuggestionRules.Section.PRESCRIPTION, "xyz"));
+            assertEquals("Empty section", "", rules.suggest(SuggestionRules.Section.TREATMENT, "she"));
+            assertEquals("Keywords shared between rules", 5, rules.keywordCount());
+            
+            Random random = new Random(7);
+            List<List<String>> keywords = new ArrayList<>();
+            StringBuilder source = new StringBuilder("[prescription]\n");
+            for (int i = 0; i < 3000; i++) {
+                List<String> words = new ArrayList<>();
+                for (int k = 1 + random.nextInt(2); k > 0; k--) words.add(randomWord(random, 2 + random.nextInt(4)));
+                keywords.add(words);
+                source.append(String.join(", ", words)).append(" => rule ").append(i).append('\n');
+            }
+            SuggestionRules large = SuggestionRules.parse(source.toString());
+            for (int n = 0; n < 200; n++) {
+                String text = randomWord(random, 20 + random.nextInt(200));
+                List<String> expected = new ArrayList<>();
+                for (int i = 0; i < keywords.size(); i++) {
+                    if (keywords.get(i).stream().anyMatch(text::contains)) expected.add("rule " + i);
+                }
+                String upper = text.toUpperCase(java.util.Locale.ROOT);
+                assertEquals("Same rules as contains()", String.join("\n", expected),
+                        large.suggest(SuggestionRules.Section.PRESCRIPTION, upper));
+            }
+        });
+        
+        // Test 89: The bundled rules give the former templates, and malformed files are rejected with a line number
+        test("Suggestion Rules Bundled Templates", () -> {
+            SuggestionRules rules = SuggestionRules.parse(SuggestionEngine.bundledRules());
+            assertEquals("Fever and cough",
+                    "• Paracetamol 500mg - Take 1 tablet every 6 hours as needed\n"
+                    + "• Cough syrup - 10ml three times daily\n"
+                    + "• Throat lozenges - As needed for throat irritation\n"
+                    + "\nNote: Take medications as prescribed and complete full course.",
+                    rules.suggest(SuggestionRules.Section.PRESCRIPTION, "Viral FEVER with dry cough"));
+            assertEquals("No keyword",
+                    "• Medication to be prescribed based on specific diagnosis\n"
+                    + "• Follow up consultation recommended\n"
+                    + "\nNote: Take medications as prescribed and complete full course.",
+                    rules.suggest(SuggestionRules.Section.PRESCRIPTION, "Allergic rhinitis"));
+            String generalPlan = "TREATMENT PLAN:\n\n"
+                    + "1. IMMEDIATE CARE:\n"
+                    + "   • Rest and adequate sleep\n"
+                    + "   • Stay hydrated\n"
+                    + "   • Follow prescribed medication\n\n"
+                    + "2. FOLLOW-UP CARE:\n"
+                    + "   • Monitor symptoms daily\n"
+                    + "   • Return if symptoms worsen\n"
+                    + "   • Schedule follow-up in 1 week\n\n"
+                    + "3. LIFESTYLE RECOMMENDATIONS:\n"
+                    + "   • Maintain healthy diet\n"
+                    + "   • Avoid strenuous activities\n"
+                    + "   • Practice good hygiene\n\n"
+                    + "4. WARNING SIGNS:\n"
+                    + "   • Contact immediately if severe symptoms develop\n"
+                    + "   • Emergency care if condition deteriorates\n";
+            assertEquals("Former treatment plan", generalPlan, rules.suggest(SuggestionRules.Section.TREATMENT, "Allergic rhinitis"));
+            String plan = rules.suggest(SuggestionRules.Section.TREATMENT, "Headache with high blood pressure");
+            assertTrue("Condition lines under immediate care", plan.contains("   • Follow prescribed medication\n"
+                    + "   • Note where the pain is and how severe it is each day\n"
+                    + "   • Reduce salt intake and record blood pressure every morning\n\n2. FOLLOW-UP CARE:"));
+            
+            String[][] broken = {
+                    {"fever => x", "Line 1: rule before the first [section]"},
+                    {"[prescription]\n\nfever", "Line 3: expected \"keywords => line\""},
+                    {"[diagnosis]", "Line 1: unknown section [diagnosis]"},
+                    {"[treatment]\n@middle => x", "Line 2: unknown directive @middle"},
+                    {"[treatment]\nfever, , cold => x", "Line 2: empty keyword"}};
+            for (String[] file : broken) {
+                try {
+                    SuggestionRules.parse(file[0]);
+                    assertTrue("Rejected: " + file[1], false);
+                } catch (IllegalArgumentException e) {
+                    assertEquals("Error names the line", file[1], e.getMessage());
+                }
+            }
+        });
+        
+        // Test 90: Edits to the rules file are picked up without a restart, and a broken edit keeps the previous rules
+        test("Suggestion Rules Hot Reload", () -> {
+            Path dir = Files.createTempDirectory("telehealth-rules");
+            Path file = dir.resolve("rules.txt");
+            SuggestionConfig config = new SuggestionConfig();
+            config.setRulesFile(file);
+            config.setReloadIntervalMs(0);
+            SuggestionEngine engine = new SuggestionEngine(config);
+            try {
+                assertTrue("Bundled rules while the file is missing",
+                        engine.prescription("fever").startsWith("• Paracetamol 500mg"));
+                assertFalse("Nothing changed", engine.reload());
+                
+                Files.writeString(file, "[prescription]\nfever => A\n");
+                assertTrue("New file loaded", engine.reload());
+                assertEquals("New rules used", "A", engine.prescription("Fever"));
+                assertFalse("Unchanged file not re-read", engine.reload());
+                
+                Files.writeString(file, "[prescription]\nfever => A\ncough\n");
+                assertFalse("Broken file rejected", engine.reload());
+                assertEquals("Previous rules kept", "A", engine.prescription("fever"));
+                assertTrue("Failure counted", engine.metrics().contains("failedReloads=1"));
+                
+                Files.writeString(file, "[prescription]\nfever => Bb\n[treatment]\n@header => Plan\n");
+                assertTrue("Fixed file loaded", engine.reload());
+                assertEquals("Edited rule", "Bb", engine.prescription("fever"));
+                assertEquals("Edited plan", "Plan", engine.treatmentPlan("fever"));
+                
+                Files.delete(file);
+                assertTrue("Back to bundled rules", engine.reload());
+                assertTrue("Bundled plan", engine.treatmentPlan("").startsWith("TREATMENT PLAN:"));
+                assertTrue("Metrics", engine.metrics().contains("reloads=4"));
+            } finally {
+                engine.close();
+                Files.deleteIfExists(file);
+                Files.deleteIfExists(dir);
+            }
+        });
+    }
+    
+    private static String randomWord(Random random, int length) {
+        char[] letters = new char[length];
+        for (int i = 0; i < length; i++) letters[i] = (char) ('a' + random.nextInt(4)); // small alphabet: many overlaps
+        return new String(letters);
+    }
+    
     // ==========================================
     // UTILITY METHODS
     // ==========================================
@@ -644,6 +3412,29 @@ public class TelehealthTestRunner {
         System.out.println("  • Business Logic Validation ✓");
         System.out.println("  • Edge Cases & Error Handling ✓");
         System.out.println("  • Integration Workflows ✓");
+        System.out.println("  • Connection Pool ✓");
+        System.out.println("  • Health Report Loader ✓");
+        System.out.println("  • Batch Report Engine ✓");
+        System.out.println("  • Keyset Pagination ✓");
+        System.out.println("  • Filter Engine ✓");
+        System.out.println("  • Reference Data Cache ✓");
+        System.out.println("  • Slot Availability ✓");
+        System.out.println("  • Vitals Time Series ✓");
+        System.out.println("  • Vitals Ingestion ✓");
+        System.out.println("  • Vitals Anomaly Detection ✓");
+        System.out.println("  • Clinical Event Bus ✓");
+        System.out.println("  • Service Layer And REST API ✓");
+        System.out.println("  • Load Generator ✓");
+        System.out.println("  • Authentication ✓");
+        System.out.println("  • Session Store ✓");
+        System.out.println("  • View Registry ✓");
+        System.out.println("  • Startup Timeline ✓");
+        System.out.println("  • Schema Migrations ✓");
+        System.out.println("  • Clinical Search ✓");
+        System.out.println("  • Patient Lookup ✓");
+        System.out.println("  • Work Queue ✓");
+        System.out.println("  • Referral Matching ✓");
+        System.out.println("  • Suggestion Rules ✓");
         
         System.out.println("\nASSESSMENT 2 REQUIREMENTS:");
         System.out.println("  ✓ Test plan with test data");
@@ -657,4 +3448,4 @@ public class TelehealthTestRunner {
         System.out.println("Assessment 2 - Test Data and Expected Results: FULFILLED");
         System.out.println("=".repeat(70));
     }
-}
\ No newline at end of file
+}
\ No newline at end of file